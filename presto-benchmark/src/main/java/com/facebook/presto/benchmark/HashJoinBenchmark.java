@@ -93,6 +93,8 @@ public class HashJoinBenchmark
                     new PagesIndex.TestingFactory(false),
                     false,
                     SingleStreamSpillerFactory.unsupportedSingleStreamSpillerFactory(),
+                    Optional.empty(),
+                    0,
                     false);
 
             DriverContext driverContext = taskContext.addPipelineContext(0, false, false, false).addDriverContext();
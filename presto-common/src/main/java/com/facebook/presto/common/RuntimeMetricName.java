@@ -87,4 +87,17 @@ public class RuntimeMetricName
     public static final String DIRECTORY_LISTING_CACHE_MISS = "directoryListingCacheMiss";
     public static final String DIRECTORY_LISTING_TIME_NANOS = "directoryListingTimeNanos";
     public static final String FILES_READ_COUNT = "filesReadCount";
+    // Pages compressed with each codec, and pages sent uncompressed, by the adaptive exchange compression
+    public static final String ADAPTIVE_COMPRESSION_LZ4_PAGES = "adaptiveCompressionLz4Pages";
+    public static final String ADAPTIVE_COMPRESSION_ZSTD_PAGES = "adaptiveCompressionZstdPages";
+    public static final String ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES = "adaptiveCompressionUncompressedPages";
+    public static final String ADAPTIVE_COMPRESSION_SAVED_BYTES = "adaptiveCompressionSavedBytes";
+    public static final String ADAPTIVE_COMPRESSION_CPU_TIME_NANOS = "adaptiveCompressionCpuTimeNanos";
+    // Sorted runs spilled by an operator, and the merges and merge passes needed to read them back with a bounded fan-in
+    public static final String SPILL_RUNS_COUNT = "spillRunsCount";
+    public static final String SPILL_MERGES_COUNT = "spillMergesCount";
+    public static final String SPILL_MERGE_PASSES_COUNT = "spillMergePassesCount";
+    // Expected size a hash table was created with, and the actual number of entries as a percentage of it
+    public static final String HASH_TABLE_EXPECTED_SIZE = "hashTableExpectedSize";
+    public static final String HASH_TABLE_SIZE_MISESTIMATE_PERCENT = "hashTableSizeMisestimatePercent";
 }
@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.common.predicate;
+
+import io.airlift.slice.Slice;
+import io.airlift.slice.XxHash64;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.Arrays;
+
+import static com.facebook.presto.common.predicate.TupleDomainFilterUtils.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A register-blocked Bloom filter over values of fixed width (long) and variable width (bytes) types.
+ * Every value sets four bits within a single 64-bit word, so both insertion
+ * and lookup touch exactly one word.
+ * <p>
+ * Used as a compact runtime join filter for build sides whose exact set of values is too large
+ * to be represented as a {@link Domain}. Filters of the same size can be merged with {@link #union}.
+ */
+public final class BlockedBloomFilter
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(BlockedBloomFilter.class).instanceSize();
+
+    // Number of bits of the filter per distinct value at which the false positive rate is around 2%
+    private static final int BITS_PER_DISTINCT_VALUE = 10;
+    private static final int MAX_WORD_COUNT = 1 << 27;
+
+    private final long[] words;
+    private final int wordMask;
+
+    private BlockedBloomFilter(long[] words)
+    {
+        this.words = requireNonNull(words, "words is null");
+        checkArgument(Integer.bitCount(words.length) == 1, "word count must be a power of 2");
+        this.wordMask = words.length - 1;
+    }
+
+    /**
+     * Creates an empty filter which occupies at most {@code maxSizeInBytes}, rounded down to a power of 2.
+     */
+    public static BlockedBloomFilter create(long maxSizeInBytes)
+    {
+        return new BlockedBloomFilter(new long[getWordCount(maxSizeInBytes)]);
+    }
+
+    /**
+     * Returns the retained size of a filter created with {@code maxSizeInBytes}, so that it can be reserved before the filter is allocated.
+     */
+    public static long getRetainedSizeInBytes(long maxSizeInBytes)
+    {
+        return INSTANCE_SIZE + sizeOfLongArray(getWordCount(maxSizeInBytes));
+    }
+
+    private static int getWordCount(long maxSizeInBytes)
+    {
+        checkArgument(maxSizeInBytes >= Long.BYTES, "maxSizeInBytes must be at least 8");
+        return (int) Math.min(Long.highestOneBit(maxSizeInBytes / Long.BYTES), MAX_WORD_COUNT);
+    }
+
+    public static long hashLong(long value)
+    {
+        // murmur3 fmix64; every bit of the value affects both the word index and the bit mask
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    public static long hashBytes(byte[] buffer, int offset, int length)
+    {
+        return hashSlice(wrappedBuffer(buffer, offset, length));
+    }
+
+    public static long hashSlice(Slice slice)
+    {
+        return hashLong(XxHash64.hash(slice));
+    }
+
+    public void insertLong(long value)
+    {
+        insertHash(hashLong(value));
+    }
+
+    public void insertSlice(Slice value)
+    {
+        insertHash(hashSlice(value));
+    }
+
+    public boolean mightContainLong(long value)
+    {
+        return mightContainHash(hashLong(value));
+    }
+
+    public boolean mightContainBytes(byte[] buffer, int offset, int length)
+    {
+        return mightContainHash(hashBytes(buffer, offset, length));
+    }
+
+    public void insertHash(long hash)
+    {
+        words[wordIndex(hash)] |= bitMask(hash);
+    }
+
+    public boolean mightContainHash(long hash)
+    {
+        long mask = bitMask(hash);
+        return (words[wordIndex(hash)] & mask) == mask;
+    }
+
+    /**
+     * Adds the values of the other filter to this filter.
+     */
+    public void unionWith(BlockedBloomFilter other)
+    {
+        checkArgument(words.length == other.words.length, format("Cannot union filters of different sizes: %s and %s", words.length, other.words.length));
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Returns a new filter which contains the values of both this and the other filter.
+     */
+    public BlockedBloomFilter union(BlockedBloomFilter other)
+    {
+        checkArgument(words.length == other.words.length, format("Cannot union filters of different sizes: %s and %s", words.length, other.words.length));
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] | other.words[i];
+        }
+        return new BlockedBloomFilter(result);
+    }
+
+    /**
+     * Returns the number of distinct values the filter can hold before the false positive rate degrades.
+     */
+    public long getCapacity()
+    {
+        return (long) words.length * Long.SIZE / BITS_PER_DISTINCT_VALUE;
+    }
+
+    /**
+     * Returns the fraction of bits that are set. A filter with a high fill ratio passes most values.
+     */
+    public double getFillRatio()
+    {
+        long setBits = 0;
+        for (long word : words) {
+            setBits += Long.bitCount(word);
+        }
+        return (double) setBits / ((long) words.length * Long.SIZE);
+    }
+
+    public long getSizeInBytes()
+    {
+        return (long) words.length * Long.BYTES;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOf(words);
+    }
+
+    private int wordIndex(long hash)
+    {
+        // the low bits select the bits within the word, the high bits select the word
+        return (int) (hash >>> 37) & wordMask;
+    }
+
+    private static long bitMask(long hash)
+    {
+        return (1L << hash) | (1L << (hash >>> 6)) | (1L << (hash >>> 12)) | (1L << (hash >>> 18));
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BlockedBloomFilter that = (BlockedBloomFilter) o;
+        return Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString()
+    {
+        return format("%s{sizeInBytes=%s}", getClass().getSimpleName(), getSizeInBytes());
+    }
+}
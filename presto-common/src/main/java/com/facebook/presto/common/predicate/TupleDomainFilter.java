@@ -1515,6 +1515,123 @@ public interface TupleDomainFilter
         }
     }
 
+    /**
+     * Passes non-null values which pass the delegate filter and may be contained in a Bloom filter,
+     * e.g. build-side values of a join. Values of types other than fixed width integral and
+     * variable width types are tested against the delegate only.
+     */
+    class BloomFilterValues
+            extends AbstractTupleDomainFilter
+    {
+        private final BlockedBloomFilter bloomFilter;
+        private final TupleDomainFilter delegate;
+
+        private BloomFilterValues(BlockedBloomFilter bloomFilter, TupleDomainFilter delegate)
+        {
+            super(delegate.isDeterministic(), false);
+            this.bloomFilter = requireNonNull(bloomFilter, "bloomFilter is null");
+            this.delegate = delegate;
+        }
+
+        public static BloomFilterValues of(BlockedBloomFilter bloomFilter, TupleDomainFilter delegate)
+        {
+            requireNonNull(delegate, "delegate is null");
+            checkArgument(!delegate.isPositionalFilter(), "delegate must not be a positional filter");
+            return new BloomFilterValues(bloomFilter, delegate);
+        }
+
+        public BlockedBloomFilter getBloomFilter()
+        {
+            return bloomFilter;
+        }
+
+        public TupleDomainFilter getDelegate()
+        {
+            return delegate;
+        }
+
+        @Override
+        public boolean testNonNull()
+        {
+            return delegate.testNonNull();
+        }
+
+        @Override
+        public boolean testLong(long value)
+        {
+            return bloomFilter.mightContainLong(value) && delegate.testLong(value);
+        }
+
+        @Override
+        public boolean testDouble(double value)
+        {
+            return delegate.testDouble(value);
+        }
+
+        @Override
+        public boolean testFloat(float value)
+        {
+            return delegate.testFloat(value);
+        }
+
+        @Override
+        public boolean testDecimal(long low, long high)
+        {
+            return delegate.testDecimal(low, high);
+        }
+
+        @Override
+        public boolean testBoolean(boolean value)
+        {
+            return delegate.testBoolean(value);
+        }
+
+        @Override
+        public boolean testBytes(byte[] buffer, int offset, int length)
+        {
+            return bloomFilter.mightContainBytes(buffer, offset, length) && delegate.testBytes(buffer, offset, length);
+        }
+
+        @Override
+        public boolean testLength(int length)
+        {
+            return delegate.testLength(length);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            BloomFilterValues that = (BloomFilterValues) o;
+            return bloomFilter.equals(that.bloomFilter) &&
+                    delegate.equals(that.delegate);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(bloomFilter, delegate);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder(this.getClass().getName());
+            sb.append("{bloomFilter=").append(bloomFilter);
+            sb.append(", delegate=").append(delegate);
+            sb.append("}");
+
+            return sb.toString();
+        }
+    }
+
     class BigintMultiRange
             extends AbstractTupleDomainFilter
     {
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.common.predicate;
+
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestBlockedBloomFilter
+{
+    @Test
+    public void testCreate()
+    {
+        assertEquals(BlockedBloomFilter.create(8).getSizeInBytes(), 8);
+        assertEquals(BlockedBloomFilter.create(1000).getSizeInBytes(), 512);
+        assertEquals(BlockedBloomFilter.create(1024).getSizeInBytes(), 1024);
+        assertEquals(BlockedBloomFilter.create(1024).getCapacity(), 819);
+    }
+
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BlockedBloomFilter filter = BlockedBloomFilter.create(16 * 1024);
+        for (long value = -5000; value < 5000; value++) {
+            filter.insertLong(value * 31);
+        }
+        for (long value = -5000; value < 5000; value++) {
+            assertTrue(filter.mightContainLong(value * 31));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate()
+    {
+        BlockedBloomFilter filter = BlockedBloomFilter.create(16 * 1024);
+        int valueCount = (int) filter.getCapacity();
+        for (long value = 0; value < valueCount; value++) {
+            filter.insertLong(value);
+        }
+        int falsePositives = 0;
+        int probeCount = 100_000;
+        for (long value = valueCount; value < valueCount + probeCount; value++) {
+            if (filter.mightContainLong(value)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probeCount * 0.05, "false positives: " + falsePositives);
+        assertTrue(filter.getFillRatio() < 0.5, "fill ratio: " + filter.getFillRatio());
+    }
+
+    @Test
+    public void testSlices()
+    {
+        BlockedBloomFilter filter = BlockedBloomFilter.create(1024);
+        Slice value = Slices.utf8Slice("hello world");
+        filter.insertSlice(value);
+        assertTrue(filter.mightContainBytes(value.getBytes(), 0, value.length()));
+        assertTrue(filter.mightContainHash(BlockedBloomFilter.hashSlice(Slices.utf8Slice("__hello world__").slice(2, 11))));
+
+        Slice directValue = Slices.allocateDirect(value.length());
+        directValue.setBytes(0, value);
+        assertEquals(BlockedBloomFilter.hashSlice(directValue), BlockedBloomFilter.hashSlice(value));
+        assertFalse(filter.mightContainBytes(Slices.utf8Slice("goodbye").getBytes(), 0, 7));
+    }
+
+    @Test
+    public void testUnion()
+    {
+        BlockedBloomFilter left = BlockedBloomFilter.create(1024);
+        BlockedBloomFilter right = BlockedBloomFilter.create(1024);
+        for (long value = 0; value < 100; value++) {
+            left.insertLong(value);
+            right.insertLong(value + 1000);
+        }
+        BlockedBloomFilter union = left.union(right);
+        for (long value = 0; value < 100; value++) {
+            assertTrue(union.mightContainLong(value));
+            assertTrue(union.mightContainLong(value + 1000));
+        }
+        assertEquals(union.union(left), union);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Cannot union filters of different sizes: 128 and 16")
+    public void testUnionDifferentSizes()
+    {
+        BlockedBloomFilter.create(1024).union(BlockedBloomFilter.create(128));
+    }
+}
@@ -17,6 +17,7 @@ import com.facebook.presto.common.predicate.TupleDomainFilter.BigintMultiRange;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BigintRange;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BigintValuesUsingBitmask;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BigintValuesUsingHashTable;
+import com.facebook.presto.common.predicate.TupleDomainFilter.BloomFilterValues;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BooleanValue;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BytesRange;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BytesValues;
@@ -348,6 +349,44 @@ public class TestTupleDomainFilter
         assertTrue(filter.testBytes(toBytes("apple"), 0, 5));
     }
 
+    @Test
+    public void testBloomFilterValues()
+    {
+        BlockedBloomFilter bloomFilter = BlockedBloomFilter.create(1024);
+        for (long value = 0; value < 100; value++) {
+            bloomFilter.insertLong(value * 7);
+        }
+        bloomFilter.insertSlice(Slices.utf8Slice("Igne"));
+        bloomFilter.insertSlice(Slices.utf8Slice("natura"));
+
+        TupleDomainFilter filter = BloomFilterValues.of(bloomFilter, TupleDomainFilter.IS_NOT_NULL);
+        assertFalse(filter.testNull());
+        for (long value = 0; value < 100; value++) {
+            assertTrue(filter.testLong(value * 7));
+        }
+        assertTrue(filter.testBytes(toBytes("Igne"), 0, 4));
+        assertTrue(filter.testBytes(toBytes("_natura_"), 1, 6));
+        assertTrue(filter.testLength(100));
+
+        int falsePositives = 0;
+        for (long value = 1000; value < 2000; value++) {
+            if (filter.testLong(value)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, "false positives: " + falsePositives);
+
+        // values must pass both the Bloom filter and the delegate
+        filter = BloomFilterValues.of(bloomFilter, BigintRange.of(0, 350, false));
+        assertTrue(filter.testLong(350));
+        assertFalse(filter.testLong(357));
+
+        filter = BloomFilterValues.of(bloomFilter, BytesValues.of(new byte[][] {toBytes("Igne"), toBytes("renovitur")}, false));
+        assertTrue(filter.testBytes(toBytes("Igne"), 0, 4));
+        assertFalse(filter.testBytes(toBytes("natura"), 0, 6));
+        assertFalse(filter.testLength(6));
+    }
+
     private static byte[] sequentialBytes(byte base, int length)
     {
         byte[] bytes = new byte[length];
@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
+import com.facebook.presto.common.predicate.TupleDomainFilter;
+import com.facebook.presto.common.predicate.TupleDomainFilter.BloomFilterValues;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.TypeManager;
+import com.facebook.presto.spi.ConnectorPageSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.common.predicate.TupleDomainFilter.IS_NOT_NULL;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.facebook.presto.common.type.Varchars.isVarcharType;
+import static com.facebook.presto.hive.FilteringPageSource.filterBlock;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Removes the rows which cannot match the build side of a join, as summarized by the
+ * Bloom filters collected for dynamic filtering. Used for the readers which do not evaluate
+ * filters themselves.
+ */
+public class BloomFilterPageSource
+        implements ConnectorPageSource
+{
+    private final ConnectorPageSource delegate;
+    private final TupleDomainFilter[] filters;
+    private final Type[] columnTypes;
+
+    public BloomFilterPageSource(
+            List<HiveColumnHandle> columns,
+            Map<HiveColumnHandle, BlockedBloomFilter> bloomFilters,
+            TypeManager typeManager,
+            ConnectorPageSource delegate)
+    {
+        requireNonNull(columns, "columns is null");
+        requireNonNull(bloomFilters, "bloomFilters is null");
+        requireNonNull(typeManager, "typeManager is null");
+        this.delegate = requireNonNull(delegate, "delegate is null");
+
+        filters = new TupleDomainFilter[columns.size()];
+        columnTypes = new Type[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            HiveColumnHandle column = columns.get(i);
+            BlockedBloomFilter bloomFilter = bloomFilters.get(column);
+            Type type = column.getHiveType().getType(typeManager);
+            if (bloomFilter != null && isSupportedType(type)) {
+                filters[i] = BloomFilterValues.of(bloomFilter, IS_NOT_NULL);
+                columnTypes[i] = type;
+            }
+        }
+    }
+
+    private static boolean isSupportedType(Type type)
+    {
+        return type == BIGINT || type == INTEGER || type == SMALLINT || type == TINYINT || type == DATE || isVarcharType(type);
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        Page page = delegate.getNextPage();
+        if (page == null || page.getPositionCount() == 0) {
+            return page;
+        }
+
+        int positionCount = page.getPositionCount();
+        int[] positions = new int[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            positions[i] = i;
+        }
+
+        for (int i = 0; i < filters.length; i++) {
+            if (filters[i] != null) {
+                positionCount = filterBlock(page.getBlock(i), columnTypes[i], filters[i], positions, positionCount);
+                if (positionCount == 0) {
+                    return new Page(0);
+                }
+            }
+        }
+
+        if (positionCount == page.getPositionCount()) {
+            return page;
+        }
+        return page.getPositions(positions, 0, positionCount);
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return delegate.getCompletedBytes();
+    }
+
+    @Override
+    public long getCompletedPositions()
+    {
+        return delegate.getCompletedPositions();
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return delegate.getReadTimeNanos();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return delegate.isFinished();
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return delegate.getSystemMemoryUsage();
+    }
+
+    @Override
+    public RuntimeStats getRuntimeStats()
+    {
+        return delegate.getRuntimeStats();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        delegate.close();
+    }
+}
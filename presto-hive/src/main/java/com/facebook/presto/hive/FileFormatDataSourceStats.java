@@ -15,6 +15,7 @@ package com.facebook.presto.hive;
 
 import com.facebook.airlift.stats.DistributionStat;
 import com.facebook.airlift.stats.TimeStat;
+import com.facebook.presto.parquet.reader.ParquetIoStats;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
@@ -29,6 +30,7 @@ public class FileFormatDataSourceStats
     private final TimeStat time100KBto1MB = new TimeStat(MILLISECONDS);
     private final TimeStat time1MBto10MB = new TimeStat(MILLISECONDS);
     private final TimeStat time10MBPlus = new TimeStat(MILLISECONDS);
+    private final ParquetIoStats parquetIoStats = new ParquetIoStats();
 
     @Managed
     @Nested
@@ -72,6 +74,41 @@ public class FileFormatDataSourceStats
         return time10MBPlus;
     }
 
+    public ParquetIoStats getParquetIoStats()
+    {
+        return parquetIoStats;
+    }
+
+    @Managed
+    public long getParquetCoalescedReads()
+    {
+        return parquetIoStats.getReads();
+    }
+
+    @Managed
+    public long getParquetCoalescedReadBytes()
+    {
+        return parquetIoStats.getReadBytes();
+    }
+
+    @Managed
+    public long getParquetCoalescedUsedBytes()
+    {
+        return parquetIoStats.getUsedBytes();
+    }
+
+    @Managed
+    public long getParquetInFlightBytes()
+    {
+        return parquetIoStats.getInFlightBytes();
+    }
+
+    @Managed
+    public double getParquetReadAmplification()
+    {
+        return parquetIoStats.getReadAmplification();
+    }
+
     public void readDataBytesPerSecond(long bytes, long nanos)
     {
         readBytes.add(bytes);
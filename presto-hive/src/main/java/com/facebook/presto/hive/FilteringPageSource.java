@@ -216,7 +216,7 @@ public class FilteringPageSource
         delegate.close();
     }
 
-    private static int filterBlock(Block block, Type type, TupleDomainFilter filter, int[] positions, int positionCount)
+    static int filterBlock(Block block, Type type, TupleDomainFilter filter, int[] positions, int positionCount)
     {
         int outputPositionsCount = 0;
         for (int i = 0; i < positionCount; i++) {
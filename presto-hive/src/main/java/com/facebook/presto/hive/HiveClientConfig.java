@@ -194,6 +194,15 @@ public class HiveClientConfig
     private boolean userDefinedTypeEncodingEnabled;
 
     private boolean columnIndexFilterEnabled;
+    private boolean parquetBloomFilterEnabled;
+    private boolean parquetCoalesceReadsEnabled;
+    private DataSize parquetMaxReadMergeDistance = new DataSize(1, MEGABYTE);
+    private DataSize parquetMaxCoalescedReadSize = new DataSize(8, MEGABYTE);
+    private int maxConcurrentParquetReads = 32;
+    private boolean parquetDictionaryBlocksEnabled;
+    private boolean orcStripePrefetchEnabled;
+    private DataSize orcMaxStripePrefetchSize = new DataSize(32, MEGABYTE);
+    private int maxConcurrentOrcStripePrefetches = 32;
     private boolean fileSplittable = true;
     private Protocol thriftProtocol = Protocol.BINARY;
     private DataSize thriftBufferSize = new DataSize(128, BYTE);
@@ -1512,6 +1521,130 @@ public class HiveClientConfig
         return this.columnIndexFilterEnabled;
     }
 
+    @Config("hive.parquet-bloom-filter-enabled")
+    @ConfigDescription("Enable skipping parquet row groups with the Bloom filters of their column chunks")
+    public HiveClientConfig setParquetBloomFilterEnabled(boolean parquetBloomFilterEnabled)
+    {
+        this.parquetBloomFilterEnabled = parquetBloomFilterEnabled;
+        return this;
+    }
+
+    public boolean isParquetBloomFilterEnabled()
+    {
+        return this.parquetBloomFilterEnabled;
+    }
+
+    @Config("hive.parquet.coalesce-reads-enabled")
+    @ConfigDescription("Merge nearby parquet column chunk reads of the predicate columns and fetch them in parallel, prefetching the next row group")
+    public HiveClientConfig setParquetCoalesceReadsEnabled(boolean parquetCoalesceReadsEnabled)
+    {
+        this.parquetCoalesceReadsEnabled = parquetCoalesceReadsEnabled;
+        return this;
+    }
+
+    public boolean isParquetCoalesceReadsEnabled()
+    {
+        return this.parquetCoalesceReadsEnabled;
+    }
+
+    @NotNull
+    public DataSize getParquetMaxReadMergeDistance()
+    {
+        return parquetMaxReadMergeDistance;
+    }
+
+    @Config("hive.parquet.max-read-merge-distance")
+    @ConfigDescription("Maximum gap between two parquet column chunks that are fetched with a single read")
+    public HiveClientConfig setParquetMaxReadMergeDistance(DataSize parquetMaxReadMergeDistance)
+    {
+        this.parquetMaxReadMergeDistance = parquetMaxReadMergeDistance;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1B")
+    public DataSize getParquetMaxCoalescedReadSize()
+    {
+        return parquetMaxCoalescedReadSize;
+    }
+
+    @Config("hive.parquet.max-coalesced-read-size")
+    @ConfigDescription("Maximum size of a single merged parquet column chunk read")
+    public HiveClientConfig setParquetMaxCoalescedReadSize(DataSize parquetMaxCoalescedReadSize)
+    {
+        this.parquetMaxCoalescedReadSize = parquetMaxCoalescedReadSize;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxConcurrentParquetReads()
+    {
+        return maxConcurrentParquetReads;
+    }
+
+    @Config("hive.parquet.max-concurrent-reads")
+    @ConfigDescription("Maximum number of coalesced parquet reads in flight per worker")
+    public HiveClientConfig setMaxConcurrentParquetReads(int maxConcurrentParquetReads)
+    {
+        this.maxConcurrentParquetReads = maxConcurrentParquetReads;
+        return this;
+    }
+
+    @Config("hive.parquet.dictionary-blocks-enabled")
+    @ConfigDescription("Return dictionary encoded parquet string columns as dictionary blocks when using the batch reader")
+    public HiveClientConfig setParquetDictionaryBlocksEnabled(boolean parquetDictionaryBlocksEnabled)
+    {
+        this.parquetDictionaryBlocksEnabled = parquetDictionaryBlocksEnabled;
+        return this;
+    }
+
+    public boolean isParquetDictionaryBlocksEnabled()
+    {
+        return this.parquetDictionaryBlocksEnabled;
+    }
+
+    @Config("hive.orc.stripe-prefetch-enabled")
+    @ConfigDescription("Read the next orc stripe in the background while the current stripe is decoded")
+    public HiveClientConfig setOrcStripePrefetchEnabled(boolean orcStripePrefetchEnabled)
+    {
+        this.orcStripePrefetchEnabled = orcStripePrefetchEnabled;
+        return this;
+    }
+
+    public boolean isOrcStripePrefetchEnabled()
+    {
+        return this.orcStripePrefetchEnabled;
+    }
+
+    @NotNull
+    @MinDataSize("1B")
+    public DataSize getOrcMaxStripePrefetchSize()
+    {
+        return orcMaxStripePrefetchSize;
+    }
+
+    @Config("hive.orc.max-stripe-prefetch-size")
+    @ConfigDescription("Maximum number of bytes of the next orc stripe that are prefetched per reader")
+    public HiveClientConfig setOrcMaxStripePrefetchSize(DataSize orcMaxStripePrefetchSize)
+    {
+        this.orcMaxStripePrefetchSize = orcMaxStripePrefetchSize;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxConcurrentOrcStripePrefetches()
+    {
+        return maxConcurrentOrcStripePrefetches;
+    }
+
+    @Config("hive.orc.max-concurrent-stripe-prefetches")
+    @ConfigDescription("Maximum number of orc stripe prefetch reads in flight per worker")
+    public HiveClientConfig setMaxConcurrentOrcStripePrefetches(int maxConcurrentOrcStripePrefetches)
+    {
+        this.maxConcurrentOrcStripePrefetches = maxConcurrentOrcStripePrefetches;
+        return this;
+    }
+
     @Config("hive.size-based-split-weights-enabled")
     public HiveClientConfig setSizeBasedSplitWeightsEnabled(boolean sizeBasedSplitWeightsEnabled)
     {
@@ -64,6 +64,7 @@ import com.facebook.presto.orc.cache.StorageOrcFileTailSource;
 import com.facebook.presto.orc.metadata.OrcFileTail;
 import com.facebook.presto.orc.metadata.RowGroupIndex;
 import com.facebook.presto.parquet.ParquetDataSourceId;
+import com.facebook.presto.parquet.cache.BloomFilterId;
 import com.facebook.presto.parquet.cache.CachingParquetMetadataSource;
 import com.facebook.presto.parquet.cache.MetadataReader;
 import com.facebook.presto.parquet.cache.ParquetCacheConfig;
@@ -85,6 +86,7 @@ import com.google.inject.Scopes;
 import com.google.inject.TypeLiteral;
 import com.google.inject.multibindings.Multibinder;
 import jakarta.inject.Singleton;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
 import org.weakref.jmx.MBeanExporter;
 
 import java.util.Optional;
@@ -275,6 +277,28 @@ public class HiveClientModule
                                 hiveClientConfig.getMaxConcurrentZeroRowFileCreations())));
     }
 
+    @ForParquetIo
+    @Singleton
+    @Provides
+    public ExecutorService createParquetIoExecutor(HiveConnectorId hiveClientId, HiveClientConfig hiveClientConfig)
+    {
+        return new ExecutorServiceAdapter(
+                new BoundedExecutor(
+                        newCachedThreadPool(daemonThreadsNamed("hive-parquet-io-" + hiveClientId + "-%s")),
+                        hiveClientConfig.getMaxConcurrentParquetReads()));
+    }
+
+    @ForOrcStripePrefetch
+    @Singleton
+    @Provides
+    public ExecutorService createOrcStripePrefetchExecutor(HiveConnectorId hiveClientId, HiveClientConfig hiveClientConfig)
+    {
+        return new ExecutorServiceAdapter(
+                new BoundedExecutor(
+                        newCachedThreadPool(daemonThreadsNamed("hive-orc-stripe-prefetch-" + hiveClientId + "-%s")),
+                        hiveClientConfig.getMaxConcurrentOrcStripePrefetches()));
+    }
+
     @Singleton
     @Provides
     public OrcFileTailSource createOrcFileTailSource(OrcCacheConfig orcCacheConfig, MBeanExporter exporter)
@@ -352,8 +376,20 @@ public class HiveClientModule
                     .recordStats()
                     .build();
             CacheStatsMBean cacheStatsMBean = new CacheStatsMBean(cache);
-            parquetMetadataSource = new CachingParquetMetadataSource(cache, parquetMetadataSource);
             exporter.export(generatedNameOf(CacheStatsMBean.class, connectorId + "_ParquetMetadata"), cacheStatsMBean);
+
+            Optional<Cache<BloomFilterId, BloomFilter>> bloomFilterCache = Optional.empty();
+            if (parquetCacheConfig.isBloomFilterCacheEnabled()) {
+                bloomFilterCache = Optional.of(CacheBuilder.newBuilder()
+                        .maximumWeight(parquetCacheConfig.getBloomFilterCacheSize().toBytes())
+                        .weigher((id, bloomFilter) -> ((BloomFilter) bloomFilter).getBitsetSize())
+                        .expireAfterAccess(parquetCacheConfig.getMetadataCacheTtlSinceLastAccess().toMillis(), MILLISECONDS)
+                        .recordStats()
+                        .build());
+                CacheStatsMBean bloomFilterCacheStatsMBean = new CacheStatsMBean(bloomFilterCache.get());
+                exporter.export(generatedNameOf(CacheStatsMBean.class, connectorId + "_ParquetBloomFilter"), bloomFilterCacheStatsMBean);
+            }
+            parquetMetadataSource = new CachingParquetMetadataSource(cache, bloomFilterCache, parquetMetadataSource);
         }
         return parquetMetadataSource;
     }
@@ -18,6 +18,7 @@ import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.Subfield;
 import com.facebook.presto.common.Subfield.NestedField;
 import com.facebook.presto.common.Subfield.PathElement;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.NullableValue;
 import com.facebook.presto.common.predicate.TupleDomain;
@@ -245,6 +246,14 @@ public class HivePageSourceProvider
                 encryptionInformation,
                 hiveSplit.getRowIdPartitionComponent());
         if (pageSource.isPresent()) {
+            if (!splitContext.getDynamicFilterBloomFilters().isEmpty()) {
+                return new BloomFilterPageSource(
+                        selectedColumns,
+                        splitContext.getDynamicFilterBloomFilters().entrySet().stream()
+                                .collect(toImmutableMap(entry -> (HiveColumnHandle) entry.getKey(), Map.Entry::getValue)),
+                        typeManager,
+                        pageSource.get());
+            }
             return pageSource.get();
         }
         throw new IllegalStateException("Could not find a file reader for split " + hiveSplit);
@@ -372,6 +381,8 @@ public class HivePageSourceProvider
         TupleDomain<Subfield> domainPredicate = splitContext.getDynamicFilterPredicate()
                 .map(filter -> filter.transform(handle -> new Subfield(((HiveColumnHandle) handle).getName())).intersect(layout.getDomainPredicate()))
                 .orElse(layout.getDomainPredicate());
+        Map<Subfield, BlockedBloomFilter> dynamicFilterBloomFilters = splitContext.getDynamicFilterBloomFilters().entrySet().stream()
+                .collect(toImmutableMap(entry -> new Subfield(((HiveColumnHandle) entry.getKey()).getName()), Map.Entry::getValue));
 
         List<HiveColumnHandle> columnHandles = toColumnHandles(columnMappings, true);
         Optional<byte[]> rowIDPartitionComponent = split.getRowIdPartitionComponent();
@@ -388,6 +399,7 @@ public class HivePageSourceProvider
                     bucketAdaptation,
                     outputColumns,
                     domainPredicate,
+                    dynamicFilterBloomFilters,
                     optimizedRemainingPredicate,
                     hiveStorageTimeZone,
                     fileContext,
@@ -119,6 +119,13 @@ public final class HiveSessionProperties
     private static final String DWRF_WRITER_STRIPE_CACHE_ENABLED = "dwrf_writer_stripe_cache_enabled";
     private static final String DWRF_WRITER_STRIPE_CACHE_SIZE = "dwrf_writer_stripe_cache_size";
     public static final String USE_COLUMN_INDEX_FILTER = "use_column_index_filter";
+    public static final String PARQUET_BLOOM_FILTER_ENABLED = "parquet_bloom_filter_enabled";
+    public static final String PARQUET_COALESCE_READS_ENABLED = "parquet_coalesce_reads_enabled";
+    private static final String PARQUET_MAX_READ_MERGE_DISTANCE = "parquet_max_read_merge_distance";
+    private static final String PARQUET_MAX_COALESCED_READ_SIZE = "parquet_max_coalesced_read_size";
+    public static final String PARQUET_DICTIONARY_BLOCKS_ENABLED = "parquet_dictionary_blocks_enabled";
+    public static final String ORC_STRIPE_PREFETCH_ENABLED = "orc_stripe_prefetch_enabled";
+    private static final String ORC_MAX_STRIPE_PREFETCH_SIZE = "orc_max_stripe_prefetch_size";
     public static final String SIZE_BASED_SPLIT_WEIGHTS_ENABLED = "size_based_split_weights_enabled";
     public static final String MINIMUM_ASSIGNED_SPLIT_WEIGHT = "minimum_assigned_split_weight";
     private static final String USE_RECORD_PAGE_SOURCE_FOR_CUSTOM_SPLIT = "use_record_page_source_for_custom_split";
@@ -567,6 +574,41 @@ public final class HiveSessionProperties
                         "should use column index statistics filtering",
                         hiveClientConfig.getReadColumnIndexFilter(),
                         false),
+                booleanProperty(
+                        PARQUET_BLOOM_FILTER_ENABLED,
+                        "Use the Bloom filters of parquet column chunks to skip row groups",
+                        hiveClientConfig.isParquetBloomFilterEnabled(),
+                        false),
+                booleanProperty(
+                        PARQUET_COALESCE_READS_ENABLED,
+                        "Merge nearby parquet column chunk reads of the predicate columns and fetch them in parallel",
+                        hiveClientConfig.isParquetCoalesceReadsEnabled(),
+                        false),
+                dataSizeSessionProperty(
+                        PARQUET_MAX_READ_MERGE_DISTANCE,
+                        "Maximum gap between two parquet column chunks that are fetched with a single read",
+                        hiveClientConfig.getParquetMaxReadMergeDistance(),
+                        false),
+                dataSizeSessionProperty(
+                        PARQUET_MAX_COALESCED_READ_SIZE,
+                        "Maximum size of a single merged parquet column chunk read",
+                        hiveClientConfig.getParquetMaxCoalescedReadSize(),
+                        false),
+                booleanProperty(
+                        PARQUET_DICTIONARY_BLOCKS_ENABLED,
+                        "Return dictionary encoded parquet string columns as dictionary blocks when using the batch reader",
+                        hiveClientConfig.isParquetDictionaryBlocksEnabled(),
+                        false),
+                booleanProperty(
+                        ORC_STRIPE_PREFETCH_ENABLED,
+                        "Read the next orc stripe in the background while the current stripe is decoded",
+                        hiveClientConfig.isOrcStripePrefetchEnabled(),
+                        false),
+                dataSizeSessionProperty(
+                        ORC_MAX_STRIPE_PREFETCH_SIZE,
+                        "Maximum number of bytes of the next orc stripe that are prefetched per reader",
+                        hiveClientConfig.getOrcMaxStripePrefetchSize(),
+                        false),
                 booleanProperty(
                         SIZE_BASED_SPLIT_WEIGHTS_ENABLED,
                         "Enable estimating split weights based on size in bytes",
@@ -1089,6 +1131,41 @@ public final class HiveSessionProperties
         return session.getProperty(USE_COLUMN_INDEX_FILTER, Boolean.class);
     }
 
+    public static boolean isParquetBloomFilterEnabled(ConnectorSession session)
+    {
+        return session.getProperty(PARQUET_BLOOM_FILTER_ENABLED, Boolean.class);
+    }
+
+    public static boolean isParquetCoalesceReadsEnabled(ConnectorSession session)
+    {
+        return session.getProperty(PARQUET_COALESCE_READS_ENABLED, Boolean.class);
+    }
+
+    public static DataSize getParquetMaxReadMergeDistance(ConnectorSession session)
+    {
+        return session.getProperty(PARQUET_MAX_READ_MERGE_DISTANCE, DataSize.class);
+    }
+
+    public static DataSize getParquetMaxCoalescedReadSize(ConnectorSession session)
+    {
+        return session.getProperty(PARQUET_MAX_COALESCED_READ_SIZE, DataSize.class);
+    }
+
+    public static boolean isParquetDictionaryBlocksEnabled(ConnectorSession session)
+    {
+        return session.getProperty(PARQUET_DICTIONARY_BLOCKS_ENABLED, Boolean.class);
+    }
+
+    public static boolean isOrcStripePrefetchEnabled(ConnectorSession session)
+    {
+        return session.getProperty(ORC_STRIPE_PREFETCH_ENABLED, Boolean.class);
+    }
+
+    public static DataSize getOrcMaxStripePrefetchSize(ConnectorSession session)
+    {
+        return session.getProperty(ORC_MAX_STRIPE_PREFETCH_SIZE, DataSize.class);
+    }
+
     public static boolean isSizeBasedSplitWeightsEnabled(ConnectorSession session)
     {
         return session.getProperty(SIZE_BASED_SPLIT_WEIGHTS_ENABLED, Boolean.class);
@@ -261,6 +261,9 @@ public class HiveSplitManager
         List<HivePartition> partitions = layout.getPartitions()
                 .orElseThrow(() -> new PrestoException(GENERIC_INTERNAL_ERROR, "Layout does not contain partitions"));
 
+        // prune partitions with the dynamic filters collected by the engine before listing their files
+        partitions = prunePartitions(partitions, splitSchedulingContext.getDynamicFilter());
+
         // short circuit if we don't have any partitions
         HivePartition partition = Iterables.getFirst(partitions, null);
         if (partition == null) {
@@ -446,6 +449,27 @@ public class HiveSplitManager
         return highMemorySplitSourceCounter;
     }
 
+    @VisibleForTesting
+    static List<HivePartition> prunePartitions(List<HivePartition> partitions, TupleDomain<ColumnHandle> dynamicFilter)
+    {
+        if (dynamicFilter.isAll()) {
+            return partitions;
+        }
+        if (dynamicFilter.isNone()) {
+            return ImmutableList.of();
+        }
+
+        // the partition keys and the dynamic filter may use different handles for the same column
+        Map<String, Domain> domains = dynamicFilter.getDomains().get().entrySet().stream()
+                .collect(toImmutableMap(entry -> ((BaseHiveColumnHandle) entry.getKey()).getName(), Entry::getValue));
+        return partitions.stream()
+                .filter(partition -> partition.getKeys().entrySet().stream().allMatch(entry -> {
+                    Domain domain = domains.get(((BaseHiveColumnHandle) entry.getKey()).getName());
+                    return domain == null || domain.includesNullableValue(entry.getValue().getValue());
+                }))
+                .collect(toImmutableList());
+    }
+
     private Iterable<HivePartitionMetadata> getPartitionMetadata(
             SemiTransactionalHiveMetastore metastore,
             Table table,
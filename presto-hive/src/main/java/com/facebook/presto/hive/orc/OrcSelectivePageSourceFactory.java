@@ -17,9 +17,11 @@ import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.Subfield;
 import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.FilterFunction;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.predicate.TupleDomainFilter;
+import com.facebook.presto.common.predicate.TupleDomainFilter.BloomFilterValues;
 import com.facebook.presto.common.relation.Predicate;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.TypeManager;
@@ -28,6 +30,7 @@ import com.facebook.presto.expressions.DynamicFilters.DynamicFilterExtractResult
 import com.facebook.presto.hive.BucketAdaptation;
 import com.facebook.presto.hive.EncryptionInformation;
 import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.hive.ForOrcStripePrefetch;
 import com.facebook.presto.hive.HdfsEnvironment;
 import com.facebook.presto.hive.HiveClientConfig;
 import com.facebook.presto.hive.HiveCoercer;
@@ -87,10 +90,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
+import static com.facebook.presto.common.predicate.TupleDomainFilter.IS_NOT_NULL;
 import static com.facebook.presto.expressions.DynamicFilters.extractDynamicFilters;
 import static com.facebook.presto.expressions.LogicalRowExpressions.TRUE_CONSTANT;
 import static com.facebook.presto.expressions.LogicalRowExpressions.and;
@@ -106,8 +112,10 @@ import static com.facebook.presto.hive.HiveCommonSessionProperties.isOrcBloomFil
 import static com.facebook.presto.hive.HiveCommonSessionProperties.isOrcZstdJniDecompressionEnabled;
 import static com.facebook.presto.hive.HiveCommonSessionProperties.isUseOrcColumnNames;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_INVALID_BUCKET_FILES;
+import static com.facebook.presto.hive.HiveSessionProperties.getOrcMaxStripePrefetchSize;
 import static com.facebook.presto.hive.HiveSessionProperties.isAdaptiveFilterReorderingEnabled;
 import static com.facebook.presto.hive.HiveSessionProperties.isLegacyTimestampBucketing;
+import static com.facebook.presto.hive.HiveSessionProperties.isOrcStripePrefetchEnabled;
 import static com.facebook.presto.hive.HiveUtil.getPhysicalHiveColumnHandles;
 import static com.facebook.presto.hive.HiveUtil.typedPartitionKey;
 import static com.facebook.presto.hive.MetadataUtils.isEntireColumn;
@@ -139,8 +147,8 @@ public class OrcSelectivePageSourceFactory
     private final OrcFileTailSource orcFileTailSource;
     private final StripeMetadataSourceFactory stripeMetadataSourceFactory;
     private final TupleDomainFilterCache tupleDomainFilterCache;
+    private final Optional<Executor> stripePrefetchExecutor;
 
-    @Inject
     public OrcSelectivePageSourceFactory(
             TypeManager typeManager,
             StandardFunctionResolution functionResolution,
@@ -161,7 +169,34 @@ public class OrcSelectivePageSourceFactory
                 config.getDomainCompactionThreshold(),
                 orcFileTailSource,
                 stripeMetadataSourceFactory,
-                tupleDomainFilterCache);
+                tupleDomainFilterCache,
+                Optional.empty());
+    }
+
+    @Inject
+    public OrcSelectivePageSourceFactory(
+            TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            RowExpressionService rowExpressionService,
+            HiveClientConfig config,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            OrcFileTailSource orcFileTailSource,
+            StripeMetadataSourceFactory stripeMetadataSourceFactory,
+            TupleDomainFilterCache tupleDomainFilterCache,
+            @ForOrcStripePrefetch ExecutorService stripePrefetchExecutor)
+    {
+        this(
+                typeManager,
+                functionResolution,
+                rowExpressionService,
+                hdfsEnvironment,
+                stats,
+                config.getDomainCompactionThreshold(),
+                orcFileTailSource,
+                stripeMetadataSourceFactory,
+                tupleDomainFilterCache,
+                Optional.of(stripePrefetchExecutor));
     }
 
     public OrcSelectivePageSourceFactory(
@@ -174,6 +209,31 @@ public class OrcSelectivePageSourceFactory
             OrcFileTailSource orcFileTailSource,
             StripeMetadataSourceFactory stripeMetadataSourceFactory,
             TupleDomainFilterCache tupleDomainFilterCache)
+    {
+        this(
+                typeManager,
+                functionResolution,
+                rowExpressionService,
+                hdfsEnvironment,
+                stats,
+                domainCompactionThreshold,
+                orcFileTailSource,
+                stripeMetadataSourceFactory,
+                tupleDomainFilterCache,
+                Optional.empty());
+    }
+
+    private OrcSelectivePageSourceFactory(
+            TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            RowExpressionService rowExpressionService,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            int domainCompactionThreshold,
+            OrcFileTailSource orcFileTailSource,
+            StripeMetadataSourceFactory stripeMetadataSourceFactory,
+            TupleDomainFilterCache tupleDomainFilterCache,
+            Optional<Executor> stripePrefetchExecutor)
     {
         this.typeManager = requireNonNull(typeManager, "typeManager is null");
         this.functionResolution = requireNonNull(functionResolution, "functionResolution is null");
@@ -184,6 +244,7 @@ public class OrcSelectivePageSourceFactory
         this.orcFileTailSource = requireNonNull(orcFileTailSource, "orcFileTailCache is null");
         this.stripeMetadataSourceFactory = requireNonNull(stripeMetadataSourceFactory, "stripeMetadataSourceFactory is null");
         this.tupleDomainFilterCache = requireNonNull(tupleDomainFilterCache, "tupleDomainFilterCache is null");
+        this.stripePrefetchExecutor = requireNonNull(stripePrefetchExecutor, "stripePrefetchExecutor is null");
     }
 
     @Override
@@ -198,6 +259,7 @@ public class OrcSelectivePageSourceFactory
             Optional<BucketAdaptation> bucketAdaptation,
             List<Integer> outputColumns,
             TupleDomain<Subfield> domainPredicate,
+            Map<Subfield, BlockedBloomFilter> dynamicFilterBloomFilters,
             RowExpression remainingPredicate,
             DateTimeZone hiveStorageTimeZone,
             HiveFileContext hiveFileContext,
@@ -226,6 +288,7 @@ public class OrcSelectivePageSourceFactory
                 bucketAdaptation,
                 outputColumns,
                 domainPredicate,
+                dynamicFilterBloomFilters,
                 remainingPredicate,
                 isUseOrcColumnNames(session),
                 hiveStorageTimeZone,
@@ -242,7 +305,8 @@ public class OrcSelectivePageSourceFactory
                 encryptionInformation,
                 NO_ENCRYPTION,
                 appendRowNumberEnabled,
-                rowIDPartitionComponent));
+                rowIDPartitionComponent,
+                stripePrefetchExecutor));
     }
 
     public static ConnectorPageSource createOrcPageSource(
@@ -257,6 +321,7 @@ public class OrcSelectivePageSourceFactory
             Optional<BucketAdaptation> bucketAdaptation,
             List<Integer> outputColumns,
             TupleDomain<Subfield> domainPredicate,
+            Map<Subfield, BlockedBloomFilter> dynamicFilterBloomFilters,
             RowExpression remainingPredicate,
             boolean useOrcColumnNames,
             DateTimeZone hiveStorageTimeZone,
@@ -274,6 +339,71 @@ public class OrcSelectivePageSourceFactory
             DwrfEncryptionProvider dwrfEncryptionProvider,
             boolean appendRowNumberEnabled,
             Optional<byte[]> rowIDPartitionComponent)
+    {
+        return createOrcPageSource(
+                session,
+                orcEncoding,
+                hdfsEnvironment,
+                configuration,
+                fileSplit,
+                selectedColumns,
+                prefilledValues,
+                coercers,
+                bucketAdaptation,
+                outputColumns,
+                domainPredicate,
+                dynamicFilterBloomFilters,
+                remainingPredicate,
+                useOrcColumnNames,
+                hiveStorageTimeZone,
+                typeManager,
+                functionResolution,
+                rowExpressionService,
+                orcBloomFiltersEnabled,
+                stats,
+                domainCompactionThreshold,
+                orcFileTailSource,
+                stripeMetadataSourceFactory,
+                hiveFileContext,
+                tupleDomainFilterCache,
+                encryptionInformation,
+                dwrfEncryptionProvider,
+                appendRowNumberEnabled,
+                rowIDPartitionComponent,
+                Optional.empty());
+    }
+
+    public static ConnectorPageSource createOrcPageSource(
+            ConnectorSession session,
+            OrcEncoding orcEncoding,
+            HdfsEnvironment hdfsEnvironment,
+            Configuration configuration,
+            HiveFileSplit fileSplit,
+            List<HiveColumnHandle> selectedColumns,
+            Map<Integer, String> prefilledValues,
+            Map<Integer, HiveCoercer> coercers,
+            Optional<BucketAdaptation> bucketAdaptation,
+            List<Integer> outputColumns,
+            TupleDomain<Subfield> domainPredicate,
+            Map<Subfield, BlockedBloomFilter> dynamicFilterBloomFilters,
+            RowExpression remainingPredicate,
+            boolean useOrcColumnNames,
+            DateTimeZone hiveStorageTimeZone,
+            TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            RowExpressionService rowExpressionService,
+            boolean orcBloomFiltersEnabled,
+            FileFormatDataSourceStats stats,
+            int domainCompactionThreshold,
+            OrcFileTailSource orcFileTailSource,
+            StripeMetadataSourceFactory stripeMetadataSourceFactory,
+            HiveFileContext hiveFileContext,
+            TupleDomainFilterCache tupleDomainFilterCache,
+            Optional<EncryptionInformation> encryptionInformation,
+            DwrfEncryptionProvider dwrfEncryptionProvider,
+            boolean appendRowNumberEnabled,
+            Optional<byte[]> rowIDPartitionComponent,
+            Optional<Executor> stripePrefetchExecutor)
     {
         checkArgument(domainCompactionThreshold >= 1, "domainCompactionThreshold must be at least 1");
 
@@ -288,13 +418,18 @@ public class OrcSelectivePageSourceFactory
         DataSize maxMergeDistance = getOrcMaxMergeDistance(session);
         DataSize tinyStripeThreshold = getOrcTinyStripeThreshold(session);
         DataSize maxReadBlockSize = getOrcMaxReadBlockSize(session);
-        OrcReaderOptions orcReaderOptions = OrcReaderOptions.builder()
+        OrcReaderOptions.Builder orcReaderOptionsBuilder = OrcReaderOptions.builder()
                 .withMaxMergeDistance(maxMergeDistance)
                 .withTinyStripeThreshold(tinyStripeThreshold)
                 .withMaxBlockSize(maxReadBlockSize)
                 .withZstdJniDecompressionEnabled(isOrcZstdJniDecompressionEnabled(session))
-                .withAppendRowNumber(appendRowNumberEnabled || supplyRowIDs)
-                .build();
+                .withAppendRowNumber(appendRowNumberEnabled || supplyRowIDs);
+        if (stripePrefetchExecutor.isPresent() && isOrcStripePrefetchEnabled(session)) {
+            orcReaderOptionsBuilder
+                    .withStripePrefetchExecutor(stripePrefetchExecutor.get())
+                    .withMaxStripePrefetchSize(getOrcMaxStripePrefetchSize(session));
+        }
+        OrcReaderOptions orcReaderOptions = orcReaderOptionsBuilder.build();
         OrcAggregatedMemoryContext systemMemoryUsage = new HiveOrcAggregatedMemoryContext();
         try {
             checkArgument(!domainPredicate.isNone(), "Unexpected NONE domain");
@@ -326,7 +461,7 @@ public class OrcSelectivePageSourceFactory
             OrcPredicate orcPredicate = toOrcPredicate(domainPredicate, physicalColumns, mappedCoercers, typeManager, domainCompactionThreshold, orcBloomFiltersEnabled);
 
             Map<String, Integer> columnIndices = ImmutableBiMap.copyOf(columnNames).inverse();
-            Map<Integer, Map<Subfield, TupleDomainFilter>> tupleDomainFilters = toTupleDomainFilters(domainPredicate, columnIndices, mappedCoercers, tupleDomainFilterCache);
+            Map<Integer, Map<Subfield, TupleDomainFilter>> tupleDomainFilters = toTupleDomainFilters(domainPredicate, dynamicFilterBloomFilters, columnIndices, mappedCoercers, tupleDomainFilterCache);
 
             List<Integer> outputIndices = outputColumns.stream().map(indexMapping::get).collect(toImmutableList());
             Map<Integer, List<Subfield>> requiredSubfields = collectRequiredSubfields(physicalColumns, outputIndices, tupleDomainFilters, remainingPredicate, columnIndices, functionResolution, rowExpressionService, session);
@@ -541,9 +676,26 @@ public class OrcSelectivePageSourceFactory
         }
     }
 
-    private static Map<Integer, Map<Subfield, TupleDomainFilter>> toTupleDomainFilters(TupleDomain<Subfield> domainPredicate, Map<String, Integer> columnIndices, Map<Integer, HiveCoercer> coercers, TupleDomainFilterCache tupleDomainFilterCache)
+    private static Map<Integer, Map<Subfield, TupleDomainFilter>> toTupleDomainFilters(
+            TupleDomain<Subfield> domainPredicate,
+            Map<Subfield, BlockedBloomFilter> dynamicFilterBloomFilters,
+            Map<String, Integer> columnIndices,
+            Map<Integer, HiveCoercer> coercers,
+            TupleDomainFilterCache tupleDomainFilterCache)
     {
-        Map<Subfield, TupleDomainFilter> filtersBySubfield = Maps.transformValues(domainPredicate.getDomains().get(), tupleDomainFilterCache::getFilter);
+        Map<Subfield, TupleDomainFilter> filtersBySubfield = new HashMap<>(Maps.transformValues(domainPredicate.getDomains().get(), tupleDomainFilterCache::getFilter));
+        for (Map.Entry<Subfield, BlockedBloomFilter> entry : dynamicFilterBloomFilters.entrySet()) {
+            Subfield subfield = entry.getKey();
+            Integer columnIndex = columnIndices.get(subfield.getRootName());
+            // the Bloom filter holds values of the table type, which coerced columns do not read
+            if (columnIndex == null || coercers.containsKey(columnIndex)) {
+                continue;
+            }
+            TupleDomainFilter filter = filtersBySubfield.getOrDefault(subfield, IS_NOT_NULL);
+            if (!filter.isPositionalFilter()) {
+                filtersBySubfield.put(subfield, BloomFilterValues.of(entry.getValue(), filter));
+            }
+        }
 
         Map<Integer, Map<Subfield, TupleDomainFilter>> filtersByColumn = new HashMap<>();
         for (Map.Entry<Subfield, TupleDomainFilter> entry : filtersBySubfield.entrySet()) {
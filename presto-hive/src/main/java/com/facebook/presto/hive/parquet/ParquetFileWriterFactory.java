@@ -27,6 +27,7 @@ import com.facebook.presto.parquet.writer.ParquetWriterOptions;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -43,11 +44,14 @@ import java.util.Properties;
 import java.util.concurrent.Callable;
 
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_WRITER_OPEN_ERROR;
+import static com.facebook.presto.hive.HiveMetadata.PARQUET_BLOOM_FILTER_COLUMNS_KEY;
+import static com.facebook.presto.hive.HiveMetadata.PARQUET_BLOOM_FILTER_FPP_KEY;
 import static com.facebook.presto.hive.HiveSessionProperties.getParquetWriterBlockSize;
 import static com.facebook.presto.hive.HiveSessionProperties.getParquetWriterPageSize;
 import static com.facebook.presto.hive.HiveSessionProperties.getParquetWriterVersion;
 import static com.facebook.presto.hive.HiveSessionProperties.isParquetOptimizedWriterEnabled;
 import static com.facebook.presto.hive.HiveType.toHiveTypes;
+import static com.facebook.presto.parquet.writer.ParquetWriterOptions.DEFAULT_BLOOM_FILTER_FPP;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static org.apache.hadoop.hive.metastore.api.hive_metastoreConstants.META_TABLE_COLUMNS;
@@ -105,6 +109,8 @@ public class ParquetFileWriterFactory
                 .setMaxPageSize(getParquetWriterPageSize(session))
                 .setMaxBlockSize(getParquetWriterBlockSize(session))
                 .setWriterVersion(getParquetWriterVersion(session))
+                .setBloomFilterColumns(ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(schema.getProperty(PARQUET_BLOOM_FILTER_COLUMNS_KEY, ""))))
+                .setBloomFilterFpp(Double.parseDouble(schema.getProperty(PARQUET_BLOOM_FILTER_FPP_KEY, String.valueOf(DEFAULT_BLOOM_FILTER_FPP))))
                 .build();
 
         CompressionCodecName compressionCodecName = getCompression(conf);
@@ -22,6 +22,7 @@ import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.TypeManager;
 import com.facebook.presto.hive.EncryptionInformation;
 import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.hive.ForParquetIo;
 import com.facebook.presto.hive.HdfsEnvironment;
 import com.facebook.presto.hive.HiveBatchPageSourceFactory;
 import com.facebook.presto.hive.HiveColumnHandle;
@@ -36,6 +37,8 @@ import com.facebook.presto.parquet.RichColumnDescriptor;
 import com.facebook.presto.parquet.cache.ParquetMetadataSource;
 import com.facebook.presto.parquet.predicate.Predicate;
 import com.facebook.presto.parquet.reader.ColumnIndexFilterUtils;
+import com.facebook.presto.parquet.reader.ParquetBloomFilterStore;
+import com.facebook.presto.parquet.reader.ParquetIoPlanner;
 import com.facebook.presto.parquet.reader.ParquetReader;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
@@ -55,6 +58,7 @@ import org.apache.parquet.crypto.FileDecryptionProperties;
 import org.apache.parquet.crypto.InternalFileDecryptor;
 import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
 import org.apache.parquet.hadoop.metadata.FileMetaData;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.internal.filter2.columnindex.ColumnIndexStore;
@@ -73,6 +77,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.common.RuntimeUnit.BYTE;
@@ -103,6 +109,11 @@ import static com.facebook.presto.hive.HiveCommonSessionProperties.isParquetBatc
 import static com.facebook.presto.hive.HiveCommonSessionProperties.isUseParquetColumnNames;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_PARTITION_SCHEMA_MISMATCH;
 import static com.facebook.presto.hive.HiveSessionProperties.columnIndexFilterEnabled;
+import static com.facebook.presto.hive.HiveSessionProperties.getParquetMaxCoalescedReadSize;
+import static com.facebook.presto.hive.HiveSessionProperties.getParquetMaxReadMergeDistance;
+import static com.facebook.presto.hive.HiveSessionProperties.isParquetBloomFilterEnabled;
+import static com.facebook.presto.hive.HiveSessionProperties.isParquetCoalesceReadsEnabled;
+import static com.facebook.presto.hive.HiveSessionProperties.isParquetDictionaryBlocksEnabled;
 import static com.facebook.presto.hive.parquet.HdfsParquetDataSource.buildHdfsParquetDataSource;
 import static com.facebook.presto.hive.parquet.ParquetPageSourceFactoryUtils.mapToPrestoException;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
@@ -116,6 +127,7 @@ import static com.facebook.presto.parquet.ParquetTypeUtils.nestedColumnPath;
 import static com.facebook.presto.parquet.predicate.PredicateUtils.buildPredicate;
 import static com.facebook.presto.parquet.predicate.PredicateUtils.predicateMatches;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category.PRIMITIVE;
@@ -151,19 +163,41 @@ public class ParquetPageSourceFactory
     private final HdfsEnvironment hdfsEnvironment;
     private final FileFormatDataSourceStats stats;
     private final ParquetMetadataSource parquetMetadataSource;
+    private final Optional<Executor> parquetIoExecutor;
 
-    @Inject
     public ParquetPageSourceFactory(TypeManager typeManager,
             StandardFunctionResolution functionResolution,
             HdfsEnvironment hdfsEnvironment,
             FileFormatDataSourceStats stats,
             ParquetMetadataSource parquetMetadataSource)
+    {
+        this(typeManager, functionResolution, hdfsEnvironment, stats, parquetMetadataSource, Optional.empty());
+    }
+
+    @Inject
+    public ParquetPageSourceFactory(TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            ParquetMetadataSource parquetMetadataSource,
+            @ForParquetIo ExecutorService parquetIoExecutor)
+    {
+        this(typeManager, functionResolution, hdfsEnvironment, stats, parquetMetadataSource, Optional.of(parquetIoExecutor));
+    }
+
+    private ParquetPageSourceFactory(TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            ParquetMetadataSource parquetMetadataSource,
+            Optional<Executor> parquetIoExecutor)
     {
         this.typeManager = requireNonNull(typeManager, "typeManager is null");
         this.functionResolution = requireNonNull(functionResolution, "functionResolution is null");
         this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
         this.stats = requireNonNull(stats, "stats is null");
         this.parquetMetadataSource = requireNonNull(parquetMetadataSource, "parquetMetadataSource is null");
+        this.parquetIoExecutor = requireNonNull(parquetIoExecutor, "parquetIoExecutor is null");
     }
 
     public static ConnectorPageSource createParquetPageSource(
@@ -179,6 +213,37 @@ public class ParquetPageSourceFactory
             FileFormatDataSourceStats stats,
             HiveFileContext hiveFileContext,
             ParquetMetadataSource parquetMetadataSource)
+    {
+        return createParquetPageSource(
+                hdfsEnvironment,
+                session,
+                configuration,
+                fileSplit,
+                columns,
+                tableName,
+                typeManager,
+                functionResolution,
+                effectivePredicate,
+                stats,
+                hiveFileContext,
+                parquetMetadataSource,
+                Optional.empty());
+    }
+
+    public static ConnectorPageSource createParquetPageSource(
+            HdfsEnvironment hdfsEnvironment,
+            ConnectorSession session,
+            Configuration configuration,
+            HiveFileSplit fileSplit,
+            List<HiveColumnHandle> columns,
+            SchemaTableName tableName,
+            TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            TupleDomain<HiveColumnHandle> effectivePredicate,
+            FileFormatDataSourceStats stats,
+            HiveFileContext hiveFileContext,
+            ParquetMetadataSource parquetMetadataSource,
+            Optional<Executor> parquetIoExecutor)
     {
         AggregatedMemoryContext systemMemoryContext = newSimpleAggregatedMemoryContext();
 
@@ -231,6 +296,11 @@ public class ParquetPageSourceFactory
             TupleDomain<ColumnDescriptor> parquetTupleDomain = getParquetTupleDomain(descriptorsByPath, effectivePredicate);
             Predicate parquetPredicate = buildPredicate(requestedSchema, parquetTupleDomain, descriptorsByPath);
             final ParquetDataSource finalDataSource = dataSource;
+            // Bloom filters of encrypted column chunks are encrypted too, so they are only used for plaintext files
+            Optional<ParquetBloomFilterStore> bloomFilterStore = Optional.empty();
+            if (isParquetBloomFilterEnabled(session) && !fileDecryptor.isPresent()) {
+                bloomFilterStore = Optional.of(new ParquetBloomFilterStore(parquetMetadataSource, finalDataSource, hiveFileContext.isCacheable(), hiveFileContext.getModificationTime()));
+            }
             ImmutableList.Builder<BlockMetaData> blocks = ImmutableList.builder();
             List<ColumnIndexStore> blockIndexStores = new ArrayList<>();
 
@@ -238,7 +308,7 @@ public class ParquetPageSourceFactory
             ImmutableList.Builder<Long> blockStarts = ImmutableList.builder();
             for (BlockMetaData block : footerBlocks.build()) {
                 Optional<ColumnIndexStore> columnIndexStore = ColumnIndexFilterUtils.getColumnIndexStore(parquetPredicate, finalDataSource, block, descriptorsByPath, columnIndexFilterEnabled);
-                if (predicateMatches(parquetPredicate, block, finalDataSource, descriptorsByPath, parquetTupleDomain, columnIndexStore, columnIndexFilterEnabled, Optional.of(session.getWarningCollector()))) {
+                if (predicateMatches(parquetPredicate, block, finalDataSource, descriptorsByPath, parquetTupleDomain, columnIndexStore, columnIndexFilterEnabled, Optional.of(session.getWarningCollector()), bloomFilterStore)) {
                     blocks.add(block);
                     blockStarts.add(nextStart);
                     blockIndexStores.add(columnIndexStore.orElse(null));
@@ -253,6 +323,9 @@ public class ParquetPageSourceFactory
                 }
                 nextStart += block.getRowCount();
             }
+            if (bloomFilterStore.isPresent() && bloomFilterStore.get().getRowGroupsSkipped() > 0) {
+                hiveFileContext.incrementCounter("parquet.bloomFilterBlocksSkipped", NONE, bloomFilterStore.get().getRowGroupsSkipped());
+            }
             MessageColumnIO messageColumnIO = getColumnIO(fileSchema, requestedSchema);
             ParquetReader parquetReader = new ParquetReader(
                     messageColumnIO,
@@ -266,7 +339,9 @@ public class ParquetPageSourceFactory
                     parquetPredicate,
                     blockIndexStores,
                     columnIndexFilterEnabled,
-                    fileDecryptor);
+                    fileDecryptor,
+                    createIoPlanner(session, parquetIoExecutor, stats, parquetTupleDomain),
+                    isParquetDictionaryBlocksEnabled(session));
 
             ImmutableList.Builder<String> namesBuilder = ImmutableList.builder();
             ImmutableList.Builder<Type> typesBuilder = ImmutableList.builder();
@@ -532,6 +607,26 @@ public class ParquetPageSourceFactory
                 effectivePredicate,
                 stats,
                 hiveFileContext,
-                parquetMetadataSource));
+                parquetMetadataSource,
+                parquetIoExecutor));
+    }
+
+    private static Optional<ParquetIoPlanner> createIoPlanner(ConnectorSession session, Optional<Executor> parquetIoExecutor, FileFormatDataSourceStats stats, TupleDomain<ColumnDescriptor> parquetTupleDomain)
+    {
+        if (!parquetIoExecutor.isPresent() || !isParquetCoalesceReadsEnabled(session)) {
+            return Optional.empty();
+        }
+        // the columns of the page source are loaded lazily, and only the predicate columns are loaded for every page
+        Set<ColumnPath> prefetchedColumns = parquetTupleDomain.getDomains()
+                .map(domains -> domains.keySet().stream()
+                        .map(column -> ColumnPath.get(column.getPath()))
+                        .collect(toImmutableSet()))
+                .orElse(ImmutableSet.of());
+        return Optional.of(new ParquetIoPlanner(
+                parquetIoExecutor.get(),
+                getParquetMaxReadMergeDistance(session),
+                getParquetMaxCoalescedReadSize(session),
+                stats.getParquetIoStats(),
+                prefetchedColumns));
     }
 }
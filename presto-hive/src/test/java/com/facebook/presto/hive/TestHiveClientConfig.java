@@ -140,6 +140,15 @@ public class TestHiveClientConfig
                 .setMaterializedViewMissingPartitionsThreshold(100)
                 .setLooseMemoryAccountingEnabled(false)
                 .setReadColumnIndexFilter(false)
+                .setParquetBloomFilterEnabled(false)
+                .setParquetCoalesceReadsEnabled(false)
+                .setParquetMaxReadMergeDistance(new DataSize(1, Unit.MEGABYTE))
+                .setParquetMaxCoalescedReadSize(new DataSize(8, Unit.MEGABYTE))
+                .setMaxConcurrentParquetReads(32)
+                .setParquetDictionaryBlocksEnabled(false)
+                .setOrcStripePrefetchEnabled(false)
+                .setOrcMaxStripePrefetchSize(new DataSize(32, Unit.MEGABYTE))
+                .setMaxConcurrentOrcStripePrefetches(32)
                 .setSizeBasedSplitWeightsEnabled(true)
                 .setDynamicSplitSizesEnabled(false)
                 .setMinimumAssignedSplitWeight(0.05)
@@ -267,6 +276,15 @@ public class TestHiveClientConfig
                 .put("hive.verbose-runtime-stats-enabled", "true")
                 .put("hive.materialized-view-missing-partitions-threshold", "50")
                 .put("hive.parquet-column-index-filter-enabled", "true")
+                .put("hive.parquet-bloom-filter-enabled", "true")
+                .put("hive.parquet.coalesce-reads-enabled", "true")
+                .put("hive.parquet.max-read-merge-distance", "2MB")
+                .put("hive.parquet.max-coalesced-read-size", "32MB")
+                .put("hive.parquet.max-concurrent-reads", "16")
+                .put("hive.parquet.dictionary-blocks-enabled", "true")
+                .put("hive.orc.stripe-prefetch-enabled", "true")
+                .put("hive.orc.max-stripe-prefetch-size", "64MB")
+                .put("hive.orc.max-concurrent-stripe-prefetches", "16")
                 .put("hive.size-based-split-weights-enabled", "false")
                 .put("hive.dynamic-split-sizes-enabled", "true")
                 .put("hive.user-defined-type-encoding-enabled", "true")
@@ -390,6 +408,15 @@ public class TestHiveClientConfig
                 .setMaterializedViewMissingPartitionsThreshold(50)
                 .setLooseMemoryAccountingEnabled(true)
                 .setReadColumnIndexFilter(true)
+                .setParquetBloomFilterEnabled(true)
+                .setParquetCoalesceReadsEnabled(true)
+                .setParquetMaxReadMergeDistance(new DataSize(2, Unit.MEGABYTE))
+                .setParquetMaxCoalescedReadSize(new DataSize(32, Unit.MEGABYTE))
+                .setMaxConcurrentParquetReads(16)
+                .setParquetDictionaryBlocksEnabled(true)
+                .setOrcStripePrefetchEnabled(true)
+                .setOrcMaxStripePrefetchSize(new DataSize(64, Unit.MEGABYTE))
+                .setMaxConcurrentOrcStripePrefetches(16)
                 .setSizeBasedSplitWeightsEnabled(false)
                 .setDynamicSplitSizesEnabled(true)
                 .setMinimumAssignedSplitWeight(1.0)
@@ -18,6 +18,7 @@ import com.facebook.presto.cache.CacheConfig;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.Subfield;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.type.TestingTypeManager;
 import com.facebook.presto.common.type.Type;
@@ -724,6 +725,7 @@ public class TestHivePageSourceProvider
                 Optional<BucketAdaptation> bucketAdaptation,
                 List<Integer> outputColumns,
                 TupleDomain<Subfield> domainPredicate,
+                Map<Subfield, BlockedBloomFilter> dynamicFilterBloomFilters,
                 RowExpression remainingPredicate,
                 DateTimeZone hiveStorageTimeZone,
                 HiveFileContext hiveFileContext,
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.operator.OperatorStats;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.QueryRunner;
+import com.facebook.presto.tests.AbstractTestQueryFramework;
+import com.facebook.presto.tests.DistributedQueryRunner;
+import com.facebook.presto.tests.ResultWithQueryId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.SystemSessionProperties.GROUPED_EXECUTION;
+import static com.facebook.presto.SystemSessionProperties.PREFER_MERGE_JOIN_FOR_SORTED_INPUTS;
+import static com.facebook.presto.hive.HiveQueryRunner.HIVE_CATALOG;
+import static com.facebook.presto.hive.HiveSessionProperties.ORDER_BASED_EXECUTION_ENABLED;
+import static com.facebook.presto.spi.plan.JoinType.INNER;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTree;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.equiJoinClause;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.mergeJoin;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static io.airlift.tpch.TpchTable.CUSTOMER;
+import static io.airlift.tpch.TpchTable.ORDERS;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestMergeJoinPlanJavaExecution
+        extends AbstractTestQueryFramework
+{
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        return HiveQueryRunner.createQueryRunner(
+                ImmutableList.of(ORDERS, CUSTOMER),
+                ImmutableMap.of(),
+                Optional.empty());
+    }
+
+    @Test
+    public void testBucketedSortedTables()
+    {
+        QueryRunner queryRunner = getQueryRunner();
+
+        try {
+            queryRunner.execute("CREATE TABLE test_java_merge_join_customer WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.customer LIMIT 1000");
+
+            queryRunner.execute("CREATE TABLE test_java_merge_join_order WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.\"orders\" LIMIT 1000");
+
+            String query = "select c.custkey, c.name, o.orderkey from test_java_merge_join_customer c join test_java_merge_join_order o on c.custkey = o.custkey";
+
+            // both tables are read in the order of the join key, so no sort is added below the merge join
+            assertPlan(
+                    mergeJoinEnabled(),
+                    query,
+                    anyTree(mergeJoin(
+                            INNER,
+                            ImmutableList.of(equiJoinClause("custkey_l", "custkey_r")),
+                            Optional.empty(),
+                            tableScan("test_java_merge_join_customer", ImmutableMap.of("custkey_l", "custkey")),
+                            tableScan("test_java_merge_join_order", ImmutableMap.of("custkey_r", "custkey")))));
+
+            Set<String> operatorTypes = getOperatorTypes(mergeJoinEnabled(), query);
+            assertTrue(operatorTypes.contains("MergeJoinOperator"), operatorTypes.toString());
+            assertFalse(operatorTypes.contains("HashBuilderOperator"), operatorTypes.toString());
+            assertFalse(operatorTypes.contains("OrderByOperator"), operatorTypes.toString());
+
+            assertQueryWithSameQueryRunner(mergeJoinEnabled(), query, getSession());
+        }
+        finally {
+            queryRunner.execute("DROP TABLE IF EXISTS test_java_merge_join_customer");
+            queryRunner.execute("DROP TABLE IF EXISTS test_java_merge_join_order");
+        }
+    }
+
+    @Test
+    public void testSeveralSplitsPerBucket()
+    {
+        QueryRunner queryRunner = getQueryRunner();
+
+        try {
+            queryRunner.execute("CREATE TABLE test_java_merge_join_customer_partitions WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.customer LIMIT 1000");
+            queryRunner.execute("INSERT INTO test_java_merge_join_customer_partitions \n" +
+                    "SELECT *, '2021-07-12' as ds FROM tpch.sf1.customer LIMIT 1000");
+
+            queryRunner.execute("CREATE TABLE test_java_merge_join_order_partitions WITH ( \n" +
+                    "  bucket_count = 4, bucketed_by = ARRAY['custkey'], \n" +
+                    "  sorted_by = ARRAY['custkey'], partitioned_by=array['ds']) AS \n" +
+                    "SELECT *, '2021-07-11' as ds FROM tpch.sf1.\"orders\" LIMIT 1000");
+            queryRunner.execute("INSERT INTO test_java_merge_join_order_partitions \n" +
+                    "SELECT *, '2021-07-12' as ds FROM tpch.sf1.orders LIMIT 1000");
+
+            String query = "select c.custkey, c.ds, o.orderkey from test_java_merge_join_customer_partitions c join test_java_merge_join_order_partitions o " +
+                    "on c.custkey = o.custkey and c.ds = o.ds";
+
+            // each bucket holds a split of both partitions, which a Java worker reads in separate drivers, so a hash join is planned
+            assertPlan(
+                    mergeJoinEnabled(),
+                    query,
+                    anyTree(join(
+                            INNER,
+                            ImmutableList.of(equiJoinClause("custkey_r", "custkey_l"), equiJoinClause("ds_r", "ds_l")),
+                            anyTree(tableScan("test_java_merge_join_order_partitions", ImmutableMap.of("custkey_r", "custkey", "ds_r", "ds"))),
+                            anyTree(tableScan("test_java_merge_join_customer_partitions", ImmutableMap.of("custkey_l", "custkey", "ds_l", "ds"))))));
+
+            assertQueryWithSameQueryRunner(mergeJoinEnabled(), query, getSession());
+        }
+        finally {
+            queryRunner.execute("DROP TABLE IF EXISTS test_java_merge_join_customer_partitions");
+            queryRunner.execute("DROP TABLE IF EXISTS test_java_merge_join_order_partitions");
+        }
+    }
+
+    private Set<String> getOperatorTypes(Session session, String query)
+    {
+        DistributedQueryRunner runner = (DistributedQueryRunner) getQueryRunner();
+        ResultWithQueryId<MaterializedResult> result = runner.executeWithQueryId(session, query);
+        QueryId queryId = result.getQueryId();
+        return runner.getCoordinator().getQueryManager().getFullQueryInfo(queryId).getQueryStats().getOperatorSummaries().stream()
+                .map(OperatorStats::getOperatorType)
+                .collect(toImmutableSet());
+    }
+
+    private Session mergeJoinEnabled()
+    {
+        return Session.builder(getSession())
+                .setSystemProperty(PREFER_MERGE_JOIN_FOR_SORTED_INPUTS, "true")
+                .setSystemProperty(GROUPED_EXECUTION, "true")
+                .setCatalogSessionProperty(HIVE_CATALOG, ORDER_BASED_EXECUTION_ENABLED, "true")
+                .build();
+    }
+}
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.iceberg;
 
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.io.DataSink;
 import com.facebook.presto.common.io.OutputStreamDataSink;
 import com.facebook.presto.common.type.Type;
@@ -33,6 +34,7 @@ import com.facebook.presto.parquet.writer.ParquetWriterOptions;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import jakarta.inject.Inject;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -43,6 +45,7 @@ import org.apache.iceberg.types.Types;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.function.Supplier;
@@ -71,10 +74,15 @@ import static com.facebook.presto.iceberg.TypeConverter.toPrestoType;
 import static com.facebook.presto.iceberg.util.PrimitiveTypeMapBuilder.makeTypeMap;
 import static com.facebook.presto.orc.NoOpOrcWriterStats.NOOP_WRITER_STATS;
 import static com.facebook.presto.orc.OrcEncoding.ORC;
+import static com.facebook.presto.parquet.writer.ParquetWriterOptions.DEFAULT_BLOOM_FILTER_FPP;
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.Math.min;
 import static java.time.ZoneOffset.UTC;
 import static java.util.Objects.requireNonNull;
+import static org.apache.iceberg.TableProperties.PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX;
+import static org.apache.iceberg.TableProperties.PARQUET_BLOOM_FILTER_COLUMN_FPP_PREFIX;
+import static org.apache.iceberg.TableProperties.PARQUET_BLOOM_FILTER_MAX_BYTES;
 import static org.apache.iceberg.parquet.ParquetSchemaUtil.convert;
 
 public class IcebergFileWriterFactory
@@ -112,10 +120,23 @@ public class IcebergFileWriterFactory
             HdfsContext hdfsContext,
             FileFormat fileFormat,
             MetricsConfig metricsConfig)
+    {
+        return createFileWriter(outputPath, icebergSchema, jobConf, session, hdfsContext, fileFormat, metricsConfig, ImmutableMap.of());
+    }
+
+    public IcebergFileWriter createFileWriter(
+            Path outputPath,
+            Schema icebergSchema,
+            JobConf jobConf,
+            ConnectorSession session,
+            HdfsContext hdfsContext,
+            FileFormat fileFormat,
+            MetricsConfig metricsConfig,
+            Map<String, String> tableProperties)
     {
         switch (fileFormat) {
             case PARQUET:
-                return createParquetWriter(outputPath, icebergSchema, jobConf, session, hdfsContext, metricsConfig);
+                return createParquetWriter(outputPath, icebergSchema, jobConf, session, hdfsContext, metricsConfig, tableProperties);
             case ORC:
                 return createOrcWriter(outputPath, icebergSchema, jobConf, session);
         }
@@ -128,7 +149,8 @@ public class IcebergFileWriterFactory
             JobConf jobConf,
             ConnectorSession session,
             HdfsContext hdfsContext,
-            MetricsConfig metricsConfig)
+            MetricsConfig metricsConfig,
+            Map<String, String> tableProperties)
     {
         List<String> fileColumnNames = icebergSchema.columns().stream()
                 .map(Types.NestedField::name)
@@ -145,11 +167,11 @@ public class IcebergFileWriterFactory
                 return null;
             };
 
-            ParquetWriterOptions parquetWriterOptions = ParquetWriterOptions.builder()
+            ParquetWriterOptions.Builder parquetWriterOptions = ParquetWriterOptions.builder()
                     .setMaxPageSize(getParquetWriterPageSize(session))
                     .setMaxBlockSize(getParquetWriterBlockSize(session))
-                    .setWriterVersion(getParquetWriterVersion(session))
-                    .build();
+                    .setWriterVersion(getParquetWriterVersion(session));
+            setBloomFilterOptions(parquetWriterOptions, tableProperties);
 
             return new IcebergParquetFileWriter(
                     hdfsEnvironment.doAs(session.getUser(), () -> fileSystem.create(outputPath)),
@@ -158,7 +180,7 @@ public class IcebergFileWriterFactory
                     fileColumnTypes,
                     convert(icebergSchema, "table"),
                     makeTypeMap(fileColumnTypes, fileColumnNames),
-                    parquetWriterOptions,
+                    parquetWriterOptions.build(),
                     IntStream.range(0, fileColumnNames.size()).toArray(),
                     getCompressionCodec(session).getParquetCompressionCodec(),
                     outputPath,
@@ -171,6 +193,30 @@ public class IcebergFileWriterFactory
         }
     }
 
+    // Iceberg configures Bloom filters per column, while the Parquet writer uses one false positive probability for the file, so take the lowest one
+    private static void setBloomFilterOptions(ParquetWriterOptions.Builder parquetWriterOptions, Map<String, String> tableProperties)
+    {
+        ImmutableSet.Builder<String> columns = ImmutableSet.builder();
+        double fpp = DEFAULT_BLOOM_FILTER_FPP;
+        boolean fppSet = false;
+        for (Map.Entry<String, String> property : tableProperties.entrySet()) {
+            if (property.getKey().startsWith(PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX) && Boolean.parseBoolean(property.getValue())) {
+                columns.add(property.getKey().substring(PARQUET_BLOOM_FILTER_COLUMN_ENABLED_PREFIX.length()));
+            }
+            else if (property.getKey().startsWith(PARQUET_BLOOM_FILTER_COLUMN_FPP_PREFIX)) {
+                double columnFpp = Double.parseDouble(property.getValue());
+                fpp = fppSet ? min(fpp, columnFpp) : columnFpp;
+                fppSet = true;
+            }
+        }
+        parquetWriterOptions.setBloomFilterColumns(columns.build());
+        parquetWriterOptions.setBloomFilterFpp(fpp);
+        String maxBytes = tableProperties.get(PARQUET_BLOOM_FILTER_MAX_BYTES);
+        if (maxBytes != null) {
+            parquetWriterOptions.setMaxBloomFilterSize(DataSize.succinctBytes(Long.parseLong(maxBytes)));
+        }
+    }
+
     private IcebergFileWriter createOrcWriter(
             Path outputPath,
             Schema icebergSchema,
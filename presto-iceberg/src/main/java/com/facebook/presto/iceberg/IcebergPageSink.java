@@ -390,7 +390,8 @@ public class IcebergPageSink
                 session,
                 hdfsContext,
                 fileFormat,
-                MetricsConfig.forTable(table));
+                MetricsConfig.forTable(table),
+                table.properties());
 
         return new WriteContext(writer, outputPath, partitionData);
     }
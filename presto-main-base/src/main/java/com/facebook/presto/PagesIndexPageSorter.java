@@ -23,6 +23,7 @@ import jakarta.inject.Inject;
 
 import java.util.List;
 
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static java.util.Objects.requireNonNull;
@@ -31,11 +32,18 @@ public class PagesIndexPageSorter
         implements PageSorter
 {
     private final PagesIndex.Factory pagesIndexFactory;
+    private final boolean normalizedKeys;
 
     @Inject
     public PagesIndexPageSorter(PagesIndex.Factory pagesIndexFactory)
+    {
+        this(pagesIndexFactory, false);
+    }
+
+    public PagesIndexPageSorter(PagesIndex.Factory pagesIndexFactory, boolean normalizedKeys)
     {
         this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+        this.normalizedKeys = normalizedKeys;
     }
 
     @Override
@@ -43,7 +51,7 @@ public class PagesIndexPageSorter
     {
         PagesIndex pagesIndex = pagesIndexFactory.newPagesIndex(types, expectedPositions);
         pages.forEach(pagesIndex::addPage);
-        pagesIndex.sort(sortChannels, sortOrders);
+        pagesIndex.sort(sortChannels, sortOrders, 0, pagesIndex.getPositionCount(), normalizedKeys, newSimpleAggregatedMemoryContext());
 
         int positionCount = pagesIndex.getPositionCount();
         AdaptiveLongBigArray valueAddresses = pagesIndex.getValueAddresses();
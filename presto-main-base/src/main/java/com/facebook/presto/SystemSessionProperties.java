@@ -76,6 +76,7 @@ import static com.facebook.presto.spi.session.PropertyMetadata.stringProperty;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType.BROADCAST;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType.PARTITIONED;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinReorderingStrategy.ELIMINATE_CROSS_JOINS;
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.MAX_DYNAMIC_FILTERING_BLOOM_FILTER_SIZE;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.PartialAggregationStrategy.ALWAYS;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.PartialAggregationStrategy.NEVER;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.parseQueryTypesFromString;
@@ -165,6 +166,7 @@ public final class SystemSessionProperties
     public static final String RUNTIME_OPTIMIZER_ENABLED = "runtime_optimizer_enabled";
     public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
     public static final String EXCHANGE_CHECKSUM = "exchange_checksum";
+    public static final String EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED = "exchange_adaptive_compression_enabled";
     public static final String LEGACY_TIMESTAMP = "legacy_timestamp";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
     public static final String PUSH_AGGREGATION_THROUGH_JOIN = "push_aggregation_through_join";
@@ -204,6 +206,7 @@ public final class SystemSessionProperties
     public static final String PUSHDOWN_SUBFIELDS_FROM_LAMBDA_ENABLED = "pushdown_subfields_from_lambda_enabled";
     public static final String INDEX_LOADER_TIMEOUT = "index_loader_timeout";
     public static final String OPTIMIZED_REPARTITIONING_ENABLED = "optimized_repartitioning";
+    public static final String PARTITIONED_OUTPUT_SKEW_REPORTING_ENABLED = "partitioned_output_skew_reporting_enabled";
     public static final String AGGREGATION_PARTITIONING_MERGING_STRATEGY = "aggregation_partitioning_merging_strategy";
     public static final String LIST_BUILT_IN_FUNCTIONS_ONLY = "list_built_in_functions_only";
     public static final String PARTITIONING_PRECISION_STRATEGY = "partitioning_precision_strategy";
@@ -219,6 +222,9 @@ public final class SystemSessionProperties
     public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_ROW_COUNT = "dynamic_filtering_max_per_driver_row_count";
     public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_SIZE = "dynamic_filtering_max_per_driver_size";
     public static final String DYNAMIC_FILTERING_RANGE_ROW_LIMIT_PER_DRIVER = "dynamic_filtering_range_row_limit_per_driver";
+    public static final String DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE = "dynamic_filtering_bloom_filter_max_size";
+    public static final String DISTRIBUTED_DYNAMIC_FILTERING_ENABLED = "distributed_dynamic_filtering_enabled";
+    public static final String DISTRIBUTED_DYNAMIC_FILTERING_WAIT_TIMEOUT = "distributed_dynamic_filtering_wait_timeout";
     public static final String FRAGMENT_RESULT_CACHING_ENABLED = "fragment_result_caching_enabled";
     public static final String INLINE_SQL_FUNCTIONS = "inline_sql_functions";
     public static final String REMOTE_FUNCTIONS_ENABLED = "remote_functions_enabled";
@@ -287,6 +293,7 @@ public final class SystemSessionProperties
     public static final String RANDOMIZE_NULL_SOURCE_KEY_IN_SEMI_JOIN_STRATEGY = "randomize_null_source_key_in_semi_join_strategy";
     public static final String SHARDED_JOINS_STRATEGY = "sharded_joins_strategy";
     public static final String JOIN_SHARD_COUNT = "join_shard_count";
+    public static final String JOIN_HOT_KEY_HASHES = "join_hot_key_hashes";
     public static final String IN_PREDICATES_AS_INNER_JOINS_ENABLED = "in_predicates_as_inner_joins_enabled";
     public static final String PUSH_AGGREGATION_BELOW_JOIN_BYTE_REDUCTION_THRESHOLD = "push_aggregation_below_join_byte_reduction_threshold";
     public static final String KEY_BASED_SAMPLING_ENABLED = "key_based_sampling_enabled";
@@ -322,6 +329,7 @@ public final class SystemSessionProperties
     public static final String ENABLE_HISTORY_BASED_SCALED_WRITER = "enable_history_based_scaled_writer";
     public static final String USE_PARTIAL_AGGREGATION_HISTORY = "use_partial_aggregation_history";
     public static final String TRACK_PARTIAL_AGGREGATION_HISTORY = "track_partial_aggregation_history";
+    public static final String USE_HISTORY_BASED_HASH_TABLE_SIZING = "use_history_based_hash_table_sizing";
     public static final String REMOVE_REDUNDANT_CAST_TO_VARCHAR_IN_JOIN = "remove_redundant_cast_to_varchar_in_join";
     public static final String REMOVE_MAP_CAST = "remove_map_cast";
     public static final String HANDLE_COMPLEX_EQUI_JOINS = "handle_complex_equi_joins";
@@ -884,6 +892,11 @@ public final class SystemSessionProperties
                         "Enable checksum in exchanges",
                         featuresConfig.isExchangeChecksumEnabled(),
                         false),
+                booleanProperty(
+                        EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED,
+                        "Compress exchange pages with LZ4, ZSTD or not at all depending on their measured cost, instead of exchange_compression_codec. Ignored with native execution",
+                        featuresConfig.isExchangeAdaptiveCompressionEnabled(),
+                        false),
                 booleanProperty(
                         LEGACY_TIMESTAMP,
                         "Use legacy TIME & TIMESTAMP semantics (warning: this will be removed)",
@@ -1119,6 +1132,11 @@ public final class SystemSessionProperties
                         "Experimental: Use optimized repartitioning",
                         featuresConfig.isOptimizedRepartitioningEnabled(),
                         false),
+                booleanProperty(
+                        PARTITIONED_OUTPUT_SKEW_REPORTING_ENABLED,
+                        "Experimental: Sample the partitioning keys of partitioned outputs and report the keys that skew the output partitions, without rerouting any rows",
+                        featuresConfig.isPartitionedOutputSkewReportingEnabled(),
+                        false),
                 new PropertyMetadata<>(
                         AGGREGATION_PARTITIONING_MERGING_STRATEGY,
                         format("Strategy to merge partition preference in aggregation node. Options are %s",
@@ -1218,6 +1236,29 @@ public final class SystemSessionProperties
                         "Maximum number of build-side rows per driver up to which min and max values will be collected for dynamic filtering",
                         featuresConfig.getDynamicFilteringRangeRowLimitPerDriver(),
                         false),
+                new PropertyMetadata<>(
+                        DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE,
+                        "Size of the Bloom filter collected per build-side column for dynamic filtering when the exact set of values is too large; 0 disables Bloom filters",
+                        VARCHAR,
+                        DataSize.class,
+                        featuresConfig.getDynamicFilteringBloomFilterMaxSize(),
+                        false,
+                        value -> validateDynamicFilteringBloomFilterMaxSize((String) value),
+                        DataSize::toString),
+                booleanProperty(
+                        DISTRIBUTED_DYNAMIC_FILTERING_ENABLED,
+                        "Collect dynamic filters on the coordinator and apply them to table scans in other stages than the join",
+                        featuresConfig.isDistributedDynamicFilteringEnabled(),
+                        false),
+                new PropertyMetadata<>(
+                        DISTRIBUTED_DYNAMIC_FILTERING_WAIT_TIMEOUT,
+                        "Maximum time to delay split enumeration of a table scan until the distributed dynamic filters it depends on are collected",
+                        VARCHAR,
+                        Duration.class,
+                        featuresConfig.getDistributedDynamicFilteringWaitTimeout(),
+                        false,
+                        value -> Duration.valueOf((String) value),
+                        Duration::toString),
                 booleanProperty(
                         FRAGMENT_RESULT_CACHING_ENABLED,
                         "Enable fragment result caching and read/write leaf fragment result pages from/to cache when applicable",
@@ -1682,6 +1723,17 @@ public final class SystemSessionProperties
                         "Number of shards to use in sharded joins optimization",
                         featuresConfig.getJoinShardCount(),
                         true),
+                new PropertyMetadata<>(
+                        JOIN_HOT_KEY_HASHES,
+                        format("Hashes of the join keys to shard when %s is %s, as reported by partitioned output skew reporting. Specify as a comma-separated list of bigint values",
+                                SHARDED_JOINS_STRATEGY,
+                                ShardedJoinStrategy.HOT_KEYS.name()),
+                        VARCHAR,
+                        (Class<List<Long>>) (Class<?>) List.class,
+                        ImmutableList.of(),
+                        false,
+                        value -> parseJoinHotKeyHashes((String) value),
+                        hashes -> ((List<Long>) hashes).stream().map(String::valueOf).collect(joining(","))),
                 booleanProperty(
                         OPTIMIZE_CONDITIONAL_AGGREGATION_ENABLED,
                         "Enable rewriting IF(condition, AGG(x)) to AGG(x) with condition included in mask",
@@ -1852,6 +1904,11 @@ public final class SystemSessionProperties
                         "Track partial aggregation statistics in HBO",
                         featuresConfig.isTrackPartialAggregationHistory(),
                         false),
+                booleanProperty(
+                        USE_HISTORY_BASED_HASH_TABLE_SIZING,
+                        "Size aggregation and join build hash tables from history based output row counts",
+                        featuresConfig.isUseHistoryBasedHashTableSizing(),
+                        false),
                 booleanProperty(
                         REMOVE_REDUNDANT_CAST_TO_VARCHAR_IN_JOIN,
                         "If both left and right side of join clause are varchar cast from int/bigint, remove the cast here",
@@ -2443,6 +2500,12 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_CHECKSUM, Boolean.class);
     }
 
+    public static boolean isExchangeAdaptiveCompressionEnabled(Session session)
+    {
+        // native workers do not read the codec prefix of adaptively compressed pages, so every side of the exchange would not agree on the format
+        return session.getSystemProperty(EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED, Boolean.class) && !isNativeExecutionEnabled(session);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
@@ -2589,6 +2652,35 @@ public final class SystemSessionProperties
         return session.getSystemProperty(MAX_TASKS_PER_STAGE, Integer.class);
     }
 
+    private static DataSize validateDynamicFilteringBloomFilterMaxSize(String value)
+    {
+        DataSize size;
+        try {
+            size = DataSize.valueOf(requireNonNull(value, "value is null"));
+        }
+        catch (IllegalArgumentException e) {
+            throw new PrestoException(INVALID_SESSION_PROPERTY, format("%s is not a valid data size: %s", DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE, value));
+        }
+        if (size.compareTo(DataSize.valueOf(MAX_DYNAMIC_FILTERING_BLOOM_FILTER_SIZE)) > 0) {
+            throw new PrestoException(
+                    INVALID_SESSION_PROPERTY,
+                    format("%s must be less than or equal to %s: %s", DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE, MAX_DYNAMIC_FILTERING_BLOOM_FILTER_SIZE, size));
+        }
+        return size;
+    }
+
+    private static List<Long> parseJoinHotKeyHashes(String value)
+    {
+        try {
+            return Splitter.on(",").trimResults().omitEmptyStrings().splitToList(requireNonNull(value, "value is null")).stream()
+                    .map(Long::parseLong)
+                    .collect(toImmutableList());
+        }
+        catch (NumberFormatException e) {
+            throw new PrestoException(INVALID_SESSION_PROPERTY, format("%s must be a comma-separated list of bigint values: %s", JOIN_HOT_KEY_HASHES, value));
+        }
+    }
+
     private static Integer validateValueIsPowerOfTwo(Object value, String property)
     {
         Number number = (Number) value;
@@ -2716,6 +2808,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(OPTIMIZED_REPARTITIONING_ENABLED, Boolean.class);
     }
 
+    public static boolean isPartitionedOutputSkewReportingEnabled(Session session)
+    {
+        return session.getSystemProperty(PARTITIONED_OUTPUT_SKEW_REPORTING_ENABLED, Boolean.class);
+    }
+
     public static AggregationPartitioningMergingStrategy getAggregationPartitioningMergingStrategy(Session session)
     {
         return session.getSystemProperty(AGGREGATION_PARTITIONING_MERGING_STRATEGY, AggregationPartitioningMergingStrategy.class);
@@ -2790,6 +2887,21 @@ public final class SystemSessionProperties
         return session.getSystemProperty(DYNAMIC_FILTERING_RANGE_ROW_LIMIT_PER_DRIVER, Integer.class);
     }
 
+    public static DataSize getDynamicFilteringBloomFilterMaxSize(Session session)
+    {
+        return session.getSystemProperty(DYNAMIC_FILTERING_BLOOM_FILTER_MAX_SIZE, DataSize.class);
+    }
+
+    public static boolean isDistributedDynamicFilteringEnabled(Session session)
+    {
+        return isEnableDynamicFiltering(session) && session.getSystemProperty(DISTRIBUTED_DYNAMIC_FILTERING_ENABLED, Boolean.class);
+    }
+
+    public static Duration getDistributedDynamicFilteringWaitTimeout(Session session)
+    {
+        return session.getSystemProperty(DISTRIBUTED_DYNAMIC_FILTERING_WAIT_TIMEOUT, Duration.class);
+    }
+
     public static boolean isFragmentResultCachingEnabled(Session session)
     {
         return session.getSystemProperty(FRAGMENT_RESULT_CACHING_ENABLED, Boolean.class);
@@ -3138,6 +3250,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(JOIN_SHARD_COUNT, Integer.class);
     }
 
+    public static List<Long> getJoinHotKeyHashes(Session session)
+    {
+        return (List<Long>) session.getSystemProperty(JOIN_HOT_KEY_HASHES, List.class);
+    }
+
     public static boolean isOptimizeConditionalAggregationEnabled(Session session)
     {
         return session.getSystemProperty(OPTIMIZE_CONDITIONAL_AGGREGATION_ENABLED, Boolean.class);
@@ -3268,6 +3385,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(TRACK_PARTIAL_AGGREGATION_HISTORY, Boolean.class);
     }
 
+    public static boolean isUseHistoryBasedHashTableSizing(Session session)
+    {
+        return session.getSystemProperty(USE_HISTORY_BASED_HASH_TABLE_SIZING, Boolean.class);
+    }
+
     public static boolean isRemoveRedundantCastToVarcharInJoinEnabled(Session session)
     {
         return session.getSystemProperty(REMOVE_REDUNDANT_CAST_TO_VARCHAR_IN_JOIN, Boolean.class);
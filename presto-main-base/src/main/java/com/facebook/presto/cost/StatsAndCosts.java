@@ -17,6 +17,7 @@ package com.facebook.presto.cost;
 import com.facebook.presto.Session;
 import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.statistics.HistoryBasedSourceInfo;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
@@ -35,19 +36,39 @@ public class StatsAndCosts
 
     private final Map<PlanNodeId, PlanNodeStatsEstimate> stats;
     private final Map<PlanNodeId, PlanCostEstimate> costs;
+    // the source of an estimate is not serialized, so the nodes whose row count comes from history are recorded on the coordinator
+    private final Map<PlanNodeId, Double> historyBasedOutputRowCounts;
 
     public static StatsAndCosts empty()
     {
         return EMPTY;
     }
 
+    public StatsAndCosts(Map<PlanNodeId, PlanNodeStatsEstimate> stats, Map<PlanNodeId, PlanCostEstimate> costs)
+    {
+        this(stats, costs, getHistoryBasedOutputRowCounts(stats));
+    }
+
     @JsonCreator
     public StatsAndCosts(
             @JsonProperty("stats") Map<PlanNodeId, PlanNodeStatsEstimate> stats,
-            @JsonProperty("costs") Map<PlanNodeId, PlanCostEstimate> costs)
+            @JsonProperty("costs") Map<PlanNodeId, PlanCostEstimate> costs,
+            @JsonProperty("historyBasedOutputRowCounts") Map<PlanNodeId, Double> historyBasedOutputRowCounts)
     {
         this.stats = ImmutableMap.copyOf(requireNonNull(stats, "stats is null"));
         this.costs = ImmutableMap.copyOf(requireNonNull(costs, "costs is null"));
+        this.historyBasedOutputRowCounts = ImmutableMap.copyOf(requireNonNull(historyBasedOutputRowCounts, "historyBasedOutputRowCounts is null"));
+    }
+
+    private static Map<PlanNodeId, Double> getHistoryBasedOutputRowCounts(Map<PlanNodeId, PlanNodeStatsEstimate> stats)
+    {
+        ImmutableMap.Builder<PlanNodeId, Double> historyBasedOutputRowCounts = ImmutableMap.builder();
+        stats.forEach((planNodeId, estimate) -> {
+            if (estimate.getSourceInfo() instanceof HistoryBasedSourceInfo && !estimate.isOutputRowCountUnknown()) {
+                historyBasedOutputRowCounts.put(planNodeId, estimate.getOutputRowCount());
+            }
+        });
+        return historyBasedOutputRowCounts.build();
     }
 
     @JsonProperty
@@ -62,12 +83,22 @@ public class StatsAndCosts
         return costs;
     }
 
+    /**
+     * Returns the output row counts of the nodes whose estimate comes from the statistics of previous runs of the query.
+     */
+    @JsonProperty
+    public Map<PlanNodeId, Double> getHistoryBasedOutputRowCounts()
+    {
+        return historyBasedOutputRowCounts;
+    }
+
     public StatsAndCosts getForSubplan(PlanNode root)
     {
         Iterable<PlanNode> planIterator = Traverser.forTree(PlanNode::getSources)
                 .depthFirstPreOrder(root);
         ImmutableMap.Builder<PlanNodeId, PlanNodeStatsEstimate> filteredStats = ImmutableMap.builder();
         ImmutableMap.Builder<PlanNodeId, PlanCostEstimate> filteredCosts = ImmutableMap.builder();
+        ImmutableMap.Builder<PlanNodeId, Double> filteredHistoryBasedOutputRowCounts = ImmutableMap.builder();
         for (PlanNode node : planIterator) {
             if (stats.containsKey(node.getId())) {
                 filteredStats.put(node.getId(), stats.get(node.getId()));
@@ -75,8 +106,11 @@ public class StatsAndCosts
             if (costs.containsKey(node.getId())) {
                 filteredCosts.put(node.getId(), costs.get(node.getId()));
             }
+            if (historyBasedOutputRowCounts.containsKey(node.getId())) {
+                filteredHistoryBasedOutputRowCounts.put(node.getId(), historyBasedOutputRowCounts.get(node.getId()));
+            }
         }
-        return new StatsAndCosts(filteredStats.build(), filteredCosts.build());
+        return new StatsAndCosts(filteredStats.build(), filteredCosts.build(), filteredHistoryBasedOutputRowCounts.build());
     }
 
     public static StatsAndCosts create(PlanNode root, StatsProvider statsProvider, CostProvider costProvider, Session session)
@@ -104,13 +138,14 @@ public class StatsAndCosts
         }
         StatsAndCosts other = (StatsAndCosts) o;
         return Objects.equals(this.stats, other.stats) &&
-                Objects.equals(this.costs, other.costs);
+                Objects.equals(this.costs, other.costs) &&
+                Objects.equals(this.historyBasedOutputRowCounts, other.historyBasedOutputRowCounts);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(stats, costs);
+        return Objects.hash(stats, costs, historyBasedOutputRowCounts);
     }
 
     @Override
@@ -119,6 +154,7 @@ public class StatsAndCosts
         return toStringHelper(this)
                 .add("stats", stats)
                 .add("costs", costs)
+                .add("historyBasedOutputRowCounts", historyBasedOutputRowCounts)
                 .toString();
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.common.predicate.Domain;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The build-side domains of the dynamic filters collected by a task so far, keyed by dynamic filter ID.
+ * The version is incremented every time the task collects more domains.
+ */
+public class DynamicFilterSummary
+{
+    private final long version;
+    private final Map<String, Domain> domains;
+
+    @JsonCreator
+    public DynamicFilterSummary(
+            @JsonProperty("version") long version,
+            @JsonProperty("domains") Map<String, Domain> domains)
+    {
+        this.version = version;
+        this.domains = ImmutableMap.copyOf(requireNonNull(domains, "domains is null"));
+    }
+
+    @JsonProperty
+    public long getVersion()
+    {
+        return version;
+    }
+
+    @JsonProperty
+    public Map<String, Domain> getDomains()
+    {
+        return domains;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("version", version)
+                .add("domains", domains)
+                .toString();
+    }
+}
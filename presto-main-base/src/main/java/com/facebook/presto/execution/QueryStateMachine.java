@@ -1197,7 +1197,8 @@ public class QueryStateMachine
                                 .build()));
 
         return new StatsAndCosts(newStats,
-                statsAndCosts.getCosts());
+                statsAndCosts.getCosts(),
+                statsAndCosts.getHistoryBasedOutputRowCounts());
     }
 
     private static StageInfo pruneStatsFromStageInfo(StageInfo stage)
@@ -25,6 +25,7 @@ import com.facebook.presto.cost.StatsCalculator;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.buffer.OutputBuffers;
 import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.scheduler.DynamicFilterService;
 import com.facebook.presto.execution.scheduler.ExecutionPolicy;
 import com.facebook.presto.execution.scheduler.SectionExecutionFactory;
 import com.facebook.presto.execution.scheduler.SplitSchedulerStats;
@@ -83,6 +84,7 @@ import java.util.function.Consumer;
 
 import static com.facebook.presto.SystemSessionProperties.getExecutionPolicy;
 import static com.facebook.presto.SystemSessionProperties.getQueryAnalyzerTimeout;
+import static com.facebook.presto.SystemSessionProperties.isDistributedDynamicFilteringEnabled;
 import static com.facebook.presto.SystemSessionProperties.isEagerPlanValidationEnabled;
 import static com.facebook.presto.SystemSessionProperties.isLogInvokedFunctionNamesEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpoolingOutputBufferEnabled;
@@ -141,6 +143,7 @@ public class SqlQueryExecution
     private final PlanNodeIdAllocator idAllocator = new PlanNodeIdAllocator();
     private final AtomicReference<VariableAllocator> variableAllocator = new AtomicReference<>();
     private final PartialResultQueryManager partialResultQueryManager;
+    private final DynamicFilterService dynamicFilterService;
     private final AtomicReference<Optional<ResourceGroupQueryLimits>> resourceGroupQueryLimits = new AtomicReference<>(Optional.empty());
     private final PlanCanonicalInfoProvider planCanonicalInfoProvider;
     private final QueryAnalysis queryAnalysis;
@@ -175,6 +178,7 @@ public class SqlQueryExecution
             CostCalculator costCalculator,
             PlanChecker planChecker,
             PartialResultQueryManager partialResultQueryManager,
+            DynamicFilterService dynamicFilterService,
             PlanCanonicalInfoProvider planCanonicalInfoProvider,
             AccessControl accessControl,
             String query)
@@ -242,6 +246,7 @@ public class SqlQueryExecution
 
             this.remoteTaskFactory = new TrackingRemoteTaskFactory(requireNonNull(remoteTaskFactory, "remoteTaskFactory is null"), stateMachine);
             this.partialResultQueryManager = requireNonNull(partialResultQueryManager, "partialResultQueryManager is null");
+            this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
 
             if (isLogInvokedFunctionNamesEnabled(getSession())) {
                 for (Map.Entry<FunctionKind, Set<String>> entry : queryAnalysis.getInvokedFunctions().entrySet()) {
@@ -679,7 +684,17 @@ public class SqlQueryExecution
                     .withNoMoreBufferIds();
         }
 
-        SplitSourceFactory splitSourceFactory = new SplitSourceFactory(splitSourceProvider, stateMachine.getWarningCollector());
+        if (isDistributedDynamicFilteringEnabled(getSession())) {
+            QueryId queryId = stateMachine.getQueryId();
+            dynamicFilterService.registerQuery(queryId, outputStagePlan);
+            stateMachine.addStateChangeListener(state -> {
+                if (state.isDone()) {
+                    dynamicFilterService.removeQuery(queryId);
+                }
+            });
+        }
+
+        SplitSourceFactory splitSourceFactory = new SplitSourceFactory(splitSourceProvider, stateMachine.getWarningCollector(), Optional.of(dynamicFilterService));
         // build the stage execution objects (this doesn't schedule execution)
         SqlQuerySchedulerInterface scheduler = SqlQueryScheduler.createSqlQueryScheduler(
                 locationFactory,
@@ -702,7 +717,8 @@ public class SqlQueryExecution
                 planChecker,
                 metadata,
                 sqlParser,
-                partialResultQueryManager);
+                partialResultQueryManager,
+                dynamicFilterService);
 
         queryScheduler.set(scheduler);
 
@@ -926,6 +942,7 @@ public class SqlQueryExecution
         private final CostCalculator costCalculator;
         private final PlanChecker planChecker;
         private final PartialResultQueryManager partialResultQueryManager;
+        private final DynamicFilterService dynamicFilterService;
         private final HistoryBasedPlanStatisticsManager historyBasedPlanStatisticsManager;
 
         @Inject
@@ -949,6 +966,7 @@ public class SqlQueryExecution
                 CostCalculator costCalculator,
                 PlanChecker planChecker,
                 PartialResultQueryManager partialResultQueryManager,
+                DynamicFilterService dynamicFilterService,
                 HistoryBasedPlanStatisticsManager historyBasedPlanStatisticsManager)
         {
             requireNonNull(config, "config is null");
@@ -972,6 +990,7 @@ public class SqlQueryExecution
             this.costCalculator = requireNonNull(costCalculator, "costCalculator is null");
             this.planChecker = requireNonNull(planChecker, "planChecker is null");
             this.partialResultQueryManager = requireNonNull(partialResultQueryManager, "partialResultQueryManager is null");
+            this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
             this.historyBasedPlanStatisticsManager = requireNonNull(historyBasedPlanStatisticsManager, "historyBasedPlanStatisticsManager is null");
         }
 
@@ -1016,6 +1035,7 @@ public class SqlQueryExecution
                     costCalculator,
                     planChecker,
                     partialResultQueryManager,
+                    dynamicFilterService,
                     historyBasedPlanStatisticsManager.getPlanCanonicalInfoProvider(),
                     accessControl,
                     query);
@@ -17,6 +17,7 @@ import com.facebook.airlift.concurrent.SetThreadName;
 import com.facebook.airlift.log.Logger;
 import com.facebook.airlift.stats.CounterStat;
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.execution.buffer.LazyOutputBuffer;
@@ -45,6 +46,7 @@ import org.joda.time.DateTime;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -76,6 +78,7 @@ public class SqlTask
 
     private final SqlTaskExecutionFactory sqlTaskExecutionFactory;
     private final TaskExchangeClientManager taskExchangeClientManager;
+    private final TaskDynamicFilters dynamicFilters = new TaskDynamicFilters();
 
     private final AtomicLong lastHeartbeat = new AtomicLong(System.currentTimeMillis());
     private final AtomicLong nextTaskInfoVersion = new AtomicLong(TaskStatus.STARTING_VERSION);
@@ -435,7 +438,8 @@ public class SqlTask
                             taskExchangeClientManager,
                             fragment.get(),
                             sources,
-                            tableWriteInfo.get());
+                            tableWriteInfo.get(),
+                            dynamicFilters);
                     taskHolderReference.compareAndSet(taskHolder, new TaskHolder(taskExecution));
                     needsPlan.set(false);
                 }
@@ -456,6 +460,24 @@ public class SqlTask
         return getTaskInfo();
     }
 
+    public DynamicFilterSummary getDynamicFilterSummary()
+    {
+        return dynamicFilters.getBuildSummary();
+    }
+
+    public ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(long callersCurrentVersion)
+    {
+        if (taskStateMachine.getState().isDone()) {
+            return immediateFuture(dynamicFilters.getBuildSummary());
+        }
+        return dynamicFilters.getBuildSummary(callersCurrentVersion);
+    }
+
+    public void addRemoteDynamicFilters(Map<String, Domain> domains)
+    {
+        dynamicFilters.addRemoteDomains(domains);
+    }
+
     public ListenableFuture<BufferResult> getTaskResults(OutputBufferId bufferId, long startingSequenceId, long maxSizeInBytes)
     {
         requireNonNull(bufferId, "bufferId is null");
@@ -85,7 +85,8 @@ public class SqlTaskExecutionFactory
             TaskExchangeClientManager taskExchangeClientManager,
             PlanFragment fragment,
             List<TaskSource> sources,
-            TableWriteInfo tableWriteInfo)
+            TableWriteInfo tableWriteInfo,
+            TaskDynamicFilters dynamicFilters)
     {
         TaskContext taskContext = queryContext.addTaskContext(
                 taskStateMachine,
@@ -96,7 +97,8 @@ public class SqlTaskExecutionFactory
                 cpuTimerEnabled,
                 perOperatorAllocationTrackingEnabled,
                 allocationTrackingEnabled,
-                legacyLifespanCompletionCondition);
+                legacyLifespanCompletionCondition,
+                dynamicFilters);
 
         LocalExecutionPlan localExecutionPlan;
         try (SetThreadName ignored = new SetThreadName("Task-%s", taskStateMachine.getTaskId())) {
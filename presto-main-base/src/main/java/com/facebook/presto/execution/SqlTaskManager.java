@@ -23,6 +23,7 @@ import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.Session;
 import com.facebook.presto.common.block.BlockEncodingSerde;
+import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.event.SplitMonitor;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.buffer.BufferResult;
@@ -389,6 +390,31 @@ public class SqlTaskManager
         return sqlTask.getTaskStatus(currentState);
     }
 
+    @Override
+    public DynamicFilterSummary getDynamicFilterSummary(TaskId taskId)
+    {
+        requireNonNull(taskId, "taskId is null");
+
+        return tasks.getUnchecked(taskId).getDynamicFilterSummary();
+    }
+
+    @Override
+    public ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(TaskId taskId, long callersCurrentVersion)
+    {
+        requireNonNull(taskId, "taskId is null");
+
+        return tasks.getUnchecked(taskId).getDynamicFilterSummary(callersCurrentVersion);
+    }
+
+    @Override
+    public void addRemoteDynamicFilters(TaskId taskId, Map<String, Domain> domains)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(domains, "domains is null");
+
+        tasks.getUnchecked(taskId).addRemoteDynamicFilters(domains);
+    }
+
     @Override
     public TaskInfo updateTask(
             Session session,
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.common.predicate.Domain;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Dynamic filters exchanged between a task and the coordinator.
+ * <p>
+ * Join build sides of the task report the domains of dynamic filters that are consumed by table scans
+ * in other stages. The coordinator fetches them, merges them across all tasks of the stage, and sends
+ * the merged domains to the tasks scanning the probe-side tables.
+ */
+@ThreadSafe
+public class TaskDynamicFilters
+{
+    public static final long INITIAL_VERSION = 0;
+
+    @GuardedBy("this")
+    private final Map<String, Domain> buildDomains = new HashMap<>();
+    @GuardedBy("this")
+    private long version = INITIAL_VERSION;
+    @GuardedBy("this")
+    private SettableFuture<?> buildDomainsChanged = SettableFuture.create();
+
+    private volatile Map<String, Domain> remoteDomains = ImmutableMap.of();
+
+    /**
+     * Adds the domains collected by the build side of a join, keyed by dynamic filter ID.
+     */
+    public void addBuildDomains(Map<String, Domain> domains)
+    {
+        requireNonNull(domains, "domains is null");
+        if (domains.isEmpty()) {
+            return;
+        }
+
+        SettableFuture<?> changed;
+        synchronized (this) {
+            domains.forEach((filterId, domain) -> buildDomains.merge(filterId, domain, Domain::union));
+            version++;
+            changed = buildDomainsChanged;
+            buildDomainsChanged = SettableFuture.create();
+        }
+        // notify outside of the lock
+        changed.set(null);
+    }
+
+    public synchronized DynamicFilterSummary getBuildSummary()
+    {
+        return new DynamicFilterSummary(version, buildDomains);
+    }
+
+    /**
+     * Returns a future with the build domains collected after {@code callersCurrentVersion}.
+     */
+    public synchronized ListenableFuture<DynamicFilterSummary> getBuildSummary(long callersCurrentVersion)
+    {
+        if (version > callersCurrentVersion) {
+            return immediateFuture(getBuildSummary());
+        }
+        return Futures.transform(nonCancellationPropagating(buildDomainsChanged), ignored -> getBuildSummary(), directExecutor());
+    }
+
+    /**
+     * Adds the merged domains of dynamic filters collected by the coordinator, keyed by dynamic filter ID.
+     */
+    public synchronized void addRemoteDomains(Map<String, Domain> domains)
+    {
+        requireNonNull(domains, "domains is null");
+        Map<String, Domain> merged = new HashMap<>(remoteDomains);
+        domains.forEach((filterId, domain) -> merged.merge(filterId, domain, Domain::intersect));
+        remoteDomains = ImmutableMap.copyOf(merged);
+    }
+
+    public Map<String, Domain> getRemoteDomains()
+    {
+        return remoteDomains;
+    }
+}
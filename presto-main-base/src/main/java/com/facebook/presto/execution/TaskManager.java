@@ -14,6 +14,7 @@
 package com.facebook.presto.execution;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.execution.buffer.OutputBufferInfo;
@@ -25,6 +26,7 @@ import com.facebook.presto.sql.planner.PlanFragment;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface TaskManager
@@ -77,6 +79,24 @@ public interface TaskManager
      */
     ListenableFuture<TaskStatus> getTaskStatus(TaskId taskId, TaskState currentState);
 
+    /**
+     * Gets the build-side domains of the dynamic filters collected by the task.
+     */
+    DynamicFilterSummary getDynamicFilterSummary(TaskId taskId);
+
+    /**
+     * Gets future build-side domains of the dynamic filters collected by the task
+     * after {@code callersCurrentVersion}. If the task is already in a final state,
+     * the domains are returned immediately.
+     */
+    ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(TaskId taskId, long callersCurrentVersion);
+
+    /**
+     * Adds the domains of dynamic filters collected by the coordinator from other stages,
+     * to be applied to the table scans of the task.
+     */
+    void addRemoteDynamicFilters(TaskId taskId, Map<String, Domain> domains);
+
     void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments);
 
     /**
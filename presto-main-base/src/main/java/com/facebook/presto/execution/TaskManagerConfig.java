@@ -83,8 +83,10 @@ public class TaskManagerConfig
 
     private int taskNotificationThreads = 5;
     private int taskYieldThreads = 3;
+    private int sortThreads = Runtime.getRuntime().availableProcessors();
 
     private BigDecimal levelTimeMultiplier = new BigDecimal(2.0);
+    private boolean workStealingSplitQueueEnabled;
 
     private boolean legacyLifespanCompletionCondition;
     private TaskPriorityTracking taskPriorityTracking = TaskPriorityTracking.TASK_FAIR;
@@ -299,6 +301,19 @@ public class TaskManagerConfig
         return this;
     }
 
+    public boolean isWorkStealingSplitQueueEnabled()
+    {
+        return workStealingSplitQueueEnabled;
+    }
+
+    @Config("task.work-stealing-split-queue-enabled")
+    @ConfigDescription("Queue waiting splits in per runner thread deques and let idle runner threads steal from each other instead of sharing a single locked queue")
+    public TaskManagerConfig setWorkStealingSplitQueueEnabled(boolean workStealingSplitQueueEnabled)
+    {
+        this.workStealingSplitQueueEnabled = workStealingSplitQueueEnabled;
+        return this;
+    }
+
     @Min(1)
     public int getMaxWorkerThreads()
     {
@@ -566,6 +581,20 @@ public class TaskManagerConfig
         return this;
     }
 
+    @Min(1)
+    public int getSortThreads()
+    {
+        return sortThreads;
+    }
+
+    @Config("task.sort-threads")
+    @ConfigDescription("Number of threads used for sorting the rows of order by in parallel")
+    public TaskManagerConfig setSortThreads(int sortThreads)
+    {
+        this.sortThreads = sortThreads;
+        return this;
+    }
+
     @Deprecated
     public boolean isLegacyLifespanCompletionCondition()
     {
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.spi.page.PageCompressor;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import io.airlift.compress.Compressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+import jakarta.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_CPU_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_LZ4_PAGES;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_SAVED_BYTES;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_ZSTD_PAGES;
+import static com.facebook.presto.common.RuntimeUnit.BYTE;
+import static com.facebook.presto.common.RuntimeUnit.NANO;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compressor for exchanges with adaptive compression enabled.
+ * <p>
+ * Every page is sent with the cheapest of LZ4, ZSTD or no compression, where the cost of a codec
+ * is the CPU time it takes to compress a byte plus the time it takes to send its compressed size.
+ * Both the CPU time per byte and the compression ratio are moving averages measured on previous pages.
+ * The time to send a byte grows with the utilization of the output buffer, from {@link #MINIMUM_NETWORK_NANOS_PER_BYTE}
+ * when the buffer is empty and the network keeps up, to {@link #NETWORK_NANOS_PER_BYTE} when the buffer is full and the
+ * exchange is bound by the network. Sending is never free, so codecs faster than the link still pay off on an idle exchange.
+ * To keep the measurements current, the codecs are tried in turn every {@link #SAMPLE_INTERVAL} pages whatever they cost,
+ * so incompressible data is only compressed for those samples.
+ * <p>
+ * The codec is recorded in the first byte of the compressed data, see {@link AdaptivePageDecompressor}.
+ * This class is not thread safe, like the {@link com.facebook.presto.spi.page.PagesSerde} using it.
+ */
+public class AdaptivePageCompressor
+        implements PageCompressor
+{
+    // must match the ratio above which PagesSerde discards the compressed data
+    static final double MINIMUM_COMPRESSION_RATIO = 0.9;
+    // estimated time to send a byte when the output buffer is full, about 100MB/s per exchange client
+    static final double NETWORK_NANOS_PER_BYTE = 10;
+    // estimated time to send a byte when the output buffer is empty, about 1GB/s
+    static final double MINIMUM_NETWORK_NANOS_PER_BYTE = 1;
+    static final int SAMPLE_INTERVAL = 16;
+    // weight of the latest page in the moving averages
+    private static final double SMOOTHING = 0.25;
+
+    static final byte STORED_CODEC = 0;
+    static final byte LZ4_CODEC = 1;
+    static final byte ZSTD_CODEC = 2;
+
+    private final Codec lz4 = new Codec(LZ4_CODEC, new Lz4Compressor(), ADAPTIVE_COMPRESSION_LZ4_PAGES);
+    private final Codec zstd = new Codec(ZSTD_CODEC, new ZstdCompressor(), ADAPTIVE_COMPRESSION_ZSTD_PAGES);
+    private final List<Codec> codecs = ImmutableList.of(lz4, zstd);
+    private final DoubleSupplier outputBufferUtilization;
+    private final RuntimeStats runtimeStats;
+    private final Ticker ticker;
+
+    private int pagesUntilSample = SAMPLE_INTERVAL;
+    private int nextSampledCodec;
+
+    public AdaptivePageCompressor(DoubleSupplier outputBufferUtilization, RuntimeStats runtimeStats)
+    {
+        this(outputBufferUtilization, runtimeStats, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    AdaptivePageCompressor(DoubleSupplier outputBufferUtilization, RuntimeStats runtimeStats, Ticker ticker)
+    {
+        this.outputBufferUtilization = requireNonNull(outputBufferUtilization, "outputBufferUtilization is null");
+        this.runtimeStats = requireNonNull(runtimeStats, "runtimeStats is null");
+        this.ticker = requireNonNull(ticker, "ticker is null");
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedSize)
+    {
+        return 1 + max(uncompressedSize, max(lz4.compressor.maxCompressedLength(uncompressedSize), zstd.compressor.maxCompressedLength(uncompressedSize)));
+    }
+
+    @Override
+    public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+    {
+        Codec codec = selectCodec();
+        if (codec == null) {
+            runtimeStats.addMetricValue(ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES, NONE, 1);
+            // not smaller than the input, so the page is sent uncompressed
+            return inputLength;
+        }
+
+        long start = ticker.read();
+        output[outputOffset] = codec.id;
+        int compressedSize = 1 + codec.compressor.compress(input, inputOffset, inputLength, output, outputOffset + 1, maxOutputLength - 1);
+        recordCompression(codec, inputLength, compressedSize, ticker.read() - start);
+        return compressedSize;
+    }
+
+    @Override
+    public void compress(ByteBuffer input, ByteBuffer output)
+    {
+        Codec codec = selectCodec();
+        if (codec == null) {
+            // callers of this variant keep whatever is written, so the page is stored as is
+            runtimeStats.addMetricValue(ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES, NONE, 1);
+            output.put(STORED_CODEC);
+            output.put(input);
+            return;
+        }
+
+        int inputLength = input.remaining();
+        int outputStart = output.position();
+        long start = ticker.read();
+        output.put(codec.id);
+        codec.compressor.compress(input, output);
+        recordCompression(codec, inputLength, output.position() - outputStart, ticker.read() - start);
+    }
+
+    /**
+     * @return the codec with the lowest estimated cost for the next page, or null if the page is cheapest to send uncompressed
+     */
+    @Nullable
+    private Codec selectCodec()
+    {
+        for (Codec codec : codecs) {
+            if (!codec.isMeasured()) {
+                return codec;
+            }
+        }
+
+        pagesUntilSample--;
+        if (pagesUntilSample <= 0) {
+            pagesUntilSample = SAMPLE_INTERVAL;
+            Codec sampled = codecs.get(nextSampledCodec);
+            nextSampledCodec = (nextSampledCodec + 1) % codecs.size();
+            return sampled;
+        }
+
+        double networkNanosPerByte = max(MINIMUM_NETWORK_NANOS_PER_BYTE, NETWORK_NANOS_PER_BYTE * outputBufferUtilization.getAsDouble());
+        Codec selected = null;
+        double lowestCost = networkNanosPerByte;
+        for (Codec codec : codecs) {
+            double cost = codec.getCost(networkNanosPerByte);
+            if (cost < lowestCost) {
+                lowestCost = cost;
+                selected = codec;
+            }
+        }
+        return selected;
+    }
+
+    private void recordCompression(Codec codec, int inputLength, int compressedSize, long nanos)
+    {
+        codec.record(inputLength, compressedSize, nanos);
+        runtimeStats.addMetricValue(ADAPTIVE_COMPRESSION_CPU_TIME_NANOS, NANO, nanos);
+        if (compressedSize > inputLength * MINIMUM_COMPRESSION_RATIO) {
+            runtimeStats.addMetricValue(ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES, NONE, 1);
+            return;
+        }
+        runtimeStats.addMetricValue(codec.pagesMetric, NONE, 1);
+        runtimeStats.addMetricValue(ADAPTIVE_COMPRESSION_SAVED_BYTES, BYTE, inputLength - compressedSize);
+    }
+
+    private static class Codec
+    {
+        private final byte id;
+        private final Compressor compressor;
+        private final String pagesMetric;
+
+        private double nanosPerByte = -1;
+        private double compressionRatio = -1;
+
+        private Codec(byte id, Compressor compressor, String pagesMetric)
+        {
+            this.id = id;
+            this.compressor = requireNonNull(compressor, "compressor is null");
+            this.pagesMetric = requireNonNull(pagesMetric, "pagesMetric is null");
+        }
+
+        private boolean isMeasured()
+        {
+            return compressionRatio >= 0;
+        }
+
+        private double getCost(double networkNanosPerByte)
+        {
+            return nanosPerByte + compressionRatio * networkNanosPerByte;
+        }
+
+        private void record(int inputLength, int compressedSize, long nanos)
+        {
+            if (inputLength == 0) {
+                return;
+            }
+            double pageNanosPerByte = nanos / (double) inputLength;
+            double pageCompressionRatio = compressedSize / (double) inputLength;
+            if (!isMeasured()) {
+                nanosPerByte = pageNanosPerByte;
+                compressionRatio = pageCompressionRatio;
+                return;
+            }
+            nanosPerByte += SMOOTHING * (pageNanosPerByte - nanosPerByte);
+            compressionRatio += SMOOTHING * (pageCompressionRatio - compressionRatio);
+        }
+    }
+}
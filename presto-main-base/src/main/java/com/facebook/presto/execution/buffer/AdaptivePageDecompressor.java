@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.spi.page.PageDecompressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+
+import java.nio.ByteBuffer;
+
+import static com.facebook.presto.execution.buffer.AdaptivePageCompressor.LZ4_CODEC;
+import static com.facebook.presto.execution.buffer.AdaptivePageCompressor.STORED_CODEC;
+import static com.facebook.presto.execution.buffer.AdaptivePageCompressor.ZSTD_CODEC;
+import static java.lang.String.format;
+
+/**
+ * Decompresses data written by {@link AdaptivePageCompressor}, using the codec recorded in its first byte.
+ */
+public class AdaptivePageDecompressor
+        implements PageDecompressor
+{
+    private final Decompressor lz4Decompressor = new Lz4Decompressor();
+    private final Decompressor zstdDecompressor = new ZstdDecompressor();
+
+    @Override
+    public int decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+    {
+        byte codec = input[inputOffset];
+        if (codec == STORED_CODEC) {
+            System.arraycopy(input, inputOffset + 1, output, outputOffset, inputLength - 1);
+            return inputLength - 1;
+        }
+        return getDecompressor(codec).decompress(input, inputOffset + 1, inputLength - 1, output, outputOffset, maxOutputLength);
+    }
+
+    @Override
+    public void decompress(ByteBuffer input, ByteBuffer output)
+    {
+        byte codec = input.get();
+        if (codec == STORED_CODEC) {
+            output.put(input);
+            return;
+        }
+        getDecompressor(codec).decompress(input, output);
+    }
+
+    private Decompressor getDecompressor(byte codec)
+    {
+        switch (codec) {
+            case LZ4_CODEC:
+                return lz4Decompressor;
+            case ZSTD_CODEC:
+                return zstdDecompressor;
+            default:
+                throw new IllegalArgumentException(format("Unknown adaptive compression codec: %s", codec));
+        }
+    }
+}
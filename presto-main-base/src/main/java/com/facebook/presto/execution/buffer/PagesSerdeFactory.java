@@ -14,6 +14,7 @@
 package com.facebook.presto.execution.buffer;
 
 import com.facebook.presto.CompressionCodec;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.block.BlockEncodingSerde;
 import com.facebook.presto.spi.page.PageCompressor;
 import com.facebook.presto.spi.page.PageDecompressor;
@@ -30,6 +31,7 @@ import io.airlift.compress.zstd.ZstdDecompressor;
 
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.function.DoubleSupplier;
 
 import static java.util.Objects.requireNonNull;
 
@@ -38,6 +40,7 @@ public class PagesSerdeFactory
     private final BlockEncodingSerde blockEncodingSerde;
     private final CompressionCodec compressionCodec;
     private final boolean checksumEnabled;
+    private final boolean adaptiveCompressionEnabled;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, CompressionCodec compressionCodec)
     {
@@ -45,29 +48,51 @@ public class PagesSerdeFactory
     }
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, CompressionCodec compressionCodec, boolean checksumEnabled)
+    {
+        this(blockEncodingSerde, compressionCodec, checksumEnabled, false);
+    }
+
+    /**
+     * With {@code adaptiveCompressionEnabled}, pages are compressed by {@link AdaptivePageCompressor} and
+     * {@code compressionCodec} is ignored. This only applies to exchanges, whose serializer sees the output buffer.
+     */
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, CompressionCodec compressionCodec, boolean checksumEnabled, boolean adaptiveCompressionEnabled)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
         this.checksumEnabled = checksumEnabled;
+        this.adaptiveCompressionEnabled = adaptiveCompressionEnabled;
     }
 
     public PagesSerde createPagesSerde()
     {
-        return createPagesSerdeInternal(Optional.empty());
+        return createPagesSerdeInternal(Optional.empty(), () -> 0, new RuntimeStats());
+    }
+
+    /**
+     * Creates a serde for pages sent to an output buffer. With adaptive compression, the codec choice
+     * follows the utilization of the buffer and is reported in the runtime stats.
+     */
+    public PagesSerde createPagesSerdeForOutputBuffer(DoubleSupplier outputBufferUtilization, RuntimeStats runtimeStats)
+    {
+        return createPagesSerdeInternal(Optional.empty(), outputBufferUtilization, runtimeStats);
     }
 
     public PagesSerde createPagesSerdeForSpill(Optional<SpillCipher> spillCipher)
     {
-        return createPagesSerdeInternal(spillCipher);
+        return createPagesSerdeInternal(spillCipher, () -> 0, new RuntimeStats());
     }
 
-    private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher)
+    private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher, DoubleSupplier outputBufferUtilization, RuntimeStats runtimeStats)
     {
-        return new PagesSerde(blockEncodingSerde, getPageCompressor(), getPageDecompressor(), spillCipher, checksumEnabled);
+        return new PagesSerde(blockEncodingSerde, getPageCompressor(outputBufferUtilization, runtimeStats), getPageDecompressor(), spillCipher, checksumEnabled);
     }
 
-    private Optional<PageCompressor> getPageCompressor()
+    private Optional<PageCompressor> getPageCompressor(DoubleSupplier outputBufferUtilization, RuntimeStats runtimeStats)
     {
+        if (adaptiveCompressionEnabled) {
+            return Optional.of(new AdaptivePageCompressor(outputBufferUtilization, runtimeStats));
+        }
         switch (compressionCodec) {
             case GZIP:
                 return Optional.of(new AirliftCompressorAdapter(new GzipCompressor()));
@@ -89,6 +114,9 @@ public class PagesSerdeFactory
 
     private Optional<PageDecompressor> getPageDecompressor()
     {
+        if (adaptiveCompressionEnabled) {
+            return Optional.of(new AdaptivePageDecompressor());
+        }
         switch (compressionCodec) {
             case GZIP:
                 return Optional.of(new AirliftDecompressorAdapter(new GzipDecompressor()));
@@ -27,6 +27,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -36,6 +38,16 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+/**
+ * Queue of splits waiting to be run by the {@link TaskExecutor} runner threads.
+ * <p>
+ * By default all waiting splits are kept in one priority queue per level behind a single lock.
+ * When work stealing is enabled, every runner thread instead owns a lock-free deque per level:
+ * splits re-queued by a runner thread go to its own deques, and a runner thread that finds its
+ * own deque for the selected level empty steals from the other runner threads. The level
+ * selection and the level time accounting are the same in both modes; only the ordering within
+ * a level is approximate in work stealing mode.
+ */
 @ThreadSafe
 public class MultilevelSplitQueue
 {
@@ -45,6 +57,15 @@ public class MultilevelSplitQueue
     @GuardedBy("lock")
     private final List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits;
 
+    private final boolean workStealingEnabled;
+    // indexed by [runner thread shard][level]; only used in work stealing mode
+    private final List<List<ConcurrentLinkedDeque<PrioritizedSplitRunner>>> shardWaitingSplits;
+    private final AtomicInteger[] levelSizes = new AtomicInteger[LEVEL_THRESHOLD_SECONDS.length];
+    // splits offered by non runner threads are spread round robin, independent of the shard assignment of runner threads
+    private final AtomicInteger nextOfferShard = new AtomicInteger();
+    private final AtomicInteger nextRunnerShard = new AtomicInteger();
+    private final ThreadLocal<Integer> runnerShard = new ThreadLocal<>();
+
     private final AtomicLong[] levelScheduledTime = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
 
     private final AtomicLong[] levelMinPriority;
@@ -53,16 +74,38 @@ public class MultilevelSplitQueue
     private final ReentrantLock lock = new ReentrantLock();
     private final Condition notEmpty = lock.newCondition();
 
+    // idle runner threads park here in work stealing mode
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition idleNotEmpty = idleLock.newCondition();
+    private final AtomicInteger idleRunners = new AtomicInteger();
+
+    // lock acquisitions that had to wait; the lock is not used in work stealing mode
+    private final CounterStat lockContention = new CounterStat();
+    // work stealing mode polls that found the selected level empty, because an offer was in flight or another runner took the split
+    private final CounterStat pollRetries = new CounterStat();
+    private final CounterStat idleWaits = new CounterStat();
+    private final CounterStat localPolls = new CounterStat();
+    private final CounterStat stolenSplits = new CounterStat();
+
     private final double levelTimeMultiplier;
 
     @Inject
     public MultilevelSplitQueue(TaskManagerConfig taskManagerConfig)
     {
-        this(taskManagerConfig.getLevelTimeMultiplier().doubleValue());
+        this(
+                taskManagerConfig.getLevelTimeMultiplier().doubleValue(),
+                taskManagerConfig.isWorkStealingSplitQueueEnabled(),
+                taskManagerConfig.getMaxWorkerThreads());
     }
 
     public MultilevelSplitQueue(double levelTimeMultiplier)
     {
+        this(levelTimeMultiplier, false, 1);
+    }
+
+    public MultilevelSplitQueue(double levelTimeMultiplier, boolean workStealingEnabled, int runnerThreads)
+    {
+        checkArgument(runnerThreads > 0, "runnerThreads must be at least 1");
         this.levelMinPriority = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
         this.levelWaitingSplits = new ArrayList<>(LEVEL_THRESHOLD_SECONDS.length);
         ImmutableList.Builder<CounterStat> counters = ImmutableList.builder();
@@ -70,12 +113,26 @@ public class MultilevelSplitQueue
         for (int i = 0; i < LEVEL_THRESHOLD_SECONDS.length; i++) {
             levelScheduledTime[i] = new AtomicLong();
             levelMinPriority[i] = new AtomicLong(-1);
+            levelSizes[i] = new AtomicInteger();
             levelWaitingSplits.add(new PriorityQueue<>());
             counters.add(new CounterStat());
         }
 
         this.selectedLevelCounters = counters.build();
 
+        this.workStealingEnabled = workStealingEnabled;
+        ImmutableList.Builder<List<ConcurrentLinkedDeque<PrioritizedSplitRunner>>> shards = ImmutableList.builder();
+        if (workStealingEnabled) {
+            for (int shard = 0; shard < runnerThreads; shard++) {
+                ImmutableList.Builder<ConcurrentLinkedDeque<PrioritizedSplitRunner>> levels = ImmutableList.builder();
+                for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                    levels.add(new ConcurrentLinkedDeque<>());
+                }
+                shards.add(levels.build());
+            }
+        }
+        this.shardWaitingSplits = shards.build();
+
         this.levelTimeMultiplier = levelTimeMultiplier;
     }
 
@@ -100,17 +157,15 @@ public class MultilevelSplitQueue
 
         split.setReady();
         int level = split.getPriority().getLevel();
-        lock.lock();
+        if (workStealingEnabled) {
+            offerToShard(split, level);
+            return;
+        }
+
+        lockTrackingContention();
         try {
             if (levelWaitingSplits.get(level).isEmpty()) {
-                // Accesses to levelScheduledTime are not synchronized, so we have a data race
-                // here - our level time math will be off. However, the staleness is bounded by
-                // the fact that only running splits that complete during this computation
-                // can update the level time. Therefore, this is benign.
-                long level0Time = getLevel0TargetTime();
-                long levelExpectedTime = (long) (level0Time / Math.pow(levelTimeMultiplier, level));
-                long delta = levelExpectedTime - levelScheduledTime[level].get();
-                levelScheduledTime[level].addAndGet(delta);
+                adjustEmptyLevelScheduledTime(level);
             }
 
             levelWaitingSplits.get(level).offer(split);
@@ -121,14 +176,76 @@ public class MultilevelSplitQueue
         }
     }
 
+    private void offerToShard(PrioritizedSplitRunner split, int level)
+    {
+        // the size is published before the split so that a poller never sees the split without
+        // the level being non-empty
+        if (levelSizes[level].getAndIncrement() == 0) {
+            adjustEmptyLevelScheduledTime(level);
+        }
+
+        Integer shard = runnerShard.get();
+        if (shard == null) {
+            shard = Math.floorMod(nextOfferShard.getAndIncrement(), shardWaitingSplits.size());
+        }
+
+        // Approximate the per level priority queue: splits that are behind the most recently
+        // selected split of the level go to the head of the deque, all others to the tail.
+        ConcurrentLinkedDeque<PrioritizedSplitRunner> deque = shardWaitingSplits.get(shard).get(level);
+        if (split.getPriority().getLevelPriority() <= levelMinPriority[level].get()) {
+            deque.offerFirst(split);
+        }
+        else {
+            deque.offerLast(split);
+        }
+
+        if (idleRunners.get() > 0) {
+            idleLock.lock();
+            try {
+                idleNotEmpty.signal();
+            }
+            finally {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    private void adjustEmptyLevelScheduledTime(int level)
+    {
+        // Accesses to levelScheduledTime are not synchronized, so we have a data race
+        // here - our level time math will be off. However, the staleness is bounded by
+        // the fact that only running splits that complete during this computation
+        // can update the level time. Therefore, this is benign.
+        long level0Time = getLevel0TargetTime();
+        long levelExpectedTime = (long) (level0Time / Math.pow(levelTimeMultiplier, level));
+        long delta = levelExpectedTime - levelScheduledTime[level].get();
+        levelScheduledTime[level].addAndGet(delta);
+    }
+
+    private void lockTrackingContention()
+    {
+        if (!lock.tryLock()) {
+            lockContention.update(1);
+            lock.lock();
+        }
+    }
+
     public PrioritizedSplitRunner take()
             throws InterruptedException
     {
+        if (workStealingEnabled) {
+            return takeFromShards();
+        }
+
         while (true) {
-            lock.lockInterruptibly();
+            if (!lock.tryLock()) {
+                lockContention.update(1);
+                lock.lockInterruptibly();
+            }
             try {
                 PrioritizedSplitRunner result;
                 while ((result = pollSplit()) == null) {
+                    idleWaits.update(1);
                     notEmpty.await();
                 }
 
@@ -137,10 +254,7 @@ public class MultilevelSplitQueue
                     continue;
                 }
 
-                int selectedLevel = result.getPriority().getLevel();
-                levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
-                selectedLevelCounters.get(selectedLevel).update(1);
-
+                recordSelected(result);
                 return result;
             }
             finally {
@@ -149,6 +263,50 @@ public class MultilevelSplitQueue
         }
     }
 
+    private PrioritizedSplitRunner takeFromShards()
+            throws InterruptedException
+    {
+        Integer shard = runnerShard.get();
+        if (shard == null) {
+            shard = Math.floorMod(nextRunnerShard.getAndIncrement(), shardWaitingSplits.size());
+            runnerShard.set(shard);
+        }
+
+        while (true) {
+            PrioritizedSplitRunner result = pollShards(shard);
+            if (result == null) {
+                idleLock.lockInterruptibly();
+                idleRunners.incrementAndGet();
+                try {
+                    // re-check after registering as idle, as offerToShard only signals when it sees idle runners
+                    while ((result = pollShards(shard)) == null) {
+                        idleWaits.update(1);
+                        idleNotEmpty.await();
+                    }
+                }
+                finally {
+                    idleRunners.decrementAndGet();
+                    idleLock.unlock();
+                }
+            }
+
+            if (result.updateLevelPriority()) {
+                offer(result);
+                continue;
+            }
+
+            recordSelected(result);
+            return result;
+        }
+    }
+
+    private void recordSelected(PrioritizedSplitRunner result)
+    {
+        int selectedLevel = result.getPriority().getLevel();
+        levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
+        selectedLevelCounters.get(selectedLevel).update(1);
+    }
+
     /**
      * Presto attempts to give each level a target amount of scheduled time, which is configurable
      * using levelTimeMultiplier.
@@ -159,12 +317,78 @@ public class MultilevelSplitQueue
      */
     @GuardedBy("lock")
     private PrioritizedSplitRunner pollSplit()
+    {
+        int selectedLevel = selectLevel();
+        if (selectedLevel == -1) {
+            return null;
+        }
+
+        PrioritizedSplitRunner result = levelWaitingSplits.get(selectedLevel).poll();
+        checkState(result != null, "pollSplit cannot return null");
+
+        return result;
+    }
+
+    /**
+     * Polls the level selected by {@link #selectLevel()}, preferring the deque of the given runner
+     * thread and stealing from the other runner threads otherwise. Returns null if no split is waiting.
+     */
+    private PrioritizedSplitRunner pollShards(int shard)
+    {
+        int selectedLevel = selectLevel();
+        if (selectedLevel == -1) {
+            return null;
+        }
+
+        PrioritizedSplitRunner result = pollLevel(shard, selectedLevel);
+        if (result != null) {
+            return result;
+        }
+
+        // The level size was published by an in-flight offer whose split is not in a deque yet, or another runner
+        // took the last split. Rather than spinning until the sizes settle, try the other levels. If they are empty
+        // too, the caller parks as an idle runner, and the in-flight offer signals it once its split is queued.
+        pollRetries.update(1);
+        for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+            if (level != selectedLevel && levelSizes[level].get() > 0) {
+                result = pollLevel(shard, level);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    private PrioritizedSplitRunner pollLevel(int shard, int level)
+    {
+        PrioritizedSplitRunner result = shardWaitingSplits.get(shard).get(level).pollFirst();
+        if (result != null) {
+            localPolls.update(1);
+        }
+        else {
+            for (int i = 1; i < shardWaitingSplits.size() && result == null; i++) {
+                int victim = (shard + i) % shardWaitingSplits.size();
+                result = shardWaitingSplits.get(victim).get(level).pollFirst();
+            }
+            if (result != null) {
+                stolenSplits.update(1);
+            }
+        }
+
+        if (result != null) {
+            levelSizes[level].decrementAndGet();
+        }
+        return result;
+    }
+
+    private int selectLevel()
     {
         long targetScheduledTime = getLevel0TargetTime();
         double worstRatio = 1;
         int selectedLevel = -1;
         for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
-            if (!levelWaitingSplits.get(level).isEmpty()) {
+            if (isLevelWaiting(level)) {
                 long levelTime = levelScheduledTime[level].get();
                 double ratio = levelTime == 0 ? 0 : targetScheduledTime / (1.0 * levelTime);
                 if (selectedLevel == -1 || ratio > worstRatio) {
@@ -176,17 +400,17 @@ public class MultilevelSplitQueue
             targetScheduledTime /= levelTimeMultiplier;
         }
 
-        if (selectedLevel == -1) {
-            return null;
-        }
-
-        PrioritizedSplitRunner result = levelWaitingSplits.get(selectedLevel).poll();
-        checkState(result != null, "pollSplit cannot return null");
+        return selectedLevel;
+    }
 
-        return result;
+    private boolean isLevelWaiting(int level)
+    {
+        if (workStealingEnabled) {
+            return levelSizes[level].get() > 0;
+        }
+        return !levelWaitingSplits.get(level).isEmpty();
     }
 
-    @GuardedBy("lock")
     private long getLevel0TargetTime()
     {
         long level0TargetTime = levelScheduledTime[0].get();
@@ -246,7 +470,12 @@ public class MultilevelSplitQueue
     public void remove(PrioritizedSplitRunner split)
     {
         checkArgument(split != null, "split is null");
-        lock.lock();
+        if (workStealingEnabled) {
+            removeFromShards(split);
+            return;
+        }
+
+        lockTrackingContention();
         try {
             for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
                 level.remove(split);
@@ -259,7 +488,14 @@ public class MultilevelSplitQueue
 
     public void removeAll(Collection<PrioritizedSplitRunner> splits)
     {
-        lock.lock();
+        if (workStealingEnabled) {
+            for (PrioritizedSplitRunner split : splits) {
+                removeFromShards(split);
+            }
+            return;
+        }
+
+        lockTrackingContention();
         try {
             for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
                 level.removeAll(splits);
@@ -270,6 +506,18 @@ public class MultilevelSplitQueue
         }
     }
 
+    private void removeFromShards(PrioritizedSplitRunner split)
+    {
+        for (List<ConcurrentLinkedDeque<PrioritizedSplitRunner>> shard : shardWaitingSplits) {
+            for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                if (shard.get(level).remove(split)) {
+                    levelSizes[level].decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
     public long getLevelMinPriority(int level, long taskThreadUsageNanos)
     {
         levelMinPriority[level].compareAndSet(-1, taskThreadUsageNanos);
@@ -278,6 +526,14 @@ public class MultilevelSplitQueue
 
     public int size()
     {
+        if (workStealingEnabled) {
+            int total = 0;
+            for (AtomicInteger levelSize : levelSizes) {
+                total += levelSize.get();
+            }
+            return total;
+        }
+
         lock.lock();
         try {
             int total = 0;
@@ -373,4 +629,45 @@ public class MultilevelSplitQueue
     {
         return selectedLevelCounters.get(4);
     }
+
+    @Managed
+    public boolean isWorkStealingEnabled()
+    {
+        return workStealingEnabled;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getLockContention()
+    {
+        return lockContention;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getPollRetries()
+    {
+        return pollRetries;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getIdleWaits()
+    {
+        return idleWaits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getLocalPolls()
+    {
+        return localPolls;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStolenSplits()
+    {
+        return stolenSplits;
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.execution.DynamicFilterSummary;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Exchanges dynamic filters with remote tasks.
+ */
+public interface DynamicFilterClient
+{
+    /**
+     * Gets the build-side domains collected by the task once they change from {@code currentVersion},
+     * or the current domains if they do not change within a bounded wait.
+     */
+    ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(URI taskLocation, long currentVersion);
+
+    /**
+     * Sends domains of dynamic filters collected from other stages to the task.
+     */
+    ListenableFuture<?> addRemoteDynamicFilters(URI taskLocation, Map<String, Domain> domains);
+}
@@ -0,0 +1,451 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.execution.DynamicFilterSummary;
+import com.facebook.presto.execution.RemoteTask;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
+import com.facebook.presto.operator.ForScheduler;
+import com.facebook.presto.server.remotetask.Backoff;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.plan.AbstractJoinNode;
+import com.facebook.presto.spi.plan.FilterNode;
+import com.facebook.presto.spi.plan.PlanFragmentId;
+import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.PlannerUtils;
+import com.facebook.presto.sql.planner.SubPlan;
+import com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.MoreFutures.addTimeout;
+import static com.facebook.presto.execution.TaskDynamicFilters.INITIAL_VERSION;
+import static com.facebook.presto.expressions.DynamicFilters.extractDynamicFilters;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.collect.Maps.filterKeys;
+import static com.google.common.util.concurrent.Futures.addCallback;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Collects dynamic filters on the coordinator for joins whose probe-side table scans run in other stages
+ * (e.g. partitioned joins), where the build side cannot constrain the scans within the task.
+ * <p>
+ * The build-side domains are fetched from every task of the stage with the join, and merged once the
+ * stage is fully scheduled and all of its tasks have reported them. The merged domains are sent to the
+ * tasks of the stages scanning the probe-side tables and are made available to split enumeration.
+ */
+@ThreadSafe
+public class DynamicFilterService
+{
+    private static final Logger log = Logger.get(DynamicFilterService.class);
+    // a task whose dynamic filters cannot be fetched for this long is given up on, and its consumers only wait until their timeout
+    private static final Duration MAX_FETCH_FAILURE_DURATION = new Duration(30, SECONDS);
+
+    private final DynamicFilterClient client;
+    private final ScheduledExecutorService executor;
+    private final Ticker ticker;
+    private final Map<QueryId, QueryDynamicFilters> queries = new ConcurrentHashMap<>();
+
+    @Inject
+    public DynamicFilterService(DynamicFilterClient client, @ForScheduler ScheduledExecutorService executor)
+    {
+        this(client, executor, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    DynamicFilterService(DynamicFilterClient client, ScheduledExecutorService executor, Ticker ticker)
+    {
+        this.client = requireNonNull(client, "client is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        this.ticker = requireNonNull(ticker, "ticker is null");
+    }
+
+    /**
+     * Finds the dynamic filters of the plan which are consumed outside of the fragment with the join, and starts tracking them.
+     */
+    public void registerQuery(QueryId queryId, SubPlan plan)
+    {
+        Map<String, PlanFragmentId> producerFragments = new HashMap<>();
+        SetMultimap<PlanFragmentId, String> consumedFilters = HashMultimap.create();
+        for (PlanFragment fragment : plan.getAllFragments()) {
+            List<AbstractJoinNode> joins = PlanNodeSearcher.searchFrom(fragment.getRoot())
+                    .where(AbstractJoinNode.class::isInstance)
+                    .findAll();
+            for (AbstractJoinNode join : joins) {
+                join.getDynamicFilters().keySet().forEach(filterId -> producerFragments.put(filterId, fragment.getId()));
+            }
+            List<FilterNode> filters = PlanNodeSearcher.searchFrom(fragment.getRoot())
+                    .where(PlannerUtils::isFilterAboveTableScan)
+                    .findAll();
+            for (FilterNode filter : filters) {
+                extractDynamicFilters(filter.getPredicate()).getDynamicConjuncts()
+                        .forEach(placeholder -> consumedFilters.put(fragment.getId(), placeholder.getId()));
+            }
+        }
+
+        // Dynamic filters consumed within the fragment with the join are collected locally by the tasks
+        Set<String> localFilterIds = consumedFilters.entries().stream()
+                .filter(entry -> entry.getKey().equals(producerFragments.get(entry.getValue())))
+                .map(Map.Entry::getValue)
+                .collect(toImmutableSet());
+        ImmutableSetMultimap.Builder<PlanFragmentId, String> remoteConsumedFilters = ImmutableSetMultimap.builder();
+        consumedFilters.entries().stream()
+                .filter(entry -> producerFragments.containsKey(entry.getValue()) && !localFilterIds.contains(entry.getValue()))
+                .forEach(remoteConsumedFilters::put);
+        QueryDynamicFilters query = new QueryDynamicFilters(
+                ImmutableMap.copyOf(filterKeys(producerFragments, filterId -> consumedFilters.containsValue(filterId) && !localFilterIds.contains(filterId))),
+                remoteConsumedFilters.build());
+        if (!query.isEmpty()) {
+            queries.putIfAbsent(queryId, query);
+        }
+    }
+
+    public void removeQuery(QueryId queryId)
+    {
+        QueryDynamicFilters query = queries.remove(queryId);
+        if (query != null) {
+            query.remove();
+        }
+    }
+
+    /**
+     * Records the new tasks of the stage for the fragment. Build-side domains are fetched from the tasks of the
+     * fragments with joins, and the domains collected so far are sent to the tasks of the fragments consuming them.
+     */
+    public void addTasks(QueryId queryId, PlanFragmentId fragmentId, Collection<RemoteTask> tasks)
+    {
+        QueryDynamicFilters query = queries.get(queryId);
+        if (query == null || tasks.isEmpty()) {
+            return;
+        }
+        if (query.isProducer(fragmentId)) {
+            query.addProducerTasks(fragmentId, tasks);
+            for (RemoteTask task : tasks) {
+                fetchBuildDomains(query, fragmentId, task, INITIAL_VERSION, new Backoff(MAX_FETCH_FAILURE_DURATION, ticker));
+            }
+        }
+        Map<String, Domain> collectedDomains = query.addConsumerTasks(fragmentId, tasks);
+        if (!collectedDomains.isEmpty()) {
+            tasks.forEach(task -> sendDomains(task, collectedDomains));
+        }
+    }
+
+    /**
+     * Records that the stage for the fragment will not create more tasks.
+     */
+    public void noMoreTasks(QueryId queryId, PlanFragmentId fragmentId)
+    {
+        QueryDynamicFilters query = queries.get(queryId);
+        if (query != null && query.isProducer(fragmentId)) {
+            distribute(query, query.noMoreProducerTasks(fragmentId));
+        }
+    }
+
+    public boolean isDistributedDynamicFilter(QueryId queryId, String filterId)
+    {
+        QueryDynamicFilters query = queries.get(queryId);
+        return query != null && query.isCollected(filterId);
+    }
+
+    /**
+     * Returns a future which completes when all the dynamic filters are collected, or when the timeout expires.
+     */
+    public ListenableFuture<?> getCollectedFuture(QueryId queryId, Collection<DynamicFilterPlaceholder> placeholders, Duration timeout)
+    {
+        QueryDynamicFilters query = queries.get(queryId);
+        if (query == null) {
+            return immediateFuture(null);
+        }
+        List<ListenableFuture<?>> futures = placeholders.stream()
+                .map(DynamicFilterPlaceholder::getId)
+                .filter(query::isCollected)
+                .distinct()
+                .map(query::getCollectedFuture)
+                .collect(toImmutableList());
+        if (futures.isEmpty()) {
+            return immediateFuture(null);
+        }
+        ListenableFuture<List<Object>> collected = nonCancellationPropagating(allAsList(futures));
+        return addTimeout(collected, ImmutableList::of, timeout, executor);
+    }
+
+    /**
+     * Returns the merged domains of the dynamic filters collected so far, keyed by dynamic filter ID.
+     */
+    public Map<String, Domain> getCollectedDomains(QueryId queryId)
+    {
+        QueryDynamicFilters query = queries.get(queryId);
+        if (query == null) {
+            return ImmutableMap.of();
+        }
+        return query.getCollectedDomains();
+    }
+
+    private void fetchBuildDomains(QueryDynamicFilters query, PlanFragmentId fragmentId, RemoteTask task, long version, Backoff backoff)
+    {
+        if (query.isRemoved()) {
+            return;
+        }
+        backoff.startRequest();
+        ListenableFuture<DynamicFilterSummary> future = client.getDynamicFilterSummary(task.getTaskStatus().getSelf(), version);
+        addCallback(future, new FutureCallback<DynamicFilterSummary>()
+        {
+            @Override
+            public void onSuccess(@Nullable DynamicFilterSummary summary)
+            {
+                requireNonNull(summary, "summary is null");
+                backoff.success();
+                distribute(query, query.addBuildDomains(fragmentId, task.getTaskId(), summary.getDomains()));
+                if (query.isRemoved() || query.hasAllBuildDomains(fragmentId, task.getTaskId()) || task.getTaskStatus().getState().isDone()) {
+                    return;
+                }
+                fetchBuildDomains(query, fragmentId, task, summary.getVersion(), backoff);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable)
+            {
+                if (query.isRemoved() || task.getTaskStatus().getState().isDone()) {
+                    return;
+                }
+                if (backoff.failure()) {
+                    log.warn(throwable, "Giving up fetching dynamic filters from task %s after %s", task.getTaskId(), backoff.getFailureDuration());
+                    return;
+                }
+                log.debug(throwable, "Failed to fetch dynamic filters from task %s", task.getTaskId());
+                executor.schedule(() -> fetchBuildDomains(query, fragmentId, task, version, backoff), backoff.getBackoffDelayNanos(), NANOSECONDS);
+            }
+        }, directExecutor());
+    }
+
+    private void distribute(QueryDynamicFilters query, Map<String, Domain> newlyCollectedDomains)
+    {
+        if (newlyCollectedDomains.isEmpty()) {
+            return;
+        }
+        query.getConsumerTasks().asMap().forEach((fragmentId, tasks) -> {
+            Set<String> consumedFilterIds = query.getConsumedFilters(fragmentId);
+            Map<String, Domain> domains = ImmutableMap.copyOf(filterKeys(newlyCollectedDomains, consumedFilterIds::contains));
+            if (!domains.isEmpty()) {
+                tasks.forEach(task -> sendDomains(task, domains));
+            }
+        });
+        query.setCollected(newlyCollectedDomains.keySet());
+    }
+
+    private void sendDomains(RemoteTask task, Map<String, Domain> domains)
+    {
+        addCallback(client.addRemoteDynamicFilters(task.getTaskStatus().getSelf(), domains), new FutureCallback<Object>()
+        {
+            @Override
+            public void onSuccess(@Nullable Object result)
+            {
+            }
+
+            @Override
+            public void onFailure(Throwable throwable)
+            {
+                // the task only loses the benefit of the dynamic filters
+                log.debug(throwable, "Failed to send dynamic filters to task %s", task.getTaskId());
+            }
+        }, directExecutor());
+    }
+
+    @ThreadSafe
+    private static class QueryDynamicFilters
+    {
+        // Fragment with the join for each collected dynamic filter ID
+        private final Map<String, PlanFragmentId> producerFragments;
+        // Collected dynamic filter IDs consumed by the table scans of each fragment
+        private final SetMultimap<PlanFragmentId, String> consumedFilters;
+        private final Map<String, SettableFuture<?>> collectedFutures;
+
+        @GuardedBy("this")
+        private final SetMultimap<PlanFragmentId, TaskId> producerTasks = HashMultimap.create();
+        @GuardedBy("this")
+        private final Set<PlanFragmentId> noMoreProducerTasks = new HashSet<>();
+        @GuardedBy("this")
+        private final Map<String, Map<TaskId, Domain>> taskDomains = new HashMap<>();
+        @GuardedBy("this")
+        private final Map<String, Domain> collectedDomains = new HashMap<>();
+        @GuardedBy("this")
+        private final ListMultimap<PlanFragmentId, RemoteTask> consumerTasks = ArrayListMultimap.create();
+
+        private volatile boolean removed;
+
+        private QueryDynamicFilters(Map<String, PlanFragmentId> producerFragments, SetMultimap<PlanFragmentId, String> consumedFilters)
+        {
+            this.producerFragments = requireNonNull(producerFragments, "producerFragments is null");
+            this.consumedFilters = requireNonNull(consumedFilters, "consumedFilters is null");
+            this.collectedFutures = producerFragments.keySet().stream()
+                    .collect(toImmutableMap(filterId -> filterId, filterId -> SettableFuture.create()));
+        }
+
+        public boolean isEmpty()
+        {
+            return producerFragments.isEmpty();
+        }
+
+        public boolean isProducer(PlanFragmentId fragmentId)
+        {
+            return producerFragments.containsValue(fragmentId);
+        }
+
+        public boolean isCollected(String filterId)
+        {
+            return producerFragments.containsKey(filterId);
+        }
+
+        public Set<String> getConsumedFilters(PlanFragmentId fragmentId)
+        {
+            return consumedFilters.get(fragmentId);
+        }
+
+        public ListenableFuture<?> getCollectedFuture(String filterId)
+        {
+            return collectedFutures.get(filterId);
+        }
+
+        public boolean isRemoved()
+        {
+            return removed;
+        }
+
+        public synchronized void addProducerTasks(PlanFragmentId fragmentId, Collection<RemoteTask> tasks)
+        {
+            tasks.forEach(task -> producerTasks.put(fragmentId, task.getTaskId()));
+        }
+
+        public synchronized Map<String, Domain> noMoreProducerTasks(PlanFragmentId fragmentId)
+        {
+            noMoreProducerTasks.add(fragmentId);
+            return collectIfComplete(fragmentId);
+        }
+
+        /**
+         * Returns the domains collected so far which are consumed by the fragment.
+         */
+        public synchronized Map<String, Domain> addConsumerTasks(PlanFragmentId fragmentId, Collection<RemoteTask> tasks)
+        {
+            Set<String> consumedFilterIds = consumedFilters.get(fragmentId);
+            if (consumedFilterIds.isEmpty()) {
+                return ImmutableMap.of();
+            }
+            consumerTasks.putAll(fragmentId, tasks);
+            return ImmutableMap.copyOf(filterKeys(collectedDomains, consumedFilterIds::contains));
+        }
+
+        public synchronized ListMultimap<PlanFragmentId, RemoteTask> getConsumerTasks()
+        {
+            return ImmutableListMultimap.copyOf(consumerTasks);
+        }
+
+        /**
+         * Returns the domains which became collected with the domains reported by the task.
+         */
+        public synchronized Map<String, Domain> addBuildDomains(PlanFragmentId fragmentId, TaskId taskId, Map<String, Domain> domains)
+        {
+            domains.forEach((filterId, domain) -> {
+                if (fragmentId.equals(producerFragments.get(filterId))) {
+                    taskDomains.computeIfAbsent(filterId, ignored -> new HashMap<>()).put(taskId, domain);
+                }
+            });
+            return collectIfComplete(fragmentId);
+        }
+
+        public synchronized boolean hasAllBuildDomains(PlanFragmentId fragmentId, TaskId taskId)
+        {
+            return producerFragments.entrySet().stream()
+                    .filter(entry -> entry.getValue().equals(fragmentId))
+                    .allMatch(entry -> taskDomains.getOrDefault(entry.getKey(), ImmutableMap.of()).containsKey(taskId));
+        }
+
+        public synchronized Map<String, Domain> getCollectedDomains()
+        {
+            return ImmutableMap.copyOf(collectedDomains);
+        }
+
+        public void setCollected(Set<String> filterIds)
+        {
+            filterIds.forEach(filterId -> collectedFutures.get(filterId).set(null));
+        }
+
+        public void remove()
+        {
+            removed = true;
+            // release the table scans waiting for the dynamic filters
+            collectedFutures.values().forEach(future -> future.set(null));
+        }
+
+        @GuardedBy("this")
+        private Map<String, Domain> collectIfComplete(PlanFragmentId fragmentId)
+        {
+            Set<TaskId> tasks = producerTasks.get(fragmentId);
+            if (!noMoreProducerTasks.contains(fragmentId) || tasks.isEmpty()) {
+                return ImmutableMap.of();
+            }
+            ImmutableMap.Builder<String, Domain> newlyCollected = ImmutableMap.builder();
+            for (Map.Entry<String, PlanFragmentId> entry : producerFragments.entrySet()) {
+                String filterId = entry.getKey();
+                if (!entry.getValue().equals(fragmentId) || collectedDomains.containsKey(filterId)) {
+                    continue;
+                }
+                Map<TaskId, Domain> reported = taskDomains.getOrDefault(filterId, ImmutableMap.of());
+                if (reported.keySet().containsAll(tasks)) {
+                    Domain domain = Domain.union(new ArrayList<>(reported.values()));
+                    collectedDomains.put(filterId, domain);
+                    newlyCollected.put(filterId, domain);
+                }
+            }
+            return newlyCollected.build();
+        }
+    }
+}
@@ -150,6 +150,7 @@ public class SqlQueryScheduler
     private final AtomicBoolean scheduling = new AtomicBoolean();
 
     private final PartialResultQueryTaskTracker partialResultQueryTaskTracker;
+    private final DynamicFilterService dynamicFilterService;
     private final CTEMaterializationTracker cteMaterializationTracker = new CTEMaterializationTracker();
 
     public static SqlQueryScheduler createSqlQueryScheduler(
@@ -173,7 +174,8 @@ public class SqlQueryScheduler
             PlanChecker planChecker,
             Metadata metadata,
             SqlParser sqlParser,
-            PartialResultQueryManager partialResultQueryManager)
+            PartialResultQueryManager partialResultQueryManager,
+            DynamicFilterService dynamicFilterService)
     {
         SqlQueryScheduler sqlQueryScheduler = new SqlQueryScheduler(
                 locationFactory,
@@ -196,7 +198,8 @@ public class SqlQueryScheduler
                 planChecker,
                 metadata,
                 sqlParser,
-                partialResultQueryManager);
+                partialResultQueryManager,
+                dynamicFilterService);
         sqlQueryScheduler.initialize();
         return sqlQueryScheduler;
     }
@@ -222,7 +225,8 @@ public class SqlQueryScheduler
             PlanChecker planChecker,
             Metadata metadata,
             SqlParser sqlParser,
-            PartialResultQueryManager partialResultQueryManager)
+            PartialResultQueryManager partialResultQueryManager,
+            DynamicFilterService dynamicFilterService)
     {
         this.locationFactory = requireNonNull(locationFactory, "locationFactory is null");
         this.executionPolicy = requireNonNull(executionPolicy, "schedulerPolicyFactory is null");
@@ -241,6 +245,7 @@ public class SqlQueryScheduler
         this.sectionExecutionFactory = requireNonNull(sectionExecutionFactory, "sectionExecutionFactory is null");
         this.remoteTaskFactory = requireNonNull(remoteTaskFactory, "remoteTaskFactory is null");
         this.splitSourceFactory = requireNonNull(splitSourceFactory, "splitSourceFactory is null");
+        this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
         this.sectionedPlan = extractStreamingSections(plan);
         this.summarizeTaskInfo = summarizeTaskInfo;
 
@@ -471,9 +476,14 @@ public class SqlQueryScheduler
                             }
                         }
 
+                        // track the tasks producing and consuming dynamic filters collected across stages
+                        PlanFragmentId fragmentId = stageExecution.getFragment().getId();
+                        dynamicFilterService.addTasks(session.getQueryId(), fragmentId, result.getNewTasks());
+
                         // modify parent and children based on the results of the scheduling
                         if (result.isFinished()) {
                             stageExecution.schedulingComplete();
+                            dynamicFilterService.noMoreTasks(session.getQueryId(), fragmentId);
                         }
                         else if (!result.getBlocked().isDone()) {
                             blockedStages.add(result.getBlocked());
@@ -14,6 +14,7 @@
 package com.facebook.presto.memory;
 
 import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.operator.FileFragmentResultCacheConfig;
 import com.facebook.presto.spi.memory.MemoryPoolId;
 import com.facebook.presto.spi.memory.MemoryPoolInfo;
 import com.google.common.annotations.VisibleForTesting;
@@ -43,23 +44,41 @@ public final class LocalMemoryManager
     private DataSize maxMemory;
     private Map<MemoryPoolId, MemoryPool> pools;
 
-    @Inject
     public LocalMemoryManager(NodeMemoryConfig config)
     {
         this(config, Runtime.getRuntime().maxMemory());
     }
 
+    @Inject
+    public LocalMemoryManager(NodeMemoryConfig config, FileFragmentResultCacheConfig fragmentResultCacheConfig)
+    {
+        this(config, Runtime.getRuntime().maxMemory(), getFragmentResultCacheMemoryTierSize(fragmentResultCacheConfig));
+    }
+
     @VisibleForTesting
     public LocalMemoryManager(NodeMemoryConfig config, long availableMemory)
+    {
+        this(config, availableMemory, 0);
+    }
+
+    @VisibleForTesting
+    public LocalMemoryManager(NodeMemoryConfig config, long availableMemory, long fragmentResultCacheMemoryTierSize)
     {
         requireNonNull(config, "config is null");
-        configureMemoryPools(config, availableMemory);
+        configureMemoryPools(config, availableMemory, fragmentResultCacheMemoryTierSize);
+    }
+
+    private static long getFragmentResultCacheMemoryTierSize(FileFragmentResultCacheConfig config)
+    {
+        requireNonNull(config, "fragmentResultCacheConfig is null");
+        return config.isCachingEnabled() ? config.getMaxMemoryTierSize().toBytes() : 0;
     }
 
-    private void configureMemoryPools(NodeMemoryConfig config, long availableMemory)
+    private void configureMemoryPools(NodeMemoryConfig config, long availableMemory, long fragmentResultCacheMemoryTierSize)
     {
-        validateHeapHeadroom(config, availableMemory);
-        maxMemory = new DataSize(availableMemory - config.getHeapHeadroom().toBytes(), BYTE);
+        validateHeapHeadroom(config, availableMemory, fragmentResultCacheMemoryTierSize);
+        // the in-memory tier of the fragment result cache lives outside of the query memory pools, like the headroom
+        maxMemory = new DataSize(availableMemory - config.getHeapHeadroom().toBytes() - fragmentResultCacheMemoryTierSize, BYTE);
         checkArgument(
                 config.getMaxQueryMemoryPerNode().toBytes() <= config.getMaxQueryTotalMemoryPerNode().toBytes(),
                 "Max query memory per node (%s) cannot be greater than the max query total memory per node (%s).",
@@ -88,9 +107,15 @@ public final class LocalMemoryManager
 
     @VisibleForTesting
     static void validateHeapHeadroom(NodeMemoryConfig config, long availableMemory)
+    {
+        validateHeapHeadroom(config, availableMemory, 0);
+    }
+
+    @VisibleForTesting
+    static void validateHeapHeadroom(NodeMemoryConfig config, long availableMemory, long fragmentResultCacheMemoryTierSize)
     {
         long maxQueryTotalMemoryPerNode = config.getMaxQueryTotalMemoryPerNode().toBytes();
-        long heapHeadroom = config.getHeapHeadroom().toBytes();
+        long heapHeadroom = config.getHeapHeadroom().toBytes() + fragmentResultCacheMemoryTierSize;
         // (availableMemory - maxQueryTotalMemoryPerNode) bytes will be available for the general pool and the
         // headroom/untracked allocations, so the heapHeadroom cannot be larger than that space.
         if (heapHeadroom < 0 || heapHeadroom + maxQueryTotalMemoryPerNode > availableMemory) {
@@ -17,6 +17,7 @@ import com.facebook.airlift.json.JsonCodec;
 import com.facebook.airlift.stats.GcMonitor;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.Session;
+import com.facebook.presto.execution.TaskDynamicFilters;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskStateMachine;
 import com.facebook.presto.memory.context.MemoryReservationHandler;
@@ -360,6 +361,29 @@ public class QueryContext
             boolean perOperatorAllocationTrackingEnabled,
             boolean allocationTrackingEnabled,
             boolean legacyLifespanCompletionCondition)
+    {
+        return addTaskContext(
+                taskStateMachine,
+                session,
+                taskPlan,
+                perOperatorCpuTimerEnabled,
+                cpuTimerEnabled,
+                perOperatorAllocationTrackingEnabled,
+                allocationTrackingEnabled,
+                legacyLifespanCompletionCondition,
+                new TaskDynamicFilters());
+    }
+
+    public TaskContext addTaskContext(
+            TaskStateMachine taskStateMachine,
+            Session session,
+            Optional<PlanNode> taskPlan,
+            boolean perOperatorCpuTimerEnabled,
+            boolean cpuTimerEnabled,
+            boolean perOperatorAllocationTrackingEnabled,
+            boolean allocationTrackingEnabled,
+            boolean legacyLifespanCompletionCondition,
+            TaskDynamicFilters dynamicFilters)
     {
         TaskContext taskContext = TaskContext.createTaskContext(
                 this,
@@ -374,7 +398,8 @@ public class QueryContext
                 cpuTimerEnabled,
                 perOperatorAllocationTrackingEnabled,
                 allocationTrackingEnabled,
-                legacyLifespanCompletionCondition);
+                legacyLifespanCompletionCondition,
+                dynamicFilters);
         taskContexts.put(taskStateMachine.getTaskId(), taskContext);
         return taskContext;
     }
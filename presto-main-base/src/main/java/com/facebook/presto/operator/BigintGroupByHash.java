@@ -19,6 +19,7 @@ import com.facebook.presto.common.array.IntBigArray;
 import com.facebook.presto.common.array.LongBigArray;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.LongArrayBlock;
 import com.facebook.presto.common.type.BigintType;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.spi.PrestoException;
@@ -219,7 +220,7 @@ public class BigintGroupByHash
         return hashCapacity;
     }
 
-    private int putIfAbsent(int position, Block block)
+    private int putIfAbsent(int position, Block block, long valueHash)
     {
         if (block.isNull(position)) {
             if (nullGroupId < 0) {
@@ -231,7 +232,7 @@ public class BigintGroupByHash
         }
 
         long value = BIGINT.getLong(block, position);
-        long hashPosition = getHashPosition(value, mask);
+        long hashPosition = valueHash & mask;
 
         // look for an empty slot or a slot containing this key
         while (true) {
@@ -329,6 +330,28 @@ public class BigintGroupByHash
         return nextGroupId >= maxFill;
     }
 
+    private static long[] hashValues(Block block)
+    {
+        // hash the whole block up front in a tight loop so the per row loop only probes the table
+        int positionCount = block.getPositionCount();
+        long[] valueHashes = new long[positionCount];
+        if (block instanceof LongArrayBlock) {
+            LongArrayBlock longArrayBlock = (LongArrayBlock) block;
+            int offsetBase = longArrayBlock.getOffsetBase();
+            for (int position = 0; position < positionCount; position++) {
+                valueHashes[position] = murmurHash3(longArrayBlock.getLongUnchecked(offsetBase + position));
+            }
+        }
+        else {
+            for (int position = 0; position < positionCount; position++) {
+                if (!block.isNull(position)) {
+                    valueHashes[position] = murmurHash3(BIGINT.getLong(block, position));
+                }
+            }
+        }
+        return valueHashes;
+    }
+
     private static long getHashPosition(long rawHash, int mask)
     {
         return murmurHash3(rawHash) & mask;
@@ -349,12 +372,14 @@ public class BigintGroupByHash
             implements Work<Void>
     {
         private final Block block;
+        private final long[] valueHashes;
 
         private int lastPosition;
 
         public AddPageWork(Block block)
         {
             this.block = requireNonNull(block, "block is null");
+            this.valueHashes = hashValues(block);
         }
 
         @Override
@@ -373,7 +398,7 @@ public class BigintGroupByHash
             // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
             while (lastPosition < positionCount && !needRehash()) {
                 // get the group for the current row
-                putIfAbsent(lastPosition, block);
+                putIfAbsent(lastPosition, block, valueHashes[lastPosition]);
                 lastPosition++;
             }
             return lastPosition == positionCount;
@@ -391,6 +416,7 @@ public class BigintGroupByHash
     {
         private final BlockBuilder blockBuilder;
         private final Block block;
+        private final long[] valueHashes;
 
         private boolean finished;
         private int lastPosition;
@@ -398,6 +424,7 @@ public class BigintGroupByHash
         public GetGroupIdsWork(Block block)
         {
             this.block = requireNonNull(block, "block is null");
+            this.valueHashes = hashValues(block);
             // we know the exact size required for the block
             this.blockBuilder = BIGINT.createFixedSizeBlockBuilder(block.getPositionCount());
         }
@@ -419,7 +446,7 @@ public class BigintGroupByHash
             // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
             while (lastPosition < positionCount && !needRehash()) {
                 // output the group id for this row
-                BIGINT.writeLong(blockBuilder, putIfAbsent(lastPosition, block));
+                BIGINT.writeLong(blockBuilder, putIfAbsent(lastPosition, block, valueHashes[lastPosition]));
                 lastPosition++;
             }
             return lastPosition == positionCount;
@@ -26,6 +26,7 @@ import java.util.Optional;
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
 import static com.facebook.presto.common.type.UnknownType.UNKNOWN;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isFixedWidthGroupByHashEnabled;
 import static java.util.Objects.requireNonNull;
 
 public class ChannelSet
@@ -94,6 +95,7 @@ public class ChannelSet
                     hashChannel,
                     expectedPositions,
                     isDictionaryAggregationEnabled(operatorContext.getSession()),
+                    isFixedWidthGroupByHashEnabled(operatorContext.getSession()),
                     joinCompiler,
                     this::updateMemoryReservation);
             this.nullBlockPage = new Page(type.createBlockBuilder(null, 1, UNKNOWN.getFixedSize()).appendNull().build());
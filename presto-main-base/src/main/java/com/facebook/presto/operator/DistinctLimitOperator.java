@@ -29,6 +29,7 @@ import java.util.Optional;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isFixedWidthGroupByHashEnabled;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
@@ -150,6 +151,7 @@ public class DistinctLimitOperator
                 hashChannel,
                 min((int) limit, 10_000),
                 isDictionaryAggregationEnabled(operatorContext.getSession()),
+                isFixedWidthGroupByHashEnabled(operatorContext.getSession()),
                 joinCompiler,
                 this::updateMemoryReservation);
         remainingLimit = limit;
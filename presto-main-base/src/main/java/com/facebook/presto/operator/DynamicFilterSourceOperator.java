@@ -17,10 +17,12 @@ import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.aggregation.TypedSet;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
@@ -28,14 +30,21 @@ import com.google.common.collect.ImmutableMap;
 import jakarta.annotation.Nullable;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
 import static com.facebook.presto.common.predicate.Range.range;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
 import static com.facebook.presto.common.type.TypeUtils.isFloatingPointNaN;
 import static com.facebook.presto.common.type.TypeUtils.readNativeValue;
+import static com.facebook.presto.common.type.Varchars.isVarcharType;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static java.util.Objects.requireNonNull;
@@ -46,6 +55,8 @@ import static java.util.stream.Collectors.toSet;
  * The collected pages' value are used for creating a run-time filtering constraint (for probe-side table scan in an inner join).
  * We record all values for the run-time filter only for small build-side pages (which should be the case when using "broadcast" join).
  * For large inputs on build side, we can optionally record the min and max values per channel for orderable types (except Double and Real).
+ * Additionally, we can optionally record a Bloom filter per channel for integral and varchar types, which is published together with the predicate
+ * and lets the probe-side table scan drop most non-matching rows when the build side is too large for an exact predicate.
  */
 public class DynamicFilterSourceOperator
         implements Operator
@@ -87,10 +98,12 @@ public class DynamicFilterSourceOperator
         private final int operatorId;
         private final PlanNodeId planNodeId;
         private final Consumer<TupleDomain<String>> dynamicPredicateConsumer;
+        private final Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer;
         private final List<Channel> channels;
         private final int maxFilterPositionsCount;
         private final DataSize maxFilterSize;
         private final int minMaxCollectionLimit;
+        private final DataSize bloomFilterMaxSize;
         private final boolean useNewNanDefinition;
 
         private boolean closed;
@@ -99,15 +112,18 @@ public class DynamicFilterSourceOperator
                 int operatorId,
                 PlanNodeId planNodeId,
                 Consumer<TupleDomain<String>> dynamicPredicateConsumer,
+                Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer,
                 List<Channel> channels,
                 int maxFilterPositionsCount,
                 DataSize maxFilterSize,
                 int minMaxCollectionLimit,
+                DataSize bloomFilterMaxSize,
                 boolean useNewNanDefinition)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
             this.dynamicPredicateConsumer = requireNonNull(dynamicPredicateConsumer, "dynamicPredicateConsumer is null");
+            this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
             this.channels = requireNonNull(channels, "channels is null");
             verify(
                     channels.stream().map(channel -> channel.getFilterId()).collect(toSet()).size() == channels.size(),
@@ -118,6 +134,7 @@ public class DynamicFilterSourceOperator
             this.maxFilterPositionsCount = maxFilterPositionsCount;
             this.maxFilterSize = maxFilterSize;
             this.minMaxCollectionLimit = minMaxCollectionLimit;
+            this.bloomFilterMaxSize = requireNonNull(bloomFilterMaxSize, "bloomFilterMaxSize is null");
             this.useNewNanDefinition = useNewNanDefinition;
         }
 
@@ -128,11 +145,13 @@ public class DynamicFilterSourceOperator
             return new DynamicFilterSourceOperator(
                     driverContext.addOperatorContext(operatorId, planNodeId, DynamicFilterSourceOperator.class.getSimpleName()),
                     dynamicPredicateConsumer,
+                    bloomFilterConsumer,
                     channels,
                     planNodeId,
                     maxFilterPositionsCount,
                     maxFilterSize,
                     minMaxCollectionLimit,
+                    bloomFilterMaxSize,
                     useNewNanDefinition);
         }
 
@@ -152,6 +171,7 @@ public class DynamicFilterSourceOperator
 
     private final OperatorContext context;
     private final Consumer<TupleDomain<String>> dynamicPredicateConsumer;
+    private final Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer;
     private final int maxFilterPositionsCount;
     private final long maxFilterSizeInBytes;
     private final List<Channel> channels;
@@ -173,14 +193,24 @@ public class DynamicFilterSourceOperator
     @Nullable
     private Block[] maxValues;
 
+    // May be dropped if too many rows are collected for the filters to be selective.
+    // Contains null for channels of unsupported types.
+    @Nullable
+    private BlockedBloomFilter[] bloomFilters;
+    private long bloomFilterCollectionLimit;
+    // Accounts for the Bloom filters until they are handed over to the consumer or dropped
+    private final LocalMemoryContext bloomFilterMemoryContext;
+
     private DynamicFilterSourceOperator(
             OperatorContext context,
             Consumer<TupleDomain<String>> dynamicPredicateConsumer,
+            Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer,
             List<Channel> channels,
             PlanNodeId planNodeId,
             int maxFilterPositionsCount,
             DataSize maxFilterSize,
             int minMaxCollectionLimit,
+            DataSize bloomFilterMaxSize,
             boolean useNewNanDefinition)
     {
         this.context = requireNonNull(context, "context is null");
@@ -188,6 +218,7 @@ public class DynamicFilterSourceOperator
         this.maxFilterSizeInBytes = maxFilterSize.toBytes();
 
         this.dynamicPredicateConsumer = requireNonNull(dynamicPredicateConsumer, "dynamicPredicateConsumer is null");
+        this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
         this.channels = requireNonNull(channels, "channels is null");
 
         this.blockBuilders = new BlockBuilder[channels.size()];
@@ -214,9 +245,28 @@ public class DynamicFilterSourceOperator
             minValues = new Block[channels.size()];
             maxValues = new Block[channels.size()];
         }
+        this.bloomFilterMemoryContext = context.newLocalSystemMemoryContext(DynamicFilterSourceOperator.class.getSimpleName());
+        if (bloomFilterMaxSize.toBytes() >= Long.BYTES && channels.stream().map(Channel::getType).anyMatch(DynamicFilterSourceOperator::isBloomFilterSupported)) {
+            long bloomFilterChannels = channels.stream().map(Channel::getType).filter(DynamicFilterSourceOperator::isBloomFilterSupported).count();
+            bloomFilterMemoryContext.setBytes(bloomFilterChannels * BlockedBloomFilter.getRetainedSizeInBytes(bloomFilterMaxSize.toBytes()));
+            bloomFilters = new BlockedBloomFilter[channels.size()];
+            for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+                if (isBloomFilterSupported(channels.get(channelIndex).getType())) {
+                    bloomFilters[channelIndex] = BlockedBloomFilter.create(bloomFilterMaxSize.toBytes());
+                    // rows rather than distinct values are counted, so the limit is conservative for build sides with duplicate keys
+                    bloomFilterCollectionLimit = bloomFilters[channelIndex].getCapacity();
+                }
+            }
+        }
         this.useNewNanDefinition = useNewNanDefinition;
     }
 
+    private static boolean isBloomFilterSupported(Type type)
+    {
+        // types read by the probe-side readers with TupleDomainFilter::testLong or TupleDomainFilter::testBytes
+        return type.equals(BIGINT) || type.equals(INTEGER) || type.equals(SMALLINT) || type.equals(TINYINT) || type.equals(DATE) || isVarcharType(type);
+    }
+
     @Override
     public OperatorContext getOperatorContext()
     {
@@ -234,6 +284,15 @@ public class DynamicFilterSourceOperator
     {
         verify(!finished, "DynamicFilterSourceOperator: addInput() shouldn't not be called after finish()");
         current = page;
+        if (bloomFilters != null) {
+            bloomFilterCollectionLimit -= page.getPositionCount();
+            if (bloomFilterCollectionLimit < 0) {
+                handleBloomFilterCollectionLimitExceeded();
+            }
+            else {
+                updateBloomFilters(page);
+            }
+        }
         if (valueSets == null) {
             // the exact predicate became too large.
             if (minValues == null) {
@@ -277,7 +336,7 @@ public class DynamicFilterSourceOperator
         // The resulting predicate is too large
         if (minMaxChannels.isEmpty()) {
             // allow all probe-side values to be read.
-            dynamicPredicateConsumer.accept(TupleDomain.all());
+            publishAllUnlessCollectingBloomFilters();
         }
         else {
             if (minMaxCollectionLimit < 0) {
@@ -300,12 +359,74 @@ public class DynamicFilterSourceOperator
     private void handleMinMaxCollectionLimitExceeded()
     {
         // allow all probe-side values to be read.
-        dynamicPredicateConsumer.accept(TupleDomain.all());
+        publishAllUnlessCollectingBloomFilters();
         // Drop references to collected values.
         minValues = null;
         maxValues = null;
     }
 
+    private void publishAllUnlessCollectingBloomFilters()
+    {
+        // Otherwise, the predicate is published together with the Bloom filters in finish()
+        // or when the Bloom filters are dropped.
+        if (bloomFilters == null) {
+            dynamicPredicateConsumer.accept(TupleDomain.all());
+        }
+    }
+
+    private void handleBloomFilterCollectionLimitExceeded()
+    {
+        bloomFilters = null;
+        bloomFilterMemoryContext.setBytes(0);
+        if (valueSets == null && minValues == null) {
+            // the predicate became 'all' while the Bloom filters were being collected
+            dynamicPredicateConsumer.accept(TupleDomain.all());
+        }
+    }
+
+    private void updateBloomFilters(Page page)
+    {
+        checkState(bloomFilters != null);
+        for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+            BlockedBloomFilter bloomFilter = bloomFilters[channelIndex];
+            if (bloomFilter == null) {
+                continue;
+            }
+            Type type = channels.get(channelIndex).getType();
+            Block block = page.getBlock(channels.get(channelIndex).getIndex());
+            boolean isVarchar = isVarcharType(type);
+            for (int position = 0; position < block.getPositionCount(); ++position) {
+                if (block.isNull(position)) {
+                    continue;
+                }
+                if (isVarchar) {
+                    bloomFilter.insertSlice(type.getSlice(block, position));
+                }
+                else {
+                    bloomFilter.insertLong(type.getLong(block, position));
+                }
+            }
+        }
+    }
+
+    private void publish(TupleDomain<String> predicate)
+    {
+        if (bloomFilters != null) {
+            ImmutableMap.Builder<String, BlockedBloomFilter> bloomFiltersBuilder = ImmutableMap.builder();
+            for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+                if (bloomFilters[channelIndex] != null) {
+                    bloomFiltersBuilder.put(channels.get(channelIndex).getFilterId(), bloomFilters[channelIndex]);
+                }
+            }
+            bloomFilters = null;
+            // Bloom filters must be published before the predicate, which completes the partition.
+            // From then on, the consumer accounts for the memory of the filters it keeps.
+            bloomFilterConsumer.accept(bloomFiltersBuilder.build());
+            bloomFilterMemoryContext.setBytes(0);
+        }
+        dynamicPredicateConsumer.accept(predicate);
+    }
+
     private void updateMinMaxValues(Block block, int channelIndex)
     {
         checkState(minValues != null && maxValues != null);
@@ -371,7 +492,10 @@ public class DynamicFilterSourceOperator
             if (minValues == null) {
                 // there were too many rows to collect min/max range
                 // dynamicPredicateConsumer was notified with 'all' in handleTooLargePredicate if there are no orderable types,
-                // else it was notified with 'all' in handleMinMaxCollectionLimitExceeded
+                // else it was notified with 'all' in handleMinMaxCollectionLimitExceeded, unless Bloom filters are still being collected
+                if (bloomFilters != null) {
+                    publish(TupleDomain.all());
+                }
                 return;
             }
             // valueSets became too large, create TupleDomain from min/max values
@@ -391,7 +515,7 @@ public class DynamicFilterSourceOperator
             }
             minValues = null;
             maxValues = null;
-            dynamicPredicateConsumer.accept(TupleDomain.withColumnDomains(domainsBuilder.build()));
+            publish(TupleDomain.withColumnDomains(domainsBuilder.build()));
             return;
         }
 
@@ -403,7 +527,7 @@ public class DynamicFilterSourceOperator
         }
         valueSets = null;
         blockBuilders = null;
-        dynamicPredicateConsumer.accept(TupleDomain.withColumnDomains(domainsBuilder.build()));
+        publish(TupleDomain.withColumnDomains(domainsBuilder.build()));
     }
 
     private Domain convertToDomain(Type type, Block block)
@@ -427,4 +551,11 @@ public class DynamicFilterSourceOperator
     {
         return current == null && finished;
     }
+
+    @Override
+    public void close()
+    {
+        bloomFilters = null;
+        bloomFilterMemoryContext.close();
+    }
 }
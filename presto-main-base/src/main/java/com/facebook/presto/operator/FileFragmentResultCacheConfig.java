@@ -39,8 +39,10 @@ public class FileFragmentResultCacheConfig
     private DataSize maxInFlightSize = new DataSize(1, GIGABYTE);
     private DataSize maxSinglePagesSize = new DataSize(500, MEGABYTE);
     private DataSize maxCacheSize = new DataSize(100, GIGABYTE);
+    private DataSize maxMemoryTierSize = new DataSize(0, MEGABYTE);
 
     private boolean inputDataStatsEnabled;
+    private boolean memoryMappedReadEnabled;
 
     public boolean isCachingEnabled()
     {
@@ -151,6 +153,20 @@ public class FileFragmentResultCacheConfig
         return this;
     }
 
+    @MinDataSize("0B")
+    public DataSize getMaxMemoryTierSize()
+    {
+        return maxMemoryTierSize;
+    }
+
+    @Config("fragment-result-cache.max-memory-tier-size")
+    @ConfigDescription("Maximum heap size of the in-memory tier in front of the on-disk fragment result cache, 0 disables the tier")
+    public FileFragmentResultCacheConfig setMaxMemoryTierSize(DataSize maxMemoryTierSize)
+    {
+        this.maxMemoryTierSize = maxMemoryTierSize;
+        return this;
+    }
+
     public boolean isInputDataStatsEnabled()
     {
         return inputDataStatsEnabled;
@@ -163,4 +179,17 @@ public class FileFragmentResultCacheConfig
         this.inputDataStatsEnabled = inputDataStatsEnabled;
         return this;
     }
+
+    public boolean isMemoryMappedReadEnabled()
+    {
+        return memoryMappedReadEnabled;
+    }
+
+    @Config("fragment-result-cache.memory-mapped-read-enabled")
+    @ConfigDescription("Store each column of a cached page separately and serve cache hits from memory mapped files, decoding columns only when they are accessed")
+    public FileFragmentResultCacheConfig setMemoryMappedReadEnabled(boolean memoryMappedReadEnabled)
+    {
+        this.memoryMappedReadEnabled = memoryMappedReadEnabled;
+        return this;
+    }
 }
@@ -15,18 +15,25 @@ package com.facebook.presto.operator;
 
 import com.facebook.airlift.log.Logger;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockEncodingSerde;
+import com.facebook.presto.common.block.LazyBlock;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.metadata.Split;
 import com.facebook.presto.metadata.Split.SplitIdentifier;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
 import io.airlift.slice.InputStreamSliceInput;
 import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
 import jakarta.inject.Inject;
 import org.weakref.jmx.Managed;
@@ -46,14 +53,21 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
 
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.readPages;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.readSerializedPage;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writePages;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.slice.Slices.mapFileReadOnly;
 import static java.nio.file.Files.newInputStream;
 import static java.nio.file.Files.newOutputStream;
 import static java.nio.file.StandardOpenOption.APPEND;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 import static java.util.UUID.randomUUID;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -77,6 +91,8 @@ public class FileFragmentResultCacheManager
 
     private final Cache<CacheKey, CacheEntry> cache;
     private final boolean inputDataStatsEnabled;
+    private final boolean memoryMappedReadEnabled;
+    private final Optional<FragmentResultCacheMemoryTier> memoryTier;
 
     // TODO: Decouple CacheKey by encoding PlanNode and SplitIdentifier separately so we don't have to keep too many objects in memory
     @Inject
@@ -106,6 +122,11 @@ public class FileFragmentResultCacheManager
                 .recordStats()
                 .build();
         this.inputDataStatsEnabled = cacheConfig.isInputDataStatsEnabled();
+        this.memoryMappedReadEnabled = cacheConfig.isMemoryMappedReadEnabled();
+        long maxMemoryTierBytes = cacheConfig.getMaxMemoryTierSize().toBytes();
+        this.memoryTier = maxMemoryTierBytes > 0 ?
+                Optional.of(new FragmentResultCacheMemoryTier(maxMemoryTierBytes, cacheConfig.getMaxCachedEntries(), fragmentCacheStats)) :
+                Optional.empty();
 
         File target = new File(baseDirectory.toUri());
         if (!target.exists()) {
@@ -137,7 +158,26 @@ public class FileFragmentResultCacheManager
     public Future<?> put(String serializedPlan, Split split, List<Page> result, long inputDataSize)
     {
         CacheKey key = new CacheKey(serializedPlan, split.getSplitIdentifier());
+        if (memoryTier.isPresent() && cache.getIfPresent(key) == null) {
+            // small and frequently used results stay in memory and are never flushed
+            if (memoryTier.get().contains(key)) {
+                return immediateFuture(null);
+            }
+            Optional<List<FragmentResultCacheMemoryTier.Entry>> evicted = memoryTier.get().admit(
+                    new FragmentResultCacheMemoryTier.Entry(key, result, inputDataStatsEnabled ? inputDataSize : 0));
+            if (evicted.isPresent()) {
+                demote(evicted.get());
+                return immediateFuture(null);
+            }
+            fragmentCacheStats.incrementMemoryTierAdmissionRejections();
+        }
+        return putOnDisk(key, result, inputDataSize);
+    }
+
+    private Future<?> putOnDisk(CacheKey key, List<Page> result, long inputDataSize)
+    {
         long resultSize = getPagesSize(result);
+        long decodedSize = getPagesRetainedSize(result);
         if (fragmentCacheStats.getInFlightBytes() + resultSize > maxInFlightBytes ||
                 cache.getIfPresent(key) != null ||
                 resultSize > maxSinglePagesBytes ||
@@ -148,7 +188,7 @@ public class FileFragmentResultCacheManager
 
         fragmentCacheStats.addInFlightBytes(resultSize);
         Path path = baseDirectory.resolve(randomUUID().toString().replaceAll("-", "_"));
-        return flushExecutor.submit(() -> cachePages(key, path, result, resultSize, inputDataSize));
+        return flushExecutor.submit(() -> cachePages(key, path, result, resultSize, decodedSize, inputDataSize));
     }
 
     private static long getPagesSize(List<Page> pages)
@@ -158,7 +198,14 @@ public class FileFragmentResultCacheManager
                 .sum();
     }
 
-    private void cachePages(CacheKey key, Path path, List<Page> pages, long resultSize, long inputDataSize)
+    private static long getPagesRetainedSize(List<Page> pages)
+    {
+        return pages.stream()
+                .mapToLong(Page::getRetainedSizeInBytes)
+                .sum();
+    }
+
+    private void cachePages(CacheKey key, Path path, List<Page> pages, long resultSize, long decodedSize, long inputDataSize)
     {
         if (!inputDataStatsEnabled) {
             inputDataSize = 0;
@@ -166,9 +213,14 @@ public class FileFragmentResultCacheManager
         try {
             Files.createFile(path);
             try (SliceOutput output = new OutputStreamSliceOutput(newOutputStream(path, APPEND))) {
-                writePages(pagesSerdeFactory.createPagesSerde(), output, pages.iterator());
+                if (memoryMappedReadEnabled) {
+                    writeColumnarPages(pagesSerdeFactory.createPagesSerde(), output, pages);
+                }
+                else {
+                    writePages(pagesSerdeFactory.createPagesSerde(), output, pages.iterator());
+                }
                 long resultPhysicalBytes = output.size();
-                cache.put(key, new CacheEntry(path, resultPhysicalBytes, inputDataSize));
+                cache.put(key, new CacheEntry(path, resultPhysicalBytes, decodedSize, inputDataSize));
                 fragmentCacheStats.incrementCacheEntries();
                 fragmentCacheStats.addCacheSizeInBytes(resultPhysicalBytes);
             }
@@ -199,21 +251,95 @@ public class FileFragmentResultCacheManager
         }
     }
 
+    /**
+     * Moves entries evicted from the memory tier to the disk tier, subject to the disk tier limits.
+     */
+    private void demote(List<FragmentResultCacheMemoryTier.Entry> entries)
+    {
+        for (FragmentResultCacheMemoryTier.Entry entry : entries) {
+            fragmentCacheStats.incrementMemoryTierDemotions();
+            putOnDisk(entry.getKey(), entry.getPages(), entry.getInputDataSize());
+        }
+    }
+
+    /**
+     * Moves a disk tier entry to the memory tier once it has been fully read, if the admission policy accepts it.
+     * Pages are handed out as read, so lazily mapped columns are only decoded by the consumer. Columns the consumer
+     * did not load are decoded when the entry is admitted.
+     */
+    private Iterator<Page> promoteWhenExhausted(CacheKey key, Iterator<Page> pages, long inputDataSize)
+    {
+        ImmutableList.Builder<Page> readPages = ImmutableList.builder();
+        return new AbstractIterator<Page>()
+        {
+            @Override
+            protected Page computeNext()
+            {
+                if (pages.hasNext()) {
+                    Page page = pages.next();
+                    readPages.add(page);
+                    return page;
+                }
+
+                List<Page> loadedPages = readPages.build().stream()
+                        .map(Page::getLoadedPage)
+                        .collect(toImmutableList());
+                Optional<List<FragmentResultCacheMemoryTier.Entry>> evicted = memoryTier.get().admit(
+                        new FragmentResultCacheMemoryTier.Entry(key, loadedPages, inputDataSize));
+                if (evicted.isPresent()) {
+                    fragmentCacheStats.incrementMemoryTierPromotions();
+                    cache.invalidate(key);
+                    demote(evicted.get());
+                }
+                else {
+                    fragmentCacheStats.incrementMemoryTierAdmissionRejections();
+                }
+                return endOfData();
+            }
+        };
+    }
+
     @Override
     public FragmentCacheResult get(String serializedPlan, Split split)
     {
         CacheKey key = new CacheKey(serializedPlan, split.getSplitIdentifier());
+        long start = System.nanoTime();
+        if (memoryTier.isPresent()) {
+            memoryTier.get().recordAccess(key);
+            FragmentResultCacheMemoryTier.Entry entry = memoryTier.get().get(key);
+            if (entry != null) {
+                fragmentCacheStats.incrementCacheHit();
+                fragmentCacheStats.incrementMemoryTierHit();
+                fragmentCacheStats.addCacheHitLatency(System.nanoTime() - start);
+                return new FragmentCacheResult(Optional.of(entry.getPages().iterator()), entry.getInputDataSize());
+            }
+        }
+
         CacheEntry cacheEntry = cache.getIfPresent(key);
         if (cacheEntry == null) {
             fragmentCacheStats.incrementCacheMiss();
             return new FragmentCacheResult(Optional.empty(), 0);
         }
 
+        FragmentCacheResult result = memoryMappedReadEnabled ? getMapped(cacheEntry, start) : getFromDisk(cacheEntry, start);
+        if (!result.getPages().isPresent()) {
+            return result;
+        }
+        fragmentCacheStats.incrementDiskTierHit();
+        // only collect the pages of entries the memory tier is going to admit, judged by their decoded size
+        if (memoryTier.isPresent() && memoryTier.get().wouldAdmit(key, cacheEntry.getDecodedBytes())) {
+            return new FragmentCacheResult(Optional.of(promoteWhenExhausted(key, result.getPages().get(), result.getInputDataSize())), result.getInputDataSize());
+        }
+        return result;
+    }
+
+    private FragmentCacheResult getFromDisk(CacheEntry cacheEntry, long start)
+    {
         try {
             InputStream inputStream = newInputStream(cacheEntry.getPath());
             Iterator<Page> result = readPages(pagesSerdeFactory.createPagesSerde(), new InputStreamSliceInput(inputStream));
             fragmentCacheStats.incrementCacheHit();
-            return new FragmentCacheResult(Optional.of(closeWhenExhausted(result, inputStream)), cacheEntry.getInputDataSize());
+            return new FragmentCacheResult(Optional.of(closeWhenExhausted(recordLatencyOfFirstPage(result, System.nanoTime() - start), inputStream)), cacheEntry.getInputDataSize());
         }
         catch (UncheckedIOException | IOException e) {
             log.error(e, "read path %s error", cacheEntry.getPath());
@@ -223,12 +349,114 @@ public class FileFragmentResultCacheManager
         }
     }
 
+    private FragmentCacheResult getMapped(CacheEntry cacheEntry, long start)
+    {
+        Iterator<Page> result;
+        try {
+            if (cacheEntry.getResultBytes() == 0) {
+                result = emptyIterator();
+                fragmentCacheStats.addCacheHitLatency(System.nanoTime() - start);
+            }
+            else {
+                Slice mapped = mapFileReadOnly(cacheEntry.getPath().toFile());
+                fragmentCacheStats.addMappedBytes(mapped.length());
+                // the data is only read when a block is loaded, so the latency includes the first block load
+                long mapNanos = System.nanoTime() - start;
+                AtomicBoolean firstLoad = new AtomicBoolean(true);
+                result = readColumnarPages(pagesSerdeFactory.createPagesSerde(), mapped.getInput(), loadNanos -> {
+                    if (firstLoad.getAndSet(false)) {
+                        fragmentCacheStats.addCacheHitLatency(mapNanos + loadNanos);
+                    }
+                });
+            }
+        }
+        catch (UncheckedIOException | IOException e) {
+            log.error(e, "map path %s error", cacheEntry.getPath());
+            // there might be a chance the file has been deleted. We would return cache miss in this case.
+            fragmentCacheStats.incrementCacheMiss();
+            return new FragmentCacheResult(Optional.empty(), 0);
+        }
+        fragmentCacheStats.incrementCacheHit();
+        return new FragmentCacheResult(Optional.of(result), cacheEntry.getInputDataSize());
+    }
+
+    /**
+     * Writes every page as its position and channel count followed by one serialized page per channel,
+     * so that a single column can be decoded without touching the others.
+     */
+    private static void writeColumnarPages(PagesSerde serde, SliceOutput output, List<Page> pages)
+    {
+        for (Page page : pages) {
+            output.writeInt(page.getPositionCount());
+            output.writeInt(page.getChannelCount());
+            for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                writeSerializedPage(output, serde.serialize(new Page(page.getPositionCount(), page.getBlock(channel))));
+            }
+        }
+    }
+
+    /**
+     * Reads pages written by {@link #writeColumnarPages}. The serialized columns are slices of the input,
+     * which for a memory mapped file means no data is copied until a block is loaded. The time every block
+     * load takes is passed to {@code blockLoadNanos}.
+     */
+    private static Iterator<Page> readColumnarPages(PagesSerde serde, SliceInput input, LongConsumer blockLoadNanos)
+    {
+        return new AbstractIterator<Page>()
+        {
+            @Override
+            protected Page computeNext()
+            {
+                if (!input.isReadable()) {
+                    return endOfData();
+                }
+                int positionCount = input.readInt();
+                int channelCount = input.readInt();
+                Block[] blocks = new Block[channelCount];
+                for (int channel = 0; channel < channelCount; channel++) {
+                    SerializedPage serializedColumn = readSerializedPage(input);
+                    blocks[channel] = new LazyBlock(positionCount, block -> {
+                        long start = System.nanoTime();
+                        block.setBlock(serde.deserialize(serializedColumn).getBlock(0));
+                        blockLoadNanos.accept(System.nanoTime() - start);
+                    });
+                }
+                return new Page(positionCount, blocks);
+            }
+        };
+    }
+
     @Managed
     public void invalidateAllCache()
     {
+        memoryTier.ifPresent(FragmentResultCacheMemoryTier::invalidateAll);
         cache.invalidateAll();
     }
 
+    /**
+     * Records the cache hit latency as the given open time plus the time it takes to read the first page,
+     * as the pages are read from disk lazily.
+     */
+    private Iterator<Page> recordLatencyOfFirstPage(Iterator<Page> iterator, long openNanos)
+    {
+        return new AbstractIterator<Page>()
+        {
+            private boolean first = true;
+
+            @Override
+            protected Page computeNext()
+            {
+                long start = System.nanoTime();
+                Page page = iterator.hasNext() ? iterator.next() : null;
+                if (first) {
+                    first = false;
+                    fragmentCacheStats.addCacheHitLatency(openNanos + System.nanoTime() - start);
+                }
+                return page == null ? endOfData() : page;
+            }
+        };
+    }
+
     private static <T> Iterator<T> closeWhenExhausted(Iterator<T> iterator, Closeable resource)
     {
         requireNonNull(iterator, "iterator is null");
@@ -299,6 +527,7 @@ public class FileFragmentResultCacheManager
     {
         private final Path path;
         private final long resultBytes;
+        private final long decodedBytes;
         private final long inputDataSize;
 
         public Path getPath()
@@ -311,15 +540,21 @@ public class FileFragmentResultCacheManager
             return resultBytes;
         }
 
+        public long getDecodedBytes()
+        {
+            return decodedBytes;
+        }
+
         public long getInputDataSize()
         {
             return inputDataSize;
         }
 
-        public CacheEntry(Path path, long resultBytes, long inputDataSize)
+        public CacheEntry(Path path, long resultBytes, long decodedBytes, long inputDataSize)
         {
             this.path = requireNonNull(path, "path is null");
             this.resultBytes = resultBytes;
+            this.decodedBytes = decodedBytes;
             this.inputDataSize = inputDataSize;
         }
     }
@@ -13,10 +13,14 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.airlift.stats.TimeStat;
 import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 public class FragmentCacheStats
 {
     private final AtomicLong hit = new AtomicLong();
@@ -28,6 +32,19 @@ public class FragmentCacheStats
     // Total on-disk size in bytes.
     private final AtomicLong cacheSizeInBytes = new AtomicLong();
 
+    // Total size of the cache files memory mapped to serve cache hits.
+    private final AtomicLong mappedBytes = new AtomicLong();
+    // time until the first data of a hit is read; memory mapped hits whose blocks are never loaded are not recorded
+    private final TimeStat cacheHitLatency = new TimeStat(NANOSECONDS);
+
+    private final AtomicLong memoryTierHit = new AtomicLong();
+    private final AtomicLong diskTierHit = new AtomicLong();
+    private final AtomicLong memoryTierAdmissionRejections = new AtomicLong();
+    private final AtomicLong memoryTierPromotions = new AtomicLong();
+    private final AtomicLong memoryTierDemotions = new AtomicLong();
+    private final AtomicLong memoryTierEntries = new AtomicLong();
+    private final AtomicLong memoryTierSizeInBytes = new AtomicLong();
+
     public void incrementCacheHit()
     {
         hit.getAndIncrement();
@@ -63,6 +80,51 @@ public class FragmentCacheStats
         cacheEntries.getAndDecrement();
     }
 
+    public void addMappedBytes(long bytes)
+    {
+        mappedBytes.addAndGet(bytes);
+    }
+
+    public void addCacheHitLatency(long nanos)
+    {
+        cacheHitLatency.add(nanos, NANOSECONDS);
+    }
+
+    public void incrementMemoryTierHit()
+    {
+        memoryTierHit.getAndIncrement();
+    }
+
+    public void incrementDiskTierHit()
+    {
+        diskTierHit.getAndIncrement();
+    }
+
+    public void incrementMemoryTierAdmissionRejections()
+    {
+        memoryTierAdmissionRejections.getAndIncrement();
+    }
+
+    public void incrementMemoryTierPromotions()
+    {
+        memoryTierPromotions.getAndIncrement();
+    }
+
+    public void incrementMemoryTierDemotions()
+    {
+        memoryTierDemotions.getAndIncrement();
+    }
+
+    public void setMemoryTierEntries(long entries)
+    {
+        memoryTierEntries.set(entries);
+    }
+
+    public void setMemoryTierSizeInBytes(long bytes)
+    {
+        memoryTierSizeInBytes.set(bytes);
+    }
+
     @Managed
     public long getCacheHit()
     {
@@ -98,4 +160,75 @@ public class FragmentCacheStats
     {
         return cacheSizeInBytes.get();
     }
+
+    @Managed
+    public long getMappedBytes()
+    {
+        return mappedBytes.get();
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getCacheHitLatency()
+    {
+        return cacheHitLatency;
+    }
+
+    @Managed
+    public long getMemoryTierHit()
+    {
+        return memoryTierHit.get();
+    }
+
+    @Managed
+    public long getDiskTierHit()
+    {
+        return diskTierHit.get();
+    }
+
+    // Fraction of all lookups served by the memory tier.
+    @Managed
+    public double getMemoryTierHitRate()
+    {
+        long lookups = hit.get() + miss.get();
+        return lookups == 0 ? 0 : (double) memoryTierHit.get() / lookups;
+    }
+
+    // Fraction of the lookups that missed the memory tier and were served by the disk tier.
+    @Managed
+    public double getDiskTierHitRate()
+    {
+        long lookups = diskTierHit.get() + miss.get();
+        return lookups == 0 ? 0 : (double) diskTierHit.get() / lookups;
+    }
+
+    @Managed
+    public long getMemoryTierAdmissionRejections()
+    {
+        return memoryTierAdmissionRejections.get();
+    }
+
+    @Managed
+    public long getMemoryTierPromotions()
+    {
+        return memoryTierPromotions.get();
+    }
+
+    @Managed
+    public long getMemoryTierDemotions()
+    {
+        return memoryTierDemotions.get();
+    }
+
+    @Managed
+    public long getMemoryTierEntries()
+    {
+        return memoryTierEntries.get();
+    }
+
+    @Managed
+    public long getMemoryTierSizeInBytes()
+    {
+        return memoryTierSizeInBytes.get();
+    }
 }
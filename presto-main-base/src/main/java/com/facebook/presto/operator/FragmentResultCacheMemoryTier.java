@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.operator.FileFragmentResultCacheManager.CacheKey;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In-heap tier of the fragment result cache, kept in LRU order within a byte budget.
+ * Sizes are the retained sizes of the decoded pages. The budget is carved out of the
+ * general memory pool by {@link com.facebook.presto.memory.LocalMemoryManager}.
+ * <p>
+ * A new entry that does not fit is only admitted if it has been accessed more often
+ * than every entry it would evict (TinyLFU), so results of one-off scans cannot push
+ * out frequently used ones.
+ */
+@ThreadSafe
+class FragmentResultCacheMemoryTier
+{
+    private final long maxSizeInBytes;
+    private final FragmentCacheStats fragmentCacheStats;
+
+    @GuardedBy("this")
+    private final FrequencySketch frequencySketch;
+    @GuardedBy("this")
+    private final LinkedHashMap<CacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    @GuardedBy("this")
+    private long sizeInBytes;
+
+    public FragmentResultCacheMemoryTier(long maxSizeInBytes, long expectedEntries, FragmentCacheStats fragmentCacheStats)
+    {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.frequencySketch = new FrequencySketch(expectedEntries);
+        this.fragmentCacheStats = requireNonNull(fragmentCacheStats, "fragmentCacheStats is null");
+    }
+
+    public synchronized void recordAccess(CacheKey key)
+    {
+        frequencySketch.increment(key);
+    }
+
+    @Nullable
+    public synchronized Entry get(CacheKey key)
+    {
+        return entries.get(key);
+    }
+
+    public synchronized boolean contains(CacheKey key)
+    {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Checks whether an entry of the given decoded size would currently be admitted, without changing the tier.
+     * This lets callers skip collecting the pages of entries that are going to be rejected.
+     */
+    public synchronized boolean wouldAdmit(CacheKey key, long candidateSizeInBytes)
+    {
+        return selectVictims(key, candidateSizeInBytes).isPresent();
+    }
+
+    /**
+     * @return the evicted entries if the candidate was admitted, or empty if it was rejected
+     */
+    public synchronized Optional<List<Entry>> admit(Entry candidate)
+    {
+        Optional<List<Entry>> selectedVictims = selectVictims(candidate.getKey(), candidate.getSizeInBytes());
+        if (!selectedVictims.isPresent()) {
+            return Optional.empty();
+        }
+
+        List<Entry> victims = selectedVictims.get();
+        for (Entry victim : victims) {
+            entries.remove(victim.getKey());
+            sizeInBytes -= victim.getSizeInBytes();
+        }
+        entries.put(candidate.getKey(), candidate);
+        sizeInBytes += candidate.getSizeInBytes();
+        fragmentCacheStats.setMemoryTierEntries(entries.size());
+        fragmentCacheStats.setMemoryTierSizeInBytes(sizeInBytes);
+        return Optional.of(victims);
+    }
+
+    @GuardedBy("this")
+    private Optional<List<Entry>> selectVictims(CacheKey key, long candidateSizeInBytes)
+    {
+        if (candidateSizeInBytes > maxSizeInBytes || entries.containsKey(key)) {
+            return Optional.empty();
+        }
+
+        int candidateFrequency = frequencySketch.frequency(key);
+        long bytesToFree = sizeInBytes + candidateSizeInBytes - maxSizeInBytes;
+        List<Entry> victims = new ArrayList<>();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytesToFree > 0) {
+            Entry victim = iterator.next();
+            if (frequencySketch.frequency(victim.getKey()) >= candidateFrequency) {
+                return Optional.empty();
+            }
+            victims.add(victim);
+            bytesToFree -= victim.getSizeInBytes();
+        }
+        return Optional.of(victims);
+    }
+
+    public synchronized void invalidateAll()
+    {
+        entries.clear();
+        sizeInBytes = 0;
+        fragmentCacheStats.setMemoryTierEntries(0);
+        fragmentCacheStats.setMemoryTierSizeInBytes(0);
+    }
+
+    public static class Entry
+    {
+        private final CacheKey key;
+        private final List<Page> pages;
+        private final long sizeInBytes;
+        private final long inputDataSize;
+
+        public Entry(CacheKey key, List<Page> pages, long inputDataSize)
+        {
+            this.key = requireNonNull(key, "key is null");
+            this.pages = ImmutableList.copyOf(requireNonNull(pages, "pages is null"));
+            this.sizeInBytes = pages.stream()
+                    .mapToLong(Page::getRetainedSizeInBytes)
+                    .sum();
+            this.inputDataSize = inputDataSize;
+        }
+
+        public CacheKey getKey()
+        {
+            return key;
+        }
+
+        public List<Page> getPages()
+        {
+            return pages;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+
+        public long getInputDataSize()
+        {
+            return inputDataSize;
+        }
+    }
+}
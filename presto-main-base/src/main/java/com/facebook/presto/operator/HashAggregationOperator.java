@@ -490,6 +490,9 @@ public class HashAggregationOperator
         }
 
         if (outputPages.isFinished()) {
+            if (!(aggregationBuilder instanceof SkipAggregationBuilder)) {
+                operatorContext.recordHashTableSize(expectedGroups, uniqueRowsProduced);
+            }
             closeAggregationBuilder();
             processRemainingPageForSegmentedAggregation();
             return null;
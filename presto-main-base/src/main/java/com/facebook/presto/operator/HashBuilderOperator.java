@@ -14,9 +14,12 @@
 package com.facebook.presto.operator;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
 import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.SpilledPartitionLayout.Round;
 import com.facebook.presto.spi.ErrorCause;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spiller.SingleStreamSpiller;
@@ -32,6 +35,7 @@ import jakarta.annotation.Nullable;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -48,6 +52,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
@@ -75,6 +80,8 @@ public class HashBuilderOperator
         private final int expectedPositions;
         private final boolean spillEnabled;
         private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+        private final Optional<DataSize> maxSpilledPartitionSize;
+        private final int maxSpillRepartitioningDepth;
 
         private final Map<Lifespan, Integer> partitionIndexManager = new HashMap<>();
 
@@ -95,6 +102,8 @@ public class HashBuilderOperator
                 PagesIndex.Factory pagesIndexFactory,
                 boolean spillEnabled,
                 SingleStreamSpillerFactory singleStreamSpillerFactory,
+                Optional<DataSize> maxSpilledPartitionSize,
+                int maxSpillRepartitioningDepth,
                 boolean enforceBroadcastMemoryLimit)
         {
             this.operatorId = operatorId;
@@ -113,6 +122,9 @@ public class HashBuilderOperator
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
             this.spillEnabled = spillEnabled;
             this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+            this.maxSpilledPartitionSize = requireNonNull(maxSpilledPartitionSize, "maxSpilledPartitionSize is null");
+            checkArgument(maxSpillRepartitioningDepth >= 0, "maxSpillRepartitioningDepth is negative");
+            this.maxSpillRepartitioningDepth = maxSpillRepartitioningDepth;
 
             this.expectedPositions = expectedPositions;
             this.enforceBroadcastMemoryLimit = enforceBroadcastMemoryLimit;
@@ -141,6 +153,8 @@ public class HashBuilderOperator
                     pagesIndexFactory,
                     spillEnabled,
                     singleStreamSpillerFactory,
+                    maxSpilledPartitionSize,
+                    maxSpillRepartitioningDepth,
                     enforceBroadcastMemoryLimit);
         }
 
@@ -180,6 +194,11 @@ public class HashBuilderOperator
          */
         LOOKUP_SOURCE_BUILT,
 
+        /**
+         * Input has been finished and spilled, but the spilled input is too large to be unspilled at once, so it is split into sub-partitions
+         */
+        INPUT_REPARTITIONING,
+
         /**
          * Input has been finished and spilled
          */
@@ -218,9 +237,12 @@ public class HashBuilderOperator
     private final List<JoinFilterFunctionFactory> searchFunctionFactories;
 
     private final PagesIndex index;
+    private final int expectedPositions;
 
     private final boolean spillEnabled;
     private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+    private final Optional<DataSize> maxSpilledPartitionSize;
+    private final int maxSpillRepartitioningDepth;
 
     private final HashCollisionsCounter hashCollisionsCounter;
 
@@ -228,7 +250,14 @@ public class HashBuilderOperator
     private Optional<ListenableFuture<?>> lookupSourceNotNeeded = Optional.empty();
     private final SpilledLookupSourceHandle spilledLookupSourceHandle = new SpilledLookupSourceHandle();
     private Optional<SingleStreamSpiller> spiller = Optional.empty();
+    private long spilledPositions;
     private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<SpilledPartitionSplitter> splitter = Optional.empty();
+    private SpilledPartitionLayout layout = SpilledPartitionLayout.unpartitioned();
+    private int currentRound;
+    private Iterator<Page> subPartitionPages;
+    @Nullable
+    private Page subPartitionRemainder;
     private Optional<ListenableFuture<List<Page>>> unspillInProgress = Optional.empty();
     @Nullable
     private LookupSourceSupplier lookupSourceSupplier;
@@ -252,6 +281,8 @@ public class HashBuilderOperator
             PagesIndex.Factory pagesIndexFactory,
             boolean spillEnabled,
             SingleStreamSpillerFactory singleStreamSpillerFactory,
+            Optional<DataSize> maxSpilledPartitionSize,
+            int maxSpillRepartitioningDepth,
             boolean enforceBroadcastMemoryLimit)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
@@ -264,6 +295,7 @@ public class HashBuilderOperator
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
         this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
 
+        this.expectedPositions = expectedPositions;
         this.index = pagesIndexFactory.newPagesIndex(lookupSourceFactory.getTypes(), expectedPositions);
         this.lookupSourceFactory = lookupSourceFactory;
         lookupSourceFactoryDestroyed = lookupSourceFactory.isDestroyed();
@@ -277,6 +309,8 @@ public class HashBuilderOperator
 
         this.spillEnabled = spillEnabled;
         this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+        this.maxSpilledPartitionSize = requireNonNull(maxSpilledPartitionSize, "maxSpilledPartitionSize is null");
+        this.maxSpillRepartitioningDepth = maxSpillRepartitioningDepth;
         this.enforceBroadcastMemoryLimit = enforceBroadcastMemoryLimit;
     }
 
@@ -305,14 +339,17 @@ public class HashBuilderOperator
             case LOOKUP_SOURCE_BUILT:
                 return lookupSourceNotNeeded.orElseThrow(() -> new IllegalStateException("Lookup source built, but disposal future not set"));
 
+            case INPUT_REPARTITIONING:
+                return spillInProgress;
+
             case INPUT_SPILLED:
-                return spilledLookupSourceHandle.getUnspillingOrDisposeRequested();
+                return getRoundHandle().getUnspillingOrDisposeRequested();
 
             case INPUT_UNSPILLING:
                 return unspillInProgress.orElseThrow(() -> new IllegalStateException("Unspilling in progress, but unspilling future not set"));
 
             case INPUT_UNSPILLED_AND_BUILT:
-                return spilledLookupSourceHandle.getDisposeRequested();
+                return getRoundHandle().getDisposeRequested();
 
             case CLOSED:
                 return NOT_BLOCKED;
@@ -371,15 +408,17 @@ public class HashBuilderOperator
         long sizeOfPage = page.getSizeInBytes();
 
         // check that spilled data can still fit into memory limit as otherwise
-        // it fails later during unspilling when all spilled pages need to be loaded into memory
+        // it fails later during unspilling when all spilled pages need to be loaded into memory,
+        // unless the spilled input is split into sub-partitions that are unspilled one at a time
         long maxUserMemoryBytes = getQueryMaxMemoryPerNode(operatorContext.getSession()).toBytes();
         long totalSpilledBytes = sizeOfPage + getSpiller().getSpilledPagesInMemorySize();
-        if (totalSpilledBytes > maxUserMemoryBytes) {
+        if (!maxSpilledPartitionSize.isPresent() && totalSpilledBytes > maxUserMemoryBytes) {
             String additionalInfo = format("Spilled: %s, Operator: %s", succinctBytes(totalSpilledBytes), HashBuilderOperator.class.getSimpleName());
             throw exceededLocalUserMemoryLimit(succinctBytes(maxUserMemoryBytes), additionalInfo, false, Optional.empty(), ErrorCause.UNKNOWN);
         }
 
         spillInProgress = getSpiller().spill(page);
+        spilledPositions += page.getPositionCount();
         long retainedSizeOfPage = page.getRetainedSizeInBytes();
         log.debug("Spilling for operator %s, sizeOfPage %s, retainedSizeOfPage %s, totalSpilledBytes %s", operatorContext, sizeOfPage, retainedSizeOfPage, totalSpilledBytes);
     }
@@ -421,6 +460,8 @@ public class HashBuilderOperator
                 localRevocableMemoryContext.setBytes(0);
                 lookupSourceChecksum = OptionalLong.of(lookupSourceSupplier.checksum());
                 lookupSourceSupplier = null;
+                // the partition fitted into memory once, so it is unspilled at once as well
+                setLayout(SpilledPartitionLayout.unpartitioned());
                 state = State.INPUT_SPILLED;
             });
             return spillIndex();
@@ -449,6 +490,7 @@ public class HashBuilderOperator
             String additionalInfo = format("Estimated Spilled: %s, Operator: %s", succinctBytes(indexEstimatedSize), HashBuilderOperator.class.getSimpleName());
             throw exceededLocalUserMemoryLimit(succinctBytes(maxUserMemoryBytes), additionalInfo, false, Optional.empty(), ErrorCause.UNKNOWN);
         }
+        spilledPositions += index.getPositionCount();
         return getSpiller().spill(index.getPages());
     }
 
@@ -491,10 +533,19 @@ public class HashBuilderOperator
                 finishSpilledInput();
                 return;
 
-            case INPUT_SPILLED:
+            case INPUT_REPARTITIONING:
                 if (spilledLookupSourceHandle.getDisposeRequested().isDone()) {
                     close();
                 }
+                else {
+                    repartitionSpilledInput();
+                }
+                return;
+
+            case INPUT_SPILLED:
+                if (getRoundHandle().getDisposeRequested().isDone()) {
+                    close();
+                }
                 else {
                     unspillLookupSourceIfRequested();
                 }
@@ -559,13 +610,87 @@ public class HashBuilderOperator
             return;
         }
         checkSpillSucceeded(spillInProgress);
+
+        long spilledBytes = getSpiller().getSpilledPagesInMemorySize();
+        if (maxSpilledPartitionSize.isPresent() && spilledBytes > maxSpilledPartitionSize.get().toBytes()) {
+            log.debug("Repartitioning spilled input for operator %s, spilled bytes: %s", operatorContext, succinctBytes(spilledBytes));
+            SingleStreamSpiller spiller = getSpiller();
+            splitter = Optional.of(new SpilledPartitionSplitter(
+                    index.getTypes(),
+                    createHashGenerator(),
+                    singleStreamSpillerFactory,
+                    operatorContext.getSpillContext(),
+                    operatorContext.aggregateSystemMemoryContext(),
+                    maxSpilledPartitionSize.get().toBytes(),
+                    maxSpillRepartitioningDepth,
+                    spiller::getSpilledPages,
+                    spilledPositions,
+                    spilledBytes));
+            state = State.INPUT_REPARTITIONING;
+            repartitionSpilledInput();
+            return;
+        }
+
+        setLayout(SpilledPartitionLayout.unpartitioned());
+        state = State.INPUT_SPILLED;
+    }
+
+    private void repartitionSpilledInput()
+    {
+        checkState(state == State.INPUT_REPARTITIONING);
+        if (!spillInProgress.isDone()) {
+            return;
+        }
+        checkSpillSucceeded(spillInProgress);
+
+        SpilledPartitionSplitter splitter = this.splitter.orElseThrow(() -> new IllegalStateException("Splitter not created"));
+        if (!splitter.isFinished()) {
+            spillInProgress = splitter.process();
+            return;
+        }
+
+        SpilledPartitionLayout layout = splitter.getLayout();
+        log.debug("Repartitioned spilled input for operator %s: %s", operatorContext, layout);
+        setLayout(layout);
         state = State.INPUT_SPILLED;
     }
 
+    private HashGenerator createHashGenerator()
+    {
+        if (preComputedHashChannel.isPresent()) {
+            return new PrecomputedHashGenerator(preComputedHashChannel.getAsInt());
+        }
+        List<Type> types = index.getTypes();
+        ImmutableList.Builder<Type> hashTypes = ImmutableList.builder();
+        for (int channel : hashChannels) {
+            hashTypes.add(types.get(channel));
+        }
+        return new InterpretedHashGenerator(hashTypes.build(), hashChannels);
+    }
+
+    private void setLayout(SpilledPartitionLayout layout)
+    {
+        this.layout = layout;
+        if (layout.getRounds().size() == 1) {
+            spilledLookupSourceHandle.setLayout(layout, ImmutableList.of(spilledLookupSourceHandle));
+            return;
+        }
+        ImmutableList.Builder<SpilledLookupSourceHandle> roundHandles = ImmutableList.builder();
+        for (int round = 0; round < layout.getRounds().size(); round++) {
+            roundHandles.add(new SpilledLookupSourceHandle());
+        }
+        spilledLookupSourceHandle.setLayout(layout, roundHandles.build());
+    }
+
+    private SpilledLookupSourceHandle getRoundHandle()
+    {
+        return spilledLookupSourceHandle.getRoundHandle(currentRound);
+    }
+
     private void unspillLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_SPILLED);
-        if (!spilledLookupSourceHandle.getUnspillingRequested().isDone()) {
+        if (!getRoundHandle().getUnspillingRequested().isDone()) {
             // Nothing to do yet.
             return;
         }
@@ -573,6 +698,13 @@ public class HashBuilderOperator
         verify(spiller.isPresent());
         verify(!unspillInProgress.isPresent());
 
+        if (splitter.isPresent()) {
+            // Sub-partitions are read synchronously, one chunk at a time. Memory is accounted when the chunk is added to the index.
+            unspillInProgress = Optional.of(immediateFuture(getRoundPages()));
+            state = State.INPUT_UNSPILLING;
+            return;
+        }
+
         long memorySizeOfSpillPages = getSpiller().getSpilledPagesInMemorySize();
         long estimatedSizeOfIndex = index.getEstimatedSize().toBytes();
         log.debug("Unspilling lookup source for operator %s: memorySizeOfSpillPages: %s estimatedSizeOfIndex: %s", operatorContext, memorySizeOfSpillPages, estimatedSizeOfIndex);
@@ -620,23 +752,71 @@ public class HashBuilderOperator
                 checkState(partition.checksum() == checksum, "Unspilled lookupSource checksum does not match original one"));
         localUserMemoryContext.setBytes(partition.get().getInMemorySizeInBytes(), enforceBroadcastMemoryLimit);
 
-        spilledLookupSourceHandle.setLookupSource(partition);
+        getRoundHandle().setLookupSource(partition);
 
         state = State.INPUT_UNSPILLED_AND_BUILT;
     }
 
+    private List<Page> getRoundPages()
+    {
+        SpilledPartitionSplitter splitter = this.splitter.get();
+        Round round = layout.getRounds().get(currentRound);
+        long positionCount = layout.getSubPartitions().get(round.getSubPartition()).getPositionCount();
+        if (round.getChunk() == 0) {
+            verify(subPartitionRemainder == null);
+            subPartitionPages = splitter.getSubPartitionPages(round.getSubPartition());
+        }
+
+        // the last chunk takes whatever is left, in case of a rounding error in the position count
+        long remainingPositions = round.isLastChunk() ? Long.MAX_VALUE : (positionCount + round.getChunkCount() - 1) / round.getChunkCount();
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        while (remainingPositions > 0) {
+            Page page;
+            if (subPartitionRemainder != null) {
+                page = subPartitionRemainder;
+                subPartitionRemainder = null;
+            }
+            else if (subPartitionPages.hasNext()) {
+                page = subPartitionPages.next();
+            }
+            else {
+                break;
+            }
+
+            if (page.getPositionCount() > remainingPositions) {
+                int length = toIntExact(remainingPositions);
+                pages.add(page.getRegion(0, length));
+                subPartitionRemainder = page.getRegion(length, page.getPositionCount() - length);
+                remainingPositions = 0;
+            }
+            else {
+                pages.add(page);
+                remainingPositions -= page.getPositionCount();
+            }
+        }
+        return pages.build();
+    }
+
     private void disposeUnspilledLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_UNSPILLED_AND_BUILT);
-        if (!spilledLookupSourceHandle.getDisposeRequested().isDone()) {
+        SpilledLookupSourceHandle roundHandle = getRoundHandle();
+        if (!roundHandle.getDisposeRequested().isDone()) {
             return;
         }
 
         index.clear();
         localUserMemoryContext.setBytes(index.getEstimatedSize().toBytes(), enforceBroadcastMemoryLimit);
 
-        close();
-        spilledLookupSourceHandle.setDisposeCompleted();
+        if (currentRound + 1 < layout.getRounds().size()) {
+            lookupSourceSupplier = null;
+            currentRound++;
+            state = State.INPUT_SPILLED;
+        }
+        else {
+            close();
+        }
+        roundHandle.setDisposeCompleted();
     }
 
     private LookupSourceSupplier buildLookupSource()
@@ -645,6 +825,7 @@ public class HashBuilderOperator
         hashCollisionsCounter.recordHashCollision(partition.getHashCollisions(), partition.getExpectedHashCollisions());
         operatorContext.recordNullJoinBuildKeyCount(partition.getPositionIsNullCount());
         operatorContext.recordJoinBuildKeyCount(partition.getPositionCount());
+        operatorContext.recordHashTableSize(expectedPositions, partition.getPositionCount());
         checkState(lookupSourceSupplier == null, "lookupSourceSupplier is already set");
         this.lookupSourceSupplier = partition;
         return partition;
@@ -676,12 +857,15 @@ public class HashBuilderOperator
         // close() can be called in any state, due for example to query failure, and must clean resource up unconditionally
         lookupSourceSupplier = null;
         unspillInProgress = Optional.empty();
+        subPartitionPages = null;
+        subPartitionRemainder = null;
         state = State.CLOSED;
         finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
 
         try (Closer closer = Closer.create()) {
             closer.register(index::clear);
             spiller.ifPresent(closer::register);
+            splitter.ifPresent(closer::register);
             closer.register(() -> localUserMemoryContext.setBytes(0, enforceBroadcastMemoryLimit));
             closer.register(() -> localRevocableMemoryContext.setBytes(0));
         }
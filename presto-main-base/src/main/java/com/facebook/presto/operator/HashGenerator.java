@@ -19,6 +19,18 @@ public interface HashGenerator
 {
     long hashPosition(int position, Page page);
 
+    /**
+     * Hashes {@code length} consecutive positions of the page starting at {@code positionOffset}
+     * into {@code hashes[0, length)}. The result must match {@link #hashPosition(int, Page)} for
+     * every position; implementations override this to hash whole blocks in tight loops.
+     */
+    default void hashPositions(Page page, int positionOffset, int length, long[] hashes)
+    {
+        for (int i = 0; i < length; i++) {
+            hashes[i] = hashPosition(positionOffset + i, page);
+        }
+    }
+
     default int getPartition(int partitionCount, int position, Page page)
     {
         long rawHash = hashPosition(position, page);
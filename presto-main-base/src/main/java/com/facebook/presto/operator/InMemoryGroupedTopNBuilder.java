@@ -33,6 +33,7 @@ import org.openjdk.jol.info.ClassLayout;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.PrimitiveIterator;
 import java.util.stream.IntStream;
 
@@ -159,6 +160,22 @@ public class InMemoryGroupedTopNBuilder
         return memoryContext.setBytes(getEstimatedSizeInBytes());
     }
 
+    /**
+     * Returns the last of the top N rows of the group as a single position page, or empty if the group has less than N rows.
+     */
+    Optional<Page> getLastRow(long groupId)
+    {
+        if (groupedRows.getCapacity() <= groupId) {
+            return Optional.empty();
+        }
+        RowHeap rows = groupedRows.get(groupId);
+        if (rows == null || rows.size() < topN) {
+            return Optional.empty();
+        }
+        Row lastRow = rows.first();
+        return Optional.of(pageReferences.get(lastRow.getPageId()).getPage().getSingleValuePage(lastRow.getPosition()));
+    }
+
     @VisibleForTesting
     List<Page> getBufferedPages()
     {
@@ -15,7 +15,13 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.IntArrayBlock;
+import com.facebook.presto.common.block.LongArrayBlock;
+import com.facebook.presto.common.block.VariableWidthBlock;
+import com.facebook.presto.common.type.AbstractIntType;
+import com.facebook.presto.common.type.AbstractLongType;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarcharType;
 import com.facebook.presto.operator.scalar.CombineHashFunction;
 import com.facebook.presto.type.TypeUtils;
 import jakarta.annotation.Nullable;
@@ -24,7 +30,11 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.function.IntFunction;
 
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.sql.planner.PlannerUtils.INITIAL_HASH_VALUE;
+import static com.facebook.presto.type.TypeUtils.NULL_HASH_CODE;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
@@ -89,6 +99,25 @@ public class InterpretedHashGenerator
         return result;
     }
 
+    @Override
+    public void hashPositions(Page page, int positionOffset, int length, long[] hashes)
+    {
+        Arrays.fill(hashes, 0, length, INITIAL_HASH_VALUE);
+        long[] valueHashes = null;
+        for (int i = 0; i < hashChannelTypes.length; i++) {
+            Type type = hashChannelTypes[i];
+            Block block = page.getBlock(hashChannels == null ? i : hashChannels[i]);
+            if (valueHashes == null && hasBatchHash(type, block)) {
+                valueHashes = new long[length];
+            }
+            if (!combineBatchHashes(type, block, positionOffset, length, valueHashes, hashes)) {
+                for (int position = 0; position < length; position++) {
+                    hashes[position] = CombineHashFunction.getHash(hashes[position], TypeUtils.hashPosition(type, block, positionOffset + position));
+                }
+            }
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -98,6 +127,60 @@ public class InterpretedHashGenerator
                 .toString();
     }
 
+    private static boolean hasBatchHash(Type type, Block block)
+    {
+        return (type == BIGINT && block instanceof LongArrayBlock)
+                || ((type == INTEGER || type == DATE) && block instanceof IntArrayBlock)
+                || (type instanceof VarcharType && block instanceof VariableWidthBlock);
+    }
+
+    /**
+     * Combines the hashes of a block of a common type into {@code hashes} without per position
+     * type dispatch. Value hashes are first materialized into {@code valueHashes} with nulls
+     * zeroed out separately, so that the combining loop is a plain array loop the JIT can
+     * unroll and vectorize. Returns false if the block or type has no batch implementation.
+     */
+    private static boolean combineBatchHashes(Type type, Block block, int positionOffset, int length, long[] valueHashes, long[] hashes)
+    {
+        if (!hasBatchHash(type, block)) {
+            return false;
+        }
+
+        if (block instanceof LongArrayBlock) {
+            LongArrayBlock longArrayBlock = (LongArrayBlock) block;
+            int internalOffset = longArrayBlock.getOffsetBase() + positionOffset;
+            for (int i = 0; i < length; i++) {
+                valueHashes[i] = AbstractLongType.hash(longArrayBlock.getLongUnchecked(internalOffset + i));
+            }
+        }
+        else if (block instanceof IntArrayBlock) {
+            IntArrayBlock intArrayBlock = (IntArrayBlock) block;
+            int internalOffset = intArrayBlock.getOffsetBase() + positionOffset;
+            for (int i = 0; i < length; i++) {
+                valueHashes[i] = AbstractIntType.hash(intArrayBlock.getIntUnchecked(internalOffset + i));
+            }
+        }
+        else {
+            for (int i = 0; i < length; i++) {
+                int position = positionOffset + i;
+                valueHashes[i] = block.hash(position, 0, block.getSliceLength(position));
+            }
+        }
+
+        if (block.mayHaveNull()) {
+            for (int i = 0; i < length; i++) {
+                if (block.isNull(positionOffset + i)) {
+                    valueHashes[i] = NULL_HASH_CODE;
+                }
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            hashes[i] = CombineHashFunction.getHash(hashes[i], valueHashes[i]);
+        }
+        return true;
+    }
+
     private static boolean isPositionalChannels(int[] hashChannels)
     {
         for (int i = 0; i < hashChannels.length; i++) {
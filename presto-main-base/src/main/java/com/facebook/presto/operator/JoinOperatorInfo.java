@@ -36,8 +36,15 @@ public class JoinOperatorInfo
     private final long[] logHistogramProbes;
     private final long[] logHistogramOutput;
     private final Optional<Long> lookupSourcePositions;
+    private final int spillRecursionDepth;
+    private final double spillSkew;
 
     public static JoinOperatorInfo createJoinOperatorInfo(JoinType joinType, long[] logHistogramCounters, Optional<Long> lookupSourcePositions)
+    {
+        return createJoinOperatorInfo(joinType, logHistogramCounters, lookupSourcePositions, 0, 0);
+    }
+
+    public static JoinOperatorInfo createJoinOperatorInfo(JoinType joinType, long[] logHistogramCounters, Optional<Long> lookupSourcePositions, int spillRecursionDepth, double spillSkew)
     {
         long[] logHistogramProbes = new long[HISTOGRAM_BUCKETS];
         long[] logHistogramOutput = new long[HISTOGRAM_BUCKETS];
@@ -45,7 +52,7 @@ public class JoinOperatorInfo
             logHistogramProbes[i] = logHistogramCounters[2 * i];
             logHistogramOutput[i] = logHistogramCounters[2 * i + 1];
         }
-        return new JoinOperatorInfo(joinType, logHistogramProbes, logHistogramOutput, lookupSourcePositions);
+        return new JoinOperatorInfo(joinType, logHistogramProbes, logHistogramOutput, lookupSourcePositions, spillRecursionDepth, spillSkew);
     }
 
     @JsonCreator
@@ -54,7 +61,9 @@ public class JoinOperatorInfo
             @JsonProperty("joinType") JoinType joinType,
             @JsonProperty("logHistogramProbes") long[] logHistogramProbes,
             @JsonProperty("logHistogramOutput") long[] logHistogramOutput,
-            @JsonProperty("lookupSourcePositions") Optional<Long> lookupSourcePositions)
+            @JsonProperty("lookupSourcePositions") Optional<Long> lookupSourcePositions,
+            @JsonProperty("spillRecursionDepth") int spillRecursionDepth,
+            @JsonProperty("spillSkew") double spillSkew)
     {
         checkArgument(logHistogramProbes.length == HISTOGRAM_BUCKETS);
         checkArgument(logHistogramOutput.length == HISTOGRAM_BUCKETS);
@@ -62,6 +71,8 @@ public class JoinOperatorInfo
         this.logHistogramProbes = logHistogramProbes;
         this.logHistogramOutput = logHistogramOutput;
         this.lookupSourcePositions = lookupSourcePositions;
+        this.spillRecursionDepth = spillRecursionDepth;
+        this.spillSkew = spillSkew;
     }
 
     @JsonProperty
@@ -95,6 +106,26 @@ public class JoinOperatorInfo
         return lookupSourcePositions;
     }
 
+    /**
+     * Deepest recursive repartitioning of a spilled build partition, 0 when no spilled partition was repartitioned
+     */
+    @JsonProperty
+    @ThriftField(5)
+    public int getSpillRecursionDepth()
+    {
+        return spillRecursionDepth;
+    }
+
+    /**
+     * Largest ratio of the largest to the average sub-partition of a repartitioned spilled build partition, 0 when no spilled partition was repartitioned
+     */
+    @JsonProperty
+    @ThriftField(6)
+    public double getSpillSkew()
+    {
+        return spillSkew;
+    }
+
     @Override
     public String toString()
     {
@@ -103,6 +134,8 @@ public class JoinOperatorInfo
                 .add("logHistogramProbes", logHistogramProbes)
                 .add("logHistogramOutput", logHistogramOutput)
                 .add("lookupSourcePositions", lookupSourcePositions)
+                .add("spillRecursionDepth", spillRecursionDepth)
+                .add("spillSkew", spillSkew)
                 .toString();
     }
 
@@ -122,7 +155,13 @@ public class JoinOperatorInfo
             mergedSourcePositions = Optional.of(this.lookupSourcePositions.orElse(0L) + other.lookupSourcePositions.orElse(0L));
         }
 
-        return new JoinOperatorInfo(this.joinType, logHistogramProbes, logHistogramOutput, mergedSourcePositions);
+        return new JoinOperatorInfo(
+                this.joinType,
+                logHistogramProbes,
+                logHistogramOutput,
+                mergedSourcePositions,
+                Math.max(this.spillRecursionDepth, other.spillRecursionDepth),
+                Math.max(this.spillSkew, other.spillSkew));
     }
 
     @Override
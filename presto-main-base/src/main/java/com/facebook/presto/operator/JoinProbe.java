@@ -14,14 +14,14 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
-import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
-import jakarta.annotation.Nullable;
 
 import java.util.List;
 import java.util.OptionalInt;
 
-import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.google.common.base.Preconditions.checkArgument;
 
 public class JoinProbe
 {
@@ -30,18 +30,27 @@ public class JoinProbe
         private final int[] probeOutputChannels;
         private final int[] probeJoinChannels;
         private final int probeHashChannel; // only valid when >= 0
+        private final HashGenerator probeHashGenerator;
 
-        public JoinProbeFactory(int[] probeOutputChannels, List<Integer> probeJoinChannels, OptionalInt probeHashChannel)
+        public JoinProbeFactory(int[] probeOutputChannels, List<Integer> probeJoinChannels, OptionalInt probeHashChannel, List<Type> probeJoinChannelTypes)
         {
             this.probeOutputChannels = probeOutputChannels;
             this.probeJoinChannels = Ints.toArray(probeJoinChannels);
             this.probeHashChannel = probeHashChannel.orElse(-1);
+            checkArgument(probeJoinChannelTypes.size() == probeJoinChannels.size(), "probeJoinChannelTypes and probeJoinChannels sizes do not match");
+            // the precomputed hash block is appended after the join channels of the probe page
+            this.probeHashGenerator = probeHashChannel.isPresent()
+                    ? new PrecomputedHashGenerator(probeJoinChannels.size())
+                    : InterpretedHashGenerator.createPositionalWithTypes(ImmutableList.copyOf(probeJoinChannelTypes));
         }
 
         public JoinProbe createJoinProbe(Page page)
         {
             Page probePage = page.getLoadedPage(probeJoinChannels);
-            return new JoinProbe(probeOutputChannels, page, probePage, probeHashChannel >= 0 ? page.getBlock(probeHashChannel).getLoadedBlock() : null);
+            Page hashPage = probeHashChannel >= 0 ? probePage.appendColumn(page.getBlock(probeHashChannel).getLoadedBlock()) : probePage;
+            long[] probeHashes = new long[page.getPositionCount()];
+            probeHashGenerator.hashPositions(hashPage, 0, page.getPositionCount(), probeHashes);
+            return new JoinProbe(probeOutputChannels, page, probePage, probeHashes);
         }
     }
 
@@ -49,20 +58,19 @@ public class JoinProbe
     private final int positionCount;
     private final Page page;
     private final Page probePage;
-    @Nullable
-    private final Block probeHashBlock;
+    private final long[] probeHashes;
     private final boolean probeMayHaveNull;
 
     private int position = -1;
     private int nullRowCount;
 
-    private JoinProbe(int[] probeOutputChannels, Page page, Page probePage, @Nullable Block probeHashBlock)
+    private JoinProbe(int[] probeOutputChannels, Page page, Page probePage, long[] probeHashes)
     {
         this.probeOutputChannels = probeOutputChannels;
         this.positionCount = page.getPositionCount();
         this.page = page;
         this.probePage = probePage;
-        this.probeHashBlock = probeHashBlock;
+        this.probeHashes = probeHashes;
         this.probeMayHaveNull = probeMayHaveNull(probePage);
     }
 
@@ -82,11 +90,7 @@ public class JoinProbe
             ++nullRowCount;
             return -1;
         }
-        if (probeHashBlock != null) {
-            long rawHash = BIGINT.getLong(probeHashBlock, position);
-            return lookupSource.getJoinPosition(position, probePage, page, rawHash);
-        }
-        return lookupSource.getJoinPosition(position, probePage, page);
+        return lookupSource.getJoinPosition(position, probePage, page, probeHashes[position]);
     }
 
     public int getPosition()
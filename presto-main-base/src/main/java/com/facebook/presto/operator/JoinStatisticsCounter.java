@@ -41,6 +41,9 @@ public class JoinStatisticsCounter
      */
     private Optional<Long> lookupSourcePositions = Optional.empty();
 
+    private int spillRecursionDepth;
+    private double spillSkew;
+
     public JoinStatisticsCounter(JoinType joinType)
     {
         this.joinType = requireNonNull(joinType, "joinType is null");
@@ -51,6 +54,16 @@ public class JoinStatisticsCounter
         this.lookupSourcePositions = Optional.of(this.lookupSourcePositions.orElse(0L) + lookupSourcePositionsDelta);
     }
 
+    public void recordSpilledPartitionLayout(SpilledPartitionLayout layout)
+    {
+        if (layout.getRounds().size() == 1) {
+            // unspilled at once
+            return;
+        }
+        spillRecursionDepth = Math.max(spillRecursionDepth, layout.getDepth());
+        spillSkew = Math.max(spillSkew, layout.getSkew());
+    }
+
     public void recordProbe(int numSourcePositions)
     {
         int bucket;
@@ -73,6 +86,6 @@ public class JoinStatisticsCounter
     @Override
     public JoinOperatorInfo get()
     {
-        return createJoinOperatorInfo(joinType, logHistogramCounters, lookupSourcePositions);
+        return createJoinOperatorInfo(joinType, logHistogramCounters, lookupSourcePositions, spillRecursionDepth, spillSkew);
     }
 }
@@ -19,6 +19,7 @@ import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
 import com.facebook.presto.operator.LookupJoinOperators.JoinType;
 import com.facebook.presto.operator.LookupSourceProvider.LookupSourceLease;
 import com.facebook.presto.operator.PartitionedConsumption.Partition;
+import com.facebook.presto.operator.SpilledPartitionLayout.Round;
 import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spiller.PartitioningSpiller;
 import com.facebook.presto.spiller.PartitioningSpiller.PartitioningSpillResult;
@@ -29,6 +30,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import jakarta.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -45,6 +47,7 @@ import static com.facebook.presto.operator.LookupJoinOperators.JoinType.PROBE_OU
 import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
@@ -94,6 +97,18 @@ public class LookupJoinOperator
     private Optional<Partition<Supplier<LookupSource>>> currentPartition = Optional.empty();
     private Optional<ListenableFuture<Supplier<LookupSource>>> unspilledLookupSource = Optional.empty();
     private Iterator<Page> unspilledInputPages = emptyIterator();
+
+    // Spilled partitions whose build side is repartitioned are unspilled in rounds, see SpilledPartitionLayout
+    private Optional<PartitioningSpiller> subPartitionSpiller = Optional.empty();
+    private Iterator<Page> probePagesToSplit = emptyIterator();
+    private Optional<PartitioningSpiller> chunkSpiller = Optional.empty();
+    private Optional<PartitioningSpiller> nextChunkSpiller = Optional.empty();
+    private boolean lastChunk = true;
+    // probe rows of a probe outer join that matched a previous chunk of build rows of the current sub-partition
+    @Nullable
+    private BitSet matchedProbePositions;
+    private int probePositionOffset;
+    private int nextProbePositionOffset;
     private final boolean optimizeProbeForEmptyBuild;
     private long nullProbeRowCount;
     private long inputProbeRowCount;
@@ -355,7 +370,19 @@ public class LookupJoinOperator
         }
 
         if (unspilledInputPages.hasNext()) {
-            addInput(unspilledInputPages.next());
+            Page page = unspilledInputPages.next();
+            if (nextChunkSpiller.isPresent()) {
+                // the probe rows are joined again with the next chunk of the build rows
+                spillInProgress = nextChunkSpiller.get().partitionAndSpill(page, partition -> true).getSpillingFuture();
+            }
+            probePositionOffset = nextProbePositionOffset;
+            nextProbePositionOffset = toIntExact((long) nextProbePositionOffset + page.getPositionCount());
+            addInput(page);
+            return;
+        }
+
+        if (probePagesToSplit.hasNext()) {
+            spillInProgress = subPartitionSpiller.get().partitionAndSpill(probePagesToSplit.next(), partition -> true).getSpillingFuture();
             return;
         }
 
@@ -373,11 +400,15 @@ public class LookupJoinOperator
             // If the partition was spilled during processing, its position count will be considered twice.
             statisticsCounter.updateLookupSourcePositions(lookupSource.getJoinPositionCount());
 
-            int partition = currentPartition.get().number();
-            unspilledInputPages = spiller.map(spiller -> spiller.getSpilledPages(partition))
-                    .orElse(emptyIterator());
+            SpilledPartitionRound round = lookupSourceFactory.getSpilledPartitionRound(currentPartition.get().number());
+            int partition = round.getPartition();
+            unspilledInputPages = getSpilledProbePages(round);
+            if (!round.isFirstRound()) {
+                return;
+            }
 
             Optional.ofNullable(savedRows.remove(partition)).ifPresent(savedRow -> {
+                verify(round.getLayout().getRounds().size() == 1, "Saved row of partition %s unspilled in rounds", partition);
                 restoreProbe(
                         savedRow.row,
                         savedRow.joinPositionWithinPartition,
@@ -392,6 +423,10 @@ public class LookupJoinOperator
         if (lookupPartitions.hasNext()) {
             currentPartition.ifPresent(Partition::release);
             currentPartition = Optional.of(lookupPartitions.next());
+            SpilledPartitionRound round = lookupSourceFactory.getSpilledPartitionRound(currentPartition.get().number());
+            if (round.isFirstRound() && round.getLayout().getRounds().size() > 1) {
+                splitSpilledProbePages(round);
+            }
             unspilledLookupSource = Optional.of(currentPartition.get().load());
 
             return;
@@ -399,6 +434,7 @@ public class LookupJoinOperator
 
         currentPartition.ifPresent(Partition::release);
         currentPartition = Optional.empty();
+        closeRoundSpillers();
         if (lookupSourceProvider != null) {
             // There are no more partitions to process, so clean up everything
             lookupSourceProvider.close();
@@ -410,6 +446,96 @@ public class LookupJoinOperator
         finished = true;
     }
 
+    /**
+     * Splits the spilled probe rows of a partition into the sub-partitions its build side was split into.
+     */
+    private void splitSpilledProbePages(SpilledPartitionRound round)
+    {
+        SpilledPartitionLayout layout = round.getLayout();
+        statisticsCounter.recordSpilledPartitionLayout(layout);
+        closeRoundSpillers();
+        if (!spiller.isPresent()) {
+            // nothing was spilled on the probe side
+            return;
+        }
+        subPartitionSpiller = Optional.of(partitioningSpillerFactory.create(
+                probeTypes,
+                layout.getSubPartitionFunction(hashGenerator),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.aggregateSystemMemoryContext()));
+        probePagesToSplit = spiller.get().getSpilledPages(round.getPartition());
+    }
+
+    private Iterator<Page> getSpilledProbePages(SpilledPartitionRound round)
+    {
+        probePositionOffset = 0;
+        nextProbePositionOffset = 0;
+        if (round.getLayout().getRounds().size() == 1) {
+            lastChunk = true;
+            matchedProbePositions = null;
+            return spiller.map(spiller -> spiller.getSpilledPages(round.getPartition()))
+                    .orElse(emptyIterator());
+        }
+
+        Round subPartitionRound = round.getRound();
+        lastChunk = subPartitionRound.isLastChunk();
+        if (subPartitionRound.getChunkCount() == 1 || !probeOnOuterSide) {
+            matchedProbePositions = null;
+        }
+        else if (subPartitionRound.getChunk() == 0) {
+            matchedProbePositions = new BitSet();
+        }
+
+        closeChunkSpiller();
+        Iterator<Page> pages;
+        if (subPartitionRound.getChunk() == 0) {
+            pages = subPartitionSpiller.map(spiller -> spiller.getSpilledPages(subPartitionRound.getSubPartition()))
+                    .orElse(emptyIterator());
+        }
+        else {
+            chunkSpiller = nextChunkSpiller;
+            nextChunkSpiller = Optional.empty();
+            pages = chunkSpiller.map(spiller -> spiller.getSpilledPages(0))
+                    .orElse(emptyIterator());
+        }
+        if (!subPartitionRound.isLastChunk() && subPartitionSpiller.isPresent()) {
+            nextChunkSpiller = Optional.of(partitioningSpillerFactory.create(
+                    probeTypes,
+                    new LocalPartitionGenerator(hashGenerator, 1),
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.aggregateSystemMemoryContext()));
+        }
+        return pages;
+    }
+
+    private void closeChunkSpiller()
+    {
+        try (Closer closer = Closer.create()) {
+            chunkSpiller.ifPresent(closer::register);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        chunkSpiller = Optional.empty();
+    }
+
+    private void closeRoundSpillers()
+    {
+        try (Closer closer = Closer.create()) {
+            subPartitionSpiller.ifPresent(closer::register);
+            chunkSpiller.ifPresent(closer::register);
+            nextChunkSpiller.ifPresent(closer::register);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        subPartitionSpiller = Optional.empty();
+        probePagesToSplit = emptyIterator();
+        chunkSpiller = Optional.empty();
+        nextChunkSpiller = Optional.empty();
+        matchedProbePositions = null;
+    }
+
     private void processProbe()
     {
         verify(probe != null);
@@ -551,6 +677,7 @@ public class LookupJoinOperator
             closer.register(pageBuilder::reset);
             closer.register(() -> Optional.ofNullable(lookupSourceProvider).ifPresent(LookupSourceProvider::close));
             spiller.ifPresent(closer::register);
+            closer.register(this::closeRoundSpillers);
         }
         catch (IOException e) {
             throw new RuntimeException(e);
@@ -570,6 +697,9 @@ public class LookupJoinOperator
         while (joinPosition >= 0) {
             if (lookupSource.isJoinPositionEligible(joinPosition, probe.getPosition(), probe.getPage())) {
                 currentProbePositionProducedRow = true;
+                if (matchedProbePositions != null) {
+                    matchedProbePositions.set(probePositionOffset + probe.getPosition());
+                }
 
                 pageBuilder.appendRow(probe, lookupSource, joinPosition);
                 joinSourcePositions++;
@@ -607,6 +737,10 @@ public class LookupJoinOperator
      */
     private boolean outerJoinCurrentPosition()
     {
+        if (matchedProbePositions != null && (!lastChunk || matchedProbePositions.get(probePositionOffset + probe.getPosition()))) {
+            // the probe row is joined with the build rows of the sub-partition in chunks, and matched or may match another chunk
+            return true;
+        }
         if (probeOnOuterSide && joinPosition < 0) {
             pageBuilder.appendNullForBuild(probe);
             if (tryBuildPage()) {
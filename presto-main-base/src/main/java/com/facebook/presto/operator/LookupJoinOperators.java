@@ -193,7 +193,11 @@ public class LookupJoinOperators
                 probeOutputChannelTypes,
                 lookupSourceFactoryManager.getBuildOutputTypes(),
                 joinType,
-                new JoinProbeFactory(probeOutputChannels.stream().mapToInt(i -> i).toArray(), probeJoinChannel, probeHashChannel),
+                new JoinProbeFactory(
+                        probeOutputChannels.stream().mapToInt(i -> i).toArray(),
+                        probeJoinChannel,
+                        probeHashChannel,
+                        probeJoinChannel.stream().map(probeTypes::get).collect(toImmutableList())),
                 totalOperatorsCount,
                 probeJoinChannel,
                 probeHashChannel,
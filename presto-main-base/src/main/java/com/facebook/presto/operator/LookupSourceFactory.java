@@ -50,6 +50,14 @@ public interface LookupSourceFactory
                 }));
     }
 
+    /**
+     * Returns the spilled partition round with the given number of the {@link PartitionedConsumption} returned by {@link #finishProbeOperator}.
+     */
+    default SpilledPartitionRound getSpilledPartitionRound(int roundNumber)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Can be called only after {@link #createLookupSourceProvider()} is done and all users of {@link LookupSource}-s finished.
      */
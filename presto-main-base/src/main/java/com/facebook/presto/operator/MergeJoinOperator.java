@@ -0,0 +1,631 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.plan.JoinType;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.facebook.airlift.units.DataSize.succinctBytes;
+import static com.facebook.presto.operator.project.PageProcessor.MAX_BATCH_SIZE;
+import static com.facebook.presto.spi.StandardErrorCode.EXCEEDED_LOCAL_MEMORY_LIMIT;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static com.facebook.presto.spi.plan.JoinType.FULL;
+import static com.facebook.presto.spi.plan.JoinType.INNER;
+import static com.facebook.presto.spi.plan.JoinType.LEFT;
+import static com.facebook.presto.spi.plan.JoinType.RIGHT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Joins two inputs that are both sorted ascending (nulls first) on the join keys.
+ * The left input is pushed into this operator, while the right input is streamed
+ * through a {@link MergeJoinPagesBridge}. Apart from the bounded bridge queue, only
+ * the right rows sharing the key of the current left row are retained, up to
+ * {@code maxMatchGroupSizeInBytes}. The sort order of both inputs is verified as the
+ * pages arrive, since a wrongly ordered input would silently produce wrong results.
+ */
+public class MergeJoinOperator
+        implements Operator, Closeable
+{
+    public static class MergeJoinOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId planNodeId;
+        private final JoinBridgeManager<MergeJoinPagesBridge> joinBridgeManager;
+        private final JoinType joinType;
+        private final List<Type> leftTypes;
+        private final List<Integer> leftJoinChannels;
+        private final List<Integer> leftOutputChannels;
+        private final List<Type> rightTypes;
+        private final List<Integer> rightJoinChannels;
+        private final List<Integer> rightOutputChannels;
+        private final long maxMatchGroupSizeInBytes;
+        private boolean closed;
+
+        public MergeJoinOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                JoinBridgeManager<MergeJoinPagesBridge> joinBridgeManager,
+                JoinType joinType,
+                List<Type> leftTypes,
+                List<Integer> leftJoinChannels,
+                List<Integer> leftOutputChannels,
+                List<Type> rightTypes,
+                List<Integer> rightJoinChannels,
+                List<Integer> rightOutputChannels,
+                long maxMatchGroupSizeInBytes)
+        {
+            this.operatorId = operatorId;
+            this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.joinBridgeManager = requireNonNull(joinBridgeManager, "joinBridgeManager is null");
+            this.joinType = requireNonNull(joinType, "joinType is null");
+            this.leftTypes = ImmutableList.copyOf(requireNonNull(leftTypes, "leftTypes is null"));
+            this.leftJoinChannels = ImmutableList.copyOf(requireNonNull(leftJoinChannels, "leftJoinChannels is null"));
+            this.leftOutputChannels = ImmutableList.copyOf(requireNonNull(leftOutputChannels, "leftOutputChannels is null"));
+            this.rightTypes = ImmutableList.copyOf(requireNonNull(rightTypes, "rightTypes is null"));
+            this.rightJoinChannels = ImmutableList.copyOf(requireNonNull(rightJoinChannels, "rightJoinChannels is null"));
+            this.rightOutputChannels = ImmutableList.copyOf(requireNonNull(rightOutputChannels, "rightOutputChannels is null"));
+            this.maxMatchGroupSizeInBytes = maxMatchGroupSizeInBytes;
+            checkArgument(maxMatchGroupSizeInBytes > 0, "maxMatchGroupSizeInBytes must be positive");
+            checkArgument(joinType == INNER || joinType == LEFT || joinType == RIGHT || joinType == FULL, "Unsupported join type: %s", joinType);
+            checkArgument(!leftJoinChannels.isEmpty(), "leftJoinChannels is empty");
+            checkArgument(leftJoinChannels.size() == rightJoinChannels.size(), "leftJoinChannels and rightJoinChannels must have the same size");
+            this.joinBridgeManager.incrementProbeFactoryCount();
+        }
+
+        private MergeJoinOperatorFactory(MergeJoinOperatorFactory other)
+        {
+            requireNonNull(other, "other is null");
+            this.operatorId = other.operatorId;
+            this.planNodeId = other.planNodeId;
+            this.joinBridgeManager = other.joinBridgeManager;
+            this.joinType = other.joinType;
+            this.leftTypes = other.leftTypes;
+            this.leftJoinChannels = other.leftJoinChannels;
+            this.leftOutputChannels = other.leftOutputChannels;
+            this.rightTypes = other.rightTypes;
+            this.rightJoinChannels = other.rightJoinChannels;
+            this.rightOutputChannels = other.rightOutputChannels;
+            this.maxMatchGroupSizeInBytes = other.maxMatchGroupSizeInBytes;
+
+            // closed is intentionally not copied
+            closed = false;
+
+            joinBridgeManager.incrementProbeFactoryCount();
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            MergeJoinPagesBridge bridge = joinBridgeManager.getJoinBridge(driverContext.getLifespan());
+
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MergeJoinOperator.class.getSimpleName());
+
+            joinBridgeManager.probeOperatorCreated(driverContext.getLifespan());
+            return new MergeJoinOperator(
+                    operatorContext,
+                    bridge,
+                    joinType,
+                    leftTypes,
+                    leftJoinChannels,
+                    leftOutputChannels,
+                    rightTypes,
+                    rightJoinChannels,
+                    rightOutputChannels,
+                    maxMatchGroupSizeInBytes,
+                    () -> joinBridgeManager.probeOperatorClosed(driverContext.getLifespan()));
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            joinBridgeManager.probeOperatorFactoryClosedForAllLifespans();
+        }
+
+        @Override
+        public void noMoreOperators(Lifespan lifespan)
+        {
+            joinBridgeManager.probeOperatorFactoryClosed(lifespan);
+        }
+
+        @Override
+        public OperatorFactory duplicate()
+        {
+            return new MergeJoinOperatorFactory(this);
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final MergeJoinPagesBridge bridge;
+    private final boolean probeOuter;
+    private final boolean buildOuter;
+    private final List<Type> keyTypes;
+    private final List<Type> rightKeyTypes;
+    private final int[] leftJoinChannels;
+    private final int[] leftOutputChannels;
+    private final List<Type> leftOutputTypes;
+    private final int[] rightJoinChannels;
+    private final int[] rightOutputChannels;
+    private final List<Type> rightOutputTypes;
+    private final long maxMatchGroupSizeInBytes;
+    private final PageBuilder pageBuilder;
+    private final LocalMemoryContext localUserMemoryContext;
+    private final Runnable afterClose;
+
+    private Page leftPage;
+    private int leftPosition;
+
+    // join key of the last row of the previous page on each side, used to verify the sort order
+    @Nullable
+    private Page lastLeftKey;
+    @Nullable
+    private Page lastRightKey;
+
+    // cursor on the right side, pointing at the first right row that has not been matched or emitted yet
+    private Page rightPage;
+    private int rightPosition;
+
+    // right rows with the key of the current left row; regions of consecutive right pages
+    private final List<Page> matchGroup = new ArrayList<>();
+    private long matchGroupSizeInBytes;
+    private boolean collectingMatchGroup;
+    private boolean emittingMatches;
+    private int matchGroupPageIndex;
+    private int matchGroupPosition;
+
+    private ListenableFuture<?> blocked = NOT_BLOCKED;
+    private boolean finishing;
+    private boolean closed;
+
+    private MergeJoinOperator(
+            OperatorContext operatorContext,
+            MergeJoinPagesBridge bridge,
+            JoinType joinType,
+            List<Type> leftTypes,
+            List<Integer> leftJoinChannels,
+            List<Integer> leftOutputChannels,
+            List<Type> rightTypes,
+            List<Integer> rightJoinChannels,
+            List<Integer> rightOutputChannels,
+            long maxMatchGroupSizeInBytes,
+            Runnable afterClose)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.bridge = requireNonNull(bridge, "bridge is null");
+        this.probeOuter = joinType == LEFT || joinType == FULL;
+        this.buildOuter = joinType == RIGHT || joinType == FULL;
+        this.keyTypes = leftJoinChannels.stream()
+                .map(leftTypes::get)
+                .collect(toImmutableList());
+        this.leftJoinChannels = Ints.toArray(leftJoinChannels);
+        this.leftOutputChannels = Ints.toArray(leftOutputChannels);
+        this.leftOutputTypes = leftOutputChannels.stream()
+                .map(leftTypes::get)
+                .collect(toImmutableList());
+        this.rightKeyTypes = rightJoinChannels.stream()
+                .map(rightTypes::get)
+                .collect(toImmutableList());
+        this.rightJoinChannels = Ints.toArray(rightJoinChannels);
+        this.rightOutputChannels = Ints.toArray(rightOutputChannels);
+        this.rightOutputTypes = rightOutputChannels.stream()
+                .map(rightTypes::get)
+                .collect(toImmutableList());
+        this.maxMatchGroupSizeInBytes = maxMatchGroupSizeInBytes;
+        this.pageBuilder = new PageBuilder(ImmutableList.<Type>builder()
+                .addAll(leftOutputTypes)
+                .addAll(rightOutputTypes)
+                .build());
+        this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.afterClose = requireNonNull(afterClose, "afterClose is null");
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public void finish()
+    {
+        finishing = true;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        boolean finished = finishing
+                && leftPage == null
+                && pageBuilder.isEmpty()
+                && (!buildOuter || isRightExhausted());
+
+        if (finished) {
+            close();
+        }
+        return finished;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (blocked.isDone()) {
+            blocked = NOT_BLOCKED;
+        }
+        return blocked;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && leftPage == null;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(!finishing, "Operator is finishing");
+        checkState(leftPage == null, "Current page has not been completely processed yet");
+
+        if (page.getPositionCount() > 0) {
+            lastLeftKey = verifySorted("Left", page, leftJoinChannels, keyTypes, lastLeftKey);
+            leftPage = page;
+            leftPosition = 0;
+        }
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        while (!isOutputFull() && processStep()) {
+            // keep joining until the output page is full or more input is required
+        }
+        updateMemoryReservation();
+
+        if (pageBuilder.isEmpty()) {
+            return null;
+        }
+        Page page = pageBuilder.build();
+        pageBuilder.reset();
+        return page;
+    }
+
+    @Override
+    public void close()
+    {
+        leftPage = null;
+        rightPage = null;
+        lastLeftKey = null;
+        lastRightKey = null;
+        releaseMatchGroup();
+        // We don't want to release the bridge multiple times, since its reference counted
+        if (closed) {
+            return;
+        }
+        closed = true;
+        localUserMemoryContext.setBytes(0);
+        // `afterClose` must be run last.
+        afterClose.run();
+    }
+
+    /**
+     * Makes one step of progress in the merge.
+     *
+     * @return false if no progress can be made until more input arrives on either side
+     */
+    private boolean processStep()
+    {
+        if (collectingMatchGroup) {
+            return collectMatchGroup();
+        }
+
+        if (leftPage == null) {
+            if (!finishing) {
+                // the next left page may continue the key of the current match group
+                return false;
+            }
+            // all left rows have been processed, only unmatched right rows remain
+            releaseMatchGroup();
+            if (!buildOuter || !advanceToRightRow()) {
+                return false;
+            }
+            emitUnmatchedRightRow();
+            return true;
+        }
+
+        if (emittingMatches) {
+            emitMatches();
+            return true;
+        }
+
+        if (hasNullKey(leftPage, leftJoinChannels, leftPosition)) {
+            emitUnmatchedLeftRow();
+            return true;
+        }
+
+        if (!matchGroup.isEmpty()) {
+            if (compareKeys(leftPage, leftPosition, matchGroup.get(0), 0) == 0) {
+                startEmittingMatches();
+                return true;
+            }
+            releaseMatchGroup();
+        }
+
+        if (!advanceToRightRow()) {
+            if (!isRightExhausted()) {
+                return false;
+            }
+            emitUnmatchedLeftRow();
+            return true;
+        }
+
+        if (hasNullKey(rightPage, rightJoinChannels, rightPosition)) {
+            emitUnmatchedRightRow();
+            return true;
+        }
+
+        int comparison = compareKeys(leftPage, leftPosition, rightPage, rightPosition);
+        if (comparison > 0) {
+            emitUnmatchedRightRow();
+        }
+        else if (comparison < 0) {
+            emitUnmatchedLeftRow();
+        }
+        else {
+            collectingMatchGroup = true;
+        }
+        return true;
+    }
+
+    /**
+     * Moves all right rows with the key of the current left row into the match group.
+     * The group is complete once a right row with a different key is seen, or the right side is exhausted.
+     */
+    private boolean collectMatchGroup()
+    {
+        while (advanceToRightRow()) {
+            int end = rightPosition;
+            int positionCount = rightPage.getPositionCount();
+            while (end < positionCount && !hasNullKey(rightPage, rightJoinChannels, end) && compareKeys(leftPage, leftPosition, rightPage, end) == 0) {
+                end++;
+            }
+            if (end > rightPosition) {
+                Page region = rightPage.getRegion(rightPosition, end - rightPosition);
+                matchGroup.add(region);
+                matchGroupSizeInBytes += region.getSizeInBytes();
+                rightPosition = end;
+                if (matchGroupSizeInBytes > maxMatchGroupSizeInBytes) {
+                    throw new PrestoException(EXCEEDED_LOCAL_MEMORY_LIMIT, format(
+                            "Rows of the right input of merge join sharing a single join key exceed the limit of %s",
+                            succinctBytes(maxMatchGroupSizeInBytes)));
+                }
+                // the group may span many right pages, so reserve its memory as it grows
+                updateMemoryReservation();
+            }
+            if (end < positionCount) {
+                collectingMatchGroup = false;
+                return true;
+            }
+        }
+        if (isRightExhausted()) {
+            collectingMatchGroup = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes sure the right cursor points at a row, fetching the next right page if needed.
+     * When no row is available, the operator is blocked until the right side produces more pages.
+     */
+    private boolean advanceToRightRow()
+    {
+        while (rightPage == null || rightPosition >= rightPage.getPositionCount()) {
+            rightPage = bridge.pollPage();
+            rightPosition = 0;
+            if (rightPage == null) {
+                blocked = bridge.whenPagesAvailable();
+                return false;
+            }
+            if (rightPage.getPositionCount() > 0) {
+                lastRightKey = verifySorted("Right", rightPage, rightJoinChannels, rightKeyTypes, lastRightKey);
+            }
+        }
+        return true;
+    }
+
+    private boolean isRightExhausted()
+    {
+        return (rightPage == null || rightPosition >= rightPage.getPositionCount()) && bridge.isFinished();
+    }
+
+    private void startEmittingMatches()
+    {
+        emittingMatches = true;
+        matchGroupPageIndex = 0;
+        matchGroupPosition = 0;
+    }
+
+    private void emitMatches()
+    {
+        while (!isOutputFull() && matchGroupPageIndex < matchGroup.size()) {
+            Page matchPage = matchGroup.get(matchGroupPageIndex);
+            pageBuilder.declarePosition();
+            appendLeftRow(leftPage, leftPosition);
+            appendRightRow(matchPage, matchGroupPosition);
+            matchGroupPosition++;
+            if (matchGroupPosition == matchPage.getPositionCount()) {
+                matchGroupPageIndex++;
+                matchGroupPosition = 0;
+            }
+        }
+        if (matchGroupPageIndex == matchGroup.size()) {
+            emittingMatches = false;
+            advanceLeft();
+        }
+    }
+
+    private void emitUnmatchedLeftRow()
+    {
+        if (probeOuter) {
+            pageBuilder.declarePosition();
+            appendLeftRow(leftPage, leftPosition);
+            for (int i = 0; i < rightOutputChannels.length; i++) {
+                pageBuilder.getBlockBuilder(leftOutputChannels.length + i).appendNull();
+            }
+        }
+        advanceLeft();
+    }
+
+    private void emitUnmatchedRightRow()
+    {
+        if (buildOuter) {
+            pageBuilder.declarePosition();
+            for (int i = 0; i < leftOutputChannels.length; i++) {
+                pageBuilder.getBlockBuilder(i).appendNull();
+            }
+            appendRightRow(rightPage, rightPosition);
+        }
+        rightPosition++;
+    }
+
+    private void appendLeftRow(Page page, int position)
+    {
+        for (int i = 0; i < leftOutputChannels.length; i++) {
+            leftOutputTypes.get(i).appendTo(page.getBlock(leftOutputChannels[i]), position, pageBuilder.getBlockBuilder(i));
+        }
+    }
+
+    private void appendRightRow(Page page, int position)
+    {
+        for (int i = 0; i < rightOutputChannels.length; i++) {
+            rightOutputTypes.get(i).appendTo(page.getBlock(rightOutputChannels[i]), position, pageBuilder.getBlockBuilder(leftOutputChannels.length + i));
+        }
+    }
+
+    private void advanceLeft()
+    {
+        leftPosition++;
+        if (leftPosition == leftPage.getPositionCount()) {
+            leftPage = null;
+            leftPosition = 0;
+        }
+    }
+
+    private void releaseMatchGroup()
+    {
+        matchGroup.clear();
+        matchGroupSizeInBytes = 0;
+        collectingMatchGroup = false;
+        emittingMatches = false;
+    }
+
+    private boolean isOutputFull()
+    {
+        return pageBuilder.isFull() || pageBuilder.getPositionCount() >= MAX_BATCH_SIZE;
+    }
+
+    private void updateMemoryReservation()
+    {
+        long rightPageSize = rightPage == null ? 0 : rightPage.getRetainedSizeInBytes();
+        localUserMemoryContext.setBytes(pageBuilder.getRetainedSizeInBytes() + matchGroupSizeInBytes + rightPageSize + bridge.getBufferedBytes());
+    }
+
+    /**
+     * Compares the join key of a left row with the join key of a right row. Both rows must not have null keys.
+     */
+    private int compareKeys(Page left, int leftPosition, Page right, int rightPosition)
+    {
+        for (int i = 0; i < leftJoinChannels.length; i++) {
+            int comparison = keyTypes.get(i).compareTo(left.getBlock(leftJoinChannels[i]), leftPosition, right.getBlock(rightJoinChannels[i]), rightPosition);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Verifies that the rows of a page are sorted ascending (nulls first) on the join keys,
+     * and follow the last row of the previous page of the same input.
+     *
+     * @return the join key of the last row of the page
+     */
+    private static Page verifySorted(String side, Page page, int[] joinChannels, List<Type> types, @Nullable Page lastKey)
+    {
+        int[] keyChannels = IntStream.range(0, joinChannels.length).toArray();
+        if (lastKey != null && compareSortKeys(types, lastKey, keyChannels, 0, page, joinChannels, 0) > 0) {
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, side + " input of merge join is not sorted on the join keys");
+        }
+        for (int position = 1; position < page.getPositionCount(); position++) {
+            if (compareSortKeys(types, page, joinChannels, position - 1, page, joinChannels, position) > 0) {
+                throw new PrestoException(GENERIC_INTERNAL_ERROR, side + " input of merge join is not sorted on the join keys");
+            }
+        }
+        return page.extractChannels(joinChannels).getSingleValuePage(page.getPositionCount() - 1);
+    }
+
+    private static int compareSortKeys(List<Type> types, Page left, int[] leftChannels, int leftPosition, Page right, int[] rightChannels, int rightPosition)
+    {
+        for (int i = 0; i < leftChannels.length; i++) {
+            boolean leftNull = left.getBlock(leftChannels[i]).isNull(leftPosition);
+            boolean rightNull = right.getBlock(rightChannels[i]).isNull(rightPosition);
+            if (leftNull || rightNull) {
+                if (leftNull != rightNull) {
+                    return leftNull ? -1 : 1;
+                }
+                continue;
+            }
+            int comparison = types.get(i).compareTo(left.getBlock(leftChannels[i]), leftPosition, right.getBlock(rightChannels[i]), rightPosition);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean hasNullKey(Page page, int[] joinChannels, int position)
+    {
+        for (int channel : joinChannels) {
+            if (page.getBlock(channel).isNull(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Streams the sorted pages of the right side of a merge join to the {@link MergeJoinOperator}.
+ * Unlike the hash join bridges, the build side is never materialized: at most
+ * {@code maxBufferedBytes} of pages are queued before the {@link MergeJoinSourceOperator} blocks.
+ */
+@ThreadSafe
+public final class MergeJoinPagesBridge
+        implements JoinBridge
+{
+    private static final ListenableFuture<?> NOT_BLOCKED = immediateFuture(null);
+
+    private final long maxBufferedBytes;
+
+    @GuardedBy("this")
+    private final Queue<Page> pages = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long bufferedBytes;
+    @GuardedBy("this")
+    private boolean noMorePages;
+    @GuardedBy("this")
+    private boolean destroyed;
+    @GuardedBy("this")
+    @Nullable
+    private SettableFuture<?> notFullFuture;
+    @GuardedBy("this")
+    @Nullable
+    private SettableFuture<?> notEmptyFuture;
+
+    public MergeJoinPagesBridge(long maxBufferedBytes)
+    {
+        checkArgument(maxBufferedBytes > 0, "maxBufferedBytes must be positive");
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Adds a page of the right side. The returned future completes once the
+     * queue drops below the buffer limit again.
+     */
+    public ListenableFuture<?> enqueuePage(Page page)
+    {
+        requireNonNull(page, "page is null");
+        SettableFuture<?> notEmpty;
+        ListenableFuture<?> result;
+        synchronized (this) {
+            checkState(!noMorePages, "noMorePages already set");
+            if (destroyed) {
+                // the probe side no longer needs the build rows
+                return NOT_BLOCKED;
+            }
+            pages.add(page);
+            bufferedBytes += page.getRetainedSizeInBytes();
+
+            notEmpty = notEmptyFuture;
+            notEmptyFuture = null;
+
+            if (bufferedBytes < maxBufferedBytes) {
+                result = NOT_BLOCKED;
+            }
+            else {
+                if (notFullFuture == null) {
+                    notFullFuture = SettableFuture.create();
+                }
+                result = notFullFuture;
+            }
+        }
+        // complete futures outside of the lock
+        if (notEmpty != null) {
+            notEmpty.set(null);
+        }
+        return result;
+    }
+
+    public void noMorePages()
+    {
+        SettableFuture<?> notEmpty;
+        synchronized (this) {
+            noMorePages = true;
+            notEmpty = notEmptyFuture;
+            notEmptyFuture = null;
+        }
+        if (notEmpty != null) {
+            notEmpty.set(null);
+        }
+    }
+
+    /**
+     * @return the next page of the right side, or null if no page is currently available
+     */
+    @Nullable
+    public Page pollPage()
+    {
+        Page page;
+        SettableFuture<?> notFull = null;
+        synchronized (this) {
+            page = pages.poll();
+            if (page == null) {
+                return null;
+            }
+            bufferedBytes -= page.getRetainedSizeInBytes();
+            if (bufferedBytes < maxBufferedBytes) {
+                notFull = notFullFuture;
+                notFullFuture = null;
+            }
+        }
+        if (notFull != null) {
+            notFull.set(null);
+        }
+        return page;
+    }
+
+    /**
+     * @return a future that completes when a page is available or the right side is finished
+     */
+    public synchronized ListenableFuture<?> whenPagesAvailable()
+    {
+        if (!pages.isEmpty() || noMorePages || destroyed) {
+            return NOT_BLOCKED;
+        }
+        if (notEmptyFuture == null) {
+            notEmptyFuture = SettableFuture.create();
+        }
+        return notEmptyFuture;
+    }
+
+    /**
+     * @return true if all pages of the right side have been polled
+     */
+    public synchronized boolean isFinished()
+    {
+        return (noMorePages || destroyed) && pages.isEmpty();
+    }
+
+    public synchronized boolean isDestroyed()
+    {
+        return destroyed;
+    }
+
+    public synchronized long getBufferedBytes()
+    {
+        return bufferedBytes;
+    }
+
+    @Override
+    public OuterPositionIterator getOuterPositionIterator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void destroy()
+    {
+        SettableFuture<?> notFull;
+        SettableFuture<?> notEmpty;
+        synchronized (this) {
+            destroyed = true;
+            pages.clear();
+            bufferedBytes = 0;
+            notFull = notFullFuture;
+            notFullFuture = null;
+            notEmpty = notEmptyFuture;
+            notEmptyFuture = null;
+        }
+        if (notFull != null) {
+            notFull.set(null);
+        }
+        if (notEmpty != null) {
+            notEmpty.set(null);
+        }
+    }
+
+    @Override
+    public ListenableFuture<?> whenBuildFinishes()
+    {
+        // The build side can only finish once the probe side has consumed it, so the
+        // lifetime of the bridge is bound by the probe operators alone. Waiting for the
+        // build side here would deadlock a build blocked on a full queue.
+        return NOT_BLOCKED;
+    }
+}
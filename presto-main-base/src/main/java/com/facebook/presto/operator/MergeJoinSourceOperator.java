@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Feeds the sorted right side of a merge join into a {@link MergeJoinPagesBridge}.
+ */
+public class MergeJoinSourceOperator
+        implements Operator
+{
+    public static class MergeJoinSourceOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId planNodeId;
+        private final JoinBridgeManager<MergeJoinPagesBridge> joinBridgeManager;
+
+        private boolean closed;
+
+        public MergeJoinSourceOperatorFactory(int operatorId, PlanNodeId planNodeId, JoinBridgeManager<MergeJoinPagesBridge> joinBridgeManager)
+        {
+            this.operatorId = operatorId;
+            this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.joinBridgeManager = requireNonNull(joinBridgeManager, "joinBridgeManager is null");
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MergeJoinSourceOperator.class.getSimpleName());
+            return new MergeJoinSourceOperator(operatorContext, joinBridgeManager.getJoinBridge(driverContext.getLifespan()));
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+            closed = true;
+        }
+
+        @Override
+        public OperatorFactory duplicate()
+        {
+            return new MergeJoinSourceOperatorFactory(operatorId, planNodeId, joinBridgeManager);
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final MergeJoinPagesBridge bridge;
+
+    private ListenableFuture<?> blocked = NOT_BLOCKED;
+    private boolean finishing;
+
+    public MergeJoinSourceOperator(OperatorContext operatorContext, MergeJoinPagesBridge bridge)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.bridge = requireNonNull(bridge, "bridge is null");
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (finishing) {
+            return;
+        }
+        finishing = true;
+        bridge.noMorePages();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        // the probe side may be done before the whole right side has been read
+        return finishing || bridge.isDestroyed();
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (blocked.isDone()) {
+            blocked = NOT_BLOCKED;
+        }
+        return blocked;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !isFinished() && isBlocked().isDone();
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(!finishing, "Operator is already finishing");
+
+        if (page.getPositionCount() == 0) {
+            return;
+        }
+        blocked = bridge.enqueuePage(page);
+        operatorContext.recordOutput(page.getSizeInBytes(), page.getPositionCount());
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        return null;
+    }
+
+    @Override
+    public void close()
+    {
+        finish();
+    }
+}
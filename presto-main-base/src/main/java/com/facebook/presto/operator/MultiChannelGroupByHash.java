@@ -296,6 +296,14 @@ public class MultiChannelGroupByHash
         return putIfAbsent(position, page, rawHash);
     }
 
+    private long[] hashPositions(Page page)
+    {
+        // hash the whole page up front so the per row loop only probes the table
+        long[] rawHashes = new long[page.getPositionCount()];
+        hashGenerator.hashPositions(page, 0, page.getPositionCount(), rawHashes);
+        return rawHashes;
+    }
+
     private int putIfAbsent(int position, Page page, long rawHash)
     {
         int hashPosition = (int) getHashPosition(rawHash, mask);
@@ -588,12 +596,14 @@ public class MultiChannelGroupByHash
             implements Work<Void>
     {
         private final Page page;
+        private final long[] rawHashes;
 
         private int lastPosition;
 
         public AddNonDictionaryPageWork(Page page)
         {
             this.page = requireNonNull(page, "page is null");
+            this.rawHashes = hashPositions(page);
         }
 
         @Override
@@ -612,7 +622,7 @@ public class MultiChannelGroupByHash
             // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
             while (lastPosition < positionCount && !needRehash()) {
                 // get the group for the current row
-                putIfAbsent(lastPosition, page);
+                putIfAbsent(lastPosition, page, rawHashes[lastPosition]);
                 lastPosition++;
             }
             return lastPosition == positionCount;
@@ -718,6 +728,7 @@ public class MultiChannelGroupByHash
     {
         private final BlockBuilder blockBuilder;
         private final Page page;
+        private final long[] rawHashes;
 
         private boolean finished;
         private int lastPosition;
@@ -725,6 +736,7 @@ public class MultiChannelGroupByHash
         public GetNonDictionaryGroupIdsWork(Page page)
         {
             this.page = requireNonNull(page, "page is null");
+            this.rawHashes = hashPositions(page);
             // we know the exact size required for the block
             this.blockBuilder = BIGINT.createFixedSizeBlockBuilder(page.getPositionCount());
         }
@@ -746,7 +758,7 @@ public class MultiChannelGroupByHash
             // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
             while (lastPosition < positionCount && !needRehash()) {
                 // output the group id for this row
-                BIGINT.writeLong(blockBuilder, putIfAbsent(lastPosition, page));
+                BIGINT.writeLong(blockBuilder, putIfAbsent(lastPosition, page, rawHashes[lastPosition]));
                 lastPosition++;
             }
             return lastPosition == positionCount;
@@ -0,0 +1,254 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarbinaryType;
+import com.facebook.presto.common.type.VarcharType;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import java.util.List;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TimeType.TIME;
+import static com.facebook.presto.common.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Double.longBitsToDouble;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Encodes the leading sort keys of a row into a normalized key of {@link #KEY_WORDS} longs. Comparing the normalized keys of
+ * two rows word by word, as unsigned integers, orders the rows as the sort orders do, unless the normalized keys are equal.
+ * Rows with equal normalized keys are only equal if the key is complete, and must be compared with the full comparator otherwise.
+ * <p>
+ * Every encoded sort key starts with a byte that orders nulls before or after the values, followed by the bytes of the value,
+ * most significant first, and inverted for descending orders. Fixed width values are encoded so that their unsigned order
+ * is their natural order. Varchar and varbinary values are encoded with as many of their leading bytes as fit in the key,
+ * and no sort key is encoded after them. The key is complete if all sort keys have a fixed width that fits in the key.
+ */
+final class NormalizedKeyEncoder
+{
+    static final int KEY_WORDS = 2;
+    private static final int KEY_BYTES = KEY_WORDS * Long.BYTES;
+    private static final int VARIABLE_WIDTH = -1;
+
+    private static final byte NULLS_FIRST_MARKER = 0;
+    private static final byte VALUE_MARKER = 1;
+    private static final byte NULLS_LAST_MARKER = 2;
+
+    private final Type[] types;
+    private final SortOrder[] sortOrders;
+    private final int[] widths;
+    private final boolean complete;
+
+    NormalizedKeyEncoder(List<Type> sortTypes, List<SortOrder> sortOrders)
+    {
+        requireNonNull(sortTypes, "sortTypes is null");
+        requireNonNull(sortOrders, "sortOrders is null");
+        checkArgument(sortTypes.size() == sortOrders.size(), "sortTypes and sortOrders must have the same size");
+        checkArgument(isSupported(sortTypes), "normalized keys are not supported for %s", sortTypes);
+
+        ImmutableList.Builder<Integer> widths = ImmutableList.builder();
+        int keyBytes = 0;
+        boolean complete = true;
+        for (Type type : sortTypes) {
+            int width = getWidth(type);
+            if (width == 0) {
+                complete = false;
+                break;
+            }
+            widths.add(width);
+            if (width == VARIABLE_WIDTH || keyBytes + 1 + width > KEY_BYTES) {
+                complete = false;
+                break;
+            }
+            keyBytes += 1 + width;
+        }
+        this.widths = widths.build().stream().mapToInt(Integer::intValue).toArray();
+        this.types = sortTypes.subList(0, this.widths.length).toArray(new Type[0]);
+        this.sortOrders = sortOrders.subList(0, this.widths.length).toArray(new SortOrder[0]);
+        this.complete = complete;
+    }
+
+    /**
+     * Returns true if at least the first sort key can be encoded.
+     */
+    static boolean isSupported(List<Type> sortTypes)
+    {
+        return !sortTypes.isEmpty() && getWidth(sortTypes.get(0)) != 0;
+    }
+
+    /**
+     * Returns true if rows with equal normalized keys are equal.
+     */
+    boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Returns the number of leading sort keys that are encoded, in full or in part.
+     */
+    int getEncodedKeyCount()
+    {
+        return widths.length;
+    }
+
+    /**
+     * Encodes the normalized key of a row into {@code keys}, starting at {@code keyOffset}.
+     *
+     * @param sortBlocks the blocks of the row, one for each encoded sort key
+     */
+    void encode(Block[] sortBlocks, int position, long[] keys, int keyOffset)
+    {
+        for (int word = 0; word < KEY_WORDS; word++) {
+            keys[keyOffset + word] = 0;
+        }
+
+        int written = 0;
+        for (int key = 0; key < widths.length && written < KEY_BYTES; key++) {
+            Block block = sortBlocks[key];
+            SortOrder sortOrder = sortOrders[key];
+            if (block.isNull(position)) {
+                written = write(keys, keyOffset, written, sortOrder.isNullsFirst() ? NULLS_FIRST_MARKER : NULLS_LAST_MARKER, 1);
+                if (widths[key] == VARIABLE_WIDTH) {
+                    // nothing is encoded after a variable width key
+                    return;
+                }
+                // the value bytes of nulls are all zero
+                written += widths[key];
+                continue;
+            }
+
+            written = write(keys, keyOffset, written, VALUE_MARKER, 1);
+            if (widths[key] == VARIABLE_WIDTH) {
+                encodeSlice(block, position, !sortOrder.isAscending(), keys, keyOffset, written);
+                return;
+            }
+            long value = encodeFixedWidth(types[key], block, position);
+            written = write(keys, keyOffset, written, sortOrder.isAscending() ? value : ~value, widths[key]);
+        }
+    }
+
+    static int compare(long[] leftKeys, int leftOffset, long[] rightKeys, int rightOffset)
+    {
+        for (int word = 0; word < KEY_WORDS; word++) {
+            int compare = Long.compareUnsigned(leftKeys[leftOffset + word], rightKeys[rightOffset + word]);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return 0;
+    }
+
+    private static void encodeSlice(Block block, int position, boolean descending, long[] keys, int keyOffset, int written)
+    {
+        int length = min(block.getSliceLength(position), KEY_BYTES - written);
+        Slice slice = block.getSlice(position, 0, length);
+        for (int i = 0; i < length; i++) {
+            byte value = slice.getByte(i);
+            written = write(keys, keyOffset, written, descending ? ~value : value, 1);
+        }
+        if (descending) {
+            // shorter values are greater, so they are padded with the greatest inverted byte
+            while (written < KEY_BYTES) {
+                written = write(keys, keyOffset, written, 0xFF, 1);
+            }
+        }
+    }
+
+    /**
+     * Writes the {@code width} least significant bytes of {@code value}, most significant first, truncated to the size of the key.
+     */
+    private static int write(long[] keys, int keyOffset, int written, long value, int width)
+    {
+        for (int i = width - 1; i >= 0 && written < KEY_BYTES; i--) {
+            long octet = (value >>> (i * Byte.SIZE)) & 0xFF;
+            keys[keyOffset + written / Long.BYTES] |= octet << ((Long.BYTES - 1 - written % Long.BYTES) * Byte.SIZE);
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Returns the number of bytes of the encoded values of the type, {@link #VARIABLE_WIDTH}, or 0 if the type cannot be encoded.
+     */
+    private static int getWidth(Type type)
+    {
+        if (type.equals(BIGINT) || type.equals(TIMESTAMP) || type.equals(TIME) || type.equals(DOUBLE)) {
+            return Long.BYTES;
+        }
+        if (type.equals(INTEGER) || type.equals(DATE) || type.equals(REAL)) {
+            return Integer.BYTES;
+        }
+        if (type.equals(SMALLINT)) {
+            return Short.BYTES;
+        }
+        if (type.equals(TINYINT) || type.equals(BOOLEAN)) {
+            return Byte.BYTES;
+        }
+        if (type instanceof VarcharType || type instanceof VarbinaryType) {
+            return VARIABLE_WIDTH;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the value with its sign bit flipped, so that the unsigned order of the encoded values is their signed order.
+     */
+    private static long encodeFixedWidth(Type type, Block block, int position)
+    {
+        if (type.equals(BIGINT) || type.equals(TIMESTAMP) || type.equals(TIME)) {
+            return block.getLong(position) ^ Long.MIN_VALUE;
+        }
+        if (type.equals(DOUBLE)) {
+            double value = longBitsToDouble(block.getLong(position));
+            // -0 and +0 are equal, and all NaNs are equal and greater than all other values
+            long bits = doubleToLongBits(value == 0 ? 0 : value);
+            return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        }
+        if (type.equals(INTEGER) || type.equals(DATE)) {
+            return block.getInt(position) ^ Integer.MIN_VALUE;
+        }
+        if (type.equals(REAL)) {
+            float value = intBitsToFloat(block.getInt(position));
+            int bits = floatToIntBits(value == 0 ? 0 : value);
+            return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+        }
+        if (type.equals(SMALLINT)) {
+            return block.getShort(position) ^ Short.MIN_VALUE;
+        }
+        if (type.equals(TINYINT)) {
+            return block.getByte(position) ^ Byte.MIN_VALUE;
+        }
+        if (type.equals(BOOLEAN)) {
+            return block.getByte(position) != 0 ? 1 : 0;
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+}
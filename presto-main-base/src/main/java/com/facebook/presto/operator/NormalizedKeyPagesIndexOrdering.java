@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.array.AdaptiveLongBigArray;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.google.common.primitives.Ints;
+import it.unimi.dsi.fastutil.Arrays;
+
+import java.util.List;
+
+import static com.facebook.presto.operator.NormalizedKeyEncoder.KEY_WORDS;
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sorts a {@link PagesIndex} on the normalized keys of its rows, see {@link NormalizedKeyEncoder}. The normalized keys of the
+ * sorted range are encoded before sorting, and swapped with the addresses of the rows. Rows with equal keys are compared with
+ * the full comparator, unless the keys are complete.
+ * <p>
+ * The keys take {@link NormalizedKeyEncoder#KEY_WORDS} longs per sorted row, which are reserved in the memory context while
+ * the range is sorted. When they cannot be reserved, the range is sorted on the full comparator only.
+ * <p>
+ * The comparator of this ordering is the full comparator, so that the ranges sorted by this ordering can be merged with it.
+ */
+public class NormalizedKeyPagesIndexOrdering
+        extends PagesIndexOrdering
+{
+    // the largest array the JVM can allocate
+    private static final int MAX_KEY_WORDS = Integer.MAX_VALUE - 8;
+
+    private final NormalizedKeyEncoder encoder;
+    private final int[] sortChannels;
+    private final AggregatedMemoryContext memoryContext;
+
+    public NormalizedKeyPagesIndexOrdering(
+            PagesIndexComparator comparator,
+            List<Type> sortTypes,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders,
+            AggregatedMemoryContext memoryContext)
+    {
+        super(comparator);
+        this.encoder = new NormalizedKeyEncoder(sortTypes, sortOrders);
+        this.sortChannels = Ints.toArray(requireNonNull(sortChannels, "sortChannels is null"));
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+    }
+
+    public static boolean isSupported(List<Type> sortTypes)
+    {
+        return NormalizedKeyEncoder.isSupported(sortTypes);
+    }
+
+    @Override
+    public void sort(PagesIndex pagesIndex, int startPosition, int endPosition)
+    {
+        long keyWords = (long) (endPosition - startPosition) * KEY_WORDS;
+        // the ranges of a parallel sort are sorted concurrently, so each of them reserves its keys in its own context
+        LocalMemoryContext keysMemoryContext = memoryContext.newLocalMemoryContext(NormalizedKeyPagesIndexOrdering.class.getSimpleName());
+        try {
+            if (keyWords > MAX_KEY_WORDS || !keysMemoryContext.trySetBytes(sizeOfLongArray((int) keyWords))) {
+                super.sort(pagesIndex, startPosition, endPosition);
+                return;
+            }
+            sort(pagesIndex, startPosition, endPosition, encodeKeys(pagesIndex, startPosition, endPosition, (int) keyWords));
+        }
+        finally {
+            keysMemoryContext.close();
+        }
+    }
+
+    private void sort(PagesIndex pagesIndex, int startPosition, int endPosition, long[] keys)
+    {
+        PagesIndexComparator comparator = getComparator();
+        boolean complete = encoder.isComplete();
+
+        Arrays.quickSort(
+                startPosition,
+                endPosition,
+                (left, right) -> {
+                    int compare = NormalizedKeyEncoder.compare(keys, (left - startPosition) * KEY_WORDS, keys, (right - startPosition) * KEY_WORDS);
+                    if (compare != 0 || complete) {
+                        return compare;
+                    }
+                    return comparator.compareTo(pagesIndex, left, right);
+                },
+                (left, right) -> {
+                    int leftOffset = (left - startPosition) * KEY_WORDS;
+                    int rightOffset = (right - startPosition) * KEY_WORDS;
+                    for (int word = 0; word < KEY_WORDS; word++) {
+                        long key = keys[leftOffset + word];
+                        keys[leftOffset + word] = keys[rightOffset + word];
+                        keys[rightOffset + word] = key;
+                    }
+                    pagesIndex.swap(left, right);
+                });
+    }
+
+    private long[] encodeKeys(PagesIndex pagesIndex, int startPosition, int endPosition, int keyWords)
+    {
+        long[] keys = new long[keyWords];
+        AdaptiveLongBigArray valueAddresses = pagesIndex.getValueAddresses();
+        Block[] sortBlocks = new Block[encoder.getEncodedKeyCount()];
+        for (int position = startPosition; position < endPosition; position++) {
+            long address = valueAddresses.get(position);
+            int blockIndex = decodeSliceIndex(address);
+            for (int key = 0; key < sortBlocks.length; key++) {
+                sortBlocks[key] = pagesIndex.getChannel(sortChannels[key]).get(blockIndex);
+            }
+            encoder.encode(sortBlocks, decodePosition(address), keys, (position - startPosition) * KEY_WORDS);
+        }
+        return keys;
+    }
+}
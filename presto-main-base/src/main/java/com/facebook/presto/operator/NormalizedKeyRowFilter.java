@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.common.type.Type;
+import com.google.common.primitives.Ints;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.operator.NormalizedKeyEncoder.KEY_WORDS;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Filters out the rows that sort after a threshold row, by comparing their normalized keys with the normalized key of the
+ * threshold row, see {@link NormalizedKeyEncoder}. Rows with the same normalized key as the threshold row are kept, unless the
+ * keys are complete, and the rows are then equal to the threshold row.
+ * <p>
+ * Top N uses the last of its top rows as the threshold, so that most input rows are rejected without the full comparator once
+ * the top rows have been found.
+ */
+class NormalizedKeyRowFilter
+{
+    private final NormalizedKeyEncoder encoder;
+    private final int[] sortChannels;
+    private final Block[] sortBlocks;
+    private final long[] thresholdKey = new long[KEY_WORDS];
+    private final long[] key = new long[KEY_WORDS];
+
+    private int[] retainedPositions = new int[0];
+    private boolean hasThreshold;
+
+    NormalizedKeyRowFilter(List<Type> types, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        requireNonNull(types, "types is null");
+        this.sortChannels = Ints.toArray(requireNonNull(sortChannels, "sortChannels is null"));
+        this.encoder = new NormalizedKeyEncoder(sortChannels.stream().map(types::get).collect(toImmutableList()), sortOrders);
+        this.sortBlocks = new Block[encoder.getEncodedKeyCount()];
+    }
+
+    static boolean isSupported(List<Type> types, List<Integer> sortChannels)
+    {
+        return NormalizedKeyEncoder.isSupported(sortChannels.stream().map(types::get).collect(toImmutableList()));
+    }
+
+    /**
+     * Sets the threshold to the first row of the page, or removes the threshold if there is no threshold row.
+     */
+    public void setThreshold(Optional<Page> thresholdRow)
+    {
+        hasThreshold = thresholdRow.isPresent();
+        if (hasThreshold) {
+            encode(thresholdRow.get(), 0, thresholdKey);
+        }
+    }
+
+    /**
+     * Returns the rows of the page that do not sort after the threshold row.
+     */
+    public Page filter(Page page)
+    {
+        if (!hasThreshold) {
+            return page;
+        }
+
+        int positionCount = page.getPositionCount();
+        if (retainedPositions.length < positionCount) {
+            retainedPositions = new int[positionCount];
+        }
+        int retainedPositionCount = 0;
+        boolean complete = encoder.isComplete();
+        for (int position = 0; position < positionCount; position++) {
+            encode(page, position, key);
+            int compare = NormalizedKeyEncoder.compare(key, 0, thresholdKey, 0);
+            if (compare < 0 || (compare == 0 && !complete)) {
+                retainedPositions[retainedPositionCount] = position;
+                retainedPositionCount++;
+            }
+        }
+
+        if (retainedPositionCount == positionCount) {
+            return page;
+        }
+        // the retained positions are reused, so they are copied rather than wrapped
+        return page.copyPositions(retainedPositions, 0, retainedPositionCount);
+    }
+
+    private void encode(Page page, int position, long[] key)
+    {
+        for (int i = 0; i < sortBlocks.length; i++) {
+            sortBlocks[i] = page.getBlock(sortChannels[i]);
+        }
+        encoder.encode(sortBlocks, position, key, 0);
+    }
+}
@@ -40,6 +40,9 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import static com.facebook.airlift.units.Duration.succinctNanos;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_TABLE_EXPECTED_SIZE;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_TABLE_SIZE_MISESTIMATE_PERCENT;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
 import static com.facebook.presto.operator.BlockedReason.WAITING_FOR_MEMORY;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -241,6 +244,13 @@ public class OperatorContext
         joinBuildKeyCount.getAndAdd(positions);
     }
 
+    public void recordHashTableSize(long expectedSize, long actualSize)
+    {
+        // 100 means the hash table was created with exactly the size it needed
+        runtimeStats.addMetricValue(HASH_TABLE_EXPECTED_SIZE, NONE, expectedSize);
+        runtimeStats.addMetricValue(HASH_TABLE_SIZE_MISESTIMATE_PERCENT, NONE, actualSize * 100 / max(expectedSize, 1));
+    }
+
     public void recordNullJoinProbeKeyCount(long positions)
     {
         nullJoinProbeKeyCount.getAndAdd(positions);
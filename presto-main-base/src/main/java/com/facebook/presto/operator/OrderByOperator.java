@@ -18,6 +18,7 @@ import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.WorkProcessor.ProcessState;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spiller.Spiller;
 import com.facebook.presto.spiller.SpillerFactory;
@@ -26,19 +27,25 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.presto.common.RuntimeMetricName.SPILL_MERGES_COUNT;
+import static com.facebook.presto.common.RuntimeMetricName.SPILL_MERGE_PASSES_COUNT;
+import static com.facebook.presto.common.RuntimeMetricName.SPILL_RUNS_COUNT;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
 import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
 import static com.facebook.presto.util.MergeSortedPages.mergeSortedPages;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static com.google.common.collect.Iterators.transform;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
 
 public class OrderByOperator
         implements Operator
@@ -57,6 +64,11 @@ public class OrderByOperator
         private final boolean spillEnabled;
         private final Optional<SpillerFactory> spillerFactory;
         private final OrderingCompiler orderingCompiler;
+        private final int maxMergeFanIn;
+        private final int maxPrefetchedPages;
+        private final int sortParallelism;
+        private final Optional<PagesIndexSortExecutor> sortExecutor;
+        private final boolean normalizedKeySortEnabled;
 
         private boolean closed;
 
@@ -72,6 +84,43 @@ public class OrderByOperator
                 boolean spillEnabled,
                 Optional<SpillerFactory> spillerFactory,
                 OrderingCompiler orderingCompiler)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    sourceTypes,
+                    outputChannels,
+                    expectedPositions,
+                    sortChannels,
+                    sortOrder,
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler,
+                    Integer.MAX_VALUE,
+                    0,
+                    1,
+                    Optional.empty(),
+                    false);
+        }
+
+        public OrderByOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                int expectedPositions,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory,
+                OrderingCompiler orderingCompiler,
+                int maxMergeFanIn,
+                int maxPrefetchedPages,
+                int sortParallelism,
+                Optional<PagesIndexSortExecutor> sortExecutor,
+                boolean normalizedKeySortEnabled)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -86,6 +135,15 @@ public class OrderByOperator
             this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
             this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
             checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
+            checkArgument(maxMergeFanIn >= 2, "maxMergeFanIn must be at least 2");
+            checkArgument(maxPrefetchedPages >= 0, "maxPrefetchedPages must not be negative");
+            checkArgument(sortParallelism > 0, "sortParallelism must be positive");
+            checkArgument(sortParallelism == 1 || sortExecutor.isPresent(), "Sort executor is not present when sorting in parallel");
+            this.maxMergeFanIn = maxMergeFanIn;
+            this.maxPrefetchedPages = maxPrefetchedPages;
+            this.sortParallelism = sortParallelism;
+            this.sortExecutor = requireNonNull(sortExecutor, "sortExecutor is null");
+            this.normalizedKeySortEnabled = normalizedKeySortEnabled;
         }
 
         @Override
@@ -104,7 +162,12 @@ public class OrderByOperator
                     pagesIndexFactory,
                     spillEnabled,
                     spillerFactory,
-                    orderingCompiler);
+                    orderingCompiler,
+                    maxMergeFanIn,
+                    maxPrefetchedPages,
+                    sortParallelism,
+                    sortExecutor,
+                    normalizedKeySortEnabled);
         }
 
         @Override
@@ -127,7 +190,12 @@ public class OrderByOperator
                     pagesIndexFactory,
                     spillEnabled,
                     spillerFactory,
-                    orderingCompiler);
+                    orderingCompiler,
+                    maxMergeFanIn,
+                    maxPrefetchedPages,
+                    sortParallelism,
+                    sortExecutor,
+                    normalizedKeySortEnabled);
         }
     }
 
@@ -138,6 +206,9 @@ public class OrderByOperator
         FINISHED
     }
 
+    // Skip spilling on revocation if compacting the index alone releases enough memory
+    private static final double INDEX_COMPACTION_ON_REVOCATION_TARGET = 0.8;
+
     private final OperatorContext operatorContext;
     private final List<Integer> sortChannels;
     private final List<SortOrder> sortOrder;
@@ -152,12 +223,25 @@ public class OrderByOperator
     private final boolean spillEnabled;
     private final Optional<SpillerFactory> spillerFactory;
     private final OrderingCompiler orderingCompiler;
-
-    private Optional<Spiller> spiller = Optional.empty();
+    private final int maxMergeFanIn;
+    private final int maxPrefetchedPages;
+    // when greater than 1, the rows are sorted on the sort executor, after the operator has finished
+    private final int sortParallelism;
+    private final Optional<PagesIndexSortExecutor> sortExecutor;
+    // when true, the rows are compared on their normalized keys first, see NormalizedKeyPagesIndexOrdering
+    private final boolean normalizedKeySortEnabled;
+
+    // sorted runs on disk, each spilled by its own spiller so that runs can be read and released individually
+    private final Deque<SpilledRun> spilledRuns = new ArrayDeque<>();
+    // runs being merged into mergedRun by an intermediate merge
+    private List<SpilledRun> mergingRuns = ImmutableList.of();
+    private Optional<SpilledRun> mergedRun = Optional.empty();
     private ListenableFuture<?> spillInProgress = immediateFuture(null);
     private Runnable finishMemoryRevoke = () -> {};
 
-    private Iterator<Optional<Page>> sortedPages;
+    private WorkProcessor<Page> sortedPages;
+    // the sort in progress when sorting in parallel, which must be closed before the index is cleared
+    private Optional<ParallelPagesIndexSort> parallelSort = Optional.empty();
 
     private State state = State.NEEDS_INPUT;
 
@@ -172,6 +256,41 @@ public class OrderByOperator
             boolean spillEnabled,
             Optional<SpillerFactory> spillerFactory,
             OrderingCompiler orderingCompiler)
+    {
+        this(
+                operatorContext,
+                sourceTypes,
+                outputChannels,
+                expectedPositions,
+                sortChannels,
+                sortOrder,
+                pagesIndexFactory,
+                spillEnabled,
+                spillerFactory,
+                orderingCompiler,
+                Integer.MAX_VALUE,
+                0,
+                1,
+                Optional.empty(),
+                false);
+    }
+
+    public OrderByOperator(
+            OperatorContext operatorContext,
+            List<Type> sourceTypes,
+            List<Integer> outputChannels,
+            int expectedPositions,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory,
+            OrderingCompiler orderingCompiler,
+            int maxMergeFanIn,
+            int maxPrefetchedPages,
+            int sortParallelism,
+            Optional<PagesIndexSortExecutor> sortExecutor,
+            boolean normalizedKeySortEnabled)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
@@ -188,6 +307,15 @@ public class OrderByOperator
         this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
+        checkArgument(maxMergeFanIn >= 2, "maxMergeFanIn must be at least 2");
+        checkArgument(maxPrefetchedPages >= 0, "maxPrefetchedPages must not be negative");
+        checkArgument(sortParallelism > 0, "sortParallelism must be positive");
+        checkArgument(sortParallelism == 1 || sortExecutor.isPresent(), "Sort executor is not present when sorting in parallel");
+        this.maxMergeFanIn = maxMergeFanIn;
+        this.maxPrefetchedPages = maxPrefetchedPages;
+        this.sortParallelism = sortParallelism;
+        this.sortExecutor = requireNonNull(sortExecutor, "sortExecutor is null");
+        this.normalizedKeySortEnabled = normalizedKeySortEnabled;
     }
 
     @Override
@@ -222,25 +350,51 @@ public class OrderByOperator
                 }
             }
 
-            pageIndex.sort(sortChannels, sortOrder);
-            Iterator<Page> sortedPagesIndex = pageIndex.getSortedPages();
-
-            List<WorkProcessor<Page>> spilledPages = getSpilledPages();
-            if (spilledPages.isEmpty()) {
-                sortedPages = transform(sortedPagesIndex, Optional::of);
+            if (sortParallelism > 1) {
+                // the driver is blocked while the chunks are sorted, and can yield while they are merged
+                parallelSort = Optional.of(pageIndex.createParallelSort(
+                        sortChannels,
+                        sortOrder,
+                        sortParallelism,
+                        normalizedKeySortEnabled,
+                        sortExecutor.get(),
+                        operatorContext.getDriverContext().getYieldSignal(),
+                        operatorContext.aggregateUserMemoryContext()));
+                sortedPages = WorkProcessor.create(parallelSort.get())
+                        .flatMap(sortedIndex -> createSortedPages(sortedIndex.getSortedPages()));
             }
             else {
-                sortedPages = mergeSpilledAndMemoryPages(spilledPages, sortedPagesIndex).yieldingIterator();
+                pageIndex.sort(sortChannels, sortOrder, 0, pageIndex.getPositionCount(), normalizedKeySortEnabled, operatorContext.aggregateUserMemoryContext());
+                sortedPages = createSortedPages(pageIndex.getSortedPages());
             }
         }
     }
 
+    private WorkProcessor<Page> createSortedPages(Iterator<Page> sortedPagesIndex)
+    {
+        if (spilledRuns.isEmpty()) {
+            return WorkProcessor.fromIterator(sortedPagesIndex);
+        }
+        operatorContext.getRuntimeStats().addMetricValue(SPILL_RUNS_COUNT, NONE, spilledRuns.size());
+        return WorkProcessor.create(new MergeSpilledRuns(sortedPagesIndex))
+                .flatMap(identity());
+    }
+
     @Override
     public boolean isFinished()
     {
         return state == State.FINISHED;
     }
 
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (state == State.HAS_OUTPUT && sortedPages.isBlocked()) {
+            return sortedPages.getBlockedFuture();
+        }
+        return NOT_BLOCKED;
+    }
+
     @Override
     public boolean needsInput()
     {
@@ -267,16 +421,15 @@ public class OrderByOperator
         }
 
         verify(sortedPages != null, "sortedPages is null");
-        if (!sortedPages.hasNext()) {
-            state = State.FINISHED;
+        if (!sortedPages.process()) {
             return null;
         }
-
-        Optional<Page> next = sortedPages.next();
-        if (!next.isPresent()) {
+        if (sortedPages.isFinished()) {
+            state = State.FINISHED;
             return null;
         }
-        Page nextPage = next.get();
+
+        Page nextPage = sortedPages.getResult();
         Block[] blocks = new Block[outputChannels.length];
         for (int i = 0; i < outputChannels.length; i++) {
             blocks[i] = nextPage.getBlock(outputChannels[i]);
@@ -288,6 +441,17 @@ public class OrderByOperator
     public ListenableFuture<?> startMemoryRevoke()
     {
         verify(state == State.NEEDS_INPUT || revocableMemoryContext.getBytes() == 0, "Cannot spill in state: %s", state);
+
+        if (revocableMemoryContext.getBytes() > 0) {
+            // Runs grow with the available revocable memory: a run is only spilled if the rows still need the memory after compaction
+            long indexSizeBeforeCompaction = pageIndex.getEstimatedSize().toBytes();
+            pageIndex.compact();
+            long indexSizeAfterCompaction = pageIndex.getEstimatedSize().toBytes();
+            if (indexSizeAfterCompaction < indexSizeBeforeCompaction * INDEX_COMPACTION_ON_REVOCATION_TARGET) {
+                finishMemoryRevoke = this::updateMemoryUsage;
+                return immediateFuture(null);
+            }
+        }
         return spillToDisk();
     }
 
@@ -301,17 +465,11 @@ public class OrderByOperator
             return immediateFuture(null);
         }
 
-        // TODO try pageIndex.compact(); before spilling, as in com.facebook.presto.operator.HashBuilderOperator.startMemoryRevoke
+        Spiller spiller = createSpiller();
+        spilledRuns.add(new SpilledRun(spiller, 0));
 
-        if (!spiller.isPresent()) {
-            spiller = Optional.of(spillerFactory.get().create(
-                    sourceTypes,
-                    operatorContext.getSpillContext(),
-                    operatorContext.aggregateSystemMemoryContext()));
-        }
-
-        pageIndex.sort(sortChannels, sortOrder);
-        spillInProgress = spiller.get().spill(pageIndex.getSortedPages());
+        pageIndex.sort(sortChannels, sortOrder, 0, pageIndex.getPositionCount(), normalizedKeySortEnabled, operatorContext.aggregateUserMemoryContext());
+        spillInProgress = spiller.spill(pageIndex.getSortedPages());
         finishMemoryRevoke = () -> {
             pageIndex.clear();
             updateMemoryUsage();
@@ -327,30 +485,142 @@ public class OrderByOperator
         finishMemoryRevoke = () -> {};
     }
 
-    private List<WorkProcessor<Page>> getSpilledPages()
+    private Spiller createSpiller()
     {
-        if (!spiller.isPresent()) {
-            return ImmutableList.of();
+        return spillerFactory.get().create(
+                sourceTypes,
+                operatorContext.getSpillContext(),
+                operatorContext.aggregateSystemMemoryContext());
+    }
+
+    /**
+     * Produces the merged stream of the spilled runs and the sorted rows still in memory. While there are more
+     * runs than the merge fan-in allows, the oldest runs are merged into a new run on disk first, so that no
+     * more than {@code maxMergeFanIn} runs are read at the same time. Intermediate merges run on the spill
+     * executor, and the operator is blocked until they finish.
+     */
+    private class MergeSpilledRuns
+            implements WorkProcessor.Process<WorkProcessor<Page>>
+    {
+        final Iterator<Page> sortedPagesIndex;
+        final PageWithPositionComparator comparator;
+
+        int mergeCount;
+        boolean merged;
+
+        MergeSpilledRuns(Iterator<Page> sortedPagesIndex)
+        {
+            this.sortedPagesIndex = requireNonNull(sortedPagesIndex, "sortedPagesIndex is null");
+            this.comparator = orderingCompiler.compilePageWithPositionComparator(sourceTypes, sortChannels, sortOrder);
         }
 
-        return spiller.get().getSpills().stream()
-                .map(WorkProcessor::fromIterator)
-                .collect(toImmutableList());
+        @Override
+        public ProcessState<WorkProcessor<Page>> process()
+        {
+            if (merged) {
+                return ProcessState.finished();
+            }
+
+            if (mergedRun.isPresent()) {
+                ListenableFuture<?> mergeInProgress = mergedRun.get().getSpillInProgress();
+                if (!mergeInProgress.isDone()) {
+                    return ProcessState.blocked(mergeInProgress);
+                }
+                checkSpillSucceeded(mergeInProgress);
+                mergingRuns.forEach(run -> run.getSpiller().close());
+                mergingRuns = ImmutableList.of();
+                spilledRuns.add(mergedRun.get());
+                mergedRun = Optional.empty();
+            }
+
+            // the sorted rows in memory take one input of the final merge
+            if (spilledRuns.size() + 1 > maxMergeFanIn) {
+                ImmutableList.Builder<SpilledRun> runs = ImmutableList.builder();
+                for (int i = 0; i < maxMergeFanIn; i++) {
+                    runs.add(spilledRuns.remove());
+                }
+                mergingRuns = runs.build();
+                mergedRun = Optional.of(mergeRuns(mergingRuns));
+                mergeCount++;
+                return ProcessState.blocked(mergedRun.get().getSpillInProgress());
+            }
+
+            merged = true;
+            // merge passes are the generations of intermediate runs plus the final merge
+            int mergePasses = spilledRuns.stream().mapToInt(SpilledRun::getGeneration).max().getAsInt() + 1;
+            operatorContext.getRuntimeStats().addMetricValue(SPILL_MERGES_COUNT, NONE, mergeCount + 1);
+            operatorContext.getRuntimeStats().addMetricValue(SPILL_MERGE_PASSES_COUNT, NONE, mergePasses);
+
+            List<WorkProcessor<Page>> sortedStreams = ImmutableList.<WorkProcessor<Page>>builder()
+                    .addAll(spilledRuns.stream()
+                            .flatMap(run -> run.getSpiller().getSpills(maxPrefetchedPages).stream())
+                            .collect(toImmutableList()))
+                    .add(WorkProcessor.fromIterator(sortedPagesIndex))
+                    .build();
+
+            return ProcessState.ofResult(mergeSortedPages(
+                    sortedStreams,
+                    comparator,
+                    sourceTypes,
+                    operatorContext.aggregateUserMemoryContext(),
+                    operatorContext.getDriverContext().getYieldSignal()));
+        }
+
+        SpilledRun mergeRuns(List<SpilledRun> runs)
+        {
+            List<WorkProcessor<Page>> sortedStreams = runs.stream()
+                    .flatMap(run -> run.getSpiller().getSpills().stream())
+                    .map(WorkProcessor::fromIterator)
+                    .collect(toImmutableList());
+
+            // the merge is driven by the spilling thread, so it must never yield
+            Iterator<Page> mergedPages = mergeSortedPages(
+                    sortedStreams,
+                    comparator,
+                    sourceTypes,
+                    operatorContext.aggregateSystemMemoryContext(),
+                    new DriverYieldSignal())
+                    .iterator();
+
+            Spiller spiller = createSpiller();
+            SpilledRun run = new SpilledRun(spiller, runs.stream().mapToInt(SpilledRun::getGeneration).max().getAsInt() + 1);
+            run.setSpillInProgress(spiller.spill(mergedPages));
+            return run;
+        }
     }
 
-    private WorkProcessor<Page> mergeSpilledAndMemoryPages(List<WorkProcessor<Page>> spilledPages, Iterator<Page> sortedPagesIndex)
+    private static class SpilledRun
     {
-        List<WorkProcessor<Page>> sortedStreams = ImmutableList.<WorkProcessor<Page>>builder()
-                .addAll(spilledPages)
-                .add(WorkProcessor.fromIterator(sortedPagesIndex))
-                .build();
-
-        return mergeSortedPages(
-                sortedStreams,
-                orderingCompiler.compilePageWithPositionComparator(sourceTypes, sortChannels, sortOrder),
-                sourceTypes,
-                operatorContext.aggregateUserMemoryContext(),
-                operatorContext.getDriverContext().getYieldSignal());
+        private final Spiller spiller;
+        // number of merges that produced this run
+        private final int generation;
+        private ListenableFuture<?> spillInProgress = immediateFuture(null);
+
+        SpilledRun(Spiller spiller, int generation)
+        {
+            this.spiller = requireNonNull(spiller, "spiller is null");
+            this.generation = generation;
+        }
+
+        Spiller getSpiller()
+        {
+            return spiller;
+        }
+
+        int getGeneration()
+        {
+            return generation;
+        }
+
+        ListenableFuture<?> getSpillInProgress()
+        {
+            return spillInProgress;
+        }
+
+        void setSpillInProgress(ListenableFuture<?> spillInProgress)
+        {
+            this.spillInProgress = requireNonNull(spillInProgress, "spillInProgress is null");
+        }
     }
 
     private void updateMemoryUsage()
@@ -377,8 +647,13 @@ public class OrderByOperator
     @Override
     public void close()
     {
+        // the sort tasks still running on the sort executor must not see the index cleared under them
+        parallelSort.ifPresent(ParallelPagesIndexSort::close);
         pageIndex.clear();
         sortedPages = null;
-        spiller.ifPresent(Spiller::close);
+        spilledRuns.forEach(run -> run.getSpiller().close());
+        spilledRuns.clear();
+        mergingRuns.forEach(run -> run.getSpiller().close());
+        mergedRun.ifPresent(run -> run.getSpiller().close());
     }
 }
@@ -24,6 +24,7 @@ import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.geospatial.Rectangle;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.metadata.FunctionAndTypeManager;
 import com.facebook.presto.metadata.Metadata;
@@ -375,6 +376,59 @@ public class PagesIndex
         createPagesIndexComparator(sortChannels, sortOrders).sort(this, startPosition, endPosition);
     }
 
+    /**
+     * Sorts a range of the index. If {@code normalizedKeys} is true and the leading sort channels have types supported by
+     * {@link NormalizedKeyPagesIndexOrdering}, the rows are compared on their normalized keys first. The normalized keys are
+     * reserved in the memory context, and the rows are only compared with the full comparator when they cannot be.
+     */
+    public void sort(
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders,
+            int startPosition,
+            int endPosition,
+            boolean normalizedKeys,
+            AggregatedMemoryContext memoryContext)
+    {
+        createPagesIndexComparator(sortChannels, sortOrders, normalizedKeys, memoryContext).sort(this, startPosition, endPosition);
+    }
+
+    /**
+     * Sorts the index on up to {@code parallelism} threads of the sort executor. The returned processor is blocked while
+     * the sorted chunks are being produced, yields on the yield signal while merging them, and produces this index once it is
+     * sorted.
+     */
+    public WorkProcessor<PagesIndex> sortInParallel(
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders,
+            int parallelism,
+            boolean normalizedKeys,
+            PagesIndexSortExecutor sortExecutor,
+            DriverYieldSignal yieldSignal,
+            AggregatedMemoryContext memoryContext)
+    {
+        return WorkProcessor.create(createParallelSort(sortChannels, sortOrders, parallelism, normalizedKeys, sortExecutor, yieldSignal, memoryContext));
+    }
+
+    ParallelPagesIndexSort createParallelSort(
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders,
+            int parallelism,
+            boolean normalizedKeys,
+            PagesIndexSortExecutor sortExecutor,
+            DriverYieldSignal yieldSignal,
+            AggregatedMemoryContext memoryContext)
+    {
+        return new ParallelPagesIndexSort(
+                this,
+                createPagesIndexComparator(sortChannels, sortOrders, normalizedKeys, memoryContext),
+                0,
+                getPositionCount(),
+                parallelism,
+                sortExecutor,
+                yieldSignal,
+                memoryContext);
+    }
+
     public boolean positionEqualsPosition(PagesHashStrategy partitionHashStrategy, int leftPosition, int rightPosition)
     {
         long leftAddress = valueAddresses.get(leftPosition);
@@ -399,10 +453,25 @@ public class PagesIndex
 
     private PagesIndexOrdering createPagesIndexComparator(List<Integer> sortChannels, List<SortOrder> sortOrders)
     {
-        List<Type> sortTypes = sortChannels.stream()
+        List<Type> sortTypes = getSortTypes(sortChannels);
+        return orderingCompiler.compilePagesIndexOrdering(sortTypes, sortChannels, sortOrders);
+    }
+
+    private PagesIndexOrdering createPagesIndexComparator(List<Integer> sortChannels, List<SortOrder> sortOrders, boolean normalizedKeys, AggregatedMemoryContext memoryContext)
+    {
+        PagesIndexOrdering ordering = createPagesIndexComparator(sortChannels, sortOrders);
+        List<Type> sortTypes = getSortTypes(sortChannels);
+        if (normalizedKeys && NormalizedKeyPagesIndexOrdering.isSupported(sortTypes)) {
+            return new NormalizedKeyPagesIndexOrdering(ordering.getComparator(), sortTypes, sortChannels, sortOrders, memoryContext);
+        }
+        return ordering;
+    }
+
+    private List<Type> getSortTypes(List<Integer> sortChannels)
+    {
+        return sortChannels.stream()
                 .map(types::get)
                 .collect(toImmutableList());
-        return orderingCompiler.compilePagesIndexOrdering(sortTypes, sortChannels, sortOrders);
     }
 
     public Supplier<LookupSource> createLookupSourceSupplier(Session session, List<Integer> joinChannels)
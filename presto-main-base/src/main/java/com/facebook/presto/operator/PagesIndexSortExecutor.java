@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.TaskManagerConfig;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * The fork-join pool on which the chunks of a {@link PagesIndex} are sorted and merged in parallel, shared by all the tasks
+ * of the worker. The pool never runs more than {@code task.sort-threads} threads: a worker waiting on a sub task helps with
+ * the queued tasks instead of being compensated with a new thread.
+ */
+public class PagesIndexSortExecutor
+{
+    private final ForkJoinPool pool;
+    private final ListeningExecutorService executor;
+
+    @Inject
+    public PagesIndexSortExecutor(TaskManagerConfig config)
+    {
+        this(config.getSortThreads());
+    }
+
+    public PagesIndexSortExecutor(int threads)
+    {
+        checkArgument(threads > 0, "threads must be positive");
+        this.pool = new ForkJoinPool(
+                threads,
+                PagesIndexSortExecutor::newThread,
+                null,
+                false,
+                0,
+                threads,
+                1,
+                ignored -> true,
+                1,
+                MINUTES);
+        this.executor = listeningDecorator(pool);
+    }
+
+    ListeningExecutorService getExecutor()
+    {
+        return executor;
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        pool.shutdownNow();
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool pool)
+    {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("pages-index-sort-" + thread.getPoolIndex());
+        return thread;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.array.AdaptiveLongBigArray;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.WorkProcessor.ProcessState;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.Closeable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sorts a range of a {@link PagesIndex} on the fork-join pool of a {@link PagesIndexSortExecutor}.
+ * <p>
+ * The range is split into at most {@code parallelism} chunks of at least {@link #MIN_POSITIONS_PER_CHUNK} positions, which are
+ * sorted concurrently and merged pairwise. All merges but the last one also run concurrently on the pool. The last merge
+ * cannot be split, and is done by the thread processing the sort in batches of {@link #MERGE_BATCH_SIZE} positions, so that
+ * the driver can yield in the middle of it.
+ * <p>
+ * Sorting a chunk only swaps the addresses of that chunk, and a merge writes the merged addresses to a temporary array before
+ * copying them back, so concurrent tasks update disjoint ranges of the addresses, and the positions a merge compares are not
+ * moved until it has finished. The temporary array takes 8 bytes per sorted position, which are accounted in the memory
+ * context until the sort finishes.
+ * <p>
+ * The sort must be closed before the index is cleared, as the tasks on the pool may still be reading and moving its addresses.
+ */
+class ParallelPagesIndexSort
+        implements WorkProcessor.Process<PagesIndex>, Closeable
+{
+    static final int MIN_POSITIONS_PER_CHUNK = 16 * 1024;
+    private static final int MERGE_BATCH_SIZE = 4 * 1024;
+
+    private final PagesIndex pagesIndex;
+    private final ListeningExecutorService executor;
+    private final PagesIndexComparator comparator;
+    private final PagesIndexOrdering ordering;
+    private final int startPosition;
+    private final int endPosition;
+    private final int middlePosition;
+    private final int chunks;
+    private final DriverYieldSignal yieldSignal;
+    private final LocalMemoryContext memoryContext;
+    private final AdaptiveLongBigArray mergedAddresses = new AdaptiveLongBigArray();
+    // set by the first of the sort tasks and close(), so that the tasks are not started once the sort is closed
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CountDownLatch tasksFinished = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    private ListenableFuture<?> sortedHalves;
+    private Merge finalMerge;
+    private boolean finished;
+
+    ParallelPagesIndexSort(
+            PagesIndex pagesIndex,
+            PagesIndexOrdering ordering,
+            int startPosition,
+            int endPosition,
+            int parallelism,
+            PagesIndexSortExecutor sortExecutor,
+            DriverYieldSignal yieldSignal,
+            AggregatedMemoryContext memoryContext)
+    {
+        checkArgument(startPosition >= 0 && startPosition <= endPosition, "invalid range [%s, %s)", startPosition, endPosition);
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        this.pagesIndex = requireNonNull(pagesIndex, "pagesIndex is null");
+        this.executor = requireNonNull(sortExecutor, "sortExecutor is null").getExecutor();
+        this.ordering = requireNonNull(ordering, "ordering is null");
+        this.comparator = ordering.getComparator();
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+        this.chunks = min(parallelism, (endPosition - startPosition) / MIN_POSITIONS_PER_CHUNK);
+        this.middlePosition = chunks > 1 ? split(startPosition, endPosition, chunks) : endPosition;
+        this.yieldSignal = requireNonNull(yieldSignal, "yieldSignal is null");
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null").newLocalMemoryContext(ParallelPagesIndexSort.class.getSimpleName());
+    }
+
+    @Override
+    public ProcessState<PagesIndex> process()
+    {
+        if (finished) {
+            return ProcessState.finished();
+        }
+
+        if (chunks <= 1) {
+            // too few positions to be worth splitting
+            ordering.sort(pagesIndex, startPosition, endPosition);
+            return finish();
+        }
+
+        if (finalMerge == null) {
+            if (sortedHalves == null) {
+                mergedAddresses.ensureCapacity(endPosition - startPosition);
+                memoryContext.setBytes(mergedAddresses.getRetainedSizeInBytes());
+                sortedHalves = executor.submit(this::sortHalves);
+            }
+            if (!sortedHalves.isDone()) {
+                return ProcessState.blocked(sortedHalves);
+            }
+            // propagate the failures of the sort tasks
+            getFutureValue(sortedHalves);
+            finalMerge = new Merge(startPosition, middlePosition, endPosition);
+        }
+
+        while (!finalMerge.process(MERGE_BATCH_SIZE)) {
+            if (yieldSignal.isSet()) {
+                return ProcessState.yield();
+            }
+        }
+        return finish();
+    }
+
+    private void sortHalves()
+    {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ForkJoinTask.invokeAll(
+                    new SortTask(startPosition, middlePosition, chunks / 2),
+                    new SortTask(middlePosition, endPosition, chunks - chunks / 2));
+        }
+        finally {
+            tasksFinished.countDown();
+        }
+    }
+
+    private ProcessState<PagesIndex> finish()
+    {
+        finished = true;
+        mergedAddresses.clear();
+        memoryContext.close();
+        return ProcessState.ofResult(pagesIndex);
+    }
+
+    /**
+     * Cancels the sort, and waits for the tasks already running on the pool. The tasks that have not started yet are skipped,
+     * so this waits for at most one chunk to be sorted or merged per pool thread.
+     */
+    @Override
+    public void close()
+    {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        closed = true;
+        if (sortedHalves != null) {
+            sortedHalves.cancel(false);
+            if (!started.compareAndSet(false, true)) {
+                awaitUninterruptibly(tasksFinished);
+            }
+        }
+        mergedAddresses.clear();
+        memoryContext.close();
+    }
+
+    private static int split(int from, int to, int chunks)
+    {
+        // the first half gets chunks / 2 of the chunks
+        return from + (int) ((long) (to - from) * (chunks / 2) / chunks);
+    }
+
+    private class SortTask
+            extends RecursiveAction
+    {
+        private final int from;
+        private final int to;
+        private final int chunks;
+
+        private SortTask(int from, int to, int chunks)
+        {
+            this.from = from;
+            this.to = to;
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (closed) {
+                return;
+            }
+            if (chunks <= 1) {
+                ordering.sort(pagesIndex, from, to);
+                return;
+            }
+            int middle = split(from, to, chunks);
+            invokeAll(new SortTask(from, middle, chunks / 2), new SortTask(middle, to, chunks - chunks / 2));
+            if (closed) {
+                return;
+            }
+            new Merge(from, middle, to).process(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Merges the sorted runs [from, middle) and [middle, to). The merged addresses are written at the same offsets of the
+     * temporary array, and copied back once the first run is exhausted: the rest of the second run is then already in place.
+     */
+    private class Merge
+    {
+        private final int from;
+        private final int middle;
+        private final int to;
+
+        private int left;
+        private int right;
+        private int output;
+
+        private Merge(int from, int middle, int to)
+        {
+            this.from = from;
+            this.middle = middle;
+            this.to = to;
+            this.left = from;
+            this.right = middle;
+            this.output = from;
+        }
+
+        /**
+         * Merges up to {@code maxPositions} positions, and returns true when the merge has finished.
+         */
+        public boolean process(int maxPositions)
+        {
+            AdaptiveLongBigArray valueAddresses = pagesIndex.getValueAddresses();
+            int limit = (int) min((long) output + maxPositions, to);
+            while (output < limit && left < middle) {
+                if (right < to && comparator.compareTo(pagesIndex, right, left) < 0) {
+                    mergedAddresses.set(output - startPosition, valueAddresses.get(right));
+                    right++;
+                }
+                else {
+                    mergedAddresses.set(output - startPosition, valueAddresses.get(left));
+                    left++;
+                }
+                output++;
+            }
+            if (left < middle) {
+                return false;
+            }
+
+            for (int position = from; position < output; position++) {
+                valueAddresses.set(position, mergedAddresses.get(position - startPosition));
+            }
+            return true;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.OptionalInt;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,11 +41,15 @@ import java.util.function.Function;
 import java.util.function.IntPredicate;
 import java.util.function.Supplier;
 
+import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
+import static com.facebook.airlift.concurrent.MoreFutures.getDone;
 import static com.facebook.presto.operator.OuterLookupSource.createOuterLookupSourceSupplier;
 import static com.facebook.presto.operator.PartitionedLookupSource.createPartitionedLookupSourceSupplier;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.allAsList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
 import static com.google.common.util.concurrent.Futures.transform;
@@ -81,6 +86,12 @@ public final class PartitionedLookupSourceFactory
     @GuardedBy("lock")
     private final Map<Integer, SpilledLookupSourceHandle> spilledPartitions = new HashMap<>();
 
+    @GuardedBy("lock")
+    private List<SpilledPartitionRound> spilledPartitionRounds = ImmutableList.of();
+
+    @GuardedBy("lock")
+    private List<SpilledLookupSourceHandle> spilledRoundHandles = ImmutableList.of();
+
     @GuardedBy("lock")
     private TrackingLookupSourceSupplier lookupSourceSupplier;
 
@@ -339,12 +350,14 @@ public final class PartitionedLookupSourceFactory
                 // We can dispose partitions now since right outer is not supported with spill
                 freePartitions();
                 verify(!partitionedConsumption.isDone());
-                partitionedConsumption.set(new PartitionedConsumption<>(
-                        partitionedConsumptionParticipants.getAsInt(),
-                        spilledPartitions.keySet(),
-                        this::loadSpilledLookupSource,
-                        this::disposeSpilledLookupSource,
-                        this::spilledLookupSourceDisposed));
+                // spilled partitions are consumed in rounds, which are known once every spilled partition has its layout
+                int participants = partitionedConsumptionParticipants.getAsInt();
+                Map<Integer, SpilledLookupSourceHandle> spilledPartitions = ImmutableMap.copyOf(this.spilledPartitions);
+                addSuccessCallback(
+                        allAsList(spilledPartitions.values().stream()
+                                .map(SpilledLookupSourceHandle::getLayout)
+                                .collect(toImmutableList())),
+                        layouts -> startPartitionedConsumption(participants, spilledPartitions));
             }
 
             return partitionedConsumption;
@@ -354,26 +367,69 @@ public final class PartitionedLookupSourceFactory
         }
     }
 
-    private ListenableFuture<Supplier<LookupSource>> loadSpilledLookupSource(int partitionNumber)
+    private void startPartitionedConsumption(int participants, Map<Integer, SpilledLookupSourceHandle> spilledPartitions)
+    {
+        ImmutableList.Builder<Integer> roundNumbers = ImmutableList.builder();
+        lock.writeLock().lock();
+        try {
+            ImmutableList.Builder<SpilledPartitionRound> rounds = ImmutableList.builder();
+            ImmutableList.Builder<SpilledLookupSourceHandle> roundHandles = ImmutableList.builder();
+            int roundNumber = 0;
+            for (Entry<Integer, SpilledLookupSourceHandle> entry : spilledPartitions.entrySet()) {
+                SpilledPartitionLayout layout = getDone(entry.getValue().getLayout());
+                for (int round = 0; round < layout.getRounds().size(); round++) {
+                    rounds.add(new SpilledPartitionRound(entry.getKey(), layout, round));
+                    roundHandles.add(entry.getValue().getRoundHandle(round));
+                    roundNumbers.add(roundNumber++);
+                }
+            }
+            spilledPartitionRounds = rounds.build();
+            spilledRoundHandles = roundHandles.build();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        partitionedConsumption.set(new PartitionedConsumption<>(
+                participants,
+                roundNumbers.build(),
+                this::loadSpilledLookupSource,
+                this::disposeSpilledLookupSource,
+                this::spilledLookupSourceDisposed));
+    }
+
+    @Override
+    public SpilledPartitionRound getSpilledPartitionRound(int roundNumber)
+    {
+        lock.readLock().lock();
+        try {
+            return spilledPartitionRounds.get(roundNumber);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ListenableFuture<Supplier<LookupSource>> loadSpilledLookupSource(int roundNumber)
     {
-        return getSpilledLookupSourceHandle(partitionNumber).getLookupSource();
+        return getSpilledRoundHandle(roundNumber).getLookupSource();
     }
 
-    private void disposeSpilledLookupSource(int partitionNumber)
+    private void disposeSpilledLookupSource(int roundNumber)
     {
-        getSpilledLookupSourceHandle(partitionNumber).dispose();
+        getSpilledRoundHandle(roundNumber).dispose();
     }
 
-    private SettableFuture<?> spilledLookupSourceDisposed(int partitionNumber)
+    private SettableFuture<?> spilledLookupSourceDisposed(int roundNumber)
     {
-        return getSpilledLookupSourceHandle(partitionNumber).getDisposeCompleted();
+        return getSpilledRoundHandle(roundNumber).getDisposeCompleted();
     }
 
-    private SpilledLookupSourceHandle getSpilledLookupSourceHandle(int partitionNumber)
+    private SpilledLookupSourceHandle getSpilledRoundHandle(int roundNumber)
     {
         lock.readLock().lock();
         try {
-            return requireNonNull(spilledPartitions.get(partitionNumber), "spilledPartitions.get(partitionNumber) is null");
+            return spilledRoundHandles.get(roundNumber);
         }
         finally {
             lock.readLock().unlock();
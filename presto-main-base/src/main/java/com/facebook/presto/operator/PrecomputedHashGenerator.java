@@ -14,6 +14,8 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.LongArrayBlock;
 import com.facebook.presto.common.type.BigintType;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -34,6 +36,23 @@ public class PrecomputedHashGenerator
         return BigintType.BIGINT.getLong(page.getBlock(hashChannel), position);
     }
 
+    @Override
+    public void hashPositions(Page page, int positionOffset, int length, long[] hashes)
+    {
+        Block block = page.getBlock(hashChannel);
+        if (block instanceof LongArrayBlock) {
+            LongArrayBlock longArrayBlock = (LongArrayBlock) block;
+            int internalOffset = longArrayBlock.getOffsetBase() + positionOffset;
+            for (int i = 0; i < length; i++) {
+                hashes[i] = longArrayBlock.getLongUnchecked(internalOffset + i);
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            hashes[i] = BigintType.BIGINT.getLong(block, positionOffset + i);
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -20,9 +20,11 @@ import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 import jakarta.annotation.Nullable;
 
+import java.util.List;
 import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
@@ -52,6 +54,11 @@ final class SpilledLookupSourceHandle
 
     private final ListenableFuture<?> unspillingOrDisposeRequested = whenAnyComplete(ImmutableList.of(unspillingRequested, disposeRequested));
 
+    private final SettableFuture<SpilledPartitionLayout> layout = SettableFuture.create();
+
+    @GuardedBy("this")
+    private List<SpilledLookupSourceHandle> roundHandles = ImmutableList.of(this);
+
     public SettableFuture<?> getUnspillingRequested()
     {
         return unspillingRequested;
@@ -82,11 +89,57 @@ final class SpilledLookupSourceHandle
         setState(State.PRODUCED);
     }
 
-    public synchronized void dispose()
+    /**
+     * Sets the layout the spilled partition is unspilled with. Every round of the layout is unspilled through its own handle,
+     * unless there is a single round which is unspilled through this handle.
+     */
+    public void setLayout(SpilledPartitionLayout layout, List<SpilledLookupSourceHandle> roundHandles)
     {
-        disposeRequested.set(null);
-        unspilledLookupSource = null; // let the memory go
-        setState(State.DISPOSE_REQUESTED);
+        requireNonNull(layout, "layout is null");
+        checkArgument(roundHandles.size() == layout.getRounds().size(), "expected %s round handles, but got %s", layout.getRounds().size(), roundHandles.size());
+        checkArgument(roundHandles.size() > 1 || roundHandles.get(0) == this, "single round must be unspilled through this handle");
+        boolean disposed;
+        synchronized (this) {
+            checkState(!this.layout.isDone(), "layout already set");
+            this.roundHandles = ImmutableList.copyOf(roundHandles);
+            disposed = state == State.DISPOSE_REQUESTED || state == State.DISPOSE_COMPLETED;
+        }
+        if (disposed) {
+            disposeRounds(roundHandles);
+        }
+        // complete the future outside of the lock, as it runs the callbacks
+        this.layout.set(layout);
+    }
+
+    public ListenableFuture<SpilledPartitionLayout> getLayout()
+    {
+        return layout;
+    }
+
+    public synchronized SpilledLookupSourceHandle getRoundHandle(int round)
+    {
+        return roundHandles.get(round);
+    }
+
+    public void dispose()
+    {
+        List<SpilledLookupSourceHandle> roundHandles;
+        synchronized (this) {
+            disposeRequested.set(null);
+            unspilledLookupSource = null; // let the memory go
+            setState(State.DISPOSE_REQUESTED);
+            roundHandles = this.roundHandles;
+        }
+        disposeRounds(roundHandles);
+    }
+
+    private void disposeRounds(List<SpilledLookupSourceHandle> roundHandles)
+    {
+        for (SpilledLookupSourceHandle roundHandle : roundHandles) {
+            if (roundHandle != this) {
+                roundHandle.dispose();
+            }
+        }
     }
 
     public SettableFuture<?> getDisposeRequested()
@@ -0,0 +1,305 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.Immutable;
+import io.airlift.slice.XxHash64;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Describes how a build partition spilled by {@link HashBuilderOperator} is unspilled.
+ * <p>
+ * A partition that does not fit into memory is split into {@link #FAN_OUT} sub-partitions on the hash of the join keys,
+ * mixed with a seed that is different on every level of recursion, and sub-partitions that are still too large are
+ * split again. A sub-partition that cannot be split any further, either because all its rows have the same hash
+ * (a hot key) or because the maximum depth is reached, is joined in chunks: the build rows are loaded one chunk at
+ * a time and all probe rows of the sub-partition are joined against every chunk.
+ * <p>
+ * Build and probe side walk the same layout, so the spilled partition is unspilled in {@link #getRounds() rounds},
+ * one chunk of one sub-partition at a time.
+ */
+// This class must be public because LookupJoinOperator is isolated.
+@Immutable
+public final class SpilledPartitionLayout
+{
+    public static final int FAN_OUT = 8;
+    private static final int FAN_OUT_BITS = Integer.numberOfTrailingZeros(FAN_OUT);
+    private static final long LEVEL_SEED = 0x9E3779B97F4A7C15L;
+
+    private static final SpilledPartitionLayout UNPARTITIONED = new SpilledPartitionLayout(Node.leaf(0, 1, false));
+
+    private final Node root;
+    private final List<SubPartition> subPartitions;
+    private final List<Round> rounds;
+    private final int depth;
+
+    public static SpilledPartitionLayout unpartitioned()
+    {
+        return UNPARTITIONED;
+    }
+
+    SpilledPartitionLayout(Node root)
+    {
+        requireNonNull(root, "root is null");
+        List<SubPartition> subPartitions = new ArrayList<>();
+        this.root = indexSubPartitions(root, subPartitions);
+        this.subPartitions = ImmutableList.copyOf(subPartitions);
+        this.depth = getDepth(this.root);
+
+        ImmutableList.Builder<Round> rounds = ImmutableList.builder();
+        for (int subPartition = 0; subPartition < this.subPartitions.size(); subPartition++) {
+            int chunkCount = this.subPartitions.get(subPartition).getChunkCount();
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                rounds.add(new Round(subPartition, chunk, chunkCount));
+            }
+        }
+        this.rounds = rounds.build();
+    }
+
+    private static Node indexSubPartitions(Node node, List<SubPartition> subPartitions)
+    {
+        if (node.isLeaf()) {
+            subPartitions.add(node.subPartition);
+            return new Node(node.subPartition, subPartitions.size() - 1, ImmutableList.of());
+        }
+        ImmutableList.Builder<Node> children = ImmutableList.builder();
+        for (Node child : node.children) {
+            children.add(indexSubPartitions(child, subPartitions));
+        }
+        return new Node(null, -1, children.build());
+    }
+
+    private static int getDepth(Node node)
+    {
+        int depth = 0;
+        for (Node child : node.children) {
+            depth = Math.max(depth, getDepth(child) + 1);
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the sub-partition of a row with the given raw hash of the join keys.
+     */
+    public int getSubPartition(long rawHash)
+    {
+        Node node = root;
+        int level = 0;
+        while (!node.isLeaf()) {
+            node = node.children.get(getSubPartition(rawHash, level));
+            level++;
+        }
+        return node.subPartitionIndex;
+    }
+
+    /**
+     * Returns a function that assigns rows to the sub-partitions of this layout, given the generator of the raw hash of their join keys.
+     */
+    public PartitionFunction getSubPartitionFunction(HashGenerator hashGenerator)
+    {
+        requireNonNull(hashGenerator, "hashGenerator is null");
+        return new PartitionFunction()
+        {
+            @Override
+            public int getPartitionCount()
+            {
+                return subPartitions.size();
+            }
+
+            @Override
+            public int getPartition(Page page, int position)
+            {
+                return getSubPartition(hashGenerator.hashPosition(position, page));
+            }
+        };
+    }
+
+    static int getSubPartition(long rawHash, int level)
+    {
+        // use the high bits, as the low bits of the same hash select the partition in LocalPartitionGenerator
+        return (int) (XxHash64.hash(rawHash ^ (LEVEL_SEED * (level + 1))) >>> (Long.SIZE - FAN_OUT_BITS));
+    }
+
+    public boolean isPartitioned()
+    {
+        return !root.isLeaf();
+    }
+
+    public List<SubPartition> getSubPartitions()
+    {
+        return subPartitions;
+    }
+
+    public List<Round> getRounds()
+    {
+        return rounds;
+    }
+
+    /**
+     * Number of times the partition was split on the way to its deepest sub-partition.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Ratio of the size of the largest sub-partition to the average size of a sub-partition.
+     */
+    public double getSkew()
+    {
+        long totalPositions = 0;
+        long maxPositions = 0;
+        for (SubPartition subPartition : subPartitions) {
+            totalPositions += subPartition.getPositionCount();
+            maxPositions = Math.max(maxPositions, subPartition.getPositionCount());
+        }
+        if (totalPositions == 0) {
+            return 1;
+        }
+        return (double) maxPositions * subPartitions.size() / totalPositions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("subPartitions", subPartitions)
+                .add("depth", depth)
+                .toString();
+    }
+
+    @Immutable
+    public static final class SubPartition
+    {
+        private final long positionCount;
+        private final int chunkCount;
+        private final boolean hotKey;
+
+        public SubPartition(long positionCount, int chunkCount, boolean hotKey)
+        {
+            checkArgument(positionCount >= 0, "positionCount is negative");
+            checkArgument(chunkCount > 0, "chunkCount must be positive");
+            this.positionCount = positionCount;
+            this.chunkCount = chunkCount;
+            this.hotKey = hotKey;
+        }
+
+        public long getPositionCount()
+        {
+            return positionCount;
+        }
+
+        /**
+         * Number of chunks the build rows of the sub-partition are loaded in.
+         */
+        public int getChunkCount()
+        {
+            return chunkCount;
+        }
+
+        /**
+         * Whether all build rows of the sub-partition have the same hash, so splitting it again would not help.
+         */
+        public boolean isHotKey()
+        {
+            return hotKey;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("positionCount", positionCount)
+                    .add("chunkCount", chunkCount)
+                    .add("hotKey", hotKey)
+                    .toString();
+        }
+    }
+
+    @Immutable
+    public static final class Round
+    {
+        private final int subPartition;
+        private final int chunk;
+        private final int chunkCount;
+
+        public Round(int subPartition, int chunk, int chunkCount)
+        {
+            checkArgument(chunk >= 0 && chunk < chunkCount, "invalid chunk %s of %s", chunk, chunkCount);
+            this.subPartition = subPartition;
+            this.chunk = chunk;
+            this.chunkCount = chunkCount;
+        }
+
+        public int getSubPartition()
+        {
+            return subPartition;
+        }
+
+        public int getChunk()
+        {
+            return chunk;
+        }
+
+        public int getChunkCount()
+        {
+            return chunkCount;
+        }
+
+        public boolean isLastChunk()
+        {
+            return chunk == chunkCount - 1;
+        }
+    }
+
+    @Immutable
+    static final class Node
+    {
+        private final SubPartition subPartition;
+        private final int subPartitionIndex;
+        private final List<Node> children;
+
+        static Node leaf(long positionCount, int chunkCount, boolean hotKey)
+        {
+            return new Node(new SubPartition(positionCount, chunkCount, hotKey), -1, ImmutableList.of());
+        }
+
+        static Node split(List<Node> children)
+        {
+            checkArgument(children.size() == FAN_OUT, "expected %s children, but got %s", FAN_OUT, children.size());
+            return new Node(null, -1, children);
+        }
+
+        private Node(SubPartition subPartition, int subPartitionIndex, List<Node> children)
+        {
+            this.subPartition = subPartition;
+            this.subPartitionIndex = subPartitionIndex;
+            this.children = ImmutableList.copyOf(children);
+        }
+
+        private boolean isLeaf()
+        {
+            return children.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.SpilledPartitionLayout.Round;
+import com.google.errorprone.annotations.Immutable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * One round of unspilling a spilled partition, see {@link SpilledPartitionLayout#getRounds()}.
+ */
+// This class must be public because LookupJoinOperator is isolated.
+@Immutable
+public final class SpilledPartitionRound
+{
+    private final int partition;
+    private final SpilledPartitionLayout layout;
+    private final int round;
+
+    public SpilledPartitionRound(int partition, SpilledPartitionLayout layout, int round)
+    {
+        this.partition = partition;
+        this.layout = requireNonNull(layout, "layout is null");
+        checkArgument(round >= 0 && round < layout.getRounds().size(), "invalid round %s of %s", round, layout.getRounds().size());
+        this.round = round;
+    }
+
+    public int getPartition()
+    {
+        return partition;
+    }
+
+    public SpilledPartitionLayout getLayout()
+    {
+        return layout;
+    }
+
+    public Round getRound()
+    {
+        return layout.getRounds().get(round);
+    }
+
+    public boolean isFirstRound()
+    {
+        return round == 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("partition", partition)
+                .add("round", round)
+                .add("layout", layout)
+                .toString();
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.airlift.concurrent.NotThreadSafe;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.operator.SpilledPartitionLayout.Node;
+import com.facebook.presto.spiller.GenericPartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.SingleStreamSpillerFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.operator.SpilledPartitionLayout.FAN_OUT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits the build rows spilled by a {@link HashBuilderOperator} into the sub-partitions of a {@link SpilledPartitionLayout}.
+ * Sub-partitions larger than {@code maxSubPartitionSizeInBytes} are split again, until {@code maxDepth} is reached or all
+ * rows of the sub-partition have the same hash.
+ */
+@NotThreadSafe
+class SpilledPartitionSplitter
+        implements Closeable
+{
+    private final List<Type> types;
+    private final HashGenerator hashGenerator;
+    private final SingleStreamSpillerFactory spillerFactory;
+    private final SpillContext spillContext;
+    private final AggregatedMemoryContext memoryContext;
+    private final long maxSubPartitionSizeInBytes;
+    private final int maxDepth;
+
+    private final Closer closer = Closer.create();
+    private final PendingNode root;
+    private final Queue<PendingNode> pendingSplits = new ArrayDeque<>();
+
+    @Nullable
+    private PendingNode currentSplit;
+    private Iterator<Page> currentSplitInput;
+    private PartitioningSpiller currentSplitSpiller;
+    private long[] hashes = new long[0];
+
+    @Nullable
+    private List<Supplier<Iterator<Page>>> subPartitionPages;
+
+    public SpilledPartitionSplitter(
+            List<Type> types,
+            HashGenerator hashGenerator,
+            SingleStreamSpillerFactory spillerFactory,
+            SpillContext spillContext,
+            AggregatedMemoryContext memoryContext,
+            long maxSubPartitionSizeInBytes,
+            int maxDepth,
+            Supplier<Iterator<Page>> pages,
+            long positionCount,
+            long sizeInBytes)
+    {
+        checkArgument(maxSubPartitionSizeInBytes > 0, "maxSubPartitionSizeInBytes must be positive");
+        checkArgument(maxDepth >= 0, "maxDepth is negative");
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.hashGenerator = requireNonNull(hashGenerator, "hashGenerator is null");
+        this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        this.spillContext = requireNonNull(spillContext, "spillContext is null");
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        this.maxSubPartitionSizeInBytes = maxSubPartitionSizeInBytes;
+        this.maxDepth = maxDepth;
+
+        root = new PendingNode(0, requireNonNull(pages, "pages is null"));
+        root.positionCount = positionCount;
+        root.sizeInBytes = sizeInBytes;
+        classify(root);
+    }
+
+    /**
+     * Splits the next page of the sub-partition being split. Must not be called before the returned future is done.
+     */
+    public ListenableFuture<?> process()
+    {
+        checkState(!isFinished(), "already finished");
+
+        if (currentSplit == null) {
+            currentSplit = pendingSplits.poll();
+            int level = currentSplit.level;
+            currentSplitInput = currentSplit.pages.get();
+            currentSplitSpiller = closer.register(new GenericPartitioningSpiller(
+                    types,
+                    new PartitionFunction()
+                    {
+                        @Override
+                        public int getPartitionCount()
+                        {
+                            return FAN_OUT;
+                        }
+
+                        @Override
+                        public int getPartition(Page page, int position)
+                        {
+                            return SpilledPartitionLayout.getSubPartition(hashGenerator.hashPosition(position, page), level);
+                        }
+                    },
+                    spillContext.newLocalSpillContext(),
+                    memoryContext,
+                    spillerFactory));
+            PartitioningSpiller spiller = currentSplitSpiller;
+            for (int child = 0; child < FAN_OUT; child++) {
+                int partition = child;
+                currentSplit.children.add(new PendingNode(level + 1, () -> spiller.getSpilledPages(partition)));
+            }
+        }
+
+        if (currentSplitInput.hasNext()) {
+            Page page = currentSplitInput.next();
+            recordPage(page);
+            return currentSplitSpiller.partitionAndSpill(page, partition -> true).getSpillingFuture();
+        }
+
+        currentSplit.children.forEach(this::classify);
+        currentSplit = null;
+        currentSplitInput = null;
+        currentSplitSpiller = null;
+        return immediateFuture(null);
+    }
+
+    private void recordPage(Page page)
+    {
+        int positionCount = page.getPositionCount();
+        if (positionCount == 0) {
+            return;
+        }
+        if (hashes.length < positionCount) {
+            hashes = new long[positionCount];
+        }
+        hashGenerator.hashPositions(page, 0, positionCount, hashes);
+        double positionSizeInBytes = (double) page.getSizeInBytes() / positionCount;
+        for (int position = 0; position < positionCount; position++) {
+            PendingNode child = currentSplit.children.get(SpilledPartitionLayout.getSubPartition(hashes[position], currentSplit.level));
+            child.recordPosition(hashes[position], positionSizeInBytes);
+        }
+    }
+
+    private void classify(PendingNode node)
+    {
+        if (node.sizeInBytes > maxSubPartitionSizeInBytes && !node.singleHash && node.level < maxDepth) {
+            pendingSplits.add(node);
+            return;
+        }
+        long chunkCount = (long) Math.ceil(node.sizeInBytes / maxSubPartitionSizeInBytes);
+        node.chunkCount = toIntExact(Math.max(1, Math.min(chunkCount, node.positionCount)));
+    }
+
+    public boolean isFinished()
+    {
+        return currentSplit == null && pendingSplits.isEmpty();
+    }
+
+    public SpilledPartitionLayout getLayout()
+    {
+        checkState(isFinished(), "not finished");
+        List<Supplier<Iterator<Page>>> subPartitionPages = new ArrayList<>();
+        SpilledPartitionLayout layout = new SpilledPartitionLayout(toNode(root, subPartitionPages));
+        this.subPartitionPages = ImmutableList.copyOf(subPartitionPages);
+        return layout;
+    }
+
+    private static Node toNode(PendingNode node, List<Supplier<Iterator<Page>>> subPartitionPages)
+    {
+        if (node.children.isEmpty()) {
+            // sub-partitions are numbered in the same order by SpilledPartitionLayout
+            subPartitionPages.add(node.pages);
+            return Node.leaf(node.positionCount, node.chunkCount, node.singleHash && node.positionCount > 1);
+        }
+        ImmutableList.Builder<Node> children = ImmutableList.builder();
+        for (PendingNode child : node.children) {
+            children.add(toNode(child, subPartitionPages));
+        }
+        return Node.split(children.build());
+    }
+
+    /**
+     * Returns the spilled rows of a sub-partition of the layout. Can be called once for every sub-partition.
+     */
+    public Iterator<Page> getSubPartitionPages(int subPartition)
+    {
+        checkState(subPartitionPages != null, "layout not created yet");
+        return subPartitionPages.get(subPartition).get();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        closer.close();
+    }
+
+    private static class PendingNode
+    {
+        private final int level;
+        private final Supplier<Iterator<Page>> pages;
+        private final List<PendingNode> children = new ArrayList<>();
+
+        private long positionCount;
+        private double sizeInBytes;
+        private boolean singleHash = true;
+        private long firstHash;
+        private int chunkCount;
+
+        private PendingNode(int level, Supplier<Iterator<Page>> pages)
+        {
+            this.level = level;
+            this.pages = pages;
+            // the hashes of the whole partition are not known upfront
+            this.singleHash = level > 0;
+        }
+
+        private void recordPosition(long hash, double positionSizeInBytes)
+        {
+            if (positionCount == 0) {
+                firstHash = hash;
+            }
+            else if (hash != firstHash) {
+                singleHash = false;
+            }
+            positionCount++;
+            sizeInBytes += positionSizeInBytes;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.facebook.airlift.units.Duration;
 import com.facebook.presto.Session;
 import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.execution.TaskDynamicFilters;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.execution.TaskStateMachine;
@@ -128,6 +129,8 @@ public class TaskContext
 
     private final Optional<PlanNode> taskPlan;
 
+    private final TaskDynamicFilters dynamicFilters;
+
     // Only contains metrics exposed in this task. Doesn't contain the metrics exposed in the operators.
     // This is merged with the operator metrics when generating the TaskStats in {@link #getTaskStats}.
     private final RuntimeStats runtimeStats = new RuntimeStats();
@@ -145,7 +148,8 @@ public class TaskContext
             boolean cpuTimerEnabled,
             boolean perOperatorAllocationTrackingEnabled,
             boolean allocationTrackingEnabled,
-            boolean legacyLifespanCompletionCondition)
+            boolean legacyLifespanCompletionCondition,
+            TaskDynamicFilters dynamicFilters)
     {
         TaskContext taskContext = new TaskContext(
                 queryContext,
@@ -160,7 +164,8 @@ public class TaskContext
                 cpuTimerEnabled,
                 perOperatorAllocationTrackingEnabled,
                 allocationTrackingEnabled,
-                legacyLifespanCompletionCondition);
+                legacyLifespanCompletionCondition,
+                dynamicFilters);
         taskContext.initialize();
         return taskContext;
     }
@@ -178,7 +183,8 @@ public class TaskContext
             boolean cpuTimerEnabled,
             boolean perOperatorAllocationTrackingEnabled,
             boolean allocationTrackingEnabled,
-            boolean legacyLifespanCompletionCondition)
+            boolean legacyLifespanCompletionCondition,
+            TaskDynamicFilters dynamicFilters)
     {
         this.taskStateMachine = requireNonNull(taskStateMachine, "taskStateMachine is null");
         this.gcMonitor = requireNonNull(gcMonitor, "gcMonitor is null");
@@ -195,6 +201,7 @@ public class TaskContext
         this.perOperatorAllocationTrackingEnabled = perOperatorAllocationTrackingEnabled;
         this.allocationTrackingEnabled = allocationTrackingEnabled;
         this.legacyLifespanCompletionCondition = legacyLifespanCompletionCondition;
+        this.dynamicFilters = requireNonNull(dynamicFilters, "dynamicFilters is null");
     }
 
     // the state change listener is added here in a separate initialize() method
@@ -230,6 +237,11 @@ public class TaskContext
         return session;
     }
 
+    public TaskDynamicFilters getDynamicFilters()
+    {
+        return dynamicFilters;
+    }
+
     public void start()
     {
         long now = currentTimeMillis();
@@ -330,6 +342,11 @@ public class TaskContext
         return taskMemoryContext.localSystemMemoryContext();
     }
 
+    public LocalMemoryContext newLocalSystemMemoryContext(String allocationTag)
+    {
+        return taskMemoryContext.newSystemMemoryContext(allocationTag);
+    }
+
     public void moreMemoryAvailable()
     {
         pipelineContexts.forEach(PipelineContext::moreMemoryAvailable);
@@ -20,6 +20,7 @@ import com.facebook.presto.spi.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
 
 import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -41,6 +42,7 @@ public class TopNOperator
         private final int n;
         private final List<Integer> sortChannels;
         private final List<SortOrder> sortOrders;
+        private final boolean normalizedKeySortEnabled;
         private boolean closed;
 
         public TopNOperatorFactory(
@@ -50,6 +52,18 @@ public class TopNOperator
                 int n,
                 List<Integer> sortChannels,
                 List<SortOrder> sortOrders)
+        {
+            this(operatorId, planNodeId, types, n, sortChannels, sortOrders, false);
+        }
+
+        public TopNOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> types,
+                int n,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrders,
+                boolean normalizedKeySortEnabled)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -57,6 +71,7 @@ public class TopNOperator
             this.n = n;
             this.sortChannels = ImmutableList.copyOf(requireNonNull(sortChannels, "sortChannels is null"));
             this.sortOrders = ImmutableList.copyOf(requireNonNull(sortOrders, "sortOrders is null"));
+            this.normalizedKeySortEnabled = normalizedKeySortEnabled;
         }
 
         @Override
@@ -69,7 +84,8 @@ public class TopNOperator
                     sourceTypes,
                     n,
                     sortChannels,
-                    sortOrders);
+                    sortOrders,
+                    normalizedKeySortEnabled);
         }
 
         @Override
@@ -81,13 +97,15 @@ public class TopNOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new TopNOperatorFactory(operatorId, planNodeId, sourceTypes, n, sortChannels, sortOrders);
+            return new TopNOperatorFactory(operatorId, planNodeId, sourceTypes, n, sortChannels, sortOrders, normalizedKeySortEnabled);
         }
     }
 
     private final OperatorContext operatorContext;
 
-    private GroupedTopNBuilder topNBuilder;
+    private InMemoryGroupedTopNBuilder topNBuilder;
+    // rejects the rows that sort after the current N-th row, or empty if normalized keys are disabled or not supported
+    private Optional<NormalizedKeyRowFilter> rowFilter = Optional.empty();
     private boolean finishing;
 
     private WorkProcessor<Page> outputPages;
@@ -97,7 +115,8 @@ public class TopNOperator
             List<Type> types,
             int n,
             List<Integer> sortChannels,
-            List<SortOrder> sortOrders)
+            List<SortOrder> sortOrders,
+            boolean normalizedKeySortEnabled)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         checkArgument(n >= 0, "n must be non-negative");
@@ -115,6 +134,9 @@ public class TopNOperator
                     false,
                     operatorContext.localUserMemoryContext(),
                     new NoChannelGroupByHash());
+            if (normalizedKeySortEnabled && NormalizedKeyRowFilter.isSupported(types, sortChannels)) {
+                rowFilter = Optional.of(new NormalizedKeyRowFilter(types, sortChannels, sortOrders));
+            }
         }
     }
 
@@ -146,10 +168,20 @@ public class TopNOperator
     public void addInput(Page page)
     {
         checkState(!finishing, "Operator is already finishing");
-        boolean done = topNBuilder.processPage(requireNonNull(page, "page is null")).process();
+        requireNonNull(page, "page is null");
+        if (rowFilter.isPresent()) {
+            page = rowFilter.get().filter(page);
+            if (page.getPositionCount() == 0) {
+                return;
+            }
+        }
+        boolean done = topNBuilder.processPage(page).process();
         // there is no grouping so work will always be done
         verify(done);
         topNBuilder.updateMemoryReservations();
+        if (rowFilter.isPresent()) {
+            rowFilter.get().setThreshold(topNBuilder.getLastRow(0));
+        }
     }
 
     @Override
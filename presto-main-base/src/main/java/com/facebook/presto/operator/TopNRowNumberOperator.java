@@ -30,6 +30,7 @@ import java.util.function.Supplier;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isFixedWidthGroupByHashEnabled;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
@@ -186,6 +187,7 @@ public class TopNRowNumberOperator
                 expectedPositions,
                 joinCompiler,
                 isDictionaryAggregationEnabled(operatorContext.getSession()),
+                isFixedWidthGroupByHashEnabled(operatorContext.getSession()),
                 this::updateMemoryReservation);
 
         if (spillEnabled) {
@@ -235,6 +237,7 @@ public class TopNRowNumberOperator
             int expectedPositions,
             JoinCompiler joinCompiler,
             boolean isDictionaryAggregationEnabled,
+            boolean isFixedWidthGroupByHashEnabled,
             UpdateMemory updateMemory)
     {
         if (!partitionChannels.isEmpty()) {
@@ -245,6 +248,7 @@ public class TopNRowNumberOperator
                     inputHashChannel,
                     expectedPositions,
                     isDictionaryAggregationEnabled,
+                    isFixedWidthGroupByHashEnabled,
                     joinCompiler,
                     updateMemory);
         }
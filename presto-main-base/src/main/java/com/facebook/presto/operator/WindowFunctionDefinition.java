@@ -76,6 +76,11 @@ public class WindowFunctionDefinition
         return type;
     }
 
+    public boolean isIgnoreNulls()
+    {
+        return ignoreNulls;
+    }
+
     public WindowFunction createWindowFunction()
     {
         return functionSupplier.createWindowFunction(argumentChannels, ignoreNulls);
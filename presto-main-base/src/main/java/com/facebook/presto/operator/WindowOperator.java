@@ -23,7 +23,9 @@ import com.facebook.presto.operator.WorkProcessor.Transformation;
 import com.facebook.presto.operator.WorkProcessor.TransformationState;
 import com.facebook.presto.operator.window.FrameInfo;
 import com.facebook.presto.operator.window.FramedWindowFunction;
+import com.facebook.presto.operator.window.StreamingWindowPartition;
 import com.facebook.presto.operator.window.WindowPartition;
+import com.facebook.presto.operator.window.WindowRowProcessor;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spiller.Spiller;
 import com.facebook.presto.spiller.SpillerFactory;
@@ -87,6 +89,9 @@ public class WindowOperator
         private final boolean spillEnabled;
         private final SpillerFactory spillerFactory;
         private final OrderingCompiler orderingCompiler;
+        private final boolean spillStreamingEnabled;
+        private final int spillStreamingBufferedRows;
+        private final boolean normalizedKeySortEnabled;
 
         public WindowOperatorFactory(
                 int operatorId,
@@ -104,6 +109,47 @@ public class WindowOperator
                 boolean spillEnabled,
                 SpillerFactory spillerFactory,
                 OrderingCompiler orderingCompiler)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    sourceTypes,
+                    outputChannels,
+                    windowFunctionDefinitions,
+                    partitionChannels,
+                    preGroupedChannels,
+                    sortChannels,
+                    sortOrder,
+                    preSortedChannelPrefix,
+                    expectedPositions,
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler,
+                    false,
+                    0,
+                    false);
+        }
+
+        public WindowOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                List<WindowFunctionDefinition> windowFunctionDefinitions,
+                List<Integer> partitionChannels,
+                List<Integer> preGroupedChannels,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                int preSortedChannelPrefix,
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                SpillerFactory spillerFactory,
+                OrderingCompiler orderingCompiler,
+                boolean spillStreamingEnabled,
+                int spillStreamingBufferedRows,
+                boolean normalizedKeySortEnabled)
         {
             requireNonNull(sourceTypes, "sourceTypes is null");
             requireNonNull(planNodeId, "planNodeId is null");
@@ -136,6 +182,9 @@ public class WindowOperator
             this.spillEnabled = spillEnabled;
             this.spillerFactory = spillerFactory;
             this.orderingCompiler = orderingCompiler;
+            this.spillStreamingEnabled = spillStreamingEnabled;
+            this.spillStreamingBufferedRows = spillStreamingBufferedRows;
+            this.normalizedKeySortEnabled = normalizedKeySortEnabled;
         }
 
         @Override
@@ -158,7 +207,10 @@ public class WindowOperator
                     pagesIndexFactory,
                     spillEnabled,
                     spillerFactory,
-                    orderingCompiler);
+                    orderingCompiler,
+                    spillStreamingEnabled,
+                    spillStreamingBufferedRows,
+                    normalizedKeySortEnabled);
         }
 
         @Override
@@ -185,7 +237,10 @@ public class WindowOperator
                     pagesIndexFactory,
                     spillEnabled,
                     spillerFactory,
-                    orderingCompiler);
+                    orderingCompiler,
+                    spillStreamingEnabled,
+                    spillStreamingBufferedRows,
+                    normalizedKeySortEnabled);
         }
     }
 
@@ -193,10 +248,12 @@ public class WindowOperator
     private final List<Type> outputTypes;
     private final int[] outputChannels;
     private final List<FramedWindowFunction> windowFunctions;
+    private final List<Type> sourceTypes;
     private final WindowInfo.DriverWindowInfoBuilder windowInfo;
     private final AtomicReference<WindowInfo> driverWindowInfo = new AtomicReference<>(WindowInfo.emptyInfo());
+    private final boolean normalizedKeySortEnabled;
 
-    private final Optional<SpillablePagesToPagesIndexes> spillablePagesToPagesIndexes;
+    private final Optional<SpillablePagesToWindowPartitions> spillablePagesToWindowPartitions;
 
     private final WorkProcessor<Page> outputPages;
     @Nullable
@@ -218,6 +275,45 @@ public class WindowOperator
             boolean spillEnabled,
             SpillerFactory spillerFactory,
             OrderingCompiler orderingCompiler)
+    {
+        this(
+                operatorContext,
+                sourceTypes,
+                outputChannels,
+                windowFunctionDefinitions,
+                partitionChannels,
+                preGroupedChannels,
+                sortChannels,
+                sortOrder,
+                preSortedChannelPrefix,
+                expectedPositions,
+                pagesIndexFactory,
+                spillEnabled,
+                spillerFactory,
+                orderingCompiler,
+                false,
+                0,
+                false);
+    }
+
+    public WindowOperator(
+            OperatorContext operatorContext,
+            List<Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<WindowFunctionDefinition> windowFunctionDefinitions,
+            List<Integer> partitionChannels,
+            List<Integer> preGroupedChannels,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            int preSortedChannelPrefix,
+            int expectedPositions,
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            SpillerFactory spillerFactory,
+            OrderingCompiler orderingCompiler,
+            boolean spillStreamingEnabled,
+            int spillStreamingBufferedRows,
+            boolean normalizedKeySortEnabled)
     {
         requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(outputChannels, "outputChannels is null");
@@ -232,8 +328,11 @@ public class WindowOperator
         checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
         checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
         checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
+        checkArgument(!spillStreamingEnabled || spillStreamingBufferedRows > 0, "spillStreamingBufferedRows must be positive");
 
         this.operatorContext = operatorContext;
+        this.normalizedKeySortEnabled = normalizedKeySortEnabled;
+        this.sourceTypes = ImmutableList.copyOf(sourceTypes);
         this.outputChannels = Ints.toArray(outputChannels);
         this.windowFunctions = windowFunctionDefinitions.stream()
                 .map(functionDefinition -> new FramedWindowFunction(functionDefinition.createWindowFunction(), functionDefinition.getFrameInfo()))
@@ -294,22 +393,26 @@ public class WindowOperator
                     sortOrder,
                     windowFunctionDefinitions);
 
-            this.spillablePagesToPagesIndexes = Optional.of(new SpillablePagesToPagesIndexes(
+            // partitions merged from spill files can be evaluated over a bounded buffer
+            // instead of a PagesIndex if all functions support it
+            boolean streamMergedPartitions = spillStreamingEnabled && isStreamable(windowFunctions, windowFunctionDefinitions);
+
+            this.spillablePagesToWindowPartitions = Optional.of(new SpillablePagesToWindowPartitions(
                     inMemoryPagesIndexWithHashStrategies,
                     mergedPagesIndexWithHashStrategies,
                     sourceTypes,
                     orderChannels,
                     ordering,
                     spillerFactory,
-                    orderingCompiler.compilePageWithPositionComparator(sourceTypes, unGroupedOrderChannels, unGroupedOrdering)));
+                    orderingCompiler.compilePageWithPositionComparator(sourceTypes, unGroupedOrderChannels, unGroupedOrdering),
+                    streamMergedPartitions ? OptionalInt.of(spillStreamingBufferedRows) : OptionalInt.empty()));
 
             this.outputPages = WorkProcessor.create(new PagesSource())
-                    .flatTransform(spillablePagesToPagesIndexes.get())
-                    .flatMap(this::pagesIndexToWindowPartitions)
+                    .flatTransform(spillablePagesToWindowPartitions.get())
                     .transform(new WindowPartitionsToOutputPages());
         }
         else {
-            this.spillablePagesToPagesIndexes = Optional.empty();
+            this.spillablePagesToWindowPartitions = Optional.empty();
             this.outputPages = WorkProcessor.create(new PagesSource())
                     .transform(new PagesToPagesIndexes(inMemoryPagesIndexWithHashStrategies, orderChannels, ordering))
                     .flatMap(this::pagesIndexToWindowPartitions)
@@ -374,13 +477,24 @@ public class WindowOperator
     @Override
     public ListenableFuture<?> startMemoryRevoke()
     {
-        return spillablePagesToPagesIndexes.get().spill();
+        return spillablePagesToWindowPartitions.get().spill();
     }
 
     @Override
     public void finishMemoryRevoke()
     {
-        spillablePagesToPagesIndexes.get().finishRevokeMemory();
+        spillablePagesToWindowPartitions.get().finishRevokeMemory();
+    }
+
+    private static boolean isStreamable(List<FramedWindowFunction> windowFunctions, List<WindowFunctionDefinition> windowFunctionDefinitions)
+    {
+        for (int i = 0; i < windowFunctions.size(); i++) {
+            FramedWindowFunction framedFunction = windowFunctions.get(i);
+            if (!StreamingWindowPartition.isStreamable(framedFunction.getFunction(), framedFunction.getFrame(), windowFunctionDefinitions.get(i).isIgnoreNulls())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private static class PagesIndexWithHashStrategies
@@ -391,6 +505,7 @@ public class WindowOperator
         final PagesHashStrategy preSortedPartitionHashStrategy;
         final PagesHashStrategy peerGroupHashStrategy;
         final int[] preGroupedPartitionChannels;
+        final int[] sortChannels;
         final Map<FrameBoundKey, PagesIndexComparator> frameBoundComparators;
 
         PagesIndexWithHashStrategies(
@@ -410,6 +525,7 @@ public class WindowOperator
             this.preSortedPartitionHashStrategy = pagesIndex.createPagesHashStrategy(preSortedChannels, OptionalInt.empty());
             this.peerGroupHashStrategy = pagesIndex.createPagesHashStrategy(sortChannels, OptionalInt.empty());
             this.preGroupedPartitionChannels = Ints.toArray(preGroupedPartitionChannels);
+            this.sortChannels = Ints.toArray(sortChannels);
             this.frameBoundComparators = createFrameBoundComparators(pagesIndex, windowFunctionDefinitions, sortOrder);
         }
     }
@@ -566,7 +682,7 @@ public class WindowOperator
         }
     }
 
-    private WorkProcessor<WindowPartition> pagesIndexToWindowPartitions(PagesIndexWithHashStrategies pagesIndexWithHashStrategies)
+    private WorkProcessor<WindowRowProcessor> pagesIndexToWindowPartitions(PagesIndexWithHashStrategies pagesIndexWithHashStrategies)
     {
         PagesIndex pagesIndex = pagesIndexWithHashStrategies.pagesIndex;
 
@@ -574,12 +690,12 @@ public class WindowOperator
 
         windowInfo.addIndex(pagesIndex);
 
-        return WorkProcessor.create(new WorkProcessor.Process<WindowPartition>()
+        return WorkProcessor.create(new WorkProcessor.Process<WindowRowProcessor>()
         {
             int partitionStart;
 
             @Override
-            public ProcessState<WindowPartition> process()
+            public ProcessState<WindowRowProcessor> process()
             {
                 if (partitionStart == pagesIndex.getPositionCount()) {
                     return ProcessState.finished();
@@ -602,8 +718,91 @@ public class WindowOperator
         });
     }
 
+    /**
+     * Splits pages grouped on partition channels and sorted on sort channels into {@link StreamingWindowPartition}s.
+     * A partition is produced again each time it has more rows ready to be processed.
+     */
+    private class PagesToStreamingWindowPartitions
+            implements Transformation<Page, WindowRowProcessor>
+    {
+        final PagesHashStrategy partitionHashStrategy;
+        final int[] partitionChannels;
+        final PagesHashStrategy peerGroupHashStrategy;
+        final int[] sortChannels;
+        final int maxBufferedRows;
+        final LocalMemoryContext memoryContext;
+
+        @Nullable
+        StreamingWindowPartition partition;
+        @Nullable
+        Page partitionKeyPage;
+        int pendingInputPosition;
+
+        PagesToStreamingWindowPartitions(PagesIndexWithHashStrategies pagesIndexWithHashStrategies, int maxBufferedRows)
+        {
+            this.partitionHashStrategy = pagesIndexWithHashStrategies.preGroupedPartitionHashStrategy;
+            this.partitionChannels = pagesIndexWithHashStrategies.preGroupedPartitionChannels;
+            this.peerGroupHashStrategy = pagesIndexWithHashStrategies.peerGroupHashStrategy;
+            this.sortChannels = pagesIndexWithHashStrategies.sortChannels;
+            this.maxBufferedRows = maxBufferedRows;
+            this.memoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(PagesToStreamingWindowPartitions.class.getSimpleName());
+        }
+
+        @Override
+        public TransformationState<WindowRowProcessor> process(Optional<Page> pendingInputOptional)
+        {
+            if (partition != null && partition.isFinished()) {
+                partition = null;
+                partitionKeyPage = null;
+            }
+
+            if (!pendingInputOptional.isPresent()) {
+                if (partition == null) {
+                    memoryContext.close();
+                    return TransformationState.finished();
+                }
+                partition.finishInput();
+                return TransformationState.ofResult(partition, false);
+            }
+
+            Page pendingInput = pendingInputOptional.get();
+            if (pendingInputPosition == pendingInput.getPositionCount()) {
+                pendingInputPosition = 0;
+                return needsMoreData();
+            }
+
+            Page partitionPage = pendingInput.extractChannels(partitionChannels);
+            if (partition == null) {
+                partition = new StreamingWindowPartition(sourceTypes, outputChannels, windowFunctions, peerGroupHashStrategy, sortChannels, maxBufferedRows);
+                partitionKeyPage = partitionPage.getSingleValuePage(pendingInputPosition);
+            }
+            else if (!partitionHashStrategy.rowEqualsRow(0, partitionKeyPage, pendingInputPosition, partitionPage)) {
+                // remaining input starts a new partition
+                partition.finishInput();
+                return TransformationState.ofResult(partition, false);
+            }
+
+            int partitionEnd = findGroupEnd(partitionPage, partitionHashStrategy, pendingInputPosition);
+            partition.addPage(pendingInput.getRegion(pendingInputPosition, partitionEnd - pendingInputPosition));
+            pendingInputPosition = partitionEnd;
+            memoryContext.setBytes(partition.getRetainedSizeInBytes());
+
+            if (partitionEnd < pendingInput.getPositionCount()) {
+                partition.finishInput();
+                return TransformationState.ofResult(partition, false);
+            }
+
+            // page fully consumed
+            pendingInputPosition = 0;
+            if (partition.hasNext()) {
+                return TransformationState.ofResult(partition, true);
+            }
+            return needsMoreData();
+        }
+    }
+
     private class WindowPartitionsToOutputPages
-            implements Transformation<WindowPartition, Page>
+            implements Transformation<WindowRowProcessor, Page>
     {
         final PageBuilder pageBuilder;
 
@@ -613,7 +812,7 @@ public class WindowOperator
         }
 
         @Override
-        public TransformationState<Page> process(Optional<WindowPartition> partitionOptional)
+        public TransformationState<Page> process(Optional<WindowRowProcessor> partitionOptional)
         {
             boolean finishing = !partitionOptional.isPresent();
             if (finishing) {
@@ -627,7 +826,7 @@ public class WindowOperator
                 return TransformationState.ofResult(page, false);
             }
 
-            WindowPartition partition = partitionOptional.get();
+            WindowRowProcessor partition = partitionOptional.get();
             while (!pageBuilder.isFull() && partition.hasNext()) {
                 partition.processNextRow(pageBuilder);
             }
@@ -641,8 +840,8 @@ public class WindowOperator
         }
     }
 
-    private class SpillablePagesToPagesIndexes
-            implements Transformation<Page, WorkProcessor<PagesIndexWithHashStrategies>>
+    private class SpillablePagesToWindowPartitions
+            implements Transformation<Page, WorkProcessor<WindowRowProcessor>>
     {
         final PagesIndexWithHashStrategies inMemoryPagesIndexWithHashStrategies;
         final PagesIndexWithHashStrategies mergedPagesIndexWithHashStrategies;
@@ -653,6 +852,7 @@ public class WindowOperator
         final LocalMemoryContext localUserMemoryContext;
         final SpillerFactory spillerFactory;
         final PageWithPositionComparator pageWithPositionComparator;
+        final OptionalInt streamingBufferedRows;
 
         boolean spillingWhenConvertingRevocableMemory;
         boolean resetPagesIndex;
@@ -663,31 +863,33 @@ public class WindowOperator
         // Spill can be trigger by Driver, by us or both. `spillInProgress` is not empty when spill was triggered but not `finishMemoryRevoke()` yet
         Optional<ListenableFuture<?>> spillInProgress = Optional.empty();
 
-        SpillablePagesToPagesIndexes(
+        SpillablePagesToWindowPartitions(
                 PagesIndexWithHashStrategies inMemoryPagesIndexWithHashStrategies,
                 PagesIndexWithHashStrategies mergedPagesIndexWithHashStrategies,
                 List<Type> sourceTypes,
                 List<Integer> orderChannels,
                 List<SortOrder> ordering,
                 SpillerFactory spillerFactory,
-                PageWithPositionComparator pageWithPositionComparator)
+                PageWithPositionComparator pageWithPositionComparator,
+                OptionalInt streamingBufferedRows)
         {
             this.inMemoryPagesIndexWithHashStrategies = inMemoryPagesIndexWithHashStrategies;
             this.mergedPagesIndexWithHashStrategies = mergedPagesIndexWithHashStrategies;
             this.sourceTypes = sourceTypes;
             this.orderChannels = orderChannels;
             this.ordering = ordering;
-            this.localUserMemoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(SpillablePagesToPagesIndexes.class.getSimpleName());
-            this.localRevocableMemoryContext = operatorContext.aggregateRevocableMemoryContext().newLocalMemoryContext(SpillablePagesToPagesIndexes.class.getSimpleName());
+            this.localUserMemoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(SpillablePagesToWindowPartitions.class.getSimpleName());
+            this.localRevocableMemoryContext = operatorContext.aggregateRevocableMemoryContext().newLocalMemoryContext(SpillablePagesToWindowPartitions.class.getSimpleName());
             this.spillerFactory = spillerFactory;
             this.pageWithPositionComparator = pageWithPositionComparator;
+            this.streamingBufferedRows = requireNonNull(streamingBufferedRows, "streamingBufferedRows is null");
 
             this.currentSpillGroupRowPage = Optional.empty();
             this.spiller = Optional.empty();
         }
 
         @Override
-        public TransformationState<WorkProcessor<PagesIndexWithHashStrategies>> process(Optional<Page> pendingInputOptional)
+        public TransformationState<WorkProcessor<WindowRowProcessor>> process(Optional<Page> pendingInputOptional)
         {
             if (spillingWhenConvertingRevocableMemory) {
                 // Spill could already be finished by Driver (via WindowOperator#finishMemoryRevoke), but finishRevokeMemory will take care of that
@@ -735,7 +937,7 @@ public class WindowOperator
             spiller = Optional.empty();
         }
 
-        TransformationState<WorkProcessor<PagesIndexWithHashStrategies>> fullGroupBuffered()
+        TransformationState<WorkProcessor<WindowRowProcessor>> fullGroupBuffered()
         {
             // Convert revocable memory to user memory as inMemoryPagesIndexWithHashStrategies holds on to memory so we no longer can revoke
             if (localRevocableMemoryContext.getBytes() > 0) {
@@ -758,7 +960,7 @@ public class WindowOperator
         ListenableFuture<?> spill()
         {
             if (spillInProgress.isPresent()) {
-                // Spill can be triggered first in SpillablePagesToPagesIndexes#process(..) and then by Driver (via WindowOperator#startMemoryRevoke)
+                // Spill can be triggered first in SpillablePagesToWindowPartitions#process(..) and then by Driver (via WindowOperator#startMemoryRevoke)
                 return spillInProgress.get();
             }
 
@@ -789,7 +991,7 @@ public class WindowOperator
         void finishRevokeMemory()
         {
             if (!spillInProgress.isPresent()) {
-                // Same spill iteration can be finished first by Driver (via WindowOperator#finishMemoryRevoke) and then by SpillablePagesToPagesIndexes#process(..)
+                // Same spill iteration can be finished first by Driver (via WindowOperator#finishMemoryRevoke) and then by SpillablePagesToWindowPartitions#process(..)
                 return;
             }
 
@@ -805,10 +1007,11 @@ public class WindowOperator
             updateMemoryUsage(false);
         }
 
-        WorkProcessor<PagesIndexWithHashStrategies> unspill()
+        WorkProcessor<WindowRowProcessor> unspill()
         {
             if (!spiller.isPresent()) {
-                return WorkProcessor.fromIterable(ImmutableList.of(inMemoryPagesIndexWithHashStrategies));
+                return WorkProcessor.fromIterable(ImmutableList.of(inMemoryPagesIndexWithHashStrategies))
+                        .flatMap(WindowOperator.this::pagesIndexToWindowPartitions);
             }
 
             List<WorkProcessor<Page>> sortedStreams = ImmutableList.<WorkProcessor<Page>>builder()
@@ -825,7 +1028,11 @@ public class WindowOperator
                     operatorContext.aggregateUserMemoryContext(),
                     operatorContext.getDriverContext().getYieldSignal());
 
-            return mergedPages.transform(new PagesToPagesIndexes(mergedPagesIndexWithHashStrategies, ImmutableList.of(), ImmutableList.of()));
+            if (streamingBufferedRows.isPresent()) {
+                return mergedPages.transform(new PagesToStreamingWindowPartitions(mergedPagesIndexWithHashStrategies, streamingBufferedRows.getAsInt()));
+            }
+            return mergedPages.transform(new PagesToPagesIndexes(mergedPagesIndexWithHashStrategies, ImmutableList.of(), ImmutableList.of()))
+                    .flatMap(WindowOperator.this::pagesIndexToWindowPartitions);
         }
 
         void updateMemoryUsage(boolean revocablePagesIndex)
@@ -886,7 +1093,7 @@ public class WindowOperator
             int startPosition = 0;
             while (startPosition < pagesIndexWithHashStrategies.pagesIndex.getPositionCount()) {
                 int endPosition = findGroupEnd(pagesIndexWithHashStrategies.pagesIndex, pagesIndexWithHashStrategies.preSortedPartitionHashStrategy, startPosition);
-                pagesIndexWithHashStrategies.pagesIndex.sort(orderChannels, ordering, startPosition, endPosition);
+                pagesIndexWithHashStrategies.pagesIndex.sort(orderChannels, ordering, startPosition, endPosition, normalizedKeySortEnabled, operatorContext.aggregateUserMemoryContext());
                 startPosition = endPosition;
             }
         }
@@ -945,6 +1152,6 @@ public class WindowOperator
     public void close()
     {
         driverWindowInfo.set(new WindowInfo(ImmutableList.of(windowInfo.build())));
-        spillablePagesToPagesIndexes.ifPresent(SpillablePagesToPagesIndexes::closeSpiller);
+        spillablePagesToWindowPartitions.ifPresent(SpillablePagesToWindowPartitions::closeSpiller);
     }
 }
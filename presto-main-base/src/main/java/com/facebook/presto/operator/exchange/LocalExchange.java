@@ -47,6 +47,7 @@ import java.util.stream.Stream;
 
 import static com.facebook.presto.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
 import static com.facebook.presto.operator.exchange.LocalExchangeSink.finishedLocalExchangeSink;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isZeroCopyLocalExchangeEnabled;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
@@ -141,7 +142,8 @@ public class LocalExchange
                             partitioningChannelTypes,
                             partitionHashChannel.isPresent()),
                     partitionChannels,
-                    partitionHashChannel);
+                    partitionHashChannel,
+                    isZeroCopyLocalExchangeEnabled(session));
         }
         else {
             throw new IllegalArgumentException("Unsupported local exchange partitioning " + partitioning);
@@ -129,9 +129,11 @@ public class LocalExchangeSource
             return null;
         }
 
+        // the page may be compacted on removal, so the size it was buffered with is taken first
+        long retainedSizeInBytes = pageReference.getRetainedSizeInBytes();
         // dereference the page outside of lock, since may trigger a callback
         Page page = pageReference.removePage();
-        bufferedBytes.addAndGet(-page.getRetainedSizeInBytes());
+        bufferedBytes.addAndGet(-retainedSizeInBytes);
 
         checkFinished();
 
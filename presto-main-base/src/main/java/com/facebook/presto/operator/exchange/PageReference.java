@@ -15,11 +15,13 @@ package com.facebook.presto.operator.exchange;
 
 import com.facebook.presto.common.Page;
 import com.google.errorprone.annotations.ThreadSafe;
+import jakarta.annotation.Nullable;
 
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
 import static java.util.Objects.requireNonNull;
 
 @ThreadSafe
@@ -29,29 +31,53 @@ final class PageReference
 
     private volatile int referenceCount;
     private final Page page;
+    // positions of the page copied by the consumer removing it, or null if the page itself is removed
+    @Nullable
+    private final int[] positions;
     private final PageReleasedListener onPageReleased;
 
     public PageReference(Page page, int referenceCount, PageReleasedListener onPageReleased)
     {
         this.page = requireNonNull(page, "page is null");
+        this.positions = null;
         this.onPageReleased = requireNonNull(onPageReleased, "onPageReleased is null");
         checkArgument(referenceCount >= 1, "referenceCount must be at least 1");
         this.referenceCount = referenceCount;
     }
 
+    /**
+     * Creates a reference to some positions of a page shared with other references. The positions are only copied
+     * by the consumer removing the page, so that it does not retain the whole shared page.
+     */
+    public PageReference(Page page, int[] positions, PageReleasedListener onPageReleased)
+    {
+        this.page = requireNonNull(page, "page is null");
+        this.positions = requireNonNull(positions, "positions is null");
+        this.onPageReleased = requireNonNull(onPageReleased, "onPageReleased is null");
+        this.referenceCount = 1;
+    }
+
     public long getRetainedSizeInBytes()
     {
-        return page.getRetainedSizeInBytes();
+        if (positions == null) {
+            return page.getRetainedSizeInBytes();
+        }
+        return page.getRetainedSizeInBytes() + sizeOf(positions);
     }
 
     public Page removePage()
     {
         int referenceCount = REFERENCE_COUNT_UPDATER.decrementAndGet(this);
         checkArgument(referenceCount >= 0, "Page reference count is negative");
+        Page removedPage = page;
+        if (positions != null) {
+            // copy the positions before the shared page can be released
+            removedPage = page.copyPositions(positions, 0, positions.length);
+        }
         if (referenceCount == 0) {
             onPageReleased.onPageReleased(page.getRetainedSizeInBytes());
         }
-        return page;
+        return removedPage;
     }
 
     @Override
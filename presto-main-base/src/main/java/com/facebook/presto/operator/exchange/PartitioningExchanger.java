@@ -24,13 +24,19 @@ import it.unimi.dsi.fastutil.ints.IntList;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+import static java.lang.Math.ceil;
 import static java.util.Objects.requireNonNull;
 
 class PartitioningExchanger
         implements LocalExchanger
 {
+    // a view retains the whole input page, so the consumers of partitions with fewer of the rows copy them instead
+    private static final double MIN_VIEW_POSITIONS_FRACTION = 0.5;
+
     private final List<Consumer<PageReference>> buffers;
     private final LocalExchangeMemoryManager memoryManager;
     private final PartitionFunction partitionFunction;
@@ -38,13 +44,16 @@ class PartitioningExchanger
     private final Optional<Integer> hashChannel;
     private final IntArrayList[] partitionAssignments;
     private final PageReleasedListener onPageReleased;
+    // when true, the partitions receive dictionary views over the input page rather than copies of their rows
+    private final boolean zeroCopy;
 
     public PartitioningExchanger(
             List<Consumer<PageReference>> partitions,
             LocalExchangeMemoryManager memoryManager,
             PartitionFunction partitionFunction,
             List<Integer> partitioningChannels,
-            Optional<Integer> hashChannel)
+            Optional<Integer> hashChannel,
+            boolean zeroCopy)
     {
         this.buffers = ImmutableList.copyOf(requireNonNull(partitions, "partitions is null"));
         this.memoryManager = requireNonNull(memoryManager, "memoryManager is null");
@@ -52,6 +61,7 @@ class PartitioningExchanger
         this.partitioningChannels = Ints.toArray(requireNonNull(partitioningChannels, "partitioningChannels is null"));
         this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
         this.onPageReleased = PageReleasedListener.forLocalExchangeMemoryManager(memoryManager);
+        this.zeroCopy = zeroCopy;
 
         partitionAssignments = new IntArrayList[partitions.size()];
         for (int i = 0; i < partitionAssignments.length; i++) {
@@ -74,15 +84,78 @@ class PartitioningExchanger
             partitionAssignments[partition].add(position);
         }
 
+        if (zeroCopy) {
+            sendPositionViews(page);
+            return;
+        }
+
         // build a page for each partition
         for (int partition = 0; partition < buffers.size(); partition++) {
-            IntArrayList positions = partitionAssignments[partition];
+            if (!partitionAssignments[partition].isEmpty()) {
+                sendPositionsCopy(page, partition);
+            }
+        }
+    }
+
+    private void sendPositionsCopy(Page page, int partition)
+    {
+        IntArrayList positions = partitionAssignments[partition];
+        Page pageSplit = page.copyPositions(positions.elements(), 0, positions.size());
+        memoryManager.updateMemoryUsage(pageSplit.getRetainedSizeInBytes());
+        buffers.get(partition).accept(new PageReference(pageSplit, 1, onPageReleased));
+    }
+
+    /**
+     * Sends the partitions with at least {@link #MIN_VIEW_POSITIONS_FRACTION} of the rows a view of their positions over the blocks
+     * of the page, and the other partitions a reference to their positions of the page, copied by the consumer removing it outside
+     * of the exchanger lock, so that operators keeping the pages they receive do not retain the whole input page for each partition.
+     * The page is accounted once in the memory manager, and released when all the partitions have removed their pages.
+     */
+    private void sendPositionViews(Page page)
+    {
+        int viewCount = 0;
+        long retainedSizeInBytes = page.getRetainedSizeInBytes();
+        for (IntArrayList positions : partitionAssignments) {
             if (!positions.isEmpty()) {
-                Page pageSplit = page.copyPositions(positions.elements(), 0, positions.size());
-                memoryManager.updateMemoryUsage(pageSplit.getRetainedSizeInBytes());
-                buffers.get(partition).accept(new PageReference(pageSplit, 1, onPageReleased));
+                viewCount++;
+                retainedSizeInBytes += sizeOfIntArray(positions.size());
             }
         }
+        if (viewCount == 0) {
+            return;
+        }
+
+        memoryManager.updateMemoryUsage(retainedSizeInBytes);
+        PageReleasedListener onViewReleased = sharedPageReleasedListener(viewCount, retainedSizeInBytes);
+        int minViewPositions = (int) ceil(page.getPositionCount() * MIN_VIEW_POSITIONS_FRACTION);
+        for (int partition = 0; partition < buffers.size(); partition++) {
+            IntArrayList positions = partitionAssignments[partition];
+            if (positions.isEmpty()) {
+                continue;
+            }
+            if (positions.size() == page.getPositionCount()) {
+                buffers.get(partition).accept(new PageReference(page, 1, onViewReleased));
+                continue;
+            }
+            // the references keep their positions, so every partition gets its own copy of the reused assignment list
+            int[] partitionPositions = positions.toIntArray();
+            if (positions.size() < minViewPositions) {
+                buffers.get(partition).accept(new PageReference(page, partitionPositions, onViewReleased));
+            }
+            else {
+                buffers.get(partition).accept(new PageReference(page.getPositions(partitionPositions, 0, partitionPositions.length), 1, onViewReleased));
+            }
+        }
+    }
+
+    private PageReleasedListener sharedPageReleasedListener(int viewCount, long retainedSizeInBytes)
+    {
+        AtomicInteger remainingViews = new AtomicInteger(viewCount);
+        return ignored -> {
+            if (remainingViews.decrementAndGet() == 0) {
+                memoryManager.updateMemoryUsage(-retainedSizeInBytes);
+            }
+        };
     }
 
     private Page extractPartitioningChannels(Page inputPage)
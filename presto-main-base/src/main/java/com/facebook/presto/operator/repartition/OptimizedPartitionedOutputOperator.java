@@ -73,6 +73,7 @@ import static com.facebook.presto.common.array.Arrays.ExpansionOption.PRESERVE;
 import static com.facebook.presto.common.array.Arrays.ensureCapacity;
 import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 import static com.facebook.presto.operator.repartition.AbstractBlockEncodingBuffer.createBlockEncodingBuffers;
+import static com.facebook.presto.operator.repartition.PartitionSkewTracker.getPartitionKeyTypes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.slice.SizeOf.SIZE_OF_INT;
@@ -104,7 +105,8 @@ public class OptimizedPartitionedOutputOperator
             OptionalInt nullChannel,
             OutputBuffer outputBuffer,
             PagesSerdeFactory serdeFactory,
-            DataSize maxMemory)
+            DataSize maxMemory,
+            boolean skewReportingEnabled)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.pagePreprocessor = requireNonNull(pagePreprocessor, "pagePreprocessor is null");
@@ -118,6 +120,7 @@ public class OptimizedPartitionedOutputOperator
                 serdeFactory,
                 sourceTypes,
                 maxMemory,
+                skewReportingEnabled,
                 operatorContext);
 
         operatorContext.setInfoSupplier(pagePartitioner.getPartitionedOutputInfoSupplier());
@@ -262,11 +265,13 @@ public class OptimizedPartitionedOutputOperator
     {
         private final OutputBuffer outputBuffer;
         private final DataSize maxMemory;
+        private final boolean skewReportingEnabled;
 
-        public OptimizedPartitionedOutputFactory(OutputBuffer outputBuffer, DataSize maxMemory)
+        public OptimizedPartitionedOutputFactory(OutputBuffer outputBuffer, DataSize maxMemory, boolean skewReportingEnabled)
         {
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
+            this.skewReportingEnabled = skewReportingEnabled;
         }
 
         @Override
@@ -291,7 +296,8 @@ public class OptimizedPartitionedOutputOperator
                     outputPartitioning.get().getNullChannel(),
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    skewReportingEnabled);
         }
     }
 
@@ -310,6 +316,7 @@ public class OptimizedPartitionedOutputOperator
         private final OutputBuffer outputBuffer;
         private final PagesSerdeFactory serdeFactory;
         private final DataSize maxMemory;
+        private final boolean skewReportingEnabled;
 
         public OptimizedPartitionedOutputOperatorFactory(
                 int operatorId,
@@ -323,7 +330,8 @@ public class OptimizedPartitionedOutputOperator
                 OptionalInt nullChannel,
                 OutputBuffer outputBuffer,
                 PagesSerdeFactory serdeFactory,
-                DataSize maxMemory)
+                DataSize maxMemory,
+                boolean skewReportingEnabled)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -337,6 +345,7 @@ public class OptimizedPartitionedOutputOperator
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
+            this.skewReportingEnabled = skewReportingEnabled;
         }
 
         @Override
@@ -354,7 +363,8 @@ public class OptimizedPartitionedOutputOperator
                     nullChannel,
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    skewReportingEnabled);
         }
 
         @Override
@@ -377,7 +387,8 @@ public class OptimizedPartitionedOutputOperator
                     nullChannel,
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    skewReportingEnabled);
         }
     }
 
@@ -393,6 +404,7 @@ public class OptimizedPartitionedOutputOperator
         private final int nullChannel; // when >= 0, send the position to every partition if this channel is null
         private final AtomicLong rowsAdded = new AtomicLong();
         private final AtomicLong pagesAdded = new AtomicLong();
+        private final PartitionSkewTracker skewTracker;
 
         // The ArrayAllocator used by BlockFlattener for decoding blocks.
         // There could be queries that shuffles data with up to 1000 columns so we need to set the maxOutstandingArrays a high number.
@@ -421,6 +433,7 @@ public class OptimizedPartitionedOutputOperator
                 PagesSerdeFactory serdeFactory,
                 List<Type> sourceTypes,
                 DataSize maxMemory,
+                boolean skewReportingEnabled,
                 OperatorContext operatorContext)
         {
             this.partitionFunction = requireNonNull(partitionFunction, "pagePartitioner is null");
@@ -445,7 +458,9 @@ public class OptimizedPartitionedOutputOperator
             this.replicatesAnyRow = replicatesAnyRow;
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null").orElse(-1);
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
-            this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerde();
+            this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerdeForOutputBuffer(outputBuffer::getUtilization, operatorContext.getRuntimeStats());
+
+            this.skewTracker = new PartitionSkewTracker(partitionFunction, getPartitionKeyTypes(this.partitionChannels, partitionConstants, sourceTypes), skewReportingEnabled);
 
             int partitionCount = partitionFunction.getPartitionCount();
 
@@ -453,7 +468,7 @@ public class OptimizedPartitionedOutputOperator
 
             partitionBuffers = new PartitionBuffer[partitionCount];
             for (int i = 0; i < partitionCount; i++) {
-                partitionBuffers[i] = new PartitionBuffer(i, sourceTypes.size(), partitionBufferCapacity, pagesAdded, rowsAdded, serde, bufferAllocator, operatorContext);
+                partitionBuffers[i] = new PartitionBuffer(i, sourceTypes.size(), partitionBufferCapacity, pagesAdded, rowsAdded, skewTracker, serde, bufferAllocator, operatorContext);
             }
 
             this.sourceTypes = sourceTypes;
@@ -481,7 +496,7 @@ public class OptimizedPartitionedOutputOperator
         public Supplier<PartitionedOutputInfo> getPartitionedOutputInfoSupplier()
         {
             // Must be a separate static method to avoid embedding references to "this" in the supplier
-            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, outputBuffer);
+            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, outputBuffer, skewTracker);
         }
 
         public void partitionPage(Page page)
@@ -516,6 +531,7 @@ public class OptimizedPartitionedOutputOperator
             // Skip null block checks if mayHaveNull reports that no positions will be null
             if (nullChannel >= 0 && page.getBlock(nullChannel).mayHaveNull()) {
                 Block nullBlock = page.getBlock(nullChannel);
+                skewTracker.sample(partitionFunctionArgs, nullBlock);
                 for (; position < positionCount; position++) {
                     if (nullBlock.isNull(position)) {
                         for (int i = 0; i < partitionBuffers.length; i++) {
@@ -529,6 +545,7 @@ public class OptimizedPartitionedOutputOperator
                 }
             }
             else {
+                skewTracker.sample(partitionFunctionArgs, null);
                 for (; position < positionCount; position++) {
                     int partition = partitionFunction.getPartition(partitionFunctionArgs, position);
                     partitionBuffers[partition].addPosition(position);
@@ -622,6 +639,7 @@ public class OptimizedPartitionedOutputOperator
         private final int partition;
         private final AtomicLong rowsAdded;
         private final AtomicLong pagesAdded;
+        private final PartitionSkewTracker skewTracker;
         private final PagesSerde serde;
         private final Lifespan lifespan;
         private final int capacity;
@@ -636,13 +654,14 @@ public class OptimizedPartitionedOutputOperator
         private boolean bufferFull;
         private OperatorContext operatorContext;
 
-        PartitionBuffer(int partition, int channelCount, int capacity, AtomicLong pagesAdded, AtomicLong rowsAdded, PagesSerde serde, ArrayAllocator bufferAllocator, OperatorContext operatorContext)
+        PartitionBuffer(int partition, int channelCount, int capacity, AtomicLong pagesAdded, AtomicLong rowsAdded, PartitionSkewTracker skewTracker, PagesSerde serde, ArrayAllocator bufferAllocator, OperatorContext operatorContext)
         {
             this.partition = partition;
             this.channelCount = channelCount;
             this.capacity = capacity;
             this.pagesAdded = requireNonNull(pagesAdded, "pagesAdded is null");
             this.rowsAdded = requireNonNull(rowsAdded, "rowsAdded is null");
+            this.skewTracker = requireNonNull(skewTracker, "skewTracker is null");
             this.serde = requireNonNull(serde, "serde is null");
             this.bufferAllocator = requireNonNull(bufferAllocator, "bufferAllocator is null");
             this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
@@ -792,6 +811,7 @@ public class OptimizedPartitionedOutputOperator
             pagesAdded.incrementAndGet();
             rowsAdded.addAndGet(bufferedRowCount);
             operatorContext.recordOutput(totalSizeInBytes, bufferedRowCount);
+            skewTracker.recordPartitionOutput(partition, totalSizeInBytes);
 
             bufferedRowCount = 0;
         }
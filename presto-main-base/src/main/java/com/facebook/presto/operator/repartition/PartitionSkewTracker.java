@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.repartition;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.HashGenerator;
+import com.facebook.presto.operator.PartitionFunction;
+import com.facebook.presto.operator.repartition.PartitionedOutputInfo.HeavyHitter;
+import com.facebook.presto.spi.relation.ConstantExpression;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.annotation.Nullable;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.facebook.presto.operator.InterpretedHashGenerator.createPositionalWithTypes;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tracks how the rows of a partitioned output are distributed over the output partitions.
+ * <p>
+ * The bytes sent to every partition are always counted. If skew reporting is enabled, every
+ * {@link #SAMPLING_INTERVAL}th row is also sampled, and the frequencies of the partitioning keys of the sampled rows are
+ * estimated with the space-saving algorithm, which keeps a bounded number of counters. A key is reported as a heavy hitter
+ * if it is estimated to be more frequent than the average partition, that is if the key alone is enough to skew the
+ * partition it is sent to.
+ * <p>
+ * Skew is only reported, through {@link PartitionedOutputInfo}: rows are still sent to the partition chosen by the
+ * partition function. The reported key hashes can be passed to the {@code HOT_KEYS} strategy of
+ * {@link com.facebook.presto.sql.planner.optimizations.ShardJoins}, which spreads the hot keys of a join when it is
+ * planned.
+ */
+@ThreadSafe
+class PartitionSkewTracker
+{
+    static final int SAMPLING_INTERVAL = 64;
+    static final int MAX_HEAVY_HITTERS = 16;
+    // more counters than reported heavy hitters make the estimates of the reported ones more accurate
+    private static final int MAX_COUNTERS = 4 * MAX_HEAVY_HITTERS;
+
+    private final PartitionFunction partitionFunction;
+    private final AtomicLongArray partitionSizesInBytes;
+    @Nullable
+    private final HashGenerator keyHashGenerator; // when null, skew reporting is disabled
+
+    @GuardedBy("this")
+    private final Map<Long, KeyCounter> counters = new HashMap<>();
+    @GuardedBy("this")
+    private long rowsSampled;
+    @GuardedBy("this")
+    private int nextSampledPosition;
+
+    public PartitionSkewTracker(PartitionFunction partitionFunction, List<Type> keyTypes, boolean skewReportingEnabled)
+    {
+        this.partitionFunction = requireNonNull(partitionFunction, "partitionFunction is null");
+        this.partitionSizesInBytes = new AtomicLongArray(partitionFunction.getPartitionCount());
+        requireNonNull(keyTypes, "keyTypes is null");
+        this.keyHashGenerator = skewReportingEnabled ? createPositionalWithTypes(ImmutableList.copyOf(keyTypes)) : null;
+    }
+
+    /**
+     * Returns the types of the arguments of the partition function, which are either channels of the source or constants.
+     */
+    public static List<Type> getPartitionKeyTypes(int[] partitionChannels, List<Optional<ConstantExpression>> partitionConstants, List<Type> sourceTypes)
+    {
+        ImmutableList.Builder<Type> keyTypes = ImmutableList.builderWithExpectedSize(partitionChannels.length);
+        for (int i = 0; i < partitionChannels.length; i++) {
+            if (partitionChannels[i] >= 0) {
+                keyTypes.add(sourceTypes.get(partitionChannels[i]));
+            }
+            else {
+                keyTypes.add(partitionConstants.get(i).get().getType());
+            }
+        }
+        return keyTypes.build();
+    }
+
+    public void recordPartitionOutput(int partition, long sizeInBytes)
+    {
+        partitionSizesInBytes.addAndGet(partition, sizeInBytes);
+    }
+
+    /**
+     * Samples the keys of a page.
+     *
+     * @param partitionFunctionArgs the arguments of the partition function, one block per partitioning key
+     * @param replicatedNulls when not null, the rows that are null in this block are sent to every partition and not sampled
+     */
+    public void sample(Page partitionFunctionArgs, @Nullable Block replicatedNulls)
+    {
+        if (keyHashGenerator == null) {
+            return;
+        }
+        synchronized (this) {
+            int positionCount = partitionFunctionArgs.getPositionCount();
+            int position = nextSampledPosition;
+            for (; position < positionCount; position += SAMPLING_INTERVAL) {
+                if (replicatedNulls != null && replicatedNulls.isNull(position)) {
+                    continue;
+                }
+                sample(keyHashGenerator.hashPosition(position, partitionFunctionArgs), partitionFunction.getPartition(partitionFunctionArgs, position));
+            }
+            nextSampledPosition = position - positionCount;
+        }
+    }
+
+    @GuardedBy("this")
+    private void sample(long keyHash, int partition)
+    {
+        rowsSampled++;
+        KeyCounter counter = counters.get(keyHash);
+        if (counter != null) {
+            counter.count++;
+            return;
+        }
+        if (counters.size() < MAX_COUNTERS) {
+            counters.put(keyHash, new KeyCounter(keyHash, partition, 1));
+            return;
+        }
+
+        // the new key replaces the least frequent one, and inherits its count as an upper bound of its own count
+        KeyCounter minCounter = null;
+        for (KeyCounter candidate : counters.values()) {
+            if (minCounter == null || candidate.count < minCounter.count) {
+                minCounter = candidate;
+            }
+        }
+        counters.remove(minCounter.keyHash);
+        counters.put(keyHash, new KeyCounter(keyHash, partition, minCounter.count + 1));
+    }
+
+    public synchronized long getRowsSampled()
+    {
+        return rowsSampled;
+    }
+
+    public synchronized List<HeavyHitter> getHeavyHitters()
+    {
+        int partitionCount = partitionSizesInBytes.length();
+        return counters.values().stream()
+                .filter(counter -> counter.count * partitionCount > rowsSampled)
+                .sorted(Comparator.comparingLong((KeyCounter counter) -> counter.count).reversed())
+                .limit(MAX_HEAVY_HITTERS)
+                .map(counter -> new HeavyHitter(counter.keyHash, counter.partition, counter.count))
+                .collect(toImmutableList());
+    }
+
+    public List<Long> getPartitionSizesInBytes()
+    {
+        ImmutableList.Builder<Long> partitionSizesInBytes = ImmutableList.builderWithExpectedSize(this.partitionSizesInBytes.length());
+        for (int partition = 0; partition < this.partitionSizesInBytes.length(); partition++) {
+            partitionSizesInBytes.add(this.partitionSizesInBytes.get(partition));
+        }
+        return partitionSizesInBytes.build();
+    }
+
+    private static class KeyCounter
+    {
+        private final long keyHash;
+        private final int partition;
+        private long count;
+
+        private KeyCounter(long keyHash, int partition, long count)
+        {
+            this.keyHash = keyHash;
+            this.partition = partition;
+            this.count = count;
+        }
+    }
+}
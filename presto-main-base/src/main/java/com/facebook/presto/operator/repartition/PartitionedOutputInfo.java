@@ -21,11 +21,20 @@ import com.facebook.presto.operator.OperatorInfo;
 import com.facebook.presto.util.Mergeable;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.Immutable;
 
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.operator.repartition.PartitionSkewTracker.MAX_HEAVY_HITTERS;
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.Math.max;
 import static java.util.Objects.requireNonNull;
 
 @ThriftStruct
@@ -35,17 +44,26 @@ public class PartitionedOutputInfo
     private final long rowsAdded;
     private final long pagesAdded;
     private final long outputBufferPeakMemoryUsage;
+    private final List<Long> partitionSizesInBytes;
+    private final long rowsSampled;
+    private final List<HeavyHitter> heavyHitters;
 
     @JsonCreator
     @ThriftConstructor
     public PartitionedOutputInfo(
             @JsonProperty("rowsAdded") long rowsAdded,
             @JsonProperty("pagesAdded") long pagesAdded,
-            @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage)
+            @JsonProperty("outputBufferPeakMemoryUsage") long outputBufferPeakMemoryUsage,
+            @JsonProperty("partitionSizesInBytes") List<Long> partitionSizesInBytes,
+            @JsonProperty("rowsSampled") long rowsSampled,
+            @JsonProperty("heavyHitters") List<HeavyHitter> heavyHitters)
     {
         this.rowsAdded = rowsAdded;
         this.pagesAdded = pagesAdded;
         this.outputBufferPeakMemoryUsage = outputBufferPeakMemoryUsage;
+        this.partitionSizesInBytes = ImmutableList.copyOf(requireNonNull(partitionSizesInBytes, "partitionSizesInBytes is null"));
+        this.rowsSampled = rowsSampled;
+        this.heavyHitters = ImmutableList.copyOf(requireNonNull(heavyHitters, "heavyHitters is null"));
     }
 
     @JsonProperty
@@ -69,13 +87,86 @@ public class PartitionedOutputInfo
         return outputBufferPeakMemoryUsage;
     }
 
+    /**
+     * Bytes sent to every output partition.
+     */
+    @JsonProperty
+    @ThriftField(4)
+    public List<Long> getPartitionSizesInBytes()
+    {
+        return partitionSizesInBytes;
+    }
+
+    /**
+     * Rows whose partitioning keys were sampled to detect heavy hitters, zero if skew reporting is disabled.
+     */
+    @JsonProperty
+    @ThriftField(5)
+    public long getRowsSampled()
+    {
+        return rowsSampled;
+    }
+
+    /**
+     * Partitioning keys that are estimated to be more frequent than the average partition, most frequent first.
+     */
+    @JsonProperty
+    @ThriftField(6)
+    public List<HeavyHitter> getHeavyHitters()
+    {
+        return heavyHitters;
+    }
+
     @Override
     public PartitionedOutputInfo mergeWith(PartitionedOutputInfo other)
     {
         return new PartitionedOutputInfo(
                 rowsAdded + other.rowsAdded,
                 pagesAdded + other.pagesAdded,
-                Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage));
+                Math.max(outputBufferPeakMemoryUsage, other.outputBufferPeakMemoryUsage),
+                mergePartitionSizes(partitionSizesInBytes, other.partitionSizesInBytes),
+                rowsSampled + other.rowsSampled,
+                mergeHeavyHitters(heavyHitters, other.heavyHitters));
+    }
+
+    private static List<Long> mergePartitionSizes(List<Long> first, List<Long> second)
+    {
+        if (second.isEmpty()) {
+            return first;
+        }
+        if (first.isEmpty()) {
+            return second;
+        }
+        ImmutableList.Builder<Long> merged = ImmutableList.builderWithExpectedSize(max(first.size(), second.size()));
+        for (int partition = 0; partition < max(first.size(), second.size()); partition++) {
+            long size = partition < first.size() ? first.get(partition) : 0;
+            if (partition < second.size()) {
+                size += second.get(partition);
+            }
+            merged.add(size);
+        }
+        return merged.build();
+    }
+
+    private static List<HeavyHitter> mergeHeavyHitters(List<HeavyHitter> first, List<HeavyHitter> second)
+    {
+        if (second.isEmpty()) {
+            return first;
+        }
+        if (first.isEmpty()) {
+            return second;
+        }
+        Map<Long, HeavyHitter> merged = new HashMap<>();
+        for (HeavyHitter heavyHitter : first) {
+            merged.put(heavyHitter.getKeyHash(), heavyHitter);
+        }
+        for (HeavyHitter heavyHitter : second) {
+            merged.merge(heavyHitter.getKeyHash(), heavyHitter, HeavyHitter::mergeWith);
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparingLong(HeavyHitter::getRowsSampled).reversed())
+                .limit(MAX_HEAVY_HITTERS)
+                .collect(toImmutableList());
     }
 
     @Override
@@ -91,14 +182,88 @@ public class PartitionedOutputInfo
                 .add("rowsAdded", rowsAdded)
                 .add("pagesAdded", pagesAdded)
                 .add("outputBufferPeakMemoryUsage", outputBufferPeakMemoryUsage)
+                .add("partitionSizesInBytes", partitionSizesInBytes)
+                .add("rowsSampled", rowsSampled)
+                .add("heavyHitters", heavyHitters)
                 .toString();
     }
 
-    public static Supplier<PartitionedOutputInfo> createPartitionedOutputInfoSupplier(AtomicLong rowsAdded, AtomicLong pagesAdded, OutputBuffer outputBuffer)
+    static Supplier<PartitionedOutputInfo> createPartitionedOutputInfoSupplier(AtomicLong rowsAdded, AtomicLong pagesAdded, OutputBuffer outputBuffer, PartitionSkewTracker skewTracker)
     {
         requireNonNull(rowsAdded, "rowsAdded is null");
         requireNonNull(pagesAdded, "pagesAdded is null");
         requireNonNull(outputBuffer, "outputBuffer is null");
-        return () -> new PartitionedOutputInfo(rowsAdded.get(), pagesAdded.get(), outputBuffer.getPeakMemoryUsage());
+        requireNonNull(skewTracker, "skewTracker is null");
+        return () -> new PartitionedOutputInfo(
+                rowsAdded.get(),
+                pagesAdded.get(),
+                outputBuffer.getPeakMemoryUsage(),
+                skewTracker.getPartitionSizesInBytes(),
+                skewTracker.getRowsSampled(),
+                skewTracker.getHeavyHitters());
+    }
+
+    /**
+     * A partitioning key that alone sends more rows to its partition than the average partition receives.
+     * The key is identified by the hash of its values, see {@link com.facebook.presto.operator.InterpretedHashGenerator}.
+     */
+    @Immutable
+    @ThriftStruct
+    public static class HeavyHitter
+    {
+        private final long keyHash;
+        private final int partition;
+        private final long rowsSampled;
+
+        @JsonCreator
+        @ThriftConstructor
+        public HeavyHitter(
+                @JsonProperty("keyHash") long keyHash,
+                @JsonProperty("partition") int partition,
+                @JsonProperty("rowsSampled") long rowsSampled)
+        {
+            this.keyHash = keyHash;
+            this.partition = partition;
+            this.rowsSampled = rowsSampled;
+        }
+
+        @JsonProperty
+        @ThriftField(1)
+        public long getKeyHash()
+        {
+            return keyHash;
+        }
+
+        @JsonProperty
+        @ThriftField(2)
+        public int getPartition()
+        {
+            return partition;
+        }
+
+        /**
+         * Estimated number of sampled rows with this key.
+         */
+        @JsonProperty
+        @ThriftField(3)
+        public long getRowsSampled()
+        {
+            return rowsSampled;
+        }
+
+        public HeavyHitter mergeWith(HeavyHitter other)
+        {
+            return new HeavyHitter(keyHash, partition, rowsSampled + other.rowsSampled);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("keyHash", keyHash)
+                    .add("partition", partition)
+                    .add("rowsSampled", rowsSampled)
+                    .toString();
+        }
     }
 }
@@ -49,6 +49,7 @@ import java.util.function.Supplier;
 
 import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 import static com.facebook.presto.execution.buffer.PageSplitterUtil.splitPage;
+import static com.facebook.presto.operator.repartition.PartitionSkewTracker.getPartitionKeyTypes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -62,11 +63,13 @@ public class PartitionedOutputOperator
     {
         private final OutputBuffer outputBuffer;
         private final DataSize maxMemory;
+        private final boolean skewReportingEnabled;
 
-        public PartitionedOutputFactory(OutputBuffer outputBuffer, DataSize maxMemory)
+        public PartitionedOutputFactory(OutputBuffer outputBuffer, DataSize maxMemory, boolean skewReportingEnabled)
         {
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
+            this.skewReportingEnabled = skewReportingEnabled;
         }
 
         @Override
@@ -91,7 +94,8 @@ public class PartitionedOutputOperator
                     outputPartitioning.get().getNullChannel(),
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    skewReportingEnabled);
         }
     }
 
@@ -110,6 +114,7 @@ public class PartitionedOutputOperator
         private final OutputBuffer outputBuffer;
         private final PagesSerdeFactory serdeFactory;
         private final DataSize maxMemory;
+        private final boolean skewReportingEnabled;
 
         public PartitionedOutputOperatorFactory(
                 int operatorId,
@@ -123,7 +128,8 @@ public class PartitionedOutputOperator
                 OptionalInt nullChannel,
                 OutputBuffer outputBuffer,
                 PagesSerdeFactory serdeFactory,
-                DataSize maxMemory)
+                DataSize maxMemory,
+                boolean skewReportingEnabled)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -137,6 +143,7 @@ public class PartitionedOutputOperator
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
             this.maxMemory = requireNonNull(maxMemory, "maxMemory is null");
+            this.skewReportingEnabled = skewReportingEnabled;
         }
 
         @Override
@@ -154,7 +161,8 @@ public class PartitionedOutputOperator
                     nullChannel,
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    skewReportingEnabled);
         }
 
         @Override
@@ -177,7 +185,8 @@ public class PartitionedOutputOperator
                     nullChannel,
                     outputBuffer,
                     serdeFactory,
-                    maxMemory);
+                    maxMemory,
+                    skewReportingEnabled);
         }
     }
 
@@ -198,7 +207,8 @@ public class PartitionedOutputOperator
             OptionalInt nullChannel,
             OutputBuffer outputBuffer,
             PagesSerdeFactory serdeFactory,
-            DataSize maxMemory)
+            DataSize maxMemory,
+            boolean skewReportingEnabled)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.pagePreprocessor = requireNonNull(pagePreprocessor, "pagePreprocessor is null");
@@ -212,6 +222,7 @@ public class PartitionedOutputOperator
                 serdeFactory,
                 sourceTypes,
                 maxMemory,
+                skewReportingEnabled,
                 operatorContext);
 
         operatorContext.setInfoSupplier(this.partitionFunction.getPartitionedOutputInfoSupplier());
@@ -294,6 +305,7 @@ public class PartitionedOutputOperator
         private final int nullChannel; // when >= 0, send the position to every partition if this channel is null
         private final AtomicLong rowsAdded = new AtomicLong();
         private final AtomicLong pagesAdded = new AtomicLong();
+        private final PartitionSkewTracker skewTracker;
         private boolean hasAnyRowBeenReplicated;
         private final OperatorContext operatorContext;
         private final LocalMemoryContext systemMemoryContext;
@@ -308,6 +320,7 @@ public class PartitionedOutputOperator
                 PagesSerdeFactory serdeFactory,
                 List<Type> sourceTypes,
                 DataSize maxMemory,
+                boolean skewReportingEnabled,
                 OperatorContext operatorContext)
         {
             this.partitionFunction = requireNonNull(partitionFunction, "partitionFunction is null");
@@ -325,7 +338,7 @@ public class PartitionedOutputOperator
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null").orElse(-1);
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.sourceTypes = requireNonNull(sourceTypes, "sourceTypes is null").toArray(new Type[0]);
-            this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerde();
+            this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerdeForOutputBuffer(outputBuffer::getUtilization, operatorContext.getRuntimeStats());
             this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
             this.systemMemoryContext = operatorContext.localSystemMemoryContext();
             this.systemMemoryContext.setBytes(getRetainedSizeInBytes());
@@ -338,6 +351,8 @@ public class PartitionedOutputOperator
                 }
             }
 
+            this.skewTracker = new PartitionSkewTracker(partitionFunction, getPartitionKeyTypes(this.partitionChannels, partitionConstants, sourceTypes), skewReportingEnabled);
+
             int partitionCount = partitionFunction.getPartitionCount();
             int pageSize = min(DEFAULT_MAX_PAGE_SIZE_IN_BYTES, ((int) maxMemory.toBytes()) / partitionCount);
             pageSize = max(1, pageSize);
@@ -388,7 +403,7 @@ public class PartitionedOutputOperator
         public Supplier<PartitionedOutputInfo> getPartitionedOutputInfoSupplier()
         {
             // Must be a separate static method to avoid embedding references to "this" in the supplier
-            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, outputBuffer);
+            return PartitionedOutputInfo.createPartitionedOutputInfoSupplier(rowsAdded, pagesAdded, outputBuffer, skewTracker);
         }
 
         public void partitionPage(Page page)
@@ -415,6 +430,7 @@ public class PartitionedOutputOperator
             // Skip null block checks if mayHaveNull reports that no positions will be null
             if (nullChannel >= 0 && page.getBlock(nullChannel).mayHaveNull()) {
                 Block nullsBlock = page.getBlock(nullChannel);
+                skewTracker.sample(partitionFunctionArgs, nullsBlock);
                 for (; position < page.getPositionCount(); position++) {
                     if (nullsBlock.isNull(position)) {
                         for (PageBuilder pageBuilder : pageBuilders) {
@@ -428,6 +444,7 @@ public class PartitionedOutputOperator
                 }
             }
             else {
+                skewTracker.sample(partitionFunctionArgs, null);
                 for (; position < page.getPositionCount(); position++) {
                     int partition = partitionFunction.getPartition(partitionFunctionArgs, position);
                     appendRow(pageBuilders[partition], page, position);
@@ -480,6 +497,7 @@ public class PartitionedOutputOperator
                     partitionPageBuilder.reset();
 
                     operatorContext.recordOutput(pagePartition.getSizeInBytes(), pagePartition.getPositionCount());
+                    skewTracker.recordPartitionOutput(partition, pagePartition.getSizeInBytes());
 
                     outputBuffer.enqueue(operatorContext.getDriverContext().getLifespan(), partition, splitAndSerializePage(pagePartition));
                     pagesAdded.incrementAndGet();
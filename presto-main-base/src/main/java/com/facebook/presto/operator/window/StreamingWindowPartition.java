@@ -0,0 +1,380 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.PagesHashStrategy;
+import com.facebook.presto.operator.window.WindowPartition.Range;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.function.WindowFunction;
+import com.facebook.presto.spi.function.WindowIndex;
+import com.facebook.presto.spi.plan.WindowNode.Frame.BoundType;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INSUFFICIENT_RESOURCES;
+import static com.facebook.presto.spi.StandardErrorCode.INVALID_WINDOW_FRAME;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.FOLLOWING;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.PRECEDING;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.UNBOUNDED_FOLLOWING;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.UNBOUNDED_PRECEDING;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.WindowType.ROWS;
+import static com.facebook.presto.util.Failures.checkCondition;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A window partition evaluated over a bounded buffer of its rows, for partitions that are too
+ * large to be loaded into a {@link com.facebook.presto.operator.PagesIndex}.
+ * <p>
+ * Pages of the sorted partition are added as they arrive, and a row is processed once the
+ * lookahead it may need is buffered or the end of the partition is known. Rows more than
+ * {@code maxBufferedRows} before the current row are released. This is only correct for the
+ * functions accepted by {@link #isStreamable}: ranking functions that do not need the peer
+ * group or partition size, {@code lag} and {@code lead}, and functions over ROWS frames that
+ * do not extend to the end of the partition. Accessing a row outside of the buffer, e.g. because
+ * of a large {@code lag} offset, fails the query instead of returning a wrong result.
+ */
+public final class StreamingWindowPartition
+        implements WindowRowProcessor
+{
+    private final List<Type> types;
+    private final int[] outputChannels;
+    private final List<FramedWindowFunction> windowFunctions;
+    private final PagesHashStrategy peerGroupHashStrategy;
+    private final int[] peerGroupChannels;
+    private final int maxBufferedRows;
+    private final int lookahead;
+
+    // buffered pages of the partition, and the partition position of their first rows
+    private final List<Page> pages = new ArrayList<>();
+    private final List<Page> peerGroupPages = new ArrayList<>();
+    private final List<Integer> pageStarts = new ArrayList<>();
+    private final BufferedWindowIndex windowIndex = new BufferedWindowIndex();
+    private int bufferedEnd;
+    private long retainedSizeInBytes;
+    private boolean inputFinished;
+
+    private int currentPosition;
+    private int peerGroupStart;
+
+    public StreamingWindowPartition(
+            List<Type> types,
+            int[] outputChannels,
+            List<FramedWindowFunction> windowFunctions,
+            PagesHashStrategy peerGroupHashStrategy,
+            int[] peerGroupChannels,
+            int maxBufferedRows)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.outputChannels = requireNonNull(outputChannels, "outputChannels is null");
+        this.windowFunctions = ImmutableList.copyOf(requireNonNull(windowFunctions, "windowFunctions is null"));
+        this.peerGroupHashStrategy = requireNonNull(peerGroupHashStrategy, "peerGroupHashStrategy is null");
+        this.peerGroupChannels = requireNonNull(peerGroupChannels, "peerGroupChannels is null");
+        checkArgument(maxBufferedRows > 0, "maxBufferedRows must be positive");
+        this.maxBufferedRows = maxBufferedRows;
+        this.lookahead = this.windowFunctions.stream().anyMatch(StreamingWindowPartition::needsLookahead) ? maxBufferedRows : 0;
+
+        // reset functions for new partition
+        for (FramedWindowFunction framedWindowFunction : this.windowFunctions) {
+            framedWindowFunction.getFunction().reset(windowIndex);
+        }
+    }
+
+    /**
+     * @return whether the function can be evaluated by a {@link StreamingWindowPartition}
+     */
+    public static boolean isStreamable(WindowFunction function, FrameInfo frame, boolean ignoreNulls)
+    {
+        if (function instanceof RowNumberFunction || function instanceof RankFunction || function instanceof DenseRankFunction) {
+            return true;
+        }
+        if (function instanceof LagFunction || function instanceof LeadFunction) {
+            // with IGNORE NULLS the offset is not bounded by the number of rows
+            return !ignoreNulls;
+        }
+        if (frame.getType() != ROWS || frame.getEndType() == UNBOUNDED_FOLLOWING) {
+            return false;
+        }
+        if (function instanceof AggregateWindowFunction || function instanceof LastValueFunction) {
+            // frames starting at the beginning of the partition are aggregated incrementally, and last_value only reads the frame end
+            return true;
+        }
+        if (function instanceof FirstValueFunction || function instanceof NthValueFunction) {
+            return frame.getStartType() != UNBOUNDED_PRECEDING;
+        }
+        return false;
+    }
+
+    private static boolean needsLookahead(FramedWindowFunction framedFunction)
+    {
+        WindowFunction function = framedFunction.getFunction();
+        if (function instanceof LeadFunction) {
+            return true;
+        }
+        if (function instanceof LagFunction || function instanceof RowNumberFunction || function instanceof RankFunction || function instanceof DenseRankFunction) {
+            return false;
+        }
+        return framedFunction.getFrame().getStartType() == FOLLOWING || framedFunction.getFrame().getEndType() == FOLLOWING;
+    }
+
+    /**
+     * Adds the next rows of the partition.
+     */
+    public void addPage(Page page)
+    {
+        checkState(!inputFinished, "partition input is already finished");
+        if (page.getPositionCount() == 0) {
+            return;
+        }
+        pages.add(page);
+        peerGroupPages.add(page.extractChannels(peerGroupChannels));
+        pageStarts.add(bufferedEnd);
+        bufferedEnd += page.getPositionCount();
+        retainedSizeInBytes += page.getRetainedSizeInBytes();
+    }
+
+    /**
+     * Marks that all rows of the partition were added.
+     */
+    public void finishInput()
+    {
+        inputFinished = true;
+    }
+
+    public boolean isFinished()
+    {
+        return inputFinished && currentPosition == bufferedEnd;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return retainedSizeInBytes;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (currentPosition >= bufferedEnd) {
+            return false;
+        }
+        return inputFinished || bufferedEnd - currentPosition > lookahead;
+    }
+
+    @Override
+    public void processNextRow(PageBuilder pageBuilder)
+    {
+        checkState(hasNext(), "No more buffered rows in partition");
+
+        int pageIndex = windowIndex.pageIndex(currentPosition);
+        Page page = pages.get(pageIndex);
+        int pagePosition = currentPosition - pageStarts.get(pageIndex);
+
+        // copy output channels
+        pageBuilder.declarePosition();
+        int channel = 0;
+        while (channel < outputChannels.length) {
+            Type type = types.get(outputChannels[channel]);
+            type.appendTo(page.getBlock(outputChannels[channel]), pagePosition, pageBuilder.getBlockBuilder(channel));
+            channel++;
+        }
+
+        // check for new peer group, the previous row is always still buffered
+        if (currentPosition > 0 && !isPeerOfPreviousRow(pageIndex, pagePosition)) {
+            peerGroupStart = currentPosition;
+        }
+
+        int endPosition = inputFinished ? bufferedEnd - 1 : Integer.MAX_VALUE;
+        for (int i = 0; i < windowFunctions.size(); i++) {
+            FramedWindowFunction framedFunction = windowFunctions.get(i);
+            FrameInfo frame = framedFunction.getFrame();
+            Range range = frame.getType() == ROWS ? getRowsFrameRange(frame, endPosition) : new Range(-1, -1);
+            // the end of the peer group is not known yet, streamable functions do not depend on it
+            framedFunction.getFunction().processRow(
+                    pageBuilder.getBlockBuilder(channel),
+                    peerGroupStart,
+                    currentPosition,
+                    range.getStart(),
+                    range.getEnd());
+            channel++;
+        }
+
+        currentPosition++;
+        releaseRows();
+    }
+
+    private boolean isPeerOfPreviousRow(int pageIndex, int pagePosition)
+    {
+        if (pagePosition > 0) {
+            Page peerGroupPage = peerGroupPages.get(pageIndex);
+            return peerGroupHashStrategy.rowEqualsRow(pagePosition - 1, peerGroupPage, pagePosition, peerGroupPage);
+        }
+        Page previousPage = peerGroupPages.get(pageIndex - 1);
+        return peerGroupHashStrategy.rowEqualsRow(previousPage.getPositionCount() - 1, previousPage, pagePosition, peerGroupPages.get(pageIndex));
+    }
+
+    private Range getRowsFrameRange(FrameInfo frame, int endPosition)
+    {
+        return WindowPartition.getRowsFrameRange(
+                frame,
+                currentPosition,
+                endPosition,
+                isOffsetBound(frame.getStartType()) ? getFrameValue(frame.getStartChannel(), "starting") : 0,
+                isOffsetBound(frame.getEndType()) ? getFrameValue(frame.getEndChannel(), "ending") : 0);
+    }
+
+    private static boolean isOffsetBound(BoundType boundType)
+    {
+        return boundType == PRECEDING || boundType == FOLLOWING;
+    }
+
+    private long getFrameValue(int channel, String type)
+    {
+        checkCondition(!windowIndex.isNull(channel, currentPosition), INVALID_WINDOW_FRAME, "Window frame %s offset must not be null", type);
+        long value = windowIndex.getLong(channel, currentPosition);
+        checkCondition(value >= 0, INVALID_WINDOW_FRAME, "Window frame %s offset must not be negative", value);
+        return value;
+    }
+
+    private void releaseRows()
+    {
+        // keep maxBufferedRows rows before the next row
+        while (pages.size() > 1 && pageStarts.get(1) <= currentPosition - maxBufferedRows) {
+            retainedSizeInBytes -= pages.get(0).getRetainedSizeInBytes();
+            pages.remove(0);
+            peerGroupPages.remove(0);
+            pageStarts.remove(0);
+            windowIndex.invalidateCache();
+        }
+    }
+
+    private class BufferedWindowIndex
+            implements WindowIndex
+    {
+        private int cachedPageIndex;
+
+        /**
+         * Rows after the buffered ones are reported as part of the partition until its end is known,
+         * so that accessing them fails instead of being treated as outside of the partition.
+         */
+        @Override
+        public int size()
+        {
+            return inputFinished ? bufferedEnd : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public boolean isNull(int channel, int position)
+        {
+            int pageIndex = pageIndex(position);
+            return pages.get(pageIndex).getBlock(channel).isNull(position - pageStarts.get(pageIndex));
+        }
+
+        @Override
+        public boolean getBoolean(int channel, int position)
+        {
+            int pageIndex = pageIndex(position);
+            return types.get(channel).getBoolean(pages.get(pageIndex).getBlock(channel), position - pageStarts.get(pageIndex));
+        }
+
+        @Override
+        public long getLong(int channel, int position)
+        {
+            int pageIndex = pageIndex(position);
+            return types.get(channel).getLong(pages.get(pageIndex).getBlock(channel), position - pageStarts.get(pageIndex));
+        }
+
+        @Override
+        public double getDouble(int channel, int position)
+        {
+            int pageIndex = pageIndex(position);
+            return types.get(channel).getDouble(pages.get(pageIndex).getBlock(channel), position - pageStarts.get(pageIndex));
+        }
+
+        @Override
+        public Slice getSlice(int channel, int position)
+        {
+            int pageIndex = pageIndex(position);
+            return types.get(channel).getSlice(pages.get(pageIndex).getBlock(channel), position - pageStarts.get(pageIndex));
+        }
+
+        @Override
+        public Block getSingleValueBlock(int channel, int position)
+        {
+            int pageIndex = pageIndex(position);
+            return pages.get(pageIndex).getBlock(channel).getSingleValueBlock(position - pageStarts.get(pageIndex));
+        }
+
+        @Override
+        public Object getObject(int channel, int position)
+        {
+            int pageIndex = pageIndex(position);
+            return types.get(channel).getObject(pages.get(pageIndex).getBlock(channel), position - pageStarts.get(pageIndex));
+        }
+
+        @Override
+        public void appendTo(int channel, int position, BlockBuilder output)
+        {
+            int pageIndex = pageIndex(position);
+            types.get(channel).appendTo(pages.get(pageIndex).getBlock(channel), position - pageStarts.get(pageIndex), output);
+        }
+
+        void invalidateCache()
+        {
+            cachedPageIndex = 0;
+        }
+
+        int pageIndex(int position)
+        {
+            // the bound does not depend on page boundaries, so that whether a query fails does not depend on them either
+            if (position < currentPosition - maxBufferedRows || position > currentPosition + maxBufferedRows || position < pageStarts.get(0) || position >= bufferedEnd) {
+                throw new PrestoException(GENERIC_INSUFFICIENT_RESOURCES, format(
+                        "Window function accessed row %s of a partition streamed with %s buffered rows before and after the current row %s. " +
+                                "Increase window_spill_streaming_buffered_rows or disable window_spill_streaming_enabled",
+                        position,
+                        maxBufferedRows,
+                        currentPosition));
+            }
+            // accesses are mostly close to the current row, so start from the last page used
+            int pageIndex = cachedPageIndex;
+            while (position < pageStarts.get(pageIndex)) {
+                pageIndex--;
+            }
+            while (pageIndex + 1 < pageStarts.size() && position >= pageStarts.get(pageIndex + 1)) {
+                pageIndex++;
+            }
+            cachedPageIndex = pageIndex;
+            return pageIndex;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("bufferedStart", pageStarts.isEmpty() ? 0 : pageStarts.get(0))
+                    .add("bufferedEnd", bufferedEnd)
+                    .toString();
+        }
+    }
+}
@@ -47,6 +47,7 @@ import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
 public final class WindowPartition
+        implements WindowRowProcessor
 {
     private final PagesIndex pagesIndex;
     private final int partitionStart;
@@ -175,11 +176,13 @@ public final class WindowPartition
         return partitionEnd;
     }
 
+    @Override
     public boolean hasNext()
     {
         return currentPosition < partitionEnd;
     }
 
+    @Override
     public void processNextRow(PageBuilder pageBuilder)
     {
         checkState(hasNext(), "No more rows in partition");
@@ -212,7 +215,7 @@ public final class WindowPartition
         currentPosition++;
     }
 
-    private static class Range
+    static class Range
     {
         private final int start;
         private final int end;
@@ -279,11 +282,22 @@ public final class WindowPartition
 
     private Range getFrameRange(FrameInfo frameInfo)
     {
-        int rowPosition = currentPosition - partitionStart;
-        int endPosition = partitionEnd - partitionStart - 1;
+        return getRowsFrameRange(
+                frameInfo,
+                currentPosition - partitionStart,
+                partitionEnd - partitionStart - 1,
+                isOffsetBound(frameInfo.getStartType()) ? getStartValue(frameInfo) : 0,
+                isOffsetBound(frameInfo.getEndType()) ? getEndValue(frameInfo) : 0);
+    }
 
+    /**
+     * Computes a ROWS frame relative to the partition start. The frame offsets are only used
+     * for PRECEDING and FOLLOWING bounds.
+     */
+    static Range getRowsFrameRange(FrameInfo frameInfo, int rowPosition, int endPosition, long startValue, long endValue)
+    {
         // handle empty frame
-        if (emptyFrame(frameInfo, rowPosition, endPosition)) {
+        if (emptyFrame(frameInfo, rowPosition, endPosition, startValue, endValue)) {
             return new Range(-1, -1);
         }
 
@@ -295,10 +309,10 @@ public final class WindowPartition
             frameStart = 0;
         }
         else if (frameInfo.getStartType() == PRECEDING) {
-            frameStart = preceding(rowPosition, getStartValue(frameInfo));
+            frameStart = preceding(rowPosition, startValue);
         }
         else if (frameInfo.getStartType() == FOLLOWING) {
-            frameStart = following(rowPosition, endPosition, getStartValue(frameInfo));
+            frameStart = following(rowPosition, endPosition, startValue);
         }
         else {
             frameStart = rowPosition;
@@ -309,10 +323,10 @@ public final class WindowPartition
             frameEnd = endPosition;
         }
         else if (frameInfo.getEndType() == PRECEDING) {
-            frameEnd = preceding(rowPosition, getEndValue(frameInfo));
+            frameEnd = preceding(rowPosition, endValue);
         }
         else if (frameInfo.getEndType() == FOLLOWING) {
-            frameEnd = following(rowPosition, endPosition, getEndValue(frameInfo));
+            frameEnd = following(rowPosition, endPosition, endValue);
         }
         else {
             frameEnd = rowPosition;
@@ -321,6 +335,11 @@ public final class WindowPartition
         return new Range(frameStart, frameEnd);
     }
 
+    private static boolean isOffsetBound(BoundType boundType)
+    {
+        return boundType == PRECEDING || boundType == FOLLOWING;
+    }
+
     private Range getFrameRange(FrameInfo frameInfo, Range recentRange, PagesIndexComparator startComparator, PagesIndexComparator endComparator)
     {
         // full partition
@@ -545,7 +564,7 @@ public final class WindowPartition
                 Math.max(0, range.getEnd()));
     }
 
-    private boolean emptyFrame(FrameInfo frameInfo, int rowPosition, int endPosition)
+    private static boolean emptyFrame(FrameInfo frameInfo, int rowPosition, int endPosition, long startValue, long endValue)
     {
         BoundType startType = frameInfo.getStartType();
         BoundType endType = frameInfo.getEndType();
@@ -553,11 +572,11 @@ public final class WindowPartition
         int positions = endPosition - rowPosition;
 
         if ((startType == UNBOUNDED_PRECEDING) && (endType == PRECEDING)) {
-            return getEndValue(frameInfo) > rowPosition;
+            return endValue > rowPosition;
         }
 
         if ((startType == FOLLOWING) && (endType == UNBOUNDED_FOLLOWING)) {
-            return getStartValue(frameInfo) > positions;
+            return startValue > positions;
         }
 
         if (startType != endType) {
@@ -569,8 +588,8 @@ public final class WindowPartition
             return false;
         }
 
-        long start = getStartValue(frameInfo);
-        long end = getEndValue(frameInfo);
+        long start = startValue;
+        long end = endValue;
 
         if (type == PRECEDING) {
             return (start < end) || ((start > rowPosition) && (end > rowPosition));
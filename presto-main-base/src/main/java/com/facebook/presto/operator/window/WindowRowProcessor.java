@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.common.PageBuilder;
+
+/**
+ * Evaluates window functions row by row, appending the output columns and function results of
+ * each row to a {@link PageBuilder}.
+ */
+public interface WindowRowProcessor
+{
+    /**
+     * @return true if a row can be processed now. For a streamed partition this can become
+     * true again once more of the partition is buffered.
+     */
+    boolean hasNext();
+
+    void processNextRow(PageBuilder pageBuilder);
+}
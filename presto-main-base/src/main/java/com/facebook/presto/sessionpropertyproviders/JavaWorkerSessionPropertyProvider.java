@@ -25,9 +25,12 @@ import com.google.inject.Inject;
 
 import java.util.List;
 
+import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
+import static com.facebook.presto.SystemSessionProperties.isJoinSpillingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.spi.session.PropertyMetadata.booleanProperty;
+import static com.facebook.presto.spi.session.PropertyMetadata.integerProperty;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
@@ -42,7 +45,19 @@ public class JavaWorkerSessionPropertyProvider
     public static final String DISTINCT_AGGREGATION_LARGE_BLOCK_SIZE_THRESHOLD = "distinct_aggregation_large_block_size_threshold";
     public static final String ORDER_BY_AGGREGATION_SPILL_ENABLED = "order_by_aggregation_spill_enabled";
     public static final String WINDOW_SPILL_ENABLED = "window_spill_enabled";
+    public static final String WINDOW_SPILL_STREAMING_ENABLED = "window_spill_streaming_enabled";
+    public static final String WINDOW_SPILL_STREAMING_BUFFERED_ROWS = "window_spill_streaming_buffered_rows";
+    public static final String JOIN_SPILL_REPARTITIONING_ENABLED = "join_spill_repartitioning_enabled";
+    public static final String JOIN_SPILL_MAX_PARTITION_SIZE = "join_spill_max_partition_size";
+    public static final String JOIN_SPILL_MAX_REPARTITIONING_DEPTH = "join_spill_max_repartitioning_depth";
+    public static final String MERGE_JOIN_MAX_MATCH_GROUP_SIZE = "merge_join_max_match_group_size";
     public static final String ORDER_BY_SPILL_ENABLED = "order_by_spill_enabled";
+    public static final String ORDER_BY_SPILL_MAX_MERGE_FAN_IN = "order_by_spill_max_merge_fan_in";
+    public static final String ORDER_BY_SPILL_PREFETCH_PAGES = "order_by_spill_prefetch_pages";
+    public static final String PARALLEL_SORT_ENABLED = "parallel_sort_enabled";
+    public static final String NORMALIZED_KEY_SORT_ENABLED = "normalized_key_sort_enabled";
+    public static final String ZERO_COPY_LOCAL_EXCHANGE_ENABLED = "zero_copy_local_exchange_enabled";
+    public static final String FIXED_WIDTH_GROUP_BY_HASH_ENABLED = "fixed_width_group_by_hash_enabled";
     public static final String AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT = "aggregation_operator_unspill_memory_limit";
     public static final String TOPN_OPERATOR_UNSPILL_MEMORY_LIMIT = "topn_operator_unspill_memory_limit";
     public static final String TEMP_STORAGE_SPILLER_BUFFER_SIZE = "temp_storage_spiller_buffer_size";
@@ -97,11 +112,79 @@ public class JavaWorkerSessionPropertyProvider
                         "Enable window spilling if spill_enabled",
                         javaFeaturesConfig.isWindowSpillEnabled(),
                         nativeExecution),
+                booleanProperty(
+                        WINDOW_SPILL_STREAMING_ENABLED,
+                        "Evaluate spilled window partitions over a bounded buffer of rows if window_spill_enabled and all window functions allow it",
+                        javaFeaturesConfig.isWindowSpillStreamingEnabled(),
+                        nativeExecution),
+                integerProperty(
+                        WINDOW_SPILL_STREAMING_BUFFERED_ROWS,
+                        "Number of rows before and after the current row buffered when streaming spilled window partitions",
+                        javaFeaturesConfig.getWindowSpillStreamingBufferedRows(),
+                        nativeExecution),
+                booleanProperty(
+                        JOIN_SPILL_REPARTITIONING_ENABLED,
+                        "Split spilled join build partitions that are too large to be unspilled at once into sub-partitions if join_spill_enabled",
+                        javaFeaturesConfig.isJoinSpillRepartitioningEnabled(),
+                        nativeExecution),
+                new PropertyMetadata<>(
+                        JOIN_SPILL_MAX_PARTITION_SIZE,
+                        "Maximum size of a spilled join build partition unspilled at once if join_spill_repartitioning_enabled",
+                        VARCHAR,
+                        DataSize.class,
+                        javaFeaturesConfig.getJoinSpillMaxPartitionSize(),
+                        nativeExecution,
+                        value -> DataSize.valueOf((String) value),
+                        DataSize::toString),
+                integerProperty(
+                        JOIN_SPILL_MAX_REPARTITIONING_DEPTH,
+                        "Maximum number of times a spilled join build partition is split, before it is joined in chunks",
+                        javaFeaturesConfig.getJoinSpillMaxRepartitioningDepth(),
+                        nativeExecution),
+                new PropertyMetadata<>(
+                        MERGE_JOIN_MAX_MATCH_GROUP_SIZE,
+                        "Maximum size of the right rows of a merge join sharing a single join key",
+                        VARCHAR,
+                        DataSize.class,
+                        javaFeaturesConfig.getMergeJoinMaxMatchGroupSize(),
+                        nativeExecution,
+                        value -> DataSize.valueOf((String) value),
+                        DataSize::toString),
                 booleanProperty(
                         ORDER_BY_SPILL_ENABLED,
                         "Enable order by spilling if spill_enabled",
                         javaFeaturesConfig.isOrderBySpillEnabled(),
                         nativeExecution),
+                integerProperty(
+                        ORDER_BY_SPILL_MAX_MERGE_FAN_IN,
+                        "Maximum number of spilled order by runs merged at the same time",
+                        javaFeaturesConfig.getOrderBySpillMaxMergeFanIn(),
+                        nativeExecution),
+                integerProperty(
+                        ORDER_BY_SPILL_PREFETCH_PAGES,
+                        "Number of pages read ahead from each spilled order by run while merging",
+                        javaFeaturesConfig.getOrderBySpillPrefetchPages(),
+                        nativeExecution),
+                booleanProperty(
+                        PARALLEL_SORT_ENABLED,
+                        "Experimental: Sort the rows of order by and window operators on up to task_concurrency threads",
+                        javaFeaturesConfig.isParallelSortEnabled(),
+                        nativeExecution),
+                booleanProperty(
+                        NORMALIZED_KEY_SORT_ENABLED,
+                        "Experimental: Compare rows on normalized binary keys when sorting in order by, window and top N operators",
+                        javaFeaturesConfig.isNormalizedKeySortEnabled(),
+                        nativeExecution),
+                booleanProperty(
+                        ZERO_COPY_LOCAL_EXCHANGE_ENABLED,
+                        "Experimental: Send dictionary views over the input pages to the partitions of local exchanges rather than copying their rows",
+                        javaFeaturesConfig.isZeroCopyLocalExchangeEnabled(),
+                        nativeExecution),
+                booleanProperty(
+                        FIXED_WIDTH_GROUP_BY_HASH_ENABLED,
+                        "Experimental: Store the groups of multi-column fixed width group by keys in packed rows compared word by word",
+                        javaFeaturesConfig.isFixedWidthGroupByHashEnabled(),
+                        nativeExecution),
                 new PropertyMetadata<>(
                         AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT,
                         "Experimental: How much memory can should be allocated per aggregation operator in unspilling process",
@@ -177,11 +260,88 @@ public class JavaWorkerSessionPropertyProvider
         return session.getSystemProperty(WINDOW_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
     }
 
+    public static boolean isWindowSpillStreamingEnabled(Session session)
+    {
+        return session.getSystemProperty(WINDOW_SPILL_STREAMING_ENABLED, Boolean.class) && isWindowSpillEnabled(session);
+    }
+
+    public static int getWindowSpillStreamingBufferedRows(Session session)
+    {
+        int bufferedRows = session.getSystemProperty(WINDOW_SPILL_STREAMING_BUFFERED_ROWS, Integer.class);
+        checkArgument(bufferedRows > 0, "%s must be positive", WINDOW_SPILL_STREAMING_BUFFERED_ROWS);
+        return bufferedRows;
+    }
+
+    public static boolean isJoinSpillRepartitioningEnabled(Session session)
+    {
+        return session.getSystemProperty(JOIN_SPILL_REPARTITIONING_ENABLED, Boolean.class) && isJoinSpillingEnabled(session);
+    }
+
+    public static DataSize getJoinSpillMaxPartitionSize(Session session)
+    {
+        DataSize maxPartitionSize = session.getSystemProperty(JOIN_SPILL_MAX_PARTITION_SIZE, DataSize.class);
+        checkArgument(maxPartitionSize.toBytes() > 0, "%s must be positive", JOIN_SPILL_MAX_PARTITION_SIZE);
+        return maxPartitionSize;
+    }
+
+    public static int getJoinSpillMaxRepartitioningDepth(Session session)
+    {
+        int maxDepth = session.getSystemProperty(JOIN_SPILL_MAX_REPARTITIONING_DEPTH, Integer.class);
+        checkArgument(maxDepth >= 0, "%s must not be negative", JOIN_SPILL_MAX_REPARTITIONING_DEPTH);
+        return maxDepth;
+    }
+
+    public static DataSize getMergeJoinMaxMatchGroupSize(Session session)
+    {
+        DataSize maxMatchGroupSize = session.getSystemProperty(MERGE_JOIN_MAX_MATCH_GROUP_SIZE, DataSize.class);
+        checkArgument(maxMatchGroupSize.toBytes() > 0, "%s must be positive", MERGE_JOIN_MAX_MATCH_GROUP_SIZE);
+        return maxMatchGroupSize;
+    }
+
     public static boolean isOrderBySpillEnabled(Session session)
     {
         return session.getSystemProperty(ORDER_BY_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
     }
 
+    public static int getOrderBySpillMaxMergeFanIn(Session session)
+    {
+        int maxMergeFanIn = session.getSystemProperty(ORDER_BY_SPILL_MAX_MERGE_FAN_IN, Integer.class);
+        checkArgument(maxMergeFanIn >= 2, "%s must be at least 2", ORDER_BY_SPILL_MAX_MERGE_FAN_IN);
+        return maxMergeFanIn;
+    }
+
+    public static int getOrderBySpillPrefetchPages(Session session)
+    {
+        int prefetchPages = session.getSystemProperty(ORDER_BY_SPILL_PREFETCH_PAGES, Integer.class);
+        checkArgument(prefetchPages >= 0, "%s must not be negative", ORDER_BY_SPILL_PREFETCH_PAGES);
+        return prefetchPages;
+    }
+
+    public static boolean isParallelSortEnabled(Session session)
+    {
+        return session.getSystemProperty(PARALLEL_SORT_ENABLED, Boolean.class);
+    }
+
+    public static int getSortParallelism(Session session)
+    {
+        return isParallelSortEnabled(session) ? getTaskConcurrency(session) : 1;
+    }
+
+    public static boolean isNormalizedKeySortEnabled(Session session)
+    {
+        return session.getSystemProperty(NORMALIZED_KEY_SORT_ENABLED, Boolean.class);
+    }
+
+    public static boolean isZeroCopyLocalExchangeEnabled(Session session)
+    {
+        return session.getSystemProperty(ZERO_COPY_LOCAL_EXCHANGE_ENABLED, Boolean.class);
+    }
+
+    public static boolean isFixedWidthGroupByHashEnabled(Session session)
+    {
+        return session.getSystemProperty(FIXED_WIDTH_GROUP_BY_HASH_ENABLED, Boolean.class);
+    }
+
     public static DataSize getAggregationOperatorUnspillMemoryLimit(Session session)
     {
         DataSize memoryLimitForMerge = session.getSystemProperty(AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT, DataSize.class);
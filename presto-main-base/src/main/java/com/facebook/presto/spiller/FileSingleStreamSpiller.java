@@ -17,6 +17,7 @@ import com.facebook.airlift.concurrent.NotThreadSafe;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.SpillContext;
+import com.facebook.presto.operator.WorkProcessor;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.page.PagesSerde;
 import com.facebook.presto.spi.page.PagesSerdeUtil;
@@ -48,6 +49,7 @@ import static com.facebook.presto.spi.StandardErrorCode.GENERIC_SPILL_FAILURE;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static com.facebook.presto.spiller.PrefetchingSpilledPages.prefetchSpilledPages;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterators.transform;
 import static java.lang.String.format;
@@ -134,6 +136,13 @@ public class FileSingleStreamSpiller
         return readPages();
     }
 
+    @Override
+    public WorkProcessor<Page> getSpilledPages(int maxPrefetchedPages)
+    {
+        checkNoSpillInProgress();
+        return prefetchSpilledPages(readPages(), executor, maxPrefetchedPages, prefetchedBytes -> memoryContext.setBytes(BUFFER_SIZE + prefetchedBytes));
+    }
+
     @Override
     public ListenableFuture<List<Page>> getAllSpilledPages()
     {
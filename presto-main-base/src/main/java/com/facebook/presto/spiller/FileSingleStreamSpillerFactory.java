@@ -14,6 +14,7 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.CompressionCodec;
 import com.facebook.presto.common.block.BlockEncodingSerde;
 import com.facebook.presto.common.type.Type;
@@ -41,6 +42,7 @@ import java.util.Optional;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.spi.StandardErrorCode.OUT_OF_SPILL_SPACE;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.delete;
@@ -61,11 +63,16 @@ public class FileSingleStreamSpillerFactory
     private static final String SPILL_FILE_GLOB = "spill*.bin";
 
     private final ListeningExecutorService executor;
+    private final ListeningExecutorService writeExecutor;
     private final PagesSerdeFactory serdeFactory;
     private final List<Path> spillPaths;
     private final SpillerStats spillerStats;
     private final double maxUsedSpaceThreshold;
     private final boolean spillEncryptionEnabled;
+    private final boolean pipelinedWriteEnabled;
+    private final int writeBufferSize;
+    private final int maxWritesInFlight;
+    private final boolean directIoEnabled;
     private int roundRobinIndex;
 
     @Inject
@@ -75,12 +82,19 @@ public class FileSingleStreamSpillerFactory
                 listeningDecorator(newFixedThreadPool(
                         requireNonNull(featuresConfig, "featuresConfig is null").getSpillerThreads(),
                         daemonThreadsNamed("binary-spiller-%s"))),
+                listeningDecorator(newFixedThreadPool(
+                        requireNonNull(featuresConfig, "featuresConfig is null").getSpillerThreads(),
+                        daemonThreadsNamed("binary-spiller-writer-%s"))),
                 blockEncodingSerde,
                 spillerStats,
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(),
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillMaxUsedSpaceThreshold(),
                 requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").getSpillCompressionCodec(),
-                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled());
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled(),
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillPipelinedWriteEnabled(),
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").getSpillWriteBufferSize(),
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").getSpillMaxWritesInFlight(),
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillDirectIoEnabled());
     }
 
     @VisibleForTesting
@@ -92,9 +106,44 @@ public class FileSingleStreamSpillerFactory
             double maxUsedSpaceThreshold,
             CompressionCodec spillCompressionCodec,
             boolean spillEncryptionEnabled)
+    {
+        this(
+                executor,
+                executor,
+                blockEncodingSerde,
+                spillerStats,
+                spillPaths,
+                maxUsedSpaceThreshold,
+                spillCompressionCodec,
+                spillEncryptionEnabled,
+                false,
+                new DataSize(1, DataSize.Unit.MEGABYTE),
+                1,
+                false);
+    }
+
+    /**
+     * @param writeExecutor executor running the writes of the pipelined spiller; it must not be
+     * the same as a bounded {@code executor}, as spills wait for their writes to finish
+     */
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            ListeningExecutorService writeExecutor,
+            BlockEncodingSerde blockEncodingSerde,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            CompressionCodec spillCompressionCodec,
+            boolean spillEncryptionEnabled,
+            boolean pipelinedWriteEnabled,
+            DataSize writeBufferSize,
+            int maxWritesInFlight,
+            boolean directIoEnabled)
     {
         this.serdeFactory = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), spillCompressionCodec);
         this.executor = requireNonNull(executor, "executor is null");
+        this.writeExecutor = requireNonNull(writeExecutor, "writeExecutor is null");
         this.spillerStats = requireNonNull(spillerStats, "spillerStats can not be null");
         requireNonNull(spillPaths, "spillPaths is null");
         this.spillPaths = ImmutableList.copyOf(spillPaths);
@@ -113,6 +162,10 @@ public class FileSingleStreamSpillerFactory
         });
         this.maxUsedSpaceThreshold = maxUsedSpaceThreshold;
         this.spillEncryptionEnabled = spillEncryptionEnabled;
+        this.pipelinedWriteEnabled = pipelinedWriteEnabled;
+        this.writeBufferSize = toIntExact(requireNonNull(writeBufferSize, "writeBufferSize is null").toBytes());
+        this.maxWritesInFlight = maxWritesInFlight;
+        this.directIoEnabled = directIoEnabled;
         this.roundRobinIndex = 0;
     }
 
@@ -126,6 +179,7 @@ public class FileSingleStreamSpillerFactory
     public void destroy()
     {
         executor.shutdownNow();
+        writeExecutor.shutdownNow();
     }
 
     private static void cleanupOldSpillFiles(Path path)
@@ -154,6 +208,20 @@ public class FileSingleStreamSpillerFactory
             spillCipher = Optional.of(new AesSpillCipher());
         }
         PagesSerde serde = serdeFactory.createPagesSerdeForSpill(spillCipher);
+        if (pipelinedWriteEnabled) {
+            return new PipelinedFileSingleStreamSpiller(
+                    serde,
+                    executor,
+                    writeExecutor,
+                    getNextSpillPath(),
+                    spillerStats,
+                    spillContext,
+                    memoryContext,
+                    spillCipher,
+                    writeBufferSize,
+                    maxWritesInFlight,
+                    directIoEnabled);
+        }
         return new FileSingleStreamSpiller(serde, executor, getNextSpillPath(), spillerStats, spillContext, memoryContext, spillCipher);
     }
 
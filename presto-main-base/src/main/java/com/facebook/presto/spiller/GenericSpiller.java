@@ -18,6 +18,7 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.operator.SpillContext;
+import com.facebook.presto.operator.WorkProcessor;
 import com.google.common.io.Closer;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -75,6 +76,15 @@ public class GenericSpiller
                 .collect(toList());
     }
 
+    @Override
+    public List<WorkProcessor<Page>> getSpills(int maxPrefetchedPages)
+    {
+        checkNoSpillInProgress();
+        return singleStreamSpillers.stream()
+                .map(singleStreamSpiller -> singleStreamSpiller.getSpilledPages(maxPrefetchedPages))
+                .collect(toList());
+    }
+
     @Override
     public void commit()
     {
@@ -14,8 +14,10 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.CompressionCodec;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 public class NodeSpillConfig
@@ -28,6 +30,11 @@ public class NodeSpillConfig
     private CompressionCodec spillCompressionCodec = CompressionCodec.NONE;
     private boolean spillEncryptionEnabled;
 
+    private boolean spillPipelinedWriteEnabled;
+    private DataSize spillWriteBufferSize = new DataSize(1, DataSize.Unit.MEGABYTE);
+    private int spillMaxWritesInFlight = 4;
+    private boolean spillDirectIoEnabled;
+
     @NotNull
     public DataSize getMaxSpillPerNode()
     {
@@ -103,4 +110,58 @@ public class NodeSpillConfig
         this.tempStorageBufferSize = tempStorageBufferSize;
         return this;
     }
+
+    public boolean isSpillPipelinedWriteEnabled()
+    {
+        return spillPipelinedWriteEnabled;
+    }
+
+    @Config("experimental.spill-pipelined-write-enabled")
+    @ConfigDescription("Batch spilled pages into large buffers and write them asynchronously, with several writes in flight")
+    public NodeSpillConfig setSpillPipelinedWriteEnabled(boolean spillPipelinedWriteEnabled)
+    {
+        this.spillPipelinedWriteEnabled = spillPipelinedWriteEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getSpillWriteBufferSize()
+    {
+        return spillWriteBufferSize;
+    }
+
+    @Config("experimental.spill-write-buffer-size")
+    @ConfigDescription("Size of each write issued by the pipelined spill writer")
+    public NodeSpillConfig setSpillWriteBufferSize(DataSize spillWriteBufferSize)
+    {
+        this.spillWriteBufferSize = spillWriteBufferSize;
+        return this;
+    }
+
+    @Min(1)
+    public int getSpillMaxWritesInFlight()
+    {
+        return spillMaxWritesInFlight;
+    }
+
+    @Config("experimental.spill-max-writes-in-flight")
+    @ConfigDescription("Maximum number of outstanding writes per spill file for the pipelined spill writer")
+    public NodeSpillConfig setSpillMaxWritesInFlight(int spillMaxWritesInFlight)
+    {
+        this.spillMaxWritesInFlight = spillMaxWritesInFlight;
+        return this;
+    }
+
+    public boolean isSpillDirectIoEnabled()
+    {
+        return spillDirectIoEnabled;
+    }
+
+    @Config("experimental.spill-direct-io-enabled")
+    @ConfigDescription("Bypass the OS page cache when the pipelined spill writer writes spill files, where the file system supports it")
+    public NodeSpillConfig setSpillDirectIoEnabled(boolean spillDirectIoEnabled)
+    {
+        this.spillDirectIoEnabled = spillDirectIoEnabled;
+        return this;
+    }
 }
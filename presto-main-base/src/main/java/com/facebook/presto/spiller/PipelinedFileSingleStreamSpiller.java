@@ -0,0 +1,542 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.airlift.concurrent.NotThreadSafe;
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.SpillContext;
+import com.facebook.presto.operator.WorkProcessor;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.PagesSerdeUtil;
+import com.facebook.presto.spi.spiller.SpillCipher;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.sun.nio.file.ExtendedOpenOption;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceOutput;
+import sun.misc.Unsafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+import static com.facebook.presto.execution.buffer.PageSplitterUtil.splitPage;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_SPILL_FAILURE;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
+import static com.facebook.presto.spiller.FileSingleStreamSpiller.BUFFER_SIZE;
+import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
+import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static com.facebook.presto.spiller.PrefetchingSpilledPages.prefetchSpilledPages;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterators.transform;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Spiller that serializes pages into large aligned buffers and hands full buffers to a dedicated
+ * write executor, so that serialization of the next pages overlaps with up to {@code maxWritesInFlight}
+ * positional writes to the spill file.
+ * <p>
+ * With direct I/O enabled the spill file is opened with {@link ExtendedOpenOption#DIRECT}, so spilled
+ * data does not evict the OS page cache. Direct writes must be aligned to the file system block size,
+ * so the last, partially filled buffer is only written (padded) when the pages are read back, and the
+ * padding is truncated afterwards. If the file system does not support direct I/O, the regular page
+ * cache is used.
+ * <p>
+ * The write buffers are freed as soon as the pages are read back or the spiller is closed, rather than
+ * when the garbage collector gets to them.
+ */
+@NotThreadSafe
+public class PipelinedFileSingleStreamSpiller
+        implements SingleStreamSpiller
+{
+    private static final Logger log = Logger.get(PipelinedFileSingleStreamSpiller.class);
+
+    @VisibleForTesting
+    static final int DEFAULT_ALIGNMENT = 4096;
+
+    private static final Unsafe unsafe;
+
+    static {
+        try {
+            // fetch theUnsafe object
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = (Unsafe) field.get(null);
+            if (unsafe == null) {
+                throw new RuntimeException("Unsafe access not available");
+            }
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final FileHolder targetFile;
+    private final Closer closer = Closer.create();
+    private final PagesSerde serde;
+    private final SpillerStats spillerStats;
+    private final SpillContext localSpillContext;
+    private final LocalMemoryContext memoryContext;
+    private final Optional<SpillCipher> spillCipher;
+    private final int bufferSize;
+    private volatile long bufferedBytes;
+
+    private final ListeningExecutorService executor;
+    private final PipelinedSpillOutputStream spillOutput;
+
+    private boolean writable = true;
+    private boolean committed;
+    private volatile long spilledPagesInMemorySize;
+    private ListenableFuture<?> spillInProgress = Futures.immediateFuture(null);
+
+    public PipelinedFileSingleStreamSpiller(
+            PagesSerde serde,
+            ListeningExecutorService executor,
+            ListeningExecutorService writeExecutor,
+            Path spillPath,
+            SpillerStats spillerStats,
+            SpillContext spillContext,
+            LocalMemoryContext memoryContext,
+            Optional<SpillCipher> spillCipher,
+            int writeBufferSize,
+            int maxWritesInFlight,
+            boolean directIoEnabled)
+    {
+        this.serde = requireNonNull(serde, "serde is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        requireNonNull(writeExecutor, "writeExecutor is null");
+        this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
+        this.localSpillContext = spillContext.newLocalSpillContext();
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
+        checkArgument(writeBufferSize > 0, "writeBufferSize must be positive");
+        checkArgument(maxWritesInFlight > 0, "maxWritesInFlight must be positive");
+        checkState(!spillCipher.isPresent() || !spillCipher.get().isDestroyed(), "spillCipher is already destroyed");
+        this.spillCipher.ifPresent(cipher -> closer.register(cipher::destroy));
+
+        int alignment = getAlignment(spillPath);
+        this.bufferSize = (writeBufferSize + alignment - 1) / alignment * alignment;
+        // All buffers are reserved up front, see the comment in FileSingleStreamSpiller
+        this.bufferedBytes = (long) bufferSize * maxWritesInFlight;
+        this.memoryContext.setBytes(bufferedBytes);
+        try {
+            this.targetFile = closer.register(new FileHolder(Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX)));
+            FileChannel channel = directIoEnabled ? tryOpenDirect(targetFile) : null;
+            boolean directIo = channel != null;
+            if (!directIo) {
+                channel = targetFile.newFileChannel(WRITE);
+            }
+            closer.register(channel);
+            this.spillOutput = new PipelinedSpillOutputStream(channel, writeExecutor, bufferSize, alignment, maxWritesInFlight, directIo, spillerStats);
+        }
+        catch (IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to create spill file: %s", e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public ListenableFuture<?> spill(Iterator<Page> pageIterator)
+    {
+        requireNonNull(pageIterator, "pageIterator is null");
+        checkNoSpillInProgress();
+        spillInProgress = executor.submit(() -> writePages(pageIterator));
+        return spillInProgress;
+    }
+
+    @Override
+    public long getSpilledPagesInMemorySize()
+    {
+        return spilledPagesInMemorySize;
+    }
+
+    @Override
+    public Iterator<Page> getSpilledPages()
+    {
+        checkNoSpillInProgress();
+        return readPages();
+    }
+
+    @Override
+    public WorkProcessor<Page> getSpilledPages(int maxPrefetchedPages)
+    {
+        checkNoSpillInProgress();
+        return prefetchSpilledPages(readPages(), executor, maxPrefetchedPages, prefetchedBytes -> memoryContext.setBytes(bufferedBytes + prefetchedBytes));
+    }
+
+    @Override
+    public ListenableFuture<List<Page>> getAllSpilledPages()
+    {
+        return executor.submit(() -> ImmutableList.copyOf(getSpilledPages()));
+    }
+
+    @Override
+    public void commit()
+    {
+        committed = true;
+    }
+
+    @VisibleForTesting
+    boolean isDirectIo()
+    {
+        return spillOutput.isDirectIo();
+    }
+
+    private void writePages(Iterator<Page> pageIterator)
+    {
+        checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
+        checkState(!committed, "Spilling no longer allowed. Spill file is already committed");
+        // only page headers go through the slice output buffer, page data is copied straight into the write buffers
+        SliceOutput output = new OutputStreamSliceOutput(spillOutput, BUFFER_SIZE);
+        try {
+            while (pageIterator.hasNext()) {
+                Page page = pageIterator.next();
+                spilledPagesInMemorySize += page.getSizeInBytes();
+                // page serialization requires  page.getSizeInBytes() + Integer.BYTES to fit in an integer
+                splitPage(page, DEFAULT_MAX_PAGE_SIZE_IN_BYTES).stream()
+                        .map(serde::serialize)
+                        .forEach(serializedPage -> {
+                            long pageSize = serializedPage.getSizeInBytes();
+                            localSpillContext.updateBytes(pageSize);
+                            spillerStats.addToTotalSpilledBytes(pageSize);
+                            writeSerializedPage(output, serializedPage);
+                        });
+            }
+            output.flush();
+            // surface write failures with this spill rather than with the next one
+            spillOutput.awaitWrites();
+        }
+        catch (UncheckedIOException | IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to spill pages: %s", e.getMessage()), e);
+        }
+    }
+
+    private Iterator<Page> readPages()
+    {
+        checkState(writable, "Repeated reads are disallowed to prevent potential resource leaks");
+        writable = false;
+
+        try {
+            if (!committed) {
+                commit();
+            }
+
+            checkState(committed, "Cannot read pages since spill file is not committed");
+            spillOutput.finish();
+            // the write buffers are freed, only the read buffer is left
+            bufferedBytes = bufferSize;
+            memoryContext.setBytes(bufferedBytes);
+            InputStream input = closer.register(targetFile.newInputStream());
+            Iterator<Page> deserializedPages = PagesSerdeUtil.readPages(serde, new InputStreamSliceInput(input, bufferSize));
+            Iterator<Page> compactPages = transform(deserializedPages, Page::compact);
+            spillerStats.addToTotalSpilledBytesRead(getSpilledPagesInMemorySize());
+            return closeWhenExhausted(compactPages, input);
+        }
+        catch (UncheckedIOException | IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to read spilled pages: %s", e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closer.register(localSpillContext);
+        closer.register(() -> memoryContext.setBytes(0));
+        // a spill that is still running keeps using its buffers, so they are left to the garbage collector
+        closer.register(() -> {
+            if (spillInProgress.isDone()) {
+                spillOutput.release();
+            }
+        });
+        try {
+            closer.close();
+        }
+        catch (IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to close spiller: %s", e.getMessage()), e);
+        }
+    }
+
+    private void checkNoSpillInProgress()
+    {
+        checkState(spillInProgress.isDone(), "spill in progress");
+    }
+
+    private static FileChannel tryOpenDirect(FileHolder file)
+    {
+        try {
+            return file.newFileChannel(WRITE, ExtendedOpenOption.DIRECT);
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            log.debug(e, "Direct I/O is not supported for spill file, falling back to buffered I/O");
+            return null;
+        }
+    }
+
+    private static int getAlignment(Path spillPath)
+    {
+        try {
+            return (int) min(max(Files.getFileStore(spillPath).getBlockSize(), DEFAULT_ALIGNMENT), 1 << 20);
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            return DEFAULT_ALIGNMENT;
+        }
+    }
+
+    private static <T> Iterator<T> closeWhenExhausted(Iterator<T> iterator, Closeable resource)
+    {
+        requireNonNull(iterator, "iterator is null");
+        requireNonNull(resource, "resource is null");
+
+        return new AbstractIterator<T>()
+        {
+            @Override
+            protected T computeNext()
+            {
+                if (iterator.hasNext()) {
+                    return iterator.next();
+                }
+                try {
+                    resource.close();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * Fills aligned direct buffers and submits each full buffer as a positional write to the file.
+     * At most {@code maxBuffers} buffers exist; when all of them are being written, the writer waits
+     * for the oldest write to finish.
+     */
+    private static class PipelinedSpillOutputStream
+            extends OutputStream
+    {
+        private final FileChannel channel;
+        private final ListeningExecutorService writeExecutor;
+        private final int bufferSize;
+        private final int alignment;
+        private final int maxBuffers;
+        private final boolean directIo;
+        private final SpillerStats spillerStats;
+
+        private final List<ByteBuffer> allocations = new ArrayList<>();
+        private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+        private final Deque<ListenableFuture<ByteBuffer>> writesInFlight = new ArrayDeque<>();
+        private int allocatedBuffers;
+        private ByteBuffer buffer;
+        private long writePosition;
+        private long size;
+        private boolean closed;
+
+        public PipelinedSpillOutputStream(
+                FileChannel channel,
+                ListeningExecutorService writeExecutor,
+                int bufferSize,
+                int alignment,
+                int maxBuffers,
+                boolean directIo,
+                SpillerStats spillerStats)
+        {
+            this.channel = requireNonNull(channel, "channel is null");
+            this.writeExecutor = requireNonNull(writeExecutor, "writeExecutor is null");
+            this.bufferSize = bufferSize;
+            this.alignment = alignment;
+            this.maxBuffers = maxBuffers;
+            this.directIo = directIo;
+            this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
+        }
+
+        public boolean isDirectIo()
+        {
+            return directIo;
+        }
+
+        @Override
+        public void write(int value)
+        {
+            if (buffer == null) {
+                buffer = nextBuffer();
+            }
+            buffer.put((byte) value);
+            size++;
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                submitWrite();
+            }
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length)
+        {
+            while (length > 0) {
+                if (buffer == null) {
+                    buffer = nextBuffer();
+                }
+                int chunk = min(length, buffer.remaining());
+                buffer.put(source, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+                size += chunk;
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    submitWrite();
+                }
+            }
+        }
+
+        public void awaitWrites()
+        {
+            while (!writesInFlight.isEmpty()) {
+                freeBuffers.add(getFutureValue(writesInFlight.poll()));
+            }
+        }
+
+        /**
+         * Writes the last, partially filled buffer, waits for all writes and closes the file.
+         */
+        public void finish()
+                throws IOException
+        {
+            checkState(!closed, "spill file is already closed");
+            closed = true;
+            try {
+                if (buffer != null && buffer.position() > 0) {
+                    int length = buffer.position();
+                    buffer.flip();
+                    // direct writes must cover whole blocks, the padding is truncated below
+                    buffer.limit(directIo ? (length + alignment - 1) / alignment * alignment : length);
+                    submitWrite();
+                }
+                awaitWrites();
+                if (directIo) {
+                    channel.truncate(size);
+                }
+            }
+            finally {
+                try {
+                    channel.close();
+                }
+                finally {
+                    release();
+                }
+            }
+        }
+
+        /**
+         * Waits for the writes in flight, ignoring their failures, and frees all buffers.
+         */
+        public void release()
+        {
+            closed = true;
+            while (!writesInFlight.isEmpty()) {
+                try {
+                    writesInFlight.poll().get();
+                }
+                catch (InterruptedException e) {
+                    // the buffer may still be written, so it cannot be freed
+                    Thread.currentThread().interrupt();
+                    writesInFlight.clear();
+                    allocations.clear();
+                }
+                catch (ExecutionException e) {
+                    // already reported by the spill or the read
+                }
+            }
+            buffer = null;
+            freeBuffers.clear();
+            for (ByteBuffer allocation : allocations) {
+                unsafe.invokeCleaner(allocation);
+            }
+            allocations.clear();
+        }
+
+        private void submitWrite()
+        {
+            ByteBuffer fullBuffer = buffer;
+            long position = writePosition;
+            writePosition += fullBuffer.remaining();
+            buffer = null;
+            writesInFlight.add(writeExecutor.submit(() -> {
+                long filePosition = position;
+                try {
+                    while (fullBuffer.hasRemaining()) {
+                        filePosition += channel.write(fullBuffer, filePosition);
+                    }
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                fullBuffer.clear();
+                return fullBuffer;
+            }));
+        }
+
+        private ByteBuffer nextBuffer()
+        {
+            checkState(!closed, "spill file is already closed");
+            while (!writesInFlight.isEmpty() && writesInFlight.peek().isDone()) {
+                freeBuffers.add(getFutureValue(writesInFlight.poll()));
+            }
+            if (!freeBuffers.isEmpty()) {
+                return freeBuffers.poll();
+            }
+            if (allocatedBuffers < maxBuffers) {
+                allocatedBuffers++;
+                ByteBuffer allocation = ByteBuffer.allocateDirect(bufferSize + alignment);
+                allocations.add(allocation);
+                ByteBuffer alignedBuffer = allocation.alignedSlice(alignment);
+                alignedBuffer.limit(bufferSize);
+                return alignedBuffer.slice();
+            }
+
+            // all buffers are being written, so serialization has to wait for the disk
+            long start = System.nanoTime();
+            ByteBuffer freeBuffer = getFutureValue(writesInFlight.poll());
+            spillerStats.addToTotalSpillWriteStallNanos(System.nanoTime() - start);
+            return freeBuffer;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.operator.WorkProcessor;
+import com.facebook.presto.operator.WorkProcessor.ProcessState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.LongConsumer;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads spilled pages ahead of the consumer on the spill executor, so that reading and deserializing
+ * a spill file overlaps with processing of the pages read before. At most {@code maxPrefetchedPages}
+ * pages are buffered, and their retained size is reported to {@code prefetchedBytesListener}.
+ */
+final class PrefetchingSpilledPages
+        implements WorkProcessor.Process<Page>
+{
+    private final Iterator<Page> pages;
+    private final ListeningExecutorService executor;
+    private final int maxPrefetchedPages;
+    private final LongConsumer prefetchedBytesListener;
+
+    private final Queue<Page> prefetchedPages = new ArrayDeque<>();
+    private long prefetchedBytes;
+    private ListenableFuture<List<Page>> pendingRead;
+    private int pendingReadPages;
+    private boolean exhausted;
+
+    private PrefetchingSpilledPages(Iterator<Page> pages, ListeningExecutorService executor, int maxPrefetchedPages, LongConsumer prefetchedBytesListener)
+    {
+        this.pages = requireNonNull(pages, "pages is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        checkArgument(maxPrefetchedPages > 0, "maxPrefetchedPages must be positive");
+        this.maxPrefetchedPages = maxPrefetchedPages;
+        this.prefetchedBytesListener = requireNonNull(prefetchedBytesListener, "prefetchedBytesListener is null");
+    }
+
+    static WorkProcessor<Page> prefetchSpilledPages(Iterator<Page> pages, ListeningExecutorService executor, int maxPrefetchedPages, LongConsumer prefetchedBytesListener)
+    {
+        if (maxPrefetchedPages == 0) {
+            return WorkProcessor.fromIterator(pages);
+        }
+        return WorkProcessor.create(new PrefetchingSpilledPages(pages, executor, maxPrefetchedPages, prefetchedBytesListener));
+    }
+
+    @Override
+    public ProcessState<Page> process()
+    {
+        if (pendingRead != null && pendingRead.isDone()) {
+            List<Page> readPages = getFutureValue(pendingRead);
+            pendingRead = null;
+            exhausted = readPages.size() < pendingReadPages;
+            for (Page page : readPages) {
+                prefetchedPages.add(page);
+                prefetchedBytes += page.getRetainedSizeInBytes();
+            }
+        }
+
+        if (prefetchedPages.isEmpty()) {
+            if (exhausted) {
+                prefetchedBytesListener.accept(0);
+                return ProcessState.finished();
+            }
+            if (pendingRead == null) {
+                startRead();
+            }
+            return ProcessState.blocked(nonCancellationPropagating(pendingRead));
+        }
+
+        Page page = prefetchedPages.remove();
+        prefetchedBytes -= page.getRetainedSizeInBytes();
+        prefetchedBytesListener.accept(prefetchedBytes);
+
+        // refill once half of the prefetched pages are consumed, so that a read is not issued for every page
+        if (!exhausted && pendingRead == null && prefetchedPages.size() <= maxPrefetchedPages / 2) {
+            startRead();
+        }
+        return ProcessState.ofResult(page);
+    }
+
+    private void startRead()
+    {
+        int pagesToRead = maxPrefetchedPages - prefetchedPages.size();
+        pendingReadPages = pagesToRead;
+        pendingRead = executor.submit(() -> readPages(pagesToRead));
+    }
+
+    private List<Page> readPages(int count)
+    {
+        ImmutableList.Builder<Page> readPages = ImmutableList.builder();
+        for (int i = 0; i < count && pages.hasNext(); i++) {
+            readPages.add(pages.next());
+        }
+        return readPages.build();
+    }
+}
@@ -14,6 +14,7 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.operator.WorkProcessor;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
@@ -48,6 +49,15 @@ public interface SingleStreamSpiller
      */
     Iterator<Page> getSpilledPages();
 
+    /**
+     * Returns previously spilled Pages like {@link #getSpilledPages()}, reading up to {@code maxPrefetchedPages}
+     * pages ahead of the consumer asynchronously. The returned processor is blocked while the next page is read.
+     */
+    default WorkProcessor<Page> getSpilledPages(int maxPrefetchedPages)
+    {
+        return WorkProcessor.fromIterator(getSpilledPages());
+    }
+
     /**
      * Returns estimate size of pages that would be returned by {@link #getAllSpilledPages()}.
      */
@@ -14,12 +14,15 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.operator.WorkProcessor;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
 import java.util.Iterator;
 import java.util.List;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
 public interface Spiller
         extends Closeable
 {
@@ -34,6 +37,17 @@ public interface Spiller
      */
     List<Iterator<Page>> getSpills();
 
+    /**
+     * Returns list of previously spilled Pages streams like {@link #getSpills()}, each reading up to
+     * {@code maxPrefetchedPages} pages ahead of the consumer asynchronously.
+     */
+    default List<WorkProcessor<Page>> getSpills(int maxPrefetchedPages)
+    {
+        return getSpills().stream()
+                .map(WorkProcessor::fromIterator)
+                .collect(toImmutableList());
+    }
+
     /**
      * Commit the spill file. Once committed, the spill file can no longer be modified
      * If the spill file is already committed, invoking this method has no effect
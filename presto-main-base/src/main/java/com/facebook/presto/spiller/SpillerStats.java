@@ -21,6 +21,7 @@ public class SpillerStats
 {
     protected final AtomicLong totalSpilledBytes = new AtomicLong();
     protected final AtomicLong totalSpilledBytesRead = new AtomicLong();
+    protected final AtomicLong totalSpillWriteStallNanos = new AtomicLong();
 
     @Managed
     public long getTotalSpilledBytes()
@@ -34,6 +35,12 @@ public class SpillerStats
         return totalSpilledBytesRead.get();
     }
 
+    @Managed
+    public long getTotalSpillWriteStallNanos()
+    {
+        return totalSpillWriteStallNanos.get();
+    }
+
     public void addToTotalSpilledBytes(long delta)
     {
         totalSpilledBytes.addAndGet(delta);
@@ -43,4 +50,9 @@ public class SpillerStats
     {
         totalSpilledBytesRead.addAndGet(delta);
     }
+
+    public void addToTotalSpillWriteStallNanos(long delta)
+    {
+        totalSpillWriteStallNanos.addAndGet(delta);
+    }
 }
@@ -40,6 +40,7 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.spi.StandardErrorCode.INVALID_SESSION_PROPERTY;
@@ -69,6 +70,8 @@ import static java.util.stream.Collectors.joining;
         "experimental.table-writer-merge-operator-enabled"})
 public class FeaturesConfig
 {
+    public static final String MAX_DYNAMIC_FILTERING_BLOOM_FILTER_SIZE = "64MB";
+
     @VisibleForTesting
     static final String SPILL_ENABLED = "experimental.spill-enabled";
     @VisibleForTesting
@@ -126,6 +129,7 @@ public class FeaturesConfig
     private boolean pushTableWriteThroughUnion = true;
     private CompressionCodec exchangeCompressionCodec = CompressionCodec.NONE;
     private boolean exchangeChecksumEnabled;
+    private boolean exchangeAdaptiveCompressionEnabled;
     private boolean optimizeMixedDistinctAggregations;
     private boolean forceSingleNodeOutput = true;
     private boolean pagesIndexEagerCompactionEnabled;
@@ -172,6 +176,9 @@ public class FeaturesConfig
     private int dynamicFilteringMaxPerDriverRowCount = 100;
     private DataSize dynamicFilteringMaxPerDriverSize = new DataSize(10, KILOBYTE);
     private int dynamicFilteringRangeRowLimitPerDriver;
+    private DataSize dynamicFilteringBloomFilterMaxSize = new DataSize(0, BYTE);
+    private boolean distributedDynamicFilteringEnabled;
+    private Duration distributedDynamicFilteringWaitTimeout = new Duration(1, SECONDS);
 
     private boolean fragmentResultCachingEnabled;
 
@@ -184,6 +191,7 @@ public class FeaturesConfig
     private boolean jsonSerdeCodeGenerationEnabled;
     private int maxConcurrentMaterializations = 3;
     private boolean optimizedRepartitioningEnabled;
+    private boolean partitionedOutputSkewReportingEnabled;
 
     private boolean pushdownSubfieldsEnabled;
     private boolean pushdownSubfieldsFromLambdaEnabled;
@@ -291,6 +299,8 @@ public class FeaturesConfig
 
     private boolean trackPartialAggregationHistory = true;
 
+    private boolean useHistoryBasedHashTableSizing;
+
     private boolean removeRedundantCastToVarcharInJoin = true;
     private boolean skipHashGenerationForJoinWithTableScanInput;
     private boolean generateDomainFilters;
@@ -435,7 +445,8 @@ public class FeaturesConfig
     {
         DISABLED,
         COST_BASED,
-        ALWAYS
+        ALWAYS,
+        HOT_KEYS
     }
 
     public enum PushDownFilterThroughCrossJoinStrategy
@@ -1534,6 +1545,46 @@ public class FeaturesConfig
         return this;
     }
 
+    @MaxDataSize(MAX_DYNAMIC_FILTERING_BLOOM_FILTER_SIZE)
+    public DataSize getDynamicFilteringBloomFilterMaxSize()
+    {
+        return dynamicFilteringBloomFilterMaxSize;
+    }
+
+    @Config("dynamic-filtering-bloom-filter-max-size")
+    @ConfigDescription("Size of the Bloom filter collected per build-side column for dynamic filtering when the exact set of values is too large; 0 disables Bloom filters")
+    public FeaturesConfig setDynamicFilteringBloomFilterMaxSize(DataSize dynamicFilteringBloomFilterMaxSize)
+    {
+        this.dynamicFilteringBloomFilterMaxSize = dynamicFilteringBloomFilterMaxSize;
+        return this;
+    }
+
+    public boolean isDistributedDynamicFilteringEnabled()
+    {
+        return distributedDynamicFilteringEnabled;
+    }
+
+    @Config("distributed-dynamic-filtering-enabled")
+    @ConfigDescription("Collect dynamic filters on the coordinator and apply them to table scans in other stages than the join")
+    public FeaturesConfig setDistributedDynamicFilteringEnabled(boolean distributedDynamicFilteringEnabled)
+    {
+        this.distributedDynamicFilteringEnabled = distributedDynamicFilteringEnabled;
+        return this;
+    }
+
+    public Duration getDistributedDynamicFilteringWaitTimeout()
+    {
+        return distributedDynamicFilteringWaitTimeout;
+    }
+
+    @Config("distributed-dynamic-filtering-wait-timeout")
+    @ConfigDescription("Maximum time to delay split enumeration of a table scan until the distributed dynamic filters it depends on are collected")
+    public FeaturesConfig setDistributedDynamicFilteringWaitTimeout(Duration distributedDynamicFilteringWaitTimeout)
+    {
+        this.distributedDynamicFilteringWaitTimeout = distributedDynamicFilteringWaitTimeout;
+        return this;
+    }
+
     public boolean isFragmentResultCachingEnabled()
     {
         return fragmentResultCachingEnabled;
@@ -1584,6 +1635,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isExchangeAdaptiveCompressionEnabled()
+    {
+        return exchangeAdaptiveCompressionEnabled;
+    }
+
+    @Config("exchange.adaptive-compression-enabled")
+    @ConfigDescription("Compress every exchange page with LZ4, ZSTD or not at all, depending on the measured compression ratio and CPU cost of each codec and the output buffer utilization")
+    public FeaturesConfig setExchangeAdaptiveCompressionEnabled(boolean exchangeAdaptiveCompressionEnabled)
+    {
+        this.exchangeAdaptiveCompressionEnabled = exchangeAdaptiveCompressionEnabled;
+        return this;
+    }
+
     public boolean isEnableIntermediateAggregations()
     {
         return enableIntermediateAggregations;
@@ -1810,6 +1874,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isPartitionedOutputSkewReportingEnabled()
+    {
+        return partitionedOutputSkewReportingEnabled;
+    }
+
+    @Config("experimental.partitioned-output-skew-reporting-enabled")
+    @ConfigDescription("Experimental: Sample the partitioning keys of partitioned outputs and report the keys that skew the output partitions, without rerouting any rows")
+    public FeaturesConfig setPartitionedOutputSkewReportingEnabled(boolean partitionedOutputSkewReportingEnabled)
+    {
+        this.partitionedOutputSkewReportingEnabled = partitionedOutputSkewReportingEnabled;
+        return this;
+    }
+
     public boolean isListBuiltInFunctionsOnly()
     {
         return listBuiltInFunctionsOnly;
@@ -2838,6 +2915,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isUseHistoryBasedHashTableSizing()
+    {
+        return useHistoryBasedHashTableSizing;
+    }
+
+    @Config("optimizer.use-history-based-hash-table-sizing")
+    @ConfigDescription("Size aggregation and join build hash tables from history based output row counts")
+    public FeaturesConfig setUseHistoryBasedHashTableSizing(boolean useHistoryBasedHashTableSizing)
+    {
+        this.useHistoryBasedHashTableSizing = useHistoryBasedHashTableSizing;
+        return this;
+    }
+
     public boolean isTrackPartialAggregationHistory()
     {
         return this.trackPartialAggregationHistory;
@@ -16,6 +16,7 @@ package com.facebook.presto.sql.analyzer;
 import com.facebook.airlift.configuration.Config;
 import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.units.DataSize;
+import jakarta.validation.constraints.Min;
 
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 
@@ -28,7 +29,19 @@ public class JavaFeaturesConfig
     private boolean distinctAggregationLargeBlockSpillEnabled;
     private boolean orderByAggregationSpillEnabled = true;
     private boolean orderBySpillEnabled = true;
+    private int orderBySpillMaxMergeFanIn = 64;
+    private int orderBySpillPrefetchPages = 2;
+    private boolean parallelSortEnabled;
+    private boolean normalizedKeySortEnabled;
+    private boolean zeroCopyLocalExchangeEnabled;
+    private boolean fixedWidthGroupByHashEnabled;
     private boolean windowSpillEnabled = true;
+    private boolean windowSpillStreamingEnabled;
+    private int windowSpillStreamingBufferedRows = 10_000;
+    private boolean joinSpillRepartitioningEnabled;
+    private DataSize joinSpillMaxPartitionSize = new DataSize(128, MEGABYTE);
+    private int joinSpillMaxRepartitioningDepth = 3;
+    private DataSize mergeJoinMaxMatchGroupSize = new DataSize(256, MEGABYTE);
     private DataSize distinctAggregationLargeBlockSizeThreshold = new DataSize(50, MEGABYTE);
     private DataSize topNOperatorUnspillMemoryLimit = new DataSize(4, MEGABYTE);
     private DataSize aggregationOperatorUnspillMemoryLimit = new DataSize(4, MEGABYTE);
@@ -46,6 +59,86 @@ public class JavaFeaturesConfig
         return this;
     }
 
+    @Min(2)
+    public int getOrderBySpillMaxMergeFanIn()
+    {
+        return orderBySpillMaxMergeFanIn;
+    }
+
+    @Config("experimental.order-by-spill-max-merge-fan-in")
+    @ConfigDescription("Maximum number of sorted runs read at the same time when merging spilled Order-by runs")
+    public JavaFeaturesConfig setOrderBySpillMaxMergeFanIn(int orderBySpillMaxMergeFanIn)
+    {
+        this.orderBySpillMaxMergeFanIn = orderBySpillMaxMergeFanIn;
+        return this;
+    }
+
+    @Min(0)
+    public int getOrderBySpillPrefetchPages()
+    {
+        return orderBySpillPrefetchPages;
+    }
+
+    @Config("experimental.order-by-spill-prefetch-pages")
+    @ConfigDescription("Number of pages read ahead asynchronously from each spilled Order-by run while merging")
+    public JavaFeaturesConfig setOrderBySpillPrefetchPages(int orderBySpillPrefetchPages)
+    {
+        this.orderBySpillPrefetchPages = orderBySpillPrefetchPages;
+        return this;
+    }
+
+    public boolean isParallelSortEnabled()
+    {
+        return parallelSortEnabled;
+    }
+
+    @Config("experimental.parallel-sort-enabled")
+    @ConfigDescription("Sort the rows of Order-by and Window operators on up to task concurrency threads")
+    public JavaFeaturesConfig setParallelSortEnabled(boolean parallelSortEnabled)
+    {
+        this.parallelSortEnabled = parallelSortEnabled;
+        return this;
+    }
+
+    public boolean isNormalizedKeySortEnabled()
+    {
+        return normalizedKeySortEnabled;
+    }
+
+    @Config("experimental.normalized-key-sort-enabled")
+    @ConfigDescription("Compare rows on normalized binary keys when sorting in Order-by, Window and TopN operators")
+    public JavaFeaturesConfig setNormalizedKeySortEnabled(boolean normalizedKeySortEnabled)
+    {
+        this.normalizedKeySortEnabled = normalizedKeySortEnabled;
+        return this;
+    }
+
+    public boolean isZeroCopyLocalExchangeEnabled()
+    {
+        return zeroCopyLocalExchangeEnabled;
+    }
+
+    @Config("experimental.zero-copy-local-exchange-enabled")
+    @ConfigDescription("Send dictionary views over the input pages to the partitions of local exchanges rather than copying their rows")
+    public JavaFeaturesConfig setZeroCopyLocalExchangeEnabled(boolean zeroCopyLocalExchangeEnabled)
+    {
+        this.zeroCopyLocalExchangeEnabled = zeroCopyLocalExchangeEnabled;
+        return this;
+    }
+
+    public boolean isFixedWidthGroupByHashEnabled()
+    {
+        return fixedWidthGroupByHashEnabled;
+    }
+
+    @Config("experimental.fixed-width-group-by-hash-enabled")
+    @ConfigDescription("Store the groups of multi-column fixed width group by keys in packed rows compared word by word")
+    public JavaFeaturesConfig setFixedWidthGroupByHashEnabled(boolean fixedWidthGroupByHashEnabled)
+    {
+        this.fixedWidthGroupByHashEnabled = fixedWidthGroupByHashEnabled;
+        return this;
+    }
+
     public boolean isWindowSpillEnabled()
     {
         return windowSpillEnabled;
@@ -59,6 +152,86 @@ public class JavaFeaturesConfig
         return this;
     }
 
+    public boolean isWindowSpillStreamingEnabled()
+    {
+        return windowSpillStreamingEnabled;
+    }
+
+    @Config("experimental.window-spill-streaming-enabled")
+    @ConfigDescription("Evaluate window partitions read back from spill over a bounded buffer of rows instead of loading them whole, if all window functions allow it")
+    public JavaFeaturesConfig setWindowSpillStreamingEnabled(boolean windowSpillStreamingEnabled)
+    {
+        this.windowSpillStreamingEnabled = windowSpillStreamingEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getWindowSpillStreamingBufferedRows()
+    {
+        return windowSpillStreamingBufferedRows;
+    }
+
+    @Config("experimental.window-spill-streaming-buffered-rows")
+    @ConfigDescription("Number of rows before and after the current row buffered when streaming window partitions read back from spill")
+    public JavaFeaturesConfig setWindowSpillStreamingBufferedRows(int windowSpillStreamingBufferedRows)
+    {
+        this.windowSpillStreamingBufferedRows = windowSpillStreamingBufferedRows;
+        return this;
+    }
+
+    public boolean isJoinSpillRepartitioningEnabled()
+    {
+        return joinSpillRepartitioningEnabled;
+    }
+
+    @Config("experimental.join-spill-repartitioning-enabled")
+    @ConfigDescription("Split spilled join build partitions that are too large to be unspilled at once into sub-partitions")
+    public JavaFeaturesConfig setJoinSpillRepartitioningEnabled(boolean joinSpillRepartitioningEnabled)
+    {
+        this.joinSpillRepartitioningEnabled = joinSpillRepartitioningEnabled;
+        return this;
+    }
+
+    public DataSize getJoinSpillMaxPartitionSize()
+    {
+        return joinSpillMaxPartitionSize;
+    }
+
+    @Config("experimental.join-spill-max-partition-size")
+    @ConfigDescription("Maximum size of a spilled join build partition unspilled at once when spill repartitioning is enabled")
+    public JavaFeaturesConfig setJoinSpillMaxPartitionSize(DataSize joinSpillMaxPartitionSize)
+    {
+        this.joinSpillMaxPartitionSize = joinSpillMaxPartitionSize;
+        return this;
+    }
+
+    public DataSize getMergeJoinMaxMatchGroupSize()
+    {
+        return mergeJoinMaxMatchGroupSize;
+    }
+
+    @Config("experimental.merge-join-max-match-group-size")
+    @ConfigDescription("Maximum size of the right rows of a merge join sharing a single join key, which are buffered in memory")
+    public JavaFeaturesConfig setMergeJoinMaxMatchGroupSize(DataSize mergeJoinMaxMatchGroupSize)
+    {
+        this.mergeJoinMaxMatchGroupSize = mergeJoinMaxMatchGroupSize;
+        return this;
+    }
+
+    @Min(0)
+    public int getJoinSpillMaxRepartitioningDepth()
+    {
+        return joinSpillMaxRepartitioningDepth;
+    }
+
+    @Config("experimental.join-spill-max-repartitioning-depth")
+    @ConfigDescription("Maximum number of times a spilled join build partition is split, before it is joined in chunks")
+    public JavaFeaturesConfig setJoinSpillMaxRepartitioningDepth(int joinSpillMaxRepartitioningDepth)
+    {
+        this.joinSpillMaxRepartitioningDepth = joinSpillMaxRepartitioningDepth;
+        return this;
+    }
+
     public boolean isOrderByAggregationSpillEnabled()
     {
         return orderByAggregationSpillEnabled;
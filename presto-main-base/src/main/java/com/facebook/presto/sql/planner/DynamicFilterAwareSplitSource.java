@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.connector.ConnectorPartitionHandle;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.split.SplitSource;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
+import static com.google.common.util.concurrent.Futures.transform;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Delays the enumeration of splits of a table scan until the dynamic filters collected from other stages
+ * are available (or the wait times out), so that the connector can prune splits with them.
+ * <p>
+ * The wait starts when the first batch of splits is requested.
+ */
+public class DynamicFilterAwareSplitSource
+        implements SplitSource
+{
+    private final TableHandle table;
+    private final Supplier<SplitSource> supplier;
+    private final Supplier<ListenableFuture<?>> dynamicFiltersCollected;
+
+    @GuardedBy("this")
+    private ListenableFuture<?> waitFuture;
+    @GuardedBy("this")
+    private SplitSource delegate;
+    @GuardedBy("this")
+    private boolean closed;
+
+    public DynamicFilterAwareSplitSource(TableHandle table, Supplier<SplitSource> supplier, Supplier<ListenableFuture<?>> dynamicFiltersCollected)
+    {
+        this.table = requireNonNull(table, "table is null");
+        this.supplier = requireNonNull(supplier, "supplier is null");
+        this.dynamicFiltersCollected = requireNonNull(dynamicFiltersCollected, "dynamicFiltersCollected is null");
+    }
+
+    @Override
+    public ConnectorId getConnectorId()
+    {
+        // must not create the delegate, as this is called when the stage is created
+        return table.getConnectorId();
+    }
+
+    @Override
+    public ConnectorTransactionHandle getTransactionHandle()
+    {
+        return table.getTransaction();
+    }
+
+    @Override
+    public ListenableFuture<SplitBatch> getNextBatch(ConnectorPartitionHandle partitionHandle, Lifespan lifespan, int maxSize)
+    {
+        ListenableFuture<?> wait = getWaitFuture();
+        if (!wait.isDone()) {
+            // an empty batch which is not the last makes the scheduler ask for the next batch
+            return transform(nonCancellationPropagating(wait), ignored -> new SplitBatch(ImmutableList.of(), false), directExecutor());
+        }
+        return getDelegate().getNextBatch(partitionHandle, lifespan, maxSize);
+    }
+
+    @Override
+    public void rewind(ConnectorPartitionHandle partitionHandle)
+    {
+        getDelegate().rewind(partitionHandle);
+    }
+
+    @Override
+    public synchronized boolean isFinished()
+    {
+        if (delegate == null) {
+            return false;
+        }
+        return delegate.isFinished();
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        // already closed
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (waitFuture != null) {
+            waitFuture.cancel(true);
+        }
+
+        // not yet initialized
+        if (delegate == null) {
+            return;
+        }
+
+        delegate.close();
+    }
+
+    private synchronized ListenableFuture<?> getWaitFuture()
+    {
+        checkState(!closed, "split source is closed");
+        if (waitFuture == null) {
+            waitFuture = dynamicFiltersCollected.get();
+        }
+        return waitFuture;
+    }
+
+    private synchronized SplitSource getDelegate()
+    {
+        checkState(!closed, "split source is closed");
+        if (delegate == null) {
+            delegate = supplier.get();
+        }
+        return delegate;
+    }
+}
@@ -13,29 +13,40 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterExtractResult;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.plan.AbstractJoinNode;
 import com.facebook.presto.spi.plan.FilterNode;
 import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher;
+import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import static com.facebook.presto.common.function.OperatorType.EQUAL;
 import static com.facebook.presto.expressions.DynamicFilters.extractDynamicFilters;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Verify.verify;
 import static java.util.Objects.requireNonNull;
@@ -43,6 +54,9 @@ import static java.util.stream.Collectors.toMap;
 
 public class LocalDynamicFilter
 {
+    // A merged Bloom filter with a higher ratio of set bits passes too many values to be worth evaluating.
+    private static final double MAX_BLOOM_FILTER_FILL_RATIO = 0.5;
+
     // Mapping from dynamic filter ID to its probe variables.
     private final Multimap<String, DynamicFilterPlaceholder> probeVariables;
 
@@ -51,22 +65,75 @@ public class LocalDynamicFilter
 
     private final SettableFuture<TupleDomain<VariableReferenceExpression>> resultFuture;
 
+    // The union of all build-side partitions, keyed by dynamic filter ID.
+    private final SettableFuture<TupleDomain<String>> buildDomainsFuture;
+
     // Number of build-side partitions to be collected.
     private final int partitionCount;
 
     // The resulting predicates from each build-side partition.
     private final List<TupleDomain<String>> partitions;
 
+    // The union of the Bloom filters of the build-side partitions received so far, keyed by dynamic filter ID.
+    // Each partition provides its Bloom filters before its predicate, and they are merged into the first partition's filters.
+    private final Map<String, BlockedBloomFilter> bloomFilterUnions = new HashMap<>();
+    // Dynamic filter IDs missing from the Bloom filters of any partition received so far.
+    private final Set<String> incompleteBloomFilters = new HashSet<>();
+    private int bloomFilterPartitionCount;
+    private final LocalMemoryContext bloomFilterMemoryContext;
+
+    // Set before resultFuture is completed.
+    private volatile Map<VariableReferenceExpression, BlockedBloomFilter> bloomFilters = ImmutableMap.of();
+
+    @VisibleForTesting
     public LocalDynamicFilter(Multimap<String, DynamicFilterPlaceholder> probeVariables, Map<String, Integer> buildChannels, int partitionCount)
+    {
+        this(probeVariables, buildChannels, partitionCount, newSimpleAggregatedMemoryContext().newLocalMemoryContext(LocalDynamicFilter.class.getSimpleName()));
+    }
+
+    public LocalDynamicFilter(Multimap<String, DynamicFilterPlaceholder> probeVariables, Map<String, Integer> buildChannels, int partitionCount, LocalMemoryContext bloomFilterMemoryContext)
     {
         this.probeVariables = requireNonNull(probeVariables, "probeVariables is null");
         this.buildChannels = requireNonNull(buildChannels, "buildChannels is null");
-        verify(probeVariables.keySet().equals(buildChannels.keySet()), "probeVariables and buildChannels must have same keys");
+        verify(buildChannels.keySet().containsAll(probeVariables.keySet()), "buildChannels must contain all keys of probeVariables");
 
         this.resultFuture = SettableFuture.create();
+        this.buildDomainsFuture = SettableFuture.create();
 
         this.partitionCount = partitionCount;
         this.partitions = new ArrayList<>(partitionCount);
+        this.bloomFilterMemoryContext = requireNonNull(bloomFilterMemoryContext, "bloomFilterMemoryContext is null");
+    }
+
+    private synchronized void addBloomFilters(Map<String, BlockedBloomFilter> partitionBloomFilters)
+    {
+        verify(bloomFilterPartitionCount < partitionCount);
+        bloomFilterPartitionCount++;
+        for (String filterId : buildChannels.keySet()) {
+            BlockedBloomFilter bloomFilter = partitionBloomFilters.get(filterId);
+            if (bloomFilter == null || incompleteBloomFilters.contains(filterId)) {
+                // values of this partition are not in any Bloom filter
+                incompleteBloomFilters.add(filterId);
+                bloomFilterUnions.remove(filterId);
+                continue;
+            }
+            BlockedBloomFilter union = bloomFilterUnions.get(filterId);
+            if (union == null) {
+                bloomFilterUnions.put(filterId, bloomFilter);
+            }
+            else {
+                union.unionWith(bloomFilter);
+            }
+        }
+        updateBloomFilterMemory(bloomFilterUnions.values());
+    }
+
+    private void updateBloomFilterMemory(Collection<BlockedBloomFilter> retainedBloomFilters)
+    {
+        bloomFilterMemoryContext.setBytes(retainedBloomFilters.stream()
+                .distinct()
+                .mapToLong(BlockedBloomFilter::getRetainedSizeInBytes)
+                .sum());
     }
 
     private synchronized void addPartition(TupleDomain<String> tupleDomain)
@@ -78,15 +145,21 @@ public class LocalDynamicFilter
         partitions.add(tupleDomain);
         if (partitions.size() == partitionCount) {
             // No more partitions are left to be processed.
-            TupleDomain<VariableReferenceExpression> result = convertTupleDomain(TupleDomain.columnWiseUnion(partitions));
+            TupleDomain<String> union = TupleDomain.columnWiseUnion(partitions);
+            bloomFilters = convertBloomFilters(union);
+            bloomFilterUnions.clear();
+            updateBloomFilterMemory(bloomFilters.values());
+            TupleDomain<VariableReferenceExpression> result = convertTupleDomain(union);
             verify(resultFuture.set(result), "dynamic filter result is provided more than once");
+            buildDomainsFuture.set(union);
         }
     }
 
     private TupleDomain<VariableReferenceExpression> convertTupleDomain(TupleDomain<String> result)
     {
         if (result.isNone()) {
-            return TupleDomain.none();
+            // An empty build side only constrains the local probe side
+            return probeVariables.isEmpty() ? TupleDomain.all() : TupleDomain.none();
         }
         // Convert the predicate to use probe variables (instead dynamic filter IDs).
         // Note that in case of a probe-side union, a single dynamic filter may match multiple probe variables.
@@ -102,7 +175,52 @@ public class LocalDynamicFilter
         return TupleDomain.withColumnDomains(builder.build());
     }
 
+    private Map<VariableReferenceExpression, BlockedBloomFilter> convertBloomFilters(TupleDomain<String> result)
+    {
+        if (result.isNone() || bloomFilterPartitionCount < partitionCount) {
+            return ImmutableMap.of();
+        }
+        Map<VariableReferenceExpression, BlockedBloomFilter> converted = new HashMap<>();
+        for (String filterId : buildChannels.keySet()) {
+            Domain domain = result.getDomains().get().get(filterId);
+            if (domain != null && isDiscreteSet(domain)) {
+                // the predicate is already exact
+                continue;
+            }
+            BlockedBloomFilter bloomFilter = bloomFilterUnions.get(filterId);
+            if (bloomFilter == null || bloomFilter.getFillRatio() > MAX_BLOOM_FILTER_FILL_RATIO) {
+                continue;
+            }
+            for (DynamicFilterPlaceholder placeholder : probeVariables.get(filterId)) {
+                // Bloom filters only answer equality
+                if (placeholder.getOperator() == EQUAL) {
+                    converted.put((VariableReferenceExpression) placeholder.getInput(), bloomFilter);
+                }
+            }
+        }
+        return ImmutableMap.copyOf(converted);
+    }
+
+    private static boolean isDiscreteSet(Domain domain)
+    {
+        return domain.getValues().getValuesProcessor().transform(
+                ranges -> ranges.getOrderedRanges().stream().allMatch(Range::isSingleValue),
+                discreteValues -> discreteValues.isWhiteList(),
+                allOrNone -> !allOrNone.isAll());
+    }
+
+    @VisibleForTesting
     public static Optional<LocalDynamicFilter> create(AbstractJoinNode planNode, int partitionCount)
+    {
+        return create(planNode, partitionCount, false, newSimpleAggregatedMemoryContext().newLocalMemoryContext(LocalDynamicFilter.class.getSimpleName()));
+    }
+
+    /**
+     * @param includeRemoteFilters whether to collect the build-side values of the dynamic filters without a local probe,
+     * which are consumed by table scans in other stages. They are only collected if the probe side reads from other stages.
+     * @param bloomFilterMemoryContext accounts for the Bloom filters kept until the probe side is done with them
+     */
+    public static Optional<LocalDynamicFilter> create(AbstractJoinNode planNode, int partitionCount, boolean includeRemoteFilters, LocalMemoryContext bloomFilterMemoryContext)
     {
         Set<String> joinDynamicFilters = planNode.getDynamicFilters().keySet();
         List<FilterNode> filterNodes = PlanNodeSearcher
@@ -125,10 +243,15 @@ public class LocalDynamicFilter
         }
 
         Multimap<String, DynamicFilterPlaceholder> probeVariables = probeVariablesBuilder.build();
+        // Dynamic filters are only consumed on the probe side of their join, so a dynamic filter without a local probe
+        // can only have a probe in the stages feeding the probe side of the join.
+        boolean hasRemoteProbe = includeRemoteFilters && PlanNodeSearcher.searchFrom(planNode.getProbe())
+                .where(RemoteSourceNode.class::isInstance)
+                .matches();
         PlanNode buildNode = planNode.getBuild();
         Map<String, Integer> buildChannels = planNode.getDynamicFilters().entrySet().stream()
-                // Skip build channels that don't match local probe dynamic filters.
-                .filter(entry -> probeVariables.containsKey(entry.getKey()))
+                // Skip build channels that don't match local probe dynamic filters, unless collected for other stages.
+                .filter(entry -> hasRemoteProbe || probeVariables.containsKey(entry.getKey()))
                 .collect(toMap(
                         // Dynamic filter ID
                         Map.Entry::getKey,
@@ -143,7 +266,7 @@ public class LocalDynamicFilter
         if (buildChannels.isEmpty()) {
             return Optional.empty();
         }
-        return Optional.of(new LocalDynamicFilter(probeVariables, buildChannels, partitionCount));
+        return Optional.of(new LocalDynamicFilter(probeVariables, buildChannels, partitionCount, bloomFilterMemoryContext));
     }
 
     public Map<String, Integer> getBuildChannels()
@@ -156,11 +279,58 @@ public class LocalDynamicFilter
         return resultFuture;
     }
 
+    /**
+     * Returns the IDs of the collected dynamic filters which have no local probe.
+     */
+    public Set<String> getRemoteFilterIds()
+    {
+        return Sets.difference(buildChannels.keySet(), probeVariables.keySet()).immutableCopy();
+    }
+
+    /**
+     * Returns the union of the build-side predicates of all partitions, keyed by dynamic filter ID.
+     */
+    public ListenableFuture<TupleDomain<String>> getBuildDomainsFuture()
+    {
+        return buildDomainsFuture;
+    }
+
+    /**
+     * Returns the Bloom filters over the build-side values for the probe variables compared for equality.
+     * Only valid after the result future is completed.
+     */
+    public Map<VariableReferenceExpression, BlockedBloomFilter> getBloomFilters()
+    {
+        return bloomFilters;
+    }
+
+    /**
+     * Converts the domains of dynamic filters, keyed by dynamic filter ID, to a predicate over the probe variables of the placeholders.
+     */
+    public static TupleDomain<VariableReferenceExpression> toProbePredicate(Map<String, Domain> domains, Collection<DynamicFilterPlaceholder> placeholders)
+    {
+        TupleDomain<VariableReferenceExpression> predicate = TupleDomain.all();
+        for (DynamicFilterPlaceholder placeholder : placeholders) {
+            Domain domain = domains.get(placeholder.getId());
+            if (domain == null || !(placeholder.getInput() instanceof VariableReferenceExpression)) {
+                continue;
+            }
+            VariableReferenceExpression probeVariable = (VariableReferenceExpression) placeholder.getInput();
+            predicate = predicate.intersect(TupleDomain.withColumnDomains(ImmutableMap.of(probeVariable, placeholder.applyComparison(domain))));
+        }
+        return predicate;
+    }
+
     public Consumer<TupleDomain<String>> getTupleDomainConsumer()
     {
         return this::addPartition;
     }
 
+    public Consumer<Map<String, BlockedBloomFilter>> getBloomFilterConsumer()
+    {
+        return this::addBloomFilters;
+    }
+
     @Override
     public String toString()
     {
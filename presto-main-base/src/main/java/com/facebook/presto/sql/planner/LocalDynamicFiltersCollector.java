@@ -13,11 +13,16 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.google.common.collect.ImmutableMap;
 import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @ThreadSafe
 public class LocalDynamicFiltersCollector
 {
@@ -28,9 +33,16 @@ public class LocalDynamicFiltersCollector
     @GuardedBy ("this")
     private TupleDomain<VariableReferenceExpression> predicate;
 
+    /**
+     * Bloom filters over build-side values, which further constrain the values allowed by the predicate.
+     */
+    @GuardedBy("this")
+    private Map<VariableReferenceExpression, BlockedBloomFilter> bloomFilters;
+
     public LocalDynamicFiltersCollector()
     {
         this.predicate = TupleDomain.all();
+        this.bloomFilters = ImmutableMap.of();
     }
 
     public synchronized TupleDomain<VariableReferenceExpression> getPredicate()
@@ -38,8 +50,24 @@ public class LocalDynamicFiltersCollector
         return predicate;
     }
 
+    public synchronized Map<VariableReferenceExpression, BlockedBloomFilter> getBloomFilters()
+    {
+        return bloomFilters;
+    }
+
     public synchronized void intersect(TupleDomain<VariableReferenceExpression> predicate)
     {
         this.predicate = this.predicate.intersect(predicate);
     }
+
+    public synchronized void intersect(TupleDomain<VariableReferenceExpression> predicate, Map<VariableReferenceExpression, BlockedBloomFilter> bloomFilters)
+    {
+        intersect(predicate);
+        if (!bloomFilters.isEmpty()) {
+            Map<VariableReferenceExpression, BlockedBloomFilter> merged = new HashMap<>(bloomFilters);
+            // either filter is a valid constraint; keep the one collected first
+            merged.putAll(this.bloomFilters);
+            this.bloomFilters = ImmutableMap.copyOf(merged);
+        }
+    }
 }
@@ -24,12 +24,15 @@ import com.facebook.presto.common.block.BlockEncodingSerde;
 import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.function.OperatorType;
 import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
+import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.TypeSignature;
 import com.facebook.presto.execution.ExplainAnalyzeContext;
 import com.facebook.presto.execution.FragmentResultCacheContext;
 import com.facebook.presto.execution.StageExecutionId;
+import com.facebook.presto.execution.TaskDynamicFilters;
 import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.execution.buffer.OutputBuffer;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
@@ -73,6 +76,9 @@ import com.facebook.presto.operator.LookupJoinOperators;
 import com.facebook.presto.operator.LookupOuterOperator.LookupOuterOperatorFactory;
 import com.facebook.presto.operator.LookupSourceFactory;
 import com.facebook.presto.operator.MarkDistinctOperator.MarkDistinctOperatorFactory;
+import com.facebook.presto.operator.MergeJoinOperator.MergeJoinOperatorFactory;
+import com.facebook.presto.operator.MergeJoinPagesBridge;
+import com.facebook.presto.operator.MergeJoinSourceOperator.MergeJoinSourceOperatorFactory;
 import com.facebook.presto.operator.MetadataDeleteOperator.MetadataDeleteOperatorFactory;
 import com.facebook.presto.operator.NestedLoopJoinBridge;
 import com.facebook.presto.operator.NestedLoopJoinPagesSupplier;
@@ -81,6 +87,7 @@ import com.facebook.presto.operator.OrderByOperator.OrderByOperatorFactory;
 import com.facebook.presto.operator.OutputFactory;
 import com.facebook.presto.operator.PageSinkCommitStrategy;
 import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.operator.PagesIndexSortExecutor;
 import com.facebook.presto.operator.PagesSpatialIndexFactory;
 import com.facebook.presto.operator.PartitionFunction;
 import com.facebook.presto.operator.PartitionedLookupSourceFactory;
@@ -156,6 +163,7 @@ import com.facebook.presto.spi.plan.JoinDistributionType;
 import com.facebook.presto.spi.plan.JoinNode;
 import com.facebook.presto.spi.plan.LimitNode;
 import com.facebook.presto.spi.plan.MarkDistinctNode;
+import com.facebook.presto.spi.plan.MergeJoinNode;
 import com.facebook.presto.spi.plan.MetadataDeleteNode;
 import com.facebook.presto.spi.plan.OrderingScheme;
 import com.facebook.presto.spi.plan.OutputNode;
@@ -256,6 +264,7 @@ import java.util.stream.IntStream;
 import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.presto.SystemSessionProperties.getAdaptivePartialAggregationRowsReductionRatioThreshold;
+import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringBloomFilterMaxSize;
 import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringMaxPerDriverRowCount;
 import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringMaxPerDriverSize;
 import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringRangeRowLimitPerDriver;
@@ -267,15 +276,19 @@ import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
 import static com.facebook.presto.SystemSessionProperties.getTaskPartitionedWriterCount;
 import static com.facebook.presto.SystemSessionProperties.getTaskWriterCount;
 import static com.facebook.presto.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isDistributedDynamicFilteringEnabled;
 import static com.facebook.presto.SystemSessionProperties.isEnableDynamicFiltering;
+import static com.facebook.presto.SystemSessionProperties.isExchangeAdaptiveCompressionEnabled;
 import static com.facebook.presto.SystemSessionProperties.isExchangeChecksumEnabled;
 import static com.facebook.presto.SystemSessionProperties.isJoinSpillingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isNativeExecutionEnabled;
 import static com.facebook.presto.SystemSessionProperties.isOptimizeCommonSubExpressions;
 import static com.facebook.presto.SystemSessionProperties.isOptimizeJoinProbeForEmptyBuildRuntimeEnabled;
 import static com.facebook.presto.SystemSessionProperties.isOptimizedRepartitioningEnabled;
+import static com.facebook.presto.SystemSessionProperties.isPartitionedOutputSkewReportingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isQuickDistinctLimitEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isUseHistoryBasedHashTableSizing;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.TypeSignature.parseTypeSignature;
 import static com.facebook.presto.common.type.TypeUtils.writeNativeValue;
@@ -303,13 +316,23 @@ import static com.facebook.presto.operator.WindowFunctionDefinition.window;
 import static com.facebook.presto.operator.aggregation.GenericAccumulatorFactory.generateAccumulatorFactory;
 import static com.facebook.presto.operator.unnest.UnnestOperator.UnnestOperatorFactory;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getAggregationOperatorUnspillMemoryLimit;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getJoinSpillMaxPartitionSize;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getJoinSpillMaxRepartitioningDepth;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getMergeJoinMaxMatchGroupSize;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getOrderBySpillMaxMergeFanIn;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getOrderBySpillPrefetchPages;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getSortParallelism;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getTopNOperatorUnspillMemoryLimit;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.getWindowSpillStreamingBufferedRows;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isAggregationSpillEnabled;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isDistinctAggregationSpillEnabled;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isJoinSpillRepartitioningEnabled;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isNormalizedKeySortEnabled;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isOrderByAggregationSpillEnabled;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isOrderBySpillEnabled;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isTopNSpillEnabled;
 import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isWindowSpillEnabled;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.isWindowSpillStreamingEnabled;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
@@ -351,11 +374,13 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.DiscreteDomain.integers;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Range.closedOpen;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
 import static java.util.stream.IntStream.range;
 
 public class LocalExecutionPlanner
@@ -389,9 +414,13 @@ public class LocalExecutionPlanner
     private final ObjectMapper sortedMapObjectMapper;
     private final boolean tableFinishOperatorMemoryTrackingEnabled;
     private final StandaloneSpillerFactory standaloneSpillerFactory;
+    private final PagesIndexSortExecutor pagesIndexSortExecutor;
     private final boolean useNewNanDefinition;
 
     private static final TypeSignature SPHERICAL_GEOGRAPHY_TYPE_SIGNATURE = parseTypeSignature("SphericalGeography");
+    private static final int DEFAULT_EXPECTED_HASH_TABLE_SIZE = 10_000;
+    // History based row counts cover the whole stage rather than a single task, so cap what one operator pre-allocates
+    private static final int MAX_HISTORY_BASED_EXPECTED_HASH_TABLE_SIZE = 1 << 18;
 
     @Inject
     public LocalExecutionPlanner(
@@ -421,7 +450,8 @@ public class LocalExecutionPlanner
             DeterminismEvaluator determinismEvaluator,
             FragmentResultCacheManager fragmentResultCacheManager,
             ObjectMapper objectMapper,
-            StandaloneSpillerFactory standaloneSpillerFactory)
+            StandaloneSpillerFactory standaloneSpillerFactory,
+            PagesIndexSortExecutor pagesIndexSortExecutor)
     {
         this.explainAnalyzeContext = requireNonNull(explainAnalyzeContext, "explainAnalyzeContext is null");
         this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
@@ -457,6 +487,7 @@ public class LocalExecutionPlanner
                 .configure(ORDER_MAP_ENTRIES_BY_KEYS, true);
         this.tableFinishOperatorMemoryTrackingEnabled = requireNonNull(memoryManagerConfig, "memoryManagerConfig is null").isTableFinishOperatorMemoryTrackingEnabled();
         this.standaloneSpillerFactory = requireNonNull(standaloneSpillerFactory, "standaloneSpillerFactory is null");
+        this.pagesIndexSortExecutor = requireNonNull(pagesIndexSortExecutor, "pagesIndexSortExecutor is null");
         this.useNewNanDefinition = requireNonNull(functionsConfig, "functionsConfig is null").getUseNewNanDefinition();
     }
 
@@ -541,10 +572,10 @@ public class LocalExecutionPlanner
         }
 
         if (isOptimizedRepartitioningEnabled(taskContext.getSession())) {
-            return new OptimizedPartitionedOutputFactory(outputBuffer, maxPagePartitioningBufferSize);
+            return new OptimizedPartitionedOutputFactory(outputBuffer, maxPagePartitioningBufferSize, isPartitionedOutputSkewReportingEnabled(taskContext.getSession()));
         }
         else {
-            return new PartitionedOutputFactory(outputBuffer, maxPagePartitioningBufferSize);
+            return new PartitionedOutputFactory(outputBuffer, maxPagePartitioningBufferSize, isPartitionedOutputSkewReportingEnabled(taskContext.getSession()));
         }
     }
 
@@ -638,7 +669,7 @@ public class LocalExecutionPlanner
                                 outputTypes,
                                 pagePreprocessor,
                                 outputPartitioning,
-                                new PagesSerdeFactory(blockEncodingSerde, getExchangeCompressionCodec(session), isExchangeChecksumEnabled(session))))
+                                new PagesSerdeFactory(blockEncodingSerde, getExchangeCompressionCodec(session), isExchangeChecksumEnabled(session), isExchangeAdaptiveCompressionEnabled(session))))
                         .build(),
                 context.getDriverInstanceCount(),
                 physicalOperation.getPipelineExecutionStrategy(),
@@ -756,6 +787,11 @@ public class LocalExecutionPlanner
             return taskContext.getSession();
         }
 
+        public TaskContext getTaskContext()
+        {
+            return taskContext;
+        }
+
         public StageExecutionId getStageExecutionId()
         {
             return taskContext.getTaskId().getStageExecutionId();
@@ -771,6 +807,11 @@ public class LocalExecutionPlanner
             return dynamicFiltersCollector;
         }
 
+        public TaskDynamicFilters getTaskDynamicFilters()
+        {
+            return taskContext.getDynamicFilters();
+        }
+
         private int getNextPipelineId()
         {
             return nextPipelineId.getAndIncrement();
@@ -1200,7 +1241,10 @@ public class LocalExecutionPlanner
                     pagesIndexFactory,
                     isWindowSpillEnabled(session),
                     spillerFactory,
-                    orderingCompiler);
+                    orderingCompiler,
+                    isWindowSpillStreamingEnabled(session),
+                    getWindowSpillStreamingBufferedRows(session),
+                    isNormalizedKeySortEnabled(session));
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), context, source);
         }
@@ -1231,7 +1275,8 @@ public class LocalExecutionPlanner
                     source.getTypes(),
                     (int) node.getCount(),
                     sortChannels,
-                    sortOrders);
+                    sortOrders,
+                    isNormalizedKeySortEnabled(context.getSession()));
 
             return new PhysicalOperation(operator, source.getLayout(), context, source);
         }
@@ -1268,7 +1313,12 @@ public class LocalExecutionPlanner
                     pagesIndexFactory,
                     spillEnabled,
                     Optional.of(spillerFactory),
-                    orderingCompiler);
+                    orderingCompiler,
+                    getOrderBySpillMaxMergeFanIn(context.getSession()),
+                    getOrderBySpillPrefetchPages(context.getSession()),
+                    getSortParallelism(context.getSession()),
+                    Optional.of(pagesIndexSortExecutor),
+                    isNormalizedKeySortEnabled(context.getSession()));
 
             return new PhysicalOperation(operator, source.getLayout(), context, source);
         }
@@ -1496,13 +1546,30 @@ public class LocalExecutionPlanner
 
             Optional<List<DynamicFilterPlaceholder>> dynamicFilters = extractDynamicFilterResult.map(DynamicFilterExtractResult::getDynamicConjuncts);
             Optional<Supplier<TupleDomain<ColumnHandle>>> dynamicFilterSupplier = Optional.empty();
+            Optional<Supplier<Map<ColumnHandle, BlockedBloomFilter>>> dynamicFilterBloomFiltersSupplier = Optional.empty();
             if (dynamicFilters.isPresent() && !dynamicFilters.get().isEmpty() && sourceNode instanceof TableScanNode) {
                 TableScanNode tableScanNode = (TableScanNode) sourceNode;
                 LocalDynamicFiltersCollector collector = context.getDynamicFiltersCollector();
-                dynamicFilterSupplier = Optional.of(() -> {
-                    TupleDomain<VariableReferenceExpression> predicate = collector.getPredicate();
-                    return predicate.transform(tableScanNode.getAssignments()::get);
-                });
+                if (isDistributedDynamicFilteringEnabled(session)) {
+                    // dynamic filters of joins in other stages are collected by the coordinator
+                    TaskDynamicFilters taskDynamicFilters = context.getTaskDynamicFilters();
+                    List<DynamicFilterPlaceholder> placeholders = dynamicFilters.get();
+                    dynamicFilterSupplier = Optional.of(() -> {
+                        TupleDomain<VariableReferenceExpression> predicate = collector.getPredicate()
+                                .intersect(LocalDynamicFilter.toProbePredicate(taskDynamicFilters.getRemoteDomains(), placeholders));
+                        return predicate.transform(tableScanNode.getAssignments()::get);
+                    });
+                }
+                else {
+                    dynamicFilterSupplier = Optional.of(() -> {
+                        TupleDomain<VariableReferenceExpression> predicate = collector.getPredicate();
+                        return predicate.transform(tableScanNode.getAssignments()::get);
+                    });
+                }
+                dynamicFilterBloomFiltersSupplier = Optional.of(() -> collector.getBloomFilters().entrySet().stream()
+                        // the collector may contain Bloom filters for other table scans
+                        .filter(entry -> tableScanNode.getAssignments().containsKey(entry.getKey()))
+                        .collect(toImmutableMap(entry -> tableScanNode.getAssignments().get(entry.getKey()), Map.Entry::getValue)));
             }
 
             // compiler uses inputs instead of variables, so rewrite the expressions first
@@ -1546,6 +1613,7 @@ public class LocalExecutionPlanner
                             columns,
                             projections.stream().map(RowExpression::getType).collect(toImmutableList()),
                             dynamicFilterSupplier,
+                            dynamicFilterBloomFiltersSupplier,
                             getFilterAndProjectMinOutputPageSize(session),
                             getFilterAndProjectMinOutputPageRowCount(session));
 
@@ -1948,6 +2016,87 @@ public class LocalExecutionPlanner
             }
         }
 
+        @Override
+        public PhysicalOperation visitMergeJoin(MergeJoinNode node, LocalExecutionPlanContext context)
+        {
+            if (node.getFilter().isPresent()) {
+                // the merge join operator only evaluates equi-join criteria, plan a lookup join instead
+                JoinNode joinNode = new JoinNode(
+                        node.getSourceLocation(),
+                        node.getId(),
+                        node.getType(),
+                        node.getLeft(),
+                        node.getRight(),
+                        node.getCriteria(),
+                        node.getOutputVariables(),
+                        node.getFilter(),
+                        node.getLeftHashVariable(),
+                        node.getRightHashVariable(),
+                        Optional.empty(),
+                        ImmutableMap.of());
+                return visitJoin(joinNode, context);
+            }
+
+            // The optimizers only plan a merge join when both inputs are sorted on the join keys. Each input is a single stream:
+            // either gathered by AddLocalExchanges after a sort, or a bucketed table scan with one sorted split per lifespan.
+            PhysicalOperation probeSource = node.getLeft().accept(this, context);
+
+            LocalExecutionPlanContext buildContext = context.createSubContext();
+            PhysicalOperation buildSource = node.getRight().accept(this, buildContext);
+
+            checkState(
+                    probeSource.getPipelineExecutionStrategy() == buildSource.getPipelineExecutionStrategy(),
+                    "Probe and build of a merge join are expected to have the same execution strategy");
+            checkState(context.getDriverInstanceCount().orElse(1) == 1, "Expected merge join probe to be a single stream");
+            checkState(buildContext.getDriverInstanceCount().orElse(1) == 1, "Expected merge join build to be a single stream");
+
+            JoinBridgeManager<MergeJoinPagesBridge> mergeJoinBridgeManager = new JoinBridgeManager<>(
+                    false,
+                    probeSource.getPipelineExecutionStrategy(),
+                    buildSource.getPipelineExecutionStrategy(),
+                    () -> new MergeJoinPagesBridge(maxLocalExchangeBufferSize.toBytes()),
+                    buildSource.getTypes());
+
+            context.addDriverFactory(
+                    buildContext.isInputDriver(),
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(buildSource.getOperatorFactories())
+                            .add(new MergeJoinSourceOperatorFactory(buildContext.getNextOperatorId(), node.getId(), mergeJoinBridgeManager))
+                            .build(),
+                    buildContext.getDriverInstanceCount(),
+                    buildSource.getPipelineExecutionStrategy(),
+                    Optional.empty());
+
+            List<VariableReferenceExpression> probeOutputVariables = node.getOutputVariables().stream()
+                    .filter(node.getLeft().getOutputVariables()::contains)
+                    .collect(toImmutableList());
+            List<VariableReferenceExpression> buildOutputVariables = node.getOutputVariables().stream()
+                    .filter(node.getRight().getOutputVariables()::contains)
+                    .collect(toImmutableList());
+
+            OperatorFactory operatorFactory = new MergeJoinOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    mergeJoinBridgeManager,
+                    node.getType(),
+                    probeSource.getTypes(),
+                    getChannelsForVariables(Lists.transform(node.getCriteria(), EquiJoinClause::getLeft), probeSource.getLayout()),
+                    getChannelsForVariables(probeOutputVariables, probeSource.getLayout()),
+                    buildSource.getTypes(),
+                    getChannelsForVariables(Lists.transform(node.getCriteria(), EquiJoinClause::getRight), buildSource.getLayout()),
+                    getChannelsForVariables(buildOutputVariables, buildSource.getLayout()),
+                    getMergeJoinMaxMatchGroupSize(session).toBytes());
+
+            // the probe output columns are followed by the build output columns
+            ImmutableMap.Builder<VariableReferenceExpression, Integer> outputMappings = ImmutableMap.builder();
+            int channel = 0;
+            for (VariableReferenceExpression variable : Iterables.concat(probeOutputVariables, buildOutputVariables)) {
+                outputMappings.put(variable, channel++);
+            }
+            return new PhysicalOperation(operatorFactory, outputMappings.build(), context, probeSource);
+        }
+
         @Override
         public PhysicalOperation visitSpatialJoin(SpatialJoinNode node, LocalExecutionPlanContext context)
         {
@@ -2434,10 +2583,12 @@ public class LocalExecutionPlanner
                     filterFunctionFactory,
                     sortChannel,
                     searchFunctionFactories,
-                    10_000,
+                    getExpectedHashTableSize(node.getRight(), partitionCount),
                     pagesIndexFactory,
                     spillEnabled && partitionCount > 1,
                     singleStreamSpillerFactory,
+                    isJoinSpillRepartitioningEnabled(session) ? Optional.of(getJoinSpillMaxPartitionSize(session)) : Optional.empty(),
+                    getJoinSpillMaxRepartitioningDepth(session),
                     isBroadcastJoin);
 
             factoriesBuilder.add(hashBuilderOperatorFactory);
@@ -2471,10 +2622,12 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     planNodeId,
                     dynamicFilter.getTupleDomainConsumer(),
+                    dynamicFilter.getBloomFilterConsumer(),
                     filterBuildChannels,
                     getDynamicFilteringMaxPerDriverRowCount(context.getSession()),
                     getDynamicFilteringMaxPerDriverSize(context.getSession()),
                     getDynamicFilteringRangeRowLimitPerDriver(context.getSession()),
+                    getDynamicFilteringBloomFilterMaxSize(context.getSession()),
                     useNewNanDefinition);
         }
 
@@ -2490,16 +2643,36 @@ public class LocalExecutionPlanner
                 throw new PrestoException(NOT_SUPPORTED, "Dynamic filtering cannot be used with grouped execution");
             }
             LocalDynamicFiltersCollector collector = context.getDynamicFiltersCollector();
+            boolean distributedDynamicFiltering = isDistributedDynamicFilteringEnabled(context.getSession());
             return LocalDynamicFilter
-                    .create(node, partitionCount)
+                    .create(node, partitionCount, distributedDynamicFiltering, context.getTaskContext().newLocalSystemMemoryContext(LocalDynamicFilter.class.getSimpleName()))
                     .map(filter -> {
                         // Intersect dynamic filters' predicates when they become ready,
                         // in order to support multiple join nodes in the same plan fragment.
-                        addSuccessCallback(filter.getResultFuture(), collector::intersect);
+                        addSuccessCallback(filter.getResultFuture(), result -> collector.intersect(result, filter.getBloomFilters()));
+                        Set<String> remoteFilterIds = filter.getRemoteFilterIds();
+                        if (!remoteFilterIds.isEmpty()) {
+                            // Report the filters consumed in other stages to the coordinator
+                            Map<String, Type> remoteFilterTypes = remoteFilterIds.stream()
+                                    .collect(toImmutableMap(identity(), filterId -> buildSource.getTypes().get(filter.getBuildChannels().get(filterId))));
+                            TaskDynamicFilters taskDynamicFilters = context.getTaskDynamicFilters();
+                            addSuccessCallback(filter.getBuildDomainsFuture(), buildDomains -> taskDynamicFilters.addBuildDomains(toBuildDomains(buildDomains, remoteFilterTypes)));
+                        }
                         return filter;
                     });
         }
 
+        private Map<String, Domain> toBuildDomains(TupleDomain<String> buildDomains, Map<String, Type> filterTypes)
+        {
+            return filterTypes.entrySet().stream()
+                    .collect(toImmutableMap(Map.Entry::getKey, entry -> {
+                        if (buildDomains.isNone()) {
+                            return Domain.none(entry.getValue());
+                        }
+                        return buildDomains.getDomains().get().getOrDefault(entry.getKey(), Domain.all(entry.getValue()));
+                    }));
+        }
+
         private JoinFilterFunctionFactory compileJoinFilterFunction(
                 SqlFunctionProperties sqlFunctionProperties,
                 Map<SqlFunctionId, SqlInvokedFunction> sessionFunctions,
@@ -3349,7 +3522,7 @@ public class LocalExecutionPlanner
                     context,
                     0,
                     mappings,
-                    10_000,
+                    node.getStep().isOutputPartial() ? DEFAULT_EXPECTED_HASH_TABLE_SIZE : getExpectedHashTableSize(node, context.getDriverInstanceCount().orElse(getTaskConcurrency(session))),
                     Optional.of(maxPartialAggregationMemorySize),
                     node.getStep().isOutputPartial());
             return new PhysicalOperation(operatorFactory, mappings.build(), context, source);
@@ -3453,6 +3626,15 @@ public class LocalExecutionPlanner
             }
         }
 
+        private int getExpectedHashTableSize(PlanNode node, int driverInstanceCount)
+        {
+            if (!isUseHistoryBasedHashTableSizing(session)) {
+                return DEFAULT_EXPECTED_HASH_TABLE_SIZE;
+            }
+            Optional<Double> historyBasedRowCount = fragment.getStatsAndCosts().map(statsAndCosts -> statsAndCosts.getHistoryBasedOutputRowCounts().get(node.getId()));
+            return LocalExecutionPlanner.getExpectedHashTableSize(historyBasedRowCount, driverInstanceCount);
+        }
+
         private boolean hasDistinct(Map<VariableReferenceExpression, Aggregation> aggregations)
         {
             return aggregations.values().stream().anyMatch(aggregation -> aggregation.isDistinct());
@@ -3464,6 +3646,21 @@ public class LocalExecutionPlanner
         }
     }
 
+    /**
+     * Returns the number of entries one of {@code driverInstanceCount} operators should size its hash table for,
+     * given the history based output row count of the node whose output rows end up in the hash table. Nodes
+     * without one, including nodes with cost based estimates of any confidence, keep the default size.
+     */
+    @VisibleForTesting
+    static int getExpectedHashTableSize(Optional<Double> historyBasedRowCount, int driverInstanceCount)
+    {
+        if (!historyBasedRowCount.isPresent()) {
+            return DEFAULT_EXPECTED_HASH_TABLE_SIZE;
+        }
+        double rowsPerDriver = Math.ceil(historyBasedRowCount.get() / Math.max(driverInstanceCount, 1));
+        return (int) Math.max(Math.min(rowsPerDriver, MAX_HISTORY_BASED_EXPECTED_HASH_TABLE_SIZE), 1);
+    }
+
     private static Optional<PartialAggregationController> createPartialAggregationController(
             Optional<DataSize> maxPartialAggregationMemorySize,
             AggregationNode.Step step,
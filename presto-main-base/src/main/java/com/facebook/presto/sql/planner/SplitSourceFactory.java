@@ -14,8 +14,14 @@
 package com.facebook.presto.sql.planner;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.units.Duration;
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.execution.scheduler.DynamicFilterService;
 import com.facebook.presto.execution.scheduler.TableWriteInfo;
+import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.WarningCollector;
 import com.facebook.presto.spi.connector.ConnectorSplitManager.SplitSchedulingStrategy;
@@ -45,6 +51,7 @@ import com.facebook.presto.spi.plan.UnionNode;
 import com.facebook.presto.spi.plan.UnnestNode;
 import com.facebook.presto.spi.plan.ValuesNode;
 import com.facebook.presto.spi.plan.WindowNode;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.split.SampledSplitSource;
 import com.facebook.presto.split.SplitSource;
 import com.facebook.presto.split.SplitSourceProvider;
@@ -66,11 +73,17 @@ import com.google.common.collect.ImmutableMap;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.SystemSessionProperties.getDistributedDynamicFilteringWaitTimeout;
+import static com.facebook.presto.expressions.DynamicFilters.extractDynamicFilters;
 import static com.facebook.presto.spi.connector.ConnectorSplitManager.SplitSchedulingStrategy.GROUPED_SCHEDULING;
 import static com.facebook.presto.spi.connector.ConnectorSplitManager.SplitSchedulingStrategy.REWINDABLE_GROUPED_SCHEDULING;
 import static com.facebook.presto.spi.connector.ConnectorSplitManager.SplitSchedulingStrategy.UNGROUPED_SCHEDULING;
+import static com.facebook.presto.sql.planner.LocalDynamicFilter.toProbePredicate;
+import static com.facebook.presto.sql.planner.PlannerUtils.isFilterAboveTableScan;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static java.util.Objects.requireNonNull;
 
@@ -80,11 +93,18 @@ public class SplitSourceFactory
 
     private final SplitSourceProvider splitSourceProvider;
     private final WarningCollector warningCollector;
+    private final Optional<DynamicFilterService> dynamicFilterService;
 
     public SplitSourceFactory(SplitSourceProvider splitSourceProvider, WarningCollector warningCollector)
+    {
+        this(splitSourceProvider, warningCollector, Optional.empty());
+    }
+
+    public SplitSourceFactory(SplitSourceProvider splitSourceProvider, WarningCollector warningCollector, Optional<DynamicFilterService> dynamicFilterService)
     {
         this.splitSourceProvider = requireNonNull(splitSourceProvider, "splitSourceProvider is null");
         this.warningCollector = requireNonNull(warningCollector, "warningCollector is null");
+        this.dynamicFilterService = requireNonNull(dynamicFilterService, "dynamicFilterService is null");
     }
 
     public Map<PlanNodeId, SplitSource> createSplitSources(PlanFragment fragment, Session session, TableWriteInfo tableWriteInfo)
@@ -149,7 +169,8 @@ public class SplitSourceFactory
                     session,
                     table,
                     getSplitSchedulingStrategy(stageExecutionDescriptor, node.getId()),
-                    warningCollector);
+                    warningCollector,
+                    TupleDomain::all);
 
             SplitSource splitSource = new LazySplitSource(splitSourceSupplier);
 
@@ -225,9 +246,43 @@ public class SplitSourceFactory
         @Override
         public Map<PlanNodeId, SplitSource> visitFilter(FilterNode node, Context context)
         {
+            if (dynamicFilterService.isPresent() && isFilterAboveTableScan(node)) {
+                TableScanNode scan = (TableScanNode) node.getSource();
+                List<DynamicFilterPlaceholder> placeholders = extractDynamicFilters(node.getPredicate()).getDynamicConjuncts().stream()
+                        .filter(placeholder -> dynamicFilterService.get().isDistributedDynamicFilter(session.getQueryId(), placeholder.getId()))
+                        .filter(placeholder -> placeholder.getInput() instanceof VariableReferenceExpression && scan.getAssignments().containsKey(placeholder.getInput()))
+                        .collect(toImmutableList());
+                if (!placeholders.isEmpty()) {
+                    return createDynamicFilterAwareSplitSource(scan, placeholders, dynamicFilterService.get());
+                }
+            }
             return node.getSource().accept(this, context);
         }
 
+        private Map<PlanNodeId, SplitSource> createDynamicFilterAwareSplitSource(TableScanNode node, List<DynamicFilterPlaceholder> placeholders, DynamicFilterService dynamicFilterService)
+        {
+            QueryId queryId = session.getQueryId();
+            TableHandle table = node.getTable();
+            Supplier<TupleDomain<ColumnHandle>> dynamicFilter = () -> toProbePredicate(dynamicFilterService.getCollectedDomains(queryId), placeholders)
+                    .transform(variable -> node.getAssignments().get(variable));
+            Supplier<SplitSource> splitSourceSupplier = () -> splitSourceProvider.getSplits(
+                    session,
+                    table,
+                    getSplitSchedulingStrategy(stageExecutionDescriptor, node.getId()),
+                    warningCollector,
+                    dynamicFilter);
+            Duration waitTimeout = getDistributedDynamicFilteringWaitTimeout(session);
+
+            SplitSource splitSource = new DynamicFilterAwareSplitSource(
+                    table,
+                    splitSourceSupplier,
+                    () -> dynamicFilterService.getCollectedFuture(queryId, placeholders, waitTimeout));
+
+            splitSources.add(splitSource);
+
+            return ImmutableMap.of(node.getId(), splitSource);
+        }
+
         @Override
         public Map<PlanNodeId, SplitSource> visitSample(SampleNode node, Context context)
         {
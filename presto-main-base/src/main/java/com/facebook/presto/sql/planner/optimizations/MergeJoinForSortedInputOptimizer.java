@@ -22,6 +22,7 @@ import com.facebook.presto.spi.plan.JoinNode;
 import com.facebook.presto.spi.plan.MergeJoinNode;
 import com.facebook.presto.spi.plan.Ordering;
 import com.facebook.presto.spi.plan.OrderingScheme;
+import com.facebook.presto.spi.plan.Partitioning;
 import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.plan.PlanNodeIdAllocator;
 import com.facebook.presto.spi.plan.SortNode;
@@ -65,7 +66,7 @@ public class MergeJoinForSortedInputOptimizer
     @Override
     public boolean isEnabled(Session session)
     {
-        return isEnabledForTesting || nativeExecution && (isGroupedExecutionEnabled(session) || prestoOnSpark) && preferMergeJoinForSortedInputs(session) && !isSingleNodeExecutionEnabled(session);
+        return isEnabledForTesting || (isGroupedExecutionEnabled(session) || prestoOnSpark) && preferMergeJoinForSortedInputs(session) && !isSingleNodeExecutionEnabled(session);
     }
 
     @Override
@@ -115,7 +116,9 @@ public class MergeJoinForSortedInputOptimizer
             boolean leftInputSorted = isPlanOutputSortedByColumns(rewrittenLeft, node.getCriteria().stream().map(EquiJoinClause::getLeft).collect(toImmutableList()));
             boolean rightInputSorted = isPlanOutputSortedByColumns(rewrittenRight, node.getCriteria().stream().map(EquiJoinClause::getRight).collect(toImmutableList()));
 
-            if ((!leftInputSorted && !rightInputSorted) || (!prestoOnSpark && (!leftInputSorted || !rightInputSorted))) {
+            // Java workers run a partial sort once per driver, so they only merge inputs that are already sorted
+            boolean canSortInput = prestoOnSpark && nativeExecution;
+            if ((!leftInputSorted && !rightInputSorted) || (!canSortInput && (!leftInputSorted || !rightInputSorted))) {
                 return replaceChildren(node, ImmutableList.of(rewrittenLeft, rewrittenRight));
             }
 
@@ -164,6 +167,9 @@ public class MergeJoinForSortedInputOptimizer
             if (!verifyStreamProperties(properties, columns)) {
                 return false;
             }
+            if (!nativeExecution && !isSingleSplitPerLifespan(plan, properties)) {
+                return false;
+            }
 
             return !LocalProperties.match(properties.getLocalProperties(), LocalProperties.sorted(columns, ASC_NULLS_FIRST)).get(0).isPresent();
         }
@@ -176,5 +182,16 @@ public class MergeJoinForSortedInputOptimizer
             List<VariableReferenceExpression> partitioningColumns = streamProperties.getPartitioningColumns().get();
             return partitioningColumns.size() <= joinColumns.size() && joinColumns.containsAll(partitioningColumns);
         }
+
+        /**
+         * Java workers run a driver per split, while the merge join reads a single sorted stream from each input.
+         * A lifespan only holds one split of the input when its streams are partitioned on the bucketing of the table:
+         * streams also partitioned on, for example, partition columns put the splits of several partitions in one bucket.
+         */
+        private boolean isSingleSplitPerLifespan(PlanNode plan, StreamPropertyDerivations.StreamProperties streamProperties)
+        {
+            Optional<Partitioning> nodePartitioning = PropertyDerivations.derivePropertiesRecursively(plan, metadata, session).getNodePartitioning();
+            return nodePartitioning.isPresent() && nodePartitioning.get().getVariableReferences().containsAll(streamProperties.getPartitioningColumns().get());
+        }
     }
 }
@@ -39,18 +39,26 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import static com.facebook.presto.SystemSessionProperties.getJoinHotKeyHashes;
 import static com.facebook.presto.SystemSessionProperties.getJoinShardCount;
 import static com.facebook.presto.SystemSessionProperties.getShardedJoinStrategy;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.spi.plan.JoinType.FULL;
 import static com.facebook.presto.spi.plan.JoinType.RIGHT;
+import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.IF;
+import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.IN;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.ShardedJoinStrategy.ALWAYS;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.ShardedJoinStrategy.COST_BASED;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.ShardedJoinStrategy.DISABLED;
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.ShardedJoinStrategy.HOT_KEYS;
+import static com.facebook.presto.sql.planner.PlannerUtils.getHashExpression;
 import static com.facebook.presto.sql.planner.PlannerUtils.isBroadcastJoin;
 import static com.facebook.presto.sql.relational.Expressions.call;
 import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.specialForm;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -73,6 +81,8 @@ import static java.util.Objects.requireNonNull;
  *             Project(seq:=sequence(0, NumShards - 1))
  *                - T
  * </pre>
+ * With the {@code HOT_KEYS} strategy, only the rows whose join key hash is in {@code join_hot_key_hashes} are sharded:
+ * the other rows get shard 0 on both sides, so only the build rows of the hot keys are replicated.
  */
 
 public class ShardJoins
@@ -149,12 +159,16 @@ public class ShardJoins
                         "random",
                         BIGINT,
                         constant(numShards, BIGINT));
+                Optional<RowExpression> leftHotKey = getHotKeyPredicate(joinNode.getCriteria().stream().map(EquiJoinClause::getLeft).collect(toImmutableList()));
+                if (leftHotKey.isPresent()) {
+                    randomNumber = specialForm(IF, BIGINT, leftHotKey.get(), randomNumber, constant((long) 0, BIGINT));
+                }
                 VariableReferenceExpression leftShardVariable = planVariableAllocator.newVariable("shard", BIGINT);
                 VariableReferenceExpression rightShardVariable = planVariableAllocator.newVariable("shard", BIGINT);
 
                 PlanNode newLeftChild = PlannerUtils.addProjections(joinNode.getLeft(), planNodeIdAllocator, planVariableAllocator, ImmutableList.of(randomNumber), ImmutableList.of(leftShardVariable));
 
-                PlanNode newRightChild = shardInput(numShards, joinNode.getRight(), rightShardVariable);
+                PlanNode newRightChild = shardInput(numShards, joinNode.getRight(), getHotKeyPredicate(joinNode.getCriteria().stream().map(EquiJoinClause::getRight).collect(toImmutableList())), rightShardVariable);
                 EquiJoinClause shardEquality = new EquiJoinClause(leftShardVariable, rightShardVariable);
                 List<EquiJoinClause> joinCriteria = new ArrayList<>();
                 joinCriteria.addAll(joinNode.getCriteria());
@@ -185,7 +199,8 @@ public class ShardJoins
         {
             return joinNode.getType() != FULL && joinNode.getType() != RIGHT && !isBroadcastJoin(joinNode) &&
                     (getShardedJoinStrategy(session).equals(ALWAYS) ||
-                            getShardedJoinStrategy(session).equals(COST_BASED) && shouldShardJoin(joinNode));
+                            getShardedJoinStrategy(session).equals(COST_BASED) && shouldShardJoin(joinNode) ||
+                            getShardedJoinStrategy(session).equals(HOT_KEYS) && !joinNode.getCriteria().isEmpty() && !getJoinHotKeyHashes(session).isEmpty());
         }
 
         private boolean shouldShardJoin(JoinNode joinNode)
@@ -194,16 +209,38 @@ public class ShardJoins
             return false;
         }
 
-        private PlanNode shardInput(long numShards, PlanNode source, VariableReferenceExpression shardVariable)
+        /**
+         * With the {@code HOT_KEYS} strategy, returns whether the hash of the join keys is one of the hot key hashes.
+         * This is the hash the partitioned output reports heavy hitters with, so the hashes it reports can be passed
+         * back in {@code join_hot_key_hashes}.
+         */
+        private Optional<RowExpression> getHotKeyPredicate(List<VariableReferenceExpression> joinVariables)
+        {
+            if (!getShardedJoinStrategy(session).equals(HOT_KEYS)) {
+                return Optional.empty();
+            }
+            ImmutableList.Builder<RowExpression> arguments = ImmutableList.builder();
+            arguments.add(getHashExpression(functionAndTypeManager, joinVariables).get());
+            for (long hotKeyHash : getJoinHotKeyHashes(session)) {
+                arguments.add(constant(hotKeyHash, BIGINT));
+            }
+            return Optional.of(specialForm(IN, BOOLEAN, arguments.build()));
+        }
+
+        private PlanNode shardInput(long numShards, PlanNode source, Optional<RowExpression> hotKey, VariableReferenceExpression shardVariable)
         {
             checkState(numShards > 1);
 
+            RowExpression lastShard = constant((long) numShards - 1, BIGINT);
+            if (hotKey.isPresent()) {
+                lastShard = specialForm(IF, BIGINT, hotKey.get(), lastShard, constant((long) 0, BIGINT));
+            }
             RowExpression sequenceExpression = call(
                     functionAndTypeManager,
                     "sequence",
                     new ArrayType(BIGINT),
                     constant((long) 0, BIGINT),
-                    constant((long) numShards - 1, BIGINT));
+                    lastShard);
 
             VariableReferenceExpression sequenceVariable = planVariableAllocator.newVariable(sequenceExpression);
             PlanNode projectSequence = PlannerUtils.addProjections(source, planNodeIdAllocator, planVariableAllocator, ImmutableList.of(sequenceExpression), ImmutableList.of(sequenceVariable));
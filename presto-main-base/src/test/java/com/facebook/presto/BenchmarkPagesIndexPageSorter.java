@@ -18,7 +18,10 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.PageBuilderStatus;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.DriverYieldSignal;
 import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.operator.PagesIndexSortExecutor;
+import com.facebook.presto.operator.WorkProcessor;
 import com.facebook.presto.spi.PageSorter;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
@@ -28,6 +31,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
@@ -39,11 +43,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static java.util.Collections.nCopies;
 
 @State(Scope.Thread)
@@ -56,11 +62,32 @@ public class BenchmarkPagesIndexPageSorter
     @Benchmark
     public int runBenchmark(BenchmarkData data)
     {
-        PageSorter pageSorter = new PagesIndexPageSorter(new PagesIndex.TestingFactory(false));
+        PageSorter pageSorter = new PagesIndexPageSorter(new PagesIndex.TestingFactory(false), data.normalizedKeys);
         long[] addresses = pageSorter.sort(data.types, data.pages, data.sortChannels, nCopies(data.sortChannels.size(), ASC_NULLS_FIRST), 10_000);
         return addresses.length;
     }
 
+    @Benchmark
+    public int runParallelBenchmark(ParallelBenchmarkData data)
+    {
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(data.types, 10_000);
+        data.pages.forEach(pagesIndex::addPage);
+        WorkProcessor<PagesIndex> sort = pagesIndex.sortInParallel(
+                data.sortChannels,
+                nCopies(data.sortChannels.size(), ASC_NULLS_FIRST),
+                data.sortParallelism,
+                data.normalizedKeys,
+                data.sortExecutor,
+                new DriverYieldSignal(),
+                newSimpleAggregatedMemoryContext());
+        while (!sort.process()) {
+            if (sort.isBlocked()) {
+                getFutureValue(sort.getBlockedFuture());
+            }
+        }
+        return sort.getResult().getPositionCount();
+    }
+
     private static List<Page> createPages(int pageCount, int channelCount, Type type)
     {
         int positionCount = PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES / (channelCount * 8);
@@ -99,7 +126,10 @@ public class BenchmarkPagesIndexPageSorter
         @Param({"BIGINT", "VARCHAR", "DOUBLE", "BOOLEAN"})
         private String sortChannelType;
 
-        private List<Page> pages;
+        @Param({"false", "true"})
+        boolean normalizedKeys;
+
+        List<Page> pages;
         private final int maxPages = 500;
 
         public List<Type> types;
@@ -136,6 +166,28 @@ public class BenchmarkPagesIndexPageSorter
         }
     }
 
+    @State(Scope.Thread)
+    public static class ParallelBenchmarkData
+            extends BenchmarkData
+    {
+        @Param({"1", "2", "4", "8", "16"})
+        private int sortParallelism;
+
+        private PagesIndexSortExecutor sortExecutor;
+
+        @Setup
+        public void setupSortExecutor()
+        {
+            sortExecutor = new PagesIndexSortExecutor(sortParallelism);
+        }
+
+        @TearDown
+        public void tearDownSortExecutor()
+        {
+            sortExecutor.destroy();
+        }
+    }
+
     public static void main(String[] args)
             throws RunnerException
     {
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.common.predicate.Domain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.Test;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.execution.TaskDynamicFilters.INITIAL_VERSION;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestTaskDynamicFilters
+{
+    @Test
+    public void testBuildDomains()
+    {
+        TaskDynamicFilters dynamicFilters = new TaskDynamicFilters();
+        assertEquals(dynamicFilters.getBuildSummary().getVersion(), INITIAL_VERSION);
+        assertEquals(dynamicFilters.getBuildSummary().getDomains(), ImmutableMap.of());
+
+        ListenableFuture<DynamicFilterSummary> future = dynamicFilters.getBuildSummary(INITIAL_VERSION);
+        assertFalse(future.isDone());
+
+        dynamicFilters.addBuildDomains(ImmutableMap.of("df1", Domain.singleValue(BIGINT, 1L)));
+        assertTrue(future.isDone());
+        DynamicFilterSummary summary = getFutureValue(future);
+        assertEquals(summary.getVersion(), INITIAL_VERSION + 1);
+        assertEquals(summary.getDomains(), ImmutableMap.of("df1", Domain.singleValue(BIGINT, 1L)));
+
+        // domains of the same dynamic filter from different drivers are merged
+        dynamicFilters.addBuildDomains(ImmutableMap.of("df1", Domain.singleValue(BIGINT, 2L), "df2", Domain.none(BIGINT)));
+        summary = getFutureValue(dynamicFilters.getBuildSummary(summary.getVersion()));
+        assertEquals(summary.getVersion(), INITIAL_VERSION + 2);
+        assertEquals(summary.getDomains(), ImmutableMap.of(
+                "df1", Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L)),
+                "df2", Domain.none(BIGINT)));
+
+        // an up to date caller waits for the next change
+        assertFalse(dynamicFilters.getBuildSummary(summary.getVersion()).isDone());
+        // an outdated caller gets the current domains right away
+        assertTrue(dynamicFilters.getBuildSummary(INITIAL_VERSION).isDone());
+    }
+
+    @Test
+    public void testRemoteDomains()
+    {
+        TaskDynamicFilters dynamicFilters = new TaskDynamicFilters();
+        assertEquals(dynamicFilters.getRemoteDomains(), ImmutableMap.of());
+
+        dynamicFilters.addRemoteDomains(ImmutableMap.of("df1", Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L))));
+        assertEquals(dynamicFilters.getRemoteDomains(), ImmutableMap.of("df1", Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L))));
+
+        // domains of the same dynamic filter are intersected
+        dynamicFilters.addRemoteDomains(ImmutableMap.of("df1", Domain.multipleValues(BIGINT, ImmutableList.of(2L, 3L)), "df2", Domain.singleValue(BIGINT, 5L)));
+        assertEquals(dynamicFilters.getRemoteDomains(), ImmutableMap.of(
+                "df1", Domain.singleValue(BIGINT, 2L),
+                "df2", Domain.singleValue(BIGINT, 5L)));
+    }
+}
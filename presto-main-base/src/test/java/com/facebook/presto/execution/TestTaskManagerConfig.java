@@ -68,7 +68,9 @@ public class TestTaskManagerConfig
                 .setHttpTimeoutThreads(3)
                 .setTaskNotificationThreads(5)
                 .setTaskYieldThreads(3)
+                .setSortThreads(Runtime.getRuntime().availableProcessors())
                 .setLevelTimeMultiplier(new BigDecimal("2"))
+                .setWorkStealingSplitQueueEnabled(false)
                 .setStatisticsCpuTimerEnabled(true)
                 .setLegacyLifespanCompletionCondition(false)
                 .setTaskPriorityTracking(TASK_FAIR)
@@ -118,7 +120,9 @@ public class TestTaskManagerConfig
                 .put("task.http-timeout-threads", "10")
                 .put("task.task-notification-threads", "13")
                 .put("task.task-yield-threads", "8")
+                .put("task.sort-threads", "5")
                 .put("task.level-time-multiplier", "2.1")
+                .put("task.work-stealing-split-queue-enabled", "true")
                 .put("task.statistics-cpu-timer-enabled", "false")
                 .put("task.legacy-lifespan-completion-condition", "true")
                 .put("task.task-priority-tracking", "QUERY_FAIR")
@@ -165,7 +169,9 @@ public class TestTaskManagerConfig
                 .setHttpTimeoutThreads(10)
                 .setTaskNotificationThreads(13)
                 .setTaskYieldThreads(8)
+                .setSortThreads(5)
                 .setLevelTimeMultiplier(new BigDecimal("2.1"))
+                .setWorkStealingSplitQueueEnabled(true)
                 .setStatisticsCpuTimerEnabled(false)
                 .setLegacyLifespanCompletionCondition(true)
                 .setTaskPriorityTracking(QUERY_FAIR)
@@ -0,0 +1,231 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.CompressionCodec;
+import com.facebook.presto.Session;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.BlockEncodingManager;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.facebook.presto.SystemSessionProperties.EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.NATIVE_EXECUTION_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.isExchangeAdaptiveCompressionEnabled;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_LZ4_PAGES;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_SAVED_BYTES;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES;
+import static com.facebook.presto.common.RuntimeMetricName.ADAPTIVE_COMPRESSION_ZSTD_PAGES;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.execution.buffer.AdaptivePageCompressor.SAMPLE_INTERVAL;
+import static com.facebook.presto.execution.buffer.AdaptivePageCompressor.STORED_CODEC;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestAdaptivePageCompressor
+{
+    // about 0.06 nanoseconds per byte of the 8KB test pages, faster than the network
+    private static final long FAST_COMPRESSION_NANOS = 500;
+    // about 2.5 nanoseconds per byte of the 8KB test pages, and 20 nanoseconds per byte of 1KB, slower than an idle network
+    private static final long SLOW_COMPRESSION_NANOS = 20_000;
+
+    @Test
+    public void testIdleOutputBufferSkipsSlowCompression()
+    {
+        RuntimeStats runtimeStats = new RuntimeStats();
+        CountingTicker ticker = new CountingTicker(SLOW_COMPRESSION_NANOS);
+        PagesSerde serde = createPagesSerde(0, runtimeStats, ticker);
+        Page page = createCompressiblePage();
+
+        // both codecs are measured on the first pages
+        assertTrue(COMPRESSED.isSet(serde.serialize(page).getPageCodecMarkers()));
+        assertTrue(COMPRESSED.isSet(serde.serialize(page).getPageCodecMarkers()));
+        assertEquals(ticker.getCompressions(), 2);
+
+        // with an empty output buffer the network keeps up, and compressing a byte takes longer than sending it
+        for (int i = 0; i < SAMPLE_INTERVAL - 1; i++) {
+            SerializedPage serializedPage = serde.serialize(page);
+            assertFalse(COMPRESSED.isSet(serializedPage.getPageCodecMarkers()));
+            assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(serializedPage), page);
+        }
+        assertEquals(ticker.getCompressions(), 2);
+        assertEquals(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES).getSum(), SAMPLE_INTERVAL - 1);
+
+        // until the next sample
+        assertTrue(COMPRESSED.isSet(serde.serialize(page).getPageCodecMarkers()));
+        assertEquals(ticker.getCompressions(), 3);
+    }
+
+    @Test
+    public void testIdleOutputBufferCompressesWithFastCodecs()
+    {
+        RuntimeStats runtimeStats = new RuntimeStats();
+        PagesSerde serde = createPagesSerde(0, runtimeStats, new CountingTicker(FAST_COMPRESSION_NANOS));
+        Page page = createCompressiblePage();
+
+        // sending is never free, so a codec faster than the network is worth it even when the output buffer is empty
+        for (int i = 0; i < 2 * SAMPLE_INTERVAL; i++) {
+            assertTrue(COMPRESSED.isSet(serde.serialize(page).getPageCodecMarkers()));
+        }
+        assertNull(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES));
+    }
+
+    @Test
+    public void testFullOutputBufferCompresses()
+    {
+        RuntimeStats runtimeStats = new RuntimeStats();
+        PagesSerde serde = createPagesSerde(1, runtimeStats, new CountingTicker(SLOW_COMPRESSION_NANOS));
+        Page page = createCompressiblePage();
+
+        for (int i = 0; i < 2 * SAMPLE_INTERVAL; i++) {
+            SerializedPage serializedPage = serde.serialize(page);
+            assertTrue(COMPRESSED.isSet(serializedPage.getPageCodecMarkers()));
+            assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(serializedPage), page);
+        }
+        assertEquals(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_LZ4_PAGES).getSum() + runtimeStats.getMetric(ADAPTIVE_COMPRESSION_ZSTD_PAGES).getSum(), 2 * SAMPLE_INTERVAL);
+        assertTrue(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_SAVED_BYTES).getSum() > 0);
+        assertNull(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES));
+
+        // a single decompressor handles pages of both codecs
+        PagesSerde deserializer = new PagesSerdeFactory(new BlockEncodingManager(), CompressionCodec.NONE, false, true).createPagesSerde();
+        assertPageEquals(ImmutableList.of(BIGINT), deserializer.deserialize(serde.serialize(page)), page);
+    }
+
+    @Test
+    public void testIncompressiblePagesAreOnlySampled()
+    {
+        RuntimeStats runtimeStats = new RuntimeStats();
+        CountingTicker ticker = new CountingTicker(FAST_COMPRESSION_NANOS);
+        PagesSerde serde = createPagesSerde(1, runtimeStats, ticker);
+        Page page = createIncompressiblePage();
+
+        for (int i = 0; i < SAMPLE_INTERVAL + 2; i++) {
+            SerializedPage serializedPage = serde.serialize(page);
+            assertFalse(COMPRESSED.isSet(serializedPage.getPageCodecMarkers()));
+            assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(serializedPage), page);
+        }
+        // the measurements and a single sample
+        assertEquals(ticker.getCompressions(), 3);
+        assertEquals(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_UNCOMPRESSED_PAGES).getSum(), SAMPLE_INTERVAL + 2);
+        assertNull(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_LZ4_PAGES));
+        assertNull(runtimeStats.getMetric(ADAPTIVE_COMPRESSION_ZSTD_PAGES));
+    }
+
+    @Test
+    public void testByteBufferStoresSkippedPages()
+    {
+        AdaptivePageCompressor compressor = new AdaptivePageCompressor(() -> 0, new RuntimeStats(), new CountingTicker(SLOW_COMPRESSION_NANOS));
+        AdaptivePageDecompressor decompressor = new AdaptivePageDecompressor();
+        byte[] data = new byte[1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 8);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            ByteBuffer compressed = ByteBuffer.allocate(compressor.maxCompressedLength(data.length));
+            compressor.compress(ByteBuffer.wrap(data), compressed);
+            compressed.flip();
+            // the codecs are measured first, then the page is cheapest to send as is
+            assertEquals(compressed.get(0) == STORED_CODEC, i == 2);
+
+            ByteBuffer decompressed = ByteBuffer.allocate(data.length);
+            decompressor.decompress(compressed, decompressed);
+            assertEquals(decompressed.array(), data);
+        }
+    }
+
+    @Test
+    public void testDisabledWithNativeExecution()
+    {
+        Session session = testSessionBuilder()
+                .setSystemProperty(EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED, "true")
+                .build();
+        assertTrue(isExchangeAdaptiveCompressionEnabled(session));
+
+        // native workers exchange pages with the codec of exchange_compression_codec
+        Session nativeSession = Session.builder(session)
+                .setSystemProperty(NATIVE_EXECUTION_ENABLED, "true")
+                .build();
+        assertFalse(isExchangeAdaptiveCompressionEnabled(nativeSession));
+    }
+
+    private static PagesSerde createPagesSerde(double utilization, RuntimeStats runtimeStats, Ticker ticker)
+    {
+        return new PagesSerde(
+                new BlockEncodingManager(),
+                Optional.of(new AdaptivePageCompressor(() -> utilization, runtimeStats, ticker)),
+                Optional.of(new AdaptivePageDecompressor()),
+                Optional.empty());
+    }
+
+    private static Page createCompressiblePage()
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 1024);
+        for (int i = 0; i < 1024; i++) {
+            BIGINT.writeLong(blockBuilder, i % 8);
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    private static Page createIncompressiblePage()
+    {
+        Random random = new Random(42);
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 1024);
+        for (int i = 0; i < 1024; i++) {
+            BIGINT.writeLong(blockBuilder, random.nextLong());
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    /**
+     * Ticker where every compression takes the same time.
+     */
+    private static class CountingTicker
+            extends Ticker
+    {
+        private final long nanosPerCompression;
+        private long reads;
+
+        public CountingTicker(long nanosPerCompression)
+        {
+            this.nanosPerCompression = nanosPerCompression;
+        }
+
+        @Override
+        public long read()
+        {
+            reads++;
+            return reads * nanosPerCompression;
+        }
+
+        public long getCompressions()
+        {
+            return reads / 2;
+        }
+    }
+}
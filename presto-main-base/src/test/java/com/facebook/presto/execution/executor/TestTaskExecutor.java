@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.execution.executor;
 
+import com.facebook.airlift.stats.CounterStat;
+import com.facebook.airlift.stats.TimeStat;
 import com.facebook.airlift.testing.TestingTicker;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.execution.SplitRunner;
@@ -21,14 +23,19 @@ import com.facebook.presto.server.ServerConfig;
 import com.facebook.presto.version.EmbedVersion;
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +49,7 @@ import static com.facebook.presto.execution.TaskManagerConfig.TaskPriorityTracki
 import static com.facebook.presto.execution.executor.MultilevelSplitQueue.LEVEL_CONTRIBUTION_CAP;
 import static com.facebook.presto.execution.executor.MultilevelSplitQueue.LEVEL_THRESHOLD_SECONDS;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -456,6 +464,100 @@ public class TestTaskExecutor
         }
     }
 
+    @Test(timeOut = 30_000)
+    public void testWorkStealingTasksComplete()
+            throws Exception
+    {
+        MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2, true, 4);
+        TestingTicker ticker = new TestingTicker();
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8, 3, 4, TASK_FAIR, splitQueue, ticker);
+        taskExecutor.start();
+
+        try {
+            TaskHandle taskHandle = taskExecutor.addTask(new TaskId("test", 0, 0, 0, 0), () -> 0, 10, new Duration(1, MILLISECONDS), OptionalInt.empty());
+
+            ImmutableList.Builder<SplitRunner> splits = ImmutableList.builder();
+            for (int i = 0; i < 32; i++) {
+                splits.add(new TestingJob(ticker, new Phaser(), new Phaser(), new Phaser(), 10, 1));
+            }
+            List<ListenableFuture<?>> futures = taskExecutor.enqueueSplits(taskHandle, false, splits.build());
+            Futures.allAsList(futures).get(10, SECONDS);
+
+            assertEquals(splitQueue.size(), 0);
+            assertGreaterThan(splitQueue.getLocalPolls().getTotalCount() + splitQueue.getStolenSplits().getTotalCount(), 0L);
+        }
+        finally {
+            taskExecutor.stop();
+        }
+    }
+
+    @Test
+    public void testWorkStealingSplitQueue()
+            throws Exception
+    {
+        MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2, true, 4);
+        TaskHandle taskHandle = new TaskHandle(new TaskId("test", 0, 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty());
+
+        // splits offered by non runner threads are spread over all runner threads
+        List<PrioritizedSplitRunner> splits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            PrioritizedSplitRunner split = createSplit(taskHandle);
+            splits.add(split);
+            splitQueue.offer(split);
+        }
+        assertEquals(splitQueue.size(), 8);
+
+        splitQueue.remove(splits.get(0));
+        assertEquals(splitQueue.size(), 7);
+
+        // a single runner thread drains its own deque and steals the rest
+        Set<PrioritizedSplitRunner> taken = new HashSet<>();
+        for (int i = 0; i < 7; i++) {
+            taken.add(splitQueue.take());
+        }
+        assertEquals(taken, ImmutableSet.copyOf(splits.subList(1, 8)));
+        assertEquals(splitQueue.size(), 0);
+        assertEquals(splitQueue.getLocalPolls().getTotalCount(), 1);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 6);
+        assertEquals(splitQueue.getSelectedCountLevel0().getTotalCount(), 7);
+
+        // splits re-queued by a runner thread stay local to it
+        splitQueue.offer(splits.get(1));
+        assertEquals(splitQueue.take(), splits.get(1));
+        assertEquals(splitQueue.getLocalPolls().getTotalCount(), 2);
+    }
+
+    @Test
+    public void testWorkStealingRunnerShards()
+            throws Exception
+    {
+        MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2, true, 4);
+        TaskHandle taskHandle = new TaskHandle(new TaskId("test", 0, 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty());
+
+        // offers from non runner threads do not advance the shard assignment of runner threads
+        for (int i = 0; i < 3; i++) {
+            splitQueue.offer(createSplit(taskHandle));
+        }
+
+        // the first runner thread owns the first shard, so its first split is local
+        splitQueue.take();
+        assertEquals(splitQueue.getLocalPolls().getTotalCount(), 1);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 0);
+
+        // a second runner thread owns the second shard
+        ExecutorService executor = newSingleThreadExecutor();
+        try {
+            executor.submit(splitQueue::take).get(10, SECONDS);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(splitQueue.getLocalPolls().getTotalCount(), 2);
+        assertEquals(splitQueue.getStolenSplits().getTotalCount(), 0);
+        assertEquals(splitQueue.getPollRetries().getTotalCount(), 0);
+        assertEquals(splitQueue.getLockContention().getTotalCount(), 0);
+    }
+
     @Test
     public void testTaskExecutorRunawaySplitInterrupt()
             throws Exception
@@ -504,6 +606,18 @@ public class TestTaskExecutor
         }
     }
 
+    private static PrioritizedSplitRunner createSplit(TaskHandle taskHandle)
+    {
+        return new PrioritizedSplitRunner(
+                taskHandle,
+                new MockSplitRunner(),
+                Ticker.systemTicker(),
+                new CounterStat(),
+                new CounterStat(),
+                new TimeStat(),
+                new TimeStat());
+    }
+
     private static void waitUntilSplitsStart(List<TestingJob> splits)
     {
         while (splits.stream().anyMatch(split -> !split.isStarted())) {
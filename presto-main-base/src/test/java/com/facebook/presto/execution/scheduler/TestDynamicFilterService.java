@@ -0,0 +1,338 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.airlift.testing.TestingTicker;
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.client.NodeVersion;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.cost.StatsAndCosts;
+import com.facebook.presto.execution.DynamicFilterSummary;
+import com.facebook.presto.execution.MockRemoteTaskFactory;
+import com.facebook.presto.execution.NodeTaskMap;
+import com.facebook.presto.execution.RemoteTask;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
+import com.facebook.presto.metadata.InternalNode;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.plan.EquiJoinClause;
+import com.facebook.presto.spi.plan.FilterNode;
+import com.facebook.presto.spi.plan.JoinNode;
+import com.facebook.presto.spi.plan.Partitioning;
+import com.facebook.presto.spi.plan.PartitioningHandle;
+import com.facebook.presto.spi.plan.PartitioningScheme;
+import com.facebook.presto.spi.plan.PlanFragmentId;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.plan.StageExecutionDescriptor;
+import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.SubPlan;
+import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.facebook.presto.testing.TestingHandle;
+import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
+import com.facebook.presto.testing.TestingMetadata.TestingTableHandle;
+import com.facebook.presto.testing.TestingTransactionHandle;
+import com.facebook.presto.util.FinalizerService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.execution.TaskDynamicFilters.INITIAL_VERSION;
+import static com.facebook.presto.expressions.DynamicFilters.extractDynamicFilters;
+import static com.facebook.presto.metadata.FunctionAndTypeManager.createTestFunctionAndTypeManager;
+import static com.facebook.presto.spi.plan.JoinType.INNER;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.optimizations.PredicatePushDown.createDynamicFilterExpression;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestDynamicFilterService
+{
+    private static final QueryId QUERY_ID = new QueryId("query");
+    private static final PlanFragmentId PROBE_FRAGMENT_ID = new PlanFragmentId(1);
+    private static final PlanFragmentId JOIN_FRAGMENT_ID = new PlanFragmentId(0);
+    private static final String FILTER_ID = "df";
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private FinalizerService finalizerService;
+    private MockRemoteTaskFactory remoteTaskFactory;
+    private NodeTaskMap nodeTaskMap;
+    private int nextTaskId;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduled-executor-%s"));
+        finalizerService = new FinalizerService();
+        finalizerService.start();
+        remoteTaskFactory = new MockRemoteTaskFactory(executor, scheduledExecutor);
+        nodeTaskMap = new NodeTaskMap(finalizerService);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+        finalizerService.destroy();
+    }
+
+    @Test
+    public void testCollectDynamicFilters()
+    {
+        TestingDynamicFilterClient client = new TestingDynamicFilterClient();
+        DynamicFilterService service = new DynamicFilterService(client, scheduledExecutor);
+        SubPlan plan = createPlan();
+        service.registerQuery(QUERY_ID, plan);
+        assertTrue(service.isDistributedDynamicFilter(QUERY_ID, FILTER_ID));
+        assertFalse(service.isDistributedDynamicFilter(QUERY_ID, "unknown"));
+
+        ListenableFuture<?> collected = service.getCollectedFuture(QUERY_ID, getPlaceholders(plan), new Duration(1, MINUTES));
+        assertFalse(collected.isDone());
+
+        RemoteTask probeTask = createTask();
+        service.addTasks(QUERY_ID, PROBE_FRAGMENT_ID, ImmutableList.of(probeTask));
+        assertEquals(client.getSentDomains(probeTask), ImmutableList.of());
+
+        RemoteTask buildTask1 = createTask();
+        RemoteTask buildTask2 = createTask();
+        service.addTasks(QUERY_ID, JOIN_FRAGMENT_ID, ImmutableList.of(buildTask1, buildTask2));
+        assertEquals(client.getRequests(buildTask1).size(), 1);
+        assertEquals(client.getRequests(buildTask2).size(), 1);
+
+        client.getRequests(buildTask1).get(0).set(new DynamicFilterSummary(INITIAL_VERSION + 1, ImmutableMap.of(FILTER_ID, Domain.singleValue(BIGINT, 1L))));
+        // the task reported all its dynamic filters
+        assertEquals(client.getRequests(buildTask1).size(), 1);
+        service.noMoreTasks(QUERY_ID, JOIN_FRAGMENT_ID);
+        // not all tasks reported the dynamic filter yet
+        assertFalse(collected.isDone());
+        assertEquals(service.getCollectedDomains(QUERY_ID), ImmutableMap.of());
+
+        // a task which did not collect the dynamic filter yet is polled again
+        client.getRequests(buildTask2).get(0).set(new DynamicFilterSummary(INITIAL_VERSION, ImmutableMap.of()));
+        assertEquals(client.getRequests(buildTask2).size(), 2);
+        client.getRequests(buildTask2).get(1).set(new DynamicFilterSummary(INITIAL_VERSION + 1, ImmutableMap.of(FILTER_ID, Domain.singleValue(BIGINT, 2L))));
+
+        Domain expected = Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L));
+        assertTrue(collected.isDone());
+        assertEquals(service.getCollectedDomains(QUERY_ID), ImmutableMap.of(FILTER_ID, expected));
+        assertEquals(client.getSentDomains(probeTask), ImmutableList.of(ImmutableMap.of(FILTER_ID, expected)));
+
+        // tasks created later get the collected domains right away
+        RemoteTask lateProbeTask = createTask();
+        service.addTasks(QUERY_ID, PROBE_FRAGMENT_ID, ImmutableList.of(lateProbeTask));
+        assertEquals(client.getSentDomains(lateProbeTask), ImmutableList.of(ImmutableMap.of(FILTER_ID, expected)));
+
+        service.removeQuery(QUERY_ID);
+        assertFalse(service.isDistributedDynamicFilter(QUERY_ID, FILTER_ID));
+        assertEquals(service.getCollectedDomains(QUERY_ID), ImmutableMap.of());
+    }
+
+    @Test
+    public void testWaitForDynamicFilters()
+            throws Exception
+    {
+        DynamicFilterService service = new DynamicFilterService(new TestingDynamicFilterClient(), scheduledExecutor);
+        SubPlan plan = createPlan();
+        service.registerQuery(QUERY_ID, plan);
+
+        // the wait is bounded
+        ListenableFuture<?> timedOut = service.getCollectedFuture(QUERY_ID, getPlaceholders(plan), new Duration(10, MILLISECONDS));
+        timedOut.get();
+
+        // removing the query releases the waiting scans
+        ListenableFuture<?> removed = service.getCollectedFuture(QUERY_ID, getPlaceholders(plan), new Duration(1, MINUTES));
+        assertFalse(removed.isDone());
+        service.removeQuery(QUERY_ID);
+        removed.get();
+
+        // queries without dynamic filters do not wait
+        assertTrue(service.getCollectedFuture(new QueryId("unknown"), getPlaceholders(plan), new Duration(1, MINUTES)).isDone());
+    }
+
+    @Test
+    public void testFetchFailuresBackOffAndGiveUp()
+            throws Exception
+    {
+        TestingDynamicFilterClient client = new TestingDynamicFilterClient();
+        TestingTicker ticker = new TestingTicker();
+        DynamicFilterService service = new DynamicFilterService(client, scheduledExecutor, ticker);
+        service.registerQuery(QUERY_ID, createPlan());
+        RemoteTask buildTask = createTask();
+        service.addTasks(QUERY_ID, JOIN_FRAGMENT_ID, ImmutableList.of(buildTask));
+
+        // failed fetches are retried until the task fails for longer than the limit
+        for (int request = 0; request < 3; request++) {
+            waitForRequests(client, buildTask, request + 1);
+            ticker.increment(20, SECONDS);
+            client.getRequests(buildTask).get(request).setException(new RuntimeException("test failure"));
+        }
+
+        // longer than any backoff delay
+        Thread.sleep(1000);
+        assertEquals(client.getRequests(buildTask).size(), 3);
+        service.removeQuery(QUERY_ID);
+    }
+
+    private static void waitForRequests(TestingDynamicFilterClient client, RemoteTask task, int count)
+            throws InterruptedException
+    {
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (client.getRequests(task).size() < count) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for dynamic filter requests");
+            Thread.sleep(10);
+        }
+    }
+
+    private RemoteTask createTask()
+    {
+        InternalNode node = new InternalNode("node", URI.create("http://127.0.0.1/"), NodeVersion.UNKNOWN, false);
+        TaskId taskId = new TaskId("query", 0, 0, nextTaskId++, 0);
+        return remoteTaskFactory.createTableScanTask(taskId, node, ImmutableList.of(), nodeTaskMap.createTaskStatsTracker(node, taskId));
+    }
+
+    private static List<DynamicFilterPlaceholder> getPlaceholders(SubPlan plan)
+    {
+        FilterNode filter = (FilterNode) getOnlyChild(plan).getFragment().getRoot();
+        return extractDynamicFilters(filter.getPredicate()).getDynamicConjuncts();
+    }
+
+    private static SubPlan getOnlyChild(SubPlan plan)
+    {
+        return plan.getChildren().get(0);
+    }
+
+    private static SubPlan createPlan()
+    {
+        VariableReferenceExpression probe = new VariableReferenceExpression(Optional.empty(), "probe", BIGINT);
+        VariableReferenceExpression build = new VariableReferenceExpression(Optional.empty(), "build", BIGINT);
+
+        // probe-side table scan filtered by the dynamic filter
+        PlanNodeId scanId = new PlanNodeId("scan");
+        TableScanNode scan = new TableScanNode(
+                Optional.empty(),
+                scanId,
+                new TableHandle(new ConnectorId("test"), new TestingTableHandle(), TestingTransactionHandle.create(), Optional.of(TestingHandle.INSTANCE)),
+                ImmutableList.of(probe),
+                ImmutableMap.of(probe, new TestingColumnHandle("probe")),
+                TupleDomain.all(),
+                TupleDomain.all(),
+                Optional.empty());
+        RowExpression dynamicFilter = createDynamicFilterExpression(FILTER_ID, probe, createTestFunctionAndTypeManager());
+        FilterNode filter = new FilterNode(Optional.empty(), new PlanNodeId("filter"), scan, dynamicFilter);
+        PlanFragment probeFragment = createFragment(PROBE_FRAGMENT_ID, filter, probe, SOURCE_DISTRIBUTION, ImmutableList.of(scanId));
+
+        // partitioned join reading both sides from other stages
+        RemoteSourceNode probeSource = new RemoteSourceNode(Optional.empty(), new PlanNodeId("probe_source"), PROBE_FRAGMENT_ID, ImmutableList.of(probe), false, Optional.empty(), REPARTITION);
+        RemoteSourceNode buildSource = new RemoteSourceNode(Optional.empty(), new PlanNodeId("build_source"), new PlanFragmentId(2), ImmutableList.of(build), false, Optional.empty(), REPARTITION);
+        JoinNode join = new JoinNode(
+                Optional.empty(),
+                new PlanNodeId("join"),
+                INNER,
+                probeSource,
+                buildSource,
+                ImmutableList.of(new EquiJoinClause(probe, build)),
+                ImmutableList.of(probe, build),
+                Optional.empty(),
+                Optional.empty(),
+                Optional.empty(),
+                Optional.empty(),
+                ImmutableMap.of(FILTER_ID, build));
+        PlanFragment joinFragment = createFragment(JOIN_FRAGMENT_ID, join, probe, FIXED_HASH_DISTRIBUTION, ImmutableList.of());
+
+        return new SubPlan(joinFragment, ImmutableList.of(new SubPlan(probeFragment, ImmutableList.of())));
+    }
+
+    private static PlanFragment createFragment(PlanFragmentId id, PlanNode root, VariableReferenceExpression variable, PartitioningHandle partitioning, List<PlanNodeId> scanIds)
+    {
+        return new PlanFragment(
+                id,
+                root,
+                ImmutableSet.of(variable),
+                partitioning,
+                scanIds,
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), ImmutableList.of(variable)),
+                StageExecutionDescriptor.ungroupedExecution(),
+                false,
+                Optional.of(StatsAndCosts.empty()),
+                Optional.empty());
+    }
+
+    private static class TestingDynamicFilterClient
+            implements DynamicFilterClient
+    {
+        private final Map<URI, List<SettableFuture<DynamicFilterSummary>>> requests = new ConcurrentHashMap<>();
+        private final Map<URI, List<Map<String, Domain>>> sentDomains = new ConcurrentHashMap<>();
+
+        @Override
+        public ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(URI taskLocation, long currentVersion)
+        {
+            SettableFuture<DynamicFilterSummary> future = SettableFuture.create();
+            requests.computeIfAbsent(taskLocation, ignored -> new CopyOnWriteArrayList<>()).add(future);
+            return future;
+        }
+
+        @Override
+        public ListenableFuture<?> addRemoteDynamicFilters(URI taskLocation, Map<String, Domain> domains)
+        {
+            sentDomains.computeIfAbsent(taskLocation, ignored -> new ArrayList<>()).add(domains);
+            return SettableFuture.create();
+        }
+
+        public List<SettableFuture<DynamicFilterSummary>> getRequests(RemoteTask task)
+        {
+            return requests.getOrDefault(task.getTaskStatus().getSelf(), ImmutableList.of());
+        }
+
+        public List<Map<String, Domain>> getSentDomains(RemoteTask task)
+        {
+            return sentDomains.getOrDefault(task.getTaskStatus().getSelf(), ImmutableList.of());
+        }
+    }
+}
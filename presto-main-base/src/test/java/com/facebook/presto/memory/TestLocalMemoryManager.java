@@ -52,6 +52,20 @@ public class TestLocalMemoryManager
         assertEquals(localMemoryManager.getPools().size(), 2);
     }
 
+    @Test
+    public void testFragmentResultCacheMemoryTier()
+    {
+        NodeMemoryConfig config = new NodeMemoryConfig()
+                .setHeapHeadroom(new DataSize(10, GIGABYTE))
+                .setMaxQueryMemoryPerNode(new DataSize(20, GIGABYTE))
+                .setMaxQueryTotalMemoryPerNode(new DataSize(20, GIGABYTE));
+
+        LocalMemoryManager localMemoryManager = new LocalMemoryManager(config,
+                new DataSize(60, GIGABYTE).toBytes(),
+                new DataSize(5, GIGABYTE).toBytes());
+        assertEquals(localMemoryManager.getGeneralPool().getMaxBytes(), new DataSize(45, GIGABYTE).toBytes());
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testMaxQueryMemoryPerNodeBiggerQueryTotalMemoryPerNode()
     {
@@ -19,6 +19,7 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.operator.HashBuilderOperator.HashBuilderOperatorFactory;
+import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spiller.SingleStreamSpillerFactory;
 import com.facebook.presto.testing.TestingTaskContext;
@@ -309,6 +310,8 @@ public class BenchmarkHashBuildAndJoinOperators
                 new PagesIndex.TestingFactory(false),
                 false,
                 SingleStreamSpillerFactory.unsupportedSingleStreamSpillerFactory(),
+                Optional.empty(),
+                0,
                 false);
 
         Operator operator = hashBuilderOperatorFactory.createOperator(driverContext);
@@ -370,6 +373,23 @@ public class BenchmarkHashBuildAndJoinOperators
         return outputPages.build();
     }
 
+    @Benchmark
+    public long benchmarkJoinProbeHashing(JoinContext joinContext)
+    {
+        List<Type> types = joinContext.getTypes();
+        JoinProbeFactory joinProbeFactory = new JoinProbeFactory(
+                Ints.toArray(joinContext.getOutputChannels()),
+                joinContext.getHashChannels(),
+                joinContext.getHashChannel(),
+                joinContext.getHashChannels().stream().map(types::get).collect(toImmutableList()));
+
+        long positionCount = 0;
+        for (Page page : joinContext.getProbePages()) {
+            positionCount += joinProbeFactory.createJoinProbe(page).getPositionCount();
+        }
+        return positionCount;
+    }
+
     public static void main(String[] args)
             throws RunnerException
     {
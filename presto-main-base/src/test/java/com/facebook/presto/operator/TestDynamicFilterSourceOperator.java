@@ -17,6 +17,7 @@ import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.common.predicate.ValueSet;
@@ -25,6 +26,7 @@ import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -32,11 +34,13 @@ import org.testng.annotations.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.IntStream;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.block.BlockAssertions.createBlockOfReals;
@@ -71,6 +75,7 @@ import static io.airlift.slice.Slices.utf8Slice;
 import static java.lang.Float.floatToRawIntBits;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestDynamicFilterSourceOperator
@@ -80,6 +85,8 @@ public class TestDynamicFilterSourceOperator
     private PipelineContext pipelineContext;
 
     private ImmutableList.Builder<TupleDomain<String>> partitions;
+    private List<TupleDomain<String>> partitionsBeforeBloomFilters;
+    private ImmutableList.Builder<Map<String, BlockedBloomFilter>> bloomFilterPartitions;
 
     @BeforeMethod
     public void setUp()
@@ -90,6 +97,8 @@ public class TestDynamicFilterSourceOperator
                 .addPipelineContext(0, true, true, false);
 
         partitions = ImmutableList.builder();
+        bloomFilterPartitions = ImmutableList.builder();
+        partitionsBeforeBloomFilters = null;
     }
 
     @AfterMethod(alwaysRun = true)
@@ -129,15 +138,28 @@ public class TestDynamicFilterSourceOperator
             int minMaxCollectionLimit,
             Iterable<DynamicFilterSourceOperator.Channel> buildChannels,
             boolean useNewNanDefinition)
+    {
+        return createOperatorFactory(maxFilterPositionsCount, maxFilterSize, minMaxCollectionLimit, new DataSize(0, BYTE), buildChannels, useNewNanDefinition);
+    }
+
+    private OperatorFactory createOperatorFactory(
+            int maxFilterPositionsCount,
+            DataSize maxFilterSize,
+            int minMaxCollectionLimit,
+            DataSize bloomFilterMaxSize,
+            Iterable<DynamicFilterSourceOperator.Channel> buildChannels,
+            boolean useNewNanDefinition)
     {
         return new DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory(
                 0,
                 new PlanNodeId("PLAN_NODE_ID"),
                 this::consumePredicate,
+                this::consumeBloomFilters,
                 ImmutableList.copyOf(buildChannels),
                 maxFilterPositionsCount,
                 maxFilterSize,
                 minMaxCollectionLimit,
+                bloomFilterMaxSize,
                 useNewNanDefinition);
     }
 
@@ -146,6 +168,12 @@ public class TestDynamicFilterSourceOperator
         partitions.add(partitionPredicate);
     }
 
+    private void consumeBloomFilters(Map<String, BlockedBloomFilter> partitionBloomFilters)
+    {
+        partitionsBeforeBloomFilters = partitions.build();
+        bloomFilterPartitions.add(partitionBloomFilters);
+    }
+
     private Operator createOperator(OperatorFactory operatorFactory)
     {
         return operatorFactory.createOperator(pipelineContext.addDriverContext());
@@ -582,4 +610,115 @@ public class TestDynamicFilterSourceOperator
                         new Page(createLongSequenceBlock(0, maxPositionsCount + 1))),
                 ImmutableList.of(TupleDomain.all()));
     }
+
+    @Test
+    public void testCollectBloomFiltersWhenTooManyPositions()
+    {
+        int maxPositionsCount = 100;
+        int positionCount = 1000;
+        BlockBuilder varcharBlockBuilder = VARCHAR.createBlockBuilder(null, positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            VARCHAR.writeSlice(varcharBlockBuilder, utf8Slice("value" + i * 2));
+        }
+        Page page = new Page(createLongSequenceBlock(0, positionCount), varcharBlockBuilder.build(), createDoubleSequenceBlock(0, positionCount));
+
+        OperatorFactory operatorFactory = createOperatorFactory(
+                maxPositionsCount,
+                new DataSize(10, KILOBYTE),
+                1_000_000,
+                new DataSize(4, KILOBYTE),
+                ImmutableList.of(channel(0, BIGINT), channel(1, VARCHAR), channel(2, DOUBLE)),
+                true);
+        verifyPassthrough(createOperator(operatorFactory), ImmutableList.of(BIGINT, VARCHAR, DOUBLE), page);
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "0", Domain.create(ValueSet.ofRanges(range(BIGINT, 0L, true, (long) positionCount - 1, true)), false),
+                "1", Domain.create(ValueSet.ofRanges(range(VARCHAR, utf8Slice("value0"), true, utf8Slice("value998"), true)), false)))));
+        // Bloom filters are published before the predicate
+        assertEquals(partitionsBeforeBloomFilters, ImmutableList.of());
+
+        List<Map<String, BlockedBloomFilter>> bloomFilters = bloomFilterPartitions.build();
+        assertEquals(bloomFilters.size(), 1);
+        // no Bloom filter for DOUBLE
+        assertEquals(bloomFilters.get(0).keySet(), ImmutableSet.of("0", "1"));
+        BlockedBloomFilter bigintFilter = bloomFilters.get(0).get("0");
+        BlockedBloomFilter varcharFilter = bloomFilters.get(0).get("1");
+        int falsePositives = 0;
+        for (int i = 0; i < positionCount; i++) {
+            assertTrue(bigintFilter.mightContainLong(i));
+            assertTrue(varcharFilter.mightContainHash(BlockedBloomFilter.hashSlice(utf8Slice("value" + i * 2))));
+            if (varcharFilter.mightContainHash(BlockedBloomFilter.hashSlice(utf8Slice("value" + (i * 2 + 1))))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < positionCount * 0.05, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testCollectBloomFiltersForSmallBuildSide()
+    {
+        OperatorFactory operatorFactory = createOperatorFactory(100, new DataSize(10, KILOBYTE), 1_000_000, new DataSize(1, KILOBYTE), ImmutableList.of(channel(0, BIGINT)), true);
+        verifyPassthrough(createOperator(operatorFactory), ImmutableList.of(BIGINT), new Page(createLongsBlock(1, 2, 3)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "0", Domain.create(ValueSet.of(BIGINT, 1L, 2L, 3L), false)))));
+        List<Map<String, BlockedBloomFilter>> bloomFilters = bloomFilterPartitions.build();
+        assertEquals(bloomFilters.size(), 1);
+        assertTrue(bloomFilters.get(0).get("0").mightContainLong(2));
+    }
+
+    @Test
+    public void testCollectBloomFiltersLimitExceeded()
+    {
+        // 64 bytes hold up to 51 values
+        OperatorFactory operatorFactory = createOperatorFactory(10, new DataSize(10, KILOBYTE), 0, new DataSize(64, BYTE), ImmutableList.of(channel(0, BIGINT)), true);
+        verifyPassthrough(
+                createOperator(operatorFactory),
+                ImmutableList.of(BIGINT),
+                new Page(createLongSequenceBlock(0, 40)),
+                new Page(createLongSequenceBlock(40, 80)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.all()));
+        assertEquals(bloomFilterPartitions.build(), ImmutableList.of());
+    }
+
+    @Test
+    public void testBloomFilterMemoryAccounting()
+    {
+        OperatorFactory operatorFactory = createOperatorFactory(10, new DataSize(10, KILOBYTE), 0, new DataSize(1, KILOBYTE), ImmutableList.of(channel(0, BIGINT), channel(1, DOUBLE)), true);
+        Operator operator = createOperator(operatorFactory);
+        // only the BIGINT channel has a Bloom filter
+        assertEquals(operator.getOperatorContext().getOperatorMemoryContext().getSystemMemory(), BlockedBloomFilter.getRetainedSizeInBytes(1024));
+
+        operator.addInput(new Page(createLongSequenceBlock(0, 40), createDoubleSequenceBlock(0, 40)));
+        operator.getOutput();
+        operator.finish();
+        operatorFactory.noMoreOperators();
+        // the published Bloom filters are accounted by the consumer
+        assertEquals(bloomFilterPartitions.build().size(), 1);
+        assertEquals(operator.getOperatorContext().getOperatorMemoryContext().getSystemMemory(), 0);
+    }
+
+    @Test
+    public void testCollectBloomFiltersWhenPredicateIsAll()
+    {
+        // the predicate becomes 'all' on the first page, but is published only once the Bloom filters are collected
+        OperatorFactory operatorFactory = createOperatorFactory(10, new DataSize(10, KILOBYTE), 0, new DataSize(1, KILOBYTE), ImmutableList.of(channel(0, BIGINT)), true);
+        verifyPassthrough(
+                createOperator(operatorFactory),
+                ImmutableList.of(BIGINT),
+                new Page(createLongSequenceBlock(0, 40)),
+                new Page(createLongSequenceBlock(40, 80)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.all()));
+        List<Map<String, BlockedBloomFilter>> bloomFilters = bloomFilterPartitions.build();
+        assertEquals(bloomFilters.size(), 1);
+        for (long value = 0; value < 80; value++) {
+            assertTrue(bloomFilters.get(0).get("0").mightContainLong(value));
+        }
+    }
 }
@@ -43,7 +43,9 @@ public class TestFileFragmentResultCacheConfig
                 .setMaxInFlightSize(new DataSize(1, GIGABYTE))
                 .setMaxSinglePagesSize(new DataSize(500, MEGABYTE))
                 .setMaxCacheSize(new DataSize(100, GIGABYTE))
-                .setInputDataStatsEnabled(false));
+                .setMaxMemoryTierSize(new DataSize(0, MEGABYTE))
+                .setInputDataStatsEnabled(false)
+                .setMemoryMappedReadEnabled(false));
     }
 
     @Test
@@ -59,7 +61,9 @@ public class TestFileFragmentResultCacheConfig
                 .put("fragment-result-cache.max-in-flight-size", "2GB")
                 .put("fragment-result-cache.max-single-pages-size", "200MB")
                 .put("fragment-result-cache.max-cache-size", "200GB")
+                .put("fragment-result-cache.max-memory-tier-size", "2GB")
                 .put("fragment-result-cache.input-data-stats-enabled", "true")
+                .put("fragment-result-cache.memory-mapped-read-enabled", "true")
                 .build();
 
         FileFragmentResultCacheConfig expected = new FileFragmentResultCacheConfig()
@@ -71,7 +75,9 @@ public class TestFileFragmentResultCacheConfig
                 .setMaxInFlightSize(new DataSize(2, GIGABYTE))
                 .setMaxSinglePagesSize(new DataSize(200, MEGABYTE))
                 .setMaxCacheSize(new DataSize(200, GIGABYTE))
-                .setInputDataStatsEnabled(true);
+                .setMaxMemoryTierSize(new DataSize(2, GIGABYTE))
+                .setInputDataStatsEnabled(true)
+                .setMemoryMappedReadEnabled(true);
 
         assertFullMapping(properties, expected);
     }
@@ -15,6 +15,7 @@ package com.facebook.presto.operator;
 
 import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.LazyBlock;
 import com.facebook.presto.common.block.TestingBlockEncodingSerde;
 import com.facebook.presto.metadata.Split;
 import com.facebook.presto.spi.ConnectorId;
@@ -40,7 +41,9 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.block.BlockAssertions.assertBlockEquals;
 import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.NO_PREFERENCE;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkState;
@@ -174,7 +177,10 @@ public class TestFileFragmentResultCacheManager
         FragmentCacheResult fragmentCacheResult = cacheManager.get(SERIALIZED_PLAN_FRAGMENT_1, SPLIT_1);
         Optional<Iterator<Page>> result = fragmentCacheResult.getPages();
         assertTrue(result.isPresent());
+        // pages are read lazily, so the hit latency is recorded once the first page is read
+        assertEquals(stats.getCacheHitLatency().getAllTime().getCount(), 0.0);
         assertPagesEqual(result.get(), pages.iterator());
+        assertEquals(stats.getCacheHitLatency().getAllTime().getCount(), 1.0);
         assertEquals(fragmentCacheResult.getInputDataSize(), INPUT_DATA_SIZE_1);
         assertEquals(stats.getCacheMiss(), 0);
         assertEquals(stats.getCacheHit(), 1);
@@ -215,6 +221,125 @@ public class TestFileFragmentResultCacheManager
         cleanupCacheDirectory(cacheDirectory);
     }
 
+    @Test(timeOut = 30_000)
+    public void testMemoryMappedRead()
+            throws Exception
+    {
+        URI cacheDirectory = getNewCacheDirectory("testMemoryMappedRead");
+        FragmentCacheStats stats = new FragmentCacheStats();
+        FileFragmentResultCacheConfig config = new FileFragmentResultCacheConfig()
+                .setMemoryMappedReadEnabled(true);
+        FileFragmentResultCacheManager cacheManager = fileFragmentResultCacheManager(stats, config, cacheDirectory);
+
+        // empty result
+        cacheManager.put(SERIALIZED_PLAN_FRAGMENT_1, SPLIT_1, ImmutableList.of(), INPUT_DATA_SIZE_1).get();
+        FragmentCacheResult fragmentCacheResult = cacheManager.get(SERIALIZED_PLAN_FRAGMENT_1, SPLIT_1);
+        assertTrue(fragmentCacheResult.getPages().isPresent());
+        assertFalse(fragmentCacheResult.getPages().get().hasNext());
+        assertEquals(stats.getMappedBytes(), 0);
+
+        List<Page> pages = ImmutableList.of(
+                new Page(createStringsBlock("a", "b"), createStringsBlock("c", "d")),
+                new Page(createStringsBlock("e"), createStringsBlock("f")));
+        cacheManager.put(SERIALIZED_PLAN_FRAGMENT_2, SPLIT_2, pages, INPUT_DATA_SIZE_2).get();
+        fragmentCacheResult = cacheManager.get(SERIALIZED_PLAN_FRAGMENT_2, SPLIT_2);
+        assertEquals(fragmentCacheResult.getInputDataSize(), INPUT_DATA_SIZE_2);
+        Iterator<Page> result = fragmentCacheResult.getPages().get();
+
+        // columns are only decoded when accessed, and the hit latency includes the first decode
+        Page page = result.next();
+        assertEquals(page.getPositionCount(), 2);
+        assertFalse(((LazyBlock) page.getBlock(0)).isLoaded());
+        assertFalse(((LazyBlock) page.getBlock(1)).isLoaded());
+        assertEquals(stats.getCacheHitLatency().getAllTime().getCount(), 1.0);
+        assertBlockEquals(VARCHAR, page.getBlock(1), pages.get(0).getBlock(1));
+        assertEquals(stats.getCacheHitLatency().getAllTime().getCount(), 2.0);
+        assertFalse(((LazyBlock) page.getBlock(0)).isLoaded());
+        assertBlockEquals(VARCHAR, page.getBlock(0), pages.get(0).getBlock(0));
+
+        page = result.next();
+        assertBlockEquals(VARCHAR, page.getBlock(0), pages.get(1).getBlock(0));
+        assertBlockEquals(VARCHAR, page.getBlock(1), pages.get(1).getBlock(1));
+        assertFalse(result.hasNext());
+
+        assertEquals(stats.getCacheHit(), 2);
+        assertEquals(stats.getCacheHitLatency().getAllTime().getCount(), 2.0);
+        assertEquals(stats.getMappedBytes(), getCachePhysicalSize(cacheDirectory));
+        assertEquals(stats.getCacheSizeInBytes(), getCachePhysicalSize(cacheDirectory));
+
+        cacheManager.invalidateAllCache();
+        cleanupCacheDirectory(cacheDirectory);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testMemoryTier()
+            throws Exception
+    {
+        Split splitA = new Split(new ConnectorId("test"), new ConnectorTransactionHandle() {}, new TestingSplit(10));
+        Split splitB = new Split(new ConnectorId("test"), new ConnectorTransactionHandle() {}, new TestingSplit(11));
+        Split splitC = new Split(new ConnectorId("test"), new ConnectorTransactionHandle() {}, new TestingSplit(12));
+        List<Page> pagesA = ImmutableList.of(new Page(createStringsBlock("result-a")));
+        List<Page> pagesB = ImmutableList.of(new Page(createStringsBlock("result-b")));
+        List<Page> pagesC = ImmutableList.of(new Page(createStringsBlock("result-c")));
+        long entrySize = pagesA.get(0).getRetainedSizeInBytes();
+
+        URI cacheDirectory = getNewCacheDirectory("testMemoryTier");
+        FragmentCacheStats stats = new FragmentCacheStats();
+        // leave some room as pages read back from disk have a slightly different retained size
+        FileFragmentResultCacheConfig config = new FileFragmentResultCacheConfig()
+                .setMaxMemoryTierSize(new DataSize(2 * entrySize + 100, DataSize.Unit.BYTE));
+        FileFragmentResultCacheManager cacheManager = fileFragmentResultCacheManager(stats, config, cacheDirectory);
+
+        // results are kept in memory while there is room, without being flushed
+        cacheManager.put(SERIALIZED_PLAN_FRAGMENT_1, splitA, pagesA, INPUT_DATA_SIZE_1).get();
+        for (int i = 0; i < 3; i++) {
+            FragmentCacheResult fragmentCacheResult = cacheManager.get(SERIALIZED_PLAN_FRAGMENT_1, splitA);
+            assertPagesEqual(fragmentCacheResult.getPages().get(), pagesA.iterator());
+            assertEquals(fragmentCacheResult.getInputDataSize(), INPUT_DATA_SIZE_1);
+        }
+        cacheManager.put(SERIALIZED_PLAN_FRAGMENT_1, splitB, pagesB, INPUT_DATA_SIZE_1).get();
+        assertEquals(stats.getMemoryTierHit(), 3);
+        assertEquals(stats.getMemoryTierEntries(), 2);
+        assertEquals(stats.getMemoryTierSizeInBytes(), 2 * entrySize);
+        assertEquals(stats.getCacheEntries(), 0);
+        assertEquals(getCachePhysicalSize(cacheDirectory), 0);
+
+        // a result seen for the first time does not evict a frequently used one and goes to disk
+        cacheManager.put(SERIALIZED_PLAN_FRAGMENT_1, splitC, pagesC, INPUT_DATA_SIZE_1).get();
+        assertEquals(stats.getMemoryTierAdmissionRejections(), 1);
+        assertEquals(stats.getCacheEntries(), 1);
+
+        // once it is used more often than the least recently used memory entry, it is promoted and that entry is demoted
+        for (int i = 0; i < 4; i++) {
+            FragmentCacheResult fragmentCacheResult = cacheManager.get(SERIALIZED_PLAN_FRAGMENT_1, splitC);
+            assertPagesEqual(fragmentCacheResult.getPages().get(), pagesC.iterator());
+        }
+        assertEquals(stats.getDiskTierHit(), 4);
+        assertEquals(stats.getMemoryTierPromotions(), 1);
+        assertEquals(stats.getMemoryTierDemotions(), 1);
+        assertEquals(stats.getMemoryTierEntries(), 2);
+        while (stats.getCacheEntries() != 1 || stats.getInFlightBytes() != 0) {
+            Thread.sleep(10);
+        }
+
+        FragmentCacheResult fragmentCacheResult = cacheManager.get(SERIALIZED_PLAN_FRAGMENT_1, splitC);
+        assertPagesEqual(fragmentCacheResult.getPages().get(), pagesC.iterator());
+        fragmentCacheResult = cacheManager.get(SERIALIZED_PLAN_FRAGMENT_1, splitA);
+        assertPagesEqual(fragmentCacheResult.getPages().get(), pagesA.iterator());
+        assertEquals(fragmentCacheResult.getInputDataSize(), INPUT_DATA_SIZE_1);
+        assertEquals(stats.getMemoryTierHit(), 4);
+        assertEquals(stats.getDiskTierHit(), 5);
+        assertEquals(stats.getCacheHit(), 9);
+        assertEquals(stats.getMemoryTierHitRate(), 4.0 / 9);
+        assertEquals(stats.getDiskTierHitRate(), 1.0);
+
+        cacheManager.invalidateAllCache();
+        assertEquals(stats.getMemoryTierEntries(), 0);
+        assertEquals(stats.getMemoryTierSizeInBytes(), 0);
+        assertEquals(stats.getCacheEntries(), 0);
+        cleanupCacheDirectory(cacheDirectory);
+    }
+
     private static void assertPagesEqual(Iterator<Page> pages1, Iterator<Page> pages2)
     {
         while (pages1.hasNext() && pages2.hasNext()) {
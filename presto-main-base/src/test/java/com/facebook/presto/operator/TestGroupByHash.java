@@ -34,6 +34,7 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
@@ -42,9 +43,13 @@ import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.block.BlockAssertions.createStringSequenceBlock;
 import static com.facebook.presto.common.block.DictionaryId.randomDictionaryId;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DecimalType.createDecimalType;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.FIXED_WIDTH_GROUP_BY_HASH_ENABLED;
 import static com.facebook.presto.type.TypeUtils.getHashBlock;
 import static com.google.common.math.DoubleMath.log2;
 import static org.testng.Assert.assertEquals;
@@ -474,4 +479,119 @@ public class TestGroupByHash
         assertEquals(currentQuota.get(), 10 * 2);
         assertEquals(currentQuota.get() / 3 / 2, yields);
     }
+
+    @Test(dataProvider = "precomputedHash")
+    public void testFixedWidthGroupByHashMatchesMultiChannel(boolean precomputedHash)
+    {
+        List<Type> types = ImmutableList.of(BIGINT, DATE, INTEGER);
+        int positionCount = 10_000;
+        PageBuilder pageBuilder = new PageBuilder(types);
+        Random random = new Random(42);
+        for (int position = 0; position < positionCount; position++) {
+            pageBuilder.declarePosition();
+            for (int channel = 0; channel < types.size(); channel++) {
+                if (random.nextInt(20) == 0) {
+                    pageBuilder.getBlockBuilder(channel).appendNull();
+                }
+                else {
+                    types.get(channel).writeLong(pageBuilder.getBlockBuilder(channel), random.nextInt(20) - 10);
+                }
+            }
+        }
+        Page page = pageBuilder.build();
+        Optional<Integer> hashChannel = Optional.empty();
+        if (precomputedHash) {
+            page = page.appendColumn(getHashBlock(types, page.getBlock(0), page.getBlock(1), page.getBlock(2)));
+            hashChannel = Optional.of(3);
+        }
+
+        int[] hashChannels = {0, 1, 2};
+        // the fixed width hash is only used when enabled
+        assertTrue(createGroupByHash(TEST_SESSION, types, hashChannels, hashChannel, 1, JOIN_COMPILER) instanceof MultiChannelGroupByHash);
+        Session session = TestingSession.testSessionBuilder()
+                .setSystemProperty(FIXED_WIDTH_GROUP_BY_HASH_ENABLED, "true")
+                .build();
+        GroupByHash fixedWidthHash = createGroupByHash(session, types, hashChannels, hashChannel, 1, JOIN_COMPILER);
+        assertTrue(fixedWidthHash instanceof FixedWidthGroupByHash);
+        GroupByHash multiChannelHash = new MultiChannelGroupByHash(types, hashChannels, hashChannel, 1, false, JOIN_COMPILER, UpdateMemory.NOOP);
+
+        Work<GroupByIdBlock> fixedWidthWork = fixedWidthHash.getGroupIds(page);
+        assertTrue(fixedWidthWork.process());
+        Work<GroupByIdBlock> multiChannelWork = multiChannelHash.getGroupIds(page);
+        assertTrue(multiChannelWork.process());
+        GroupByIdBlock fixedWidthGroupIds = fixedWidthWork.getResult();
+        GroupByIdBlock multiChannelGroupIds = multiChannelWork.getResult();
+
+        // both hashes assign group ids in the order the keys are first seen
+        assertEquals(fixedWidthHash.getGroupCount(), multiChannelHash.getGroupCount());
+        for (int position = 0; position < positionCount; position++) {
+            assertEquals(fixedWidthGroupIds.getGroupId(position), multiChannelGroupIds.getGroupId(position));
+            assertTrue(fixedWidthHash.contains(position, page, hashChannels));
+        }
+
+        assertEquals(fixedWidthHash.getTypes(), multiChannelHash.getTypes());
+        PageBuilder fixedWidthOutput = new PageBuilder(fixedWidthHash.getTypes());
+        PageBuilder multiChannelOutput = new PageBuilder(multiChannelHash.getTypes());
+        for (int groupId = 0; groupId < fixedWidthHash.getGroupCount(); groupId++) {
+            assertEquals(fixedWidthHash.getRawHash(groupId), multiChannelHash.getRawHash(groupId));
+            fixedWidthOutput.declarePosition();
+            fixedWidthHash.appendValuesTo(groupId, fixedWidthOutput, 0);
+            multiChannelOutput.declarePosition();
+            multiChannelHash.appendValuesTo(groupId, multiChannelOutput, 0);
+        }
+        PageAssertions.assertPageEquals(fixedWidthHash.getTypes(), fixedWidthOutput.build(), multiChannelOutput.build());
+
+        Page absentKey = new Page(BlockAssertions.createLongsBlock(100L), BlockAssertions.createLongsBlock(100L), BlockAssertions.createLongsBlock(100L));
+        assertFalse(fixedWidthHash.contains(0, absentKey, hashChannels, new InterpretedHashGenerator(types, hashChannels).hashPosition(0, absentKey)));
+    }
+
+    @DataProvider
+    public Object[][] precomputedHash()
+    {
+        return new Object[][] {{true}, {false}};
+    }
+
+    @Test
+    public void testFixedWidthGroupByHashSupportedTypes()
+    {
+        assertTrue(FixedWidthGroupByHash.isSupported(ImmutableList.of(BIGINT, DATE, INTEGER, createDecimalType(10, 2))));
+        assertFalse(FixedWidthGroupByHash.isSupported(ImmutableList.of(BIGINT)));
+        assertFalse(FixedWidthGroupByHash.isSupported(ImmutableList.of(BIGINT, DOUBLE)));
+        assertFalse(FixedWidthGroupByHash.isSupported(ImmutableList.of(BIGINT, VARCHAR)));
+        assertFalse(FixedWidthGroupByHash.isSupported(ImmutableList.of(BIGINT, createDecimalType(30, 2))));
+    }
+
+    @Test
+    public void testFixedWidthGroupByHashMemoryReservationYield()
+    {
+        int length = 100_000;
+        Page page = new Page(createLongSequenceBlock(0, length), createLongSequenceBlock(0, length));
+        AtomicInteger currentQuota = new AtomicInteger(0);
+        AtomicInteger allowedQuota = new AtomicInteger(6);
+        UpdateMemory updateMemory = () -> {
+            if (currentQuota.get() < allowedQuota.get()) {
+                currentQuota.getAndIncrement();
+                return true;
+            }
+            return false;
+        };
+
+        GroupByHash groupByHash = createGroupByHash(ImmutableList.of(BIGINT, BIGINT), new int[] {0, 1}, Optional.empty(), 1, false, true, JOIN_COMPILER, updateMemory);
+        assertTrue(groupByHash instanceof FixedWidthGroupByHash);
+        Work<?> addPageWork = groupByHash.addPage(page);
+        int yields = 0;
+        while (!addPageWork.process()) {
+            assertEquals(currentQuota.get(), allowedQuota.get());
+            // assert if we are blocked, we are going to be blocked again without changing allowedQuota
+            assertFalse(addPageWork.process());
+            assertEquals(currentQuota.get(), allowedQuota.get());
+            yields++;
+            allowedQuota.getAndAdd(6);
+        }
+
+        assertEquals(length, groupByHash.getGroupCount());
+        // the rehash count is 17 = log(100_000 / 0.75)
+        assertEquals(currentQuota.get(), 17 * 2);
+        assertEquals(currentQuota.get() / 3 / 2, yields);
+    }
 }
@@ -18,6 +18,7 @@ import com.facebook.airlift.units.DataSize.Unit;
 import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.RowPagesBuilder;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.block.ByteArrayBlock;
@@ -67,6 +68,8 @@ import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.block.BlockAssertions.createLongRepeatBlock;
 import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_TABLE_EXPECTED_SIZE;
+import static com.facebook.presto.common.RuntimeMetricName.HASH_TABLE_SIZE_MISESTIMATE_PERCENT;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
@@ -310,6 +313,40 @@ public class TestHashAggregationOperator
         assertEquals(operator.getOperatorContext().getOperatorStats().getUserMemoryReservationInBytes(), 0);
     }
 
+    @Test
+    public void testHashTableSizeReported()
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(false, hashChannels, BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(1_000, 0)
+                .addSequencePage(1_000, 0)
+                .build();
+
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                hashChannels,
+                ImmutableList.of(),
+                ImmutableList.of(),
+                Step.SINGLE,
+                ImmutableList.of(generateAccumulatorFactory(COUNT, ImmutableList.of(0), Optional.empty())),
+                rowPagesBuilder.getHashChannel(),
+                Optional.empty(),
+                500,
+                Optional.of(new DataSize(16, MEGABYTE)),
+                joinCompiler,
+                false);
+
+        Operator operator = operatorFactory.createOperator(createDriverContext());
+        toPages(operator, input.iterator());
+        RuntimeStats runtimeStats = operator.getOperatorContext().getRuntimeStats();
+        assertEquals(runtimeStats.getMetric(HASH_TABLE_EXPECTED_SIZE).getSum(), 500);
+        // 1000 groups in a hash table sized for 500
+        assertEquals(runtimeStats.getMetric(HASH_TABLE_SIZE_MISESTIMATE_PERCENT).getSum(), 200);
+    }
+
     @Test(dataProvider = "hashEnabled", expectedExceptions = ExceededMemoryLimitException.class, expectedExceptionsMessageRegExp = "Query exceeded per-node user memory limit of 10B.*")
     public void testMemoryLimit(boolean hashEnabled)
     {
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.block.BlockAssertions.createDateSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createDoubleSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongDictionaryBlock;
+import static com.facebook.presto.block.BlockAssertions.createRandomIntsBlock;
+import static com.facebook.presto.block.BlockAssertions.createRandomLongsBlock;
+import static com.facebook.presto.block.BlockAssertions.createRandomStringBlock;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.type.TypeUtils.getHashBlock;
+import static org.testng.Assert.assertEquals;
+
+public class TestHashGenerator
+{
+    private static final int POSITION_COUNT = 1000;
+
+    @Test
+    public void testInterpretedHashPositionsMatchesHashPosition()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, INTEGER, VARCHAR, DATE, DOUBLE, BIGINT);
+        Page page = new Page(
+                createRandomLongsBlock(POSITION_COUNT, 0.1f),
+                createRandomIntsBlock(POSITION_COUNT, 0.1f),
+                createRandomStringBlock(POSITION_COUNT, 0.1f, 20),
+                createDateSequenceBlock(0, POSITION_COUNT),
+                createDoubleSequenceBlock(0, POSITION_COUNT),
+                createLongDictionaryBlock(0, POSITION_COUNT));
+
+        assertHashPositions(new InterpretedHashGenerator(types, new int[] {0, 1, 2, 3, 4, 5}), page);
+        assertHashPositions(new InterpretedHashGenerator(ImmutableList.of(VARCHAR, BIGINT), new int[] {2, 0}), page);
+        // regions exercise blocks with a non zero offset base
+        assertHashPositions(new InterpretedHashGenerator(types, new int[] {0, 1, 2, 3, 4, 5}), page.getRegion(17, 500));
+    }
+
+    @Test
+    public void testPrecomputedHashPositionsMatchesHashPosition()
+    {
+        Block block = createRandomLongsBlock(POSITION_COUNT, 0.1f);
+        Page page = new Page(block, getHashBlock(ImmutableList.of(BIGINT), block));
+
+        assertHashPositions(new PrecomputedHashGenerator(1), page);
+        assertHashPositions(new PrecomputedHashGenerator(1), page.getRegion(17, 500));
+        assertHashPositions(new PrecomputedHashGenerator(0), new Page(createLongDictionaryBlock(0, POSITION_COUNT)));
+    }
+
+    private static void assertHashPositions(HashGenerator hashGenerator, Page page)
+    {
+        int positionOffset = 3;
+        int length = page.getPositionCount() - 10;
+        long[] hashes = new long[length];
+        hashGenerator.hashPositions(page, positionOffset, length, hashes);
+        for (int i = 0; i < length; i++) {
+            assertEquals(hashes[i], hashGenerator.hashPosition(positionOffset + i, page), "position " + (positionOffset + i));
+        }
+    }
+}
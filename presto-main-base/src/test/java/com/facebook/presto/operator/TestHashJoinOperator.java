@@ -74,6 +74,7 @@ import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.airlift.testing.Assertions.assertEqualsIgnoreOrder;
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
@@ -492,6 +493,118 @@ public class TestHashJoinOperator
         }
     }
 
+    @DataProvider
+    public Object[][] joinWithSpillRepartitioningValues()
+    {
+        return new Object[][] {
+                {false, false},
+                {false, true},
+                {true, false},
+                {true, true}};
+    }
+
+    @Test(dataProvider = "joinWithSpillRepartitioningValues", timeOut = 60000)
+    public void testJoinWithSpillRepartitioning(boolean probeOuter, boolean probeHashEnabled)
+            throws Exception
+    {
+        TaskStateMachine taskStateMachine = new TaskStateMachine(new TaskId("query", 0, 0, 0, 0), executor);
+        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, TEST_SESSION, taskStateMachine);
+
+        DriverContext joinDriverContext = taskContext.addPipelineContext(2, true, true, false).addDriverContext();
+
+        // a hot key with many rows, which cannot be split into smaller sub-partitions, and many keys with a single row
+        RowPagesBuilder buildPages = rowPagesBuilder(ImmutableList.of(BIGINT, BIGINT));
+        for (long value = 0; value < 500; value++) {
+            buildPages.row(0L, value);
+            if (value % 50 == 49) {
+                buildPages.pageBreak();
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            buildPages.addSequencePage(100, 1 + i * 100, 1 + i * 100);
+        }
+
+        // spilled partitions larger than 1kB are split into sub-partitions
+        BuildSideSetup buildSideSetup = setupBuildSide(true, taskContext, Ints.asList(0), buildPages, Optional.empty(), true, SINGLE_STREAM_SPILLER_FACTORY, false, Optional.of(new DataSize(1, KILOBYTE)), 2);
+        JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager = buildSideSetup.getLookupSourceFactoryManager();
+
+        RowPagesBuilder probePages = rowPagesBuilder(probeHashEnabled, Ints.asList(0), ImmutableList.of(BIGINT, BIGINT))
+                .row(0L, 0L)
+                .row(0L, 1L)
+                .pageBreak()
+                .addSequencePage(100, 1, 0)
+                .addSequencePage(10, 5000, 0);
+        OperatorFactory joinOperatorFactory = probeOuter
+                ? probeOuterJoinOperatorFactory(lookupSourceFactoryManager, probePages)
+                : innerJoinOperatorFactory(lookupSourceFactoryManager, probePages, PARTITIONING_SPILLER_FACTORY);
+
+        instantiateBuildDrivers(buildSideSetup, taskContext);
+        List<Driver> buildDrivers = buildSideSetup.getBuildDrivers();
+        LookupSourceFactory lookupSourceFactory = lookupSourceFactoryManager.getJoinBridge(Lifespan.taskWide());
+
+        try (Operator joinOperator = joinOperatorFactory.createOperator(joinDriverContext)) {
+            // spill every build partition while it is being built
+            ListenableFuture<LookupSourceProvider> lookupSourceProvider = lookupSourceFactory.createLookupSourceProvider();
+            while (!lookupSourceProvider.isDone()) {
+                for (int i = 0; i < buildDrivers.size(); i++) {
+                    checkErrors(taskStateMachine);
+                    buildDrivers.get(i).process();
+                    HashBuilderOperator buildOperator = buildSideSetup.getBuildOperators().get(i);
+                    if (buildOperator.getState() == HashBuilderOperator.State.CONSUMING_INPUT && buildOperator.getOperatorContext().getReservedRevocableBytes() > 0) {
+                        revokeMemory(buildOperator);
+                    }
+                }
+            }
+            getFutureValue(lookupSourceProvider).close();
+
+            for (Driver buildDriver : buildDrivers) {
+                runDriverInThread(executor, buildDriver);
+            }
+
+            ValuesOperatorFactory valuesOperatorFactory = new ValuesOperatorFactory(17, new PlanNodeId("values"), probePages.build());
+            PageBuffer pageBuffer = new PageBuffer(10);
+            PageBufferOperatorFactory pageBufferOperatorFactory = new PageBufferOperatorFactory(18, new PlanNodeId(PAGE_BUFFER), pageBuffer, PAGE_BUFFER);
+            Driver joinDriver = Driver.createDriver(
+                    joinDriverContext,
+                    valuesOperatorFactory.createOperator(joinDriverContext),
+                    joinOperator,
+                    pageBufferOperatorFactory.createOperator(joinDriverContext));
+            // the join produces more pages than the buffer holds
+            List<Page> actualPages = new ArrayList<>();
+            while (!joinDriver.isFinished()) {
+                checkErrors(taskStateMachine);
+                processRow(joinDriver, taskStateMachine);
+                actualPages.addAll(getPages(pageBuffer));
+            }
+            actualPages.addAll(getPages(pageBuffer));
+            checkErrors(taskStateMachine);
+
+            MaterializedResult.Builder expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probePages.getTypesWithoutHash(), buildPages.getTypesWithoutHash()));
+            for (long probeValue = 0; probeValue < 2; probeValue++) {
+                for (long buildValue = 0; buildValue < 500; buildValue++) {
+                    expected.row(0L, probeValue, 0L, buildValue);
+                }
+            }
+            for (long key = 1; key <= 100; key++) {
+                expected.row(key, key - 1, key, key);
+            }
+            if (probeOuter) {
+                for (long key = 5000; key < 5010; key++) {
+                    expected.row(key, key - 5000, null, null);
+                }
+            }
+
+            assertEqualsIgnoreOrder(getProperColumns(joinOperator, concat(probePages.getTypes(), buildPages.getTypes()), probePages, actualPages).getMaterializedRows(), expected.build().getMaterializedRows());
+
+            JoinOperatorInfo joinOperatorInfo = (JoinOperatorInfo) joinOperator.getOperatorContext().getOperatorStats().getInfo();
+            assertTrue(joinOperatorInfo.getSpillRecursionDepth() > 0 && joinOperatorInfo.getSpillRecursionDepth() <= 2, "spilled partitions are not split within the maximum depth");
+            assertTrue(joinOperatorInfo.getSpillSkew() > 2, "skew of the partition with the hot key is not reported");
+        }
+        finally {
+            joinOperatorFactory.noMoreOperators();
+        }
+    }
+
     @Test(timeOut = 60000)
     public void testInnerJoinWithSpillWithEarlyTermination()
     {
@@ -1542,6 +1655,22 @@ public class TestHashJoinOperator
             boolean spillEnabled,
             SingleStreamSpillerFactory singleStreamSpillerFactory,
             boolean enforceBroadcastMemoryLimit)
+    {
+        return setupBuildSide(parallelBuild, taskContext, hashChannels, buildPages,
+                filterFunction, spillEnabled, singleStreamSpillerFactory, enforceBroadcastMemoryLimit, Optional.empty(), 0);
+    }
+
+    private BuildSideSetup setupBuildSide(
+            boolean parallelBuild,
+            TaskContext taskContext,
+            List<Integer> hashChannels,
+            RowPagesBuilder buildPages,
+            Optional<InternalJoinFilterFunction> filterFunction,
+            boolean spillEnabled,
+            SingleStreamSpillerFactory singleStreamSpillerFactory,
+            boolean enforceBroadcastMemoryLimit,
+            Optional<DataSize> maxSpilledPartitionSize,
+            int maxSpillRepartitioningDepth)
     {
         Optional<JoinFilterFunctionFactory> filterFunctionFactory = filterFunction
                 .map(function -> (session, addresses, pages) -> new StandardJoinFilterFunction(function, addresses, pages));
@@ -1604,6 +1733,8 @@ public class TestHashJoinOperator
                 new PagesIndex.TestingFactory(false),
                 spillEnabled,
                 singleStreamSpillerFactory,
+                maxSpilledPartitionSize,
+                maxSpillRepartitioningDepth,
                 enforceBroadcastMemoryLimit);
         return new BuildSideSetup(lookupSourceFactoryManager, buildOperatorFactory, sourceOperatorFactory, partitionCount);
     }
@@ -0,0 +1,342 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.operator.MergeJoinOperator.MergeJoinOperatorFactory;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.plan.JoinType;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.TestingTaskContext;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.toPages;
+import static com.facebook.presto.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
+import static com.facebook.presto.spi.plan.JoinType.FULL;
+import static com.facebook.presto.spi.plan.JoinType.INNER;
+import static com.facebook.presto.spi.plan.JoinType.LEFT;
+import static com.facebook.presto.spi.plan.JoinType.RIGHT;
+import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestMergeJoinOperator
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, VARCHAR);
+    private static final List<Type> OUTPUT_TYPES = ImmutableList.of(BIGINT, VARCHAR, BIGINT, VARCHAR);
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testInnerJoin()
+    {
+        TaskContext taskContext = createTaskContext();
+        MaterializedResult expected = resultBuilder(taskContext.getSession(), OUTPUT_TYPES)
+                .row(2L, "b", 2L, "x1")
+                .row(2L, "b", 2L, "x2")
+                .row(2L, "b", 2L, "x3")
+                .row(2L, "c", 2L, "x1")
+                .row(2L, "c", 2L, "x2")
+                .row(2L, "c", 2L, "x3")
+                .row(2L, "d", 2L, "x1")
+                .row(2L, "d", 2L, "x2")
+                .row(2L, "d", 2L, "x3")
+                .row(6L, "f", 6L, "x5")
+                .build();
+
+        assertJoin(taskContext, INNER, expected);
+    }
+
+    @Test
+    public void testLeftJoin()
+    {
+        TaskContext taskContext = createTaskContext();
+        MaterializedResult expected = resultBuilder(taskContext.getSession(), OUTPUT_TYPES)
+                .row(null, "pn", null, null)
+                .row(1L, "a", null, null)
+                .row(2L, "b", 2L, "x1")
+                .row(2L, "b", 2L, "x2")
+                .row(2L, "b", 2L, "x3")
+                .row(2L, "c", 2L, "x1")
+                .row(2L, "c", 2L, "x2")
+                .row(2L, "c", 2L, "x3")
+                .row(2L, "d", 2L, "x1")
+                .row(2L, "d", 2L, "x2")
+                .row(2L, "d", 2L, "x3")
+                .row(4L, "e", null, null)
+                .row(6L, "f", 6L, "x5")
+                .build();
+
+        assertJoin(taskContext, LEFT, expected);
+    }
+
+    @Test
+    public void testRightJoin()
+    {
+        TaskContext taskContext = createTaskContext();
+        MaterializedResult expected = resultBuilder(taskContext.getSession(), OUTPUT_TYPES)
+                .row(null, null, null, "bn")
+                .row(null, null, 0L, "x0")
+                .row(2L, "b", 2L, "x1")
+                .row(2L, "b", 2L, "x2")
+                .row(2L, "b", 2L, "x3")
+                .row(2L, "c", 2L, "x1")
+                .row(2L, "c", 2L, "x2")
+                .row(2L, "c", 2L, "x3")
+                .row(2L, "d", 2L, "x1")
+                .row(2L, "d", 2L, "x2")
+                .row(2L, "d", 2L, "x3")
+                .row(null, null, 3L, "x4")
+                .row(6L, "f", 6L, "x5")
+                .row(null, null, 7L, "x6")
+                .build();
+
+        assertJoin(taskContext, RIGHT, expected);
+    }
+
+    @Test
+    public void testFullJoin()
+    {
+        TaskContext taskContext = createTaskContext();
+        MaterializedResult expected = resultBuilder(taskContext.getSession(), OUTPUT_TYPES)
+                .row(null, "pn", null, null)
+                .row(null, null, null, "bn")
+                .row(null, null, 0L, "x0")
+                .row(1L, "a", null, null)
+                .row(2L, "b", 2L, "x1")
+                .row(2L, "b", 2L, "x2")
+                .row(2L, "b", 2L, "x3")
+                .row(2L, "c", 2L, "x1")
+                .row(2L, "c", 2L, "x2")
+                .row(2L, "c", 2L, "x3")
+                .row(2L, "d", 2L, "x1")
+                .row(2L, "d", 2L, "x2")
+                .row(2L, "d", 2L, "x3")
+                .row(null, null, 3L, "x4")
+                .row(4L, "e", null, null)
+                .row(6L, "f", 6L, "x5")
+                .row(null, null, 7L, "x6")
+                .build();
+
+        assertJoin(taskContext, FULL, expected);
+    }
+
+    @Test
+    public void testMultipleJoinChannels()
+    {
+        TaskContext taskContext = createTaskContext();
+        List<Page> probeInput = rowPagesBuilder(TYPES)
+                .row(1L, "a")
+                .row(1L, "b")
+                .row(2L, "a")
+                .build();
+        List<Page> buildInput = rowPagesBuilder(TYPES)
+                .row(1L, "b")
+                .row(1L, "b")
+                .row(2L, "b")
+                .build();
+
+        MaterializedResult expected = resultBuilder(taskContext.getSession(), OUTPUT_TYPES)
+                .row(1L, "b", 1L, "b")
+                .row(1L, "b", 1L, "b")
+                .build();
+
+        MergeJoinOperatorFactory joinOperatorFactory = createJoinOperatorFactory(INNER, ImmutableList.of(0, 1), buildInput);
+        assertOperatorEquals(joinOperatorFactory, taskContext.addPipelineContext(0, true, true, false).addDriverContext(), probeInput, expected);
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Left input of merge join is not sorted on the join keys")
+    public void testUnsortedLeftInput()
+    {
+        TaskContext taskContext = createTaskContext();
+        List<Page> probeInput = rowPagesBuilder(TYPES)
+                .row(2L, "a")
+                .pageBreak()
+                .row(1L, "b")
+                .build();
+        List<Page> buildInput = rowPagesBuilder(TYPES)
+                .row(1L, "x")
+                .build();
+
+        MergeJoinOperatorFactory joinOperatorFactory = createJoinOperatorFactory(INNER, ImmutableList.of(0), buildInput);
+        toPages(joinOperatorFactory, taskContext.addPipelineContext(0, true, true, false).addDriverContext(), probeInput);
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Right input of merge join is not sorted on the join keys")
+    public void testUnsortedRightInput()
+    {
+        TaskContext taskContext = createTaskContext();
+        List<Page> probeInput = rowPagesBuilder(TYPES)
+                .row(1L, "a")
+                .build();
+        List<Page> buildInput = rowPagesBuilder(TYPES)
+                .row(1L, "x")
+                .row(null, "y")
+                .build();
+
+        MergeJoinOperatorFactory joinOperatorFactory = createJoinOperatorFactory(INNER, ImmutableList.of(0), buildInput);
+        toPages(joinOperatorFactory, taskContext.addPipelineContext(0, true, true, false).addDriverContext(), probeInput);
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Rows of the right input of merge join sharing a single join key exceed the limit of .*")
+    public void testMatchGroupLimit()
+    {
+        TaskContext taskContext = createTaskContext();
+        List<Page> probeInput = rowPagesBuilder(TYPES)
+                .row(1L, "a")
+                .build();
+        RowPagesBuilder buildPages = rowPagesBuilder(TYPES);
+        for (int i = 0; i < 100; i++) {
+            buildPages.row(1L, "x" + i).pageBreak();
+        }
+
+        MergeJoinOperatorFactory joinOperatorFactory = createJoinOperatorFactory(INNER, ImmutableList.of(0), buildPages.build(), 100);
+        toPages(joinOperatorFactory, taskContext.addPipelineContext(0, true, true, false).addDriverContext(), probeInput);
+    }
+
+    @Test
+    public void testBuildSideBackpressure()
+    {
+        TaskContext taskContext = createTaskContext();
+        DriverContext driverContext = taskContext.addPipelineContext(0, true, true, false).addDriverContext();
+        MergeJoinPagesBridge bridge = new MergeJoinPagesBridge(1);
+        Operator sourceOperator = new MergeJoinSourceOperator(driverContext.addOperatorContext(0, new PlanNodeId("test"), MergeJoinSourceOperator.class.getSimpleName()), bridge);
+
+        List<Page> buildInput = rowPagesBuilder(TYPES)
+                .row(1L, "a")
+                .pageBreak()
+                .row(2L, "b")
+                .build();
+
+        assertTrue(sourceOperator.needsInput());
+        sourceOperator.addInput(buildInput.get(0));
+        assertFalse(sourceOperator.isBlocked().isDone());
+        assertFalse(sourceOperator.needsInput());
+
+        // consuming the queued page unblocks the source
+        assertTrue(bridge.pollPage() != null);
+        assertTrue(sourceOperator.isBlocked().isDone());
+        sourceOperator.addInput(buildInput.get(1));
+        assertFalse(sourceOperator.isBlocked().isDone());
+
+        // the probe side no longer needs the build rows
+        bridge.destroy();
+        assertTrue(sourceOperator.isBlocked().isDone());
+        assertTrue(sourceOperator.isFinished());
+        assertTrue(bridge.isFinished());
+    }
+
+    private void assertJoin(TaskContext taskContext, JoinType joinType, MaterializedResult expected)
+    {
+        List<Page> probeInput = rowPagesBuilder(TYPES)
+                .row(null, "pn")
+                .row(1L, "a")
+                .row(2L, "b")
+                .row(2L, "c")
+                .pageBreak()
+                .row(2L, "d")
+                .row(4L, "e")
+                .row(6L, "f")
+                .build();
+        List<Page> buildInput = rowPagesBuilder(TYPES)
+                .row(null, "bn")
+                .row(0L, "x0")
+                .row(2L, "x1")
+                .row(2L, "x2")
+                .pageBreak()
+                .row(2L, "x3")
+                .row(3L, "x4")
+                .row(6L, "x5")
+                .pageBreak()
+                .row(7L, "x6")
+                .build();
+
+        MergeJoinOperatorFactory joinOperatorFactory = createJoinOperatorFactory(joinType, ImmutableList.of(0), buildInput);
+        assertOperatorEquals(joinOperatorFactory, taskContext.addPipelineContext(0, true, true, false).addDriverContext(), probeInput, expected);
+    }
+
+    private static MergeJoinOperatorFactory createJoinOperatorFactory(JoinType joinType, List<Integer> joinChannels, List<Page> buildInput)
+    {
+        return createJoinOperatorFactory(joinType, joinChannels, buildInput, Long.MAX_VALUE);
+    }
+
+    private static MergeJoinOperatorFactory createJoinOperatorFactory(JoinType joinType, List<Integer> joinChannels, List<Page> buildInput, long maxMatchGroupSizeInBytes)
+    {
+        JoinBridgeManager<MergeJoinPagesBridge> joinBridgeManager = new JoinBridgeManager<>(
+                false,
+                UNGROUPED_EXECUTION,
+                UNGROUPED_EXECUTION,
+                () -> new MergeJoinPagesBridge(Long.MAX_VALUE),
+                TYPES);
+        MergeJoinOperatorFactory joinOperatorFactory = new MergeJoinOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                joinBridgeManager,
+                joinType,
+                TYPES,
+                joinChannels,
+                ImmutableList.of(0, 1),
+                TYPES,
+                joinChannels,
+                ImmutableList.of(0, 1),
+                maxMatchGroupSizeInBytes);
+
+        MergeJoinPagesBridge bridge = joinBridgeManager.getJoinBridge(Lifespan.taskWide());
+        for (Page page : buildInput) {
+            bridge.enqueuePage(page);
+        }
+        bridge.noMorePages();
+        return joinOperatorFactory;
+    }
+
+    private TaskContext createTaskContext()
+    {
+        return TestingTaskContext.createTaskContext(executor, scheduledExecutor, TEST_SESSION);
+    }
+}
@@ -16,7 +16,9 @@ package com.facebook.presto.operator;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.DataSize.Unit;
 import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.RowPagesBuilder;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.operator.OrderByOperator.OrderByOperatorFactory;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.sql.gen.OrderingCompiler;
@@ -38,6 +40,9 @@ import static com.facebook.airlift.testing.Assertions.assertGreaterThan;
 import static com.facebook.airlift.units.DataSize.succinctBytes;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.common.RuntimeMetricName.SPILL_MERGES_COUNT;
+import static com.facebook.presto.common.RuntimeMetricName.SPILL_MERGE_PASSES_COUNT;
+import static com.facebook.presto.common.RuntimeMetricName.SPILL_RUNS_COUNT;
 import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_LAST;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
@@ -59,6 +64,7 @@ public class TestOrderByOperator
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DummySpillerFactory spillerFactory;
+    private PagesIndexSortExecutor sortExecutor;
 
     @DataProvider
     public static Object[][] spillEnabled()
@@ -77,6 +83,7 @@ public class TestOrderByOperator
         executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
         scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
         spillerFactory = new DummySpillerFactory();
+        sortExecutor = new PagesIndexSortExecutor(4);
     }
 
     @AfterMethod
@@ -85,6 +92,7 @@ public class TestOrderByOperator
         executor.shutdownNow();
         scheduledExecutor.shutdownNow();
         spillerFactory = null;
+        sortExecutor.destroy();
     }
 
     @Test(dataProvider = "spillEnabled")
@@ -128,6 +136,141 @@ public class TestOrderByOperator
                 format("Spill state mismatch. Expected spill: %s, spill count: %s", spillEnabled, spillerFactory.getSpillsCount()));
     }
 
+    @Test(dataProvider = "spillEnabled")
+    public void testParallelSort(boolean spillEnabled, boolean revokeMemoryWhenAddingPages, long memoryLimit)
+    {
+        // enough rows to be sorted in four chunks
+        int numberOfRows = 80_000;
+        List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
+                .addSequencePage(numberOfRows / 2, 0, 0)
+                .addSequencePage(numberOfRows / 2, numberOfRows / 2, numberOfRows / 2)
+                .build();
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT, DOUBLE),
+                ImmutableList.of(1),
+                10,
+                ImmutableList.of(0),
+                ImmutableList.of(DESC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory),
+                new OrderingCompiler(),
+                64,
+                0,
+                4,
+                Optional.of(sortExecutor),
+                false);
+
+        DriverContext driverContext = createDriverContext(memoryLimit);
+        MaterializedResult.Builder expectedBuilder = resultBuilder(driverContext.getSession(), DOUBLE);
+        for (int i = 0; i < numberOfRows; i++) {
+            expectedBuilder.row((double) numberOfRows - i - 1);
+        }
+        MaterializedResult expected = expectedBuilder.build();
+
+        List<Page> pages = toPages(operatorFactory, driverContext, input, revokeMemoryWhenAddingPages);
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), expected.getTypes(), pages);
+        assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
+    @Test(dataProvider = "spillEnabled")
+    public void testNormalizedKeySort(boolean spillEnabled, boolean revokeMemoryWhenAddingPages, long memoryLimit)
+    {
+        // the values share a prefix longer than the normalized key, so they are ordered by the full comparator
+        List<Page> input = rowPagesBuilder(VARCHAR, BIGINT)
+                .row("a shared prefix longer than the key 2", 1L)
+                .row(null, 2L)
+                .row("b", 3L)
+                .pageBreak()
+                .row("a shared prefix longer than the key 1", 4L)
+                .row("a", 5L)
+                .row("a shared prefix longer than the key 2", 6L)
+                .build();
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(VARCHAR, BIGINT),
+                ImmutableList.of(1),
+                10,
+                ImmutableList.of(0, 1),
+                ImmutableList.of(DESC_NULLS_LAST, ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory),
+                new OrderingCompiler(),
+                64,
+                0,
+                1,
+                Optional.empty(),
+                true);
+
+        DriverContext driverContext = createDriverContext(memoryLimit);
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT)
+                .row(3L)
+                .row(1L)
+                .row(6L)
+                .row(4L)
+                .row(5L)
+                .row(2L)
+                .build();
+
+        assertOperatorEquals(operatorFactory, driverContext, input, expected, revokeMemoryWhenAddingPages);
+    }
+
+    @Test
+    public void testBoundedMergeFanIn()
+    {
+        // every page is revoked into its own run, so ten runs have to be merged with a fan-in of three
+        int numberOfPages = 10;
+        int rowsPerPage = 100;
+        RowPagesBuilder inputBuilder = rowPagesBuilder(BIGINT);
+        for (int page = 0; page < numberOfPages; page++) {
+            for (int row = 0; row < rowsPerPage; row++) {
+                inputBuilder.row((long) row * numberOfPages + page);
+            }
+            inputBuilder.pageBreak();
+        }
+        List<Page> input = inputBuilder.build();
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                10,
+                ImmutableList.of(0),
+                ImmutableList.of(ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                true,
+                Optional.of(spillerFactory),
+                new OrderingCompiler(),
+                3,
+                2,
+                1,
+                Optional.empty(),
+                false);
+
+        DriverContext driverContext = createDriverContext(0);
+        MaterializedResult.Builder expectedBuilder = resultBuilder(driverContext.getSession(), BIGINT);
+        for (long i = 0; i < numberOfPages * rowsPerPage; i++) {
+            expectedBuilder.row(i);
+        }
+        MaterializedResult expected = expectedBuilder.build();
+
+        List<Page> pages = toPages(operatorFactory, driverContext, input, true);
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), expected.getTypes(), pages);
+        assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
+
+        RuntimeStats runtimeStats = driverContext.getOperatorContexts().get(0).getRuntimeStats();
+        assertEquals(runtimeStats.getMetric(SPILL_RUNS_COUNT).getSum(), numberOfPages);
+        assertGreaterThan(runtimeStats.getMetric(SPILL_MERGES_COUNT).getSum(), 1L);
+        assertGreaterThan(runtimeStats.getMetric(SPILL_MERGE_PASSES_COUNT).getSum(), 1L);
+    }
+
     @Test(dataProvider = "spillEnabled")
     public void testSingleFieldKey(boolean spillEnabled, boolean revokeMemoryWhenAddingPages, long memoryLimit)
     {
@@ -14,22 +14,66 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.memory.context.MemoryReservationHandler;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_LAST;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newRootAggregatedMemoryContext;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.operator.NormalizedKeyEncoder.KEY_WORDS;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Math.max;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class TestPagesIndex
 {
+    private static final List<Type> SORT_TYPES = ImmutableList.of(BIGINT, BIGINT);
+    private static final List<Integer> SORT_CHANNELS = ImmutableList.of(0, 1);
+    private static final List<SortOrder> SORT_ORDERS = ImmutableList.of(ASC_NULLS_FIRST, DESC_NULLS_LAST);
+
+    private PagesIndexSortExecutor sortExecutor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        sortExecutor = new PagesIndexSortExecutor(4);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        sortExecutor.destroy();
+    }
+
     @Test
     public void testEstimatedSize()
     {
@@ -82,6 +126,241 @@ public class TestPagesIndex
         assertEquals(lazyCompactPagesIndex.getEstimatedSize(), eagerCompactPagesIndex.getEstimatedSize());
     }
 
+    @Test
+    public void testSortInParallel()
+    {
+        PagesIndex expected = newRandomPagesIndex(SORT_TYPES, 100_000);
+        PagesIndex actual = newRandomPagesIndex(SORT_TYPES, 100_000);
+        expected.sort(SORT_CHANNELS, SORT_ORDERS);
+
+        AggregatedMemoryContext memoryContext = newSimpleAggregatedMemoryContext();
+        assertSame(sortInParallel(actual, false, memoryContext), actual);
+        assertSortedValuesEqual(actual, expected, 0, actual.getPositionCount());
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    @Test
+    public void testSortInParallelYields()
+    {
+        PagesIndex expected = newRandomPagesIndex(SORT_TYPES, 100_000);
+        PagesIndex actual = newRandomPagesIndex(SORT_TYPES, 100_000);
+        expected.sort(SORT_CHANNELS, SORT_ORDERS);
+
+        DriverYieldSignal yieldSignal = new DriverYieldSignal();
+        yieldSignal.forceYieldForTesting();
+        AggregatedMemoryContext memoryContext = newSimpleAggregatedMemoryContext();
+        WorkProcessor<PagesIndex> sort = actual.sortInParallel(SORT_CHANNELS, SORT_ORDERS, 4, false, sortExecutor, yieldSignal, memoryContext);
+
+        int yields = 0;
+        while (!sort.process()) {
+            if (sort.isBlocked()) {
+                assertTrue(memoryContext.getBytes() > 0, "merged addresses are not accounted");
+                getFutureValue(sort.getBlockedFuture());
+            }
+            else {
+                yields++;
+            }
+        }
+        assertTrue(yields > 0, "sort did not yield while merging");
+        assertSame(sort.getResult(), actual);
+        assertSortedValuesEqual(actual, expected, 0, actual.getPositionCount());
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    @Test
+    public void testCloseParallelSort()
+            throws Exception
+    {
+        PagesIndex pagesIndex = newRandomPagesIndex(SORT_TYPES, 100_000);
+        long[] addresses = new long[pagesIndex.getPositionCount()];
+        for (int position = 0; position < addresses.length; position++) {
+            addresses[position] = pagesIndex.getValueAddresses().get(position);
+        }
+
+        PagesIndexSortExecutor singleThreadExecutor = new PagesIndexSortExecutor(1);
+        try {
+            // keep the only thread of the pool busy, so that the sort tasks are queued when the sort is closed
+            CountDownLatch release = new CountDownLatch(1);
+            ListenableFuture<?> blocker = singleThreadExecutor.getExecutor().submit(() -> awaitUninterruptibly(release));
+
+            AggregatedMemoryContext memoryContext = newSimpleAggregatedMemoryContext();
+            ParallelPagesIndexSort sort = pagesIndex.createParallelSort(SORT_CHANNELS, SORT_ORDERS, 4, false, singleThreadExecutor, new DriverYieldSignal(), memoryContext);
+            assertTrue(sort.process().getBlocked().isPresent(), "sort is not waiting for the sort tasks");
+            assertTrue(memoryContext.getBytes() > 0, "merged addresses are not accounted");
+
+            sort.close();
+            assertEquals(memoryContext.getBytes(), 0);
+
+            // the queued sort tasks do not touch the index once the sort is closed
+            release.countDown();
+            blocker.get(10, SECONDS);
+            singleThreadExecutor.getExecutor().submit(() -> {}).get(10, SECONDS);
+            for (int position = 0; position < addresses.length; position++) {
+                assertEquals(pagesIndex.getValueAddresses().get(position), addresses[position]);
+            }
+        }
+        finally {
+            singleThreadExecutor.destroy();
+        }
+    }
+
+    @Test
+    public void testSortWithNormalizedKeys()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, INTEGER, DOUBLE, VARCHAR, BOOLEAN);
+        List<List<Integer>> sortChannelsList = ImmutableList.of(
+                ImmutableList.of(0, 1),
+                ImmutableList.of(2, 4, 0),
+                ImmutableList.of(3, 0),
+                ImmutableList.of(1, 3, 2),
+                ImmutableList.of(4, 2, 1, 0));
+        for (List<Integer> sortChannels : sortChannelsList) {
+            for (int i = 0; i < SortOrder.values().length; i++) {
+                ImmutableList.Builder<SortOrder> sortOrders = ImmutableList.builder();
+                for (int key = 0; key < sortChannels.size(); key++) {
+                    sortOrders.add(SortOrder.values()[(i + key) % SortOrder.values().length]);
+                }
+                assertNormalizedKeySort(types, sortChannels, sortOrders.build(), newSimpleAggregatedMemoryContext());
+            }
+        }
+    }
+
+    @Test
+    public void testNormalizedKeySortMemory()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR);
+        List<Integer> sortChannels = ImmutableList.of(1, 0);
+        List<SortOrder> sortOrders = ImmutableList.of(ASC_NULLS_FIRST, DESC_NULLS_LAST);
+
+        // the normalized keys are reserved while the rows are sorted
+        TestingMemoryReservationHandler reservationHandler = new TestingMemoryReservationHandler(Long.MAX_VALUE);
+        assertNormalizedKeySort(types, sortChannels, sortOrders, newRootAggregatedMemoryContext(reservationHandler, 0));
+        assertEquals(reservationHandler.getPeakReservation(), sizeOfLongArray(10_000 * KEY_WORDS));
+        assertEquals(reservationHandler.getReservation(), 0);
+
+        // the rows are sorted on the full comparator when the keys cannot be reserved
+        reservationHandler = new TestingMemoryReservationHandler(sizeOfLongArray(10_000 * KEY_WORDS) - 1);
+        assertNormalizedKeySort(types, sortChannels, sortOrders, newRootAggregatedMemoryContext(reservationHandler, 0));
+        assertEquals(reservationHandler.getPeakReservation(), 0);
+        assertEquals(reservationHandler.getReservation(), 0);
+    }
+
+    @Test
+    public void testSortInParallelWithNormalizedKeys()
+    {
+        PagesIndex expected = newRandomPagesIndex(SORT_TYPES, 100_000);
+        PagesIndex actual = newRandomPagesIndex(SORT_TYPES, 100_000);
+        expected.sort(SORT_CHANNELS, SORT_ORDERS);
+
+        sortInParallel(actual, true, newSimpleAggregatedMemoryContext());
+        assertSortedValuesEqual(actual, expected, 0, actual.getPositionCount());
+    }
+
+    private PagesIndex sortInParallel(PagesIndex pagesIndex, boolean normalizedKeys, AggregatedMemoryContext memoryContext)
+    {
+        WorkProcessor<PagesIndex> sort = pagesIndex.sortInParallel(SORT_CHANNELS, SORT_ORDERS, 4, normalizedKeys, sortExecutor, new DriverYieldSignal(), memoryContext);
+        while (!sort.process()) {
+            getFutureValue(sort.getBlockedFuture());
+        }
+        return sort.getResult();
+    }
+
+    private static void assertNormalizedKeySort(List<Type> types, List<Integer> sortChannels, List<SortOrder> sortOrders, AggregatedMemoryContext memoryContext)
+    {
+        PagesIndex expected = newRandomValuesPagesIndex(types, 10_000);
+        PagesIndex actual = newRandomValuesPagesIndex(types, 10_000);
+        expected.sort(sortChannels, sortOrders);
+        actual.sort(sortChannels, sortOrders, 0, actual.getPositionCount(), true, memoryContext);
+
+        // rows with equal sort keys may be in any order, so only the sort keys are compared
+        for (int position = 0; position < actual.getPositionCount(); position++) {
+            for (int channel : sortChannels) {
+                String message = format("channel %s at position %s sorted by %s %s", channel, position, sortChannels, sortOrders);
+                Block actualValue = actual.getSingleValueBlock(channel, position);
+                Block expectedValue = expected.getSingleValueBlock(channel, position);
+                assertEquals(actualValue.isNull(0), expectedValue.isNull(0), message);
+                if (!actualValue.isNull(0)) {
+                    assertEquals(types.get(channel).compareTo(actualValue, 0, expectedValue, 0), 0, message);
+                }
+            }
+        }
+    }
+
+    private static PagesIndex newRandomValuesPagesIndex(List<Type> types, int positionCount)
+    {
+        Random random = new Random(42);
+        PagesIndex pagesIndex = newPagesIndex(types, positionCount, false);
+        for (int position = 0; position < positionCount; position += 1_000) {
+            Block[] blocks = new Block[types.size()];
+            for (int channel = 0; channel < types.size(); channel++) {
+                Type type = types.get(channel);
+                BlockBuilder blockBuilder = type.createBlockBuilder(null, 1_000);
+                for (int i = 0; i < 1_000; i++) {
+                    if (random.nextInt(10) == 0) {
+                        blockBuilder.appendNull();
+                    }
+                    else {
+                        writeRandomValue(type, blockBuilder, random);
+                    }
+                }
+                blocks[channel] = blockBuilder.build();
+            }
+            pagesIndex.addPage(new Page(blocks));
+        }
+        return pagesIndex;
+    }
+
+    private static void writeRandomValue(Type type, BlockBuilder blockBuilder, Random random)
+    {
+        // few distinct values, so that rows often tie on their leading sort keys
+        if (type.equals(BIGINT) || type.equals(INTEGER)) {
+            type.writeLong(blockBuilder, random.nextInt(10) - 5);
+        }
+        else if (type.equals(DOUBLE)) {
+            double[] values = {Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 2.5, Double.POSITIVE_INFINITY, Double.NaN};
+            type.writeDouble(blockBuilder, values[random.nextInt(values.length)]);
+        }
+        else if (type.equals(VARCHAR)) {
+            // values longer than the normalized key share a prefix, and are only ordered by the full comparator
+            String prefix = random.nextBoolean() ? "a prefix longer than the key " : "";
+            String suffix = "ab".substring(0, random.nextInt(3)) + (random.nextBoolean() ? "\0" : "");
+            type.writeSlice(blockBuilder, utf8Slice(prefix + suffix));
+        }
+        else if (type.equals(BOOLEAN)) {
+            type.writeBoolean(blockBuilder, random.nextBoolean());
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+    }
+
+    private static PagesIndex newRandomPagesIndex(List<Type> types, int positionCount)
+    {
+        // the same seed produces the same rows in every index
+        Random random = new Random(42);
+        PagesIndex pagesIndex = newPagesIndex(types, positionCount, false);
+        for (int position = 0; position < positionCount; position += 1_000) {
+            BlockBuilder first = BIGINT.createBlockBuilder(null, 1_000);
+            BlockBuilder second = BIGINT.createBlockBuilder(null, 1_000);
+            for (int i = 0; i < 1_000; i++) {
+                // few distinct values in the first channel, so that ties are broken by the second one
+                BIGINT.writeLong(first, random.nextInt(100));
+                BIGINT.writeLong(second, random.nextLong());
+            }
+            pagesIndex.addPage(new Page(first.build(), second.build()));
+        }
+        return pagesIndex;
+    }
+
+    private static void assertSortedValuesEqual(PagesIndex actual, PagesIndex expected, int startPosition, int endPosition)
+    {
+        for (int position = startPosition; position < endPosition; position++) {
+            for (int channel : SORT_CHANNELS) {
+                assertEquals(actual.getLong(channel, position), expected.getLong(channel, position), format("channel %s at position %s", channel, position));
+            }
+        }
+    }
+
     private static PagesIndex newPagesIndex(List<Type> types, int expectedPositions, boolean eagerCompact)
     {
         return new PagesIndex.TestingFactory(eagerCompact).newPagesIndex(types, expectedPositions);
@@ -93,4 +372,45 @@ public class TestPagesIndex
         Arrays.setAll(initialValues, i -> 100 * i);
         return createSequencePage(types, 7, initialValues);
     }
+
+    private static class TestingMemoryReservationHandler
+            implements MemoryReservationHandler
+    {
+        private final long maxReservation;
+        private long reservation;
+        private long peakReservation;
+
+        TestingMemoryReservationHandler(long maxReservation)
+        {
+            this.maxReservation = maxReservation;
+        }
+
+        long getReservation()
+        {
+            return reservation;
+        }
+
+        long getPeakReservation()
+        {
+            return peakReservation;
+        }
+
+        @Override
+        public ListenableFuture<?> reserveMemory(String allocationTag, long delta, boolean enforceBroadcastMemoryLimit)
+        {
+            reservation += delta;
+            peakReservation = max(peakReservation, reservation);
+            return immediateFuture(null);
+        }
+
+        @Override
+        public boolean tryReserveMemory(String allocationTag, long delta, boolean enforceBroadcastMemoryLimit)
+        {
+            if (reservation + delta > maxReservation) {
+                return false;
+            }
+            reserveMemory(allocationTag, delta, enforceBroadcastMemoryLimit);
+            return true;
+        }
+    }
 }
@@ -207,7 +207,7 @@ public class TestPartitionedOutputOperator
 
         PartitionedOutputOperator.PartitionedOutputFactory operatorFactory;
         if (shouldReplicate) {
-            operatorFactory = new PartitionedOutputOperator.PartitionedOutputFactory(buffer, PARTITION_MAX_MEMORY);
+            operatorFactory = new PartitionedOutputOperator.PartitionedOutputFactory(buffer, PARTITION_MAX_MEMORY, false);
             return (PartitionedOutputOperator) operatorFactory
                     .createOutputOperator(0, new PlanNodeId("plan-node-0"), REPLICATION_TYPES, Function.identity(), Optional.of(outputPartitioning), serdeFactory)
                     .createOperator(driverContext);
@@ -216,7 +216,8 @@ public class TestPartitionedOutputOperator
             operatorFactory = new PartitionedOutputOperator.PartitionedOutputFactory(
 
                     buffer,
-                    PARTITION_MAX_MEMORY);
+                    PARTITION_MAX_MEMORY,
+                    false);
             return (PartitionedOutputOperator) operatorFactory
                     .createOutputOperator(0, new PlanNodeId("plan-node-0"), TYPES, Function.identity(), Optional.of(outputPartitioning), serdeFactory)
                     .createOperator(driverContext);
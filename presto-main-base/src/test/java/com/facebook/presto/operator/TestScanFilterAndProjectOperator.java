@@ -128,6 +128,7 @@ public class TestScanFilterAndProjectOperator
                 ImmutableList.of(),
                 ImmutableList.of(VARCHAR),
                 Optional.empty(),
+                Optional.empty(),
                 new DataSize(0, BYTE),
                 0);
 
@@ -177,6 +178,7 @@ public class TestScanFilterAndProjectOperator
                 ImmutableList.of(),
                 ImmutableList.of(BIGINT),
                 Optional.empty(),
+                Optional.empty(),
                 new DataSize(64, KILOBYTE),
                 2);
 
@@ -227,6 +229,7 @@ public class TestScanFilterAndProjectOperator
                 ImmutableList.of(),
                 ImmutableList.of(BIGINT),
                 Optional.empty(),
+                Optional.empty(),
                 new DataSize(0, BYTE),
                 0);
 
@@ -270,6 +273,7 @@ public class TestScanFilterAndProjectOperator
                 ImmutableList.of(),
                 ImmutableList.of(BIGINT),
                 Optional.empty(),
+                Optional.empty(),
                 new DataSize(0, BYTE),
                 0);
 
@@ -319,6 +323,7 @@ public class TestScanFilterAndProjectOperator
                 ImmutableList.of(),
                 ImmutableList.of(VARCHAR),
                 Optional.empty(),
+                Optional.empty(),
                 new DataSize(0, BYTE),
                 0);
 
@@ -377,6 +382,7 @@ public class TestScanFilterAndProjectOperator
                 ImmutableList.of(),
                 ImmutableList.of(BIGINT),
                 Optional.empty(),
+                Optional.empty(),
                 new DataSize(0, BYTE),
                 0);
 
@@ -450,6 +456,7 @@ public class TestScanFilterAndProjectOperator
                 ImmutableList.of(),
                 ImmutableList.of(BIGINT),
                 Optional.empty(),
+                Optional.empty(),
                 new DataSize(0, BYTE),
                 0);
 
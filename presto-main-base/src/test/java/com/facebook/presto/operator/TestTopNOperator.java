@@ -32,6 +32,7 @@ import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
 import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_LAST;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
@@ -167,6 +168,63 @@ public class TestTopNOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
+    @Test
+    public void testNormalizedKeys()
+    {
+        // the values share a prefix longer than the normalized key, so the rows tied on their normalized keys are kept
+        List<Page> input = rowPagesBuilder(VARCHAR, BIGINT)
+                .row("a shared prefix longer than the key 1", 1L)
+                .row(null, 2L)
+                .row("a shared prefix longer than the key 3", 3L)
+                .pageBreak()
+                .row("b", 4L)
+                .row("a shared prefix longer than the key 2", 5L)
+                .pageBreak()
+                .row("a shared prefix longer than the key 2", 6L)
+                .row("a", 7L)
+                .row(null, 8L)
+                .pageBreak()
+                .row("a", 9L)
+                .row("c", 10L)
+                .build();
+
+        TopNOperatorFactory operatorFactory = new TopNOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(VARCHAR, BIGINT),
+                4,
+                ImmutableList.of(0, 1),
+                ImmutableList.of(ASC_NULLS_FIRST, DESC_NULLS_LAST),
+                true);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT)
+                .row(null, 8L)
+                .row(null, 2L)
+                .row("a", 9L)
+                .row("a", 7L)
+                .build();
+
+        assertOperatorEquals(operatorFactory, driverContext, input, expected);
+
+        // once the top rows are found, the rows sorting after them are rejected on their normalized keys
+        operatorFactory = new TopNOperatorFactory(
+                1,
+                new PlanNodeId("test"),
+                ImmutableList.of(VARCHAR, BIGINT),
+                3,
+                ImmutableList.of(0, 1),
+                ImmutableList.of(DESC_NULLS_LAST, ASC_NULLS_LAST),
+                true);
+
+        expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT)
+                .row("c", 10L)
+                .row("b", 4L)
+                .row("a shared prefix longer than the key 3", 3L)
+                .build();
+
+        assertOperatorEquals(operatorFactory, driverContext, input, expected);
+    }
+
     @Test
     public void testLimitZero()
             throws Exception
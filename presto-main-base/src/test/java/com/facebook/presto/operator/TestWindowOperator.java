@@ -16,18 +16,22 @@ package com.facebook.presto.operator;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.DataSize.Unit;
 import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.RowPagesBuilder;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.operator.WindowOperator.WindowOperatorFactory;
+import com.facebook.presto.operator.window.DenseRankFunction;
 import com.facebook.presto.operator.window.FirstValueFunction;
 import com.facebook.presto.operator.window.FrameInfo;
 import com.facebook.presto.operator.window.LagFunction;
 import com.facebook.presto.operator.window.LastValueFunction;
 import com.facebook.presto.operator.window.LeadFunction;
 import com.facebook.presto.operator.window.NthValueFunction;
+import com.facebook.presto.operator.window.RankFunction;
 import com.facebook.presto.operator.window.ReflectionWindowFunctionSupplier;
 import com.facebook.presto.operator.window.RowNumberFunction;
+import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.gen.OrderingCompiler;
@@ -59,12 +63,16 @@ import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqual
 import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.WindowFunctionDefinition.window;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.FOLLOWING;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.PRECEDING;
 import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.UNBOUNDED_FOLLOWING;
 import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.UNBOUNDED_PRECEDING;
 import static com.facebook.presto.spi.plan.WindowNode.Frame.WindowType.RANGE;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.WindowType.ROWS;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static java.lang.String.format;
+import static java.util.Collections.nCopies;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
@@ -93,6 +101,22 @@ public class TestWindowOperator
     private static final List<WindowFunctionDefinition> LEAD = ImmutableList.of(
             window(new ReflectionWindowFunctionSupplier<>("lead", VARCHAR, ImmutableList.of(VARCHAR, BIGINT, VARCHAR), LeadFunction.class), VARCHAR, UNBOUNDED_FRAME, 1, 3, 4));
 
+    // ROWS BETWEEN <channel 5> PRECEDING AND <channel 6> FOLLOWING
+    private static final FrameInfo BOUNDED_ROWS_FRAME = new FrameInfo(ROWS, PRECEDING, Optional.of(5), Optional.empty(), FOLLOWING, Optional.of(6), Optional.empty(), Optional.empty(), Optional.empty());
+
+    private static final List<WindowFunctionDefinition> STREAMABLE_FUNCTIONS = ImmutableList.of(
+            window(new ReflectionWindowFunctionSupplier<>("row_number", BIGINT, ImmutableList.of(), RowNumberFunction.class), BIGINT, UNBOUNDED_FRAME),
+            window(new ReflectionWindowFunctionSupplier<>("lag", VARCHAR, ImmutableList.of(VARCHAR, BIGINT, VARCHAR), LagFunction.class), VARCHAR, UNBOUNDED_FRAME, 2, 3, 4),
+            window(new ReflectionWindowFunctionSupplier<>("lead", VARCHAR, ImmutableList.of(VARCHAR, BIGINT, VARCHAR), LeadFunction.class), VARCHAR, UNBOUNDED_FRAME, 2, 3, 4),
+            window(new ReflectionWindowFunctionSupplier<>("first_value", VARCHAR, ImmutableList.<Type>of(VARCHAR), FirstValueFunction.class), VARCHAR, BOUNDED_ROWS_FRAME, 2),
+            window(new ReflectionWindowFunctionSupplier<>("last_value", VARCHAR, ImmutableList.<Type>of(VARCHAR), LastValueFunction.class), VARCHAR, BOUNDED_ROWS_FRAME, 2));
+
+    private static final List<WindowFunctionDefinition> RANKING = ImmutableList.of(
+            window(new ReflectionWindowFunctionSupplier<>("rank", BIGINT, ImmutableList.of(), RankFunction.class), BIGINT, UNBOUNDED_FRAME),
+            window(new ReflectionWindowFunctionSupplier<>("dense_rank", BIGINT, ImmutableList.of(), DenseRankFunction.class), BIGINT, UNBOUNDED_FRAME));
+
+    private static final List<Type> STREAMING_INPUT_TYPES = ImmutableList.of(BIGINT, BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT, BIGINT, BIGINT);
+
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DummySpillerFactory spillerFactory;
@@ -700,6 +724,85 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected, revokeMemoryWhenAddingPages);
     }
 
+    @Test(dataProvider = "spillEnabled")
+    public void testStreamingSpilledPartitions(boolean spillEnabled, boolean revokeMemoryWhenAddingPages, long memoryLimit)
+    {
+        assertStreamingMatchesPagesIndex(STREAMABLE_FUNCTIONS, Ints.asList(0, 1), Ints.asList(1), spillEnabled, revokeMemoryWhenAddingPages, memoryLimit);
+    }
+
+    @Test(dataProvider = "spillEnabled")
+    public void testStreamingSpilledRanking(boolean spillEnabled, boolean revokeMemoryWhenAddingPages, long memoryLimit)
+    {
+        // sort on a key with peers, the output is the same for any order of peers
+        assertStreamingMatchesPagesIndex(RANKING, Ints.asList(0, 7), Ints.asList(7), spillEnabled, revokeMemoryWhenAddingPages, memoryLimit);
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Window function accessed row \\d+ of a partition streamed with 4 buffered rows.*")
+    public void testStreamingOffsetBeyondBuffer()
+    {
+        List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR)
+                .row("a", "A1", 1L, 10L, "D")
+                .row("a", "A2", 2L, 10L, "D")
+                .row("a", "A3", 3L, 10L, "D")
+                .pageBreak()
+                .row("a", "A4", 4L, 10L, "D")
+                .row("a", "A5", 5L, 10L, "D")
+                .row("a", "A6", 6L, 10L, "D")
+                .pageBreak()
+                .row("a", "A7", 7L, 10L, "D")
+                .row("a", "A8", 8L, 10L, "D")
+                .row("a", "A9", 9L, 10L, "D")
+                .row("a", "A10", 10L, 10L, "D")
+                .row("a", "A11", 11L, 10L, "D")
+                .build();
+
+        WindowOperatorFactory operatorFactory = createStreamingFactory(
+                ImmutableList.of(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR),
+                Ints.asList(0, 1, 2),
+                LAG,
+                Ints.asList(0),
+                Ints.asList(2),
+                4);
+
+        toPages(operatorFactory, createDriverContext(8), input, true);
+    }
+
+    private void assertStreamingMatchesPagesIndex(
+            List<WindowFunctionDefinition> functions,
+            List<Integer> outputChannels,
+            List<Integer> sortChannels,
+            boolean spillEnabled,
+            boolean revokeMemoryWhenAddingPages,
+            long memoryLimit)
+    {
+        // two partitions of 60 rows with unique sort keys on channel 1 and peers on channel 7, spread across pages in arbitrary order
+        RowPagesBuilder inputBuilder = rowPagesBuilder(STREAMING_INPUT_TYPES);
+        for (int i = 0; i < 120; i++) {
+            int row = (i * 37) % 120;
+            long sortKey = row / 2;
+            inputBuilder.row((long) (row % 2), sortKey, "v" + sortKey, (long) (row % 3 + 1), "D", 2L, 1L, sortKey / 3);
+            if (i % 30 == 29) {
+                inputBuilder.pageBreak();
+            }
+        }
+        List<Page> input = inputBuilder.build();
+        List<SortOrder> sortOrder = ImmutableList.of(SortOrder.ASC_NULLS_LAST);
+
+        WindowOperatorFactory pagesIndexFactory = createFactoryUnbounded(STREAMING_INPUT_TYPES, outputChannels, functions, Ints.asList(0), sortChannels, sortOrder, false);
+        DriverContext pagesIndexDriverContext = createDriverContext();
+        List<Type> outputTypes = ImmutableList.<Type>builder()
+                .addAll(outputChannels.stream().map(STREAMING_INPUT_TYPES::get).iterator())
+                .addAll(functions.stream().map(WindowFunctionDefinition::getType).iterator())
+                .build();
+        MaterializedResult expected = toMaterializedResult(pagesIndexDriverContext.getSession(), outputTypes, toPages(pagesIndexFactory, pagesIndexDriverContext, input));
+
+        WindowOperatorFactory operatorFactory = spillEnabled
+                ? createStreamingFactory(STREAMING_INPUT_TYPES, outputChannels, functions, Ints.asList(0), sortChannels, 4)
+                : createFactoryUnbounded(STREAMING_INPUT_TYPES, outputChannels, functions, Ints.asList(0), sortChannels, sortOrder, false);
+        DriverContext driverContext = createDriverContext(memoryLimit);
+        assertOperatorEquals(operatorFactory, driverContext, input, expected, revokeMemoryWhenAddingPages);
+    }
+
     @Test
     public void testFindEndPosition()
     {
@@ -812,6 +915,35 @@ public class TestWindowOperator
                 new OrderingCompiler());
     }
 
+    private WindowOperatorFactory createStreamingFactory(
+            List<? extends Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<WindowFunctionDefinition> functions,
+            List<Integer> partitionChannels,
+            List<Integer> sortChannels,
+            int streamingBufferedRows)
+    {
+        return new WindowOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                sourceTypes,
+                outputChannels,
+                functions,
+                partitionChannels,
+                ImmutableList.of(),
+                sortChannels,
+                nCopies(sortChannels.size(), SortOrder.ASC_NULLS_LAST),
+                0,
+                10,
+                new PagesIndex.TestingFactory(false),
+                true,
+                spillerFactory,
+                new OrderingCompiler(),
+                true,
+                streamingBufferedRows,
+                false);
+    }
+
     private DriverContext createDriverContext()
     {
         return createDriverContext(Long.MAX_VALUE);
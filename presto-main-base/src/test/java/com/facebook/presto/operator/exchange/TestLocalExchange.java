@@ -17,6 +17,7 @@ import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.SequencePageBuilder;
 import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.DictionaryBlock;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.operator.InterpretedHashGenerator;
@@ -39,6 +40,7 @@ import com.facebook.presto.spi.plan.PartitioningHandle;
 import com.facebook.presto.sql.planner.PartitioningProviderManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
@@ -56,6 +58,7 @@ import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.operator.PipelineExecutionStrategy.GROUPED_EXECUTION;
 import static com.facebook.presto.operator.PipelineExecutionStrategy.UNGROUPED_EXECUTION;
 import static com.facebook.presto.operator.exchange.LocalExchange.createPartitionFunction;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.ZERO_COPY_LOCAL_EXCHANGE_ENABLED;
 import static com.facebook.presto.spi.connector.ConnectorBucketNodeMap.createBucketNodeMap;
 import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.SOFT_AFFINITY;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
@@ -65,6 +68,8 @@ import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_PAS
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
 import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
@@ -451,6 +456,141 @@ public class TestLocalExchange
         });
     }
 
+    @Test(dataProvider = "executionStrategy")
+    public void testZeroCopyPartition(PipelineExecutionStrategy executionStrategy)
+    {
+        LocalExchangeFactory localExchangeFactory = new LocalExchangeFactory(
+                partitioningProviderManager,
+                testSessionBuilder()
+                        .setSystemProperty(ZERO_COPY_LOCAL_EXCHANGE_ENABLED, "true")
+                        .build(),
+                FIXED_HASH_DISTRIBUTION,
+                2,
+                TYPES,
+                ImmutableList.of(0),
+                Optional.empty(),
+                executionStrategy,
+                LOCAL_EXCHANGE_MAX_BUFFERED_BYTES);
+        LocalExchangeSinkFactoryId localExchangeSinkFactoryId = localExchangeFactory.newSinkFactoryId();
+        localExchangeFactory.noMoreSinkFactories();
+
+        run(localExchangeFactory, executionStrategy, exchange -> {
+            LocalExchangeSinkFactory sinkFactory = exchange.getSinkFactory(localExchangeSinkFactoryId);
+            LocalExchangeSink sink = sinkFactory.createSink();
+            sinkFactory.close();
+            sinkFactory.noMoreSinkFactories();
+
+            LocalExchangeSource sourceA = exchange.getSource(0);
+            LocalExchangeSource sourceB = exchange.getSource(1);
+
+            // most of the rows go to the first partition
+            LocalPartitionGenerator partitionGenerator = new LocalPartitionGenerator(new InterpretedHashGenerator(TYPES, new int[] {0}), 2);
+            Page sequencePage = createPage(0);
+            IntArrayList positions = new IntArrayList();
+            int secondPartitionPositions = 0;
+            for (int position = 0; position < sequencePage.getPositionCount(); position++) {
+                if (partitionGenerator.getPartition(sequencePage, position) == 0 || secondPartitionPositions++ < 5) {
+                    positions.add(position);
+                }
+            }
+            Page page = sequencePage.copyPositions(positions.elements(), 0, positions.size());
+
+            sink.addPage(page);
+            assertSource(sourceA, 1);
+            assertSource(sourceB, 1);
+
+            long bufferedBytes = exchange.getBufferedBytes();
+
+            // the second partition has too few of the rows to retain the whole input page, so they are copied on removal
+            Page pageB = sourceB.removePage();
+            assertFalse(pageB.getBlock(0) instanceof DictionaryBlock, "partition is a view over the input page");
+            assertEquals(pageB.getPositionCount(), 5);
+            // the input page is still referenced by the view of the first partition
+            assertEquals(exchange.getBufferedBytes(), bufferedBytes);
+
+            Page pageA = sourceA.removePage();
+            assertTrue(pageA.getBlock(0) instanceof DictionaryBlock, "partition is not a view over the input page");
+            assertExchangeTotalBufferedBytes(exchange, 0);
+
+            // the input page is accounted once, with the positions of both views
+            assertEquals(bufferedBytes, page.getRetainedSizeInBytes() + sizeOfIntArray(pageA.getPositionCount()) + sizeOfIntArray(pageB.getPositionCount()));
+
+            assertEquals(pageA.getPositionCount() + pageB.getPositionCount(), page.getPositionCount());
+            for (int position = 0; position < pageA.getPositionCount(); position++) {
+                assertEquals(partitionGenerator.getPartition(pageA, position), 0);
+            }
+            for (int position = 0; position < pageB.getPositionCount(); position++) {
+                assertEquals(partitionGenerator.getPartition(pageB, position), 1);
+            }
+
+            sink.finish();
+            assertSourceFinished(sourceA);
+            assertSourceFinished(sourceB);
+        });
+    }
+
+    @Test(dataProvider = "executionStrategy")
+    public void testZeroCopyEvenPartitions(PipelineExecutionStrategy executionStrategy)
+    {
+        int partitionCount = 16;
+        LocalExchangeFactory localExchangeFactory = new LocalExchangeFactory(
+                partitioningProviderManager,
+                testSessionBuilder()
+                        .setSystemProperty(ZERO_COPY_LOCAL_EXCHANGE_ENABLED, "true")
+                        .build(),
+                FIXED_HASH_DISTRIBUTION,
+                partitionCount,
+                TYPES,
+                ImmutableList.of(0),
+                Optional.empty(),
+                executionStrategy,
+                LOCAL_EXCHANGE_MAX_BUFFERED_BYTES);
+        LocalExchangeSinkFactoryId localExchangeSinkFactoryId = localExchangeFactory.newSinkFactoryId();
+        localExchangeFactory.noMoreSinkFactories();
+
+        run(localExchangeFactory, executionStrategy, exchange -> {
+            LocalExchangeSinkFactory sinkFactory = exchange.getSinkFactory(localExchangeSinkFactoryId);
+            LocalExchangeSink sink = sinkFactory.createSink();
+            sinkFactory.close();
+            sinkFactory.noMoreSinkFactories();
+
+            Page page = SequencePageBuilder.createSequencePage(TYPES, 10_000, 0);
+            sink.addPage(page);
+
+            LocalPartitionGenerator partitionGenerator = new LocalPartitionGenerator(new InterpretedHashGenerator(TYPES, new int[] {0}), partitionCount);
+            int[] partitionPositions = new int[partitionCount];
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                partitionPositions[partitionGenerator.getPartition(page, position)]++;
+            }
+
+            // no rows are copied by the exchange: every partition is sent a reference to the whole input page
+            long expectedBufferedBytes = page.getRetainedSizeInBytes();
+            for (int partition = 0; partition < partitionCount; partition++) {
+                assertTrue(partitionPositions[partition] > 0 && partitionPositions[partition] < page.getPositionCount() / 2);
+                LocalExchangeSource source = exchange.getSource(partition);
+                assertSource(source, 1);
+                assertEquals(source.getBufferInfo().getBufferedBytes(), page.getRetainedSizeInBytes() + sizeOfIntArray(partitionPositions[partition]));
+                expectedBufferedBytes += sizeOfIntArray(partitionPositions[partition]);
+            }
+            assertEquals(exchange.getBufferedBytes(), expectedBufferedBytes);
+
+            // with the rows spread over many partitions, the rows are copied on removal and no partition retains the whole input page
+            long retainedSizeInBytes = 0;
+            int positionCount = 0;
+            for (int partition = 0; partition < partitionCount; partition++) {
+                Page partitionPage = exchange.getSource(partition).removePage();
+                assertFalse(partitionPage.getBlock(0) instanceof DictionaryBlock, "partition is a view over the input page");
+                retainedSizeInBytes += partitionPage.getRetainedSizeInBytes();
+                positionCount += partitionPage.getPositionCount();
+            }
+            assertEquals(positionCount, page.getPositionCount());
+            assertTrue(retainedSizeInBytes < 2 * page.getRetainedSizeInBytes(), format("partitions retain %s bytes of a %s bytes page", retainedSizeInBytes, page.getRetainedSizeInBytes()));
+            assertExchangeTotalBufferedBytes(exchange, 0);
+
+            sink.finish();
+        });
+    }
+
     @Test
     public void testCreatePartitionFunction()
     {
@@ -40,6 +40,7 @@ import com.facebook.presto.operator.PartitionFunction;
 import com.facebook.presto.operator.PrecomputedHashGenerator;
 import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.operator.repartition.OptimizedPartitionedOutputOperator.OptimizedPartitionedOutputFactory;
+import com.facebook.presto.operator.repartition.PartitionedOutputInfo.HeavyHitter;
 import com.facebook.presto.spi.page.PagesSerde;
 import com.facebook.presto.spi.page.SerializedPage;
 import com.facebook.presto.spi.plan.PlanNodeId;
@@ -64,6 +65,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.airlift.testing.Assertions.assertBetweenInclusive;
@@ -75,6 +77,7 @@ import static com.facebook.presto.block.BlockAssertions.Encoding.DICTIONARY;
 import static com.facebook.presto.block.BlockAssertions.Encoding.RUN_LENGTH;
 import static com.facebook.presto.block.BlockAssertions.createLongDictionaryBlock;
 import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.block.BlockAssertions.createMapType;
 import static com.facebook.presto.block.BlockAssertions.createRLEBlock;
 import static com.facebook.presto.block.BlockAssertions.createRandomLongsBlock;
@@ -94,14 +97,18 @@ import static com.facebook.presto.execution.buffer.BufferState.TERMINAL_BUFFER_S
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
 import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.operator.InterpretedHashGenerator.createPositionalWithTypes;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
 import static com.facebook.presto.operator.PageAssertions.mergePages;
 import static com.facebook.presto.operator.PageAssertions.updateBlockTypesWithHashBlockAndNullBlock;
+import static com.facebook.presto.operator.repartition.PartitionSkewTracker.SAMPLING_INTERVAL;
 import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
 import static com.facebook.presto.tpch.TpchMetadata.TINY_SCHEMA_NAME;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestOptimizedPartitionedOutputOperator
 {
@@ -824,6 +831,57 @@ public class TestOptimizedPartitionedOutputOperator
         verifyOutputSizes(operator, PARTITION_COUNT * PAGE_COUNT * TESTING_PAGE_WITH_RLE_BLOCK.getLogicalSizeInBytes(), PARTITION_COUNT * PAGE_COUNT * TESTING_PAGE_WITH_NULL_AND_RLE_BLOCK.getPositionCount());
     }
 
+    @Test
+    public void testSkewReporting()
+    {
+        // every third row has the same key
+        long hotKey = 7;
+        Page page = new Page(createLongsBlock(LongStream.range(0, 6400)
+                .map(position -> position % 3 == 0 ? hotKey : 10_000 + position)
+                .boxed()
+                .collect(toImmutableList())));
+        PartitionFunction partitionFunction = new LocalPartitionGenerator(new PrecomputedHashGenerator(0), PARTITION_COUNT);
+
+        OptimizedPartitionedOutputOperator operator = createOptimizedPartitionedOutputOperator(
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                partitionFunction,
+                createPartitionedOutputBuffer(),
+                OptionalInt.empty(),
+                MAX_MEMORY,
+                true);
+        processPages(operator, page);
+
+        PartitionedOutputInfo info = (PartitionedOutputInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+        assertEquals(info.getPartitionSizesInBytes().size(), PARTITION_COUNT);
+        assertEquals(info.getPartitionSizesInBytes().stream().mapToLong(Long::longValue).sum(), operator.getOperatorContext().getOutputDataSize().getTotalCount());
+        assertEquals(info.getRowsSampled(), PAGE_COUNT * page.getPositionCount() / SAMPLING_INTERVAL);
+
+        assertEquals(info.getHeavyHitters().size(), 1);
+        HeavyHitter heavyHitter = info.getHeavyHitters().get(0);
+        assertEquals(heavyHitter.getKeyHash(), createPositionalWithTypes(ImmutableList.of(BIGINT)).hashPosition(0, page));
+        assertEquals(heavyHitter.getPartition(), partitionFunction.getPartition(page, 0));
+        assertTrue(heavyHitter.getRowsSampled() >= info.getRowsSampled() / 3);
+        long hotPartitionSizeInBytes = info.getPartitionSizesInBytes().get(heavyHitter.getPartition());
+        info.getPartitionSizesInBytes().forEach(sizeInBytes -> assertTrue(sizeInBytes <= hotPartitionSizeInBytes));
+
+        // without skew reporting only the sizes of the partitions are tracked
+        operator = createOptimizedPartitionedOutputOperator(
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                partitionFunction,
+                createPartitionedOutputBuffer(),
+                OptionalInt.empty(),
+                MAX_MEMORY,
+                false);
+        processPages(operator, page);
+
+        info = (PartitionedOutputInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+        assertEquals(info.getPartitionSizesInBytes().get(heavyHitter.getPartition()).longValue(), hotPartitionSizeInBytes);
+        assertEquals(info.getRowsSampled(), 0);
+        assertEquals(info.getHeavyHitters(), ImmutableList.of());
+    }
+
     private static void processPages(OptimizedPartitionedOutputOperator operator, Page testingPageWithRleBlock)
     {
         for (int i = 0; i < PAGE_COUNT; i++) {
@@ -897,6 +955,18 @@ public class TestOptimizedPartitionedOutputOperator
             PartitionedOutputBuffer buffer,
             OptionalInt nullChannel,
             DataSize maxMemory)
+    {
+        return createOptimizedPartitionedOutputOperator(types, partitionChannel, partitionFunction, buffer, nullChannel, maxMemory, false);
+    }
+
+    private OptimizedPartitionedOutputOperator createOptimizedPartitionedOutputOperator(
+            List<Type> types,
+            List<Integer> partitionChannel,
+            PartitionFunction partitionFunction,
+            PartitionedOutputBuffer buffer,
+            OptionalInt nullChannel,
+            DataSize maxMemory,
+            boolean skewReportingEnabled)
     {
         PagesSerdeFactory serdeFactory = new PagesSerdeFactory(new BlockEncodingManager(), CompressionCodec.NONE);
 
@@ -907,7 +977,7 @@ public class TestOptimizedPartitionedOutputOperator
                 false,
                 nullChannel);
 
-        OptimizedPartitionedOutputFactory operatorFactory = new OptimizedPartitionedOutputFactory(buffer, maxMemory);
+        OptimizedPartitionedOutputFactory operatorFactory = new OptimizedPartitionedOutputFactory(buffer, maxMemory, skewReportingEnabled);
 
         return (OptimizedPartitionedOutputOperator) operatorFactory
                 .createOutputOperator(0, new PlanNodeId("plan-node-0"), types, Function.identity(), Optional.of(outputPartitioning), serdeFactory)
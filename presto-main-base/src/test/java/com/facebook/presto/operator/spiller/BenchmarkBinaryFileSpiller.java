@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator.spiller;
 
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.CompressionCodec;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
@@ -26,6 +27,7 @@ import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.spiller.SpillerStats;
 import com.facebook.presto.spiller.TestingSpillContext;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import io.airlift.tpch.LineItem;
 import io.airlift.tpch.LineItemGenerator;
@@ -47,11 +49,14 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.common.type.VarcharType.createUnboundedVarcharType;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 @State(Scope.Thread)
@@ -103,6 +108,18 @@ public class BenchmarkBinaryFileSpiller
         @Param("false")
         private boolean encryptionEnabled;
 
+        @Param({"false", "true"})
+        private boolean pipelinedWriteEnabled;
+
+        @Param("false")
+        private boolean directIoEnabled;
+
+        @Param("1")
+        private int writeBufferSizeInMegabytes = 1;
+
+        @Param("4")
+        private int maxWritesInFlight = 4;
+
         private List<Page> pages;
         private Spiller readSpiller;
 
@@ -113,14 +130,21 @@ public class BenchmarkBinaryFileSpiller
         public void setup()
                 throws ExecutionException, InterruptedException
         {
+            // the pipelined spiller needs a separate pool for its writes, as it waits for them
+            ListeningExecutorService writeExecutor = pipelinedWriteEnabled ? listeningDecorator(newFixedThreadPool(maxWritesInFlight)) : MoreExecutors.newDirectExecutorService();
             singleStreamSpillerFactory = new FileSingleStreamSpillerFactory(
                     MoreExecutors.newDirectExecutorService(),
+                    writeExecutor,
                     BLOCK_ENCODING_MANAGER,
                     spillerStats,
                     ImmutableList.of(SPILL_PATH),
                     1.0,
                     compressionCodec,
-                    encryptionEnabled);
+                    encryptionEnabled,
+                    pipelinedWriteEnabled,
+                    new DataSize(writeBufferSizeInMegabytes, MEGABYTE),
+                    maxWritesInFlight,
+                    directIoEnabled);
             spillerFactory = new GenericSpillerFactory(singleStreamSpillerFactory);
             pages = createInputPages();
             readSpiller = spillerFactory.create(TYPES, new TestingSpillContext(), newSimpleAggregatedMemoryContext());
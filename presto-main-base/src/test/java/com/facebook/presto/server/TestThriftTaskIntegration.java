@@ -26,6 +26,8 @@ import com.facebook.drift.transport.netty.client.DriftNettyMethodInvokerFactory;
 import com.facebook.drift.transport.netty.server.DriftNettyServerModule;
 import com.facebook.drift.transport.netty.server.DriftNettyServerTransport;
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.execution.DynamicFilterSummary;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
@@ -58,6 +60,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
@@ -279,6 +282,24 @@ public class TestThriftTaskIntegration
                 {
                     throw new UnsupportedOperationException();
                 }
+
+                @Override
+                public DynamicFilterSummary getDynamicFilterSummary(TaskId taskId)
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(TaskId taskId, long currentVersion)
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void addRemoteDynamicFilters(TaskId taskId, Map<String, Domain> domains)
+                {
+                    throw new UnsupportedOperationException();
+                }
             };
         }
     }
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.spiller;
 
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.CompressionCodec;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.BlockBuilder;
@@ -20,6 +21,7 @@ import com.facebook.presto.common.block.BlockEncodingManager;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.PageAssertions;
+import com.facebook.presto.operator.WorkProcessor;
 import com.facebook.presto.spi.page.PageCodecMarker;
 import com.facebook.presto.spi.page.PagesSerdeUtil;
 import com.facebook.presto.spi.page.SerializedPage;
@@ -34,10 +36,12 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
+import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.VarbinaryType.VARBINARY;
@@ -50,6 +54,7 @@ import static java.lang.Double.doubleToLongBits;
 import static java.nio.file.Files.newInputStream;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class TestFileSingleStreamSpiller
@@ -150,6 +155,132 @@ public class TestFileSingleStreamSpiller
         assertEquals(memoryContext.getBytes(), 0);
     }
 
+    @DataProvider(name = "directIo")
+    public Object[][] createDirectIo()
+    {
+        return new Object[][] {{false}, {true}};
+    }
+
+    @Test(dataProvider = "directIo")
+    public void testPipelinedSpill(boolean directIo)
+            throws Exception
+    {
+        File spillPath = new File(tempDirectory, UUID.randomUUID().toString());
+        ListeningExecutorService writeExecutor = listeningDecorator(newCachedThreadPool());
+        SpillerStats spillerStats = new SpillerStats();
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor,
+                writeExecutor,
+                new BlockEncodingManager(),
+                spillerStats,
+                ImmutableList.of(spillPath.toPath()),
+                1.0,
+                CompressionCodec.LZ4,
+                false,
+                true,
+                new DataSize(5, KILOBYTE),
+                2,
+                directIo);
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+        SingleStreamSpiller singleStreamSpiller = spillerFactory.create(TYPES, new TestingSpillContext(), memoryContext);
+        assertTrue(singleStreamSpiller instanceof PipelinedFileSingleStreamSpiller);
+        PipelinedFileSingleStreamSpiller spiller = (PipelinedFileSingleStreamSpiller) singleStreamSpiller;
+        if (!directIo) {
+            assertFalse(spiller.isDirectIo());
+        }
+
+        // buffers are rounded up to the alignment and all of them are reserved up front
+        assertEquals(memoryContext.getBytes() % PipelinedFileSingleStreamSpiller.DEFAULT_ALIGNMENT, 0);
+        assertTrue(memoryContext.getBytes() >= 2 * 8 * 1024);
+        long writeBufferBytes = memoryContext.getBytes();
+
+        // several pages per buffer and several buffers per spill, with a partially filled buffer left between spills
+        List<Page> pages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            pages.add(buildPage(i * 100, 100));
+        }
+        spiller.spill(pages.subList(0, 30).iterator()).get();
+        spiller.spill(pages.subList(30, 100).iterator()).get();
+        assertEquals(listFiles(spillPath.toPath()).size(), 1);
+
+        List<Page> spilledPages = ImmutableList.copyOf(spiller.getSpilledPages());
+        assertEquals(spilledPages.size(), pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            PageAssertions.assertPageEquals(TYPES, spilledPages.get(i), pages.get(i));
+        }
+        assertTrue(spillerStats.getTotalSpilledBytes() > 0);
+        // the write buffers are freed once the pages are read back
+        assertTrue(memoryContext.getBytes() < writeBufferBytes);
+
+        spiller.close();
+        assertEquals(listFiles(spillPath.toPath()).size(), 0);
+        assertEquals(memoryContext.getBytes(), 0);
+        writeExecutor.shutdown();
+    }
+
+    @Test
+    public void testPrefetchedSpilledPages()
+            throws Exception
+    {
+        File spillPath = new File(tempDirectory, UUID.randomUUID().toString());
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor,
+                new BlockEncodingManager(),
+                new SpillerStats(),
+                ImmutableList.of(spillPath.toPath()),
+                1.0,
+                CompressionCodec.NONE,
+                false);
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+        SingleStreamSpiller spiller = spillerFactory.create(TYPES, new TestingSpillContext(), memoryContext);
+
+        List<Page> pages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            pages.add(buildPage(i * 100, 100));
+        }
+        spiller.spill(pages.iterator()).get();
+
+        WorkProcessor<Page> spilledPages = spiller.getSpilledPages(3);
+        List<Page> readPages = new ArrayList<>();
+        while (!spilledPages.isFinished()) {
+            if (spilledPages.process()) {
+                if (!spilledPages.isFinished()) {
+                    readPages.add(spilledPages.getResult());
+                    // read ahead pages are accounted on top of the read buffer
+                    assertTrue(memoryContext.getBytes() >= FileSingleStreamSpiller.BUFFER_SIZE);
+                }
+            }
+            else if (spilledPages.isBlocked()) {
+                // the read may already have finished, in which case the next call returns its pages
+                spilledPages.getBlockedFuture().get();
+            }
+        }
+
+        assertEquals(readPages.size(), pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            PageAssertions.assertPageEquals(TYPES, readPages.get(i), pages.get(i));
+        }
+        assertEquals(memoryContext.getBytes(), FileSingleStreamSpiller.BUFFER_SIZE);
+
+        spiller.close();
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    private Page buildPage(int start, int positionCount)
+    {
+        BlockBuilder col1 = BIGINT.createBlockBuilder(null, positionCount);
+        BlockBuilder col2 = DOUBLE.createBlockBuilder(null, positionCount);
+        BlockBuilder col3 = VARBINARY.createBlockBuilder(null, positionCount);
+
+        for (int i = start; i < start + positionCount; i++) {
+            col1.writeLong(i).closeEntry();
+            col2.writeLong(doubleToLongBits(i * 0.5)).closeEntry();
+            col3.writeLong(i * 31L).writeLong(i).closeEntry();
+        }
+
+        return new Page(col1.build(), col2.build(), col3.build());
+    }
+
     private Page buildPage()
     {
         BlockBuilder col1 = BIGINT.createBlockBuilder(null, 1);
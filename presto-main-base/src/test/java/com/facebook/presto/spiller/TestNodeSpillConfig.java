@@ -38,7 +38,11 @@ public class TestNodeSpillConfig
                 .setQueryMaxSpillPerNode(new DataSize(100, GIGABYTE))
                 .setSpillCompressionCodec(CompressionCodec.NONE)
                 .setSpillEncryptionEnabled(false)
-                .setTempStorageBufferSize(new DataSize(4, KILOBYTE)));
+                .setTempStorageBufferSize(new DataSize(4, KILOBYTE))
+                .setSpillPipelinedWriteEnabled(false)
+                .setSpillWriteBufferSize(new DataSize(1, MEGABYTE))
+                .setSpillMaxWritesInFlight(4)
+                .setSpillDirectIoEnabled(false));
     }
 
     @Test
@@ -51,6 +55,10 @@ public class TestNodeSpillConfig
                 .put("experimental.spill-compression-codec", "LZ4")
                 .put("experimental.spill-encryption-enabled", "true")
                 .put("experimental.temp-storage-buffer-size", "24MB")
+                .put("experimental.spill-pipelined-write-enabled", "true")
+                .put("experimental.spill-write-buffer-size", "8MB")
+                .put("experimental.spill-max-writes-in-flight", "8")
+                .put("experimental.spill-direct-io-enabled", "true")
                 .build();
 
         NodeSpillConfig expected = new NodeSpillConfig()
@@ -59,7 +67,11 @@ public class TestNodeSpillConfig
                 .setQueryMaxSpillPerNode(new DataSize(15, MEGABYTE))
                 .setSpillCompressionCodec(CompressionCodec.LZ4)
                 .setSpillEncryptionEnabled(true)
-                .setTempStorageBufferSize(new DataSize(24, MEGABYTE));
+                .setTempStorageBufferSize(new DataSize(24, MEGABYTE))
+                .setSpillPipelinedWriteEnabled(true)
+                .setSpillWriteBufferSize(new DataSize(8, MEGABYTE))
+                .setSpillMaxWritesInFlight(8)
+                .setSpillDirectIoEnabled(true);
 
         assertFullMapping(properties, expected);
     }
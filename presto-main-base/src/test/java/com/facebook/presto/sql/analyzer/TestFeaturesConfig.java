@@ -35,6 +35,7 @@ import java.util.Map;
 
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
@@ -80,6 +81,7 @@ public class TestFeaturesConfig
                 .setTrackHistoryBasedPlanStatistics(false)
                 .setTrackHistoryStatsFromFailedQuery(true)
                 .setUsePartialAggregationHistory(false)
+                .setUseHistoryBasedHashTableSizing(false)
                 .setTrackPartialAggregationHistory(true)
                 .setUsePerfectlyConsistentHistories(false)
                 .setHistoryCanonicalPlanNodeLimit(1000)
@@ -123,6 +125,9 @@ public class TestFeaturesConfig
                 .setDynamicFilteringMaxPerDriverRowCount(100)
                 .setDynamicFilteringMaxPerDriverSize(new DataSize(10, KILOBYTE))
                 .setDynamicFilteringRangeRowLimitPerDriver(0)
+                .setDynamicFilteringBloomFilterMaxSize(new DataSize(0, BYTE))
+                .setDistributedDynamicFilteringEnabled(false)
+                .setDistributedDynamicFilteringWaitTimeout(new Duration(1, SECONDS))
                 .setFragmentResultCachingEnabled(false)
                 .setEnableStatsCalculator(true)
                 .setEnableStatsCollectionForTemporaryTable(false)
@@ -131,6 +136,7 @@ public class TestFeaturesConfig
                 .setDefaultFilterFactorEnabled(false)
                 .setExchangeCompressionCodec(CompressionCodec.NONE)
                 .setExchangeChecksumEnabled(false)
+                .setExchangeAdaptiveCompressionEnabled(false)
                 .setEnableIntermediateAggregations(false)
                 .setPushAggregationThroughJoin(true)
                 .setForceSingleNodeOutput(true)
@@ -158,6 +164,7 @@ public class TestFeaturesConfig
                 .setPushdownDereferenceEnabled(false)
                 .setIndexLoaderTimeout(new Duration(20, SECONDS))
                 .setOptimizedRepartitioningEnabled(false)
+                .setPartitionedOutputSkewReportingEnabled(false)
                 .setListBuiltInFunctionsOnly(true)
                 .setPartitioningPrecisionStrategy(PartitioningPrecisionStrategy.AUTOMATIC)
                 .setExperimentalFunctionsEnabled(false)
@@ -291,6 +298,9 @@ public class TestFeaturesConfig
                 .put("dynamic-filtering-max-per-driver-row-count", "256")
                 .put("dynamic-filtering-max-per-driver-size", "64kB")
                 .put("dynamic-filtering-range-row-limit-per-driver", "1000")
+                .put("dynamic-filtering-bloom-filter-max-size", "1MB")
+                .put("distributed-dynamic-filtering-enabled", "true")
+                .put("distributed-dynamic-filtering-wait-timeout", "5s")
                 .put("fragment-result-cache.enabled", "true")
                 .put("experimental.enable-stats-calculator", "false")
                 .put("experimental.enable-stats-collection-for-temporary-table", "true")
@@ -315,6 +325,7 @@ public class TestFeaturesConfig
                 .put("optimizer.track-history-based-plan-statistics", "true")
                 .put("optimizer.track-history-stats-from-failed-queries", "false")
                 .put("optimizer.use-partial-aggregation-history", "true")
+                .put("optimizer.use-history-based-hash-table-sizing", "true")
                 .put("optimizer.track-partial-aggregation-history", "false")
                 .put("optimizer.use-perfectly-consistent-histories", "true")
                 .put("optimizer.history-canonical-plan-node-limit", "2")
@@ -354,6 +365,7 @@ public class TestFeaturesConfig
                 .put("experimental.spiller.max-revocable-task-memory", "1GB")
                 .put("exchange.compression-codec", "LZ4")
                 .put("exchange.checksum-enabled", "true")
+                .put("exchange.adaptive-compression-enabled", "true")
                 .put("optimizer.enable-intermediate-aggregations", "true")
                 .put("optimizer.force-single-node-output", "false")
                 .put("pages-index.eager-compaction-enabled", "true")
@@ -380,6 +392,7 @@ public class TestFeaturesConfig
                 .put("experimental.pushdown-dereference-enabled", "true")
                 .put("index-loader-timeout", "10s")
                 .put("experimental.optimized-repartitioning", "true")
+                .put("experimental.partitioned-output-skew-reporting-enabled", "true")
                 .put("list-built-in-functions-only", "false")
                 .put("partitioning-precision-strategy", "PREFER_EXACT_PARTITIONING")
                 .put("experimental-functions-enabled", "true")
@@ -509,6 +522,9 @@ public class TestFeaturesConfig
                 .setDynamicFilteringMaxPerDriverRowCount(256)
                 .setDynamicFilteringMaxPerDriverSize(new DataSize(64, KILOBYTE))
                 .setDynamicFilteringRangeRowLimitPerDriver(1000)
+                .setDynamicFilteringBloomFilterMaxSize(new DataSize(1, MEGABYTE))
+                .setDistributedDynamicFilteringEnabled(true)
+                .setDistributedDynamicFilteringWaitTimeout(new Duration(5, SECONDS))
                 .setFragmentResultCachingEnabled(true)
                 .setEnableStatsCalculator(false)
                 .setEnableStatsCollectionForTemporaryTable(true)
@@ -532,6 +548,7 @@ public class TestFeaturesConfig
                 .setTrackHistoryBasedPlanStatistics(true)
                 .setTrackHistoryStatsFromFailedQuery(false)
                 .setUsePartialAggregationHistory(true)
+                .setUseHistoryBasedHashTableSizing(true)
                 .setTrackPartialAggregationHistory(false)
                 .setUsePerfectlyConsistentHistories(true)
                 .setHistoryCanonicalPlanNodeLimit(2)
@@ -571,6 +588,7 @@ public class TestFeaturesConfig
                 .setMaxRevocableMemoryPerTask(new DataSize(1, GIGABYTE))
                 .setExchangeCompressionCodec(CompressionCodec.LZ4)
                 .setExchangeChecksumEnabled(true)
+                .setExchangeAdaptiveCompressionEnabled(true)
                 .setEnableIntermediateAggregations(true)
                 .setForceSingleNodeOutput(false)
                 .setPagesIndexEagerCompactionEnabled(true)
@@ -598,6 +616,7 @@ public class TestFeaturesConfig
                 .setPushdownDereferenceEnabled(true)
                 .setIndexLoaderTimeout(new Duration(10, SECONDS))
                 .setOptimizedRepartitioningEnabled(true)
+                .setPartitionedOutputSkewReportingEnabled(true)
                 .setListBuiltInFunctionsOnly(false)
                 .setPartitioningPrecisionStrategy(PartitioningPrecisionStrategy.PREFER_EXACT_PARTITIONING)
                 .setExperimentalFunctionsEnabled(true)
@@ -36,7 +36,19 @@ public class TestJavaFeaturesConfig
                 .setDistinctAggregationLargeBlockSizeThreshold(DataSize.valueOf("50MB"))
                 .setOrderByAggregationSpillEnabled(true)
                 .setWindowSpillEnabled(true)
+                .setWindowSpillStreamingEnabled(false)
+                .setWindowSpillStreamingBufferedRows(10_000)
+                .setJoinSpillRepartitioningEnabled(false)
+                .setJoinSpillMaxPartitionSize(DataSize.valueOf("128MB"))
+                .setJoinSpillMaxRepartitioningDepth(3)
+                .setMergeJoinMaxMatchGroupSize(DataSize.valueOf("256MB"))
                 .setOrderBySpillEnabled(true)
+                .setOrderBySpillMaxMergeFanIn(64)
+                .setOrderBySpillPrefetchPages(2)
+                .setParallelSortEnabled(false)
+                .setNormalizedKeySortEnabled(false)
+                .setZeroCopyLocalExchangeEnabled(false)
+                .setFixedWidthGroupByHashEnabled(false)
                 .setTopNSpillEnabled(true)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("4MB"))
                 .setTopNOperatorUnspillMemoryLimit(DataSize.valueOf("4MB")));
@@ -53,7 +65,19 @@ public class TestJavaFeaturesConfig
                 .put("experimental.distinct-aggregation-large-block-size-threshold", "10MB")
                 .put("experimental.order-by-aggregation-spill-enabled", "false")
                 .put("experimental.window-spill-enabled", "false")
+                .put("experimental.window-spill-streaming-enabled", "true")
+                .put("experimental.window-spill-streaming-buffered-rows", "500")
+                .put("experimental.join-spill-repartitioning-enabled", "true")
+                .put("experimental.join-spill-max-partition-size", "64MB")
+                .put("experimental.join-spill-max-repartitioning-depth", "5")
+                .put("experimental.merge-join-max-match-group-size", "32MB")
                 .put("experimental.order-by-spill-enabled", "false")
+                .put("experimental.order-by-spill-max-merge-fan-in", "8")
+                .put("experimental.order-by-spill-prefetch-pages", "0")
+                .put("experimental.parallel-sort-enabled", "true")
+                .put("experimental.normalized-key-sort-enabled", "true")
+                .put("experimental.zero-copy-local-exchange-enabled", "true")
+                .put("experimental.fixed-width-group-by-hash-enabled", "true")
                 .put("experimental.topn-spill-enabled", "false")
                 .put("experimental.aggregation-operator-unspill-memory-limit", "100MB")
                 .put("experimental.topn-operator-unspill-memory-limit", "100MB")
@@ -67,7 +91,19 @@ public class TestJavaFeaturesConfig
                 .setDistinctAggregationLargeBlockSizeThreshold(DataSize.valueOf("10MB"))
                 .setOrderByAggregationSpillEnabled(false)
                 .setWindowSpillEnabled(false)
+                .setWindowSpillStreamingEnabled(true)
+                .setWindowSpillStreamingBufferedRows(500)
+                .setJoinSpillRepartitioningEnabled(true)
+                .setJoinSpillMaxPartitionSize(DataSize.valueOf("64MB"))
+                .setJoinSpillMaxRepartitioningDepth(5)
+                .setMergeJoinMaxMatchGroupSize(DataSize.valueOf("32MB"))
                 .setOrderBySpillEnabled(false)
+                .setOrderBySpillMaxMergeFanIn(8)
+                .setOrderBySpillPrefetchPages(0)
+                .setParallelSortEnabled(true)
+                .setNormalizedKeySortEnabled(true)
+                .setZeroCopyLocalExchangeEnabled(true)
+                .setFixedWidthGroupByHashEnabled(true)
                 .setTopNSpillEnabled(false)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("100MB"))
                 .setTopNOperatorUnspillMemoryLimit(DataSize.valueOf("100MB"));
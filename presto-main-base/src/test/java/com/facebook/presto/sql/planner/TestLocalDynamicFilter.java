@@ -15,9 +15,12 @@
 package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.spi.plan.JoinNode;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.sql.Optimizer;
@@ -26,6 +29,7 @@ import com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.testng.annotations.Test;
@@ -41,11 +45,14 @@ import static com.facebook.presto.SystemSessionProperties.ENABLE_DYNAMIC_FILTERI
 import static com.facebook.presto.SystemSessionProperties.FORCE_SINGLE_NODE_OUTPUT;
 import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
 import static com.facebook.presto.common.function.OperatorType.EQUAL;
+import static com.facebook.presto.common.predicate.Range.range;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.testing.assertions.Assert.assertEquals;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestLocalDynamicFilter
         extends BasePlanTest
@@ -143,6 +150,92 @@ public class TestLocalDynamicFilter
                 new VariableReferenceExpression(Optional.empty(), "a", INTEGER), Domain.none(INTEGER))));
     }
 
+    @Test
+    public void testBloomFilters()
+            throws ExecutionException, InterruptedException
+    {
+        VariableReferenceExpression probeVariable = new VariableReferenceExpression(Optional.empty(), "a", BIGINT);
+        AggregatedMemoryContext memoryContext = newSimpleAggregatedMemoryContext();
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", probeVariable, EQUAL)),
+                ImmutableMap.of("123", 0),
+                2,
+                memoryContext.newLocalMemoryContext("test"));
+        Consumer<TupleDomain<String>> consumer = filter.getTupleDomainConsumer();
+        Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer = filter.getBloomFilterConsumer();
+        ListenableFuture<TupleDomain<VariableReferenceExpression>> result = filter.getResultFuture();
+
+        BlockedBloomFilter first = BlockedBloomFilter.create(1024);
+        first.insertLong(10L);
+        BlockedBloomFilter expectedUnion = first.union(BlockedBloomFilter.create(1024));
+        bloomFilterConsumer.accept(ImmutableMap.of("123", first));
+        assertEquals(memoryContext.getBytes(), first.getRetainedSizeInBytes());
+        consumer.accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.create(ValueSet.ofRanges(range(BIGINT, 0L, true, 10L, true)), false))));
+
+        BlockedBloomFilter second = BlockedBloomFilter.create(1024);
+        second.insertLong(20L);
+        expectedUnion = expectedUnion.union(second);
+        bloomFilterConsumer.accept(ImmutableMap.of("123", second));
+        // the filters of the partitions are merged into a single filter
+        assertEquals(memoryContext.getBytes(), first.getRetainedSizeInBytes());
+        consumer.accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.create(ValueSet.ofRanges(range(BIGINT, 20L, true, 30L, true)), false))));
+
+        assertEquals(result.get(), TupleDomain.withColumnDomains(ImmutableMap.of(
+                probeVariable, Domain.create(ValueSet.ofRanges(range(BIGINT, 0L, true, 10L, true), range(BIGINT, 20L, true, 30L, true)), false))));
+        assertEquals(filter.getBloomFilters(), ImmutableMap.of(probeVariable, expectedUnion));
+        assertEquals(memoryContext.getBytes(), expectedUnion.getRetainedSizeInBytes());
+        BlockedBloomFilter bloomFilter = filter.getBloomFilters().get(probeVariable);
+        assertTrue(bloomFilter.mightContainLong(10L));
+        assertTrue(bloomFilter.mightContainLong(20L));
+    }
+
+    @Test
+    public void testBloomFilterMissingFromPartition()
+            throws ExecutionException, InterruptedException
+    {
+        VariableReferenceExpression probeVariable = new VariableReferenceExpression(Optional.empty(), "a", BIGINT);
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", probeVariable, EQUAL)),
+                ImmutableMap.of("123", 0),
+                2);
+        Consumer<TupleDomain<String>> consumer = filter.getTupleDomainConsumer();
+        Consumer<Map<String, BlockedBloomFilter>> bloomFilterConsumer = filter.getBloomFilterConsumer();
+
+        BlockedBloomFilter bloomFilter = BlockedBloomFilter.create(1024);
+        bloomFilter.insertLong(10L);
+        bloomFilterConsumer.accept(ImmutableMap.of("123", bloomFilter));
+        consumer.accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.create(ValueSet.ofRanges(range(BIGINT, 0L, true, 10L, true)), false))));
+        bloomFilterConsumer.accept(ImmutableMap.of());
+        consumer.accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.create(ValueSet.ofRanges(range(BIGINT, 20L, true, 30L, true)), false))));
+
+        filter.getResultFuture().get();
+        assertEquals(filter.getBloomFilters(), ImmutableMap.of());
+    }
+
+    @Test
+    public void testBloomFilterIgnoredForDiscreteValues()
+            throws ExecutionException, InterruptedException
+    {
+        VariableReferenceExpression probeVariable = new VariableReferenceExpression(Optional.empty(), "a", BIGINT);
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", probeVariable, EQUAL)),
+                ImmutableMap.of("123", 0),
+                1);
+
+        BlockedBloomFilter bloomFilter = BlockedBloomFilter.create(1024);
+        bloomFilter.insertLong(10L);
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of("123", bloomFilter));
+        filter.getTupleDomainConsumer().accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.singleValue(BIGINT, 10L))));
+
+        filter.getResultFuture().get();
+        assertEquals(filter.getBloomFilters(), ImmutableMap.of());
+    }
+
     @Test
     public void testMultipleColumns()
             throws ExecutionException, InterruptedException
@@ -227,6 +320,35 @@ public class TestLocalDynamicFilter
         assertEquals(LocalDynamicFilter.create(joinNode, 1), Optional.empty());
     }
 
+    @Test
+    public void testCreateRemoteFilters()
+    {
+        Session session = Session.builder(getQueryRunner().getDefaultSession())
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "PARTITIONED")
+                .build();
+        SubPlan subplan = subplan(
+                "SELECT count() FROM nation, region WHERE nation.regionkey = region.regionkey " + "AND region.comment = 'abc'",
+                Optimizer.PlanStage.OPTIMIZED_AND_VALIDATED,
+                false,
+                session);
+        // the probe side reads from the stage scanning nation, so the filter is collected for it
+        JoinNode joinNode = searchJoins(subplan.getChildren().get(0).getFragment()).findOnlyElement();
+        LocalDynamicFilter filter = LocalDynamicFilter.create(joinNode, 1, true, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"))
+                .orElseThrow(NoSuchElementException::new);
+        assertEquals(filter.getRemoteFilterIds(), joinNode.getDynamicFilters().keySet());
+
+        // filters with a local probe are not collected for other stages
+        subplan = subplan(
+                "SELECT count() FROM lineitem, orders WHERE lineitem.orderkey = orders.orderkey " +
+                        "AND orders.custkey < 10",
+                Optimizer.PlanStage.OPTIMIZED_AND_VALIDATED,
+                false);
+        joinNode = searchJoins(subplan.getChildren().get(0).getFragment()).findOnlyElement();
+        filter = LocalDynamicFilter.create(joinNode, 1, true, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"))
+                .orElseThrow(NoSuchElementException::new);
+        assertEquals(filter.getRemoteFilterIds(), ImmutableSet.of());
+    }
+
     @Test
     public void testCreateMultipleCriteria()
             throws ExecutionException, InterruptedException
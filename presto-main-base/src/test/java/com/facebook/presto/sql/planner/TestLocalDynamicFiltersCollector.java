@@ -14,6 +14,7 @@
 
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
@@ -49,6 +50,33 @@ public class TestLocalDynamicFiltersCollector
         assertEquals(collector.getPredicate(), TupleDomain.none());
     }
 
+    @Test
+    public void testBloomFilters()
+    {
+        VariableReferenceExpression first = new VariableReferenceExpression(Optional.empty(), "first", BIGINT);
+        VariableReferenceExpression second = new VariableReferenceExpression(Optional.empty(), "second", BIGINT);
+        BlockedBloomFilter firstBloomFilter = bloomFilter(1L);
+        BlockedBloomFilter secondBloomFilter = bloomFilter(2L);
+
+        LocalDynamicFiltersCollector collector = new LocalDynamicFiltersCollector();
+        assertEquals(collector.getBloomFilters(), ImmutableMap.of());
+
+        collector.intersect(TupleDomain.all(), ImmutableMap.of(first, firstBloomFilter));
+        assertEquals(collector.getPredicate(), TupleDomain.all());
+        assertEquals(collector.getBloomFilters(), ImmutableMap.of(first, firstBloomFilter));
+
+        collector.intersect(tupleDomain(second, 2L), ImmutableMap.of(first, secondBloomFilter, second, secondBloomFilter));
+        assertEquals(collector.getPredicate(), tupleDomain(second, 2L));
+        assertEquals(collector.getBloomFilters(), ImmutableMap.of(first, firstBloomFilter, second, secondBloomFilter));
+    }
+
+    private static BlockedBloomFilter bloomFilter(long value)
+    {
+        BlockedBloomFilter bloomFilter = BlockedBloomFilter.create(64);
+        bloomFilter.insertLong(value);
+        return bloomFilter;
+    }
+
     private TupleDomain<VariableReferenceExpression> tupleDomain(VariableReferenceExpression variable, Long... values)
     {
         return TupleDomain.withColumnDomains(ImmutableMap.of(variable, Domain.multipleValues(BIGINT, ImmutableList.copyOf(values))));
@@ -13,9 +13,13 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.airlift.json.JsonCodec;
+import com.facebook.airlift.json.JsonCodecFactory;
+import com.facebook.airlift.json.JsonObjectMapperProvider;
 import com.facebook.presto.Session;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
 import com.facebook.presto.cost.StatsAndCosts;
 import com.facebook.presto.execution.FragmentResultCacheContext;
 import com.facebook.presto.execution.Lifespan;
@@ -40,7 +44,11 @@ import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.plan.StageExecutionDescriptor;
 import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.spi.plan.ValuesNode;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.spi.statistics.CostBasedSourceInfo;
+import com.facebook.presto.spi.statistics.HistoryBasedSourceInfo;
+import com.facebook.presto.sql.Serialization;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner.LocalExecutionPlan;
 import com.facebook.presto.sql.planner.plan.InternalPlanVisitor;
 import com.facebook.presto.testing.LocalQueryRunner;
@@ -53,6 +61,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.intellij.lang.annotations.Language;
+import org.pcollections.HashTreePMap;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -70,10 +79,14 @@ import static com.facebook.presto.SystemSessionProperties.FRAGMENT_RESULT_CACHIN
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.execution.TaskTestUtils.createTestingPlanner;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
+import static com.facebook.presto.spi.statistics.SourceInfo.ConfidenceLevel.HIGH;
 import static com.facebook.presto.sql.Optimizer.PlanStage.OPTIMIZED_AND_VALIDATED;
+import static com.facebook.presto.sql.planner.LocalExecutionPlanner.getExpectedHashTableSize;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
+import static com.facebook.presto.testing.TestingEnvironment.FUNCTION_AND_TYPE_MANAGER;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static java.lang.Double.NaN;
 import static java.util.Collections.nCopies;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
@@ -87,6 +100,7 @@ public class TestLocalExecutionPlanner
 {
     private static final ExecutorService EXECUTOR = newCachedThreadPool(daemonThreadsNamed("test-%s"));
     private static final ScheduledExecutorService SCHEDULED_EXECUTOR = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+    private static final HistoryBasedSourceInfo HISTORY_BASED_SOURCE_INFO = new HistoryBasedSourceInfo(Optional.empty(), Optional.empty(), Optional.empty(), false);
 
     private LocalQueryRunner runner;
 
@@ -151,6 +165,43 @@ public class TestLocalExecutionPlanner
         assertEquals(contextWithIntermediateAggregation.get().getHashedCanonicalPlanFragment(), contextWithoutIntermediateAggregation.get().getHashedCanonicalPlanFragment());
     }
 
+    @Test
+    public void testExpectedHashTableSize()
+    {
+        assertEquals(getExpectedHashTableSize(Optional.empty(), 4), 10_000);
+        assertEquals(getExpectedHashTableSize(Optional.of(1_000.0), 4), 250);
+        assertEquals(getExpectedHashTableSize(Optional.of(1_001.0), 4), 251);
+        assertEquals(getExpectedHashTableSize(Optional.of(0.0), 4), 1);
+        // capped since history covers the whole stage
+        assertEquals(getExpectedHashTableSize(Optional.of(1_000_000_000.0), 4), 1 << 18);
+    }
+
+    @Test
+    public void testHistoryBasedOutputRowCounts()
+    {
+        PlanNodeId costBased = new PlanNodeId("costBased");
+        PlanNodeId historyBased = new PlanNodeId("historyBased");
+        PlanNodeId unknown = new PlanNodeId("unknown");
+        StatsAndCosts statsAndCosts = new StatsAndCosts(
+                ImmutableMap.of(
+                        // table statistics default to high confidence, but are not history based
+                        costBased, PlanNodeStatsEstimate.builder().setOutputRowCount(1_000).setConfidence(HIGH).build(),
+                        historyBased, new PlanNodeStatsEstimate(1_000, NaN, HashTreePMap.empty(), HISTORY_BASED_SOURCE_INFO),
+                        unknown, new PlanNodeStatsEstimate(NaN, NaN, HashTreePMap.empty(), HISTORY_BASED_SOURCE_INFO)),
+                ImmutableMap.of());
+
+        // the source of an estimate is lost when the fragment is sent to the workers
+        JsonObjectMapperProvider provider = new JsonObjectMapperProvider();
+        provider.setKeyDeserializers(ImmutableMap.of(VariableReferenceExpression.class, new Serialization.VariableReferenceExpressionDeserializer(FUNCTION_AND_TYPE_MANAGER)));
+        JsonCodec<StatsAndCosts> codec = new JsonCodecFactory(provider, true).jsonCodec(StatsAndCosts.class);
+        StatsAndCosts onWorker = codec.fromJson(codec.toJson(statsAndCosts));
+        assertEquals(onWorker.getStats().get(historyBased).getSourceInfo().getClass(), CostBasedSourceInfo.class);
+        assertEquals(onWorker.getHistoryBasedOutputRowCounts(), ImmutableMap.of(historyBased, 1_000.0));
+        assertEquals(getExpectedHashTableSize(Optional.ofNullable(onWorker.getHistoryBasedOutputRowCounts().get(costBased)), 4), 10_000);
+        assertEquals(getExpectedHashTableSize(Optional.ofNullable(onWorker.getHistoryBasedOutputRowCounts().get(historyBased)), 4), 250);
+        assertEquals(onWorker.getForSubplan(new ValuesNode(Optional.empty(), costBased, ImmutableList.of(), ImmutableList.of(), Optional.empty())).getHistoryBasedOutputRowCounts(), ImmutableMap.of());
+    }
+
     @Test
     public void testCustomPlanTranslator()
     {
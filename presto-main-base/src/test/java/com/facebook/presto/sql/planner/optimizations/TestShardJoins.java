@@ -14,14 +14,22 @@
 package com.facebook.presto.sql.planner.optimizations;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.common.type.AbstractLongType;
+import com.facebook.presto.operator.scalar.CombineHashFunction;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.sql.planner.assertions.BasePlanTest;
+import com.facebook.presto.testing.MaterializedResult;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 
+import java.util.stream.LongStream;
+
 import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static com.facebook.presto.SystemSessionProperties.JOIN_HOT_KEY_HASHES;
 import static com.facebook.presto.SystemSessionProperties.JOIN_REORDERING_STRATEGY;
 import static com.facebook.presto.SystemSessionProperties.SHARDED_JOINS_STRATEGY;
+import static com.facebook.presto.sql.planner.PlannerUtils.INITIAL_HASH_VALUE;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTree;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.exchange;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.expression;
@@ -29,6 +37,8 @@ import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.project;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.unnest;
+import static java.util.stream.Collectors.joining;
+import static org.testng.Assert.assertEquals;
 
 public class TestShardJoins
         extends BasePlanTest
@@ -42,6 +52,16 @@ public class TestShardJoins
                 .build();
     }
 
+    private Session getSessionHotKeys(long... hotKeyHashes)
+    {
+        return Session.builder(this.getQueryRunner().getDefaultSession())
+                .setSystemProperty(SHARDED_JOINS_STRATEGY, "HOT_KEYS")
+                .setSystemProperty(JOIN_HOT_KEY_HASHES, LongStream.of(hotKeyHashes).mapToObj(String::valueOf).collect(joining(",")))
+                .setSystemProperty(JOIN_REORDERING_STRATEGY, "NONE")
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, FeaturesConfig.JoinDistributionType.PARTITIONED.name())
+                .build();
+    }
+
     private Session getBroadcastJoinSessionAlwaysEnabled()
     {
         return Session.builder(this.getQueryRunner().getDefaultSession())
@@ -87,6 +107,58 @@ public class TestShardJoins
                 false);
     }
 
+    @Test
+    public void testHotKeys()
+    {
+        assertPlan("SELECT * FROM lineitem JOIN orders ON lineitem.orderkey = orders.orderkey",
+                getSessionHotKeys(1, 2),
+                anyTree(
+                        join(
+                                anyTree(
+                                        project(
+                                                ImmutableMap.of(
+                                                        "leftOrderKey", expression("leftOrderKey"),
+                                                        "leftShard", expression("IF(combine_hash(BIGINT '0', COALESCE(\"$operator$hash_code\"(leftOrderKey), BIGINT '0')) IN (BIGINT '1', BIGINT '2'), random(100), BIGINT '0')")),
+                                                tableScan("lineitem", ImmutableMap.of("leftOrderKey", "orderkey")))),
+                                anyTree(
+                                        unnest(
+                                                project(
+                                                        ImmutableMap.of(
+                                                                "rightOrderKey", expression("rightOrderKey"),
+                                                                "rightShards", expression("sequence(BIGINT '0', IF(combine_hash(BIGINT '0', COALESCE(\"$operator$hash_code\"(rightOrderKey), BIGINT '0')) IN (BIGINT '1', BIGINT '2'), BIGINT '99', BIGINT '0'))")),
+                                                        tableScan("orders", ImmutableMap.of("rightOrderKey", "orderkey"))))))),
+                false);
+    }
+
+    @Test
+    public void testDoesNotFireWithoutHotKeys()
+    {
+        assertPlan("SELECT * FROM lineitem JOIN orders ON lineitem.orderkey = orders.orderkey",
+                getSessionHotKeys(),
+                anyTree(
+                        join(
+                                anyTree(
+                                        tableScan("lineitem", ImmutableMap.of("leftOrderKey", "orderkey"))),
+                                exchange(
+                                        project(
+                                                tableScan("orders", ImmutableMap.of("rightOrderKey", "orderkey")))))),
+                false);
+    }
+
+    @Test
+    public void testHotKeysResults()
+    {
+        // the hash the partitioned output reports for order key 7
+        long hotKeyHash = CombineHashFunction.getHash(INITIAL_HASH_VALUE, AbstractLongType.hash(7));
+        for (String query : ImmutableList.of(
+                "SELECT count(*), sum(lineitem.partkey), sum(orders.custkey) FROM lineitem JOIN orders ON lineitem.orderkey = orders.orderkey",
+                "SELECT count(*), sum(lineitem.partkey), sum(orders.custkey) FROM lineitem LEFT JOIN orders ON lineitem.orderkey = orders.orderkey AND orders.orderkey < 100",
+                "SELECT count(*), sum(lineitem.partkey) FROM lineitem JOIN orders ON lineitem.orderkey = orders.orderkey WHERE orders.orderkey = 7")) {
+            MaterializedResult expected = getQueryRunner().execute(query);
+            assertEquals(getQueryRunner().execute(getSessionHotKeys(hotKeyHash), query).getMaterializedRows(), expected.getMaterializedRows(), query);
+        }
+    }
+
     @Test
     public void testDoesNotFireForFullOuterJoin()
     {
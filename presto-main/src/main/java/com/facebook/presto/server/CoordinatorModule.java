@@ -20,6 +20,7 @@ import com.facebook.airlift.http.client.HttpClient;
 import com.facebook.airlift.http.server.HttpServerBinder.HttpResourceBinding;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.cost.CostCalculator;
 import com.facebook.presto.cost.CostCalculator.EstimatedExchanges;
 import com.facebook.presto.cost.CostCalculatorUsingExchanges;
@@ -37,6 +38,7 @@ import com.facebook.presto.event.QueryMonitor;
 import com.facebook.presto.event.QueryMonitorConfig;
 import com.facebook.presto.event.QueryProgressMonitor;
 import com.facebook.presto.execution.ClusterSizeMonitor;
+import com.facebook.presto.execution.DynamicFilterSummary;
 import com.facebook.presto.execution.EagerPlanValidationExecutionMBean;
 import com.facebook.presto.execution.ExecutionFactoriesManager;
 import com.facebook.presto.execution.ExplainAnalyzeContext;
@@ -59,6 +61,8 @@ import com.facebook.presto.execution.resourceGroups.InternalResourceGroupManager
 import com.facebook.presto.execution.resourceGroups.ResourceGroupManager;
 import com.facebook.presto.execution.scheduler.AdaptivePhasedExecutionPolicy;
 import com.facebook.presto.execution.scheduler.AllAtOnceExecutionPolicy;
+import com.facebook.presto.execution.scheduler.DynamicFilterClient;
+import com.facebook.presto.execution.scheduler.DynamicFilterService;
 import com.facebook.presto.execution.scheduler.ExecutionPolicy;
 import com.facebook.presto.execution.scheduler.PhasedExecutionPolicy;
 import com.facebook.presto.execution.scheduler.SectionExecutionFactory;
@@ -86,6 +90,7 @@ import com.facebook.presto.server.protocol.QueuedStatementResource;
 import com.facebook.presto.server.protocol.RetryCircuitBreaker;
 import com.facebook.presto.server.remotetask.HttpClientConnectionPoolStats;
 import com.facebook.presto.server.remotetask.HttpClientStats;
+import com.facebook.presto.server.remotetask.HttpDynamicFilterClient;
 import com.facebook.presto.server.remotetask.HttpRemoteTaskFactory;
 import com.facebook.presto.server.remotetask.ReactorNettyHttpClient;
 import com.facebook.presto.server.remotetask.ReactorNettyHttpClientConfig;
@@ -311,6 +316,12 @@ public class CoordinatorModule
         binder.bind(SqlQueryExecutionFactory.class).in(Scopes.SINGLETON);
         binder.bind(SectionExecutionFactory.class).in(Scopes.SINGLETON);
 
+        // dynamic filters collected across stages
+        jsonCodecBinder(binder).bindJsonCodec(DynamicFilterSummary.class);
+        jsonCodecBinder(binder).bindMapJsonCodec(String.class, Domain.class);
+        binder.bind(DynamicFilterClient.class).to(HttpDynamicFilterClient.class).in(Scopes.SINGLETON);
+        binder.bind(DynamicFilterService.class).in(Scopes.SINGLETON);
+
         binder.bind(PartialResultQueryManager.class).in(Scopes.SINGLETON);
         binder.bind(DDLDefinitionExecutionFactory.class).in(Scopes.SINGLETON);
         binder.bind(SessionDefinitionExecutionFactory.class).in(Scopes.SINGLETON);
@@ -18,6 +18,8 @@ import com.facebook.airlift.json.Codec;
 import com.facebook.airlift.json.JsonCodec;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.execution.DynamicFilterSummary;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
 import com.facebook.presto.execution.TaskManager;
@@ -51,6 +53,7 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -63,6 +66,7 @@ import static com.facebook.presto.PrestoMediaTypes.APPLICATION_JACKSON_SMILE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_REMAINING_BYTES;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CURRENT_STATE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_CURRENT_VERSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_WAIT;
 import static com.facebook.presto.server.security.RoleType.INTERNAL;
 import static com.facebook.presto.util.TaskUtils.randomizeWaitTime;
@@ -311,6 +315,46 @@ public class TaskResource
         taskManager.removeRemoteSource(taskId, remoteSourceTaskId);
     }
 
+    @GET
+    @Path("{taskId}/dynamicfilters")
+    @Produces(APPLICATION_JSON)
+    public void getDynamicFilters(
+            @PathParam("taskId") TaskId taskId,
+            @HeaderParam(PRESTO_CURRENT_VERSION) Long currentVersion,
+            @HeaderParam(PRESTO_MAX_WAIT) Duration maxWait,
+            @Suspended AsyncResponse asyncResponse)
+    {
+        requireNonNull(taskId, "taskId is null");
+
+        if (currentVersion == null || maxWait == null) {
+            asyncResponse.resume(taskManager.getDynamicFilterSummary(taskId));
+            return;
+        }
+
+        Duration waitTime = randomizeWaitTime(maxWait);
+        ListenableFuture<DynamicFilterSummary> futureSummary = addTimeout(
+                taskManager.getDynamicFilterSummary(taskId, currentVersion),
+                () -> taskManager.getDynamicFilterSummary(taskId),
+                waitTime,
+                timeoutExecutor);
+
+        // For hard timeout, add an additional time to max wait for thread scheduling contention and GC
+        Duration timeout = new Duration(waitTime.toMillis() + ADDITIONAL_WAIT_TIME.toMillis(), MILLISECONDS);
+        bindAsyncResponse(asyncResponse, futureSummary, responseExecutor)
+                .withTimeout(timeout);
+    }
+
+    @POST
+    @Path("{taskId}/dynamicfilters")
+    @Consumes(APPLICATION_JSON)
+    public void addDynamicFilters(@PathParam("taskId") TaskId taskId, Map<String, Domain> domains)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(domains, "domains is null");
+
+        taskManager.addRemoteDynamicFilters(taskId, domains);
+    }
+
     private static boolean shouldSummarize(UriInfo uriInfo)
     {
         return uriInfo.getQueryParameters().containsKey("summarize");
@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.remotetask;
+
+import com.facebook.airlift.http.client.HttpClient;
+import com.facebook.airlift.http.client.Request;
+import com.facebook.airlift.json.JsonCodec;
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.execution.DynamicFilterSummary;
+import com.facebook.presto.execution.scheduler.DynamicFilterClient;
+import com.facebook.presto.operator.ForScheduler;
+import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.inject.Inject;
+
+import java.net.URI;
+import java.util.Map;
+
+import static com.facebook.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
+import static com.facebook.airlift.http.client.JsonBodyGenerator.jsonBodyGenerator;
+import static com.facebook.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
+import static com.facebook.airlift.http.client.Request.Builder.prepareGet;
+import static com.facebook.airlift.http.client.Request.Builder.preparePost;
+import static com.facebook.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_CURRENT_VERSION;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_WAIT;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class HttpDynamicFilterClient
+        implements DynamicFilterClient
+{
+    private static final Duration MAX_WAIT = new Duration(1, SECONDS);
+
+    private final HttpClient httpClient;
+    private final JsonCodec<DynamicFilterSummary> summaryCodec;
+    private final JsonCodec<Map<String, Domain>> domainsCodec;
+
+    @Inject
+    public HttpDynamicFilterClient(
+            @ForScheduler HttpClient httpClient,
+            JsonCodec<DynamicFilterSummary> summaryCodec,
+            JsonCodec<Map<String, Domain>> domainsCodec)
+    {
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.summaryCodec = requireNonNull(summaryCodec, "summaryCodec is null");
+        this.domainsCodec = requireNonNull(domainsCodec, "domainsCodec is null");
+    }
+
+    @Override
+    public ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(URI taskLocation, long currentVersion)
+    {
+        Request request = prepareGet()
+                .setUri(getDynamicFiltersUri(taskLocation))
+                .setHeader(PRESTO_CURRENT_VERSION, String.valueOf(currentVersion))
+                .setHeader(PRESTO_MAX_WAIT, MAX_WAIT.toString())
+                .build();
+        return httpClient.executeAsync(request, createJsonResponseHandler(summaryCodec));
+    }
+
+    @Override
+    public ListenableFuture<?> addRemoteDynamicFilters(URI taskLocation, Map<String, Domain> domains)
+    {
+        Request request = preparePost()
+                .setUri(getDynamicFiltersUri(taskLocation))
+                .setHeader(CONTENT_TYPE, JSON_UTF_8.toString())
+                .setBodyGenerator(jsonBodyGenerator(domainsCodec, domains))
+                .build();
+        return httpClient.executeAsync(request, createStatusResponseHandler());
+    }
+
+    private static URI getDynamicFiltersUri(URI taskLocation)
+    {
+        return uriBuilderFrom(taskLocation)
+                .appendPath("dynamicfilters")
+                .build();
+    }
+}
@@ -25,7 +25,9 @@ import com.facebook.drift.transport.netty.client.DriftNettyMethodInvokerFactory;
 import com.facebook.drift.transport.netty.server.DriftNettyServerModule;
 import com.facebook.drift.transport.netty.server.DriftNettyServerTransport;
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.dispatcher.NoOpQueryManager;
+import com.facebook.presto.execution.DynamicFilterSummary;
 import com.facebook.presto.execution.QueryManager;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.TaskId;
@@ -60,6 +62,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.facebook.airlift.configuration.ConfigBinder.configBinder;
@@ -244,6 +247,24 @@ public class TestThriftServerInfoIntegration
                 {
                     throw new UnsupportedOperationException();
                 }
+
+                @Override
+                public DynamicFilterSummary getDynamicFilterSummary(TaskId taskId)
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(TaskId taskId, long currentVersion)
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void addRemoteDynamicFilters(TaskId taskId, Map<String, Domain> domains)
+                {
+                    throw new UnsupportedOperationException();
+                }
             };
         }
     }
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.memory;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+public class HeapStoredPage
+        implements StoredPage
+{
+    private final Page page;
+
+    public HeapStoredPage(Page page)
+    {
+        this.page = requireNonNull(page, "page is null");
+    }
+
+    @Override
+    public int getPositionCount()
+    {
+        return page.getPositionCount();
+    }
+
+    @Override
+    public Page getColumns(List<Integer> columnIndexes)
+    {
+        Block[] outputBlocks = new Block[columnIndexes.size()];
+
+        for (int i = 0; i < columnIndexes.size(); i++) {
+            outputBlocks[i] = page.getBlock(columnIndexes.get(i));
+        }
+
+        return new Page(page.getPositionCount(), outputBlocks);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.memory;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Column statistics of the data a worker stored for a table, reported to the
+ * coordinator as part of {@link MemoryDataFragment}.
+ */
+public class MemoryColumnStatistics
+{
+    private final long nullsCount;
+    private final Optional<Long> dataSize;
+    private final OptionalDouble min;
+    private final OptionalDouble max;
+
+    @JsonCreator
+    public MemoryColumnStatistics(
+            @JsonProperty("nullsCount") long nullsCount,
+            @JsonProperty("dataSize") Optional<Long> dataSize,
+            @JsonProperty("min") OptionalDouble min,
+            @JsonProperty("max") OptionalDouble max)
+    {
+        checkArgument(nullsCount >= 0, "nullsCount can not be negative");
+        checkArgument(min.isPresent() == max.isPresent(), "min and max must both be present or both be absent");
+        this.nullsCount = nullsCount;
+        this.dataSize = requireNonNull(dataSize, "dataSize is null");
+        this.min = requireNonNull(min, "min is null");
+        this.max = requireNonNull(max, "max is null");
+    }
+
+    @JsonProperty
+    public long getNullsCount()
+    {
+        return nullsCount;
+    }
+
+    @JsonProperty
+    public Optional<Long> getDataSize()
+    {
+        return dataSize;
+    }
+
+    @JsonProperty
+    public OptionalDouble getMin()
+    {
+        return min;
+    }
+
+    @JsonProperty
+    public OptionalDouble getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Merges statistics of two disjoint sets of rows. A range is only known if both sides
+     * know it or one side only has nulls.
+     */
+    public static MemoryColumnStatistics merge(MemoryColumnStatistics a, long aRows, MemoryColumnStatistics b, long bRows)
+    {
+        Optional<Long> dataSize = a.getDataSize().isPresent() && b.getDataSize().isPresent()
+                ? Optional.of(a.getDataSize().get() + b.getDataSize().get())
+                : Optional.empty();
+
+        OptionalDouble min;
+        OptionalDouble max;
+        if (a.getNullsCount() == aRows) {
+            min = b.getMin();
+            max = b.getMax();
+        }
+        else if (b.getNullsCount() == bRows) {
+            min = a.getMin();
+            max = a.getMax();
+        }
+        else if (a.getMin().isPresent() && b.getMin().isPresent()) {
+            min = OptionalDouble.of(Math.min(a.getMin().getAsDouble(), b.getMin().getAsDouble()));
+            max = OptionalDouble.of(Math.max(a.getMax().getAsDouble(), b.getMax().getAsDouble()));
+        }
+        else {
+            min = OptionalDouble.empty();
+            max = OptionalDouble.empty();
+        }
+        return new MemoryColumnStatistics(a.getNullsCount() + b.getNullsCount(), dataSize, min, max);
+    }
+
+    /**
+     * Merges the statistics of all columns of two disjoint sets of rows. Returns an empty
+     * list if the statistics of a non-empty side are unknown.
+     */
+    public static List<MemoryColumnStatistics> merge(List<MemoryColumnStatistics> a, long aRows, List<MemoryColumnStatistics> b, long bRows)
+    {
+        if (aRows == 0) {
+            return b;
+        }
+        if (bRows == 0) {
+            return a;
+        }
+        if (a.size() != b.size()) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<MemoryColumnStatistics> merged = ImmutableList.builder();
+        for (int i = 0; i < a.size(); i++) {
+            merged.add(merge(a.get(i), aRows, b.get(i), bRows));
+        }
+        return merged.build();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("nullsCount", nullsCount)
+                .add("dataSize", dataSize)
+                .add("min", min)
+                .add("max", max)
+                .toString();
+    }
+}
@@ -14,13 +14,18 @@
 package com.facebook.presto.plugin.memory;
 
 import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.units.DataSize;
+import com.facebook.airlift.units.MaxDataSize;
+import com.facebook.airlift.units.MinDataSize;
 import jakarta.validation.constraints.NotNull;
 
 public class MemoryConfig
 {
     private int splitsPerNode = Runtime.getRuntime().availableProcessors();
     private DataSize maxDataPerNode = new DataSize(128, DataSize.Unit.MEGABYTE);
+    private boolean offHeapStorageEnabled;
+    private DataSize offHeapSlabSize = new DataSize(16, DataSize.Unit.MEGABYTE);
 
     @NotNull
     public int getSplitsPerNode()
@@ -47,4 +52,33 @@ public class MemoryConfig
         this.maxDataPerNode = maxDataPerNode;
         return this;
     }
+
+    public boolean isOffHeapStorageEnabled()
+    {
+        return offHeapStorageEnabled;
+    }
+
+    @Config("memory.off-heap-storage-enabled")
+    @ConfigDescription("Store table pages in direct memory slabs instead of on the Java heap")
+    public MemoryConfig setOffHeapStorageEnabled(boolean offHeapStorageEnabled)
+    {
+        this.offHeapStorageEnabled = offHeapStorageEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1kB")
+    @MaxDataSize("1GB")
+    public DataSize getOffHeapSlabSize()
+    {
+        return offHeapSlabSize;
+    }
+
+    @Config("memory.off-heap-slab-size")
+    @ConfigDescription("Size of the direct memory slabs table pages are copied into when off-heap storage is enabled")
+    public MemoryConfig setOffHeapSlabSize(DataSize offHeapSlabSize)
+    {
+        this.offHeapSlabSize = offHeapSlabSize;
+        return this;
+    }
 }
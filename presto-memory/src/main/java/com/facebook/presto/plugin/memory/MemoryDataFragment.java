@@ -17,9 +17,12 @@ import com.facebook.airlift.json.JsonCodec;
 import com.facebook.presto.spi.HostAddress;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 
+import java.util.List;
+
 import static com.facebook.airlift.json.JsonCodec.jsonCodec;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
@@ -30,15 +33,23 @@ public class MemoryDataFragment
 
     private final HostAddress hostAddress;
     private final long rows;
+    private final List<MemoryColumnStatistics> columnStatistics;
+
+    public MemoryDataFragment(HostAddress hostAddress, long rows)
+    {
+        this(hostAddress, rows, ImmutableList.of());
+    }
 
     @JsonCreator
     public MemoryDataFragment(
             @JsonProperty("hostAddress") HostAddress hostAddress,
-            @JsonProperty("rows") long rows)
+            @JsonProperty("rows") long rows,
+            @JsonProperty("columnStatistics") List<MemoryColumnStatistics> columnStatistics)
     {
         this.hostAddress = requireNonNull(hostAddress, "hostAddress is null");
         checkArgument(rows >= 0, "Rows number can not be negative");
         this.rows = rows;
+        this.columnStatistics = ImmutableList.copyOf(requireNonNull(columnStatistics, "columnStatistics is null"));
     }
 
     @JsonProperty
@@ -53,6 +64,15 @@ public class MemoryDataFragment
         return rows;
     }
 
+    /**
+     * Statistics of the table columns, in table column order. Empty if unknown.
+     */
+    @JsonProperty
+    public List<MemoryColumnStatistics> getColumnStatistics()
+    {
+        return columnStatistics;
+    }
+
     public Slice toSlice()
     {
         return Slices.wrappedBuffer(MEMORY_DATA_FRAGMENT_CODEC.toJsonBytes(this));
@@ -66,6 +86,6 @@ public class MemoryDataFragment
     public static MemoryDataFragment merge(MemoryDataFragment a, MemoryDataFragment b)
     {
         checkArgument(a.getHostAddress().equals(b.getHostAddress()), "Can not merge fragments from different hosts");
-        return new MemoryDataFragment(a.getHostAddress(), a.getRows() + b.getRows());
+        return new MemoryDataFragment(a.getHostAddress(), a.getRows() + b.getRows(), MemoryColumnStatistics.merge(a.getColumnStatistics(), a.getRows(), b.getColumnStatistics(), b.getRows()));
     }
 }
@@ -39,7 +39,11 @@ import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.ViewNotFoundException;
 import com.facebook.presto.spi.connector.ConnectorMetadata;
 import com.facebook.presto.spi.connector.ConnectorOutputMetadata;
+import com.facebook.presto.spi.statistics.ColumnStatistics;
 import com.facebook.presto.spi.statistics.ComputedStatistics;
+import com.facebook.presto.spi.statistics.DoubleRange;
+import com.facebook.presto.spi.statistics.Estimate;
+import com.facebook.presto.spi.statistics.TableStatistics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -403,10 +407,59 @@ public class MemoryMetadata
         List<MemoryDataFragment> expectedFragments = ImmutableList.copyOf(
                 tableDataFragments.get(memoryTableHandle.getTableId()).values());
 
-        MemoryTableLayoutHandle layoutHandle = new MemoryTableLayoutHandle(memoryTableHandle, expectedFragments);
+        // pages are pruned with their column statistics, but the predicate is still evaluated by the engine
+        MemoryTableLayoutHandle layoutHandle = new MemoryTableLayoutHandle(memoryTableHandle, expectedFragments, constraint.getSummary());
         return new ConnectorTableLayoutResult(getTableLayout(session, layoutHandle), constraint.getSummary());
     }
 
+    @Override
+    public synchronized TableStatistics getTableStatistics(
+            ConnectorSession session,
+            ConnectorTableHandle tableHandle,
+            Optional<ConnectorTableLayoutHandle> tableLayoutHandle,
+            List<ColumnHandle> columnHandles,
+            Constraint<ColumnHandle> constraint)
+    {
+        MemoryTableHandle memoryTableHandle = (MemoryTableHandle) tableHandle;
+        Map<HostAddress, MemoryDataFragment> dataFragments = tableDataFragments.get(memoryTableHandle.getTableId());
+        if (dataFragments == null) {
+            return TableStatistics.empty();
+        }
+
+        long rows = 0;
+        List<MemoryColumnStatistics> columnStatistics = ImmutableList.of();
+        for (MemoryDataFragment dataFragment : dataFragments.values()) {
+            columnStatistics = MemoryColumnStatistics.merge(columnStatistics, rows, dataFragment.getColumnStatistics(), dataFragment.getRows());
+            rows += dataFragment.getRows();
+        }
+
+        TableStatistics.Builder builder = TableStatistics.builder()
+                .setRowCount(Estimate.of(rows));
+        if (rows == 0 || columnStatistics.isEmpty()) {
+            return builder.build();
+        }
+        for (ColumnHandle columnHandle : columnHandles) {
+            int columnIndex = ((MemoryColumnHandle) columnHandle).getColumnIndex();
+            if (columnIndex < columnStatistics.size()) {
+                builder.setColumnStatistics(columnHandle, toColumnStatistics(columnStatistics.get(columnIndex), rows));
+            }
+        }
+        return builder.build();
+    }
+
+    private static ColumnStatistics toColumnStatistics(MemoryColumnStatistics statistics, long rows)
+    {
+        Optional<DoubleRange> range = Optional.empty();
+        if (statistics.getMin().isPresent()) {
+            range = Optional.of(new DoubleRange(statistics.getMin().getAsDouble(), statistics.getMax().getAsDouble()));
+        }
+        return ColumnStatistics.builder()
+                .setNullsFraction(Estimate.of((double) statistics.getNullsCount() / rows))
+                .setDataSize(statistics.getDataSize().map(Estimate::of).orElse(Estimate.unknown()))
+                .setRange(range)
+                .build();
+    }
+
     @Override
     public synchronized ConnectorTableLayout getTableLayout(ConnectorSession session, ConnectorTableLayoutHandle handle)
     {
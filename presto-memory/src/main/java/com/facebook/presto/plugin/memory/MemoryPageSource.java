@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.memory;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.plugin.memory.MemoryPagesStore.TableScan;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Page source over off-heap stored pages. Pages are projected one at a time as they are
+ * requested, and their data stays in the slabs of the table until the scan is closed.
+ */
+public class MemoryPageSource
+        implements ConnectorPageSource
+{
+    private final TableScan scan;
+    private final Iterator<StoredPage> pages;
+    private final List<Integer> columnIndexes;
+
+    private long completedBytes;
+    private long completedPositions;
+    private long memoryUsageBytes;
+    private boolean closed;
+
+    public MemoryPageSource(TableScan scan, List<Integer> columnIndexes)
+    {
+        this.scan = requireNonNull(scan, "scan is null");
+        this.pages = scan.getPages().iterator();
+        this.columnIndexes = ImmutableList.copyOf(requireNonNull(columnIndexes, "columnIndexes is null"));
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return completedBytes;
+    }
+
+    @Override
+    public long getCompletedPositions()
+    {
+        return completedPositions;
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return closed || !pages.hasNext();
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        if (isFinished()) {
+            return null;
+        }
+        Page page = pages.next().getColumns(columnIndexes);
+        completedBytes += page.getSizeInBytes();
+        completedPositions += page.getPositionCount();
+        memoryUsageBytes = page.getRetainedSizeInBytes();
+        return page;
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return memoryUsageBytes;
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        scan.close();
+    }
+}
@@ -13,7 +13,8 @@
  */
 package com.facebook.presto.plugin.memory;
 
-import com.facebook.presto.common.Page;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.plugin.memory.MemoryPagesStore.TableScan;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
@@ -57,13 +58,23 @@ public final class MemoryPageSourceProvider
         List<Integer> columnIndexes = columns.stream()
                 .map(MemoryColumnHandle.class::cast)
                 .map(MemoryColumnHandle::getColumnIndex).collect(toList());
-        List<Page> pages = pagesStore.getPages(
+        TupleDomain<Integer> predicate = memorySplit.getPredicate()
+                .transform(column -> ((MemoryColumnHandle) column).getColumnIndex());
+        TableScan scan = pagesStore.openScan(
                 tableId,
                 partNumber,
                 totalParts,
-                columnIndexes,
-                expectedRows);
+                expectedRows,
+                predicate);
 
-        return new FixedPageSource(pages);
+        if (pagesStore.isOffHeapStorageEnabled()) {
+            return new MemoryPageSource(scan, columnIndexes);
+        }
+        // heap pages do not depend on the slabs, so the scan does not need to stay open
+        try (TableScan heapScan = scan) {
+            return new FixedPageSource(heapScan.getPages().stream()
+                    .map(page -> page.getColumns(columnIndexes))
+                    .collect(toList()));
+        }
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.memory;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
+import com.facebook.presto.common.predicate.ValueSet;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VariableWidthType;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.facebook.presto.common.type.TypeUtils.readNativeValue;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Per column min, max and null count of a stored page. The statistics are kept as
+ * domains, so pages that can not match a scan predicate are skipped without being read.
+ */
+public class MemoryPageStatistics
+{
+    private final long rows;
+    private final List<Domain> columnDomains;
+    private final List<MemoryColumnStatistics> columnStatistics;
+
+    private MemoryPageStatistics(long rows, List<Domain> columnDomains, List<MemoryColumnStatistics> columnStatistics)
+    {
+        this.rows = rows;
+        this.columnDomains = ImmutableList.copyOf(requireNonNull(columnDomains, "columnDomains is null"));
+        this.columnStatistics = ImmutableList.copyOf(requireNonNull(columnStatistics, "columnStatistics is null"));
+    }
+
+    public static MemoryPageStatistics create(List<Type> types, Page page)
+    {
+        ImmutableList.Builder<Domain> columnDomains = ImmutableList.builder();
+        ImmutableList.Builder<MemoryColumnStatistics> columnStatistics = ImmutableList.builder();
+        // the declared types may not cover every channel of the page, e.g. in tests
+        for (int channel = 0; channel < Math.min(types.size(), page.getChannelCount()); channel++) {
+            Type type = types.get(channel);
+            Block block = page.getBlock(channel);
+
+            long nullsCount = 0;
+            int minPosition = -1;
+            int maxPosition = -1;
+            boolean orderable = isRangeSupported(type);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (block.isNull(position)) {
+                    nullsCount++;
+                    continue;
+                }
+                if (!orderable) {
+                    continue;
+                }
+                if (isNaN(type, block, position)) {
+                    // NaN is not ordered, so no range can describe the column
+                    orderable = false;
+                    continue;
+                }
+                if (minPosition < 0 || type.compareTo(block, position, block, minPosition) < 0) {
+                    minPosition = position;
+                }
+                if (maxPosition < 0 || type.compareTo(block, position, block, maxPosition) > 0) {
+                    maxPosition = position;
+                }
+            }
+
+            Optional<Long> dataSize = type instanceof VariableWidthType ? Optional.of(block.getSizeInBytes()) : Optional.empty();
+            if (nullsCount == block.getPositionCount()) {
+                columnDomains.add(Domain.onlyNull(type));
+                columnStatistics.add(new MemoryColumnStatistics(nullsCount, dataSize, OptionalDouble.empty(), OptionalDouble.empty()));
+            }
+            else if (orderable) {
+                Object min = copyValue(readNativeValue(type, block, minPosition));
+                Object max = copyValue(readNativeValue(type, block, maxPosition));
+                columnDomains.add(Domain.create(ValueSet.ofRanges(Range.range(type, min, true, max, true)), nullsCount > 0));
+                columnStatistics.add(new MemoryColumnStatistics(nullsCount, dataSize, toDouble(type, min), toDouble(type, max)));
+            }
+            else {
+                columnDomains.add(nullsCount > 0 ? Domain.all(type) : Domain.notNull(type));
+                columnStatistics.add(new MemoryColumnStatistics(nullsCount, dataSize, OptionalDouble.empty(), OptionalDouble.empty()));
+            }
+        }
+        return new MemoryPageStatistics(page.getPositionCount(), columnDomains.build(), columnStatistics.build());
+    }
+
+    public long getRows()
+    {
+        return rows;
+    }
+
+    public List<MemoryColumnStatistics> getColumnStatistics()
+    {
+        return columnStatistics;
+    }
+
+    /**
+     * Returns false if no row of the page can satisfy the predicate on the given columns.
+     */
+    public boolean mayMatch(Map<Integer, Domain> predicate)
+    {
+        for (Map.Entry<Integer, Domain> entry : predicate.entrySet()) {
+            int column = entry.getKey();
+            if (column < columnDomains.size() && !columnDomains.get(column).overlaps(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRangeSupported(Type type)
+    {
+        Class<?> javaType = type.getJavaType();
+        return type.isOrderable() && (javaType == long.class || javaType == double.class || javaType == boolean.class || javaType == Slice.class);
+    }
+
+    private static boolean isNaN(Type type, Block block, int position)
+    {
+        if (type.equals(DOUBLE)) {
+            return Double.isNaN(DOUBLE.getDouble(block, position));
+        }
+        if (type.equals(REAL)) {
+            return Float.isNaN(intBitsToFloat(toIntExact(REAL.getLong(block, position))));
+        }
+        return false;
+    }
+
+    private static Object copyValue(Object value)
+    {
+        // do not retain the block the value was read from
+        if (value instanceof Slice) {
+            return Slices.copyOf((Slice) value);
+        }
+        return value;
+    }
+
+    private static OptionalDouble toDouble(Type type, Object value)
+    {
+        if (type.equals(BIGINT) || type.equals(INTEGER) || type.equals(SMALLINT) || type.equals(TINYINT) || type.equals(DATE)) {
+            return OptionalDouble.of((long) value);
+        }
+        if (type.equals(DOUBLE)) {
+            return OptionalDouble.of((double) value);
+        }
+        if (type.equals(REAL)) {
+            return OptionalDouble.of(intBitsToFloat(toIntExact((long) value)));
+        }
+        return OptionalDouble.empty();
+    }
+}
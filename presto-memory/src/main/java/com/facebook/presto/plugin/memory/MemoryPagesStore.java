@@ -14,92 +14,277 @@
 package com.facebook.presto.plugin.memory;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.AbstractVariableWidthBlock;
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.ByteArrayBlock;
+import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.block.Int128ArrayBlock;
+import com.facebook.presto.common.block.IntArrayBlock;
+import com.facebook.presto.common.block.LongArrayBlock;
+import com.facebook.presto.common.block.RunLengthEncodedBlock;
+import com.facebook.presto.common.block.ShortArrayBlock;
+import com.facebook.presto.common.block.VariableWidthBlock;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.TupleDomain;
 import com.facebook.presto.spi.PrestoException;
 import com.google.common.collect.ImmutableList;
 import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
 import jakarta.inject.Inject;
+import sun.misc.Unsafe;
 
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.facebook.presto.plugin.memory.MemoryErrorCode.MEMORY_LIMIT_EXCEEDED;
 import static com.facebook.presto.plugin.memory.MemoryErrorCode.MISSING_DATA;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.Math.max;
+import static java.lang.Math.multiplyExact;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 
+/**
+ * Holds the pages of memory connector tables on a worker. Inserts, truncation and
+ * clean up are serialized on the store, while scans only synchronize on the table
+ * they read, so concurrent scans do not contend on a global lock.
+ * <p>
+ * In off-heap mode the values of the variable width and fixed width columns of every table are copied
+ * into direct memory slabs owned by the table, and stored pages reference them through views. Fixed
+ * width values are served as variable width blocks whose offsets are shared by all pages of the store.
+ * Dropping or truncating a table frees its slabs once the last open {@link TableScan} over them is
+ * closed. Pages read through {@link #getPages} or {@link #getStoredPages} are not tracked, so the
+ * slabs of a table read that way are left to the garbage collector.
+ */
 @ThreadSafe
 public class MemoryPagesStore
 {
+    private static final Unsafe unsafe;
+
+    static {
+        try {
+            // fetch theUnsafe object
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = (Unsafe) field.get(null);
+            if (unsafe == null) {
+                throw new RuntimeException("Unsafe access not available");
+            }
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private final long maxBytes;
+    private final boolean offHeapStorageEnabled;
+    private final int offHeapSlabSize;
 
     @GuardedBy("this")
     private long currentBytes;
+    // offsets of fixed width values served from slabs, by value size; shared by all blocks of that size
+    @GuardedBy("this")
+    private final Map<Integer, int[]> fixedWidthOffsets = new HashMap<>();
 
-    private final Map<Long, TableData> tables = new HashMap<>();
+    private final Map<Long, TableData> tables = new ConcurrentHashMap<>();
 
     @Inject
     public MemoryPagesStore(MemoryConfig config)
     {
         this.maxBytes = config.getMaxDataPerNode().toBytes();
+        this.offHeapStorageEnabled = config.isOffHeapStorageEnabled();
+        this.offHeapSlabSize = toIntExact(config.getOffHeapSlabSize().toBytes());
     }
 
     public synchronized void initialize(long tableId)
     {
-        if (!tables.containsKey(tableId)) {
-            tables.put(tableId, new TableData());
-        }
+        tables.putIfAbsent(tableId, new TableData());
     }
 
-    public synchronized void add(Long tableId, Page page)
+    public void add(Long tableId, Page page, MemoryPageStatistics statistics)
     {
-        if (!contains(tableId)) {
-            throw new PrestoException(MISSING_DATA, "Failed to find table on a worker.");
+        // the table is looked up while holding the store lock, so a concurrent drop can not be missed
+        if (offHeapStorageEnabled) {
+            // copy variable width data outside of the store lock, so concurrent inserts only contend on the copy into the slab
+            page.compact();
+            Block[] blocks = new Block[page.getChannelCount()];
+            SlabData[] slabData = new SlabData[page.getChannelCount()];
+            for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                Block block = page.getBlock(channel).getLoadedBlock();
+                int fixedWidth = getFixedWidth(block);
+                if (isVariableWidth(block)) {
+                    slabData[channel] = new VariableWidthData(block);
+                }
+                else if (fixedWidth > 0) {
+                    slabData[channel] = new FixedWidthData(block, fixedWidth);
+                }
+                else {
+                    blocks[channel] = block;
+                }
+            }
+            addOffHeap(tableId, page.getPositionCount(), blocks, slabData, statistics);
         }
+        else {
+            addOnHeap(tableId, page, statistics);
+        }
+    }
+
+    private synchronized void addOnHeap(Long tableId, Page page, MemoryPageStatistics statistics)
+    {
+        TableData tableData = getTableData(tableId);
 
         page.compact();
 
-        long newSize = currentBytes + page.getRetainedSizeInBytes();
+        long retainedSize = page.getRetainedSizeInBytes();
+        reserve(retainedSize);
+        tableData.add(new HeapStoredPage(page), statistics, retainedSize);
+    }
+
+    private synchronized void addOffHeap(Long tableId, int positionCount, Block[] blocks, SlabData[] slabData, MemoryPageStatistics statistics)
+    {
+        TableData tableData = getTableData(tableId);
+
+        int length = 0;
+        long retainedSize = 0;
+        for (int channel = 0; channel < blocks.length; channel++) {
+            if (slabData[channel] != null) {
+                length += slabData[channel].getData().length();
+                retainedSize += slabData[channel].getRetainedSizeInBytes();
+            }
+            else {
+                retainedSize += blocks[channel].getRetainedSizeInBytes();
+            }
+        }
+
+        ByteBuffer slab = tableData.getSlab();
+        int offset = tableData.getSlabOffset();
+        if (slab == null || slab.capacity() - offset < length) {
+            int slabSize = max(length, offHeapSlabSize);
+            // the whole slab is charged against the limit
+            reserve(retainedSize + slabSize);
+            retainedSize += slabSize;
+            slab = ByteBuffer.allocateDirect(slabSize);
+            offset = 0;
+            tableData.setSlab(slab);
+        }
+        else {
+            reserve(retainedSize);
+        }
+
+        for (int channel = 0; channel < blocks.length; channel++) {
+            SlabData data = slabData[channel];
+            if (data == null) {
+                continue;
+            }
+            int dataLength = data.getData().length();
+            // each view only reports its own data as retained, not the whole slab
+            Slice view = Slices.wrappedBuffer(slab.slice(offset, dataLength));
+            view.setBytes(0, data.getData());
+            int[] offsets;
+            if (data instanceof FixedWidthData) {
+                offsets = getFixedWidthOffsets(((FixedWidthData) data).getFixedWidth(), positionCount);
+            }
+            else {
+                offsets = ((VariableWidthData) data).getOffsets();
+            }
+            blocks[channel] = new VariableWidthBlock(positionCount, view, offsets, Optional.ofNullable(data.getValueIsNull()));
+            offset += dataLength;
+        }
+        tableData.setSlabOffset(offset);
+        tableData.add(new OffHeapStoredPage(new Page(positionCount, blocks)), statistics, retainedSize);
+    }
+
+    /**
+     * Returns offsets of consecutive values of the given size, for at least the given number of positions.
+     */
+    @GuardedBy("this")
+    private int[] getFixedWidthOffsets(int fixedWidth, int positionCount)
+    {
+        int[] offsets = fixedWidthOffsets.get(fixedWidth);
+        if (offsets == null || offsets.length <= positionCount) {
+            offsets = new int[max(positionCount + 1, offsets == null ? 0 : 2 * offsets.length)];
+            for (int position = 0; position < offsets.length; position++) {
+                offsets[position] = position * fixedWidth;
+            }
+            fixedWidthOffsets.put(fixedWidth, offsets);
+        }
+        return offsets;
+    }
+
+    @GuardedBy("this")
+    private void reserve(long bytes)
+    {
+        long newSize = currentBytes + bytes;
         if (maxBytes < newSize) {
             throw new PrestoException(MEMORY_LIMIT_EXCEEDED, format("Memory limit [%d] for memory connector exceeded", maxBytes));
         }
         currentBytes = newSize;
+    }
 
-        TableData tableData = tables.get(tableId);
-        tableData.add(page);
+    /**
+     * Opens a scan over the given part of the table, skipping pages whose column statistics show that
+     * no row can satisfy the predicate, which is keyed by column index. In off-heap mode the slabs of the
+     * table are not freed until the scan is closed.
+     */
+    public TableScan openScan(
+            Long tableId,
+            int partNumber,
+            int totalParts,
+            long expectedRows,
+            TupleDomain<Integer> predicate)
+    {
+        TableData tableData = getTableData(tableId);
+        return tableData.openScan(partNumber, totalParts, expectedRows, predicate);
     }
 
-    public synchronized List<Page> getPages(
+    public List<Page> getPages(
             Long tableId,
             int partNumber,
             int totalParts,
             List<Integer> columnIndexes,
             long expectedRows)
     {
-        if (!contains(tableId)) {
-            throw new PrestoException(MISSING_DATA, "Failed to find table on a worker.");
-        }
-        TableData tableData = tables.get(tableId);
-        if (tableData.getRows() < expectedRows) {
-            throw new PrestoException(MISSING_DATA,
-                    format("Expected to find [%s] rows on a worker, but found [%s].", expectedRows, tableData.getRows()));
-        }
-
-        ImmutableList.Builder<Page> partitionedPages = ImmutableList.builder();
+        return getStoredPages(tableId, partNumber, totalParts, expectedRows, TupleDomain.all()).stream()
+                .map(page -> page.getColumns(columnIndexes))
+                .collect(toImmutableList());
+    }
 
-        for (int i = partNumber; i < tableData.getPages().size(); i += totalParts) {
-            partitionedPages.add(getColumns(tableData.getPages().get(i), columnIndexes));
-        }
+    /**
+     * Returns the pages of the given part of the table, like {@link #openScan}, without tracking
+     * their views. In off-heap mode the slabs of the table are then left to the garbage collector.
+     */
+    public List<StoredPage> getStoredPages(
+            Long tableId,
+            int partNumber,
+            int totalParts,
+            long expectedRows,
+            TupleDomain<Integer> predicate)
+    {
+        TableData tableData = getTableData(tableId);
+        return tableData.getUntrackedPages(partNumber, totalParts, expectedRows, predicate);
+    }
 
-        return partitionedPages.build();
+    public boolean isOffHeapStorageEnabled()
+    {
+        return offHeapStorageEnabled;
     }
 
-    public synchronized boolean contains(Long tableId)
+    public boolean contains(Long tableId)
     {
         return tables.containsKey(tableId);
     }
@@ -108,9 +293,8 @@ public class MemoryPagesStore
     {
         TableData tableData = tables.get(tableId);
         if (tableData != null) {
-            for (Page page : tableData.getPages()) {
-                currentBytes -= page.getRetainedSizeInBytes();
-            }
+            currentBytes -= tableData.getRetainedBytes();
+            tableData.release();
             tables.put(tableId, new TableData());
         }
     }
@@ -135,44 +319,354 @@ public class MemoryPagesStore
             Map.Entry<Long, TableData> tablePagesEntry = tableDataIterator.next();
             Long tableId = tablePagesEntry.getKey();
             if (tableId < latestTableId && !activeTableIds.contains(tableId)) {
-                for (Page removedPage : tablePagesEntry.getValue().getPages()) {
-                    currentBytes -= removedPage.getRetainedSizeInBytes();
-                }
+                currentBytes -= tablePagesEntry.getValue().getRetainedBytes();
+                tablePagesEntry.getValue().release();
                 tableDataIterator.remove();
             }
         }
     }
 
-    private static Page getColumns(Page page, List<Integer> columnIndexes)
+    private static boolean isVariableWidth(Block block)
+    {
+        if (block instanceof DictionaryBlock) {
+            return ((DictionaryBlock) block).getDictionary() instanceof AbstractVariableWidthBlock;
+        }
+        if (block instanceof RunLengthEncodedBlock) {
+            return ((RunLengthEncodedBlock) block).getValue() instanceof AbstractVariableWidthBlock;
+        }
+        return block instanceof AbstractVariableWidthBlock;
+    }
+
+    /**
+     * Returns the size of the values of a fixed width block that can be served from a slab, or 0.
+     */
+    private static int getFixedWidth(Block block)
+    {
+        if (block instanceof DictionaryBlock) {
+            block = ((DictionaryBlock) block).getDictionary();
+        }
+        else if (block instanceof RunLengthEncodedBlock) {
+            block = ((RunLengthEncodedBlock) block).getValue();
+        }
+        if (block instanceof ByteArrayBlock) {
+            return Byte.BYTES;
+        }
+        if (block instanceof ShortArrayBlock) {
+            return Short.BYTES;
+        }
+        if (block instanceof IntArrayBlock) {
+            return Integer.BYTES;
+        }
+        if (block instanceof LongArrayBlock) {
+            return Long.BYTES;
+        }
+        if (block instanceof Int128ArrayBlock) {
+            return 2 * Long.BYTES;
+        }
+        return 0;
+    }
+
+    private TableData getTableData(Long tableId)
+    {
+        TableData tableData = tables.get(tableId);
+        if (tableData == null) {
+            throw new PrestoException(MISSING_DATA, "Failed to find table on a worker.");
+        }
+        return tableData;
+    }
+
+    /**
+     * Values of a block copied into a single slice, to be copied into a slab, with the null flags they need on the heap.
+     */
+    private interface SlabData
+    {
+        Slice getData();
+
+        // null if the block has no nulls
+        boolean[] getValueIsNull();
+
+        long getRetainedSizeInBytes();
+    }
+
+    /**
+     * Variable width data of a block, with the offsets it needs on the heap.
+     */
+    private static final class VariableWidthData
+            implements SlabData
+    {
+        private final Slice data;
+        private final int[] offsets;
+        // null if the block has no nulls
+        private final boolean[] valueIsNull;
+
+        public VariableWidthData(Block block)
+        {
+            int positionCount = block.getPositionCount();
+            DynamicSliceOutput output = new DynamicSliceOutput(toIntExact(block.getSizeInBytes()));
+            offsets = new int[positionCount + 1];
+            valueIsNull = block.mayHaveNull() ? new boolean[positionCount] : null;
+            for (int position = 0; position < positionCount; position++) {
+                if (valueIsNull != null && block.isNull(position)) {
+                    valueIsNull[position] = true;
+                }
+                else {
+                    output.writeBytes(block.getSlice(position, 0, block.getSliceLength(position)));
+                }
+                offsets[position + 1] = output.size();
+            }
+            data = output.slice();
+        }
+
+        @Override
+        public Slice getData()
+        {
+            return data;
+        }
+
+        public int[] getOffsets()
+        {
+            return offsets;
+        }
+
+        @Override
+        public boolean[] getValueIsNull()
+        {
+            return valueIsNull;
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            return sizeOf(offsets) + (valueIsNull == null ? 0 : sizeOf(valueIsNull));
+        }
+    }
+
+    /**
+     * Fixed width values of a block, one after the other; null values are stored as zeros.
+     */
+    private static final class FixedWidthData
+            implements SlabData
     {
-        Block[] outputBlocks = new Block[columnIndexes.size()];
+        private final Slice data;
+        private final int fixedWidth;
+        // null if the block has no nulls
+        private final boolean[] valueIsNull;
+
+        public FixedWidthData(Block block, int fixedWidth)
+        {
+            int positionCount = block.getPositionCount();
+            this.fixedWidth = fixedWidth;
+            data = Slices.allocate(multiplyExact(positionCount, fixedWidth));
+            valueIsNull = block.mayHaveNull() ? new boolean[positionCount] : null;
+            for (int position = 0; position < positionCount; position++) {
+                if (valueIsNull != null && block.isNull(position)) {
+                    valueIsNull[position] = true;
+                    continue;
+                }
+                int offset = position * fixedWidth;
+                switch (fixedWidth) {
+                    case Byte.BYTES:
+                        data.setByte(offset, block.getByte(position));
+                        break;
+                    case Short.BYTES:
+                        data.setShort(offset, block.getShort(position));
+                        break;
+                    case Integer.BYTES:
+                        data.setInt(offset, block.getInt(position));
+                        break;
+                    case Long.BYTES:
+                        data.setLong(offset, block.getLong(position));
+                        break;
+                    default:
+                        data.setLong(offset, block.getLong(position, 0));
+                        data.setLong(offset + Long.BYTES, block.getLong(position, Long.BYTES));
+                }
+            }
+        }
+
+        @Override
+        public Slice getData()
+        {
+            return data;
+        }
+
+        public int getFixedWidth()
+        {
+            return fixedWidth;
+        }
+
+        @Override
+        public boolean[] getValueIsNull()
+        {
+            return valueIsNull;
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            return valueIsNull == null ? 0 : sizeOf(valueIsNull);
+        }
+    }
+
+    /**
+     * The pages of a table read by one page source. In off-heap mode the pages are views over the slabs of the table,
+     * so the slabs of a dropped or truncated table are freed when its last scan is closed.
+     */
+    public static final class TableScan
+            implements Closeable
+    {
+        private final List<StoredPage> pages;
+        private final TableData tableData;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private TableScan(List<StoredPage> pages, TableData tableData)
+        {
+            this.pages = pages;
+            this.tableData = tableData;
+        }
 
-        for (int i = 0; i < columnIndexes.size(); i++) {
-            outputBlocks[i] = page.getBlock(columnIndexes.get(i));
+        public List<StoredPage> getPages()
+        {
+            return pages;
         }
 
-        return new Page(page.getPositionCount(), outputBlocks);
+        @Override
+        public void close()
+        {
+            if (closed.compareAndSet(false, true)) {
+                tableData.closeScan();
+            }
+        }
     }
 
+    @ThreadSafe
     private static final class TableData
     {
-        private final List<Page> pages = new ArrayList<>();
+        @GuardedBy("this")
+        private final List<StoredPage> pages = new ArrayList<>();
+        @GuardedBy("this")
+        private final List<MemoryPageStatistics> statistics = new ArrayList<>();
+        @GuardedBy("this")
         private long rows;
+        @GuardedBy("this")
+        private long retainedBytes;
 
-        public void add(Page page)
+        // slabs of the table in off-heap mode, the last one is being filled; only modified while holding the store lock
+        @GuardedBy("this")
+        private final List<ByteBuffer> slabs = new ArrayList<>();
+        private int slabOffset;
+        @GuardedBy("this")
+        private int openScans;
+        // set once pages are read without a scan, the slabs are then left to the garbage collector
+        @GuardedBy("this")
+        private boolean untrackedViews;
+        @GuardedBy("this")
+        private boolean released;
+
+        public synchronized void add(StoredPage page, MemoryPageStatistics pageStatistics, long retainedSize)
         {
             pages.add(page);
+            statistics.add(pageStatistics);
             rows += page.getPositionCount();
+            retainedBytes += retainedSize;
+        }
+
+        public synchronized TableScan openScan(int partNumber, int totalParts, long expectedRows, TupleDomain<Integer> predicate)
+        {
+            List<StoredPage> pages = getPages(partNumber, totalParts, expectedRows, predicate);
+            openScans++;
+            return new TableScan(pages, this);
         }
 
-        private List<Page> getPages()
+        public synchronized List<StoredPage> getUntrackedPages(int partNumber, int totalParts, long expectedRows, TupleDomain<Integer> predicate)
         {
+            List<StoredPage> pages = getPages(partNumber, totalParts, expectedRows, predicate);
+            untrackedViews = true;
             return pages;
         }
 
-        private long getRows()
+        private synchronized void closeScan()
         {
-            return rows;
+            openScans--;
+            if (released && openScans == 0) {
+                freeSlabs();
+            }
+        }
+
+        @GuardedBy("this")
+        private List<StoredPage> getPages(int partNumber, int totalParts, long expectedRows, TupleDomain<Integer> predicate)
+        {
+            if (released) {
+                throw new PrestoException(MISSING_DATA, "Failed to find table on a worker.");
+            }
+            if (rows < expectedRows) {
+                throw new PrestoException(MISSING_DATA,
+                        format("Expected to find [%s] rows on a worker, but found [%s].", expectedRows, rows));
+            }
+
+            if (predicate.isNone()) {
+                return ImmutableList.of();
+            }
+            Map<Integer, Domain> domains = predicate.getDomains().get();
+
+            ImmutableList.Builder<StoredPage> partitionedPages = ImmutableList.builder();
+            for (int i = partNumber; i < pages.size(); i += totalParts) {
+                if (domains.isEmpty() || statistics.get(i).mayMatch(domains)) {
+                    partitionedPages.add(pages.get(i));
+                }
+            }
+            return partitionedPages.build();
+        }
+
+        public synchronized long getRetainedBytes()
+        {
+            return retainedBytes;
+        }
+
+        public synchronized ByteBuffer getSlab()
+        {
+            return slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+        }
+
+        public int getSlabOffset()
+        {
+            return slabOffset;
+        }
+
+        public synchronized void setSlab(ByteBuffer slab)
+        {
+            slabs.add(slab);
+            slabOffset = 0;
+        }
+
+        public void setSlabOffset(int slabOffset)
+        {
+            this.slabOffset = slabOffset;
+        }
+
+        /**
+         * Drops the pages of a dropped or truncated table. Its slabs are freed right away if no scan is open, or when
+         * the last open scan is closed.
+         */
+        public synchronized void release()
+        {
+            released = true;
+            pages.clear();
+            statistics.clear();
+            if (openScans == 0) {
+                freeSlabs();
+            }
+        }
+
+        @GuardedBy("this")
+        private void freeSlabs()
+        {
+            if (!untrackedViews) {
+                for (ByteBuffer slab : slabs) {
+                    unsafe.invokeCleaner(slab);
+                }
+            }
+            slabs.clear();
         }
     }
 }
@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.plugin.memory;
 
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorTableLayoutHandle;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -26,14 +28,17 @@ public class MemoryTableLayoutHandle
 {
     private final MemoryTableHandle table;
     private final List<MemoryDataFragment> dataFragments;
+    private final TupleDomain<ColumnHandle> predicate;
 
     @JsonCreator
     public MemoryTableLayoutHandle(
             @JsonProperty("table") MemoryTableHandle table,
-            @JsonProperty("dataFragments") List<MemoryDataFragment> dataFragments)
+            @JsonProperty("dataFragments") List<MemoryDataFragment> dataFragments,
+            @JsonProperty("predicate") TupleDomain<ColumnHandle> predicate)
     {
         this.table = requireNonNull(table, "table is null");
         this.dataFragments = requireNonNull(dataFragments, "dataFragments is null");
+        this.predicate = requireNonNull(predicate, "predicate is null");
     }
 
     @JsonProperty
@@ -48,6 +53,12 @@ public class MemoryTableLayoutHandle
         return dataFragments;
     }
 
+    @JsonProperty
+    public TupleDomain<ColumnHandle> getPredicate()
+    {
+        return predicate;
+    }
+
     public String getConnectorId()
     {
         return table.getConnectorId();
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plugin.memory;
+
+import com.facebook.presto.common.Page;
+
+import java.util.List;
+
+/**
+ * A page held by {@link MemoryPagesStore}, either as a heap {@link Page} or as
+ * serialized blocks in a direct memory slab.
+ */
+public interface StoredPage
+{
+    int getPositionCount();
+
+    /**
+     * Returns the requested columns. Neither mode decodes or copies data, off-heap pages
+     * return views over their slab.
+     */
+    Page getColumns(List<Integer> columnIndexes);
+}
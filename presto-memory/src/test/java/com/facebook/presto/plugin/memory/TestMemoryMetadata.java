@@ -13,6 +13,9 @@
  */
 package com.facebook.presto.plugin.memory;
 
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ColumnMetadata;
 import com.facebook.presto.spi.ConnectorOutputTableHandle;
 import com.facebook.presto.spi.ConnectorTableHandle;
@@ -22,10 +25,15 @@ import com.facebook.presto.spi.ConnectorTableLayoutResult;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.ConnectorViewDefinition;
 import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.HostAddress;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaNotFoundException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.statistics.ColumnStatistics;
+import com.facebook.presto.spi.statistics.DoubleRange;
+import com.facebook.presto.spi.statistics.Estimate;
+import com.facebook.presto.spi.statistics.TableStatistics;
 import com.facebook.presto.testing.TestingNodeManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -36,6 +44,7 @@ import org.testng.annotations.Test;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
 
 import static com.facebook.airlift.testing.Assertions.assertEqualsIgnoreOrder;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
@@ -362,6 +371,51 @@ public class TestMemoryMetadata
         assertEquals(metadata.listTables(SESSION, "test_different_schema"), ImmutableList.of(differentSchemaTableName));
     }
 
+    @Test
+    public void testTableStatistics()
+    {
+        SchemaTableName tableName = new SchemaTableName("default", "stats_table");
+        ConnectorOutputTableHandle table = metadata.beginCreateTable(
+                SESSION,
+                new ConnectorTableMetadata(tableName, ImmutableList.of(ColumnMetadata.builder().setName("a").setType(BIGINT).build()), ImmutableMap.of()),
+                Optional.empty());
+        MemoryColumnStatistics firstHost = new MemoryColumnStatistics(1, Optional.empty(), OptionalDouble.of(-5), OptionalDouble.of(10));
+        MemoryColumnStatistics secondHost = new MemoryColumnStatistics(3, Optional.empty(), OptionalDouble.of(0), OptionalDouble.of(42));
+        metadata.finishCreateTable(
+                SESSION,
+                table,
+                ImmutableList.of(
+                        new MemoryDataFragment(HostAddress.fromString("host1:8080"), 10, ImmutableList.of(firstHost)).toSlice(),
+                        new MemoryDataFragment(HostAddress.fromString("host2:8080"), 30, ImmutableList.of(secondHost)).toSlice()),
+                ImmutableList.of());
+
+        ConnectorTableHandle tableHandle = metadata.getTableHandle(SESSION, tableName);
+        ColumnHandle column = metadata.getColumnHandles(SESSION, tableHandle).get("a");
+        TableStatistics statistics = metadata.getTableStatistics(SESSION, tableHandle, Optional.empty(), ImmutableList.of(column), Constraint.alwaysTrue());
+
+        assertEquals(statistics.getRowCount(), Estimate.of(40));
+        ColumnStatistics columnStatistics = statistics.getColumnStatistics().get(column);
+        assertEquals(columnStatistics.getNullsFraction(), Estimate.of(0.1));
+        assertEquals(columnStatistics.getRange(), Optional.of(new DoubleRange(-5, 42)));
+    }
+
+    @Test
+    public void testLayoutCarriesPredicate()
+    {
+        SchemaTableName tableName = new SchemaTableName("default", "predicate_table");
+        metadata.createTable(SESSION, new ConnectorTableMetadata(tableName, ImmutableList.of(ColumnMetadata.builder().setName("a").setType(BIGINT).build())), false);
+        ConnectorTableHandle tableHandle = metadata.getTableHandle(SESSION, tableName);
+        ColumnHandle column = metadata.getColumnHandles(SESSION, tableHandle).get("a");
+
+        TupleDomain<ColumnHandle> predicate = TupleDomain.withColumnDomains(ImmutableMap.of(column, Domain.singleValue(BIGINT, 7L)));
+        ConnectorTableLayoutResult result = metadata.getTableLayoutForConstraint(SESSION, tableHandle, new Constraint<>(predicate), Optional.empty());
+
+        MemoryTableLayoutHandle layoutHandle = (MemoryTableLayoutHandle) result.getTableLayout().getHandle();
+        assertEquals(layoutHandle.getPredicate(), predicate);
+        // pruning is per page, so the predicate is still enforced by the engine
+        assertEquals(result.getUnenforcedConstraint(), predicate);
+    }
+
     private void assertNoTables()
     {
         assertEquals(metadata.listTables(SESSION, Optional.empty()), ImmutableList.of(), "No table was expected");
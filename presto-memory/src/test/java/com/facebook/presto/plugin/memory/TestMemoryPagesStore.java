@@ -15,24 +15,52 @@ package com.facebook.presto.plugin.memory;
 
 import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.VariableWidthBlock;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueSet;
+import com.facebook.presto.common.type.Type;
 import com.facebook.presto.spi.ConnectorInsertTableHandle;
 import com.facebook.presto.spi.ConnectorOutputTableHandle;
 import com.facebook.presto.spi.ConnectorPageSink;
+import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.HostAddress;
 import com.facebook.presto.spi.PageSinkContext;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.testing.TestingConnectorSession;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.OptionalDouble;
+
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DecimalType.createDecimalType;
+import static com.facebook.presto.common.type.Decimals.encodeScaledValue;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.collect.MoreCollectors.onlyElement;
+import static io.airlift.slice.Slices.utf8Slice;
 import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
@@ -119,6 +147,226 @@ public class TestMemoryPagesStore
         insertToTable(0L, createOneMegaBytePage(), 0L);
     }
 
+    @Test
+    public void testPagePruning()
+    {
+        pagesStore.initialize(0L);
+        for (int i = 0; i < 5; i++) {
+            Page page = createBigintVarcharPage(i * 100, 100);
+            pagesStore.add(0L, page, MemoryPageStatistics.create(ImmutableList.of(BIGINT, VARCHAR), page));
+        }
+
+        assertEquals(pagesStore.getStoredPages(0L, 0, 1, 500, TupleDomain.all()).size(), 5);
+        assertEquals(pagesStore.getStoredPages(0L, 0, 1, 500, TupleDomain.none()).size(), 0);
+
+        List<StoredPage> pages = pagesStore.getStoredPages(0L, 0, 1, 500, TupleDomain.withColumnDomains(ImmutableMap.of(0, Domain.singleValue(BIGINT, 250L))));
+        assertEquals(pages.size(), 1);
+        assertEquals(BIGINT.getLong(pages.get(0).getColumns(ImmutableList.of(0)).getBlock(0), 0), 200L);
+
+        // no page contains nulls
+        assertEquals(pagesStore.getStoredPages(0L, 0, 1, 500, TupleDomain.withColumnDomains(ImmutableMap.of(0, Domain.onlyNull(BIGINT)))).size(), 0);
+        assertEquals(pagesStore.getStoredPages(0L, 0, 1, 500, TupleDomain.withColumnDomains(ImmutableMap.of(1, Domain.singleValue(VARCHAR, utf8Slice("value_99"))))).size(), 1);
+        assertEquals(pagesStore.getStoredPages(0L, 0, 1, 500, TupleDomain.withColumnDomains(ImmutableMap.of(0, Domain.create(ValueSet.ofRanges(Range.greaterThan(BIGINT, 1000L)), false)))).size(), 0);
+    }
+
+    @Test
+    public void testPageStatistics()
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 3);
+        BIGINT.writeLong(blockBuilder, 7L);
+        blockBuilder.appendNull();
+        BIGINT.writeLong(blockBuilder, -3L);
+        MemoryPageStatistics statistics = MemoryPageStatistics.create(ImmutableList.of(BIGINT), new Page(blockBuilder.build()));
+
+        MemoryColumnStatistics columnStatistics = getOnlyElement(statistics.getColumnStatistics());
+        assertEquals(columnStatistics.getNullsCount(), 1);
+        assertEquals(columnStatistics.getMin(), OptionalDouble.of(-3));
+        assertEquals(columnStatistics.getMax(), OptionalDouble.of(7));
+        assertTrue(statistics.mayMatch(ImmutableMap.of(0, Domain.onlyNull(BIGINT))));
+        assertTrue(statistics.mayMatch(ImmutableMap.of(0, Domain.singleValue(BIGINT, 0L))));
+        assertFalse(statistics.mayMatch(ImmutableMap.of(0, Domain.singleValue(BIGINT, 8L))));
+    }
+
+    @Test
+    public void testOffHeapInsertPage()
+    {
+        useOffHeapStorage(new DataSize(512, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+
+        Page page = createBigintVarcharPage(0, 100);
+        insertToTable(0L, page, 0L);
+        insertToTable(0L, createBigintVarcharPage(100, 100), 0L);
+
+        List<Page> pages = pagesStore.getPages(0L, 0, 1, ImmutableList.of(1, 0), 200);
+        assertEquals(pages.size(), 2);
+        Page projected = pages.get(0);
+        assertEquals(projected.getChannelCount(), 2);
+        assertEquals(projected.getPositionCount(), 100);
+        for (int position = 0; position < 100; position++) {
+            assertEquals(VARCHAR.getSlice(projected.getBlock(0), position), VARCHAR.getSlice(page.getBlock(1), position));
+            assertEquals(BIGINT.getLong(projected.getBlock(1), position), BIGINT.getLong(page.getBlock(0), position));
+        }
+
+        // scans of the same table are served from the same slab
+        assertEquals(pagesStore.getPages(0L, 1, 2, ImmutableList.of(0), 200).size(), 1);
+    }
+
+    @Test
+    public void testOffHeapPageSource()
+            throws Exception
+    {
+        useOffHeapStorage(new DataSize(512, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+        insertToTable(0L, createBigintVarcharPage(0, 10), 0L);
+        insertToTable(0L, createBigintVarcharPage(10, 10), 0L);
+
+        ConnectorPageSource pageSource = new MemoryPageSource(pagesStore.openScan(0L, 0, 1, 20, TupleDomain.all()), ImmutableList.of(0));
+        long expected = 0;
+        while (!pageSource.isFinished()) {
+            Page page = pageSource.getNextPage();
+            assertEquals(page.getChannelCount(), 1);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                assertEquals(BIGINT.getLong(page.getBlock(0), position), expected++);
+            }
+        }
+        assertEquals(expected, 20);
+        assertEquals(pageSource.getCompletedPositions(), 20);
+        pageSource.close();
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Memory limit \\[1048576\\] for memory connector exceeded")
+    public void testOffHeapMemoryLimitExceeded()
+    {
+        // every slab is charged in full against the limit
+        useOffHeapStorage(new DataSize(600, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+        createTable(1L, 0L, 1L);
+        insertToTable(0L, createBigintVarcharPage(0, 10), 0L, 1L);
+        insertToTable(1L, createBigintVarcharPage(0, 10), 0L, 1L);
+    }
+
+    @Test
+    public void testOffHeapClearTableReleasesMemory()
+    {
+        useOffHeapStorage(new DataSize(600, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+        insertToTable(0L, createBigintVarcharPage(0, 10), 0L);
+        pagesStore.clearTable(0L);
+        insertToTable(0L, createBigintVarcharPage(0, 10), 0L);
+        assertEquals(pagesStore.getPages(0L, 0, 1, ImmutableList.of(0), 10).size(), 1);
+    }
+
+    @Test
+    public void testOffHeapScansReturnViews()
+    {
+        useOffHeapStorage(new DataSize(512, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+        insertToTable(0L, createBigintVarcharPage(0, 100), 0L);
+
+        Block first = pagesStore.getPages(0L, 0, 1, ImmutableList.of(1), 100).get(0).getBlock(0);
+        Block second = pagesStore.getPages(0L, 0, 1, ImmutableList.of(1), 100).get(0).getBlock(0);
+        assertSame(first, second);
+        // the data lives in the slab, and only the data of the page is reported as retained
+        assertNull(VARCHAR.getSlice(first, 0).getBase());
+        assertTrue(first.getRetainedSizeInBytes() < 100 * 1024);
+    }
+
+    @Test
+    public void testOffHeapFixedWidthColumns()
+    {
+        useOffHeapStorage(new DataSize(512, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+        List<Type> types = ImmutableList.of(BIGINT, INTEGER, SMALLINT, BOOLEAN, DOUBLE, createDecimalType(30, 2));
+        PageBuilder pageBuilder = new PageBuilder(types);
+        for (int i = 0; i < 100; i++) {
+            pageBuilder.declarePosition();
+            if (i % 10 == 0) {
+                for (int channel = 0; channel < types.size(); channel++) {
+                    pageBuilder.getBlockBuilder(channel).appendNull();
+                }
+                continue;
+            }
+            BIGINT.writeLong(pageBuilder.getBlockBuilder(0), i * 1_000_000_000_000L);
+            INTEGER.writeLong(pageBuilder.getBlockBuilder(1), -i);
+            SMALLINT.writeLong(pageBuilder.getBlockBuilder(2), i);
+            BOOLEAN.writeBoolean(pageBuilder.getBlockBuilder(3), i % 2 == 0);
+            DOUBLE.writeDouble(pageBuilder.getBlockBuilder(4), i / 3.0);
+            types.get(5).writeSlice(pageBuilder.getBlockBuilder(5), encodeScaledValue(new BigDecimal(i).scaleByPowerOfTen(20)));
+        }
+        Page page = pageBuilder.build();
+        insertToTable(0L, page, 0L);
+
+        Page stored = getOnlyElement(pagesStore.getPages(0L, 0, 1, ImmutableList.of(0, 1, 2, 3, 4, 5), 100));
+        for (int channel = 0; channel < types.size(); channel++) {
+            Block block = stored.getBlock(channel);
+            // the values are views over the slab, and the offsets are shared by the pages of the store
+            assertTrue(block instanceof VariableWidthBlock);
+            assertNull(block.getSlice(1, 0, 1).getBase());
+            Type type = types.get(channel);
+            for (int position = 0; position < 100; position++) {
+                assertEquals(type.getObjectValue(SESSION.getSqlFunctionProperties(), block, position), type.getObjectValue(SESSION.getSqlFunctionProperties(), page.getBlock(channel), position));
+            }
+        }
+    }
+
+    @Test
+    public void testOffHeapDropFreesSlabs()
+    {
+        BufferPoolMXBean directBufferPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .collect(onlyElement());
+        useOffHeapStorage(new DataSize(512, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+        long before = directBufferPool.getMemoryUsed();
+        insertToTable(0L, createBigintVarcharPage(0, 10), 0L);
+        assertTrue(directBufferPool.getMemoryUsed() >= before + 512 * 1024);
+
+        // no scan is open, so the slab is freed without waiting for the garbage collector
+        pagesStore.clearTable(0L);
+        assertTrue(directBufferPool.getMemoryUsed() < before + 512 * 1024);
+    }
+
+    @Test
+    public void testOffHeapDropFreesSlabsWhenLastScanCloses()
+            throws Exception
+    {
+        BufferPoolMXBean directBufferPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .collect(onlyElement());
+        useOffHeapStorage(new DataSize(512, DataSize.Unit.KILOBYTE));
+        createTable(0L, 0L);
+        long before = directBufferPool.getMemoryUsed();
+        insertToTable(0L, createBigintVarcharPage(0, 10), 0L);
+
+        ConnectorPageSource first = new MemoryPageSource(pagesStore.openScan(0L, 0, 1, 10, TupleDomain.all()), ImmutableList.of(1));
+        ConnectorPageSource second = new MemoryPageSource(pagesStore.openScan(0L, 0, 1, 10, TupleDomain.all()), ImmutableList.of(1));
+        Page page = first.getNextPage();
+        pagesStore.clearTable(0L);
+
+        // the open scans still read the slab
+        first.close();
+        assertTrue(directBufferPool.getMemoryUsed() >= before + 512 * 1024);
+        assertEquals(VARCHAR.getSlice(page.getBlock(0), 9), utf8Slice("value_9"));
+        assertEquals(VARCHAR.getSlice(second.getNextPage().getBlock(0), 0), utf8Slice("value_0"));
+
+        // closing a scan twice does not release the slab of another scan
+        first.close();
+        assertTrue(directBufferPool.getMemoryUsed() >= before + 512 * 1024);
+
+        second.close();
+        assertTrue(directBufferPool.getMemoryUsed() < before + 512 * 1024);
+    }
+
+    private void useOffHeapStorage(DataSize slabSize)
+    {
+        pagesStore = new MemoryPagesStore(
+                new MemoryConfig()
+                        .setMaxDataPerNode(new DataSize(1, DataSize.Unit.MEGABYTE))
+                        .setOffHeapStorageEnabled(true)
+                        .setOffHeapSlabSize(slabSize));
+        pageSinkProvider = new MemoryPageSinkProvider(pagesStore, HostAddress.fromString("localhost:8080"));
+    }
+
     private void insertToTable(long tableId, Long... activeTableIds)
     {
         insertToTable(tableId, createPage(), activeTableIds);
@@ -176,6 +424,17 @@ public class TestMemoryPagesStore
         return new Page(0, blockBuilder.build());
     }
 
+    private static Page createBigintVarcharPage(int start, int positionCount)
+    {
+        BlockBuilder bigintBlockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        BlockBuilder varcharBlockBuilder = VARCHAR.createBlockBuilder(null, positionCount);
+        for (int i = start; i < start + positionCount; i++) {
+            BIGINT.writeLong(bigintBlockBuilder, i);
+            VARCHAR.writeSlice(varcharBlockBuilder, utf8Slice("value_" + i));
+        }
+        return new Page(positionCount, bigintBlockBuilder.build(), varcharBlockBuilder.build());
+    }
+
     private static Page createOneMegaBytePage()
     {
         BlockBuilder blockBuilder = BIGINT.createFixedSizeBlockBuilder(POSITIONS_PER_PAGE);
@@ -103,6 +103,18 @@ public class TestMemorySmoke
         assertQuery("SELECT * FROM tpch.tiny.nation WHERE nationkey = 1", "SELECT * FROM nation WHERE nationkey = 1");
     }
 
+    @Test
+    public void testSelectWithPrunedPages()
+    {
+        assertUpdate("CREATE TABLE pruned_orders AS SELECT * FROM tpch.tiny.orders ORDER BY orderkey", "SELECT count(*) FROM orders");
+        assertQuery("SELECT * FROM pruned_orders WHERE orderkey = 7", "SELECT * FROM orders WHERE orderkey = 7");
+        assertQuery("SELECT count(*) FROM pruned_orders WHERE orderkey BETWEEN 100 AND 200", "SELECT count(*) FROM orders WHERE orderkey BETWEEN 100 AND 200");
+        assertQuery("SELECT count(*) FROM pruned_orders WHERE orderkey > 1000000", "SELECT 0");
+        assertQuery("SELECT count(*) FROM pruned_orders WHERE orderstatus = 'F' AND orderkey < 1000", "SELECT count(*) FROM orders WHERE orderstatus = 'F' AND orderkey < 1000");
+        assertQuery("SELECT count(*) FROM pruned_orders WHERE comment IS NULL", "SELECT 0");
+        assertUpdate("DROP TABLE pruned_orders");
+    }
+
     @Test
     public void testSelectColumnsSubset()
     {
@@ -54,6 +54,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.orc.AbstractOrcRecordReader.LinearProbeRangeFinder.createTinyStripesRangeFinder;
@@ -79,6 +80,8 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
     private static final int INSTANCE_SIZE = ClassLayout.parseClass(AbstractOrcRecordReader.class).instanceSize();
 
     private final OrcDataSource orcDataSource;
+    private final Optional<PrefetchingOrcDataSource> prefetchingDataSource;
+    private boolean nextStripeDataPrefetchPending;
 
     private final T[] streamReaders;
 
@@ -156,7 +159,9 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
             boolean cacheable,
             RuntimeStats runtimeStats,
             Optional<OrcFileIntrospector> fileIntrospector,
-            long fileModificationTime)
+            long fileModificationTime,
+            Optional<Executor> stripePrefetchExecutor,
+            DataSize maxStripePrefetchSize)
     {
         requireNonNull(includedColumns, "includedColumns is null");
         requireNonNull(predicate, "predicate is null");
@@ -231,6 +236,10 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
         this.stripeFilePositions = stripeFilePositions.build();
 
         orcDataSource = wrapWithCacheIfTinyStripes(orcDataSource, this.stripes, maxMergeDistance, tinyStripeThreshold, systemMemoryUsage);
+        this.prefetchingDataSource = wrapWithPrefetchIfMultipleStripes(orcDataSource, this.stripes, requireNonNull(stripePrefetchExecutor, "stripePrefetchExecutor is null"), maxMergeDistance, maxStripePrefetchSize, systemMemoryUsage);
+        if (prefetchingDataSource.isPresent()) {
+            orcDataSource = prefetchingDataSource.get();
+        }
         this.orcDataSource = orcDataSource;
         this.splitLength = splitLength;
 
@@ -455,6 +464,26 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
         return new CachingOrcDataSource(dataSource, createTinyStripesRangeFinder(stripes, maxMergeDistance, tinyStripeThreshold), systemMemoryContext.newOrcLocalMemoryContext(CachingOrcDataSource.class.getSimpleName()));
     }
 
+    private static Optional<PrefetchingOrcDataSource> wrapWithPrefetchIfMultipleStripes(
+            OrcDataSource dataSource,
+            List<StripeInformation> stripes,
+            Optional<Executor> stripePrefetchExecutor,
+            DataSize maxMergeDistance,
+            DataSize maxStripePrefetchSize,
+            OrcAggregatedMemoryContext systemMemoryContext)
+    {
+        // tiny stripes are already read as a single region by the caching data source
+        if (!stripePrefetchExecutor.isPresent() || stripes.size() < 2 || dataSource instanceof CachingOrcDataSource) {
+            return Optional.empty();
+        }
+        return Optional.of(new PrefetchingOrcDataSource(
+                dataSource,
+                stripePrefetchExecutor.get(),
+                maxMergeDistance,
+                maxStripePrefetchSize,
+                systemMemoryContext.newOrcLocalMemoryContext(PrefetchingOrcDataSource.class.getSimpleName())));
+    }
+
     /**
      * Return the row position relative to the start of the file.
      */
@@ -601,6 +630,10 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
     protected int prepareNextBatch()
             throws IOException
     {
+        if (nextStripeDataPrefetchPending) {
+            prefetchNextStripeData();
+        }
+
         // update position for current row group (advancing resets them)
         filePosition += currentBatchSize;
         currentPosition += currentBatchSize;
@@ -636,6 +669,7 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
         currentStripeSystemMemoryContext.close();
         currentStripeSystemMemoryContext = systemMemoryUsage.newOrcAggregatedMemoryContext();
         rowGroups = ImmutableList.<RowGroup>of().iterator();
+        nextStripeDataPrefetchPending = false;
 
         if (currentStripe >= 0) {
             if (stripeStatisticsValidation.isPresent()) {
@@ -678,10 +712,44 @@ abstract class AbstractOrcRecordReader<T extends StreamReader>
             }
 
             rowGroups = stripe.getRowGroups().iterator();
+            if (prefetchingDataSource.isPresent()) {
+                prefetchNextStripeFooter();
+            }
         }
         fileIntrospector.ifPresent(introspector -> introspector.onStripe(stripeInformation, stripe));
     }
 
+    /**
+     * Starts reading the footer of the next stripe in the background. The data ranges of
+     * the next stripe are only known once its footer is decoded, which happens on this
+     * thread in {@link #prefetchNextStripeData} as soon as the footer is available.
+     */
+    private void prefetchNextStripeFooter()
+    {
+        int nextStripe = currentStripe + 1;
+        if (nextStripe >= stripes.size() || stripes.get(nextStripe).getFooterLength() == 0) {
+            // release the buffers of the current stripe's prefetch
+            prefetchingDataSource.get().prefetch(ImmutableList.of());
+            return;
+        }
+        StripeInformation stripe = stripes.get(nextStripe);
+        long footerOffset = stripe.getOffset() + stripe.getIndexLength() + stripe.getDataLength();
+        prefetchingDataSource.get().prefetch(ImmutableList.of(new DiskRange(footerOffset, toIntExact(stripe.getFooterLength()))));
+        nextStripeDataPrefetchPending = true;
+    }
+
+    private void prefetchNextStripeData()
+            throws IOException
+    {
+        PrefetchingOrcDataSource dataSource = prefetchingDataSource.get();
+        if (!dataSource.isPrefetchDone()) {
+            return;
+        }
+        nextStripeDataPrefetchPending = false;
+        // reading the footer populates the stripe metadata cache from the prefetched bytes
+        dataSource.prefetch(stripeReader.getStripeDiskRanges(stripes.get(currentStripe + 1)));
+    }
+
     @VisibleForTesting
     public static List<byte[]> getDecryptionKeyMetadata(int currentStripe, List<StripeInformation> stripes)
     {
@@ -109,7 +109,9 @@ public class OrcBatchRecordReader
                 cacheable,
                 runtimeStats,
                 Optional.empty(),
-                 fileModificationTime);
+                fileModificationTime,
+                Optional.empty(),
+                options.getMaxStripePrefetchSize());
     }
 
     public int nextBatch()
@@ -28,6 +28,7 @@ import com.facebook.presto.common.predicate.TupleDomainFilter.BigintMultiRange;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BigintRange;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BigintValuesUsingBitmask;
 import com.facebook.presto.common.predicate.TupleDomainFilter.BigintValuesUsingHashTable;
+import com.facebook.presto.common.predicate.TupleDomainFilter.BloomFilterValues;
 import com.facebook.presto.common.type.CharType;
 import com.facebook.presto.common.type.DecimalType;
 import com.facebook.presto.common.type.Type;
@@ -232,7 +233,9 @@ public class OrcSelectiveRecordReader
                 cacheable,
                 runtimeStats,
                 fileIntrospector,
-                fileModificationTime);
+                fileModificationTime,
+                options.getStripePrefetchExecutor(),
+                options.getMaxStripePrefetchSize());
 
         // Hive column indices can't be used to index into arrays because they are negative
         // for partition and hidden columns. Hence, we create synthetic zero-based indices.
@@ -507,6 +510,11 @@ public class OrcSelectiveRecordReader
             return 50;
         }
 
+        if (filter instanceof BloomFilterValues) {
+            // Join filter. One memory access per value, and usually selective.
+            return 50;
+        }
+
         return 100;
     }
 
@@ -0,0 +1,319 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.airlift.units.DataSize;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.slice.Slices;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.orc.OrcDataSourceUtils.mergeAdjacentDiskRanges;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads disk ranges of an upcoming stripe on a background executor while the
+ * current stripe is being decoded. Reads that are covered by the pending
+ * prefetch wait for it and are served from its buffers; all other reads go
+ * to the delegate.
+ * <p>
+ * The prefetch is issued, consumed and cancelled by the reader thread. Only
+ * the delegate reads happen on the executor, so the delegate must support
+ * concurrent positioned reads.
+ */
+public class PrefetchingOrcDataSource
+        implements OrcDataSource
+{
+    private final OrcDataSource dataSource;
+    private final Executor executor;
+    private final DataSize maxMergeDistance;
+    private final DataSize maxPrefetchSize;
+    private final OrcLocalMemoryContext systemMemoryContext;
+
+    private Prefetch prefetch;
+    private boolean closed;
+
+    public PrefetchingOrcDataSource(OrcDataSource dataSource, Executor executor, DataSize maxMergeDistance, DataSize maxPrefetchSize, OrcLocalMemoryContext systemMemoryContext)
+    {
+        this.dataSource = requireNonNull(dataSource, "dataSource is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        this.maxMergeDistance = requireNonNull(maxMergeDistance, "maxMergeDistance is null");
+        this.maxPrefetchSize = requireNonNull(maxPrefetchSize, "maxPrefetchSize is null");
+        checkArgument(maxPrefetchSize.toBytes() > 0, "maxPrefetchSize must be positive");
+        this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null");
+    }
+
+    /**
+     * Starts reading the given ranges in the background, replacing any pending prefetch.
+     * Adjacent ranges are merged and kept in file order until {@code maxPrefetchSize}
+     * is reached; the remaining ranges are read on demand. The prefetched bytes are
+     * reserved in the memory context until the prefetch is replaced or the source is closed.
+     */
+    public void prefetch(List<DiskRange> diskRanges)
+    {
+        requireNonNull(diskRanges, "diskRanges is null");
+        checkState(!closed, "data source is closed");
+        cancelPrefetch();
+        if (diskRanges.isEmpty()) {
+            return;
+        }
+
+        ImmutableList.Builder<DiskRange> prefetchRanges = ImmutableList.builder();
+        long prefetchBytes = 0;
+        for (DiskRange range : mergeAdjacentDiskRanges(diskRanges, maxMergeDistance, maxPrefetchSize)) {
+            if (prefetchBytes + range.getLength() > maxPrefetchSize.toBytes()) {
+                break;
+            }
+            prefetchRanges.add(range);
+            prefetchBytes += range.getLength();
+        }
+        if (prefetchBytes == 0) {
+            return;
+        }
+
+        systemMemoryContext.setBytes(prefetchBytes);
+        Prefetch prefetch = new Prefetch(prefetchRanges.build());
+        this.prefetch = prefetch;
+        try {
+            executor.execute(() -> prefetch.load(dataSource));
+        }
+        catch (RejectedExecutionException e) {
+            // the ranges will be read on demand
+            cancelPrefetch();
+        }
+    }
+
+    /**
+     * Returns true if there is no pending prefetch, or the pending prefetch has finished.
+     */
+    public boolean isPrefetchDone()
+    {
+        return prefetch == null || prefetch.future.isDone();
+    }
+
+    @VisibleForTesting
+    List<DiskRange> getPrefetchRanges()
+    {
+        return prefetch == null ? ImmutableList.of() : prefetch.diskRanges;
+    }
+
+    @Override
+    public OrcDataSourceId getId()
+    {
+        return dataSource.getId();
+    }
+
+    @Override
+    public long getReadBytes()
+    {
+        return dataSource.getReadBytes();
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return dataSource.getReadTimeNanos();
+    }
+
+    @Override
+    public long getSize()
+    {
+        return dataSource.getSize();
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer)
+            throws IOException
+    {
+        readFully(position, buffer, 0, buffer.length);
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int bufferOffset, int bufferLength)
+            throws IOException
+    {
+        int index = bufferLength > 0 ? findPrefetchedRange(new DiskRange(position, bufferLength)) : -1;
+        if (index < 0) {
+            dataSource.readFully(position, buffer, bufferOffset, bufferLength);
+            return;
+        }
+        System.arraycopy(prefetch.buffers[index], toIntExact(position - prefetch.diskRanges.get(index).getOffset()), buffer, bufferOffset, bufferLength);
+    }
+
+    @Override
+    public <K> Map<K, OrcDataSourceInput> readFully(Map<K, DiskRange> diskRanges)
+            throws IOException
+    {
+        requireNonNull(diskRanges, "diskRanges is null");
+
+        ImmutableMap.Builder<K, OrcDataSourceInput> builder = ImmutableMap.builder();
+        Map<K, DiskRange> remainingRanges = new LinkedHashMap<>();
+        for (Entry<K, DiskRange> entry : diskRanges.entrySet()) {
+            DiskRange diskRange = entry.getValue();
+            int index = findPrefetchedRange(diskRange);
+            if (index < 0) {
+                remainingRanges.put(entry.getKey(), diskRange);
+                continue;
+            }
+            int offset = toIntExact(diskRange.getOffset() - prefetch.diskRanges.get(index).getOffset());
+            builder.put(entry.getKey(), new OrcDataSourceInput(Slices.wrappedBuffer(prefetch.buffers[index], offset, diskRange.getLength()).getInput(), diskRange.getLength()));
+        }
+        if (!remainingRanges.isEmpty()) {
+            builder.putAll(dataSource.readFully(remainingRanges));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Prefetch pendingPrefetch = prefetch;
+        cancelPrefetch();
+        if (pendingPrefetch != null) {
+            // a prefetch already reading must not read from the delegate once it is closed
+            pendingPrefetch.awaitLoad();
+        }
+        dataSource.close();
+    }
+
+    @Override
+    public String toString()
+    {
+        return dataSource.toString();
+    }
+
+    /**
+     * Returns the index of the prefetched range containing the given range, waiting
+     * for the prefetch if necessary, or -1 if the range must be read from the delegate.
+     */
+    private int findPrefetchedRange(DiskRange diskRange)
+            throws IOException
+    {
+        if (prefetch == null) {
+            return -1;
+        }
+        for (int i = 0; i < prefetch.diskRanges.size(); i++) {
+            if (prefetch.diskRanges.get(i).contains(diskRange)) {
+                return awaitPrefetch() ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean awaitPrefetch()
+            throws IOException
+    {
+        if (prefetch.started.compareAndSet(false, true)) {
+            // the executor has not picked up the prefetch yet, so reading directly is faster than waiting for it
+            cancelPrefetch();
+            return false;
+        }
+        try {
+            prefetch.future.get();
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e) {
+            // fall back to reading from the delegate, which reports the failure if it persists
+            cancelPrefetch();
+            return false;
+        }
+    }
+
+    private void cancelPrefetch()
+    {
+        if (prefetch != null) {
+            prefetch.future.cancel(false);
+            prefetch = null;
+            systemMemoryContext.setBytes(0);
+        }
+    }
+
+    private static class Prefetch
+    {
+        private final List<DiskRange> diskRanges;
+        private final byte[][] buffers;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final SettableFuture<Void> future = SettableFuture.create();
+        private final CountDownLatch loadFinished = new CountDownLatch(1);
+
+        private Prefetch(List<DiskRange> diskRanges)
+        {
+            this.diskRanges = diskRanges;
+            this.buffers = new byte[diskRanges.size()][];
+        }
+
+        private void load(OrcDataSource dataSource)
+        {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                for (int i = 0; i < diskRanges.size(); i++) {
+                    if (future.isCancelled()) {
+                        return;
+                    }
+                    DiskRange diskRange = diskRanges.get(i);
+                    byte[] buffer = new byte[diskRange.getLength()];
+                    dataSource.readFully(diskRange.getOffset(), buffer);
+                    buffers[i] = buffer;
+                }
+                future.set(null);
+            }
+            catch (Throwable t) {
+                future.setException(t);
+            }
+            finally {
+                loadFinished.countDown();
+            }
+        }
+
+        /**
+         * Waits for the load to finish if it has started, and prevents it from starting otherwise.
+         * A cancelled load stops after the range it is reading.
+         */
+        private void awaitLoad()
+        {
+            if (started.compareAndSet(false, true)) {
+                return;
+            }
+            awaitUninterruptibly(loadFinished);
+        }
+    }
+}
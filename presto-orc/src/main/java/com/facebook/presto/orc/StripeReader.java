@@ -61,6 +61,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 
+import static com.facebook.presto.orc.NoopOrcAggregatedMemoryContext.NOOP_ORC_AGGREGATED_MEMORY_CONTEXT;
 import static com.facebook.presto.orc.NoopOrcLocalMemoryContext.NOOP_ORC_LOCAL_MEMORY_CONTEXT;
 import static com.facebook.presto.orc.checkpoint.Checkpoints.getDictionaryStreamCheckpoint;
 import static com.facebook.presto.orc.checkpoint.Checkpoints.getStreamCheckpoints;
@@ -290,6 +291,32 @@ public class StripeReader
         return new Stripe(stripe.getNumberOfRows(), columnEncodings, ImmutableList.of(rowGroup), dictionaryStreamSources);
     }
 
+    /**
+     * Returns the file ranges {@link #readStripe} reads for the stripe footer and the
+     * unencrypted streams of the included columns. Streams of encrypted columns are not
+     * included, as locating them requires decrypting the stripe encryption groups.
+     */
+    public List<DiskRange> getStripeDiskRanges(StripeInformation stripe)
+            throws IOException
+    {
+        StripeId stripeId = new StripeId(orcDataSource.getId(), stripe.getOffset());
+        StripeFooter stripeFooter = readStripeFooter(stripeId, stripe, NOOP_ORC_AGGREGATED_MEMORY_CONTEXT);
+        Map<StreamId, Stream> includedStreams = new HashMap<>();
+        addIncludedStreams(stripeFooter.getColumnEncodings(), stripeFooter.getStreams(), includedStreams);
+
+        ImmutableList.Builder<DiskRange> diskRanges = ImmutableList.builder();
+        if (stripe.getFooterLength() > 0) {
+            diskRanges.add(new DiskRange(stripe.getOffset() + stripe.getIndexLength() + stripe.getDataLength(), toIntExact(stripe.getFooterLength())));
+        }
+        for (Entry<StreamId, DiskRange> entry : getDiskRanges(ImmutableList.of(stripeFooter.getStreams())).entrySet()) {
+            if (includedStreams.containsKey(entry.getKey())) {
+                DiskRange diskRange = entry.getValue();
+                diskRanges.add(new DiskRange(stripe.getOffset() + diskRange.getOffset(), diskRange.getLength()));
+            }
+        }
+        return diskRanges.build();
+    }
+
     private StripeEncryptionGroup getStripeEncryptionGroup(DwrfDataEncryptor decryptor, Slice encryptedGroup, Collection<Integer> columns, OrcAggregatedMemoryContext systemMemoryUsage)
             throws IOException
     {
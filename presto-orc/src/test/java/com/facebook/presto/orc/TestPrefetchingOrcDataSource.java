@@ -0,0 +1,312 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.orc.cache.StorageOrcFileTailSource;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.testing.Assertions.assertGreaterThan;
+import static com.facebook.airlift.testing.Assertions.assertGreaterThanOrEqual;
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.orc.DwrfEncryptionProvider.NO_ENCRYPTION;
+import static com.facebook.presto.orc.NoopOrcAggregatedMemoryContext.NOOP_ORC_AGGREGATED_MEMORY_CONTEXT;
+import static com.facebook.presto.orc.OrcEncoding.ORC;
+import static com.facebook.presto.orc.OrcReader.INITIAL_BATCH_SIZE;
+import static com.facebook.presto.orc.OrcTester.Format.ORC_12;
+import static com.facebook.presto.orc.OrcTester.HIVE_STORAGE_TIME_ZONE;
+import static com.facebook.presto.orc.OrcTester.writeOrcFileColumnHive;
+import static com.facebook.presto.orc.TestCachingOrcDataSource.createOrcRecordWriter;
+import static com.facebook.presto.orc.metadata.CompressionKind.ZLIB;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestPrefetchingOrcDataSource
+{
+    private static final int POSITION_COUNT = 50000;
+
+    private final ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test-orc-stripe-prefetch-%s"));
+    private TempFile tempFile;
+    private List<String> values;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        tempFile = new TempFile();
+        Random random = new Random();
+        values = Stream.generate(() -> Long.toHexString(random.nextLong())).limit(POSITION_COUNT).collect(toImmutableList());
+        writeOrcFileColumnHive(
+                tempFile.getFile(),
+                ORC_12,
+                createOrcRecordWriter(tempFile.getFile(), ORC_12, ZLIB, javaStringObjectInspector),
+                VARCHAR,
+                values);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        tempFile.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPrefetch()
+            throws IOException
+    {
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(NoopOrcDataSource.INSTANCE);
+        TestingHiveOrcAggregatedMemoryContext systemMemoryContext = new TestingHiveOrcAggregatedMemoryContext();
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(
+                testingOrcDataSource,
+                directExecutor(),
+                new DataSize(10, BYTE),
+                new DataSize(16, BYTE),
+                systemMemoryContext.newOrcLocalMemoryContext(PrefetchingOrcDataSource.class.getSimpleName()));
+
+        // adjacent ranges are merged and ranges beyond the size limit are left to be read on demand
+        dataSource.prefetch(ImmutableList.of(new DiskRange(20, 5), new DiskRange(10, 5), new DiskRange(1000, 5)));
+        assertEquals(dataSource.getPrefetchRanges(), ImmutableList.of(new DiskRange(10, 15)));
+        assertTrue(dataSource.isPrefetchDone());
+        assertEquals(testingOrcDataSource.getReadRanges(), ImmutableList.of(new DiskRange(10, 15)));
+        assertEquals(systemMemoryContext.getBytes(), 15);
+
+        dataSource.readFully(12, new byte[3]);
+        dataSource.readFully(ImmutableMap.of("a", new DiskRange(10, 5), "b", new DiskRange(20, 5)));
+        assertEquals(testingOrcDataSource.getReadCount(), 1);
+
+        dataSource.readFully(1000, new byte[5]);
+        assertEquals(testingOrcDataSource.getReadCount(), 2);
+        assertEquals(testingOrcDataSource.getLastReadRanges(), ImmutableList.of(new DiskRange(1000, 5)));
+
+        // a new prefetch replaces the previous one
+        dataSource.prefetch(ImmutableList.of(new DiskRange(2000, 8)));
+        assertEquals(systemMemoryContext.getBytes(), 8);
+        dataSource.prefetch(ImmutableList.of());
+        assertEquals(systemMemoryContext.getBytes(), 0);
+
+        dataSource.close();
+    }
+
+    @Test
+    public void testReadBeforePrefetchStarts()
+            throws IOException
+    {
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(NoopOrcDataSource.INSTANCE);
+        TestingHiveOrcAggregatedMemoryContext systemMemoryContext = new TestingHiveOrcAggregatedMemoryContext();
+        List<Runnable> tasks = new ArrayList<>();
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(
+                testingOrcDataSource,
+                tasks::add,
+                new DataSize(1, MEGABYTE),
+                new DataSize(1, MEGABYTE),
+                systemMemoryContext.newOrcLocalMemoryContext(PrefetchingOrcDataSource.class.getSimpleName()));
+
+        dataSource.prefetch(ImmutableList.of(new DiskRange(10, 100)));
+        assertEquals(tasks.size(), 1);
+        assertEquals(systemMemoryContext.getBytes(), 100);
+
+        // the read does not wait for a prefetch that has not been picked up by the executor
+        dataSource.readFully(10, new byte[100]);
+        assertEquals(testingOrcDataSource.getReadCount(), 1);
+        assertEquals(systemMemoryContext.getBytes(), 0);
+
+        tasks.get(0).run();
+        assertEquals(testingOrcDataSource.getReadCount(), 1);
+
+        dataSource.close();
+    }
+
+    @Test
+    public void testCloseCancelsPrefetch()
+            throws IOException
+    {
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(NoopOrcDataSource.INSTANCE);
+        TestingHiveOrcAggregatedMemoryContext systemMemoryContext = new TestingHiveOrcAggregatedMemoryContext();
+        List<Runnable> tasks = new ArrayList<>();
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(
+                testingOrcDataSource,
+                tasks::add,
+                new DataSize(1, MEGABYTE),
+                new DataSize(1, MEGABYTE),
+                systemMemoryContext.newOrcLocalMemoryContext(PrefetchingOrcDataSource.class.getSimpleName()));
+
+        // the gap between the ranges is read as well
+        dataSource.prefetch(ImmutableList.of(new DiskRange(10, 100), new DiskRange(200, 100)));
+        assertEquals(systemMemoryContext.getBytes(), 290);
+
+        dataSource.close();
+        assertEquals(systemMemoryContext.getBytes(), 0);
+
+        tasks.get(0).run();
+        assertEquals(testingOrcDataSource.getReadCount(), 0);
+    }
+
+    @Test
+    public void testCloseWaitsForRunningPrefetch()
+            throws Exception
+    {
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch releaseRead = new CountDownLatch(1);
+        AtomicBoolean reading = new AtomicBoolean();
+        AtomicBoolean closedWhileReading = new AtomicBoolean();
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(NoopOrcDataSource.INSTANCE)
+        {
+            @Override
+            public void readFully(long position, byte[] buffer)
+                    throws IOException
+            {
+                reading.set(true);
+                readStarted.countDown();
+                awaitUninterruptibly(releaseRead);
+                super.readFully(position, buffer);
+                reading.set(false);
+            }
+
+            @Override
+            public void close()
+            {
+                closedWhileReading.set(reading.get());
+            }
+        };
+        TestingHiveOrcAggregatedMemoryContext systemMemoryContext = new TestingHiveOrcAggregatedMemoryContext();
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(
+                testingOrcDataSource,
+                executor,
+                new DataSize(1, MEGABYTE),
+                new DataSize(1, MEGABYTE),
+                systemMemoryContext.newOrcLocalMemoryContext(PrefetchingOrcDataSource.class.getSimpleName()));
+
+        dataSource.prefetch(ImmutableList.of(new DiskRange(10, 100)));
+        assertTrue(readStarted.await(10, SECONDS));
+
+        // the delegate is not closed under the prefetch reading from it
+        Future<?> close = executor.submit(() -> {
+            dataSource.close();
+            return null;
+        });
+        assertThrows(TimeoutException.class, () -> close.get(100, MILLISECONDS));
+        assertEquals(systemMemoryContext.getBytes(), 0);
+
+        releaseRead.countDown();
+        close.get(10, SECONDS);
+        assertFalse(closedWhileReading.get());
+        assertEquals(testingOrcDataSource.getReadCount(), 1);
+    }
+
+    @Test
+    public void testIntegration()
+            throws IOException
+    {
+        AtomicInteger prefetches = new AtomicInteger();
+        long retainedMemory = readAllValues(Optional.empty());
+        long retainedMemoryWithPrefetch = readAllValues(Optional.of(command -> {
+            prefetches.incrementAndGet();
+            executor.execute(command);
+        }));
+        assertGreaterThan(prefetches.get(), 0);
+        // prefetch buffers are released when the reader is closed
+        assertEquals(retainedMemoryWithPrefetch, retainedMemory);
+    }
+
+    private long readAllValues(Optional<Executor> stripePrefetchExecutor)
+            throws IOException
+    {
+        OrcReaderOptions.Builder options = OrcReaderOptions.builder()
+                .withMaxMergeDistance(new DataSize(1, MEGABYTE))
+                .withTinyStripeThreshold(new DataSize(1, BYTE))
+                .withMaxBlockSize(new DataSize(1, MEGABYTE));
+        stripePrefetchExecutor.ifPresent(options::withStripePrefetchExecutor);
+        OrcDataSource orcDataSource = new FileOrcDataSource(tempFile.getFile(), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), true);
+        OrcReader orcReader = new OrcReader(
+                orcDataSource,
+                ORC,
+                new StorageOrcFileTailSource(),
+                new StorageStripeMetadataSource(),
+                NOOP_ORC_AGGREGATED_MEMORY_CONTEXT,
+                options.build(),
+                false,
+                NO_ENCRYPTION,
+                DwrfKeyProvider.EMPTY,
+                new RuntimeStats());
+        // Sanity check number of stripes. This can be three or higher because of orc writer low memory mode.
+        assertGreaterThanOrEqual(orcReader.getFooter().getStripes().size(), 3);
+
+        TestingHiveOrcAggregatedMemoryContext systemMemoryContext = new TestingHiveOrcAggregatedMemoryContext();
+        OrcSelectiveRecordReader recordReader = orcReader.createSelectiveRecordReader(
+                ImmutableMap.of(0, VARCHAR),
+                ImmutableList.of(0),
+                ImmutableMap.of(),
+                ImmutableList.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                OrcPredicate.TRUE,
+                0,
+                orcDataSource.getSize(),
+                HIVE_STORAGE_TIME_ZONE,
+                systemMemoryContext,
+                Optional.empty(),
+                INITIAL_BATCH_SIZE);
+
+        int position = 0;
+        Page page;
+        while ((page = recordReader.getNextPage()) != null) {
+            Block block = page.getBlock(0).getLoadedBlock();
+            for (int i = 0; i < block.getPositionCount(); i++) {
+                assertEquals(VARCHAR.getSlice(block, i).toStringUtf8(), values.get(position));
+                position++;
+            }
+        }
+        assertEquals(position, POSITION_COUNT);
+
+        recordReader.close();
+        return systemMemoryContext.getBytes();
+    }
+}
@@ -62,6 +62,11 @@ public class ColumnReaderFactory
     }
 
     public static ColumnReader createReader(RichColumnDescriptor descriptor, boolean batchReadEnabled)
+    {
+        return createReader(descriptor, batchReadEnabled, false);
+    }
+
+    public static ColumnReader createReader(RichColumnDescriptor descriptor, boolean batchReadEnabled, boolean dictionaryBlocksEnabled)
     {
         final boolean isNested = descriptor.getPath().length > 1;
         if (batchReadEnabled && (!(isNested && isDecimalType(descriptor)))) {
@@ -96,7 +101,7 @@ public class ColumnReaderFactory
                         return decimalBatchColumnReader.get();
                     }
 
-                    return isNested ? new BinaryNestedBatchReader(descriptor) : new BinaryFlatBatchReader(descriptor);
+                    return isNested ? new BinaryNestedBatchReader(descriptor) : new BinaryFlatBatchReader(descriptor, dictionaryBlocksEnabled);
                 case FIXED_LEN_BYTE_ARRAY:
                     if (!isNested) {
                         if (isUuidType(descriptor)) {
@@ -28,10 +28,14 @@
 
 package com.facebook.presto.parquet;
 
+import org.apache.parquet.format.Util;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 import org.apache.parquet.internal.column.columnindex.ColumnIndex;
 import org.apache.parquet.internal.column.columnindex.OffsetIndex;
+import org.apache.parquet.internal.hadoop.metadata.IndexReference;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -59,7 +63,7 @@ public class FileParquetDataSource
     }
 
     @Override
-    protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+    protected synchronized void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
     {
         try {
             input.seek(position);
@@ -73,12 +77,27 @@ public class FileParquetDataSource
     @Override
     public Optional<ColumnIndex> readColumnIndex(ColumnChunkMetaData column) throws IOException
     {
-        throw new UnsupportedOperationException();
+        IndexReference indexRef = column.getColumnIndexReference();
+        if (indexRef == null) {
+            return Optional.empty();
+        }
+        return Optional.of(ParquetMetadataConverter.fromParquetColumnIndex(column.getPrimitiveType(), Util.readColumnIndex(readIndex(indexRef))));
     }
 
     @Override
     public Optional<OffsetIndex> readOffsetIndex(ColumnChunkMetaData column) throws IOException
     {
-        throw new UnsupportedOperationException();
+        IndexReference indexRef = column.getOffsetIndexReference();
+        if (indexRef == null) {
+            return Optional.empty();
+        }
+        return Optional.of(ParquetMetadataConverter.fromParquetOffsetIndex(Util.readOffsetIndex(readIndex(indexRef))));
+    }
+
+    private ByteArrayInputStream readIndex(IndexReference indexRef)
+    {
+        byte[] buffer = new byte[indexRef.getLength()];
+        readFully(indexRef.getOffset(), buffer);
+        return new ByteArrayInputStream(buffer);
     }
 }
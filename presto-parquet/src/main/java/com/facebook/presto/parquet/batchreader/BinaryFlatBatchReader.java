@@ -15,6 +15,8 @@
 package com.facebook.presto.parquet.batchreader;
 
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.block.DictionaryId;
 import com.facebook.presto.common.block.RunLengthEncodedBlock;
 import com.facebook.presto.common.block.VariableWidthBlock;
 import com.facebook.presto.parquet.ColumnReader;
@@ -26,6 +28,9 @@ import com.facebook.presto.parquet.batchreader.decoders.Decoders.FlatDecoders;
 import com.facebook.presto.parquet.batchreader.decoders.FlatDefinitionLevelDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.BinaryValuesDecoder;
 import com.facebook.presto.parquet.batchreader.decoders.ValuesDecoder.BinaryValuesDecoder.ValueBuffer;
+import com.facebook.presto.parquet.batchreader.decoders.rle.BinaryRLEDictionaryValuesDecoder;
+import com.facebook.presto.parquet.batchreader.decoders.rle.BinaryRLEDictionaryValuesDecoder.RLEValueBuffer;
+import com.facebook.presto.parquet.batchreader.dictionary.BinaryBatchDictionary;
 import com.facebook.presto.parquet.batchreader.dictionary.Dictionaries;
 import com.facebook.presto.parquet.dictionary.Dictionary;
 import com.facebook.presto.parquet.reader.ColumnChunk;
@@ -42,6 +47,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.presto.common.block.DictionaryId.randomDictionaryId;
 import static com.facebook.presto.parquet.ParquetErrorCode.PARQUET_IO_READ_ERROR;
 import static com.facebook.presto.parquet.batchreader.decoders.Decoders.readFlatPage;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -53,6 +59,7 @@ public class BinaryFlatBatchReader
     private static final int INSTANCE_SIZE = ClassLayout.parseClass(BinaryFlatBatchReader.class).instanceSize();
 
     private final RichColumnDescriptor columnDescriptor;
+    private final boolean dictionaryBlocksEnabled;
 
     protected Field field;
     protected int nextBatchSize;
@@ -64,9 +71,24 @@ public class BinaryFlatBatchReader
     private int readOffset;
     private PageReader pageReader;
 
+    // dictionary of the column chunk as a block, with a trailing null entry, shared by all dictionary encoded batches
+    private Block dictionaryBlock;
+    private DictionaryId dictionaryId;
+
     public BinaryFlatBatchReader(RichColumnDescriptor columnDescriptor)
+    {
+        this(columnDescriptor, false);
+    }
+
+    /**
+     * @param dictionaryBlocksEnabled whether batches that are entirely dictionary encoded
+     * are returned as {@link DictionaryBlock}s over the column chunk dictionary instead of
+     * being decoded into a flat block
+     */
+    public BinaryFlatBatchReader(RichColumnDescriptor columnDescriptor, boolean dictionaryBlocksEnabled)
     {
         this.columnDescriptor = requireNonNull(columnDescriptor, "columnDescriptor is null");
+        this.dictionaryBlocksEnabled = dictionaryBlocksEnabled;
     }
 
     @Override
@@ -125,6 +147,7 @@ public class BinaryFlatBatchReader
                 (definitionLevelDecoder == null ? 0 : definitionLevelDecoder.getRetainedSizeInBytes()) +
                 (valuesDecoder == null ? 0 : valuesDecoder.getRetainedSizeInBytes()) +
                 (dictionary == null ? 0 : dictionary.getRetainedSizeInBytes()) +
+                (dictionaryBlock == null ? 0 : dictionaryBlock.getRetainedSizeInBytes()) +
                 (pageReader == null ? 0 : pageReader.getRetainedSizeInBytes());
     }
 
@@ -189,6 +212,10 @@ public class BinaryFlatBatchReader
             return new ColumnChunk(block, new int[0], new int[0]);
         }
 
+        if (isDictionaryEncoded(valuesDecoderContexts)) {
+            return new ColumnChunk(createDictionaryBlock(valueBuffers, valuesDecoderContexts, isNull), new int[0], new int[0]);
+        }
+
         byte[] byteBuffer = new byte[bufferSize];
         int[] offsets = new int[nextBatchSize + 1];
 
@@ -260,6 +287,10 @@ public class BinaryFlatBatchReader
             remainingCountInPage -= readChunkSize;
         }
 
+        if (isDictionaryEncoded(valuesDecoderContexts)) {
+            return new ColumnChunk(createDictionaryBlock(valueBuffers, valuesDecoderContexts, isNull), new int[0], new int[0]);
+        }
+
         byte[] byteBuffer = new byte[bufferSize];
         int[] offsets = new int[nextBatchSize + 1];
 
@@ -279,6 +310,69 @@ public class BinaryFlatBatchReader
         return new ColumnChunk(block, new int[0], new int[0]);
     }
 
+    /**
+     * A batch can only be returned as a {@link DictionaryBlock} if every page it spans is
+     * dictionary encoded. Writers fall back to plain encoding once the dictionary grows too
+     * large, so the batch crossing that boundary and all later ones are decoded flat.
+     */
+    private boolean isDictionaryEncoded(List<ValuesDecoderContext> valuesDecoderContexts)
+    {
+        if (!dictionaryBlocksEnabled || !(dictionary instanceof BinaryBatchDictionary) || valuesDecoderContexts.isEmpty()) {
+            return false;
+        }
+        for (ValuesDecoderContext valuesDecoderContext : valuesDecoderContexts) {
+            if (!(valuesDecoderContext.getValuesDecoder() instanceof BinaryRLEDictionaryValuesDecoder)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Block createDictionaryBlock(List<ValueBuffer> valueBuffers, List<ValuesDecoderContext> valuesDecoderContexts, boolean[] isNull)
+    {
+        Block dictionaryBlock = getDictionaryBlock();
+        int nullId = dictionaryBlock.getPositionCount() - 1;
+
+        int[] ids = new int[nextBatchSize];
+        for (int i = 0; i < valuesDecoderContexts.size(); i++) {
+            ValuesDecoderContext valuesDecoderContext = valuesDecoderContexts.get(i);
+            int[] dictionaryIds = ((RLEValueBuffer) valueBuffers.get(i)).getDictionaryIds();
+            if (valuesDecoderContext.getNonNullCount() == valuesDecoderContext.getValueCount()) {
+                System.arraycopy(dictionaryIds, 0, ids, valuesDecoderContext.getStart(), dictionaryIds.length);
+                continue;
+            }
+            int sourceIndex = 0;
+            for (int position = valuesDecoderContext.getStart(); position < valuesDecoderContext.getEnd(); position++) {
+                ids[position] = isNull[position] ? nullId : dictionaryIds[sourceIndex++];
+            }
+        }
+        return new DictionaryBlock(nextBatchSize, dictionaryBlock, ids, false, dictionaryId);
+    }
+
+    private Block getDictionaryBlock()
+    {
+        if (dictionaryBlock == null) {
+            BinaryBatchDictionary binaryDictionary = (BinaryBatchDictionary) dictionary;
+            int dictionarySize = binaryDictionary.getDictionarySize();
+            int[] offsets = new int[dictionarySize + 2];
+            for (int dictionaryId = 0; dictionaryId < dictionarySize; dictionaryId++) {
+                offsets[dictionaryId + 1] = offsets[dictionaryId] + binaryDictionary.getLength(dictionaryId);
+            }
+            offsets[dictionarySize + 1] = offsets[dictionarySize];
+
+            byte[] byteBuffer = new byte[offsets[dictionarySize]];
+            for (int dictionaryId = 0; dictionaryId < dictionarySize; dictionaryId++) {
+                binaryDictionary.copyTo(byteBuffer, offsets[dictionaryId], dictionaryId);
+            }
+            boolean[] isNull = new boolean[dictionarySize + 1];
+            isNull[dictionarySize] = true;
+
+            dictionaryBlock = new VariableWidthBlock(dictionarySize + 1, Slices.wrappedBuffer(byteBuffer), offsets, Optional.of(isNull));
+            dictionaryId = randomDictionaryId();
+        }
+        return dictionaryBlock;
+    }
+
     private void seek()
             throws IOException
     {
@@ -76,6 +76,11 @@ public final class BinaryBatchDictionary
         checkArgument(offsets.length - 1 == dictionarySize, "Dictionary size and number of entries don't match");
     }
 
+    public int getDictionarySize()
+    {
+        return dictionarySize;
+    }
+
     public int getLength(int dictionaryId)
     {
         checkArgument(dictionaryId >= 0 && dictionaryId < dictionarySize, "invalid dictionary id: %s", dictionaryId);
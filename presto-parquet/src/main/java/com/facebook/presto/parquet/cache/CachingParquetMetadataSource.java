@@ -18,7 +18,9 @@ import com.facebook.presto.parquet.ParquetDataSource;
 import com.facebook.presto.parquet.ParquetDataSourceId;
 import com.google.common.cache.Cache;
 import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
 import org.apache.parquet.crypto.InternalFileDecryptor;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 
 import java.io.IOException;
 import java.util.Optional;
@@ -31,11 +33,21 @@ public class CachingParquetMetadataSource
         implements ParquetMetadataSource
 {
     private final Cache<ParquetDataSourceId, ParquetFileMetadata> cache;
+    private final Optional<Cache<BloomFilterId, BloomFilter>> bloomFilterCache;
     private final ParquetMetadataSource delegate;
 
     public CachingParquetMetadataSource(Cache<ParquetDataSourceId, ParquetFileMetadata> cache, ParquetMetadataSource delegate)
+    {
+        this(cache, Optional.empty(), delegate);
+    }
+
+    public CachingParquetMetadataSource(
+            Cache<ParquetDataSourceId, ParquetFileMetadata> cache,
+            Optional<Cache<BloomFilterId, BloomFilter>> bloomFilterCache,
+            ParquetMetadataSource delegate)
     {
         this.cache = requireNonNull(cache, "cache is null");
+        this.bloomFilterCache = requireNonNull(bloomFilterCache, "bloomFilterCache is null");
         this.delegate = requireNonNull(delegate, "delegate is null");
     }
 
@@ -68,4 +80,27 @@ public class CachingParquetMetadataSource
             throw new IOException("Unexpected error in parquet metadata reading after cache miss", e.getCause());
         }
     }
+
+    @Override
+    public Optional<BloomFilter> getBloomFilter(
+            ParquetDataSource parquetDataSource,
+            ColumnChunkMetaData columnChunkMetaData,
+            boolean cacheable,
+            long modificationTime)
+            throws IOException
+    {
+        if (!cacheable || !bloomFilterCache.isPresent()) {
+            return delegate.getBloomFilter(parquetDataSource, columnChunkMetaData, cacheable, modificationTime);
+        }
+
+        // the modification time is part of the key, so that the filters of a rewritten file are never returned
+        BloomFilterId id = new BloomFilterId(parquetDataSource.getId(), modificationTime, columnChunkMetaData.getBloomFilterOffset());
+        BloomFilter bloomFilter = bloomFilterCache.get().getIfPresent(id);
+        if (bloomFilter != null) {
+            return Optional.of(bloomFilter);
+        }
+        Optional<BloomFilter> result = delegate.getBloomFilter(parquetDataSource, columnChunkMetaData, cacheable, modificationTime);
+        result.ifPresent(filter -> bloomFilterCache.get().put(id, filter));
+        return result;
+    }
 }
@@ -18,6 +18,8 @@ import com.facebook.presto.parquet.ParquetDataSource;
 import com.facebook.presto.parquet.ParquetDataSourceId;
 import io.airlift.slice.BasicSliceInput;
 import io.airlift.slice.Slice;
+import org.apache.parquet.column.values.bloomfilter.BlockSplitBloomFilter;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
 import org.apache.parquet.crypto.AesCipher;
 import org.apache.parquet.crypto.AesGcmEncryptor;
 import org.apache.parquet.crypto.HiddenColumnChunkMetaData;
@@ -28,6 +30,7 @@ import org.apache.parquet.crypto.ModuleCipherFactory.ModuleType;
 import org.apache.parquet.crypto.ParquetCryptoRuntimeException;
 import org.apache.parquet.crypto.TagVerificationException;
 import org.apache.parquet.format.BlockCipher.Decryptor;
+import org.apache.parquet.format.BloomFilterHeader;
 import org.apache.parquet.format.ColumnChunk;
 import org.apache.parquet.format.ColumnCryptoMetaData;
 import org.apache.parquet.format.ColumnMetaData;
@@ -101,6 +104,46 @@ public final class MetadataReader
     private static final int EXPECTED_FOOTER_SIZE = 16 * 1024;
     private static final ParquetMetadataConverter PARQUET_METADATA_CONVERTER = new ParquetMetadataConverter();
     private static final long MODIFICATION_TIME_NOT_SET = 0L;
+    // the Thrift header of a split block Bloom filter takes a few bytes, and its bitset at least 32 more
+    private static final int EXPECTED_BLOOM_FILTER_HEADER_SIZE = 64;
+
+    /**
+     * Reads the split block Bloom filter of a column chunk, if it has one that is stored in the layout defined by the Parquet
+     * format: a Thrift header followed by the uncompressed bitset, hashed with XXH64.
+     */
+    public static Optional<BloomFilter> readBloomFilter(ParquetDataSource parquetDataSource, ColumnChunkMetaData columnChunkMetaData)
+            throws IOException
+    {
+        long offset = columnChunkMetaData.getBloomFilterOffset();
+        if (offset < 0) {
+            return Optional.empty();
+        }
+
+        byte[] headerBuffer = new byte[EXPECTED_BLOOM_FILTER_HEADER_SIZE];
+        parquetDataSource.readFully(offset, headerBuffer);
+        ByteArrayInputStream headerInput = new ByteArrayInputStream(headerBuffer);
+        BloomFilterHeader header = Util.readBloomFilterHeader(headerInput);
+        int headerSize = headerBuffer.length - headerInput.available();
+
+        if (!header.getAlgorithm().isSetBLOCK() || !header.getHash().isSetXXHASH() || !header.getCompression().isSetUNCOMPRESSED()) {
+            return Optional.empty();
+        }
+        int numBytes = header.getNumBytes();
+        validateParquet(
+                numBytes > 0 && numBytes <= BlockSplitBloomFilter.UPPER_BOUND_BYTES,
+                "Corrupted Parquet file: %s invalid Bloom filter size %s for column %s",
+                parquetDataSource.getId(),
+                numBytes,
+                columnChunkMetaData.getPath());
+
+        byte[] bitset = new byte[numBytes];
+        int bufferedBytes = min(numBytes, headerBuffer.length - headerSize);
+        System.arraycopy(headerBuffer, headerSize, bitset, 0, bufferedBytes);
+        if (bufferedBytes < numBytes) {
+            parquetDataSource.readFully(offset + headerBuffer.length, bitset, bufferedBytes, numBytes - bufferedBytes);
+        }
+        return Optional.of(new BlockSplitBloomFilter(bitset));
+    }
 
     public static ParquetFileMetadata readFooter(ParquetDataSource parquetDataSource, long fileSize, Optional<InternalFileDecryptor> fileDecryptor, boolean readMaskedValue)
             throws IOException
@@ -298,7 +341,7 @@ public final class MetadataReader
 
     public static ColumnChunkMetaData buildColumnChunkMetaData(ColumnMetaData metaData, ColumnPath columnPath, PrimitiveType type)
     {
-        return ColumnChunkMetaData.get(
+        ColumnChunkMetaData column = ColumnChunkMetaData.get(
                 columnPath,
                 type,
                 CompressionCodecName.fromParquet(metaData.codec),
@@ -310,6 +353,10 @@ public final class MetadataReader
                 metaData.num_values,
                 metaData.total_compressed_size,
                 metaData.total_uncompressed_size);
+        if (metaData.isSetBloom_filter_offset()) {
+            column.setBloomFilterOffset(metaData.getBloom_filter_offset());
+        }
+        return column;
     }
 
     private static ColumnPath getPath(ColumnMetaData metaData)
@@ -558,6 +605,13 @@ public final class MetadataReader
         return readFooter(parquetDataSource, fileSize, modificationTime, fileDecryptor, readMaskedValue);
     }
 
+    @Override
+    public Optional<BloomFilter> getBloomFilter(ParquetDataSource parquetDataSource, ColumnChunkMetaData columnChunkMetaData, boolean cacheable, long modificationTime)
+            throws IOException
+    {
+        return readBloomFilter(parquetDataSource, columnChunkMetaData);
+    }
+
     private static IndexReference toColumnIndexReference(ColumnChunk columnChunk)
     {
         if (columnChunk.isSetColumn_index_offset() && columnChunk.isSetColumn_index_length()) {
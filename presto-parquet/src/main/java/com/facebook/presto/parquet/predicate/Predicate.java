@@ -14,9 +14,11 @@
 package com.facebook.presto.parquet.predicate;
 
 import com.facebook.presto.parquet.ParquetDataSourceId;
+import com.facebook.presto.parquet.reader.ParquetBloomFilterStore;
 import com.facebook.presto.spi.WarningCollector;
 import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.internal.filter2.columnindex.ColumnIndexStore;
 
 import java.util.Map;
@@ -43,6 +45,12 @@ public interface Predicate
         {
             return true;
         }
+
+        @Override
+        public boolean matches(BlockMetaData block, ParquetBloomFilterStore bloomFilterStore)
+        {
+            return true;
+        }
     };
 
     /**
@@ -73,4 +81,14 @@ public interface Predicate
      * @param columnIndexStore column index (statistics) store
      */
     boolean matches(long numberOfRows, Optional<ColumnIndexStore> columnIndexStore);
+
+    /**
+     * Should the Parquet Reader process a file section with the specified Bloom filters. A Bloom filter
+     * can only tell that a column chunk does not contain a value, so it is checked for columns with
+     * a discrete set of non-null values.
+     *
+     * @param block the row group metadata, used to find the column chunks of the predicate columns
+     * @param bloomFilterStore Bloom filter store of the file
+     */
+    boolean matches(BlockMetaData block, ParquetBloomFilterStore bloomFilterStore);
 }
@@ -22,6 +22,7 @@ import com.facebook.presto.parquet.DictionaryPage;
 import com.facebook.presto.parquet.ParquetDataSourceId;
 import com.facebook.presto.parquet.RichColumnDescriptor;
 import com.facebook.presto.parquet.dictionary.Dictionary;
+import com.facebook.presto.parquet.reader.ParquetBloomFilterStore;
 import com.facebook.presto.spi.PrestoWarning;
 import com.facebook.presto.spi.WarningCollector;
 import com.google.common.annotations.VisibleForTesting;
@@ -31,9 +32,13 @@ import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.crypto.HiddenColumnChunkMetaData;
 import org.apache.parquet.filter2.predicate.FilterApi;
 import org.apache.parquet.filter2.predicate.FilterPredicate;
 import org.apache.parquet.filter2.predicate.UserDefinedPredicate;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 import org.apache.parquet.hadoop.metadata.ColumnPath;
 import org.apache.parquet.internal.column.columnindex.ColumnIndex;
 import org.apache.parquet.internal.filter2.columnindex.ColumnIndexStore;
@@ -58,11 +63,13 @@ import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.RealType.REAL;
 import static com.facebook.presto.common.type.SmallintType.SMALLINT;
 import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.facebook.presto.common.type.VarbinaryType.VARBINARY;
 import static com.facebook.presto.common.type.Varchars.isVarcharType;
 import static com.facebook.presto.parquet.ParquetWarningCode.PARQUET_FILE_STATISTICS_CORRUPTION;
 import static com.facebook.presto.parquet.predicate.PredicateUtils.isStatisticsOverflow;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Float.intBitsToFloat;
 import static java.lang.String.format;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.util.Objects.requireNonNull;
@@ -393,6 +400,116 @@ public class TupleDomainParquetPredicate
         return true;
     }
 
+    @Override
+    public boolean matches(BlockMetaData block, ParquetBloomFilterStore bloomFilterStore)
+    {
+        if (effectivePredicate.isNone()) {
+            return false;
+        }
+        Map<ColumnDescriptor, Domain> effectivePredicateDomains = effectivePredicate.getDomains()
+                .orElseThrow(() -> new IllegalStateException("Effective predicate other than none should have domains"));
+
+        for (RichColumnDescriptor column : columns) {
+            Domain effectivePredicateDomain = effectivePredicateDomains.get(column);
+            if (effectivePredicateDomain == null) {
+                continue;
+            }
+            Optional<List<Object>> values = getBloomFilterValues(effectivePredicateDomain, column);
+            if (!values.isPresent()) {
+                continue;
+            }
+            Optional<ColumnChunkMetaData> columnChunk = getColumnChunk(block, column);
+            if (!columnChunk.isPresent()) {
+                continue;
+            }
+            Optional<BloomFilter> bloomFilter = bloomFilterStore.getBloomFilter(columnChunk.get());
+            if (bloomFilter.isPresent() && values.get().stream().noneMatch(value -> bloomFilterMightContain(bloomFilter.get(), column, effectivePredicateDomain.getType(), value))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the values of an equality or IN domain, if they can be looked up in the Bloom filter of the column. Nulls are
+     * not recorded in Bloom filters, so domains that allow nulls cannot be checked.
+     */
+    private static Optional<List<Object>> getBloomFilterValues(Domain domain, RichColumnDescriptor column)
+    {
+        if (domain.isNullAllowed() || domain.isNone() || !isBloomFilterSupported(domain.getType(), column.getPrimitiveType().getPrimitiveTypeName())) {
+            return Optional.empty();
+        }
+        ImmutableList.Builder<Object> values = ImmutableList.builder();
+        for (Range range : domain.getValues().getRanges().getOrderedRanges()) {
+            if (!range.isSingleValue()) {
+                return Optional.empty();
+            }
+            values.add(range.getSingleValue());
+        }
+        return Optional.of(values.build());
+    }
+
+    private static boolean isBloomFilterSupported(Type type, PrimitiveTypeName primitiveType)
+    {
+        switch (primitiveType) {
+            case INT32:
+                return type.equals(INTEGER) || type.equals(SMALLINT) || type.equals(TINYINT) || type.equals(DATE);
+            case INT64:
+                return type.equals(BIGINT);
+            case FLOAT:
+                return type.equals(REAL);
+            case DOUBLE:
+                return type.equals(DOUBLE);
+            case BINARY:
+                return isVarcharType(type) || type.equals(VARBINARY);
+            default:
+                return false;
+        }
+    }
+
+    private static Optional<ColumnChunkMetaData> getColumnChunk(BlockMetaData block, RichColumnDescriptor column)
+    {
+        ColumnPath path = ColumnPath.get(column.getPath());
+        for (ColumnChunkMetaData columnChunk : block.getColumns()) {
+            if (!HiddenColumnChunkMetaData.isHiddenColumn(columnChunk) && columnChunk.getPath().equals(path)) {
+                return Optional.of(columnChunk);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean bloomFilterMightContain(BloomFilter bloomFilter, RichColumnDescriptor column, Type type, Object value)
+    {
+        switch (column.getPrimitiveType().getPrimitiveTypeName()) {
+            case INT32:
+                long intValue = (long) value;
+                if (intValue != (int) intValue) {
+                    // the value cannot be stored in the column, but it is not eliminated to stay on the safe side
+                    return true;
+                }
+                return bloomFilter.findHash(bloomFilter.hash((int) intValue));
+            case INT64:
+                return bloomFilter.findHash(bloomFilter.hash((long) value));
+            case FLOAT:
+                float floatValue = intBitsToFloat((int) (long) value);
+                // -0 equals 0, and NaN may have several encodings, but they are hashed by their bits
+                if (floatValue == 0 || Float.isNaN(floatValue)) {
+                    return true;
+                }
+                return bloomFilter.findHash(bloomFilter.hash(floatValue));
+            case DOUBLE:
+                double doubleValue = (double) value;
+                if (doubleValue == 0 || Double.isNaN(doubleValue)) {
+                    return true;
+                }
+                return bloomFilter.findHash(bloomFilter.hash(doubleValue));
+            case BINARY:
+                return bloomFilter.findHash(bloomFilter.hash(Binary.fromConstantByteBuffer(((Slice) value).toByteBuffer())));
+            default:
+                throw new IllegalArgumentException(format("Unsupported type %s for column %s", type, column));
+        }
+    }
+
     @VisibleForTesting
     public Domain getDomain(Type type, long rowCount, ColumnIndex columnIndex, RichColumnDescriptor descriptor)
     {
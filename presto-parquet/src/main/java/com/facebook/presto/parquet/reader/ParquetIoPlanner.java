@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.reader;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.parquet.ParquetDataSource;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Plans the I/O for the column chunks of a row group: chunk ranges that are closer than
+ * {@code maxMergeDistance} are merged into reads of at most {@code maxReadSize}, and the
+ * merged reads are issued concurrently on the given executor, which bounds the parallelism.
+ * <p>
+ * Only the chunks of the prefetched columns are planned. These are the columns read for every
+ * row, such as the columns of the predicate, while lazily loaded columns may never be read and
+ * are fetched on demand.
+ */
+public class ParquetIoPlanner
+{
+    private final Executor executor;
+    private final DataSize maxMergeDistance;
+    private final DataSize maxReadSize;
+    private final ParquetIoStats stats;
+    private final Set<ColumnPath> prefetchedColumns;
+
+    public ParquetIoPlanner(Executor executor, DataSize maxMergeDistance, DataSize maxReadSize, ParquetIoStats stats, Set<ColumnPath> prefetchedColumns)
+    {
+        this.executor = requireNonNull(executor, "executor is null");
+        this.maxMergeDistance = requireNonNull(maxMergeDistance, "maxMergeDistance is null");
+        this.maxReadSize = requireNonNull(maxReadSize, "maxReadSize is null");
+        this.stats = requireNonNull(stats, "stats is null");
+        this.prefetchedColumns = ImmutableSet.copyOf(requireNonNull(prefetchedColumns, "prefetchedColumns is null"));
+    }
+
+    public boolean isPrefetched(ColumnPath column)
+    {
+        return prefetchedColumns.contains(column);
+    }
+
+    public ScheduledReads schedule(ParquetDataSource dataSource, Collection<DiskRange> chunkRanges)
+    {
+        requireNonNull(dataSource, "dataSource is null");
+        if (chunkRanges.isEmpty()) {
+            return new ScheduledReads(ImmutableMap.of(), stats);
+        }
+
+        ImmutableMap.Builder<DiskRange, ScheduledRead> reads = ImmutableMap.builder();
+        for (DiskRange range : mergeAdjacentDiskRanges(chunkRanges, maxMergeDistance, maxReadSize)) {
+            ScheduledRead read = new ScheduledRead(dataSource, range, stats);
+            try {
+                executor.execute(read);
+            }
+            catch (RejectedExecutionException e) {
+                // the reader runs the read itself
+            }
+            reads.put(range, read);
+        }
+        return new ScheduledReads(reads.build(), stats);
+    }
+
+    /**
+     * Merge disk ranges that are closer than {@code maxMergeDistance}.
+     */
+    public static List<DiskRange> mergeAdjacentDiskRanges(Collection<DiskRange> diskRanges, DataSize maxMergeDistance, DataSize maxReadSize)
+    {
+        checkArgument(!diskRanges.isEmpty(), "diskRanges is empty");
+        List<DiskRange> ranges = new ArrayList<>(diskRanges);
+        ranges.sort(Comparator.comparingLong(DiskRange::getOffset));
+
+        long maxReadSizeBytes = maxReadSize.toBytes();
+        long maxMergeDistanceBytes = maxMergeDistance.toBytes();
+        ImmutableList.Builder<DiskRange> result = ImmutableList.builder();
+        DiskRange last = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            DiskRange current = ranges.get(i);
+            DiskRange merged = last.span(current);
+            if (merged.getLength() <= maxReadSizeBytes && last.getEnd() + maxMergeDistanceBytes >= current.getOffset()) {
+                last = merged;
+            }
+            else {
+                result.add(last);
+                last = current;
+            }
+        }
+        result.add(last);
+        return result.build();
+    }
+
+    /**
+     * A merged read, run by the first of the executor and the reader to claim it. The executor is shared by all the readers of
+     * the worker, so a read still queued behind the reads of other splits when its bytes are needed is run by the reader.
+     */
+    private static class ScheduledRead
+            implements Runnable
+    {
+        private final ParquetDataSource dataSource;
+        private final DiskRange range;
+        private final ParquetIoStats stats;
+        private final SettableFuture<byte[]> future = SettableFuture.create();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private ScheduledRead(ParquetDataSource dataSource, DiskRange range, ParquetIoStats stats)
+        {
+            this.dataSource = requireNonNull(dataSource, "dataSource is null");
+            this.range = requireNonNull(range, "range is null");
+            this.stats = requireNonNull(stats, "stats is null");
+            stats.readScheduled(range.getLength());
+            future.addListener(() -> stats.readFinished(range.getLength()), directExecutor());
+        }
+
+        @Override
+        public void run()
+        {
+            // the reader may have run the read, or moved on, before the executor got to it
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                byte[] buffer = new byte[range.getLength()];
+                dataSource.readFully(range.getOffset(), buffer);
+                stats.readCompleted(range.getLength());
+                future.set(buffer);
+            }
+            catch (Throwable t) {
+                future.setException(t);
+            }
+        }
+
+        public byte[] getBuffer()
+        {
+            run();
+            return getFutureValue(future);
+        }
+
+        public void cancel()
+        {
+            if (claimed.compareAndSet(false, true)) {
+                future.cancel(false);
+            }
+        }
+
+        public void awaitFinished()
+        {
+            try {
+                getUninterruptibly(future);
+            }
+            catch (ExecutionException | CancellationException ignored) {
+                // the read is finished either way
+            }
+        }
+    }
+
+    public static class ScheduledReads
+    {
+        private final Map<DiskRange, ScheduledRead> reads;
+        private final ParquetIoStats stats;
+        private final long retainedBytes;
+
+        private ScheduledReads(Map<DiskRange, ScheduledRead> reads, ParquetIoStats stats)
+        {
+            this.reads = requireNonNull(reads, "reads is null");
+            this.stats = requireNonNull(stats, "stats is null");
+            this.retainedBytes = reads.keySet().stream().mapToLong(DiskRange::getLength).sum();
+        }
+
+        /**
+         * Returns the bytes of {@code chunk}, or empty if no scheduled read covers it. The read that covers the chunk is run
+         * inline if the executor has not started it yet, and waited for otherwise.
+         */
+        public Optional<InputStream> getInputStream(DiskRange chunk)
+        {
+            for (Entry<DiskRange, ScheduledRead> entry : reads.entrySet()) {
+                DiskRange range = entry.getKey();
+                if (range.contains(chunk)) {
+                    byte[] buffer = entry.getValue().getBuffer();
+                    stats.chunkUsed(chunk.getLength());
+                    return Optional.of(new ByteArrayInputStream(buffer, toIntExact(chunk.getOffset() - range.getOffset()), chunk.getLength()));
+                }
+            }
+            return Optional.empty();
+        }
+
+        public long getRetainedBytes()
+        {
+            return retainedBytes;
+        }
+
+        public void cancel()
+        {
+            reads.values().forEach(ScheduledRead::cancel);
+        }
+
+        /**
+         * Cancels the reads that have not started, and waits for the running ones, which must not read from the data source once it is closed.
+         */
+        public void close()
+        {
+            cancel();
+            reads.values().forEach(ScheduledRead::awaitFinished);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.reader;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the coalesced column chunk reads issued by {@link ParquetIoPlanner}.
+ * Read amplification is the ratio of bytes fetched, including merged gaps and
+ * prefetched chunks that were never decoded, to the column chunk bytes actually used.
+ */
+public class ParquetIoStats
+{
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong readBytes = new AtomicLong();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    void readScheduled(int length)
+    {
+        inFlightBytes.addAndGet(length);
+    }
+
+    void readCompleted(int length)
+    {
+        reads.incrementAndGet();
+        readBytes.addAndGet(length);
+    }
+
+    void readFinished(int length)
+    {
+        inFlightBytes.addAndGet(-length);
+    }
+
+    void chunkUsed(int length)
+    {
+        usedBytes.addAndGet(length);
+    }
+
+    public long getReads()
+    {
+        return reads.get();
+    }
+
+    public long getReadBytes()
+    {
+        return readBytes.get();
+    }
+
+    public long getUsedBytes()
+    {
+        return usedBytes.get();
+    }
+
+    public long getInFlightBytes()
+    {
+        return inFlightBytes.get();
+    }
+
+    public double getReadAmplification()
+    {
+        long used = usedBytes.get();
+        if (used == 0) {
+            return 0.0;
+        }
+        return (double) readBytes.get() / used;
+    }
+}
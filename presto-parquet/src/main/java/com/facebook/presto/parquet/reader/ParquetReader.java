@@ -39,6 +39,7 @@ import com.facebook.presto.parquet.RichColumnDescriptor;
 import com.facebook.presto.parquet.predicate.Predicate;
 import com.facebook.presto.parquet.predicate.TupleDomainParquetPredicate;
 import com.facebook.presto.parquet.reader.ColumnIndexFilterUtils.OffsetRange;
+import com.facebook.presto.parquet.reader.ParquetIoPlanner.ScheduledReads;
 import it.unimi.dsi.fastutil.booleans.BooleanArrayList;
 import it.unimi.dsi.fastutil.booleans.BooleanList;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -110,6 +111,7 @@ public class ParquetReader
     private final LocalMemoryContext pageReaderMemoryContext;
     private final LocalMemoryContext verificationPageReaderMemoryContext;
     private final boolean batchReadEnabled;
+    private final boolean dictionaryBlocksEnabled;
     private final boolean enableVerification;
     private final FilterPredicate filter;
     private final ColumnReader[] columnReaders;
@@ -118,7 +120,11 @@ public class ParquetReader
     private final List<RowRanges> blockRowRanges;
     private final Map<ColumnPath, ColumnDescriptor> paths = new HashMap<>();
     private final boolean columnIndexFilterEnabled;
+    private final Optional<ParquetIoPlanner> ioPlanner;
     private BlockMetaData currentBlockMetadata;
+    // coalesced reads of the column chunks of the current row group, and the prefetch of the next one
+    private Optional<ScheduledReads> currentRowGroupReads = Optional.empty();
+    private Optional<ScheduledReads> nextRowGroupReads = Optional.empty();
     /**
      * Index in the Parquet file of the first row of the current group
      */
@@ -147,6 +153,39 @@ public class ParquetReader
             List<ColumnIndexStore> blockIndexStores,
             boolean columnIndexFilterEnabled,
             Optional<InternalFileDecryptor> fileDecryptor)
+    {
+        this(
+                messageColumnIO,
+                blocks,
+                firstRowsOfBlocks,
+                dataSource,
+                systemMemoryContext,
+                maxReadBlockSize,
+                batchReadEnabled,
+                enableVerification,
+                parquetPredicate,
+                blockIndexStores,
+                columnIndexFilterEnabled,
+                fileDecryptor,
+                Optional.empty(),
+                false);
+    }
+
+    public ParquetReader(
+            MessageColumnIO messageColumnIO,
+            List<BlockMetaData> blocks,
+            Optional<List<Long>> firstRowsOfBlocks,
+            ParquetDataSource dataSource,
+            AggregatedMemoryContext systemMemoryContext,
+            DataSize maxReadBlockSize,
+            boolean batchReadEnabled,
+            boolean enableVerification,
+            Predicate parquetPredicate,
+            List<ColumnIndexStore> blockIndexStores,
+            boolean columnIndexFilterEnabled,
+            Optional<InternalFileDecryptor> fileDecryptor,
+            Optional<ParquetIoPlanner> ioPlanner,
+            boolean dictionaryBlocksEnabled)
     {
         this.blocks = blocks;
         this.firstRowsOfBlocks = requireNonNull(firstRowsOfBlocks, "firstRowsOfBlocks is null");
@@ -157,6 +196,7 @@ public class ParquetReader
         this.verificationPageReaderMemoryContext = systemMemoryContext.newLocalMemoryContext("PageReader");
         this.maxReadBlockBytes = requireNonNull(maxReadBlockSize, "maxReadBlockSize is null").toBytes();
         this.batchReadEnabled = batchReadEnabled;
+        this.dictionaryBlocksEnabled = dictionaryBlocksEnabled;
         columns = messageColumnIO.getLeaves();
         columnReaders = new ColumnReader[columns.size()];
         this.enableVerification = enableVerification;
@@ -183,12 +223,15 @@ public class ParquetReader
         this.columnIndexFilterEnabled = columnIndexFilterEnabled;
         requireNonNull(fileDecryptor, "fileDecryptor is null");
         this.fileDecryptor = fileDecryptor;
+        this.ioPlanner = requireNonNull(ioPlanner, "ioPlanner is null");
     }
 
     @Override
     public void close()
             throws IOException
     {
+        currentRowGroupReads.ifPresent(ScheduledReads::close);
+        nextRowGroupReads.ifPresent(ScheduledReads::close);
         dataSource.close();
         parquetReaderMemoryContext.close();
         systemMemoryContext.close();
@@ -244,6 +287,9 @@ public class ParquetReader
     private boolean advanceToNextRowGroup()
     {
         currentBlock++;
+        currentRowGroupReads.ifPresent(ScheduledReads::cancel);
+        currentRowGroupReads = nextRowGroupReads;
+        nextRowGroupReads = Optional.empty();
         if (currentBlock == blocks.size()) {
             return false;
         }
@@ -264,9 +310,32 @@ public class ParquetReader
         nextRowInGroup = 0L;
         currentGroupRowCount = currentBlockMetadata.getRowCount();
         initializeColumnReaders();
+
+        if (ioPlanner.isPresent()) {
+            if (!currentRowGroupReads.isPresent()) {
+                currentRowGroupReads = scheduleRowGroupReads(currentBlock);
+            }
+            nextRowGroupReads = scheduleRowGroupReads(currentBlock + 1);
+        }
         return true;
     }
 
+    private Optional<ScheduledReads> scheduleRowGroupReads(int blockIndex)
+    {
+        // row groups that may be filtered with column indexes only read the pages they need
+        if (blockIndex >= blocks.size() || (filter != null && columnIndexFilterEnabled && blockIndexStores.get(blockIndex) != null)) {
+            return Optional.empty();
+        }
+
+        List<DiskRange> chunkRanges = new ArrayList<>();
+        for (ColumnChunkMetaData metadata : blocks.get(blockIndex).getColumns()) {
+            if (!HiddenColumnChunkMetaData.isHiddenColumn(metadata) && paths.containsKey(metadata.getPath()) && ioPlanner.get().isPrefetched(metadata.getPath()) && metadata.getTotalSize() > 0) {
+                chunkRanges.add(new DiskRange(metadata.getStartingPos(), toIntExact(metadata.getTotalSize())));
+            }
+        }
+        return Optional.of(ioPlanner.get().schedule(dataSource, chunkRanges));
+    }
+
     private ColumnChunk readArray(GroupField field)
             throws IOException
     {
@@ -367,7 +436,7 @@ public class ParquetReader
             }
             else {
                 PageReader pageReader = createPageReader(
-                        dataSourceAsInputStream(startingPosition, columnChunkSize),
+                        columnChunkAsInputStream(startingPosition, columnChunkSize),
                         columnChunkSize,
                         columnChunkMetaData,
                         columnDescriptor,
@@ -378,7 +447,7 @@ public class ParquetReader
                 if (enableVerification) {
                     ColumnReader verificationColumnReader = verificationColumnReaders[field.getId()];
                     PageReader pageReaderVerification = createPageReader(
-                            dataSourceAsInputStream(startingPosition, columnChunkSize),
+                            columnChunkAsInputStream(startingPosition, columnChunkSize),
                             columnChunkSize,
                             columnChunkMetaData,
                             columnDescriptor,
@@ -409,6 +478,17 @@ public class ParquetReader
         return columnChunk;
     }
 
+    private InputStream columnChunkAsInputStream(long startingPosition, int columnChunkSize)
+    {
+        if (currentRowGroupReads.isPresent() && columnChunkSize > 0) {
+            Optional<InputStream> inputStream = currentRowGroupReads.get().getInputStream(new DiskRange(startingPosition, columnChunkSize));
+            if (inputStream.isPresent()) {
+                return inputStream.get();
+            }
+        }
+        return dataSourceAsInputStream(startingPosition, columnChunkSize);
+    }
+
     private InputStream dataSourceAsInputStream(long startingPosition, List<OffsetRange> offsetRanges)
     {
         List<InputStream> inputStreams = new ArrayList<>();
@@ -522,7 +602,7 @@ public class ParquetReader
     {
         for (PrimitiveColumnIO columnIO : columns) {
             RichColumnDescriptor column = new RichColumnDescriptor(columnIO.getColumnDescriptor(), columnIO.getType().asPrimitiveType());
-            columnReaders[columnIO.getId()] = ColumnReaderFactory.createReader(column, batchReadEnabled);
+            columnReaders[columnIO.getId()] = ColumnReaderFactory.createReader(column, batchReadEnabled, dictionaryBlocksEnabled);
 
             if (enableVerification) {
                 verificationColumnReaders[columnIO.getId()] = ColumnReaderFactory.createReader(column, false);
@@ -567,6 +647,8 @@ public class ParquetReader
             }
         }
         sizeInBytes += sizeOf(maxBytesPerCell);
+        sizeInBytes += currentRowGroupReads.map(ScheduledReads::getRetainedBytes).orElse(0L);
+        sizeInBytes += nextRowGroupReads.map(ScheduledReads::getRetainedBytes).orElse(0L);
         return sizeInBytes;
     }
 
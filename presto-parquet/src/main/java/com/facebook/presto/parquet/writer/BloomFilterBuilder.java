@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.writer;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.apache.parquet.column.values.bloomfilter.BlockSplitBloomFilter;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.io.api.Binary;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.Math.log;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static org.apache.parquet.column.values.bloomfilter.BlockSplitBloomFilter.LOWER_BOUND_BYTES;
+
+/**
+ * Collects the hashes of the values of one column chunk and builds a split block Bloom filter
+ * sized for the number of distinct values once the chunk is complete. Hashes are kept in a set
+ * until the optimally sized filter would exceed {@code maxBytes}; from then on they go straight
+ * into a filter of the maximum size.
+ */
+public class BloomFilterBuilder
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(BloomFilterBuilder.class).instanceSize();
+
+    private final double fpp;
+    private final int maxBytes;
+    private final long maxDistinctHashes;
+    // BlockSplitBloomFilter hashes through a per-instance buffer, so each builder owns its hasher
+    private final BlockSplitBloomFilter hasher = new BlockSplitBloomFilter(LOWER_BOUND_BYTES);
+
+    private final HashSet hashes = new HashSet();
+    private BlockSplitBloomFilter overflowFilter;
+
+    public BloomFilterBuilder(double fpp, int maxBytes)
+    {
+        checkArgument(fpp > 0.0 && fpp < 1.0, "fpp must be between 0.0 and 1.0 exclusive: %s", fpp);
+        checkArgument(maxBytes >= LOWER_BOUND_BYTES, "maxBytes must be at least %s: %s", LOWER_BOUND_BYTES, maxBytes);
+        this.fpp = fpp;
+        this.maxBytes = maxBytes;
+        // inverse of BlockSplitBloomFilter.optimalNumOfBits
+        this.maxDistinctHashes = max(1, (long) (maxBytes * 8L * log(2) * log(2) / -log(fpp)));
+    }
+
+    public void addInteger(int value)
+    {
+        addHash(hasher.hash(value));
+    }
+
+    public void addLong(long value)
+    {
+        addHash(hasher.hash(value));
+    }
+
+    public void addFloat(float value)
+    {
+        addHash(hasher.hash(value));
+    }
+
+    public void addDouble(double value)
+    {
+        addHash(hasher.hash(value));
+    }
+
+    public void addBinary(Binary value)
+    {
+        addHash(hasher.hash(value));
+    }
+
+    private void addHash(long hash)
+    {
+        if (overflowFilter != null) {
+            overflowFilter.insertHash(hash);
+            return;
+        }
+        hashes.add(hash);
+        if (hashes.size() > maxDistinctHashes) {
+            overflowFilter = new BlockSplitBloomFilter(maxBytes, maxBytes);
+            insertAll(overflowFilter);
+            hashes.clear();
+            hashes.trim();
+        }
+    }
+
+    public Optional<BloomFilter> build()
+    {
+        if (overflowFilter != null) {
+            return Optional.of(overflowFilter);
+        }
+        if (hashes.isEmpty()) {
+            return Optional.empty();
+        }
+        int numBytes = toIntExact(min(maxBytes, BlockSplitBloomFilter.optimalNumOfBits(hashes.size(), fpp) / 8));
+        BlockSplitBloomFilter filter = new BlockSplitBloomFilter(max(numBytes, LOWER_BOUND_BYTES), maxBytes);
+        insertAll(filter);
+        return Optional.of(filter);
+    }
+
+    public void reset()
+    {
+        hashes.clear();
+        hashes.trim();
+        overflowFilter = null;
+    }
+
+    public long getRetainedBytes()
+    {
+        long overflowSize = overflowFilter == null ? 0 : overflowFilter.getBitsetSize();
+        return INSTANCE_SIZE + hashes.getRetainedSizeInBytes() + overflowSize;
+    }
+
+    private void insertAll(BlockSplitBloomFilter filter)
+    {
+        LongIterator iterator = hashes.iterator();
+        while (iterator.hasNext()) {
+            filter.insertHash(iterator.nextLong());
+        }
+    }
+
+    // exposes the hash table capacity, which is what the set actually retains
+    private static class HashSet
+            extends LongOpenHashSet
+    {
+        private long getRetainedSizeInBytes()
+        {
+            return sizeOf(key);
+        }
+    }
+}
@@ -13,10 +13,14 @@
  */
 package com.facebook.presto.parquet.writer;
 
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.format.ColumnIndex;
 import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.OffsetIndex;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
 
@@ -40,11 +44,28 @@ public interface ColumnWriter
     {
         private final ColumnMetaData metaData;
         private final List<ParquetDataOutput> data;
+        private final Optional<ColumnIndex> columnIndex;
+        private final Optional<OffsetIndex> offsetIndex;
+        private final Optional<BloomFilter> bloomFilter;
 
         public BufferData(List<ParquetDataOutput> data, ColumnMetaData metaData)
+        {
+            this(data, metaData, Optional.empty(), Optional.empty(), Optional.empty());
+        }
+
+        // Page offsets in offsetIndex are relative to the start of the column chunk, like the offsets in metaData
+        public BufferData(
+                List<ParquetDataOutput> data,
+                ColumnMetaData metaData,
+                Optional<ColumnIndex> columnIndex,
+                Optional<OffsetIndex> offsetIndex,
+                Optional<BloomFilter> bloomFilter)
         {
             this.data = requireNonNull(data, "data is null");
             this.metaData = requireNonNull(metaData, "metaData is null");
+            this.columnIndex = requireNonNull(columnIndex, "columnIndex is null");
+            this.offsetIndex = requireNonNull(offsetIndex, "offsetIndex is null");
+            this.bloomFilter = requireNonNull(bloomFilter, "bloomFilter is null");
         }
 
         public ColumnMetaData getMetaData()
@@ -56,5 +77,20 @@ public interface ColumnWriter
         {
             return data;
         }
+
+        public Optional<ColumnIndex> getColumnIndex()
+        {
+            return columnIndex;
+        }
+
+        public Optional<OffsetIndex> getOffsetIndex()
+        {
+            return offsetIndex;
+        }
+
+        public Optional<BloomFilter> getBloomFilter()
+        {
+            return bloomFilter;
+        }
     }
 }
@@ -25,11 +25,22 @@ import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.apache.parquet.column.ParquetProperties;
 import org.apache.parquet.column.ParquetProperties.Builder;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.format.BloomFilterAlgorithm;
+import org.apache.parquet.format.BloomFilterCompression;
+import org.apache.parquet.format.BloomFilterHash;
+import org.apache.parquet.format.BloomFilterHeader;
+import org.apache.parquet.format.ColumnIndex;
 import org.apache.parquet.format.ColumnMetaData;
 import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.OffsetIndex;
+import org.apache.parquet.format.PageLocation;
 import org.apache.parquet.format.RowGroup;
 import org.apache.parquet.format.SchemaElement;
+import org.apache.parquet.format.SplitBlockAlgorithm;
+import org.apache.parquet.format.Uncompressed;
 import org.apache.parquet.format.Util;
+import org.apache.parquet.format.XxHash;
 import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
@@ -39,8 +50,11 @@ import org.openjdk.jol.info.ClassLayout;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static com.facebook.presto.parquet.writer.ParquetDataOutput.createDataOutput;
 import static com.facebook.presto.parquet.writer.ParquetWriterOptions.DEFAULT_MAX_PAGE_SIZE;
@@ -81,6 +95,9 @@ public class ParquetWriter
     private final int chunkMaxLogicalBytes;
 
     private ImmutableList.Builder<RowGroup> rowGroupBuilder = ImmutableList.builder();
+    // page indexes and Bloom filters are written after all row groups, right before the footer
+    private final List<ColumnChunkIndexes> columnChunkIndexes = new ArrayList<>();
+    private long columnChunkIndexesRetainedBytes;
 
     private int rows;
     private boolean closed;
@@ -119,7 +136,7 @@ public class ParquetWriter
         }
         ParquetProperties parquetProperties = parquetPropertiesBuilder.build();
         CompressionCodecName compressionCodecName = getCompressionCodecName(compressionCodecClass);
-        this.columnWriters = ParquetWriters.getColumnWriters(messageType, primitiveTypes, parquetProperties, compressionCodecName);
+        this.columnWriters = ParquetWriters.getColumnWriters(messageType, primitiveTypes, parquetProperties, compressionCodecName, writerOption);
 
         this.chunkMaxLogicalBytes = max(1, CHUNK_MAX_BYTES / 2);
     }
@@ -138,7 +155,8 @@ public class ParquetWriter
     {
         return INSTANCE_SIZE +
                 outputStream.getRetainedSize() +
-                columnWriters.stream().mapToLong(ColumnWriter::getRetainedBytes).sum();
+                columnWriters.stream().mapToLong(ColumnWriter::getRetainedBytes).sum() +
+                columnChunkIndexesRetainedBytes;
     }
 
     public void write(Page page)
@@ -212,6 +230,7 @@ public class ParquetWriter
     //
     // MAGIC
     // variable: Data
+    // variable: Column indexes, offset indexes and Bloom filters
     // variable: Metadata
     // 4 bytes: MetadataLength
     // MAGIC
@@ -236,7 +255,24 @@ public class ParquetWriter
         List<ColumnMetaData> metadatas = bufferDataList.stream()
                 .map(BufferData::getMetaData)
                 .collect(toImmutableList());
-        updateRowGroups(updateColumnMetadataOffset(metadatas, stripeStartOffset));
+        List<org.apache.parquet.format.ColumnChunk> columnChunks = updateColumnMetadataOffset(metadatas, stripeStartOffset).stream()
+                .map(ParquetWriter::toColumnChunk)
+                .collect(toImmutableList());
+        updateRowGroups(columnChunks);
+
+        for (int i = 0; i < bufferDataList.size(); i++) {
+            BufferData bufferData = bufferDataList.get(i);
+            org.apache.parquet.format.ColumnChunk columnChunk = columnChunks.get(i);
+            long chunkStartOffset = columnChunk.getMeta_data().isSetDictionary_page_offset() ?
+                    columnChunk.getMeta_data().getDictionary_page_offset() :
+                    columnChunk.getMeta_data().getData_page_offset();
+            Optional<OffsetIndex> offsetIndex = bufferData.getOffsetIndex().map(index -> shiftOffsetIndex(index, chunkStartOffset));
+            if (bufferData.getColumnIndex().isPresent() || offsetIndex.isPresent() || bufferData.getBloomFilter().isPresent()) {
+                ColumnChunkIndexes indexes = new ColumnChunkIndexes(columnChunk, bufferData.getColumnIndex(), offsetIndex, bufferData.getBloomFilter());
+                columnChunkIndexes.add(indexes);
+                columnChunkIndexesRetainedBytes += indexes.getRetainedBytes();
+            }
+        }
 
         // flush pages
         bufferDataList.stream()
@@ -249,6 +285,10 @@ public class ParquetWriter
             throws IOException
     {
         checkState(closed);
+        writeColumnIndexes();
+        writeOffsetIndexes();
+        writeBloomFilters();
+
         Slice footer = getFooter(rowGroupBuilder.build(), messageType);
         createDataOutput(footer).writeData(outputStream);
 
@@ -259,6 +299,53 @@ public class ParquetWriter
         createDataOutput(MAGIC).writeData(outputStream);
     }
 
+    private void writeColumnIndexes()
+            throws IOException
+    {
+        for (ColumnChunkIndexes indexes : columnChunkIndexes) {
+            if (!indexes.getColumnIndex().isPresent()) {
+                continue;
+            }
+            long offset = outputStream.longSize();
+            Util.writeColumnIndex(indexes.getColumnIndex().get(), outputStream);
+            indexes.getColumnChunk().setColumn_index_offset(offset);
+            indexes.getColumnChunk().setColumn_index_length(toIntExact(outputStream.longSize() - offset));
+        }
+    }
+
+    private void writeOffsetIndexes()
+            throws IOException
+    {
+        for (ColumnChunkIndexes indexes : columnChunkIndexes) {
+            if (!indexes.getOffsetIndex().isPresent()) {
+                continue;
+            }
+            long offset = outputStream.longSize();
+            Util.writeOffsetIndex(indexes.getOffsetIndex().get(), outputStream);
+            indexes.getColumnChunk().setOffset_index_offset(offset);
+            indexes.getColumnChunk().setOffset_index_length(toIntExact(outputStream.longSize() - offset));
+        }
+    }
+
+    private void writeBloomFilters()
+            throws IOException
+    {
+        for (ColumnChunkIndexes indexes : columnChunkIndexes) {
+            if (!indexes.getBloomFilter().isPresent()) {
+                continue;
+            }
+            BloomFilter bloomFilter = indexes.getBloomFilter().get();
+            indexes.getColumnChunk().getMeta_data().setBloom_filter_offset(outputStream.longSize());
+            BloomFilterHeader header = new BloomFilterHeader(
+                    bloomFilter.getBitsetSize(),
+                    BloomFilterAlgorithm.BLOCK(new SplitBlockAlgorithm()),
+                    BloomFilterHash.XXHASH(new XxHash()),
+                    BloomFilterCompression.UNCOMPRESSED(new Uncompressed()));
+            Util.writeBloomFilterHeader(header, outputStream);
+            bloomFilter.writeTo(outputStream);
+        }
+    }
+
     static Slice getFooter(List<RowGroup> rowGroups, MessageType messageType)
             throws IOException
     {
@@ -286,11 +373,10 @@ public class ParquetWriter
         return parquetMetaData.getSchema();
     }
 
-    private void updateRowGroups(List<ColumnMetaData> columnMetaData)
+    private void updateRowGroups(List<org.apache.parquet.format.ColumnChunk> columnChunks)
     {
         // TODO Avoid writing empty row group
-        long totalBytes = columnMetaData.stream().mapToLong(ColumnMetaData::getTotal_compressed_size).sum();
-        ImmutableList<org.apache.parquet.format.ColumnChunk> columnChunks = columnMetaData.stream().map(ParquetWriter::toColumnChunk).collect(toImmutableList());
+        long totalBytes = columnChunks.stream().mapToLong(columnChunk -> columnChunk.getMeta_data().getTotal_compressed_size()).sum();
         rowGroupBuilder.add(new RowGroup(columnChunks, totalBytes, rows));
     }
 
@@ -307,7 +393,12 @@ public class ParquetWriter
         ImmutableList.Builder<ColumnMetaData> builder = ImmutableList.builder();
         long currentOffset = offset;
         for (ColumnMetaData column : columns) {
-            ColumnMetaData columnMetaData = new ColumnMetaData(column.type, column.encodings, column.path_in_schema, column.codec, column.num_values, column.total_uncompressed_size, column.total_compressed_size, currentOffset);
+            // column writers report page offsets relative to the start of their chunk
+            long dataPageOffset = currentOffset + column.getData_page_offset();
+            ColumnMetaData columnMetaData = new ColumnMetaData(column.type, column.encodings, column.path_in_schema, column.codec, column.num_values, column.total_uncompressed_size, column.total_compressed_size, dataPageOffset);
+            if (column.isSetDictionary_page_offset()) {
+                columnMetaData.setDictionary_page_offset(currentOffset + column.getDictionary_page_offset());
+            }
             columnMetaData.setStatistics(column.getStatistics());
             builder.add(columnMetaData);
             currentOffset += column.getTotal_compressed_size();
@@ -315,6 +406,14 @@ public class ParquetWriter
         return builder.build();
     }
 
+    private static OffsetIndex shiftOffsetIndex(OffsetIndex offsetIndex, long chunkStartOffset)
+    {
+        List<PageLocation> pageLocations = offsetIndex.getPage_locations().stream()
+                .map(location -> new PageLocation(chunkStartOffset + location.getOffset(), location.getCompressed_page_size(), location.getFirst_row_index()))
+                .collect(toImmutableList());
+        return new OffsetIndex(pageLocations);
+    }
+
     private CompressionCodecName getCompressionCodecName(String compressionCodecClass)
     {
         if (compressionCodecClass == null) {
@@ -341,4 +440,73 @@ public class ParquetWriter
         }
         throw new IllegalArgumentException("Invalid compressionCodec: " + compressionCodecClass);
     }
+
+    private static class ColumnChunkIndexes
+    {
+        private static final int INSTANCE_SIZE = ClassLayout.parseClass(ColumnChunkIndexes.class).instanceSize();
+        private static final int COLUMN_INDEX_INSTANCE_SIZE = ClassLayout.parseClass(ColumnIndex.class).instanceSize();
+        private static final int OFFSET_INDEX_INSTANCE_SIZE = ClassLayout.parseClass(OffsetIndex.class).instanceSize();
+        private static final int PAGE_LOCATION_INSTANCE_SIZE = ClassLayout.parseClass(PageLocation.class).instanceSize();
+        private static final int BYTE_BUFFER_INSTANCE_SIZE = ClassLayout.parseClass(ByteBuffer.class).instanceSize();
+        private static final int LONG_INSTANCE_SIZE = ClassLayout.parseClass(Long.class).instanceSize();
+
+        private final org.apache.parquet.format.ColumnChunk columnChunk;
+        private final Optional<ColumnIndex> columnIndex;
+        private final Optional<OffsetIndex> offsetIndex;
+        private final Optional<BloomFilter> bloomFilter;
+        private final long retainedBytes;
+
+        public ColumnChunkIndexes(org.apache.parquet.format.ColumnChunk columnChunk, Optional<ColumnIndex> columnIndex, Optional<OffsetIndex> offsetIndex, Optional<BloomFilter> bloomFilter)
+        {
+            this.columnChunk = requireNonNull(columnChunk, "columnChunk is null");
+            this.columnIndex = requireNonNull(columnIndex, "columnIndex is null");
+            this.offsetIndex = requireNonNull(offsetIndex, "offsetIndex is null");
+            this.bloomFilter = requireNonNull(bloomFilter, "bloomFilter is null");
+            this.retainedBytes = INSTANCE_SIZE +
+                    columnIndex.map(ColumnChunkIndexes::getRetainedBytes).orElse(0L) +
+                    offsetIndex.map(index -> OFFSET_INDEX_INSTANCE_SIZE + (long) index.getPage_locationsSize() * (PAGE_LOCATION_INSTANCE_SIZE + Long.BYTES)).orElse(0L) +
+                    bloomFilter.map(filter -> (long) filter.getBitsetSize()).orElse(0L);
+        }
+
+        // the column chunk itself is part of the footer, so only the indexes and the Bloom filter are counted
+        public long getRetainedBytes()
+        {
+            return retainedBytes;
+        }
+
+        private static long getRetainedBytes(ColumnIndex columnIndex)
+        {
+            long retainedBytes = COLUMN_INDEX_INSTANCE_SIZE;
+            for (ByteBuffer value : columnIndex.getMin_values()) {
+                retainedBytes += BYTE_BUFFER_INSTANCE_SIZE + value.remaining();
+            }
+            for (ByteBuffer value : columnIndex.getMax_values()) {
+                retainedBytes += BYTE_BUFFER_INSTANCE_SIZE + value.remaining();
+            }
+            // list slots for the null pages, and boxed values for the null counts
+            retainedBytes += (long) columnIndex.getNull_pagesSize() * Long.BYTES;
+            retainedBytes += (long) columnIndex.getNull_countsSize() * (LONG_INSTANCE_SIZE + Long.BYTES);
+            return retainedBytes;
+        }
+
+        public org.apache.parquet.format.ColumnChunk getColumnChunk()
+        {
+            return columnChunk;
+        }
+
+        public Optional<ColumnIndex> getColumnIndex()
+        {
+            return columnIndex;
+        }
+
+        public Optional<OffsetIndex> getOffsetIndex()
+        {
+            return offsetIndex;
+        }
+
+        public Optional<BloomFilter> getBloomFilter()
+        {
+            return bloomFilter;
+        }
+    }
 }
@@ -14,8 +14,12 @@
 package com.facebook.presto.parquet.writer;
 
 import com.facebook.airlift.units.DataSize;
+import com.google.common.collect.ImmutableSet;
 import org.apache.parquet.column.ParquetProperties.WriterVersion;
 
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
@@ -24,6 +28,8 @@ public class ParquetWriterOptions
     protected static final DataSize DEFAULT_MAX_ROW_GROUP_SIZE = DataSize.valueOf("128MB");
     protected static final DataSize DEFAULT_MAX_PAGE_SIZE = DataSize.valueOf("1MB");
     public static final WriterVersion DEFAULT_WRITER_VERSION = WriterVersion.PARQUET_1_0;
+    public static final double DEFAULT_BLOOM_FILTER_FPP = 0.01;
+    public static final DataSize DEFAULT_MAX_BLOOM_FILTER_SIZE = DataSize.valueOf("1MB");
 
     public static ParquetWriterOptions.Builder builder()
     {
@@ -34,13 +40,27 @@ public class ParquetWriterOptions
     private final int maxPageSize;
     private final int maxDictionaryPageSize;
     private final WriterVersion writerVersion;
-
-    private ParquetWriterOptions(DataSize maxRowGroupSize, DataSize maxPageSize, DataSize maxDictionaryPageSize, WriterVersion writerVersion)
+    private final Set<String> bloomFilterColumns;
+    private final double bloomFilterFpp;
+    private final int maxBloomFilterSize;
+
+    private ParquetWriterOptions(
+            DataSize maxRowGroupSize,
+            DataSize maxPageSize,
+            DataSize maxDictionaryPageSize,
+            WriterVersion writerVersion,
+            Set<String> bloomFilterColumns,
+            double bloomFilterFpp,
+            DataSize maxBloomFilterSize)
     {
         this.maxRowGroupSize = toIntExact(requireNonNull(maxRowGroupSize, "maxRowGroupSize is null").toBytes());
         this.maxPageSize = toIntExact(requireNonNull(maxPageSize, "maxPageSize is null").toBytes());
         this.maxDictionaryPageSize = toIntExact(requireNonNull(maxDictionaryPageSize, "maxDictionaryPageSize is null").toBytes());
         this.writerVersion = requireNonNull(writerVersion, "writerVersion is null");
+        this.bloomFilterColumns = ImmutableSet.copyOf(requireNonNull(bloomFilterColumns, "bloomFilterColumns is null"));
+        checkArgument(bloomFilterFpp > 0.0 && bloomFilterFpp < 1.0, "bloomFilterFpp must be between 0.0 and 1.0 exclusive: %s", bloomFilterFpp);
+        this.bloomFilterFpp = bloomFilterFpp;
+        this.maxBloomFilterSize = toIntExact(requireNonNull(maxBloomFilterSize, "maxBloomFilterSize is null").toBytes());
     }
 
     public int getMaxRowGroupSize()
@@ -63,6 +83,24 @@ public class ParquetWriterOptions
         return writerVersion;
     }
 
+    /**
+     * Dot separated paths of the leaf columns that get a split block Bloom filter in every row group.
+     */
+    public Set<String> getBloomFilterColumns()
+    {
+        return bloomFilterColumns;
+    }
+
+    public double getBloomFilterFpp()
+    {
+        return bloomFilterFpp;
+    }
+
+    public int getMaxBloomFilterSize()
+    {
+        return maxBloomFilterSize;
+    }
+
     public static class Builder
     {
         private DataSize maxBlockSize = DEFAULT_MAX_ROW_GROUP_SIZE;
@@ -70,6 +108,9 @@ public class ParquetWriterOptions
         // By default, we set maxDictionaryPageSize to the same default value as maxPageSize, to keep consistent with parquet-mr.
         private DataSize maxDictionaryPageSize = DEFAULT_MAX_PAGE_SIZE;
         private WriterVersion writerVersion = DEFAULT_WRITER_VERSION;
+        private Set<String> bloomFilterColumns = ImmutableSet.of();
+        private double bloomFilterFpp = DEFAULT_BLOOM_FILTER_FPP;
+        private DataSize maxBloomFilterSize = DEFAULT_MAX_BLOOM_FILTER_SIZE;
 
         public Builder setMaxBlockSize(DataSize maxBlockSize)
         {
@@ -95,9 +136,27 @@ public class ParquetWriterOptions
             return this;
         }
 
+        public Builder setBloomFilterColumns(Set<String> bloomFilterColumns)
+        {
+            this.bloomFilterColumns = bloomFilterColumns;
+            return this;
+        }
+
+        public Builder setBloomFilterFpp(double bloomFilterFpp)
+        {
+            this.bloomFilterFpp = bloomFilterFpp;
+            return this;
+        }
+
+        public Builder setMaxBloomFilterSize(DataSize maxBloomFilterSize)
+        {
+            this.maxBloomFilterSize = maxBloomFilterSize;
+            return this;
+        }
+
         public ParquetWriterOptions build()
         {
-            return new ParquetWriterOptions(maxBlockSize, maxPageSize, maxDictionaryPageSize, writerVersion);
+            return new ParquetWriterOptions(maxBlockSize, maxPageSize, maxDictionaryPageSize, writerVersion, bloomFilterColumns, bloomFilterFpp, maxBloomFilterSize);
         }
     }
 }
@@ -19,6 +19,7 @@ import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.VarbinaryType;
 import com.facebook.presto.common.type.VarcharType;
 import com.facebook.presto.parquet.writer.valuewriter.BigintValueWriter;
+import com.facebook.presto.parquet.writer.valuewriter.BloomFilterValuesWriter;
 import com.facebook.presto.parquet.writer.valuewriter.BooleanValueWriter;
 import com.facebook.presto.parquet.writer.valuewriter.CharValueWriter;
 import com.facebook.presto.parquet.writer.valuewriter.DateValueWriter;
@@ -32,6 +33,7 @@ import com.facebook.presto.parquet.writer.valuewriter.TimestampValueWriter;
 import com.facebook.presto.parquet.writer.valuewriter.TimestampWithTimezoneValueWriter;
 import com.facebook.presto.parquet.writer.valuewriter.UuidValuesWriter;
 import com.facebook.presto.spi.PrestoException;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.column.ParquetProperties;
@@ -44,10 +46,12 @@ import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.apache.parquet.schema.GroupType;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
@@ -82,9 +86,14 @@ class ParquetWriters
         }
     }
 
-    static List<ColumnWriter> getColumnWriters(MessageType messageType, Map<List<String>, Type> prestoTypes, ParquetProperties parquetProperties, CompressionCodecName compressionCodecName)
+    static List<ColumnWriter> getColumnWriters(
+            MessageType messageType,
+            Map<List<String>, Type> prestoTypes,
+            ParquetProperties parquetProperties,
+            CompressionCodecName compressionCodecName,
+            ParquetWriterOptions writerOptions)
     {
-        WriterBuilder writeBuilder = new WriterBuilder(messageType, prestoTypes, parquetProperties, compressionCodecName);
+        WriterBuilder writeBuilder = new WriterBuilder(messageType, prestoTypes, parquetProperties, compressionCodecName, writerOptions);
         ParquetTypeVisitor.visit(messageType, writeBuilder);
         return writeBuilder.build();
     }
@@ -96,14 +105,16 @@ class ParquetWriters
         private final Map<List<String>, Type> prestoTypes;
         private final ParquetProperties parquetProperties;
         private final CompressionCodecName compressionCodecName;
+        private final ParquetWriterOptions writerOptions;
         private final ImmutableList.Builder<ColumnWriter> builder = ImmutableList.builder();
 
-        WriterBuilder(MessageType messageType, Map<List<String>, Type> prestoTypes, ParquetProperties parquetProperties, CompressionCodecName compressionCodecName)
+        WriterBuilder(MessageType messageType, Map<List<String>, Type> prestoTypes, ParquetProperties parquetProperties, CompressionCodecName compressionCodecName, ParquetWriterOptions writerOptions)
         {
             this.type = requireNonNull(messageType, "messageType is null");
             this.prestoTypes = requireNonNull(prestoTypes, "prestoTypes is null");
             this.parquetProperties = requireNonNull(parquetProperties, "parquetProperties is null");
             this.compressionCodecName = requireNonNull(compressionCodecName, "compressionCodecName is null");
+            this.writerOptions = requireNonNull(writerOptions, "writerOptions is null");
         }
 
         List<ColumnWriter> build()
@@ -153,11 +164,19 @@ class ParquetWriters
             int fieldRepetitionLevel = type.getMaxRepetitionLevel(path);
             ColumnDescriptor columnDescriptor = new ColumnDescriptor(path, primitive, fieldRepetitionLevel, fieldDefinitionLevel);
             Type prestoType = requireNonNull(prestoTypes.get(ImmutableList.copyOf(path)), " presto type is null");
+            Optional<BloomFilterBuilder> bloomFilterBuilder = Optional.empty();
+            Supplier<ValuesWriter> valuesWriterSupplier = () -> parquetProperties.newValuesWriter(columnDescriptor);
+            if (primitive.getPrimitiveTypeName() != PrimitiveTypeName.BOOLEAN && writerOptions.getBloomFilterColumns().contains(Joiner.on('.').join(path))) {
+                BloomFilterBuilder filterBuilder = new BloomFilterBuilder(writerOptions.getBloomFilterFpp(), writerOptions.getMaxBloomFilterSize());
+                bloomFilterBuilder = Optional.of(filterBuilder);
+                valuesWriterSupplier = () -> new BloomFilterValuesWriter(parquetProperties.newValuesWriter(columnDescriptor), filterBuilder);
+            }
             switch (parquetProperties.getWriterVersion()) {
                 case PARQUET_1_0:
                     return new PrimitiveColumnWriterV1(prestoType,
                             columnDescriptor,
-                            getValueWriter(() -> parquetProperties.newValuesWriter(columnDescriptor), prestoType, columnDescriptor.getPrimitiveType()),
+                            getValueWriter(valuesWriterSupplier, prestoType, columnDescriptor.getPrimitiveType()),
+                            bloomFilterBuilder,
                             parquetProperties.newDefinitionLevelWriter(columnDescriptor),
                             parquetProperties.newRepetitionLevelWriter(columnDescriptor),
                             compressionCodecName,
@@ -165,7 +184,8 @@ class ParquetWriters
                 case PARQUET_2_0:
                     return new PrimitiveColumnWriterV2(prestoType,
                             columnDescriptor,
-                            getValueWriter(() -> parquetProperties.newValuesWriter(columnDescriptor), prestoType, columnDescriptor.getPrimitiveType()),
+                            getValueWriter(valuesWriterSupplier, prestoType, columnDescriptor.getPrimitiveType()),
+                            bloomFilterBuilder,
                             parquetProperties.newDefinitionLevelEncoder(columnDescriptor),
                             parquetProperties.newRepetitionLevelEncoder(columnDescriptor),
                             compressionCodecName,
@@ -30,12 +30,15 @@ import org.apache.parquet.column.statistics.Statistics;
 import org.apache.parquet.format.ColumnMetaData;
 import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.internal.column.columnindex.ColumnIndexBuilder;
+import org.apache.parquet.internal.column.columnindex.OffsetIndexBuilder;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.facebook.presto.parquet.writer.ParquetCompressor.getCompressor;
@@ -49,6 +52,9 @@ import static org.apache.parquet.bytes.BytesInput.copy;
 public abstract class PrimitiveColumnWriter
         implements ColumnWriter
 {
+    // same as parquet-mr's default column index truncate length
+    private static final int COLUMN_INDEX_TRUNCATE_LENGTH = 64;
+
     protected final ColumnDescriptor columnDescriptor;
     protected final PrimitiveValueWriter primitiveValueWriter;
     protected final ParquetMetadataConverter parquetMetadataConverter = new ParquetMetadataConverter();
@@ -62,6 +68,7 @@ public abstract class PrimitiveColumnWriter
 
     private final Type type;
     private final CompressionCodecName compressionCodec;
+    private final Optional<BloomFilterBuilder> bloomFilterBuilder;
 
     protected boolean closed;
     protected boolean getDataStreamsCalled;
@@ -69,26 +76,42 @@ public abstract class PrimitiveColumnWriter
     // current page stats
     protected int valueCount;
     protected int currentPageNullCounts;
+    protected int currentPageRowCount;
 
     // column meta data stats
     protected long totalCompressedSize;
     protected long totalUnCompressedSize;
     protected long totalValues;
     protected Statistics<?> columnStatistics;
-
-    public PrimitiveColumnWriter(Type type, ColumnDescriptor columnDescriptor, PrimitiveValueWriter primitiveValueWriter, CompressionCodecName compressionCodecName, int pageSizeThreshold)
+    // size of the dictionary page including its header, or 0 if the chunk has no dictionary
+    protected long dictionaryPageSize;
+
+    // page indexes of the current chunk
+    protected ColumnIndexBuilder columnIndexBuilder;
+    protected OffsetIndexBuilder offsetIndexBuilder;
+
+    public PrimitiveColumnWriter(
+            Type type,
+            ColumnDescriptor columnDescriptor,
+            PrimitiveValueWriter primitiveValueWriter,
+            Optional<BloomFilterBuilder> bloomFilterBuilder,
+            CompressionCodecName compressionCodecName,
+            int pageSizeThreshold)
     {
         this.type = requireNonNull(type, "type is null");
         this.columnDescriptor = requireNonNull(columnDescriptor, "columnDescriptor is null");
         this.maxDefinitionLevel = columnDescriptor.getMaxDefinitionLevel();
 
         this.primitiveValueWriter = requireNonNull(primitiveValueWriter, "primitiveValueWriter is null");
+        this.bloomFilterBuilder = requireNonNull(bloomFilterBuilder, "bloomFilterBuilder is null");
         this.encodings = new HashSet<>();
         this.compressionCodec = requireNonNull(compressionCodecName, "compressionCodecName is null");
         this.compressor = getCompressor(compressionCodecName);
         this.pageSizeThreshold = pageSizeThreshold;
 
         this.columnStatistics = Statistics.createStats(columnDescriptor.getPrimitiveType());
+        this.columnIndexBuilder = ColumnIndexBuilder.getBuilder(columnDescriptor.getPrimitiveType(), COLUMN_INDEX_TRUNCATE_LENGTH);
+        this.offsetIndexBuilder = OffsetIndexBuilder.getBuilder();
     }
 
     @Override
@@ -128,10 +151,20 @@ public abstract class PrimitiveColumnWriter
             throws IOException
     {
         checkState(closed);
-        return ImmutableList.of(new BufferData(getDataStreams(), getColumnMetaData()));
+        List<ParquetDataOutput> dataStreams = getDataStreams();
+        return ImmutableList.of(new BufferData(
+                dataStreams,
+                getColumnMetaData(),
+                Optional.ofNullable(columnIndexBuilder.build())
+                        .filter(columnIndex -> totalValues > 0)
+                        .map(columnIndex -> ParquetMetadataConverter.toParquetColumnIndex(columnDescriptor.getPrimitiveType(), columnIndex)),
+                Optional.of(offsetIndexBuilder)
+                        .filter(builder -> totalValues > 0)
+                        .map(builder -> ParquetMetadataConverter.toParquetOffsetIndex(builder.build(dictionaryPageSize))),
+                bloomFilterBuilder.flatMap(BloomFilterBuilder::build)));
     }
 
-    // Returns ColumnMetaData that offset is invalid
+    // Returns ColumnMetaData whose page offsets are relative to the start of the column chunk
     protected ColumnMetaData getColumnMetaData()
     {
         checkState(getDataStreamsCalled);
@@ -144,7 +177,10 @@ public abstract class PrimitiveColumnWriter
                 totalValues,
                 totalUnCompressedSize,
                 totalCompressedSize,
-                -1);
+                dictionaryPageSize);
+        if (dictionaryPageSize > 0) {
+            columnMetaData.setDictionary_page_offset(0);
+        }
         columnMetaData.setStatistics(ParquetMetadataConverter.toParquetStatistics(columnStatistics));
         return columnMetaData;
     }
@@ -179,6 +215,7 @@ public abstract class PrimitiveColumnWriter
             dictPage.add(pageData);
             totalCompressedSize += pageHeader.size() + compressedSize;
             totalUnCompressedSize += pageHeader.size() + uncompressedSize;
+            dictionaryPageSize = pageHeader.size() + compressedSize;
 
             primitiveValueWriter.resetDictionary();
         }
@@ -195,7 +232,14 @@ public abstract class PrimitiveColumnWriter
     @Override
     public long getRetainedBytes()
     {
-        return 0;
+        return bloomFilterBuilder.map(BloomFilterBuilder::getRetainedBytes).orElse(0L);
+    }
+
+    // Records the page that was just flushed in the column and offset indexes
+    protected void addPageToIndexes(Statistics<?> pageStatistics, long compressedPageSize)
+    {
+        columnIndexBuilder.add(pageStatistics);
+        offsetIndexBuilder.add(toIntExact(compressedPageSize), currentPageRowCount);
     }
 
     @Override
@@ -208,8 +252,12 @@ public abstract class PrimitiveColumnWriter
         totalCompressedSize = 0;
         totalUnCompressedSize = 0;
         totalValues = 0;
+        dictionaryPageSize = 0;
         encodings.clear();
         this.columnStatistics = Statistics.createStats(columnDescriptor.getPrimitiveType());
+        this.columnIndexBuilder = ColumnIndexBuilder.getBuilder(columnDescriptor.getPrimitiveType(), COLUMN_INDEX_TRUNCATE_LENGTH);
+        this.offsetIndexBuilder = OffsetIndexBuilder.getBuilder();
+        bloomFilterBuilder.ifPresent(BloomFilterBuilder::reset);
 
         getDataStreamsCalled = false;
     }
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.writer.valuewriter;
+
+import com.facebook.presto.parquet.writer.BloomFilterBuilder;
+import org.apache.parquet.bytes.BytesInput;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.page.DictionaryPage;
+import org.apache.parquet.column.values.ValuesWriter;
+import org.apache.parquet.io.api.Binary;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Forwards values to the wrapped writer and feeds their hashes to a {@link BloomFilterBuilder}.
+ */
+public class BloomFilterValuesWriter
+        extends ValuesWriter
+{
+    private final ValuesWriter delegate;
+    private final BloomFilterBuilder bloomFilterBuilder;
+
+    public BloomFilterValuesWriter(ValuesWriter delegate, BloomFilterBuilder bloomFilterBuilder)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.bloomFilterBuilder = requireNonNull(bloomFilterBuilder, "bloomFilterBuilder is null");
+    }
+
+    @Override
+    public void writeInteger(int value)
+    {
+        bloomFilterBuilder.addInteger(value);
+        delegate.writeInteger(value);
+    }
+
+    @Override
+    public void writeLong(long value)
+    {
+        bloomFilterBuilder.addLong(value);
+        delegate.writeLong(value);
+    }
+
+    @Override
+    public void writeFloat(float value)
+    {
+        bloomFilterBuilder.addFloat(value);
+        delegate.writeFloat(value);
+    }
+
+    @Override
+    public void writeDouble(double value)
+    {
+        bloomFilterBuilder.addDouble(value);
+        delegate.writeDouble(value);
+    }
+
+    @Override
+    public void writeBytes(Binary value)
+    {
+        bloomFilterBuilder.addBinary(value);
+        delegate.writeBytes(value);
+    }
+
+    @Override
+    public void writeBoolean(boolean value)
+    {
+        delegate.writeBoolean(value);
+    }
+
+    @Override
+    public long getBufferedSize()
+    {
+        return delegate.getBufferedSize();
+    }
+
+    @Override
+    public BytesInput getBytes()
+    {
+        return delegate.getBytes();
+    }
+
+    @Override
+    public Encoding getEncoding()
+    {
+        return delegate.getEncoding();
+    }
+
+    @Override
+    public void reset()
+    {
+        delegate.reset();
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+
+    @Override
+    public DictionaryPage toDictPageAndClose()
+    {
+        return delegate.toDictPageAndClose();
+    }
+
+    @Override
+    public void resetDictionary()
+    {
+        delegate.resetDictionary();
+    }
+
+    @Override
+    public long getAllocatedSize()
+    {
+        return delegate.getAllocatedSize();
+    }
+
+    @Override
+    public String memUsageString(String prefix)
+    {
+        return delegate.memUsageString(prefix);
+    }
+}
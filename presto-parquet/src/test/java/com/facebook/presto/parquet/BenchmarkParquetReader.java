@@ -24,6 +24,7 @@ import com.facebook.presto.common.type.VarcharType;
 import com.facebook.presto.parquet.cache.MetadataReader;
 import com.facebook.presto.parquet.reader.ParquetReader;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.io.ColumnIOConverter;
 import org.apache.parquet.io.MessageColumnIO;
@@ -35,6 +36,7 @@ import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -204,6 +206,13 @@ public class BenchmarkParquetReader
         return read(data);
     }
 
+    @Benchmark
+    public Object readSliceLowCardinalityWithNull(VarcharLowCardinalityWithNullBenchmarkData data)
+            throws Throwable
+    {
+        return read(data);
+    }
+
     @Benchmark
     public Object readListBooleanWithNull(ListBooleanWithNullBenchmarkData data)
             throws Throwable
@@ -289,7 +298,7 @@ public class BenchmarkParquetReader
             random = new Random(0);
             temporaryDirectory = createTempDir();
             file = new File(temporaryDirectory, randomUUID().toString());
-            ParquetTestUtils.writeParquetColumnHive(file, "column", getNullability(), getType(), generateValues().iterator());
+            ParquetTestUtils.writeParquetColumnHive(file, "column", getNullability(), getType(), generateValues().iterator(), isDictionaryEnabled());
         }
 
         @TearDown
@@ -309,7 +318,7 @@ public class BenchmarkParquetReader
 
             this.field = ColumnIOConverter.constructField(getType(), messageColumnIO.getChild(0)).get();
 
-            return new ParquetReader(messageColumnIO, parquetMetadata.getBlocks(), Optional.empty(), dataSource, newSimpleAggregatedMemoryContext(), new DataSize(16, MEGABYTE), enableBatchReader, enableVerification, null, null, false, Optional.empty());
+            return new ParquetReader(messageColumnIO, parquetMetadata.getBlocks(), Optional.empty(), dataSource, newSimpleAggregatedMemoryContext(), new DataSize(16, MEGABYTE), enableBatchReader, enableVerification, null, null, false, Optional.empty(), Optional.empty(), isDictionaryBlocksEnabled());
         }
 
         protected boolean getNullability()
@@ -317,6 +326,16 @@ public class BenchmarkParquetReader
             return true;
         }
 
+        protected boolean isDictionaryEnabled()
+        {
+            return false;
+        }
+
+        protected boolean isDictionaryBlocksEnabled()
+        {
+            return false;
+        }
+
         Field getField()
         {
             return field;
@@ -694,6 +713,49 @@ public class BenchmarkParquetReader
         }
     }
 
+    @State(Scope.Thread)
+    public static class VarcharLowCardinalityWithNullBenchmarkData
+            extends BenchmarkData
+    {
+        private static final List<String> COUNTRY_CODES = ImmutableList.of("US", "CA", "MX", "BR", "GB", "FR", "DE", "IN", "CN", "JP");
+
+        @Param({"false", "true"})
+        public boolean dictionaryBlocksEnabled;
+
+        @Override
+        protected List<?> generateValues()
+        {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < ROWS; ++i) {
+                if (random.nextInt(10) == 0) {
+                    values.add(null);
+                }
+                else {
+                    values.add(COUNTRY_CODES.get(random.nextInt(COUNTRY_CODES.size())));
+                }
+            }
+            return values;
+        }
+
+        @Override
+        protected Type getType()
+        {
+            return VarcharType.createVarcharType(400);
+        }
+
+        @Override
+        protected boolean isDictionaryEnabled()
+        {
+            return true;
+        }
+
+        @Override
+        protected boolean isDictionaryBlocksEnabled()
+        {
+            return dictionaryBlocksEnabled;
+        }
+    }
+
     @State(Scope.Thread)
     public static class StructBooleanWithNullBenchmarkData
             extends BenchmarkData
@@ -124,6 +124,12 @@ public class ParquetTestUtils
 
     static void writeParquetColumnHive(File file, String columnName, boolean nullable, Type type, Iterator<?> values)
             throws Exception
+    {
+        writeParquetColumnHive(file, columnName, nullable, type, values, false);
+    }
+
+    static void writeParquetColumnHive(File file, String columnName, boolean nullable, Type type, Iterator<?> values, boolean dictionaryEnabled)
+            throws Exception
     {
         JobConf jobConf = new JobConf();
 
@@ -134,7 +140,7 @@ public class ParquetTestUtils
         jobConf.setLong(ParquetOutputFormat.BLOCK_SIZE, new DataSize(256, MEGABYTE).toBytes());
         jobConf.setLong(ParquetOutputFormat.PAGE_SIZE, new DataSize(100, KILOBYTE).toBytes());
         jobConf.set(ParquetOutputFormat.COMPRESSION, "snappy");
-        jobConf.setBoolean(org.apache.parquet.hadoop.ParquetOutputFormat.ENABLE_DICTIONARY, false);
+        jobConf.setBoolean(org.apache.parquet.hadoop.ParquetOutputFormat.ENABLE_DICTIONARY, dictionaryEnabled);
 
         Properties properties = new Properties();
         properties.setProperty("columns", columnName);
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.batchreader;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.DictionaryBlock;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.parquet.Field;
+import com.facebook.presto.parquet.FileParquetDataSource;
+import com.facebook.presto.parquet.cache.MetadataReader;
+import com.facebook.presto.parquet.reader.ParquetReader;
+import com.facebook.presto.parquet.writer.ParquetWriter;
+import com.facebook.presto.parquet.writer.ParquetWriterOptions;
+import com.google.common.collect.ImmutableList;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOConverter;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.schema.MessageType;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.parquet.ParquetTypeUtils.getColumnIO;
+import static com.facebook.presto.parquet.writer.TestParquetWriter.createParquetWriter;
+import static com.google.common.io.Files.createTempDir;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.util.UUID.randomUUID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestBinaryFlatBatchReader
+{
+    private static final int ROW_COUNT = 20_000;
+
+    private File temporaryDirectory;
+
+    @BeforeClass
+    public void setUp()
+    {
+        temporaryDirectory = createTempDir();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        deleteRecursively(temporaryDirectory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testDictionaryBlocks()
+            throws Exception
+    {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            if (i % 7 == 0) {
+                values.add(null);
+            }
+            else if (i < ROW_COUNT / 2) {
+                values.add("code_" + (i % 5));
+            }
+            else {
+                // overflows the dictionary so that the rest of the column chunk is plain encoded
+                values.add("unique_value_" + i);
+            }
+        }
+        File parquetFile = writeVarcharColumn(values);
+
+        List<Block> dictionaryEncodedBlocks = assertReadValues(parquetFile, values, true);
+        assertTrue(dictionaryEncodedBlocks.size() > 1);
+        Block dictionary = ((DictionaryBlock) dictionaryEncodedBlocks.get(0)).getDictionary();
+        for (Block block : dictionaryEncodedBlocks) {
+            assertSame(((DictionaryBlock) block).getDictionary(), dictionary);
+            assertEquals(((DictionaryBlock) block).getDictionarySourceId(), ((DictionaryBlock) dictionaryEncodedBlocks.get(0)).getDictionarySourceId());
+        }
+        // five distinct values and the null entry
+        assertEquals(dictionary.getPositionCount(), 6);
+
+        assertTrue(assertReadValues(parquetFile, values, false).isEmpty());
+    }
+
+    private File writeVarcharColumn(List<String> values)
+            throws Exception
+    {
+        File parquetFile = new File(temporaryDirectory, randomUUID().toString());
+        List<Type> types = ImmutableList.of(VARCHAR);
+        ParquetWriterOptions parquetWriterOptions = ParquetWriterOptions.builder()
+                .setMaxPageSize(new DataSize(1, KILOBYTE))
+                .setMaxDictionaryPageSize(new DataSize(1, KILOBYTE))
+                .build();
+        try (ParquetWriter parquetWriter = createParquetWriter(parquetFile, types, ImmutableList.of("column"), parquetWriterOptions, CompressionCodecName.UNCOMPRESSED)) {
+            PageBuilder pageBuilder = new PageBuilder(types);
+            BlockBuilder blockBuilder = pageBuilder.getBlockBuilder(0);
+            for (String value : values) {
+                if (value == null) {
+                    blockBuilder.appendNull();
+                }
+                else {
+                    VARCHAR.writeSlice(blockBuilder, utf8Slice(value));
+                }
+                pageBuilder.declarePosition();
+            }
+            parquetWriter.write(pageBuilder.build());
+        }
+        return parquetFile;
+    }
+
+    private static List<Block> assertReadValues(File parquetFile, List<String> expectedValues, boolean dictionaryBlocksEnabled)
+            throws Exception
+    {
+        FileParquetDataSource dataSource = new FileParquetDataSource(parquetFile);
+        ParquetMetadata parquetMetadata = MetadataReader.readFooter(dataSource, parquetFile.length(), Optional.empty(), false).getParquetMetadata();
+        MessageType schema = parquetMetadata.getFileMetaData().getSchema();
+        MessageColumnIO messageColumnIO = getColumnIO(schema, schema);
+        Field field = ColumnIOConverter.constructField(VARCHAR, messageColumnIO.getChild(0)).get();
+
+        List<Block> dictionaryEncodedBlocks = new ArrayList<>();
+        int position = 0;
+        try (ParquetReader parquetReader = new ParquetReader(
+                messageColumnIO,
+                parquetMetadata.getBlocks(),
+                Optional.empty(),
+                dataSource,
+                newSimpleAggregatedMemoryContext(),
+                new DataSize(16, MEGABYTE),
+                true,
+                false,
+                null,
+                null,
+                false,
+                Optional.empty(),
+                Optional.empty(),
+                dictionaryBlocksEnabled)) {
+            for (int batchSize = parquetReader.nextBatch(); batchSize > 0; batchSize = parquetReader.nextBatch()) {
+                Block block = parquetReader.readBlock(field);
+                assertEquals(block.getPositionCount(), batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    String expected = expectedValues.get(position++);
+                    if (expected == null) {
+                        assertTrue(block.isNull(i));
+                    }
+                    else {
+                        assertEquals(VARCHAR.getSlice(block, i).toStringUtf8(), expected);
+                    }
+                }
+                if (block instanceof DictionaryBlock) {
+                    dictionaryEncodedBlocks.add(block);
+                }
+            }
+        }
+        assertEquals(position, expectedValues.size());
+        return dictionaryEncodedBlocks;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.predicate;
+
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueSet;
+import com.facebook.presto.parquet.AbstractParquetDataSource;
+import com.facebook.presto.parquet.ParquetDataSourceId;
+import com.facebook.presto.parquet.RichColumnDescriptor;
+import com.facebook.presto.parquet.cache.BloomFilterId;
+import com.facebook.presto.parquet.cache.CachingParquetMetadataSource;
+import com.facebook.presto.parquet.cache.MetadataReader;
+import com.facebook.presto.parquet.cache.ParquetFileMetadata;
+import com.facebook.presto.parquet.reader.ParquetBloomFilterStore;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.slice.Slice;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.column.values.bloomfilter.BlockSplitBloomFilter;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.format.BloomFilterAlgorithm;
+import org.apache.parquet.format.BloomFilterCompression;
+import org.apache.parquet.format.BloomFilterHash;
+import org.apache.parquet.format.BloomFilterHeader;
+import org.apache.parquet.format.SplitBlockAlgorithm;
+import org.apache.parquet.format.Uncompressed;
+import org.apache.parquet.format.Util;
+import org.apache.parquet.format.XxHash;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.internal.column.columnindex.ColumnIndex;
+import org.apache.parquet.internal.column.columnindex.OffsetIndex;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.PrimitiveType;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static com.facebook.presto.common.predicate.Range.greaterThan;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.parquet.predicate.PredicateUtils.predicateMatches;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.apache.parquet.column.Encoding.PLAIN;
+import static org.apache.parquet.hadoop.metadata.CompressionCodecName.UNCOMPRESSED;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+import static org.apache.parquet.schema.Type.Repetition.OPTIONAL;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestBloomFilterPredicate
+{
+    private static final ParquetDataSourceId ID = new ParquetDataSourceId("testFile");
+    private static final int BLOOM_FILTER_OFFSET = 100;
+
+    @Test
+    public void testEquality()
+            throws IOException
+    {
+        TestingRowGroup rowGroup = bigintRowGroup(10, 20, 30);
+        assertTrue(rowGroup.matches(Domain.singleValue(BIGINT, 20L)));
+        assertFalse(rowGroup.matches(Domain.singleValue(BIGINT, 25L)));
+    }
+
+    @Test
+    public void testIn()
+            throws IOException
+    {
+        TestingRowGroup rowGroup = bigintRowGroup(10, 20, 30);
+        assertTrue(rowGroup.matches(Domain.multipleValues(BIGINT, ImmutableList.of(15L, 30L))));
+        assertFalse(rowGroup.matches(Domain.multipleValues(BIGINT, ImmutableList.of(15L, 25L, 35L))));
+    }
+
+    @Test
+    public void testUnsupportedDomains()
+            throws IOException
+    {
+        TestingRowGroup rowGroup = bigintRowGroup(10, 20, 30);
+        // nulls are not recorded in the Bloom filter
+        assertTrue(rowGroup.matches(Domain.create(ValueSet.of(BIGINT, 25L), true)));
+        assertTrue(rowGroup.matches(Domain.onlyNull(BIGINT)));
+        // ranges cannot be looked up
+        assertTrue(rowGroup.matches(Domain.create(ValueSet.ofRanges(greaterThan(BIGINT, 100L)), false)));
+    }
+
+    @Test
+    public void testVarchar()
+            throws IOException
+    {
+        BlockSplitBloomFilter bloomFilter = new BlockSplitBloomFilter(1024);
+        for (String value : ImmutableList.of("apple", "banana", "cherry")) {
+            bloomFilter.insertHash(bloomFilter.hash(Binary.fromString(value)));
+        }
+        TestingRowGroup rowGroup = new TestingRowGroup(new PrimitiveType(OPTIONAL, BINARY, "column"), bloomFilter);
+        assertTrue(rowGroup.matches(Domain.singleValue(VARCHAR, utf8Slice("banana"))));
+        assertFalse(rowGroup.matches(Domain.singleValue(VARCHAR, utf8Slice("durian"))));
+        assertFalse(rowGroup.matches(Domain.multipleValues(VARCHAR, ImmutableList.<Slice>of(utf8Slice("durian"), utf8Slice("elderberry")))));
+    }
+
+    @Test
+    public void testMissingBloomFilter()
+            throws IOException
+    {
+        TestingRowGroup rowGroup = bigintRowGroup(10, 20, 30);
+        rowGroup.columnChunk.setBloomFilterOffset(-1);
+        assertTrue(rowGroup.matches(Domain.singleValue(BIGINT, 25L)));
+        assertEquals(rowGroup.dataSource.getReadBytes(), 0);
+    }
+
+    @Test
+    public void testRowGroupsSkipped()
+            throws IOException
+    {
+        TestingRowGroup rowGroup = bigintRowGroup(10, 20, 30);
+        ParquetBloomFilterStore bloomFilterStore = new ParquetBloomFilterStore(new MetadataReader(), rowGroup.dataSource, false, 0);
+        RichColumnDescriptor column = rowGroup.column;
+        TupleDomain<ColumnDescriptor> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.of(column, Domain.singleValue(BIGINT, 25L)));
+        Predicate predicate = new TupleDomainParquetPredicate(tupleDomain, ImmutableList.of(column));
+
+        assertFalse(predicateMatches(
+                predicate,
+                rowGroup.block,
+                rowGroup.dataSource,
+                ImmutableMap.of(ImmutableList.copyOf(column.getPath()), column),
+                tupleDomain,
+                Optional.empty(),
+                false,
+                Optional.empty(),
+                Optional.of(bloomFilterStore)));
+        assertEquals(bloomFilterStore.getRowGroupsSkipped(), 1);
+    }
+
+    @Test
+    public void testCaching()
+            throws IOException
+    {
+        TestingRowGroup rowGroup = bigintRowGroup(10, 20, 30);
+        Cache<ParquetDataSourceId, ParquetFileMetadata> metadataCache = CacheBuilder.newBuilder().build();
+        Cache<BloomFilterId, BloomFilter> bloomFilterCache = CacheBuilder.newBuilder().build();
+        CachingParquetMetadataSource metadataSource = new CachingParquetMetadataSource(metadataCache, Optional.of(bloomFilterCache), new MetadataReader());
+
+        Optional<BloomFilter> bloomFilter = metadataSource.getBloomFilter(rowGroup.dataSource, rowGroup.columnChunk, true, 1);
+        assertTrue(bloomFilter.isPresent());
+        long readBytes = rowGroup.dataSource.getReadBytes();
+        assertTrue(readBytes > 0);
+
+        assertSame(metadataSource.getBloomFilter(rowGroup.dataSource, rowGroup.columnChunk, true, 1).get(), bloomFilter.get());
+        assertEquals(rowGroup.dataSource.getReadBytes(), readBytes);
+
+        // a new version of the file, or a source that is not cacheable, is read again
+        metadataSource.getBloomFilter(rowGroup.dataSource, rowGroup.columnChunk, true, 2);
+        assertEquals(rowGroup.dataSource.getReadBytes(), 2 * readBytes);
+        metadataSource.getBloomFilter(rowGroup.dataSource, rowGroup.columnChunk, false, 2);
+        assertEquals(rowGroup.dataSource.getReadBytes(), 3 * readBytes);
+        assertEquals(bloomFilterCache.size(), 2);
+    }
+
+    private static TestingRowGroup bigintRowGroup(long... values)
+            throws IOException
+    {
+        BlockSplitBloomFilter bloomFilter = new BlockSplitBloomFilter(1024);
+        for (long value : values) {
+            bloomFilter.insertHash(bloomFilter.hash(value));
+        }
+        return new TestingRowGroup(new PrimitiveType(OPTIONAL, INT64, "column"), bloomFilter);
+    }
+
+    private static class TestingRowGroup
+    {
+        private final RichColumnDescriptor column;
+        private final ColumnChunkMetaData columnChunk;
+        private final BlockMetaData block;
+        private final ByteArrayParquetDataSource dataSource;
+
+        private TestingRowGroup(PrimitiveType type, BlockSplitBloomFilter bloomFilter)
+                throws IOException
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            output.write(new byte[BLOOM_FILTER_OFFSET]);
+            BloomFilterHeader header = new BloomFilterHeader(
+                    bloomFilter.getBitsetSize(),
+                    BloomFilterAlgorithm.BLOCK(new SplitBlockAlgorithm()),
+                    BloomFilterHash.XXHASH(new XxHash()),
+                    BloomFilterCompression.UNCOMPRESSED(new Uncompressed()));
+            Util.writeBloomFilterHeader(header, output);
+            bloomFilter.writeTo(output);
+            // the footer of the file follows the Bloom filters
+            output.write(new byte[64]);
+
+            this.column = new RichColumnDescriptor(new ColumnDescriptor(new String[] {"column"}, type, 0, 1), type);
+            this.columnChunk = ColumnChunkMetaData.get(
+                    ColumnPath.get("column"),
+                    type,
+                    UNCOMPRESSED,
+                    null,
+                    ImmutableSet.of(PLAIN),
+                    Statistics.createStats(type),
+                    0,
+                    0,
+                    3,
+                    1,
+                    1);
+            columnChunk.setBloomFilterOffset(BLOOM_FILTER_OFFSET);
+            this.block = new BlockMetaData();
+            block.setRowCount(3);
+            block.addColumn(columnChunk);
+            this.dataSource = new ByteArrayParquetDataSource(output.toByteArray());
+        }
+
+        private boolean matches(Domain domain)
+        {
+            TupleDomainParquetPredicate predicate = new TupleDomainParquetPredicate(TupleDomain.withColumnDomains(ImmutableMap.of(column, domain)), ImmutableList.of(column));
+            return predicate.matches(block, new ParquetBloomFilterStore(new MetadataReader(), dataSource, false, 0));
+        }
+    }
+
+    private static class ByteArrayParquetDataSource
+            extends AbstractParquetDataSource
+    {
+        private final byte[] data;
+
+        private ByteArrayParquetDataSource(byte[] data)
+        {
+            super(ID);
+            this.data = data;
+        }
+
+        @Override
+        protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+        {
+            System.arraycopy(data, (int) position, buffer, bufferOffset, bufferLength);
+        }
+
+        @Override
+        public Optional<ColumnIndex> readColumnIndex(ColumnChunkMetaData column)
+        {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<OffsetIndex> readOffsetIndex(ColumnChunkMetaData column)
+        {
+            return Optional.empty();
+        }
+    }
+}
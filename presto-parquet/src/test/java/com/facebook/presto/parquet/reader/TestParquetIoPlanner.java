@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.reader;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.parquet.Field;
+import com.facebook.presto.parquet.FileParquetDataSource;
+import com.facebook.presto.parquet.cache.MetadataReader;
+import com.facebook.presto.parquet.reader.ParquetIoPlanner.ScheduledReads;
+import com.facebook.presto.parquet.writer.ParquetWriter;
+import com.facebook.presto.parquet.writer.ParquetWriterOptions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOConverter;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.schema.MessageType;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.parquet.ParquetTypeUtils.getColumnIO;
+import static com.facebook.presto.parquet.reader.ParquetIoPlanner.mergeAdjacentDiskRanges;
+import static com.facebook.presto.parquet.writer.TestParquetWriter.createParquetWriter;
+import static com.google.common.io.Files.createTempDir;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestParquetIoPlanner
+{
+    private static final int ROW_COUNT = 10_000;
+
+    private File temporaryDirectory;
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        temporaryDirectory = createTempDir();
+        executor = newFixedThreadPool(2, daemonThreadsNamed("test-parquet-io-%s"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        executor.shutdownNow();
+        deleteRecursively(temporaryDirectory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testMergeAdjacentDiskRanges()
+    {
+        DataSize maxMergeDistance = DataSize.succinctBytes(10);
+        DataSize maxReadSize = DataSize.succinctBytes(100);
+
+        // within the merge distance, out of order
+        assertEquals(
+                mergeAdjacentDiskRanges(ImmutableList.of(new DiskRange(120, 10), new DiskRange(100, 15)), maxMergeDistance, maxReadSize),
+                ImmutableList.of(new DiskRange(100, 30)));
+        // gap larger than the merge distance
+        assertEquals(
+                mergeAdjacentDiskRanges(ImmutableList.of(new DiskRange(0, 10), new DiskRange(21, 10)), maxMergeDistance, maxReadSize),
+                ImmutableList.of(new DiskRange(0, 10), new DiskRange(21, 10)));
+        // merged read would exceed the maximum read size
+        assertEquals(
+                mergeAdjacentDiskRanges(ImmutableList.of(new DiskRange(0, 60), new DiskRange(60, 60), new DiskRange(120, 10)), maxMergeDistance, maxReadSize),
+                ImmutableList.of(new DiskRange(0, 60), new DiskRange(60, 70)));
+    }
+
+    @Test
+    public void testCoalescedRowGroupReads()
+            throws Exception
+    {
+        File parquetFile = writeParquetFile();
+        ParquetIoStats stats = new ParquetIoStats();
+        ParquetMetadata parquetMetadata = readColumns(parquetFile, stats, ImmutableSet.of(ColumnPath.get("col_1"), ColumnPath.get("col_2"), ColumnPath.get("col_3")));
+
+        // the adjacent chunks of each row group are fetched with a single read, including the unused middle column
+        assertEquals(stats.getReads(), parquetMetadata.getBlocks().stream().filter(block -> block.getRowCount() > 0).count());
+        assertTrue(stats.getUsedBytes() > 0);
+        assertTrue(stats.getReadAmplification() > 1.0);
+        assertEquals(stats.getInFlightBytes(), 0);
+    }
+
+    @Test
+    public void testOnlyPrefetchedColumnsAreRead()
+            throws Exception
+    {
+        File parquetFile = writeParquetFile();
+        ParquetIoStats stats = new ParquetIoStats();
+        ParquetMetadata parquetMetadata = readColumns(parquetFile, stats, ImmutableSet.of(ColumnPath.get("col_1")));
+
+        // the chunks of the other columns are read on demand
+        assertEquals(stats.getReads(), parquetMetadata.getBlocks().stream().filter(block -> block.getRowCount() > 0).count());
+        assertEquals(stats.getReadBytes(), stats.getUsedBytes());
+        assertEquals(stats.getInFlightBytes(), 0);
+    }
+
+    @Test
+    public void testReadRunsInlineWhenNotStarted()
+            throws Exception
+    {
+        File parquetFile = writeParquetFile();
+        // an executor that is too busy to start the reads
+        List<Runnable> queuedReads = new ArrayList<>();
+        ParquetIoStats stats = new ParquetIoStats();
+        ParquetIoPlanner ioPlanner = new ParquetIoPlanner(queuedReads::add, DataSize.succinctBytes(1024), new DataSize(1, MEGABYTE), stats, ImmutableSet.of());
+
+        try (FileParquetDataSource dataSource = new FileParquetDataSource(parquetFile)) {
+            DiskRange chunk = new DiskRange(4, 100);
+            ScheduledReads reads = ioPlanner.schedule(dataSource, ImmutableList.of(chunk));
+            assertEquals(queuedReads.size(), 1);
+
+            byte[] expected = new byte[chunk.getLength()];
+            dataSource.readFully(chunk.getOffset(), expected);
+            byte[] actual = new byte[chunk.getLength()];
+            try (InputStream inputStream = reads.getInputStream(chunk).get()) {
+                assertEquals(inputStream.read(actual), actual.length);
+            }
+            assertEquals(actual, expected);
+            assertEquals(stats.getInFlightBytes(), 0);
+
+            // the read is not run again once the executor gets to it
+            queuedReads.forEach(Runnable::run);
+            assertEquals(stats.getReads(), 1);
+        }
+    }
+
+    private File writeParquetFile()
+            throws Exception
+    {
+        File parquetFile = new File(temporaryDirectory, randomUUID().toString());
+        List<Type> types = ImmutableList.of(BIGINT, BIGINT, BIGINT);
+        List<String> names = ImmutableList.of("col_1", "col_2", "col_3");
+        ParquetWriterOptions parquetWriterOptions = ParquetWriterOptions.builder()
+                .setMaxPageSize(DataSize.succinctBytes(1000))
+                .setMaxBlockSize(DataSize.succinctBytes(15000))
+                .build();
+        try (ParquetWriter parquetWriter = createParquetWriter(parquetFile, types, names, parquetWriterOptions, CompressionCodecName.UNCOMPRESSED)) {
+            PageBuilder pageBuilder = new PageBuilder(types);
+            for (int row = 0; row < ROW_COUNT; row++) {
+                for (int channel = 0; channel < types.size(); channel++) {
+                    BIGINT.writeLong(pageBuilder.getBlockBuilder(channel), row * (channel + 1L));
+                }
+                pageBuilder.declarePosition();
+                if (pageBuilder.getPositionCount() == 1000) {
+                    parquetWriter.write(pageBuilder.build());
+                    pageBuilder.reset();
+                }
+            }
+        }
+        return parquetFile;
+    }
+
+    private ParquetMetadata readColumns(File parquetFile, ParquetIoStats stats, Set<ColumnPath> prefetchedColumns)
+            throws Exception
+    {
+        FileParquetDataSource dataSource = new FileParquetDataSource(parquetFile);
+        ParquetMetadata parquetMetadata = MetadataReader.readFooter(dataSource, parquetFile.length(), Optional.empty(), false).getParquetMetadata();
+        assertTrue(parquetMetadata.getBlocks().size() > 2);
+        MessageType schema = parquetMetadata.getFileMetaData().getSchema();
+        MessageColumnIO messageColumnIO = getColumnIO(schema, schema);
+
+        ParquetIoPlanner ioPlanner = new ParquetIoPlanner(executor, DataSize.succinctBytes(1024), new DataSize(1, MEGABYTE), stats, prefetchedColumns);
+        ParquetReader parquetReader = new ParquetReader(
+                messageColumnIO,
+                parquetMetadata.getBlocks(),
+                Optional.empty(),
+                dataSource,
+                newSimpleAggregatedMemoryContext(),
+                new DataSize(16, MEGABYTE),
+                false,
+                false,
+                null,
+                null,
+                false,
+                Optional.empty(),
+                Optional.of(ioPlanner),
+                false);
+
+        // only decode two of the three columns
+        Field first = ColumnIOConverter.constructField(BIGINT, messageColumnIO.getChild(0)).get();
+        Field third = ColumnIOConverter.constructField(BIGINT, messageColumnIO.getChild(2)).get();
+        long expectedRow = 0;
+        for (int batchSize = parquetReader.nextBatch(); batchSize > 0; batchSize = parquetReader.nextBatch()) {
+            Block firstBlock = parquetReader.readBlock(first);
+            Block thirdBlock = parquetReader.readBlock(third);
+            for (int position = 0; position < batchSize; position++) {
+                assertEquals(BIGINT.getLong(firstBlock, position), expectedRow);
+                assertEquals(BIGINT.getLong(thirdBlock, position), expectedRow * 3);
+                expectedRow++;
+            }
+        }
+        parquetReader.close();
+        assertEquals(expectedRow, ROW_COUNT);
+        return parquetMetadata;
+    }
+}
@@ -26,10 +26,19 @@ import com.facebook.presto.parquet.FileParquetDataSource;
 import com.facebook.presto.parquet.cache.MetadataReader;
 import com.facebook.presto.parquet.reader.ParquetReader;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.slice.Slices;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.internal.column.columnindex.BoundaryOrder;
+import org.apache.parquet.internal.column.columnindex.ColumnIndex;
+import org.apache.parquet.internal.column.columnindex.OffsetIndex;
 import org.apache.parquet.io.ColumnIOConverter;
 import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.api.Binary;
 import org.apache.parquet.schema.LogicalTypeAnnotation;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.PrimitiveType;
@@ -39,6 +48,7 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.util.List;
 import java.util.Optional;
@@ -59,6 +69,7 @@ import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.parquet.ParquetTypeUtils.getColumnIO;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.io.Files.createTempDir;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
@@ -178,6 +189,152 @@ public class TestParquetWriter
         }
     }
 
+    @Test
+    public void testWritePageIndexes()
+            throws Exception
+    {
+        temporaryDirectory = createTempDir();
+        parquetFile = new File(temporaryDirectory, randomUUID().toString());
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR);
+        List<String> names = ImmutableList.of("col_1", "col_2");
+        ParquetWriterOptions parquetWriterOptions = ParquetWriterOptions.builder()
+                .setMaxPageSize(DataSize.succinctBytes(1000))
+                .setMaxBlockSize(DataSize.succinctBytes(15000))
+                .setMaxDictionaryPageSize(DataSize.succinctBytes(1000))
+                .build();
+        int pageRowCount = 1000;
+        int pageCount = 10;
+        try (ParquetWriter parquetWriter = createParquetWriter(parquetFile, types, names, parquetWriterOptions, CompressionCodecName.UNCOMPRESSED)) {
+            for (int pageIdx = 0; pageIdx < pageCount; pageIdx++) {
+                PageBuilder pageBuilder = new PageBuilder(pageRowCount, types);
+                for (int rowIdx = 0; rowIdx < pageRowCount; rowIdx++) {
+                    BIGINT.writeLong(pageBuilder.getBlockBuilder(0), pageIdx * pageRowCount + rowIdx);
+                    VARCHAR.writeString(pageBuilder.getBlockBuilder(1), "value_" + (rowIdx % 10));
+                    pageBuilder.declarePosition();
+                }
+                parquetWriter.write(pageBuilder.build());
+            }
+        }
+
+        FileParquetDataSource dataSource = new FileParquetDataSource(parquetFile);
+        ParquetMetadata parquetMetadata = MetadataReader.readFooter(dataSource, parquetFile.length(), Optional.empty(), false).getParquetMetadata();
+        assertTrue(parquetMetadata.getBlocks().size() > 1);
+        long expectedFirstValue = 0;
+        for (BlockMetaData block : parquetMetadata.getBlocks()) {
+            if (block.getRowCount() == 0) {
+                // the writer may end the file with an empty row group, which has no pages to index
+                continue;
+            }
+            for (ColumnChunkMetaData column : block.getColumns()) {
+                ColumnIndex columnIndex = dataSource.readColumnIndex(column).get();
+                OffsetIndex offsetIndex = dataSource.readOffsetIndex(column).get();
+                assertEquals(columnIndex.getMinValues().size(), offsetIndex.getPageCount());
+                assertEquals(offsetIndex.getOffset(0), column.getFirstDataPageOffset());
+                assertEquals(offsetIndex.getFirstRowIndex(0), 0);
+                for (int page = 1; page < offsetIndex.getPageCount(); page++) {
+                    assertEquals(offsetIndex.getOffset(page), offsetIndex.getOffset(page - 1) + offsetIndex.getCompressedPageSize(page - 1));
+                    assertTrue(offsetIndex.getFirstRowIndex(page) > offsetIndex.getFirstRowIndex(page - 1));
+                }
+                assertTrue(offsetIndex.getFirstRowIndex(offsetIndex.getPageCount() - 1) < block.getRowCount());
+            }
+
+            ColumnIndex bigintIndex = dataSource.readColumnIndex(block.getColumns().get(0)).get();
+            assertEquals(bigintIndex.getBoundaryOrder(), BoundaryOrder.ASCENDING);
+            assertEquals(bigintIndex.getMinValues().get(0).order(ByteOrder.LITTLE_ENDIAN).getLong(0), expectedFirstValue);
+            expectedFirstValue += block.getRowCount();
+        }
+        assertEquals(expectedFirstValue, pageRowCount * pageCount);
+
+        MessageType schema = parquetMetadata.getFileMetaData().getSchema();
+        MessageColumnIO messageColumnIO = getColumnIO(schema, schema);
+        Field field = ColumnIOConverter.constructField(BIGINT, messageColumnIO.getChild(0)).get();
+        ParquetReader parquetReader = new ParquetReader(messageColumnIO, parquetMetadata.getBlocks(), Optional.empty(), dataSource, newSimpleAggregatedMemoryContext(), new DataSize(16, MEGABYTE), false, false, null, null, false, Optional.empty());
+        long expectedValue = 0;
+        for (int batchCount = parquetReader.nextBatch(); batchCount > 0; batchCount = parquetReader.nextBatch()) {
+            Block block = parquetReader.readBlock(field);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                assertEquals(BIGINT.getLong(block, position), expectedValue++);
+            }
+        }
+        assertEquals(expectedValue, pageRowCount * pageCount);
+        parquetReader.close();
+    }
+
+    @Test
+    public void testWriteBloomFilters()
+            throws Exception
+    {
+        temporaryDirectory = createTempDir();
+        parquetFile = new File(temporaryDirectory, randomUUID().toString());
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR, BIGINT);
+        List<String> names = ImmutableList.of("col_1", "col_2", "col_3");
+        ParquetWriterOptions parquetWriterOptions = ParquetWriterOptions.builder()
+                .setBloomFilterColumns(ImmutableSet.of("col_1", "col_2"))
+                .build();
+        int rowCount = 1000;
+        try (ParquetWriter parquetWriter = createParquetWriter(parquetFile, types, names, parquetWriterOptions, CompressionCodecName.SNAPPY)) {
+            PageBuilder pageBuilder = new PageBuilder(rowCount, types);
+            for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(0), rowIdx * 2L);
+                VARCHAR.writeString(pageBuilder.getBlockBuilder(1), "value_" + rowIdx);
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(2), rowIdx);
+                pageBuilder.declarePosition();
+            }
+            parquetWriter.write(pageBuilder.build());
+        }
+
+        FileParquetDataSource dataSource = new FileParquetDataSource(parquetFile);
+        ParquetMetadata parquetMetadata = MetadataReader.readFooter(dataSource, parquetFile.length(), Optional.empty(), false).getParquetMetadata();
+        BlockMetaData block = getOnlyElement(parquetMetadata.getBlocks());
+
+        BloomFilter bigintFilter = MetadataReader.readBloomFilter(dataSource, block.getColumns().get(0)).get();
+        BloomFilter varcharFilter = MetadataReader.readBloomFilter(dataSource, block.getColumns().get(1)).get();
+        int falsePositives = 0;
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+            assertTrue(bigintFilter.findHash(bigintFilter.hash(rowIdx * 2L)));
+            assertTrue(varcharFilter.findHash(varcharFilter.hash(Binary.fromConstantByteArray(Slices.utf8Slice("value_" + rowIdx).getBytes()))));
+            if (bigintFilter.findHash(bigintFilter.hash(rowIdx * 2L + 1))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < rowCount / 10, "too many false positives: " + falsePositives);
+        assertFalse(MetadataReader.readBloomFilter(dataSource, block.getColumns().get(2)).isPresent());
+    }
+
+    @Test
+    public void testRetainedBytesIncludeBufferedIndexes()
+            throws Exception
+    {
+        temporaryDirectory = createTempDir();
+        List<Type> types = ImmutableList.of(BIGINT);
+        List<String> names = ImmutableList.of("col_1");
+        ParquetWriterOptions.Builder parquetWriterOptions = ParquetWriterOptions.builder()
+                .setMaxBlockSize(DataSize.succinctBytes(15000));
+        long retainedBytes = writeRowGroupsAndGetRetainedBytes(types, names, parquetWriterOptions.build());
+        long retainedBytesWithBloomFilters = writeRowGroupsAndGetRetainedBytes(types, names, parquetWriterOptions.setBloomFilterColumns(ImmutableSet.of("col_1")).build());
+
+        // the Bloom filters of the flushed row groups are held until the footer is written
+        assertTrue(retainedBytesWithBloomFilters - retainedBytes >= 4 * 1024, "Bloom filters not included in retained bytes: " + (retainedBytesWithBloomFilters - retainedBytes));
+    }
+
+    private long writeRowGroupsAndGetRetainedBytes(List<Type> types, List<String> names, ParquetWriterOptions parquetWriterOptions)
+            throws Exception
+    {
+        parquetFile = new File(temporaryDirectory, randomUUID().toString());
+        int pageRowCount = 1000;
+        try (ParquetWriter parquetWriter = createParquetWriter(parquetFile, types, names, parquetWriterOptions, CompressionCodecName.UNCOMPRESSED)) {
+            for (int pageIdx = 0; pageIdx < 10; pageIdx++) {
+                PageBuilder pageBuilder = new PageBuilder(pageRowCount, types);
+                for (int rowIdx = 0; rowIdx < pageRowCount; rowIdx++) {
+                    BIGINT.writeLong(pageBuilder.getBlockBuilder(0), pageIdx * pageRowCount + rowIdx);
+                    pageBuilder.declarePosition();
+                }
+                parquetWriter.write(pageBuilder.build());
+            }
+            return parquetWriter.getRetainedBytes();
+        }
+    }
+
     @DataProvider(name = "testMetadataCreation")
     public static Object[][] types()
     {
@@ -14,6 +14,8 @@
 package com.facebook.presto.spark.node;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.execution.DynamicFilterSummary;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
@@ -30,6 +32,7 @@ import com.facebook.presto.sql.planner.PlanFragment;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class PrestoSparkTaskManager
@@ -71,6 +74,24 @@ public class PrestoSparkTaskManager
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public DynamicFilterSummary getDynamicFilterSummary(TaskId taskId)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ListenableFuture<DynamicFilterSummary> getDynamicFilterSummary(TaskId taskId, long callersCurrentVersion)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addRemoteDynamicFilters(TaskId taskId, Map<String, Domain> domains)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments)
     {
@@ -16,12 +16,16 @@ package com.facebook.presto.spi;
 import com.facebook.drift.annotations.ThriftConstructor;
 import com.facebook.drift.annotations.ThriftField;
 import com.facebook.drift.annotations.ThriftStruct;
+import com.facebook.presto.common.predicate.BlockedBloomFilter;
 import com.facebook.presto.common.predicate.TupleDomain;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.Objects.requireNonNull;
 
 // TODO: Use builder pattern for SplitContext if we are to add optional field
@@ -33,23 +37,31 @@ public class SplitContext
     private final boolean cacheable;
     // For local execution only; no need for serialization.
     private final Optional<TupleDomain<ColumnHandle>> dynamicFilterPredicate;
+    // For local execution only; Bloom filters over build-side values of joins, applied on top of dynamicFilterPredicate.
+    private final Map<ColumnHandle, BlockedBloomFilter> dynamicFilterBloomFilters;
 
     @JsonCreator
     @ThriftConstructor
     public SplitContext(@JsonProperty boolean cacheable)
     {
-        this(cacheable, Optional.empty());
+        this(cacheable, Optional.empty(), emptyMap());
     }
 
     public SplitContext(boolean cacheable, TupleDomain<ColumnHandle> dynamicFilterPredicate)
     {
-        this(cacheable, Optional.of(requireNonNull(dynamicFilterPredicate, "dynamicFilterPredicate is null")));
+        this(cacheable, dynamicFilterPredicate, emptyMap());
     }
 
-    private SplitContext(boolean cacheable, Optional<TupleDomain<ColumnHandle>> dynamicFilterPredicate)
+    public SplitContext(boolean cacheable, TupleDomain<ColumnHandle> dynamicFilterPredicate, Map<ColumnHandle, BlockedBloomFilter> dynamicFilterBloomFilters)
+    {
+        this(cacheable, Optional.of(requireNonNull(dynamicFilterPredicate, "dynamicFilterPredicate is null")), dynamicFilterBloomFilters);
+    }
+
+    private SplitContext(boolean cacheable, Optional<TupleDomain<ColumnHandle>> dynamicFilterPredicate, Map<ColumnHandle, BlockedBloomFilter> dynamicFilterBloomFilters)
     {
         this.cacheable = cacheable;
         this.dynamicFilterPredicate = dynamicFilterPredicate;
+        this.dynamicFilterBloomFilters = unmodifiableMap(requireNonNull(dynamicFilterBloomFilters, "dynamicFilterBloomFilters is null"));
     }
 
     @JsonProperty
@@ -63,4 +75,9 @@ public class SplitContext
     {
         return dynamicFilterPredicate;
     }
+
+    public Map<ColumnHandle, BlockedBloomFilter> getDynamicFilterBloomFilters()
+    {
+        return dynamicFilterBloomFilters;
+    }
 }
@@ -13,11 +13,15 @@
  */
 package com.facebook.presto.spi.connector;
 
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplitSource;
 import com.facebook.presto.spi.ConnectorTableLayoutHandle;
 import com.facebook.presto.spi.WarningCollector;
 
+import java.util.function.Supplier;
+
 import static java.util.Objects.requireNonNull;
 
 public interface ConnectorSplitManager
@@ -40,6 +44,7 @@ public interface ConnectorSplitManager
         private final SplitSchedulingStrategy splitSchedulingStrategy;
         private final boolean schedulerUsesHostAddresses;
         private final WarningCollector warningCollector;
+        private final Supplier<TupleDomain<ColumnHandle>> dynamicFilter;
 
         /**
          * @param splitSchedulingStrategy the method by which splits are scheduled
@@ -50,10 +55,24 @@ public interface ConnectorSplitManager
          * need to provide host addresses.
          */
         public SplitSchedulingContext(SplitSchedulingStrategy splitSchedulingStrategy, boolean schedulerUsesHostAddresses, WarningCollector warningCollector)
+        {
+            this(splitSchedulingStrategy, schedulerUsesHostAddresses, warningCollector, TupleDomain::all);
+        }
+
+        /**
+         * @param dynamicFilter the predicate collected at runtime from the build sides of joins
+         * with the table, which may become narrower while splits are enumerated
+         */
+        public SplitSchedulingContext(
+                SplitSchedulingStrategy splitSchedulingStrategy,
+                boolean schedulerUsesHostAddresses,
+                WarningCollector warningCollector,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
         {
             this.splitSchedulingStrategy = requireNonNull(splitSchedulingStrategy, "splitSchedulingStrategy is null");
             this.schedulerUsesHostAddresses = schedulerUsesHostAddresses;
             this.warningCollector = requireNonNull(warningCollector, "warningCollector is null ");
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
         }
 
         public SplitSchedulingStrategy getSplitSchedulingStrategy()
@@ -70,5 +89,13 @@ public interface ConnectorSplitManager
         {
             return warningCollector;
         }
+
+        /**
+         * Returns the dynamic filter collected so far. Splits that cannot satisfy it may be skipped.
+         */
+        public TupleDomain<ColumnHandle> getDynamicFilter()
+        {
+            return dynamicFilter.get();
+        }
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.tests;
+
+import com.facebook.presto.testing.QueryRunner;
+import com.facebook.presto.tests.tpch.TpchQueryRunnerBuilder;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SystemSessionProperties.DISTRIBUTED_DYNAMIC_FILTERING_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.ENABLE_DYNAMIC_FILTERING;
+import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+
+public class TestDistributedQueriesWithDistributedDynamicFilter
+        extends AbstractTestQueries
+{
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        return TpchQueryRunnerBuilder.builder()
+                .amendSession(builder -> builder
+                        .setSystemProperty(ENABLE_DYNAMIC_FILTERING, "true")
+                        .setSystemProperty(DISTRIBUTED_DYNAMIC_FILTERING_ENABLED, "true")
+                        // probe-side scans run in other stages than partitioned joins
+                        .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "PARTITIONED"))
+                .build();
+    }
+
+    @Test
+    public void testPartitionedJoinWithDistributedDynamicFilter()
+    {
+        assertQuery("SELECT count(*), sum(l.quantity) FROM lineitem l JOIN part p ON l.partkey = p.partkey WHERE p.size < 3");
+        assertQuery("SELECT count(*) FROM lineitem WHERE suppkey IN (SELECT suppkey FROM supplier WHERE acctbal < 0)");
+        // the build side is empty
+        assertQuery("SELECT count(*) FROM lineitem l JOIN part p ON l.partkey = p.partkey WHERE p.size < 0");
+    }
+}